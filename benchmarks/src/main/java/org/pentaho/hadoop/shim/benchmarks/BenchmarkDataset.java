@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.common.format.orc.OrcOutputField;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.ParquetOutputField;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Rows generated from a fixed seed, so that every run and every build benchmarks the same data. Column {@code i} is
+ * named {@code <type>_<i>}, e.g. {@code string_2}.
+ */
+public class BenchmarkDataset {
+
+  static final long SEED = 0x5eed_2024L;
+
+  /**
+   * Separates the column types of a dataset. JMH splits the values of a {@code -p} option on commas, so commas would
+   * turn the columns into several parameter values.
+   */
+  public static final String COLUMN_SEPARATOR = "+";
+
+  private final List<ColumnType> columns;
+  private final RowMeta rowMeta = new RowMeta();
+  private final List<RowMetaAndData> rows;
+
+  /**
+   * @param rowCount number of rows
+   * @param columns  {@link ColumnType} names separated by {@value #COLUMN_SEPARATOR}, a type may be repeated
+   */
+  public BenchmarkDataset( int rowCount, String columns ) {
+    this.columns = parseColumns( columns );
+    for ( int i = 0; i < this.columns.size(); i++ ) {
+      rowMeta.addValueMeta( this.columns.get( i ).createValueMeta( columnName( i ) ) );
+    }
+    Random random = new Random( SEED );
+    List<RowMetaAndData> generated = new ArrayList<>( rowCount );
+    for ( int row = 0; row < rowCount; row++ ) {
+      Object[] data = new Object[ this.columns.size() ];
+      for ( int i = 0; i < data.length; i++ ) {
+        data[ i ] = this.columns.get( i ).nextValue( random );
+      }
+      generated.add( new RowMetaAndData( rowMeta, data ) );
+    }
+    rows = Collections.unmodifiableList( generated );
+  }
+
+  static List<ColumnType> parseColumns( String columns ) {
+    List<ColumnType> types = new ArrayList<>();
+    for ( String name : columns.split( Pattern.quote( COLUMN_SEPARATOR ) ) ) {
+      if ( !name.trim().isEmpty() ) {
+        types.add( ColumnType.valueOf( name.trim().toUpperCase( Locale.ROOT ) ) );
+      }
+    }
+    if ( types.isEmpty() ) {
+      throw new IllegalArgumentException( "No column types in '" + columns + "'" );
+    }
+    return types;
+  }
+
+  public List<RowMetaAndData> getRows() {
+    return rows;
+  }
+
+  public RowMeta getRowMeta() {
+    return rowMeta;
+  }
+
+  public List<OrcOutputField> createOrcOutputFields() {
+    List<OrcOutputField> fields = new ArrayList<>( columns.size() );
+    for ( int i = 0; i < columns.size(); i++ ) {
+      OrcOutputField field = new OrcOutputField();
+      field.setFormatFieldName( columnName( i ) );
+      field.setPentahoFieldName( columnName( i ) );
+      field.setFormatType( columns.get( i ).getOrcType() );
+      field.setPrecision( String.valueOf( ColumnType.DECIMAL_PRECISION ) );
+      field.setScale( String.valueOf( ColumnType.DECIMAL_SCALE ) );
+      field.setAllowNull( true );
+      fields.add( field );
+    }
+    return fields;
+  }
+
+  public List<ParquetOutputField> createParquetOutputFields() {
+    List<ParquetOutputField> fields = new ArrayList<>( columns.size() );
+    for ( int i = 0; i < columns.size(); i++ ) {
+      ParquetOutputField field = new ParquetOutputField();
+      field.setFormatFieldName( columnName( i ) );
+      field.setPentahoFieldName( columnName( i ) );
+      field.setFormatType( columns.get( i ).getParquetType() );
+      field.setPrecision( String.valueOf( ColumnType.DECIMAL_PRECISION ) );
+      field.setScale( String.valueOf( ColumnType.DECIMAL_SCALE ) );
+      field.setAllowNull( true );
+      fields.add( field );
+    }
+    return fields;
+  }
+
+  /**
+   * Writes all rows through the ORC output format of the shim.
+   */
+  public void writeOrc( String file, Codec codec ) throws Exception {
+    PentahoOrcOutputFormat outputFormat = new PentahoOrcOutputFormat();
+    outputFormat.setOutputFile( file, true );
+    outputFormat.setFields( createOrcOutputFields() );
+    outputFormat.setCompression( codec.getOrcCompression() );
+    write( outputFormat.createRecordWriter() );
+  }
+
+  /**
+   * Writes all rows through the apache Parquet output format of the shim.
+   */
+  public void writeParquet( String file, Codec codec ) throws Exception {
+    PentahoApacheOutputFormat outputFormat = new PentahoApacheOutputFormat();
+    outputFormat.setOutputFile( file, true );
+    outputFormat.setFields( createParquetOutputFields() );
+    outputFormat.setCompression( codec.getParquetCompression() );
+    write( outputFormat.createRecordWriter() );
+  }
+
+  private void write( IPentahoRecordWriter writer ) throws Exception {
+    try {
+      for ( RowMetaAndData row : rows ) {
+        writer.write( row );
+      }
+    } catch ( Exception e ) {
+      writer.abort();
+      throw e;
+    }
+    writer.close();
+  }
+
+  private String columnName( int index ) {
+    return columns.get( index ).name().toLowerCase( Locale.ROOT ) + "_" + index;
+  }
+}
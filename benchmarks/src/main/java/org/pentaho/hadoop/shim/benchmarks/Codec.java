@@ -0,0 +1,43 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.apache.orc.CompressionKind;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Compression codecs available to both formats.
+ */
+public enum Codec {
+  NONE( CompressionKind.NONE, CompressionCodecName.UNCOMPRESSED ),
+  SNAPPY( CompressionKind.SNAPPY, CompressionCodecName.SNAPPY ),
+  ZLIB( CompressionKind.ZLIB, CompressionCodecName.GZIP ),
+  ZSTD( CompressionKind.ZSTD, CompressionCodecName.ZSTD ),
+  LZ4( CompressionKind.LZ4, CompressionCodecName.LZ4_RAW );
+
+  private final CompressionKind orcCompression;
+  private final CompressionCodecName parquetCompression;
+
+  Codec( CompressionKind orcCompression, CompressionCodecName parquetCompression ) {
+    this.orcCompression = orcCompression;
+    this.parquetCompression = parquetCompression;
+  }
+
+  public CompressionKind getOrcCompression() {
+    return orcCompression;
+  }
+
+  public CompressionCodecName getParquetCompression() {
+    return parquetCompression;
+  }
+}
@@ -0,0 +1,124 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+import org.pentaho.hadoop.shim.api.format.OrcSpec;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Column types a benchmark dataset can be made of, with the ORC and Parquet types they are written as and a
+ * generator of deterministic values.
+ */
+public enum ColumnType {
+  BOOLEAN( OrcSpec.DataType.BOOLEAN, ParquetSpec.DataType.BOOLEAN ) {
+    @Override ValueMetaInterface createValueMeta( String name ) {
+      return new ValueMetaBoolean( name );
+    }
+
+    @Override Object nextValue( Random random ) {
+      return random.nextBoolean();
+    }
+  },
+  INTEGER( OrcSpec.DataType.BIGINT, ParquetSpec.DataType.INT_64 ) {
+    @Override ValueMetaInterface createValueMeta( String name ) {
+      return new ValueMetaInteger( name );
+    }
+
+    @Override Object nextValue( Random random ) {
+      return random.nextLong();
+    }
+  },
+  NUMBER( OrcSpec.DataType.DOUBLE, ParquetSpec.DataType.DOUBLE ) {
+    @Override ValueMetaInterface createValueMeta( String name ) {
+      return new ValueMetaNumber( name );
+    }
+
+    @Override Object nextValue( Random random ) {
+      return random.nextDouble() * 1_000_000;
+    }
+  },
+  BIGNUMBER( OrcSpec.DataType.DECIMAL, ParquetSpec.DataType.DECIMAL ) {
+    @Override ValueMetaInterface createValueMeta( String name ) {
+      return new ValueMetaBigNumber( name );
+    }
+
+    @Override Object nextValue( Random random ) {
+      return BigDecimal.valueOf( random.nextLong() % 1_000_000_000_000_000L, DECIMAL_SCALE );
+    }
+  },
+  STRING( OrcSpec.DataType.STRING, ParquetSpec.DataType.UTF8 ) {
+    @Override ValueMetaInterface createValueMeta( String name ) {
+      return new ValueMetaString( name );
+    }
+
+    @Override Object nextValue( Random random ) {
+      // a limited number of distinct values, so that dictionary encoding is exercised as well
+      return "value-" + random.nextInt( 10_000 );
+    }
+  },
+  DATE( OrcSpec.DataType.DATE, ParquetSpec.DataType.DATE ) {
+    @Override ValueMetaInterface createValueMeta( String name ) {
+      return new ValueMetaDate( name );
+    }
+
+    @Override Object nextValue( Random random ) {
+      return new Date( random.nextInt( 20_000 ) * 86_400_000L );
+    }
+  },
+  TIMESTAMP( OrcSpec.DataType.TIMESTAMP, ParquetSpec.DataType.TIMESTAMP_MILLIS ) {
+    @Override ValueMetaInterface createValueMeta( String name ) {
+      return new ValueMetaTimestamp( name );
+    }
+
+    @Override Object nextValue( Random random ) {
+      // up to about 35 years after the epoch with millisecond precision
+      return new Timestamp( random.nextLong() & 0xFFFFFFFFFFL );
+    }
+  };
+
+  static final int DECIMAL_PRECISION = 20;
+  static final int DECIMAL_SCALE = 4;
+
+  private final OrcSpec.DataType orcType;
+  private final ParquetSpec.DataType parquetType;
+
+  ColumnType( OrcSpec.DataType orcType, ParquetSpec.DataType parquetType ) {
+    this.orcType = orcType;
+    this.parquetType = parquetType;
+  }
+
+  OrcSpec.DataType getOrcType() {
+    return orcType;
+  }
+
+  ParquetSpec.DataType getParquetType() {
+    return parquetType;
+  }
+
+  abstract ValueMetaInterface createValueMeta( String name );
+
+  abstract Object nextValue( Random random );
+}
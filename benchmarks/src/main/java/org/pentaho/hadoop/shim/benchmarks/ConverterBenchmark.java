@@ -0,0 +1,255 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IOrcInputField;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.common.format.orc.OrcConverter;
+import org.pentaho.hadoop.shim.common.format.orc.OrcMetaDataReader;
+import org.pentaho.hadoop.shim.common.format.orc.OrcSchemaConverter;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetConverter;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.PentahoParquetWriteSupport;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion between file values and pentaho rows alone: {@link OrcConverter} on batches and the
+ * {@link ParquetConverter} materializer on values which were decoded during the setup, and
+ * {@link PentahoParquetWriteSupport} writing into a record consumer which discards everything.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ConverterBenchmark {
+
+  @State( Scope.Benchmark )
+  public static class DecodedState {
+    List<VectorizedRowBatch> orcBatches = new ArrayList<>();
+    TypeDescription orcSchema;
+    List<IOrcInputField> orcFields;
+    Map<String, Integer> orcColumns = new HashMap<>();
+
+    List<IParquetInputField> parquetFields;
+    List<Object[]> parquetValues = new ArrayList<>();
+
+    @Setup( Level.Trial )
+    public void setUp( DatasetState dataset ) throws Exception {
+      Configuration conf = new Configuration();
+      readOrc( conf, new Path( URI.create( dataset.getOrcFile() ) ) );
+      readParquet( conf, new Path( URI.create( dataset.getParquetFile() ) ) );
+    }
+
+    private void readOrc( Configuration conf, Path file ) throws Exception {
+      try ( Reader reader = OrcFile.createReader( file, OrcFile.readerOptions( conf ) ) ) {
+        orcSchema = reader.getSchema();
+        orcFields = new OrcSchemaConverter().buildInputFields( orcSchema );
+        new OrcMetaDataReader( reader ).read( orcFields );
+        List<String> names = orcSchema.getFieldNames();
+        for ( IOrcInputField field : orcFields ) {
+          orcColumns.put( field.getPentahoFieldName(), names.indexOf( field.getFormatFieldName() ) );
+        }
+        try ( RecordReader rows = reader.rows() ) {
+          VectorizedRowBatch batch = orcSchema.createRowBatch();
+          while ( rows.nextBatch( batch ) ) {
+            orcBatches.add( batch );
+            batch = orcSchema.createRowBatch();
+          }
+        }
+      }
+    }
+
+    private void readParquet( Configuration conf, Path file ) throws Exception {
+      MessageType schema;
+      try ( ParquetFileReader reader = ParquetFileReader.open( HadoopInputFile.fromPath( file, conf ) ) ) {
+        schema = reader.getFooter().getFileMetaData().getSchema();
+      }
+      parquetFields = ParquetConverter.buildInputFields( schema );
+      try ( ParquetReader<Group> reader = ParquetReader.builder( new GroupReadSupport(), file )
+        .withConf( conf ).build() ) {
+        for ( Group group = reader.read(); group != null; group = reader.read() ) {
+          Object[] values = new Object[ schema.getFieldCount() ];
+          for ( int i = 0; i < values.length; i++ ) {
+            values[ i ] = group.getFieldRepetitionCount( i ) == 0 ? null : primitiveValue( schema, group, i );
+          }
+          parquetValues.add( values );
+        }
+      }
+    }
+
+    private static Object primitiveValue( MessageType schema, Group group, int field ) {
+      switch ( schema.getType( field ).asPrimitiveType().getPrimitiveTypeName() ) {
+        case BOOLEAN:
+          return group.getBoolean( field, 0 );
+        case INT32:
+          return group.getInteger( field, 0 );
+        case INT64:
+          return group.getLong( field, 0 );
+        case FLOAT:
+          return group.getFloat( field, 0 );
+        case DOUBLE:
+          return group.getDouble( field, 0 );
+        case INT96:
+          return group.getInt96( field, 0 );
+        default:
+          return group.getBinary( field, 0 );
+      }
+    }
+  }
+
+  @Benchmark
+  public void orcConverter( DecodedState state, Blackhole blackhole ) {
+    OrcConverter converter = new OrcConverter();
+    for ( VectorizedRowBatch batch : state.orcBatches ) {
+      for ( int row = 0; row < batch.size; row++ ) {
+        blackhole.consume( converter.convertFromOrc( batch, row, state.orcFields, state.orcSchema,
+          state.orcColumns, state.orcFields ) );
+      }
+    }
+  }
+
+  @Benchmark
+  public void parquetConverter( DecodedState state, Blackhole blackhole ) {
+    ParquetConverter.MyRecordMaterializer materializer =
+      new ParquetConverter.MyRecordMaterializer( new ParquetConverter( state.parquetFields ) );
+    GroupConverter root = materializer.getRootConverter();
+    for ( Object[] values : state.parquetValues ) {
+      root.start();
+      for ( int i = 0; i < values.length; i++ ) {
+        if ( values[ i ] != null ) {
+          addValue( root.getConverter( i ).asPrimitiveConverter(), values[ i ] );
+        }
+      }
+      root.end();
+      blackhole.consume( materializer.getCurrentRecord() );
+    }
+  }
+
+  @Benchmark
+  public void parquetWriteSupport( DatasetState state, Blackhole blackhole ) {
+    PentahoParquetWriteSupport writeSupport =
+      new PentahoParquetWriteSupport( state.getDataset().createParquetOutputFields() );
+    RecordConsumer consumer = new DiscardingRecordConsumer( blackhole );
+    for ( RowMetaAndData row : state.getDataset().getRows() ) {
+      writeSupport.writeRow( row, consumer );
+    }
+  }
+
+  private static void addValue( PrimitiveConverter converter, Object value ) {
+    if ( value instanceof Binary ) {
+      converter.addBinary( (Binary) value );
+    } else if ( value instanceof Long ) {
+      converter.addLong( (Long) value );
+    } else if ( value instanceof Integer ) {
+      converter.addInt( (Integer) value );
+    } else if ( value instanceof Double ) {
+      converter.addDouble( (Double) value );
+    } else if ( value instanceof Float ) {
+      converter.addFloat( (Float) value );
+    } else {
+      converter.addBoolean( (Boolean) value );
+    }
+  }
+
+  private static class DiscardingRecordConsumer extends RecordConsumer {
+    private final Blackhole blackhole;
+
+    DiscardingRecordConsumer( Blackhole blackhole ) {
+      this.blackhole = blackhole;
+    }
+
+    @Override public void startMessage() {
+      // nothing is written
+    }
+
+    @Override public void endMessage() {
+      // nothing is written
+    }
+
+    @Override public void startField( String field, int index ) {
+      blackhole.consume( index );
+    }
+
+    @Override public void endField( String field, int index ) {
+      // nothing is written
+    }
+
+    @Override public void startGroup() {
+      // nothing is written
+    }
+
+    @Override public void endGroup() {
+      // nothing is written
+    }
+
+    @Override public void addInteger( int value ) {
+      blackhole.consume( value );
+    }
+
+    @Override public void addLong( long value ) {
+      blackhole.consume( value );
+    }
+
+    @Override public void addBoolean( boolean value ) {
+      blackhole.consume( value );
+    }
+
+    @Override public void addBinary( Binary value ) {
+      blackhole.consume( value );
+    }
+
+    @Override public void addFloat( float value ) {
+      blackhole.consume( value );
+    }
+
+    @Override public void addDouble( double value ) {
+      blackhole.consume( value );
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.pentaho.di.core.logging.KettleLogStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates the dataset of a trial and writes it as ORC and Parquet to a temporary directory on the local file
+ * system. Row count, column types and codec are JMH parameters, e.g.
+ * {@code -p rows=1000000 -p columns=STRING+STRING+INTEGER -p codec=ZSTD}. The column types are separated by plus signs
+ * since JMH splits parameter values on commas, {@code -p codec=NONE,ZSTD} runs both codecs.
+ */
+@State( Scope.Benchmark )
+public class DatasetState {
+
+  @Param( "100000" )
+  public int rows;
+
+  @Param( "BOOLEAN+INTEGER+NUMBER+BIGNUMBER+STRING+DATE+TIMESTAMP" )
+  public String columns;
+
+  @Param( { "NONE", "SNAPPY" } )
+  public Codec codec;
+
+  private BenchmarkDataset dataset;
+  private Path directory;
+  private int outputSequence;
+
+  @Setup( Level.Trial )
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    dataset = new BenchmarkDataset( rows, columns );
+    directory = Files.createTempDirectory( "format-benchmark" );
+    dataset.writeOrc( getOrcFile(), codec );
+    dataset.writeParquet( getParquetFile(), codec );
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDown() throws IOException {
+    try ( Stream<Path> files = Files.walk( directory ) ) {
+      files.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+    }
+  }
+
+  public BenchmarkDataset getDataset() {
+    return dataset;
+  }
+
+  public Codec getCodec() {
+    return codec;
+  }
+
+  /**
+   * @return uri of the ORC file written by the setup
+   */
+  public String getOrcFile() {
+    return uri( "input.orc" );
+  }
+
+  /**
+   * @return uri of the Parquet file written by the setup
+   */
+  public String getParquetFile() {
+    return uri( "input.parquet" );
+  }
+
+  /**
+   * @return uri of a new file for write benchmarks, a few files are reused to keep the directory small
+   */
+  public String nextOutputFile( String extension ) {
+    return uri( "output-" + ( outputSequence++ % 4 ) + extension );
+  }
+
+  private String uri( String name ) {
+    return directory.resolve( name ).toUri().toString();
+  }
+}
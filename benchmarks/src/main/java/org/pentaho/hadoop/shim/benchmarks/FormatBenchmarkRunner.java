@@ -0,0 +1,50 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line options and writes the results as JSON to
+ * {@value #DEFAULT_RESULT_FILE} unless a result format or file is given, so that runs of different builds can be
+ * compared with any JMH result viewer.
+ */
+public class FormatBenchmarkRunner {
+
+  static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  private FormatBenchmarkRunner() {
+    // main only
+  }
+
+  public static void main( String[] args ) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions( args );
+    if ( commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+      || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats() ) {
+      org.openjdk.jmh.Main.main( args );
+      return;
+    }
+    ChainedOptionsBuilder options = new OptionsBuilder().parent( commandLine );
+    if ( !commandLine.getResultFormat().hasValue() ) {
+      options.resultFormat( ResultFormatType.JSON );
+    }
+    if ( !commandLine.getResult().hasValue() ) {
+      options.result( DEFAULT_RESULT_FILE );
+    }
+    new Runner( options.build() ).run();
+  }
+}
@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
+import com.pentaho.big.data.bundles.impl.shim.hbase.table.ResultScannerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultBatch;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hbase.shim.fake.FakeHBaseConnection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full scan of an in-memory table served by {@link FakeHBaseConnection}, so that only the client side
+ * costs are compared: reading one row per call and decoding the columns by name, the way
+ * {@link ResultScanner#next()} does, against {@link ResultScanner#next(int)} batches decoding the scan columns with
+ * pre-resolved byte arrays into reused buffers.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class HBaseScanBenchmark {
+
+  static final String TABLE = "benchmark";
+  static final String FAMILY = "f";
+
+  @State( Scope.Benchmark )
+  public static class TableState {
+    @Param( { "50000" } )
+    int rows;
+
+    @Param( { "4" } )
+    int columns;
+
+    @Param( { "1000" } )
+    int batchSize;
+
+    FakeHBaseConnection connection;
+    HBaseConnectionWrapper wrapper;
+    HBaseBytesUtilShim bytesUtil;
+    List<BatchGetOptions.Column> scanColumns = new ArrayList<>();
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+      connection = new FakeHBaseConnection();
+      bytesUtil = connection.getBytesUtil();
+      connection.createTable( TABLE, Collections.singletonList( FAMILY ), new Properties() );
+      connection.newTargetTable( TABLE, null );
+      for ( int c = 0; c < columns; c++ ) {
+        scanColumns.add( new BatchGetOptions.Column( FAMILY, "c" + c, false ) );
+      }
+      for ( int r = 0; r < rows; r++ ) {
+        connection.newTargetTablePut( bytesUtil.toBytes( String.format( "row%08d", r ) ), true );
+        for ( BatchGetOptions.Column column : scanColumns ) {
+          connection.addColumnToTargetPut( FAMILY, column.getQualifier(), false,
+            bytesUtil.toBytes( "value-" + column.getQualifier() + "-" + r ) );
+        }
+        connection.executeTargetTablePut();
+      }
+      connection.newSourceTable( TABLE );
+      wrapper = new HBaseConnectionWrapper( connection );
+    }
+
+    void startScan() throws Exception {
+      wrapper.newSourceTableScan( null, null, batchSize );
+      for ( BatchGetOptions.Column column : scanColumns ) {
+        wrapper.addColumnToScan( column.getFamily(), column.getQualifier(), column.isQualifierBinary() );
+      }
+      wrapper.executeSourceTableScan();
+    }
+
+    ResultScanner newScanner() throws Exception {
+      startScan();
+      return new ResultScannerImpl( new HBaseConnectionHandle() {
+        @Override public HBaseConnectionWrapper getConnection() {
+          return wrapper;
+        }
+
+        @Override public void close() {
+          // the connection is reused by every invocation
+        }
+      }, bytesUtil, scanColumns, batchSize, 0 );
+    }
+  }
+
+  @Benchmark
+  public void rowAtATime( TableState state, Blackhole blackhole ) throws Exception {
+    state.startScan();
+    HBaseConnectionWrapper wrapper = state.wrapper;
+    while ( wrapper.resultSetNextRow() ) {
+      Object row = wrapper.getCurrentResult();
+      blackhole.consume( wrapper.getRowKey( row ) );
+      for ( BatchGetOptions.Column column : state.scanColumns ) {
+        blackhole.consume( wrapper.getRowColumnLatest( row, column.getFamily(), column.getQualifier(),
+          column.isQualifierBinary() ) );
+      }
+    }
+  }
+
+  @Benchmark
+  public void batched( TableState state, Blackhole blackhole ) throws Exception {
+    ResultScanner scanner = state.newScanner();
+    int columns = state.scanColumns.size();
+    for ( ResultBatch batch = scanner.next( state.batchSize ); batch.size() > 0;
+          batch = scanner.next( state.batchSize ) ) {
+      for ( int i = 0; i < batch.size(); i++ ) {
+        blackhole.consume( batch.getRow( i ) );
+        for ( int c = 0; c < columns; c++ ) {
+          blackhole.consume( batch.getValue( i, c ) );
+        }
+      }
+    }
+  }
+}
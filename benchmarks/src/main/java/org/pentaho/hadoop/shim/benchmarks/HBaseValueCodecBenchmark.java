@@ -0,0 +1,152 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueBuffer;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueCodec;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hbase.shim.common.CommonHBaseBytesUtil;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the static {@link HBaseValueMeta} encode and decode methods with {@link HBaseValueCodec}s bound once per
+ * column, on rows of long, double, string, date, boolean and big number columns. The codec variants encode into one
+ * reused {@link HBaseValueBuffer} and decode the numeric columns without boxing.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class HBaseValueCodecBenchmark {
+
+  @State( Scope.Benchmark )
+  public static class ValueState {
+    @Param( { "100000" } )
+    int rows;
+
+    HBaseBytesUtilShim bytesUtil = new CommonHBaseBytesUtil();
+    HBaseValueMeta[] columns;
+    ValueMetaInterface[] valueMetas;
+    HBaseValueCodec[] codecs;
+    Object[][] values;
+    byte[][][] encoded;
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+      int[] types = { ValueMetaInterface.TYPE_INTEGER, ValueMetaInterface.TYPE_NUMBER, ValueMetaInterface.TYPE_STRING,
+        ValueMetaInterface.TYPE_DATE, ValueMetaInterface.TYPE_BOOLEAN, ValueMetaInterface.TYPE_BIGNUMBER };
+      valueMetas = new ValueMetaInterface[] { new ValueMetaInteger( "c0" ), new ValueMetaNumber( "c1" ),
+        new ValueMetaString( "c2" ), new ValueMetaDate( "c3" ), new ValueMetaBoolean( "c4" ),
+        new ValueMetaBigNumber( "c5" ) };
+      columns = new HBaseValueMeta[ types.length ];
+      codecs = new HBaseValueCodec[ types.length ];
+      for ( int c = 0; c < types.length; c++ ) {
+        columns[ c ] = new HBaseValueMeta( "f,c" + c + ",c" + c, types[ c ], -1, -1 );
+        codecs[ c ] = HBaseValueCodec.forColumn( columns[ c ], bytesUtil );
+      }
+
+      Random random = new Random( 42 );
+      values = new Object[ rows ][];
+      encoded = new byte[ rows ][][];
+      for ( int r = 0; r < rows; r++ ) {
+        values[ r ] = new Object[] { random.nextLong(), random.nextDouble() * 1000, "value-" + random.nextInt( 10000 ),
+          new Date( random.nextInt( Integer.MAX_VALUE ) * 1000L ), random.nextBoolean(),
+          BigDecimal.valueOf( random.nextInt(), 2 ) };
+        encoded[ r ] = new byte[ types.length ][];
+        for ( int c = 0; c < types.length; c++ ) {
+          encoded[ r ][ c ] = HBaseValueMeta.encodeColumnValue( values[ r ][ c ], valueMetas[ c ], columns[ c ],
+            bytesUtil );
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void staticEncode( ValueState state, Blackhole blackhole ) throws Exception {
+    for ( Object[] row : state.values ) {
+      for ( int c = 0; c < row.length; c++ ) {
+        blackhole.consume( HBaseValueMeta.encodeColumnValue( row[ c ], state.valueMetas[ c ], state.columns[ c ],
+          state.bytesUtil ) );
+      }
+    }
+  }
+
+  @Benchmark
+  public void codecEncode( ValueState state, Blackhole blackhole ) throws Exception {
+    HBaseValueBuffer buffer = new HBaseValueBuffer();
+    for ( Object[] row : state.values ) {
+      for ( int c = 0; c < row.length; c++ ) {
+        state.codecs[ c ].encode( row[ c ], state.valueMetas[ c ], buffer );
+        blackhole.consume( buffer.length() );
+      }
+    }
+  }
+
+  @Benchmark
+  public void staticDecode( ValueState state, Blackhole blackhole ) throws Exception {
+    for ( byte[][] row : state.encoded ) {
+      for ( int c = 0; c < row.length; c++ ) {
+        blackhole.consume( HBaseValueMeta.decodeColumnValue( row[ c ], state.columns[ c ], state.bytesUtil ) );
+      }
+    }
+  }
+
+  @Benchmark
+  public void codecDecode( ValueState state, Blackhole blackhole ) throws Exception {
+    for ( byte[][] row : state.encoded ) {
+      for ( int c = 0; c < row.length; c++ ) {
+        blackhole.consume( state.codecs[ c ].decode( row[ c ] ) );
+      }
+    }
+  }
+
+  @Benchmark
+  public void codecDecodePrimitives( ValueState state, Blackhole blackhole ) throws Exception {
+    HBaseValueCodec[] codecs = state.codecs;
+    for ( byte[][] row : state.encoded ) {
+      blackhole.consume( codecs[ 0 ].decodeLong( row[ 0 ], 0, row[ 0 ].length ) );
+      blackhole.consume( codecs[ 1 ].decodeDouble( row[ 1 ], 0, row[ 1 ].length ) );
+      blackhole.consume( codecs[ 2 ].decode( row[ 2 ] ) );
+      blackhole.consume( codecs[ 3 ].decodeLong( row[ 3 ], 0, row[ 3 ].length ) );
+      blackhole.consume( codecs[ 4 ].decodeBoolean( row[ 4 ], 0, row[ 4 ].length ) );
+      blackhole.consume( codecs[ 5 ].decode( row[ 5 ] ) );
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the dataset through {@link PentahoOrcInputFormat} and the ORC output format, including the
+ * conversion from and to pentaho rows.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class OrcBenchmark {
+
+  @Benchmark
+  public long read( DatasetState state, Blackhole blackhole ) throws Exception {
+    PentahoOrcInputFormat inputFormat = new PentahoOrcInputFormat( null );
+    inputFormat.setInputFile( state.getOrcFile() );
+    inputFormat.setSchema( inputFormat.readSchema() );
+    long count = 0;
+    try ( IPentahoRecordReader reader = inputFormat.createRecordReader( null ) ) {
+      for ( RowMetaAndData row : reader ) {
+        blackhole.consume( row );
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public void write( DatasetState state ) throws Exception {
+    state.getDataset().writeOrc( state.nextOutputFile( ".orc" ), state.getCodec() );
+  }
+}
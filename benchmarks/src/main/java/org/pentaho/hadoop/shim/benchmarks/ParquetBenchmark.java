@@ -0,0 +1,62 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the dataset through the apache Parquet delegates, including the conversion from and to pentaho
+ * rows.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ParquetBenchmark {
+
+  @Benchmark
+  public long read( DatasetState state, Blackhole blackhole ) throws Exception {
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( null );
+    inputFormat.setInputFile( state.getParquetFile() );
+    inputFormat.setSchema( inputFormat.readSchema( state.getParquetFile() ) );
+    long count = 0;
+    for ( IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoRecordReader reader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : reader ) {
+          blackhole.consume( row );
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public void write( DatasetState state ) throws Exception {
+    state.getDataset().writeParquet( state.nextOutputFile( ".parquet" ), state.getCodec() );
+  }
+}
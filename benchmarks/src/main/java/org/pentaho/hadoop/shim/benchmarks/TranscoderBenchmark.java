@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IFormatTranscoder.Format;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+import org.pentaho.hadoop.shim.common.format.transcode.FormatTranscoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the columnar {@link FormatTranscoder} with the row based path a transformation takes, which reads pentaho
+ * rows with one input format and writes them with the other output format.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class TranscoderBenchmark {
+
+  @Benchmark
+  public long orcToParquetTranscoder( DatasetState state ) throws Exception {
+    FormatTranscoder transcoder = new FormatTranscoder( null );
+    transcoder.setParquetCompression( state.getCodec().getParquetCompression() );
+    return transcoder.transcode( state.getOrcFile(), Format.ORC, state.nextOutputFile( ".parquet" ), Format.PARQUET,
+      true );
+  }
+
+  @Benchmark
+  public long orcToParquetRows( DatasetState state ) throws Exception {
+    PentahoOrcInputFormat inputFormat = new PentahoOrcInputFormat( null );
+    inputFormat.setInputFile( state.getOrcFile() );
+    inputFormat.setSchema( inputFormat.readSchema() );
+    PentahoApacheOutputFormat outputFormat = new PentahoApacheOutputFormat();
+    outputFormat.setOutputFile( state.nextOutputFile( ".parquet" ), true );
+    outputFormat.setFields( state.getDataset().createParquetOutputFields() );
+    outputFormat.setCompression( state.getCodec().getParquetCompression() );
+    try ( IPentahoRecordReader reader = inputFormat.createRecordReader( null ) ) {
+      return copy( reader, outputFormat.createRecordWriter() );
+    }
+  }
+
+  @Benchmark
+  public long parquetToOrcTranscoder( DatasetState state ) throws Exception {
+    FormatTranscoder transcoder = new FormatTranscoder( null );
+    transcoder.setOrcCompression( state.getCodec().getOrcCompression() );
+    return transcoder.transcode( state.getParquetFile(), Format.PARQUET, state.nextOutputFile( ".orc" ), Format.ORC,
+      true );
+  }
+
+  @Benchmark
+  public long parquetToOrcRows( DatasetState state ) throws Exception {
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( null );
+    inputFormat.setInputFile( state.getParquetFile() );
+    inputFormat.setSchema( inputFormat.readSchema( state.getParquetFile() ) );
+    PentahoOrcOutputFormat outputFormat = new PentahoOrcOutputFormat();
+    outputFormat.setOutputFile( state.nextOutputFile( ".orc" ), true );
+    outputFormat.setFields( state.getDataset().createOrcOutputFields() );
+    outputFormat.setCompression( state.getCodec().getOrcCompression() );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    long count = 0;
+    for ( IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoRecordReader reader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : reader ) {
+          writer.write( row );
+          count++;
+        }
+      }
+    }
+    writer.close();
+    return count;
+  }
+
+  private static long copy( IPentahoRecordReader reader, IPentahoRecordWriter writer ) throws Exception {
+    long count = 0;
+    for ( RowMetaAndData row : reader ) {
+      writer.write( row );
+      count++;
+    }
+    writer.close();
+    return count;
+  }
+}
@@ -13,9 +13,24 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase;
 
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
+
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by bryan on 1/26/16.
@@ -23,6 +38,16 @@ import java.util.List;
 public class BatchHBaseConnectionOperation implements HBaseConnectionOperation {
   private final List<HBaseConnectionOperation> hBaseConnectionOperations;
 
+  /**
+   * Supplies the connections of a parallel run. Operations running at the same time must get different connections
+   * since a connection keeps the state of the tables it works on. The handle is closed once the operation is done,
+   * which gives a pooled connection back to the pool.
+   */
+  @FunctionalInterface
+  public interface ConnectionSource {
+    HBaseConnectionHandle getConnectionHandle() throws IOException;
+  }
+
   public BatchHBaseConnectionOperation() {
     hBaseConnectionOperations = new ArrayList<>();
   }
@@ -31,9 +56,286 @@ public class BatchHBaseConnectionOperation implements HBaseConnectionOperation {
     hBaseConnectionOperations.add( hBaseConnectionOperation );
   }
 
+  /**
+   * Adds an operation together with the tables it reads or writes, for operations which do not declare them.
+   */
+  public void addOperation( HBaseConnectionOperation hBaseConnectionOperation, String... tables ) {
+    hBaseConnectionOperations.add( new TableOperation( hBaseConnectionOperation, tables ) );
+  }
+
   @Override public void perform( HBaseConnectionWrapper hBaseConnectionWrapper ) throws IOException {
     for ( HBaseConnectionOperation hBaseConnectionOperation : hBaseConnectionOperations ) {
       hBaseConnectionOperation.perform( hBaseConnectionWrapper );
     }
   }
+
+  /**
+   * @return the tables of all operations, empty if any operation does not declare its tables
+   */
+  @Override public Set<String> getTables() {
+    Set<String> tables = new LinkedHashSet<>();
+    for ( HBaseConnectionOperation hBaseConnectionOperation : hBaseConnectionOperations ) {
+      Set<String> operationTables = hBaseConnectionOperation.getTables();
+      if ( operationTables.isEmpty() ) {
+        return Collections.emptySet();
+      }
+      tables.addAll( operationTables );
+    }
+    return tables;
+  }
+
+  public BatchResult performParallel( ConnectionSource connectionSource, int parallelism ) throws IOException {
+    return performParallel( connectionSource, parallelism, null );
+  }
+
+  /**
+   * Runs the operations on at most {@code parallelism} threads, each operation on a connection of its own. An
+   * operation starts once every earlier operation on one of its tables is done, so operations on the same table keep
+   * the order they were added in while operations on other tables run concurrently. Operations which do not declare
+   * their tables wait for all earlier operations and are waited for by all later ones. Unlike {@link #perform}, every
+   * operation has to set up the connection state it needs itself.
+   * <p>
+   * A failing operation does not stop the batch: operations depending on it are skipped, the others still run. If the
+   * calling thread is interrupted, the operations not started yet are skipped and the running ones are interrupted,
+   * whether the executor was given or not.
+   *
+   * @param executor runs the operations, a pool of {@code parallelism} threads is created and shut down again if null
+   * @return the status of each operation, in the order they were added
+   * @throws InterruptedIOException if interrupted while waiting for the operations
+   */
+  public BatchResult performParallel( ConnectionSource connectionSource, int parallelism, ExecutorService executor )
+    throws IOException {
+    int size = hBaseConnectionOperations.size();
+    BatchResult result = new BatchResult( size );
+    if ( size == 0 ) {
+      return result;
+    }
+    ExecutorService owned = null;
+    if ( executor == null ) {
+      owned = Executors.newFixedThreadPool( Math.max( 1, Math.min( parallelism, size ) ), runnable -> {
+        Thread thread = new Thread( runnable, "hbase-batch-operation" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+      executor = owned;
+    }
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[ size ];
+    RunningOperations running = new RunningOperations( size );
+    try {
+      List<List<Integer>> dependencies = getDependencies();
+      for ( int i = 0; i < size; i++ ) {
+        CompletableFuture<?>[] waitFor = new CompletableFuture<?>[ dependencies.get( i ).size() ];
+        for ( int j = 0; j < waitFor.length; j++ ) {
+          waitFor[ j ] = futures[ dependencies.get( i ).get( j ) ];
+        }
+        int index = i;
+        // a failed dependency completes this future exceptionally without running the operation, which stays skipped
+        futures[ i ] = CompletableFuture.allOf( waitFor )
+          .thenRunAsync( () -> run( index, connectionSource, result, running ), executor );
+      }
+      CompletableFuture.allOf( futures ).get();
+    } catch ( ExecutionException e ) {
+      // failures are reported through the result
+    } catch ( InterruptedException e ) {
+      running.cancel();
+      for ( CompletableFuture<?> future : futures ) {
+        if ( future != null ) {
+          future.cancel( false );
+        }
+      }
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for the batch operations" );
+    } finally {
+      if ( owned != null ) {
+        owned.shutdownNow();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return for each operation the earlier operations it has to wait for
+   */
+  List<List<Integer>> getDependencies() {
+    List<List<Integer>> dependencies = new ArrayList<>( hBaseConnectionOperations.size() );
+    Map<String, Integer> lastByTable = new HashMap<>();
+    List<Integer> sinceBarrier = new ArrayList<>();
+    Integer barrier = null;
+    for ( int i = 0; i < hBaseConnectionOperations.size(); i++ ) {
+      Set<Integer> waitFor = new LinkedHashSet<>();
+      if ( barrier != null ) {
+        waitFor.add( barrier );
+      }
+      Set<String> tables = hBaseConnectionOperations.get( i ).getTables();
+      if ( tables.isEmpty() ) {
+        waitFor.addAll( sinceBarrier );
+        sinceBarrier.clear();
+        lastByTable.clear();
+        barrier = i;
+      } else {
+        for ( String table : tables ) {
+          Integer last = lastByTable.put( table, i );
+          if ( last != null ) {
+            waitFor.add( last );
+          }
+        }
+        sinceBarrier.add( i );
+      }
+      dependencies.add( new ArrayList<>( waitFor ) );
+    }
+    return dependencies;
+  }
+
+  private void run( int index, ConnectionSource connectionSource, BatchResult result, RunningOperations running ) {
+    if ( !running.start( index ) ) {
+      throw new CancellationException( "The batch was cancelled" );
+    }
+    try ( HBaseConnectionHandle handle = connectionSource.getConnectionHandle() ) {
+      hBaseConnectionOperations.get( index ).perform( handle.getConnection() );
+      result.succeeded( index );
+    } catch ( IOException | RuntimeException e ) {
+      result.failed( index, e );
+      throw new CompletionException( e );
+    } finally {
+      running.finish( index );
+    }
+  }
+
+  /**
+   * Threads of the operations running right now, so a cancelled batch can interrupt them. Cancelling a
+   * {@link CompletableFuture} does not interrupt the task it runs.
+   */
+  private static final class RunningOperations {
+    private final Thread[] threads;
+    private boolean cancelled;
+
+    private RunningOperations( int size ) {
+      threads = new Thread[ size ];
+    }
+
+    /**
+     * @return false if the batch was cancelled and the operation must not run
+     */
+    private synchronized boolean start( int index ) {
+      if ( cancelled ) {
+        return false;
+      }
+      threads[ index ] = Thread.currentThread();
+      return true;
+    }
+
+    private synchronized void finish( int index ) {
+      threads[ index ] = null;
+      if ( cancelled ) {
+        // the thread belongs to the executor, the interrupt meant for the operation must not reach its next task
+        Thread.interrupted();
+      }
+    }
+
+    private synchronized void cancel() {
+      cancelled = true;
+      for ( Thread thread : threads ) {
+        if ( thread != null ) {
+          thread.interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Outcome of a parallel run.
+   */
+  public static final class BatchResult {
+    public enum Status {
+      SUCCEEDED,
+      FAILED,
+      /**
+       * Not run because an operation it depends on failed
+       */
+      SKIPPED
+    }
+
+    private final Status[] statuses;
+    private final Exception[] failures;
+
+    BatchResult( int size ) {
+      statuses = new Status[ size ];
+      Arrays.fill( statuses, Status.SKIPPED );
+      failures = new Exception[ size ];
+    }
+
+    private synchronized void succeeded( int index ) {
+      statuses[ index ] = Status.SUCCEEDED;
+    }
+
+    private synchronized void failed( int index, Exception failure ) {
+      statuses[ index ] = Status.FAILED;
+      failures[ index ] = failure;
+    }
+
+    public int size() {
+      return statuses.length;
+    }
+
+    public synchronized Status getStatus( int index ) {
+      return statuses[ index ];
+    }
+
+    /**
+     * @return the exception of a failed operation, null otherwise
+     */
+    public synchronized Exception getFailure( int index ) {
+      return failures[ index ];
+    }
+
+    public synchronized boolean isSuccessful() {
+      for ( Status status : statuses ) {
+        if ( status != Status.SUCCEEDED ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Throws the failure of the first failed operation, with the failures of the other operations suppressed.
+     */
+    public synchronized void throwIfFailed() throws IOException {
+      IOException first = null;
+      for ( int i = 0; i < statuses.length; i++ ) {
+        if ( failures[ i ] == null ) {
+          continue;
+        }
+        if ( first == null ) {
+          first = IOExceptionUtil.wrapIfNecessary( failures[ i ] );
+        } else {
+          first.addSuppressed( failures[ i ] );
+        }
+      }
+      if ( first != null ) {
+        throw first;
+      }
+      if ( !isSuccessful() ) {
+        throw new IOException( "Not all batch operations were run" );
+      }
+    }
+  }
+
+  private static class TableOperation implements HBaseConnectionOperation {
+    private final HBaseConnectionOperation delegate;
+    private final Set<String> tables;
+
+    private TableOperation( HBaseConnectionOperation delegate, String... tables ) {
+      this.delegate = delegate;
+      this.tables = Collections.unmodifiableSet( new LinkedHashSet<>( Arrays.asList( tables ) ) );
+    }
+
+    @Override public void perform( HBaseConnectionWrapper hBaseConnectionWrapper ) throws IOException {
+      delegate.perform( hBaseConnectionWrapper );
+    }
+
+    @Override public Set<String> getTables() {
+      return tables;
+    }
+  }
 }
@@ -68,6 +68,23 @@ public class HBaseConnectionImpl implements HBaseConnection {
     }
   }
 
+  /**
+   * Runs a batch of operations on pooled connections. When every operation declares its tables, operations on
+   * different tables run on up to {@code parallelism} connections at once, see
+   * {@link BatchHBaseConnectionOperation#performParallel}. Otherwise the operations run in order on one connection.
+   *
+   * @throws IOException the failure of the first failed operation
+   */
+  public void performBatch( BatchHBaseConnectionOperation batch, int parallelism ) throws IOException {
+    if ( parallelism > 1 && !batch.getTables().isEmpty() ) {
+      batch.performParallel( hBaseConnectionPool::getConnectionHandle, parallelism ).throwIfFailed();
+      return;
+    }
+    try ( HBaseConnectionHandle hBaseConnectionHandle = hBaseConnectionPool.getConnectionHandle() ) {
+      batch.perform( hBaseConnectionHandle.getConnection() );
+    }
+  }
+
   @Override public MappingFactoryImpl getMappingFactory() {
     return new MappingFactoryImpl( hBaseBytesUtilShim, getHBaseValueMetaInterfaceFactory() );
   }
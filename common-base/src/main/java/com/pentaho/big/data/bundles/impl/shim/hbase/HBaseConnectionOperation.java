@@ -14,10 +14,23 @@
 package com.pentaho.big.data.bundles.impl.shim.hbase;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * Created by bryan on 1/26/16.
  */
 public interface HBaseConnectionOperation {
   void perform( HBaseConnectionWrapper hBaseConnectionWrapper ) throws IOException;
+
+  /**
+   * Tables this operation reads or writes. Operations on disjoint tables may run concurrently on different
+   * connections, see {@link BatchHBaseConnectionOperation#performParallel}. An empty set means the tables are not
+   * known, and the operation is ordered with respect to every other operation of a batch.
+   *
+   * @return the table names, empty when not declared
+   */
+  default Set<String> getTables() {
+    return Collections.emptySet();
+  }
 }
@@ -16,9 +16,15 @@ package com.pentaho.big.data.bundles.impl.shim.hbase;
 import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
 import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
 import org.pentaho.hadoop.shim.spi.HBaseConnection;
 
 import java.lang.reflect.Field;
@@ -112,10 +118,22 @@ public class HBaseConnectionWrapper implements HBaseConnection {
     return delegate.sourceTableRowExists( bytes );
   }
 
+  @Override public boolean[] sourceTableRowsExist( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    return delegate.sourceTableRowsExist( rowKeys, options );
+  }
+
+  @Override public List<Object> sourceTableGetRows( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    return delegate.sourceTableGetRows( rowKeys, options );
+  }
+
   @Override public void newSourceTableScan( byte[] bytes, byte[] bytes1, int i ) throws Exception {
     delegate.newSourceTableScan( bytes, bytes1, i );
   }
 
+  @Override public void setSourceScanMaxResultSize( long maxResultSize ) throws Exception {
+    delegate.setSourceScanMaxResultSize( maxResultSize );
+  }
+
   @Override public void newTargetTablePut( byte[] bytes, boolean b ) throws Exception {
     delegate.newTargetTablePut( bytes, b );
   }
@@ -142,6 +160,11 @@ public class HBaseConnectionWrapper implements HBaseConnection {
     delegate.addColumnFilterToScan( columnFilter, hBaseValueMeta, variableSpace, b );
   }
 
+  @Override public void addColumnFilterExpressionToScan( ColumnFilterExpression expression, Mapping.KeyType keyType,
+                                                         VariableSpace variableSpace ) throws Exception {
+    delegate.addColumnFilterExpressionToScan( expression, keyType, variableSpace );
+  }
+
   @Override public void addColumnToScan( String s, String s1, boolean b ) throws Exception {
     delegate.addColumnToScan( s, s1, b );
   }
@@ -150,10 +173,18 @@ public class HBaseConnectionWrapper implements HBaseConnection {
     delegate.executeSourceTableScan();
   }
 
+  @Override public void executeParallelSourceTableScan( ParallelScanOptions options ) throws Exception {
+    delegate.executeParallelSourceTableScan( options );
+  }
+
   @Override public boolean resultSetNextRow() throws Exception {
     return delegate.resultSetNextRow();
   }
 
+  @Override public int resultSetNextRows( HBaseRowBatch batch ) throws Exception {
+    return delegate.resultSetNextRows( batch );
+  }
+
   @Override public byte[] getRowKey( Object o ) throws Exception {
     return delegate.getRowKey( o );
   }
@@ -204,6 +235,10 @@ public class HBaseConnectionWrapper implements HBaseConnection {
     delegate.newTargetTable( s, properties );
   }
 
+  @Override public HBaseWriteErrorReport takeTargetTableWriteErrors() throws Exception {
+    return delegate.takeTargetTableWriteErrors();
+  }
+
   @Override public void closeTargetTable() throws Exception {
     delegate.closeTargetTable();
   }
@@ -13,6 +13,7 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.spi.HBaseConnection;
@@ -21,105 +22,98 @@ import org.pentaho.hbase.shim.common.CommonHBaseConnection;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Created by bryan on 1/25/16.
+ * <p/>
+ * Idle connections are indexed by source table and by target table and properties, so a borrow finds its best match
+ * without scanning the pool. Limits, eviction and validation are set with a {@link HBaseConnectionPoolConfig}.
+ * Connections are opened and switched to their tables outside the pool lock, so a slow cluster only blocks the
+ * borrowing thread.
  */
 public class HBaseConnectionPool implements Closeable {
-  private final Set<HBaseConnectionPoolConnection> availableConnections;
-  private final Set<HBaseConnectionPoolConnection> inUseConnections;
   private final HBaseShim hBaseShim;
   protected final Properties connectionProps;
   protected final LogChannelInterface logChannelInterface;
   protected final NamedCluster namedCluster;
+  private final HBaseConnectionPoolConfig config;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  // idle connections, least recently returned first
+  private final Map<HBaseConnectionPoolConnection, IdleEntry> idle = new LinkedHashMap<>();
+  private final Map<String, Set<HBaseConnectionPoolConnection>> idleBySource = new HashMap<>();
+  private final Map<TargetKey, Set<HBaseConnectionPoolConnection>> idleByTarget = new HashMap<>();
+  private final Set<HBaseConnectionPoolConnection> idleWithoutTables = new LinkedHashSet<>();
+  // borrowed connections and the key they count against, null if no key limit applies
+  private final Map<HBaseConnectionPoolConnection, Object> inUse = new IdentityHashMap<>();
+  private final Map<Object, Integer> borrowedByKey = new HashMap<>();
+  // idle, borrowed and currently opening connections
+  private int total;
+  private int waiters;
+  private boolean closed;
+
+  private final AtomicLong created = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+  private final AtomicLong invalidated = new AtomicLong();
+  private final AtomicLong borrows = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong totalBorrowNanos = new AtomicLong();
+  private final AtomicLong maxBorrowNanos = new AtomicLong();
+
+  private final ScheduledExecutorService evictor;
 
   public HBaseConnectionPool( HBaseShim hBaseShim, Properties connectionProps,
                               LogChannelInterface logChannelInterface, NamedCluster namedCluster ) {
+    this( hBaseShim, connectionProps, logChannelInterface, namedCluster,
+      HBaseConnectionPoolConfig.fromProperties( connectionProps ) );
+  }
+
+  public HBaseConnectionPool( HBaseShim hBaseShim, Properties connectionProps,
+                              LogChannelInterface logChannelInterface, NamedCluster namedCluster,
+                              HBaseConnectionPoolConfig config ) {
     this.hBaseShim = hBaseShim;
     this.connectionProps = connectionProps;
     this.logChannelInterface = logChannelInterface;
-    availableConnections = new HashSet<>();
-    inUseConnections = new HashSet<>();
     this.namedCluster = namedCluster;
-  }
-
-  private HBaseConnectionPoolConnection findBestMatch( String sourceTable ) {
-    HBaseConnectionPoolConnection match = null;
-    for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      String availableConnectionSourceTable = availableConnection.getSourceTable();
-      if ( sourceTable == null ) {
-        if ( availableConnectionSourceTable == null ) {
-          return availableConnection;
-        }
-      } else {
-        if ( availableConnectionSourceTable == null ) {
-          match = availableConnection;
-        } else if ( sourceTable.equals( availableConnectionSourceTable ) ) {
-          return availableConnection;
-        }
-      }
-    }
-    if ( match == null && availableConnections.size() > 0 ) {
-      return availableConnections.iterator().next();
-    } else {
-      return match;
-    }
-  }
-
-  private HBaseConnectionPoolConnection findBestMatch( String targetTable, Properties targetTableProps ) {
-    HBaseConnectionPoolConnection match = null;
-    for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      String availableConnectionTargetTable = availableConnection.getTargetTable();
-      if ( targetTable == null ) {
-        if ( availableConnectionTargetTable == null ) {
-          return availableConnection;
-        }
-      } else {
-        if ( availableConnectionTargetTable == null ) {
-          match = availableConnection;
-        } else if ( targetTable.equals( availableConnectionTargetTable ) ) {
-          Properties availableConnectionTargetTableProperties = availableConnection.getTargetTableProperties();
-          if ( targetTableProps == null ) {
-            if ( availableConnectionTargetTableProperties == null ) {
-              return availableConnection;
-            }
-          } else if ( targetTableProps.equals( availableConnectionTargetTableProperties ) ) {
-            return availableConnection;
-          }
-        }
-      }
-    }
-    if ( match == null && availableConnections.size() > 0 ) {
-      return availableConnections.iterator().next();
+    this.config = config;
+    if ( config.getEvictionIntervalMillis() > 0 && config.getIdleTimeoutMillis() > 0 ) {
+      evictor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "hbase-connection-pool-evictor" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+      evictor.scheduleWithFixedDelay( this::evictIdleQuietly, config.getEvictionIntervalMillis(),
+        config.getEvictionIntervalMillis(), TimeUnit.MILLISECONDS );
     } else {
-      return match;
+      evictor = null;
     }
   }
 
-  private HBaseConnectionPoolConnection findBestMatch() {
-    HBaseConnectionPoolConnection match = null;
-    for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      String sourceTable = availableConnection.getSourceTable();
-      String targetTable = availableConnection.getTargetTable();
-      if ( targetTable == null ) {
-        if ( sourceTable == null ) {
-          return availableConnection;
-        }
-        match = availableConnection;
-      } else if ( sourceTable == null && match == null ) {
-        match = availableConnection;
-      }
-    }
-    if ( match == null && availableConnections.size() > 0 ) {
-      return availableConnections.iterator().next();
-    } else {
-      return match;
-    }
+  public HBaseConnectionPoolConfig getConfig() {
+    return config;
   }
 
   protected HBaseConnectionPoolConnection create() throws IOException {
@@ -149,22 +143,24 @@ public class HBaseConnectionPool implements Closeable {
    * @return
    * @throws IOException
    */
-  public synchronized HBaseConnectionHandle getConnectionHandle( String sourceTable ) throws IOException {
-    HBaseConnectionPoolConnection result = findBestMatch( sourceTable );
-    if ( result != null ) {
-      availableConnections.remove( result );
-    } else {
-      result = create();
-    }
-    if ( sourceTable != null && !sourceTable.equals( result.getSourceTable() ) ) {
-      try {
-        result.newSourceTableInternal( sourceTable );
-      } catch ( Exception e ) {
-        throw new IOException( e );
-      }
-    }
-    inUseConnections.add( result );
-    return new HBaseConnectionHandleImpl( this, result );
+  public HBaseConnectionHandle getConnectionHandle( String sourceTable ) throws IOException {
+    return getConnectionHandle( sourceTable, config.getMaxWaitMillis(), TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Like {@link #getConnectionHandle(String)} but waits at most the given time if a limit of the pool is reached
+   *
+   * @param timeout negative to wait forever
+   * @throws IOException if no connection became available in time
+   */
+  public HBaseConnectionHandle getConnectionHandle( String sourceTable, long timeout, TimeUnit unit )
+    throws IOException {
+    return borrow( sourceTable == null ? null : new SourceKey( sourceTable ), () -> selectForSource( sourceTable ),
+      connection -> {
+        if ( sourceTable != null && !sourceTable.equals( connection.getSourceTable() ) ) {
+          connection.newSourceTableInternal( sourceTable );
+        }
+      }, timeout, unit );
   }
 
   /**
@@ -178,31 +174,34 @@ public class HBaseConnectionPool implements Closeable {
    * @return
    * @throws IOException
    */
-  public synchronized HBaseConnectionHandle getConnectionHandle( String targetTable, Properties targetTableProps )
+  public HBaseConnectionHandle getConnectionHandle( String targetTable, Properties targetTableProps )
     throws IOException {
-    HBaseConnectionPoolConnection result = findBestMatch( targetTable, targetTableProps );
-    if ( result != null ) {
-      availableConnections.remove( result );
-    } else {
-      result = create();
-    }
-    boolean targetTableDifferent = targetTable != null && !targetTable.equals( result.getTargetTable() );
-    boolean propsDifferent = false;
-    Properties resultTargetTableProperties = result.getTargetTableProperties();
-    if ( targetTableProps == null ) {
-      propsDifferent = resultTargetTableProperties != null;
-    } else {
-      propsDifferent = targetTableProps.equals( resultTargetTableProperties );
-    }
-    if ( targetTableDifferent || propsDifferent ) {
-      try {
-        result.newTargetTableInternal( targetTable, targetTableProps );
-      } catch ( Exception e ) {
-        throw new IOException( e );
+    return getConnectionHandle( targetTable, targetTableProps, config.getMaxWaitMillis(), TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Like {@link #getConnectionHandle(String, Properties)} but waits at most the given time if a limit of the pool is
+   * reached
+   *
+   * @param timeout negative to wait forever
+   * @throws IOException if no connection became available in time
+   */
+  public HBaseConnectionHandle getConnectionHandle( String targetTable, Properties targetTableProps, long timeout,
+                                                    TimeUnit unit ) throws IOException {
+    TargetKey key = TargetKey.of( targetTable, targetTableProps );
+    return borrow( targetTable == null ? null : key, () -> selectForTarget( key ), connection -> {
+      boolean targetTableDifferent = targetTable != null && !targetTable.equals( connection.getTargetTable() );
+      boolean propsDifferent;
+      Properties resultTargetTableProperties = connection.getTargetTableProperties();
+      if ( targetTableProps == null ) {
+        propsDifferent = resultTargetTableProperties != null;
+      } else {
+        propsDifferent = !targetTableProps.equals( resultTargetTableProperties );
       }
-    }
-    inUseConnections.add( result );
-    return new HBaseConnectionHandleImpl( this, result );
+      if ( targetTableDifferent || propsDifferent ) {
+        connection.newTargetTableInternal( targetTable, targetTableProps );
+      }
+    }, timeout, unit );
   }
 
   /**
@@ -213,38 +212,462 @@ public class HBaseConnectionPool implements Closeable {
    * @return
    * @throws IOException
    */
-  public synchronized HBaseConnectionHandle getConnectionHandle() throws IOException {
-    HBaseConnectionPoolConnection result = findBestMatch();
-    if ( result != null ) {
-      availableConnections.remove( result );
-    } else {
-      result = create();
+  public HBaseConnectionHandle getConnectionHandle() throws IOException {
+    return getConnectionHandle( config.getMaxWaitMillis(), TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Like {@link #getConnectionHandle()} but waits at most the given time if the pool is full
+   *
+   * @param timeout negative to wait forever
+   * @throws IOException if no connection became available in time
+   */
+  public HBaseConnectionHandle getConnectionHandle( long timeout, TimeUnit unit ) throws IOException {
+    return borrow( null, this::selectAny, connection -> {
+    }, timeout, unit );
+  }
+
+  protected void releaseConnection( HBaseConnectionPoolConnection hBaseConnection ) {
+    if ( hBaseConnection == null ) {
+      return;
+    }
+    boolean valid = !config.isValidateOnReturn() || config.getValidator().isValid( hBaseConnection );
+    boolean discard;
+    lock.lock();
+    try {
+      if ( !inUse.containsKey( hBaseConnection ) ) {
+        // released twice or the pool was closed in the meantime
+        return;
+      }
+      releaseKey( inUse.remove( hBaseConnection ) );
+      discard = closed || !valid;
+      if ( discard ) {
+        total--;
+      } else {
+        addIdle( hBaseConnection );
+      }
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if ( !valid ) {
+      invalidated.incrementAndGet();
+    }
+    if ( discard ) {
+      closeQuietly( hBaseConnection );
+    }
+  }
+
+  /**
+   * Closes the connections which have been idle for longer than the idle timeout. Called on every borrow and by the
+   * background evictor if one is configured.
+   *
+   * @return number of closed connections
+   */
+  public int evictIdle() {
+    long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos( config.getIdleTimeoutMillis() );
+    if ( idleTimeoutNanos <= 0 ) {
+      return 0;
+    }
+    List<HBaseConnectionPoolConnection> expired = new ArrayList<>();
+    lock.lock();
+    try {
+      long now = System.nanoTime();
+      for ( Map.Entry<HBaseConnectionPoolConnection, IdleEntry> entry : idle.entrySet() ) {
+        if ( now - entry.getValue().since < idleTimeoutNanos ) {
+          break;
+        }
+        expired.add( entry.getKey() );
+      }
+      for ( HBaseConnectionPoolConnection connection : expired ) {
+        removeIdle( connection );
+      }
+      if ( !expired.isEmpty() ) {
+        total -= expired.size();
+        released.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+    evicted.addAndGet( expired.size() );
+    for ( HBaseConnectionPoolConnection connection : expired ) {
+      closeQuietly( connection );
+    }
+    return expired.size();
+  }
+
+  public HBaseConnectionPoolMetrics getMetrics() {
+    lock.lock();
+    try {
+      return new HBaseConnectionPoolMetrics( inUse.size(), idle.size(), waiters, created.get(), evicted.get(),
+        invalidated.get(), borrows.get(), timeouts.get(), totalBorrowNanos.get(), maxBorrowNanos.get() );
+    } finally {
+      lock.unlock();
     }
-    inUseConnections.add( result );
-    return new HBaseConnectionHandleImpl( this, result );
   }
 
-  protected synchronized void releaseConnection( HBaseConnectionPoolConnection hBaseConnection ) {
-    inUseConnections.remove( hBaseConnection );
-    availableConnections.add( hBaseConnection );
+  /**
+   * Closes all connections including the borrowed ones. Threads waiting for a connection fail and later borrows are
+   * rejected.
+   */
+  @Override public void close() throws IOException {
+    List<HBaseConnectionPoolConnection> connections;
+    lock.lock();
+    try {
+      closed = true;
+      connections = new ArrayList<>( inUse.keySet() );
+      connections.addAll( idle.keySet() );
+      total -= connections.size();
+      inUse.clear();
+      borrowedByKey.clear();
+      idle.clear();
+      idleBySource.clear();
+      idleByTarget.clear();
+      idleWithoutTables.clear();
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if ( evictor != null ) {
+      evictor.shutdownNow();
+    }
+    for ( HBaseConnectionPoolConnection connection : connections ) {
+      closeQuietly( connection );
+    }
   }
 
-  @Override public synchronized void close() throws IOException {
-    for ( HBaseConnectionPoolConnection inUseConnection : inUseConnections ) {
+  private HBaseConnectionHandle borrow( Object limitKey, Selector selector, Preparer preparer, long timeout,
+                                        TimeUnit unit ) throws IOException {
+    long start = System.nanoTime();
+    long timeoutNanos = unit.toNanos( timeout );
+    while ( true ) {
+      evictIdle();
+      HBaseConnectionPoolConnection connection = reserve( limitKey, selector, start, timeout < 0, timeoutNanos );
+      if ( connection == null ) {
+        try {
+          connection = create();
+        } catch ( IOException | RuntimeException e ) {
+          discard( null, limitKey );
+          throw e;
+        }
+        created.incrementAndGet();
+      } else if ( config.isValidateOnBorrow() && !config.getValidator().isValid( connection ) ) {
+        invalidated.incrementAndGet();
+        discard( connection, limitKey );
+        continue;
+      }
       try {
-        inUseConnection.closeInternal();
+        preparer.prepare( connection );
       } catch ( Exception e ) {
+        giveBack( connection, limitKey );
+        throw new IOException( e );
+      }
+      lock.lock();
+      try {
+        if ( !closed ) {
+          inUse.put( connection, limitKey );
+          long nanos = System.nanoTime() - start;
+          borrows.incrementAndGet();
+          totalBorrowNanos.addAndGet( nanos );
+          maxBorrowNanos.accumulateAndGet( nanos, Math::max );
+          return new HBaseConnectionHandleImpl( this, connection );
+        }
+      } finally {
+        lock.unlock();
+      }
+      discard( connection, limitKey );
+      throw new IOException( "Connection pool is closed" );
+    }
+  }
+
+  /**
+   * Takes the best idle connection for the selector or reserves room for a new one, waiting while a limit is reached.
+   *
+   * @return the idle connection or null if a new connection has to be created
+   */
+  private HBaseConnectionPoolConnection reserve( Object limitKey, Selector selector, long start, boolean forever,
+                                                 long timeoutNanos ) throws IOException {
+    lock.lock();
+    try {
+      while ( true ) {
+        if ( closed ) {
+          throw new IOException( "Connection pool is closed" );
+        }
+        if ( !atKeyLimit( limitKey ) ) {
+          HBaseConnectionPoolConnection connection = selector.select();
+          if ( connection != null ) {
+            removeIdle( connection );
+            acquireKey( limitKey );
+            return connection;
+          }
+          if ( config.getMaxTotal() == 0 || total < config.getMaxTotal() ) {
+            total++;
+            acquireKey( limitKey );
+            return null;
+          }
+        }
+        long remaining = timeoutNanos - ( System.nanoTime() - start );
+        if ( !forever && remaining <= 0 ) {
+          timeouts.incrementAndGet();
+          throw new IOException( "Timed out after " + TimeUnit.NANOSECONDS.toMillis( timeoutNanos )
+            + " ms waiting for a HBase connection, " + inUse.size() + " of " + total + " connections are in use" );
+        }
+        waiters++;
+        try {
+          if ( forever ) {
+            released.await();
+          } else {
+            released.awaitNanos( remaining );
+          }
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException( "Interrupted while waiting for a HBase connection" );
+        } finally {
+          waiters--;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Puts a connection which could not be switched to the requested table back into the pool, it is still healthy.
+   */
+  private void giveBack( HBaseConnectionPoolConnection connection, Object limitKey ) {
+    lock.lock();
+    try {
+      releaseKey( limitKey );
+      if ( !closed ) {
+        addIdle( connection );
+        released.signalAll();
+        return;
+      }
+      total--;
+    } finally {
+      lock.unlock();
+    }
+    closeQuietly( connection );
+  }
+
+  /**
+   * Gives up a reserved slot and closes its connection if there is one.
+   */
+  private void discard( HBaseConnectionPoolConnection connection, Object limitKey ) {
+    lock.lock();
+    try {
+      releaseKey( limitKey );
+      total--;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if ( connection != null ) {
+      closeQuietly( connection );
+    }
+  }
+
+  private void closeQuietly( HBaseConnectionPoolConnection connection ) {
+    try {
+      connection.closeInternal();
+    } catch ( Exception e ) {
+      if ( logChannelInterface != null ) {
         logChannelInterface.logError( e.getMessage(), e );
       }
     }
-    for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      try {
-        availableConnection.closeInternal();
-      } catch ( Exception e ) {
+  }
+
+  private void evictIdleQuietly() {
+    try {
+      evictIdle();
+    } catch ( RuntimeException e ) {
+      // keep the evictor scheduled
+      if ( logChannelInterface != null ) {
         logChannelInterface.logError( e.getMessage(), e );
       }
     }
-    inUseConnections.clear();
-    availableConnections.clear();
+  }
+
+  private boolean atKeyLimit( Object limitKey ) {
+    if ( limitKey == null || config.getMaxPerKey() == 0 ) {
+      return false;
+    }
+    Integer borrowed = borrowedByKey.get( limitKey );
+    return borrowed != null && borrowed >= config.getMaxPerKey();
+  }
+
+  private void acquireKey( Object limitKey ) {
+    if ( limitKey != null ) {
+      borrowedByKey.merge( limitKey, 1, Integer::sum );
+    }
+  }
+
+  private void releaseKey( Object limitKey ) {
+    if ( limitKey != null ) {
+      borrowedByKey.computeIfPresent( limitKey, ( key, borrowed ) -> borrowed > 1 ? borrowed - 1 : null );
+    }
+  }
+
+  private HBaseConnectionPoolConnection selectForSource( String sourceTable ) {
+    HBaseConnectionPoolConnection result = first( idleBySource.get( sourceTable ) );
+    if ( result == null && sourceTable != null ) {
+      result = first( idleBySource.get( null ) );
+    }
+    return result != null ? result : oldestIdle();
+  }
+
+  private HBaseConnectionPoolConnection selectForTarget( TargetKey key ) {
+    HBaseConnectionPoolConnection result = first( idleByTarget.get( key ) );
+    if ( result == null && key != TargetKey.NONE ) {
+      result = first( idleByTarget.get( TargetKey.NONE ) );
+    }
+    return result != null ? result : oldestIdle();
+  }
+
+  private HBaseConnectionPoolConnection selectAny() {
+    HBaseConnectionPoolConnection result = first( idleWithoutTables );
+    if ( result == null ) {
+      result = first( idleByTarget.get( TargetKey.NONE ) );
+    }
+    if ( result == null ) {
+      result = first( idleBySource.get( null ) );
+    }
+    return result != null ? result : oldestIdle();
+  }
+
+  private HBaseConnectionPoolConnection oldestIdle() {
+    Iterator<HBaseConnectionPoolConnection> iterator = idle.keySet().iterator();
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  private static HBaseConnectionPoolConnection first( Set<HBaseConnectionPoolConnection> connections ) {
+    return connections == null || connections.isEmpty() ? null : connections.iterator().next();
+  }
+
+  private void addIdle( HBaseConnectionPoolConnection connection ) {
+    IdleEntry entry = new IdleEntry( connection );
+    idle.put( connection, entry );
+    idleBySource.computeIfAbsent( connection.getSourceTable(), key -> new LinkedHashSet<>() ).add( connection );
+    idleByTarget.computeIfAbsent( entry.targetKey, key -> new LinkedHashSet<>() ).add( connection );
+    if ( connection.getSourceTable() == null && connection.getTargetTable() == null ) {
+      idleWithoutTables.add( connection );
+    }
+  }
+
+  private void removeIdle( HBaseConnectionPoolConnection connection ) {
+    IdleEntry entry = idle.remove( connection );
+    removeFrom( idleBySource, connection.getSourceTable(), connection );
+    removeFrom( idleByTarget, entry.targetKey, connection );
+    idleWithoutTables.remove( connection );
+  }
+
+  private static <K> void removeFrom( Map<K, Set<HBaseConnectionPoolConnection>> index, K key,
+                                      HBaseConnectionPoolConnection connection ) {
+    Set<HBaseConnectionPoolConnection> connections = index.get( key );
+    if ( connections != null && connections.remove( connection ) ) {
+      if ( connections.isEmpty() ) {
+        index.remove( key );
+      }
+    } else {
+      // the target table properties were modified while the connection was idle, so their hash code changed
+      index.values().removeIf( set -> set.remove( connection ) && set.isEmpty() );
+    }
+  }
+
+  @VisibleForTesting
+  int getTotal() {
+    lock.lock();
+    try {
+      return total;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Selector {
+    HBaseConnectionPoolConnection select();
+  }
+
+  @FunctionalInterface
+  private interface Preparer {
+    void prepare( HBaseConnectionPoolConnection connection ) throws Exception;
+  }
+
+  private static final class IdleEntry {
+    private final long since = System.nanoTime();
+    private final TargetKey targetKey;
+
+    private IdleEntry( HBaseConnectionPoolConnection connection ) {
+      targetKey = TargetKey.of( connection );
+    }
+  }
+
+  private static final class SourceKey {
+    private final String table;
+
+    private SourceKey( String table ) {
+      this.table = table;
+    }
+
+    @Override public boolean equals( Object o ) {
+      return o instanceof SourceKey && table.equals( ( (SourceKey) o ).table );
+    }
+
+    @Override public int hashCode() {
+      return table.hashCode();
+    }
+  }
+
+  /**
+   * Target table and properties of a connection. Properties only count if there is a target table.
+   */
+  private static final class TargetKey {
+    private static final TargetKey NONE = new TargetKey( null, null );
+
+    private final String table;
+    private final SortedMap<Object, Object> properties;
+
+    private TargetKey( String table, SortedMap<Object, Object> properties ) {
+      this.table = table;
+      this.properties = properties;
+    }
+
+    /**
+     * The key holds a copy of the properties, so changing them later does not move the key to another hash bucket.
+     */
+    private static TargetKey of( String table, Properties properties ) {
+      return table == null ? NONE : new TargetKey( table, snapshot( properties ) );
+    }
+
+    private static SortedMap<Object, Object> snapshot( Properties properties ) {
+      if ( properties == null ) {
+        return null;
+      }
+      SortedMap<Object, Object> copy = new TreeMap<>( Comparator.comparing( String::valueOf ) );
+      synchronized ( properties ) {
+        copy.putAll( properties );
+      }
+      return Collections.unmodifiableSortedMap( copy );
+    }
+
+    private static TargetKey of( HBaseConnectionPoolConnection connection ) {
+      return of( connection.getTargetTable(), connection.getTargetTableProperties() );
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof TargetKey ) ) {
+        return false;
+      }
+      TargetKey other = (TargetKey) o;
+      return Objects.equals( table, other.table ) && Objects.equals( properties, other.properties );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( table, properties );
+    }
   }
 }
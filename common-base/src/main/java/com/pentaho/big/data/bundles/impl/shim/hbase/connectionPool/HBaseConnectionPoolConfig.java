@@ -0,0 +1,266 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool;
+
+import java.util.Properties;
+
+/**
+ * Limits and health checks of a {@link HBaseConnectionPool}. The defaults keep the pool unbounded and never evict or
+ * validate connections, which is how the pool always behaved.
+ */
+public class HBaseConnectionPoolConfig {
+  public static final String MAX_TOTAL_KEY = "hbase.pool.maxTotal";
+  public static final String MAX_PER_KEY_KEY = "hbase.pool.maxPerKey";
+  public static final String MAX_WAIT_MILLIS_KEY = "hbase.pool.maxWaitMillis";
+  public static final String IDLE_TIMEOUT_MILLIS_KEY = "hbase.pool.idleTimeoutMillis";
+  public static final String EVICTION_INTERVAL_MILLIS_KEY = "hbase.pool.evictionIntervalMillis";
+  public static final String VALIDATE_ON_BORROW_KEY = "hbase.pool.validateOnBorrow";
+  public static final String VALIDATE_ON_RETURN_KEY = "hbase.pool.validateOnReturn";
+
+  public static final long DEFAULT_MAX_WAIT_MILLIS = 60000L;
+
+  /**
+   * Health check of a pooled connection.
+   */
+  @FunctionalInterface
+  public interface Validator {
+    /**
+     * @return false if the connection is broken and has to be closed
+     */
+    boolean isValid( HBaseConnectionPoolConnection connection );
+  }
+
+  /**
+   * Treats a connection as healthy if the cluster answers {@link HBaseConnectionPoolConnection#checkHBaseAvailable()}.
+   */
+  public static final Validator CHECK_AVAILABLE = connection -> {
+    try {
+      connection.checkHBaseAvailable();
+      return true;
+    } catch ( Exception e ) {
+      return false;
+    }
+  };
+
+  private final int maxTotal;
+  private final int maxPerKey;
+  private final long maxWaitMillis;
+  private final long idleTimeoutMillis;
+  private final long evictionIntervalMillis;
+  private final boolean validateOnBorrow;
+  private final boolean validateOnReturn;
+  private final Validator validator;
+
+  private HBaseConnectionPoolConfig( Builder builder ) {
+    maxTotal = builder.maxTotal;
+    maxPerKey = builder.maxPerKey;
+    maxWaitMillis = builder.maxWaitMillis;
+    idleTimeoutMillis = builder.idleTimeoutMillis;
+    evictionIntervalMillis = builder.evictionIntervalMillis;
+    validateOnBorrow = builder.validateOnBorrow;
+    validateOnReturn = builder.validateOnReturn;
+    validator = builder.validator;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static HBaseConnectionPoolConfig defaults() {
+    return builder().build();
+  }
+
+  /**
+   * Reads the config from the {@code hbase.pool.*} keys of the connection properties, missing keys keep their
+   * defaults.
+   *
+   * @throws IllegalArgumentException if a value is not a valid number
+   */
+  public static HBaseConnectionPoolConfig fromProperties( Properties props ) {
+    Builder builder = builder();
+    if ( props == null ) {
+      return builder.build();
+    }
+    String value = props.getProperty( MAX_TOTAL_KEY );
+    if ( value != null ) {
+      builder.maxTotal( parseInt( MAX_TOTAL_KEY, value ) );
+    }
+    value = props.getProperty( MAX_PER_KEY_KEY );
+    if ( value != null ) {
+      builder.maxPerKey( parseInt( MAX_PER_KEY_KEY, value ) );
+    }
+    value = props.getProperty( MAX_WAIT_MILLIS_KEY );
+    if ( value != null ) {
+      builder.maxWaitMillis( parse( MAX_WAIT_MILLIS_KEY, value ) );
+    }
+    value = props.getProperty( IDLE_TIMEOUT_MILLIS_KEY );
+    if ( value != null ) {
+      builder.idleTimeoutMillis( parse( IDLE_TIMEOUT_MILLIS_KEY, value ) );
+    }
+    value = props.getProperty( EVICTION_INTERVAL_MILLIS_KEY );
+    if ( value != null ) {
+      builder.evictionIntervalMillis( parse( EVICTION_INTERVAL_MILLIS_KEY, value ) );
+    }
+    value = props.getProperty( VALIDATE_ON_BORROW_KEY );
+    if ( value != null ) {
+      builder.validateOnBorrow( Boolean.parseBoolean( value.trim() ) );
+    }
+    value = props.getProperty( VALIDATE_ON_RETURN_KEY );
+    if ( value != null ) {
+      builder.validateOnReturn( Boolean.parseBoolean( value.trim() ) );
+    }
+    return builder.build();
+  }
+
+  private static long parse( String key, String value ) {
+    try {
+      return Long.parseLong( value.trim() );
+    } catch ( NumberFormatException e ) {
+      throw new IllegalArgumentException( "Invalid value '" + value + "' for " + key, e );
+    }
+  }
+
+  private static int parseInt( String key, String value ) {
+    try {
+      return Integer.parseInt( value.trim() );
+    } catch ( NumberFormatException e ) {
+      throw new IllegalArgumentException( "Invalid value '" + value + "' for " + key + ", expected an int", e );
+    }
+  }
+
+  /**
+   * @return maximum number of open connections, zero if unbounded
+   */
+  public int getMaxTotal() {
+    return maxTotal;
+  }
+
+  /**
+   * @return maximum number of connections borrowed at the same time for one source table or for one target table and
+   * properties combination, zero if unbounded
+   */
+  public int getMaxPerKey() {
+    return maxPerKey;
+  }
+
+  /**
+   * @return how long a borrow without explicit timeout waits for a connection once a limit is reached, negative waits
+   * forever
+   */
+  public long getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  /**
+   * @return time after which an unused connection is closed, zero if idle connections are kept
+   */
+  public long getIdleTimeoutMillis() {
+    return idleTimeoutMillis;
+  }
+
+  /**
+   * @return interval of the background eviction run, zero if idle connections are only evicted on borrow
+   */
+  public long getEvictionIntervalMillis() {
+    return evictionIntervalMillis;
+  }
+
+  public boolean isValidateOnBorrow() {
+    return validateOnBorrow;
+  }
+
+  public boolean isValidateOnReturn() {
+    return validateOnReturn;
+  }
+
+  public Validator getValidator() {
+    return validator;
+  }
+
+  public static class Builder {
+    private int maxTotal;
+    private int maxPerKey;
+    private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+    private long idleTimeoutMillis;
+    private long evictionIntervalMillis;
+    private boolean validateOnBorrow;
+    private boolean validateOnReturn;
+    private Validator validator = CHECK_AVAILABLE;
+
+    private Builder() {
+    }
+
+    /**
+     * @param maxTotal maximum number of open connections, zero or less for no limit
+     */
+    public Builder maxTotal( int maxTotal ) {
+      this.maxTotal = Math.max( 0, maxTotal );
+      return this;
+    }
+
+    /**
+     * @param maxPerKey maximum number of borrowed connections per table key, zero or less for no limit
+     */
+    public Builder maxPerKey( int maxPerKey ) {
+      this.maxPerKey = Math.max( 0, maxPerKey );
+      return this;
+    }
+
+    /**
+     * @param maxWaitMillis default borrow timeout, negative to wait forever
+     */
+    public Builder maxWaitMillis( long maxWaitMillis ) {
+      this.maxWaitMillis = maxWaitMillis;
+      return this;
+    }
+
+    /**
+     * @param idleTimeoutMillis idle time after which a connection is closed, zero or less keeps idle connections
+     */
+    public Builder idleTimeoutMillis( long idleTimeoutMillis ) {
+      this.idleTimeoutMillis = Math.max( 0, idleTimeoutMillis );
+      return this;
+    }
+
+    /**
+     * @param evictionIntervalMillis interval of the background eviction, zero or less disables the background run
+     */
+    public Builder evictionIntervalMillis( long evictionIntervalMillis ) {
+      this.evictionIntervalMillis = Math.max( 0, evictionIntervalMillis );
+      return this;
+    }
+
+    public Builder validateOnBorrow( boolean validateOnBorrow ) {
+      this.validateOnBorrow = validateOnBorrow;
+      return this;
+    }
+
+    public Builder validateOnReturn( boolean validateOnReturn ) {
+      this.validateOnReturn = validateOnReturn;
+      return this;
+    }
+
+    public Builder validator( Validator validator ) {
+      if ( validator == null ) {
+        throw new IllegalArgumentException( "Validator must not be null" );
+      }
+      this.validator = validator;
+      return this;
+    }
+
+    public HBaseConnectionPoolConfig build() {
+      return new HBaseConnectionPoolConfig( this );
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool;
+
+/**
+ * Point in time snapshot of the counters of a {@link HBaseConnectionPool}.
+ */
+public class HBaseConnectionPoolMetrics {
+  private final int active;
+  private final int idle;
+  private final int waiters;
+  private final long created;
+  private final long evicted;
+  private final long invalidated;
+  private final long borrows;
+  private final long timeouts;
+  private final long totalBorrowNanos;
+  private final long maxBorrowNanos;
+
+  HBaseConnectionPoolMetrics( int active, int idle, int waiters, long created, long evicted, long invalidated,
+                              long borrows, long timeouts, long totalBorrowNanos, long maxBorrowNanos ) {
+    this.active = active;
+    this.idle = idle;
+    this.waiters = waiters;
+    this.created = created;
+    this.evicted = evicted;
+    this.invalidated = invalidated;
+    this.borrows = borrows;
+    this.timeouts = timeouts;
+    this.totalBorrowNanos = totalBorrowNanos;
+    this.maxBorrowNanos = maxBorrowNanos;
+  }
+
+  /**
+   * @return connections currently borrowed
+   */
+  public int getActive() {
+    return active;
+  }
+
+  /**
+   * @return open connections waiting to be borrowed
+   */
+  public int getIdle() {
+    return idle;
+  }
+
+  /**
+   * @return threads currently blocked because a limit is reached
+   */
+  public int getWaiters() {
+    return waiters;
+  }
+
+  /**
+   * @return connections opened since the pool was created
+   */
+  public long getCreated() {
+    return created;
+  }
+
+  /**
+   * @return connections closed because they were idle for too long
+   */
+  public long getEvicted() {
+    return evicted;
+  }
+
+  /**
+   * @return connections closed because they failed validation
+   */
+  public long getInvalidated() {
+    return invalidated;
+  }
+
+  /**
+   * @return successful borrows
+   */
+  public long getBorrows() {
+    return borrows;
+  }
+
+  /**
+   * @return borrows which gave up waiting for a connection
+   */
+  public long getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * @return mean time a successful borrow took including waiting, connecting and switching tables
+   */
+  public long getAverageBorrowNanos() {
+    return borrows == 0 ? 0 : totalBorrowNanos / borrows;
+  }
+
+  public long getMaxBorrowNanos() {
+    return maxBorrowNanos;
+  }
+
+  @Override public String toString() {
+    return "HBaseConnectionPoolMetrics{active=" + active + ", idle=" + idle + ", waiters=" + waiters + ", created="
+      + created + ", evicted=" + evicted + ", invalidated=" + invalidated + ", borrows=" + borrows + ", timeouts="
+      + timeouts + ", averageBorrowNanos=" + getAverageBorrowNanos() + ", maxBorrowNanos=" + maxBorrowNanos + "}";
+  }
+}
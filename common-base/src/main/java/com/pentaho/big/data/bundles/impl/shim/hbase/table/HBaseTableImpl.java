@@ -13,6 +13,7 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase.table;
 
+import com.pentaho.big.data.bundles.impl.shim.hbase.ResultImpl;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPool;
 import com.pentaho.big.data.bundles.impl.shim.hbase.meta.HBaseValueMetaInterfaceFactoryImpl;
@@ -22,7 +23,9 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.hadoop.shim.api.hbase.Result;
 import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
 import org.pentaho.hadoop.shim.api.hbase.table.HBaseTable;
 import org.pentaho.hadoop.shim.api.hbase.table.HBaseTableWriteOperationManager;
 import org.pentaho.hadoop.shim.api.hbase.table.ResultScannerBuilder;
@@ -33,6 +36,7 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -267,6 +271,28 @@ public class HBaseTableImpl implements HBaseTable {
     }
   }
 
+  @Override public boolean[] keysExist( List<byte[]> keys, BatchGetOptions options ) throws IOException {
+    try ( HBaseConnectionHandle hBaseConnectionHandle = hBaseConnectionPool.getConnectionHandle( name ) ) {
+      return hBaseConnectionHandle.getConnection().sourceTableRowsExist( keys, options );
+    } catch ( Exception e ) {
+      throw new IOException( e );
+    }
+  }
+
+  @Override public List<Result> get( List<byte[]> keys, BatchGetOptions options ) throws IOException {
+    try ( HBaseConnectionHandle hBaseConnectionHandle = hBaseConnectionPool.getConnectionHandle( name ) ) {
+      List<Object> rows = hBaseConnectionHandle.getConnection().sourceTableGetRows( keys, options );
+      List<Result> results = new ArrayList<>( rows.size() );
+      for ( Object row : rows ) {
+        results.add( row == null ? null
+          : new ResultImpl( (org.apache.hadoop.hbase.client.Result) row, hBaseBytesUtilShim ) );
+      }
+      return results;
+    } catch ( Exception e ) {
+      throw new IOException( e );
+    }
+  }
+
   @Override public HBaseTableWriteOperationManager createWriteOperationManager( Long writeBufferSize )
     throws IOException {
     Properties targetTableProps = new Properties();
@@ -278,6 +304,26 @@ public class HBaseTableImpl implements HBaseTable {
       writeBufferSize != null );
   }
 
+  @Override
+  public HBaseTableWriteOperationManager createWriteOperationManager( Long writeBufferSize, long periodicFlushMillis,
+                                                                      int maxInFlightMutations ) throws IOException {
+    Properties targetTableProps = new Properties();
+    if ( writeBufferSize != null ) {
+      targetTableProps.setProperty( org.pentaho.hadoop.shim.spi.HBaseConnection.HTABLE_WRITE_BUFFER_SIZE_KEY,
+        writeBufferSize.toString() );
+    }
+    if ( periodicFlushMillis > 0 ) {
+      targetTableProps.setProperty( org.pentaho.hadoop.shim.spi.HBaseConnection.HTABLE_PERIODIC_FLUSH_MILLIS_KEY,
+        Long.toString( periodicFlushMillis ) );
+    }
+    if ( maxInFlightMutations > 0 ) {
+      targetTableProps.setProperty( org.pentaho.hadoop.shim.spi.HBaseConnection.HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY,
+        Integer.toString( maxInFlightMutations ) );
+    }
+    return new HBaseTableWriteOperationManagerImpl( hBaseConnectionPool.getConnectionHandle( name, targetTableProps ),
+      writeBufferSize != null );
+  }
+
   @Override public void close() throws IOException {
 
   }
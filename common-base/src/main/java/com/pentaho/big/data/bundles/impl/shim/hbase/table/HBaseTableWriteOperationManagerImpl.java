@@ -17,6 +17,8 @@ import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnecti
 import org.pentaho.hadoop.shim.api.hbase.table.HBaseDelete;
 import org.pentaho.hadoop.shim.api.hbase.table.HBasePut;
 import org.pentaho.hadoop.shim.api.hbase.table.HBaseTableWriteOperationManager;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteException;
 
 
 import java.io.IOException;
@@ -48,11 +50,31 @@ public class HBaseTableWriteOperationManagerImpl implements HBaseTableWriteOpera
   @Override public void flushCommits() throws IOException {
     try {
       hBaseConnectionHandle.getConnection().flushCommitsTargetTable();
+    } catch ( Exception e ) {
+      throw toIOException( e );
+    }
+  }
+
+  @Override public HBaseWriteErrorReport takeWriteErrorReport() throws IOException {
+    try {
+      return hBaseConnectionHandle.getConnection().takeTargetTableWriteErrors();
     } catch ( Exception e ) {
       throw new IOException( e );
     }
   }
 
+  /**
+   * Keeps rejected rows reachable for the caller, they may be wrapped by the connection proxies.
+   */
+  private static IOException toIOException( Exception e ) {
+    for ( Throwable cause = e; cause != null; cause = cause.getCause() ) {
+      if ( cause instanceof HBaseWriteException ) {
+        return (HBaseWriteException) cause;
+      }
+    }
+    return new IOException( e );
+  }
+
   @Override public void close() throws IOException {
     hBaseConnectionHandle.close();
   }
@@ -0,0 +1,124 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.table;
+
+import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultBatch;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * {@link ResultBatch} over the rows of a {@link HBaseRowBatch}. The {@link Result} objects are created once per batch
+ * slot and point at whatever row currently occupies their slot.
+ */
+class ResultBatchImpl implements ResultBatch {
+  private final HBaseConnectionWrapper hBaseConnectionWrapper;
+  private final List<BatchGetOptions.Column> columns;
+  private final HBaseRowBatch rowBatch;
+  private BatchResult[] results = new BatchResult[ 0 ];
+
+  ResultBatchImpl( HBaseConnectionWrapper hBaseConnectionWrapper, List<BatchGetOptions.Column> columns,
+                   HBaseRowBatch rowBatch ) {
+    this.hBaseConnectionWrapper = hBaseConnectionWrapper;
+    this.columns = columns;
+    this.rowBatch = rowBatch;
+  }
+
+  HBaseRowBatch getRowBatch() {
+    return rowBatch;
+  }
+
+  @Override public int size() {
+    return rowBatch.size();
+  }
+
+  @Override public byte[] getRow( int index ) {
+    return rowBatch.getRowKey( index );
+  }
+
+  @Override public byte[] getValue( int index, int column ) {
+    return rowBatch.getValue( index, column );
+  }
+
+  @Override public Result get( int index ) {
+    // fail like the other accessors for rows outside of the batch
+    rowBatch.getRowKey( index );
+    if ( index >= results.length ) {
+      int oldLength = results.length;
+      results = Arrays.copyOf( results, Math.max( index + 1, rowBatch.getCapacity() ) );
+      for ( int i = oldLength; i < results.length; i++ ) {
+        results[ i ] = new BatchResult( i );
+      }
+    }
+    return results[ index ];
+  }
+
+  @Override public long getSizeInBytes() {
+    return rowBatch.getSizeInBytes();
+  }
+
+  private class BatchResult implements Result {
+    private final int index;
+
+    private BatchResult( int index ) {
+      this.index = index;
+    }
+
+    @Override public byte[] getRow() {
+      return rowBatch.getRowKey( index );
+    }
+
+    @Override public NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getMap() {
+      try {
+        return hBaseConnectionWrapper.getRowMap( rowBatch.getRow( index ) );
+      } catch ( Exception e ) {
+        throw new IllegalStateException( e );
+      }
+    }
+
+    @Override public NavigableMap<byte[], byte[]> getFamilyMap( String familyName ) {
+      try {
+        return hBaseConnectionWrapper.getRowFamilyMap( rowBatch.getRow( index ), familyName );
+      } catch ( Exception e ) {
+        throw new IllegalStateException( e );
+      }
+    }
+
+    @Override public byte[] getValue( String colFamilyName, String colName, boolean colNameIsBinary ) {
+      for ( int i = 0; i < columns.size(); i++ ) {
+        BatchGetOptions.Column column = columns.get( i );
+        if ( column.isQualifierBinary() == colNameIsBinary && column.getFamily().equals( colFamilyName )
+          && column.getQualifier().equals( colName ) ) {
+          return rowBatch.getValue( index, i );
+        }
+      }
+      try {
+        return hBaseConnectionWrapper.getRowColumnLatest( rowBatch.getRow( index ), colFamilyName, colName,
+          colNameIsBinary );
+      } catch ( Exception e ) {
+        throw new IllegalStateException( e );
+      }
+    }
+
+    @Override public boolean isEmpty() {
+      NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map = getMap();
+      return map == null || map.isEmpty();
+    }
+  }
+}
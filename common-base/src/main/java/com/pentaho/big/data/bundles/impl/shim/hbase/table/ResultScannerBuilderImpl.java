@@ -25,11 +25,15 @@ import com.pentaho.big.data.bundles.impl.shim.hbase.meta.HBaseValueMetaInterface
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.hadoop.shim.api.hbase.mapping.ColumnFilter;
 import org.pentaho.hadoop.shim.api.hbase.meta.HBaseValueMetaInterface;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
 import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
 import org.pentaho.hadoop.shim.api.hbase.table.ResultScannerBuilder;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by bryan on 1/25/16.
@@ -39,7 +43,10 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
   private final HBaseValueMetaInterfaceFactoryImpl hBaseValueMetaInterfaceFactory;
   private final HBaseBytesUtilShim hBaseBytesUtilShim;
   private final BatchHBaseConnectionOperation batchHBaseConnectionOperation;
+  private final List<BatchGetOptions.Column> columns = new ArrayList<>();
   private int caching = 0;
+  private long maxResultSize = 0;
+  private ParallelScanOptions parallelScan;
   private String tableName;
 
   public ResultScannerBuilderImpl( HBaseConnectionPool hBaseConnectionPool,
@@ -59,6 +66,9 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
         try {
           hBaseConnectionWrapper
             .newSourceTableScan( keyLowerBound, keyUpperBound, ResultScannerBuilderImpl.this.caching );
+          if ( ResultScannerBuilderImpl.this.maxResultSize > 0 ) {
+            hBaseConnectionWrapper.setSourceScanMaxResultSize( ResultScannerBuilderImpl.this.maxResultSize );
+          }
         } catch ( Exception e ) {
           throw new IOException( e );
         }
@@ -69,6 +79,7 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
   @Override
   public void addColumnToScan( final String colFamilyName, final String colName, final boolean colNameIsBinary )
     throws IOException {
+    columns.add( new BatchGetOptions.Column( colFamilyName, colName, colNameIsBinary ) );
     batchHBaseConnectionOperation.addOperation( new HBaseConnectionOperation() {
       @Override public void perform( HBaseConnectionWrapper hBaseConnectionWrapper ) throws IOException {
         try {
@@ -109,16 +120,33 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
     this.caching = cacheSize;
   }
 
+  @Override public void setMaxResultSize( long maxResultSize ) {
+    this.maxResultSize = maxResultSize;
+  }
+
+  @Override public void setParallelScan( ParallelScanOptions options ) {
+    this.parallelScan = options;
+  }
+
   @VisibleForTesting
   int getCaching() {
     return caching;
   }
 
+  @VisibleForTesting
+  long getMaxResultSize() {
+    return maxResultSize;
+  }
+
   @Override public ResultScanner build() throws  IOException {
     HBaseConnectionHandle connectionHandle = hBaseConnectionPool.getConnectionHandle( tableName );
     batchHBaseConnectionOperation.perform( connectionHandle.getConnection() );
     try {
-      connectionHandle.getConnection().executeSourceTableScan();
+      if ( parallelScan == null ) {
+        connectionHandle.getConnection().executeSourceTableScan();
+      } else {
+        connectionHandle.getConnection().executeParallelSourceTableScan( parallelScan );
+      }
     } catch ( Exception e ) {
       throw new IOException( e );
     }
@@ -126,6 +154,7 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
   }
 
   protected ResultScanner getResultScanner(HBaseConnectionHandle connectionHandle) {
-    return new ResultScannerImpl( connectionHandle, hBaseBytesUtilShim );
+    return new ResultScannerImpl( connectionHandle, hBaseBytesUtilShim, new ArrayList<>( columns ), caching,
+      maxResultSize );
   }
 }
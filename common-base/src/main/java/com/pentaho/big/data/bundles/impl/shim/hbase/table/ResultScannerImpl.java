@@ -17,10 +17,15 @@ import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
 import com.pentaho.big.data.bundles.impl.shim.hbase.ResultImpl;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import org.apache.hadoop.hbase.client.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultBatch;
 import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Created by bryan on 1/25/16.
@@ -29,11 +34,36 @@ public class ResultScannerImpl implements ResultScanner {
   private final HBaseConnectionHandle hBaseConnectionHandle;
   private final HBaseConnectionWrapper hBaseConnectionWrapper;
   private final HBaseBytesUtilShim hBaseBytesUtilShim;
+  private final int caching;
+  private final long maxResultSize;
+  private final ResultBatchImpl resultBatch;
 
   public ResultScannerImpl( HBaseConnectionHandle hBaseConnectionHandle, HBaseBytesUtilShim hBaseBytesUtilShim ) {
+    this( hBaseConnectionHandle, hBaseBytesUtilShim, Collections.<BatchGetOptions.Column>emptyList(), 0, 0 );
+  }
+
+  /**
+   * @param columns       the columns added to the scan, decoded for every row of a batch
+   * @param caching       scanner cache size, upper bound of the rows of a batch when positive
+   * @param maxResultSize byte budget of a batch when positive
+   */
+  public ResultScannerImpl( HBaseConnectionHandle hBaseConnectionHandle, HBaseBytesUtilShim hBaseBytesUtilShim,
+                            List<BatchGetOptions.Column> columns, int caching, long maxResultSize ) {
     this.hBaseConnectionHandle = hBaseConnectionHandle;
     this.hBaseBytesUtilShim = hBaseBytesUtilShim;
+    this.caching = caching;
+    this.maxResultSize = maxResultSize;
     hBaseConnectionWrapper = hBaseConnectionHandle.getConnection();
+
+    byte[][] families = new byte[ columns.size() ][];
+    byte[][] qualifiers = new byte[ columns.size() ][];
+    for ( int i = 0; i < families.length; i++ ) {
+      BatchGetOptions.Column column = columns.get( i );
+      families[ i ] = hBaseBytesUtilShim.toBytes( column.getFamily() );
+      qualifiers[ i ] = column.isQualifierBinary() ? hBaseBytesUtilShim.toBytesBinary( column.getQualifier() )
+        : hBaseBytesUtilShim.toBytes( column.getQualifier() );
+    }
+    resultBatch = new ResultBatchImpl( hBaseConnectionWrapper, columns, new HBaseRowBatch( families, qualifiers ) );
   }
 
   @Override public ResultImpl next() throws IOException {
@@ -48,6 +78,20 @@ public class ResultScannerImpl implements ResultScanner {
     }
   }
 
+  @Override public ResultBatch next( int n ) throws IOException {
+    if ( n <= 0 ) {
+      throw new IllegalArgumentException( "Batch size must be positive but was " + n );
+    }
+    HBaseRowBatch rowBatch = resultBatch.getRowBatch();
+    rowBatch.reset( caching > 0 ? Math.min( n, caching ) : n, maxResultSize );
+    try {
+      hBaseConnectionWrapper.resultSetNextRows( rowBatch );
+    } catch ( Exception e ) {
+      throw new IOException( e );
+    }
+    return resultBatch;
+  }
+
   @Override public void close() throws IOException {
     hBaseConnectionHandle.close();
   }
@@ -14,6 +14,7 @@ package org.pentaho.big.data.impl.shim.format;
 
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.format.FormatService;
+import org.pentaho.hadoop.shim.api.format.IFormatTranscoder;
 import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat;
 import org.pentaho.hadoop.shim.spi.FormatShim;
@@ -55,4 +56,9 @@ public class FormatServiceImpl implements FormatService {
           type.getCanonicalName(), namedClusterName )
       ) );
   }
+
+  @Override
+  public IFormatTranscoder createTranscoder( NamedCluster namedCluster ) {
+    return formatShim.createTranscoder( namedCluster );
+  }
 }
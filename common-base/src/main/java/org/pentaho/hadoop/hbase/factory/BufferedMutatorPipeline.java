@@ -0,0 +1,231 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.hbase.factory;
+
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteException;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteFailure;
+import org.pentaho.hbase.factory.HBaseWriteOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write path of a table built on a {@link BufferedMutator}. Mutations are buffered on the client and sent in batches
+ * once the buffer is full, the number of buffered mutations reaches its limit, the background flush fires or the
+ * caller flushes.
+ * <p/>
+ * Rows rejected by HBase do not fail the batch they were sent with. They are collected by the exception listener and
+ * reported by the next {@link #flush()}, or can be taken earlier with {@link #takeErrorReport()}.
+ */
+class BufferedMutatorPipeline implements Closeable {
+
+  @FunctionalInterface
+  interface MutatorFactory {
+    BufferedMutator create( BufferedMutatorParams params ) throws IOException;
+  }
+
+  private final BufferedMutator mutator;
+  private final int maxInFlightMutations;
+  private final ScheduledExecutorService flusher;
+  private final List<HBaseWriteFailure> failures = new ArrayList<>();
+
+  private boolean autoFlush;
+  private int inFlightMutations;
+  private IOException backgroundFailure;
+  private boolean closed;
+
+  BufferedMutatorPipeline( TableName tableName, HBaseWriteOptions options, MutatorFactory mutatorFactory )
+    throws IOException {
+    BufferedMutatorParams params = new BufferedMutatorParams( tableName ).listener( this::onException );
+    if ( options.getWriteBufferSize() > 0 ) {
+      params.writeBufferSize( options.getWriteBufferSize() );
+    }
+    mutator = mutatorFactory.create( params );
+    maxInFlightMutations = options.getMaxInFlightMutations();
+    autoFlush = options.isAutoFlush();
+
+    long period = options.getPeriodicFlushMillis();
+    if ( period > 0 ) {
+      flusher = Executors.newSingleThreadScheduledExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "hbase-periodic-flush-" + tableName.getNameAsString() );
+        thread.setDaemon( true );
+        return thread;
+      } );
+      flusher.scheduleWithFixedDelay( this::periodicFlush, period, period, TimeUnit.MILLISECONDS );
+    } else {
+      flusher = null;
+    }
+  }
+
+  synchronized void setAutoFlush( boolean autoFlush ) {
+    this.autoFlush = autoFlush;
+  }
+
+  synchronized void mutate( Mutation mutation ) throws IOException {
+    checkOpen();
+    mutator.mutate( mutation );
+    inFlightMutations++;
+    if ( autoFlush ) {
+      flush();
+    } else if ( maxInFlightMutations > 0 && inFlightMutations >= maxInFlightMutations ) {
+      flushBuffer();
+    }
+  }
+
+  /**
+   * Sends all buffered mutations and waits for them to complete.
+   *
+   * @throws HBaseWriteException if rows were rejected since the last report was taken
+   * @throws IOException         if a background flush failed since the last flush
+   */
+  synchronized void flush() throws IOException {
+    checkOpen();
+    flushBuffer();
+    throwFailures();
+  }
+
+  /**
+   * @return rows rejected since the last call, in the order HBase reported them
+   */
+  HBaseWriteErrorReport takeErrorReport() {
+    synchronized ( failures ) {
+      if ( failures.isEmpty() ) {
+        return HBaseWriteErrorReport.empty();
+      }
+      HBaseWriteErrorReport report = new HBaseWriteErrorReport( failures );
+      failures.clear();
+      return report;
+    }
+  }
+
+  /**
+   * Stops the background flush and flushes what is left in the buffer.
+   *
+   * @throws HBaseWriteException if rows were rejected and not reported yet
+   * @throws IOException         if a background flush failed and was not reported yet
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    if ( flusher != null ) {
+      flusher.shutdownNow();
+    }
+    try {
+      mutator.close();
+    } catch ( IOException e ) {
+      throw withBackgroundFailure( e );
+    }
+    throwBackgroundFailure();
+    throwFailures();
+  }
+
+  /**
+   * Sends the buffer before a failure of a background flush is thrown, the mutations it left behind are sent again.
+   */
+  private void flushBuffer() throws IOException {
+    try {
+      mutator.flush();
+    } catch ( IOException e ) {
+      throw withBackgroundFailure( e );
+    }
+    inFlightMutations = 0;
+    throwBackgroundFailure();
+  }
+
+  private void throwBackgroundFailure() throws IOException {
+    if ( backgroundFailure != null ) {
+      IOException failure = backgroundFailure;
+      backgroundFailure = null;
+      throw failure;
+    }
+  }
+
+  /**
+   * @return the failure of the writer's own flush, with the unreported failure of a background flush attached
+   */
+  private IOException withBackgroundFailure( IOException failure ) {
+    if ( backgroundFailure != null ) {
+      failure.addSuppressed( backgroundFailure );
+      backgroundFailure = null;
+    }
+    return failure;
+  }
+
+  private synchronized void periodicFlush() {
+    if ( closed || inFlightMutations == 0 || backgroundFailure != null ) {
+      return;
+    }
+    try {
+      mutator.flush();
+      inFlightMutations = 0;
+    } catch ( IOException e ) {
+      // reported to the writer by its next flush
+      backgroundFailure = e;
+    }
+  }
+
+  private void throwFailures() throws HBaseWriteException {
+    HBaseWriteErrorReport report = takeErrorReport();
+    if ( !report.isEmpty() ) {
+      throw new HBaseWriteException( report );
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if ( closed ) {
+      throw new IOException( "Write pipeline has been closed" );
+    }
+  }
+
+  /**
+   * Called by the mutator on the flushing thread once a batch has exhausted its retries.
+   */
+  private void onException( RetriesExhaustedWithDetailsException exception, BufferedMutator source ) {
+    synchronized ( failures ) {
+      for ( int i = 0; i < exception.getNumExceptions(); i++ ) {
+        Row row = exception.getRow( i );
+        Throwable cause = exception.getCause( i );
+        failures.add( new HBaseWriteFailure( row == null ? null : row.getRow(), operationOf( row ),
+          !( cause instanceof DoNotRetryIOException ), exception.getHostnamePort( i ),
+          cause == null ? null : cause.toString() ) );
+      }
+    }
+  }
+
+  private static HBaseWriteFailure.Operation operationOf( Row row ) {
+    if ( row instanceof Put ) {
+      return HBaseWriteFailure.Operation.PUT;
+    } else if ( row instanceof Delete ) {
+      return HBaseWriteFailure.Operation.DELETE;
+    }
+    return HBaseWriteFailure.Operation.OTHER;
+  }
+}
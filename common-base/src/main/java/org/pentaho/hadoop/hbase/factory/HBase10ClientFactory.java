@@ -90,7 +90,8 @@ public class HBase10ClientFactory implements HBaseClientFactory {
     Table tab = null;
     if ( tableObject instanceof Table ) {
       tab = (Table) tableObject;
-      return new HBase10Table( tab );
+      // the regions of the wrapped table are located through the connection of the factory
+      return new HBase10Table( tab, null, name -> getConnection().getRegionLocator( name ) );
     }
 
     throw new IllegalArgumentException( "Type mismatch:" + Table.class.getCanonicalName() + " was expected" );
@@ -13,31 +13,37 @@
 package org.pentaho.hadoop.hbase.factory;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 
 import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.BufferedMutator;
-import org.apache.hadoop.hbase.client.BufferedMutatorParams;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
 import org.pentaho.hbase.factory.HBasePut;
 import org.pentaho.hbase.factory.HBaseTable;
+import org.pentaho.hbase.factory.HBaseWriteOptions;
 
 class HBase10Table implements HBaseTable {
+  @FunctionalInterface
+  interface LocatorFactory {
+    RegionLocator create( TableName tableName ) throws IOException;
+  }
+
   private final Table tab;
-  private BufferedMutator mutator = null;
-  private boolean autoFlush = true;
-  private final Connection conn;
+  private final BufferedMutatorPipeline.MutatorFactory mutatorFactory;
+  private final LocatorFactory locatorFactory;
+  private HBaseWriteOptions writeOptions = HBaseWriteOptions.builder().build();
+  private BufferedMutatorPipeline pipeline = null;
 
   HBase10Table( Connection conn, String tableName ) throws IOException {
-    this.conn = conn;
-    tab = conn.getTable( TableName.valueOf( tableName ) );
+    this( conn.getTable( TableName.valueOf( tableName ) ), conn::getBufferedMutator, conn::getRegionLocator );
   }
 
   /**
@@ -46,38 +52,62 @@ class HBase10Table implements HBaseTable {
    * @param tab - HBase Table to wrap
    */
   HBase10Table( Table tab ) {
+    this( tab, null );
+  }
+
+  HBase10Table( Table tab, BufferedMutatorPipeline.MutatorFactory mutatorFactory ) {
+    this( tab, mutatorFactory, null );
+  }
+
+  HBase10Table( Table tab, BufferedMutatorPipeline.MutatorFactory mutatorFactory, LocatorFactory locatorFactory ) {
     this.tab = tab;
-    conn = null;
+    this.mutatorFactory = mutatorFactory;
+    this.locatorFactory = locatorFactory;
   }
 
-  private synchronized BufferedMutator getBufferedMutator() throws IOException {
-    if ( conn != null ) {
-      if ( mutator == null ) {
-        mutator = conn.getBufferedMutator( tab.getName() );
-      }
-    } else {
+  private synchronized BufferedMutatorPipeline getPipeline() throws IOException {
+    if ( mutatorFactory == null ) {
       throw new IOException( "Can't mutate the table " + tab.getName() );
     }
-    return mutator;
+    if ( pipeline == null ) {
+      pipeline = new BufferedMutatorPipeline( tab.getName(), writeOptions, mutatorFactory );
+    }
+    return pipeline;
+  }
+
+  /**
+   * Flushes and closes the current pipeline, the next mutation opens one with the current options.
+   */
+  private synchronized void closePipeline() throws IOException {
+    if ( pipeline != null ) {
+      BufferedMutatorPipeline toClose = pipeline;
+      pipeline = null;
+      toClose.close();
+    }
+  }
+
+  @Override
+  public synchronized void configureWrites( HBaseWriteOptions options ) throws IOException {
+    closePipeline();
+    writeOptions = options;
   }
 
   @Override
   public void setWriteBufferSize( long bufferSize ) throws IOException {
-    try {
-      tab.getClass().getMethod( "setWriteBufferSize", long.class ).invoke( tab, bufferSize );
-    } catch ( NoSuchMethodException | IllegalAccessException | InvocationTargetException e ) {
-      mutator = conn.getBufferedMutator( new BufferedMutatorParams( tab.getName() ).writeBufferSize( bufferSize ) );
-    }
+    configureWrites( writeOptions.toBuilder().writeBufferSize( bufferSize ).build() );
   }
 
   @Override
-  public void setAutoFlush( boolean autoFlush ) throws IOException {
-    this.autoFlush = autoFlush;
+  public synchronized void setAutoFlush( boolean autoFlush ) throws IOException {
+    writeOptions = writeOptions.toBuilder().autoFlush( autoFlush ).build();
+    if ( pipeline != null ) {
+      pipeline.setAutoFlush( autoFlush );
+    }
   }
 
   @Override
-  public boolean isAutoFlush() throws IOException {
-    return autoFlush;
+  public synchronized boolean isAutoFlush() throws IOException {
+    return writeOptions.isAutoFlush();
   }
 
   @Override
@@ -85,29 +115,47 @@ class HBase10Table implements HBaseTable {
     return tab.getScanner( s );
   }
 
+  @Override
+  public RegionLocator getRegionLocator() throws IOException {
+    return locatorFactory == null ? null : locatorFactory.create( tab.getName() );
+  }
+
   @Override
   public Result get( Get toGet ) throws IOException {
     return tab.get( toGet );
   }
 
+  @Override
+  public Result[] get( List<Get> gets ) throws IOException {
+    return tab.get( gets );
+  }
+
+  @Override
+  public boolean[] exists( List<Get> gets ) throws IOException {
+    return tab.exists( gets );
+  }
+
   @Override
   public void flushCommits() throws IOException {
-    getBufferedMutator().flush();
+    getPipeline().flush();
   }
 
   @Override
   public void delete( Delete toDel ) throws IOException {
-    getBufferedMutator().mutate( toDel );
-    if ( autoFlush ) {
-      getBufferedMutator().flush();
-    }
+    getPipeline().mutate( toDel );
+  }
+
+  @Override
+  public synchronized HBaseWriteErrorReport takeWriteErrorReport() throws IOException {
+    return pipeline == null ? HBaseWriteErrorReport.empty() : pipeline.takeErrorReport();
   }
 
   @Override
   public void close() throws IOException {
-    tab.close();
-    if ( mutator != null ) {
-      mutator.close();
+    try {
+      closePipeline();
+    } finally {
+      tab.close();
     }
   }
 
@@ -125,10 +173,7 @@ class HBase10Table implements HBaseTable {
   }
 
   void put( Put toPut ) throws IOException {
-    getBufferedMutator().mutate( toPut );
-    if ( autoFlush ) {
-      getBufferedMutator().flush();
-    }
+    getPipeline().mutate( toPut );
   }
 
 }
@@ -0,0 +1,338 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.i18n.BaseMessages;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compiles a {@link ColumnFilterExpression} into a {@link ScanPlan}. Conditions on the key column are turned into key
+ * ranges wherever the key encoding of the mapping sorts like the key values, which holds for every key type: strings
+ * and binary keys compare by their bytes, numbers and dates are stored big endian with the sign bit flipped for the
+ * signed types. What the ranges cannot express stays in the filter of the plan.
+ * <p>
+ * Within a conjunction the ranges of the operands are intersected and the conditions they cover are dropped. Within
+ * a disjunction the ranges are united, and an operand with a remaining filter keeps its own ranges as a
+ * {@link ColumnFilterExpression.Type#KEY_RANGES} condition next to that filter.
+ */
+public class ColumnFilterCompiler {
+  private static final Class<?> PKG = ColumnFilterCompiler.class;
+
+  private static final List<KeyRange> ALL = Collections.singletonList( KeyRange.ALL );
+
+  private final Mapping.KeyType keyType;
+  private final HBaseBytesUtilShim bytesUtil;
+  private final VariableSpace vars;
+
+  /**
+   * @param keyType   key type of the mapping, which determines the encoding of the row keys
+   * @param bytesUtil byte conversions of the shim
+   * @param vars      variables substituted in filter constants and formats, may be null
+   */
+  public ColumnFilterCompiler( Mapping.KeyType keyType, HBaseBytesUtilShim bytesUtil, VariableSpace vars ) {
+    this.keyType = keyType;
+    this.bytesUtil = bytesUtil;
+    this.vars = vars;
+  }
+
+  public ScanPlan compile( ColumnFilterExpression expression ) throws KettleException {
+    return compile( expression, null, null );
+  }
+
+  /**
+   * @param lowerBound inclusive start key the scan was created with, null for none
+   * @param upperBound exclusive stop key the scan was created with, null for none
+   */
+  public ScanPlan compile( ColumnFilterExpression expression, byte[] lowerBound, byte[] upperBound )
+    throws KettleException {
+    Part part = compilePart( expression );
+    List<KeyRange> bounds = Collections.singletonList( KeyRange.of( lowerBound, upperBound ) );
+    return new ScanPlan( KeyRange.intersect( part.ranges, bounds ), part.filter );
+  }
+
+  /**
+   * Rows matching an expression: a key in one of the ranges and, if not null, the filter.
+   */
+  private static final class Part {
+    final List<KeyRange> ranges;
+    final ColumnFilterExpression filter;
+
+    Part( List<KeyRange> ranges, ColumnFilterExpression filter ) {
+      this.ranges = ranges;
+      this.filter = ranges.isEmpty() ? null : filter;
+    }
+
+    /**
+     * @return the part as a single condition
+     */
+    ColumnFilterExpression toExpression() {
+      if ( filter == null ) {
+        return ColumnFilterExpression.keyRanges( ranges );
+      }
+      if ( KeyRange.coversAll( ranges ) ) {
+        return filter;
+      }
+      return ColumnFilterExpression.and( ColumnFilterExpression.keyRanges( ranges ), filter );
+    }
+  }
+
+  private Part compilePart( ColumnFilterExpression expression ) throws KettleException {
+    switch ( expression.getType() ) {
+      case KEY_RANGES:
+        return new Part( expression.getKeyRanges(), null );
+      case FILTER:
+        List<KeyRange> ranges = null;
+        if ( expression.getColumnMeta().isKey() ) {
+          ranges = keyRanges( expression.getFilter(), expression.getColumnMeta() );
+        }
+        return ranges != null ? new Part( KeyRange.normalize( ranges ), null ) : new Part( ALL, expression );
+      case AND:
+        return compileAnd( expression.getChildren() );
+      default:
+        return compileOr( expression.getChildren() );
+    }
+  }
+
+  private Part compileAnd( List<ColumnFilterExpression> children ) throws KettleException {
+    List<KeyRange> ranges = ALL;
+    List<ColumnFilterExpression> filters = new ArrayList<>();
+    for ( ColumnFilterExpression child : children ) {
+      Part part = compilePart( child );
+      ranges = KeyRange.intersect( ranges, part.ranges );
+      if ( ranges.isEmpty() ) {
+        return new Part( ranges, null );
+      }
+      if ( part.filter != null ) {
+        filters.add( part.filter );
+      }
+    }
+    return new Part( ranges, combine( filters, true ) );
+  }
+
+  private Part compileOr( List<ColumnFilterExpression> children ) throws KettleException {
+    List<Part> parts = new ArrayList<>();
+    List<KeyRange> ranges = Collections.emptyList();
+    boolean filtered = false;
+    for ( ColumnFilterExpression child : children ) {
+      Part part = compilePart( child );
+      if ( part.ranges.isEmpty() ) {
+        continue;
+      }
+      if ( part.filter == null && KeyRange.coversAll( part.ranges ) ) {
+        return part;
+      }
+      parts.add( part );
+      ranges = KeyRange.union( ranges, part.ranges );
+      filtered |= part.filter != null;
+    }
+    if ( parts.size() == 1 ) {
+      return parts.get( 0 );
+    }
+    if ( !filtered ) {
+      return new Part( ranges, null );
+    }
+    List<ColumnFilterExpression> filters = new ArrayList<>( parts.size() );
+    for ( Part part : parts ) {
+      filters.add( part.toExpression() );
+    }
+    return new Part( ranges, combine( filters, false ) );
+  }
+
+  private static ColumnFilterExpression combine( List<ColumnFilterExpression> filters, boolean and ) {
+    if ( filters.isEmpty() ) {
+      return null;
+    }
+    if ( filters.size() == 1 ) {
+      return filters.get( 0 );
+    }
+    return and ? ColumnFilterExpression.and( filters ) : ColumnFilterExpression.or( filters );
+  }
+
+  /**
+   * @return the key ranges matching a condition on the key, null if the condition cannot be expressed as ranges
+   */
+  private List<KeyRange> keyRanges( ColumnFilter filter, HBaseValueMeta keyMeta ) throws KettleException {
+    ColumnFilter.ComparisonType op = filter.getComparisonOperator();
+    if ( op == null || op == ColumnFilter.ComparisonType.SUBSTRING || op == ColumnFilter.ComparisonType.REGEX ) {
+      return null;
+    }
+    String constant = substitute( filter.getConstant() == null ? "" : filter.getConstant().trim() );
+    if ( op == ColumnFilter.ComparisonType.PREFIX ) {
+      // same prefix as the PrefixFilter a key prefix condition gets in a flat filter list
+      return Collections.singletonList( KeyRange.withPrefix( bytesUtil.toBytes( constant ) ) );
+    }
+
+    try {
+      switch ( keyType ) {
+        case STRING:
+          return byteRanges( op, HBaseValueMeta.encodeKeyValue( constant, keyType, bytesUtil ) );
+        case BINARY:
+          return byteRanges( op, bytesUtil.toBytesBinary( constant ) );
+        case INTEGER:
+          return integralRanges( op, parseNumber( filter, constant ), Integer.MIN_VALUE, Integer.MAX_VALUE );
+        case UNSIGNED_INTEGER:
+          return integralRanges( op, parseNumber( filter, constant ), 0, Integer.MAX_VALUE );
+        case LONG:
+          return integralRanges( op, parseNumber( filter, constant ), Long.MIN_VALUE, Long.MAX_VALUE );
+        case UNSIGNED_LONG:
+          return integralRanges( op, parseNumber( filter, constant ), 0, Long.MAX_VALUE );
+        case DATE:
+          return integralRanges( op, parseDate( filter, constant ), Long.MIN_VALUE, Long.MAX_VALUE );
+        case UNSIGNED_DATE:
+          return integralRanges( op, parseDate( filter, constant ), 0, Long.MAX_VALUE );
+        default:
+          return null;
+      }
+    } catch ( ParseException | NumberFormatException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "ColumnFilterCompiler.Error.UnparsableKeyConstant",
+        constant, keyMeta.getAlias() ), e );
+    }
+  }
+
+  private static List<KeyRange> byteRanges( ColumnFilter.ComparisonType op, byte[] key ) {
+    switch ( op ) {
+      case EQUAL:
+        return Collections.singletonList( KeyRange.exactly( key ) );
+      case NOT_EQUAL:
+        List<KeyRange> ranges = new ArrayList<>( KeyRange.lessThan( key ) );
+        ranges.add( KeyRange.greaterThan( key ) );
+        return ranges;
+      case GREATER_THAN:
+        return Collections.singletonList( KeyRange.greaterThan( key ) );
+      case GREATER_THAN_OR_EQUAL:
+        return Collections.singletonList( KeyRange.atLeast( key ) );
+      case LESS_THAN:
+        return KeyRange.lessThan( key );
+      case LESS_THAN_OR_EQUAL:
+        return Collections.singletonList( KeyRange.atMost( key ) );
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Ranges of the integral keys between min and max which satisfy the comparison with the constant. A fractional
+   * constant is compared exactly, e.g. greater than 1.5 starts at 2.
+   */
+  private List<KeyRange> integralRanges( ColumnFilter.ComparisonType op, BigDecimal constant, long min, long max )
+    throws KettleException {
+    BigInteger floor = constant.setScale( 0, RoundingMode.FLOOR ).toBigInteger();
+    BigInteger ceiling = constant.setScale( 0, RoundingMode.CEILING ).toBigInteger();
+    boolean integral = floor.equals( ceiling );
+    BigInteger lowest = BigInteger.valueOf( min );
+    BigInteger highest = BigInteger.valueOf( max );
+
+    List<KeyRange> ranges = new ArrayList<>( 2 );
+    switch ( op ) {
+      case EQUAL:
+        if ( integral ) {
+          addIntegralRange( ranges, floor, floor, min, max );
+        }
+        break;
+      case NOT_EQUAL:
+        if ( integral ) {
+          addIntegralRange( ranges, lowest, floor.subtract( BigInteger.ONE ), min, max );
+          addIntegralRange( ranges, floor.add( BigInteger.ONE ), highest, min, max );
+        } else {
+          addIntegralRange( ranges, lowest, highest, min, max );
+        }
+        break;
+      case GREATER_THAN:
+        addIntegralRange( ranges, floor.add( BigInteger.ONE ), highest, min, max );
+        break;
+      case GREATER_THAN_OR_EQUAL:
+        addIntegralRange( ranges, ceiling, highest, min, max );
+        break;
+      case LESS_THAN:
+        addIntegralRange( ranges, lowest, ceiling.subtract( BigInteger.ONE ), min, max );
+        break;
+      case LESS_THAN_OR_EQUAL:
+        addIntegralRange( ranges, lowest, floor, min, max );
+        break;
+      default:
+        return null;
+    }
+    return ranges;
+  }
+
+  /**
+   * Adds the range of the keys from first to last, both inclusive and clipped to the key domain.
+   */
+  private void addIntegralRange( List<KeyRange> ranges, BigInteger first, BigInteger last, long min, long max )
+    throws KettleException {
+    long from = first.max( BigInteger.valueOf( min ) ).min( BigInteger.valueOf( max ) ).longValue();
+    long to = last.max( BigInteger.valueOf( min ) ).min( BigInteger.valueOf( max ) ).longValue();
+    if ( first.compareTo( BigInteger.valueOf( max ) ) > 0 || last.compareTo( BigInteger.valueOf( min ) ) < 0
+      || from > to ) {
+      return;
+    }
+    byte[] start = from == min ? null : encode( from );
+    byte[] stop = to == max ? null : encode( to + 1 );
+    ranges.add( KeyRange.of( start, stop ) );
+  }
+
+  private byte[] encode( long value ) throws KettleException {
+    switch ( keyType ) {
+      case INTEGER:
+      case UNSIGNED_INTEGER:
+        return HBaseValueMeta.encodeKeyValue( Integer.valueOf( (int) value ), keyType, bytesUtil );
+      case DATE:
+      case UNSIGNED_DATE:
+        return HBaseValueMeta.encodeKeyValue( new Date( value ), keyType, bytesUtil );
+      default:
+        return HBaseValueMeta.encodeKeyValue( Long.valueOf( value ), keyType, bytesUtil );
+    }
+  }
+
+  private BigDecimal parseNumber( ColumnFilter filter, String constant ) throws ParseException {
+    DecimalFormat df = new DecimalFormat();
+    String format = substitute( filter.getFormat() );
+    if ( !Const.isEmpty( format ) ) {
+      df.applyPattern( format );
+    }
+    df.setParseBigDecimal( true );
+    Number number = df.parse( constant );
+    if ( !( number instanceof BigDecimal ) ) {
+      // infinity or NaN
+      throw new NumberFormatException( constant );
+    }
+    return (BigDecimal) number;
+  }
+
+  private BigDecimal parseDate( ColumnFilter filter, String constant ) throws ParseException {
+    SimpleDateFormat sdf = new SimpleDateFormat();
+    String format = substitute( filter.getFormat() );
+    if ( !Const.isEmpty( format ) ) {
+      sdf.applyPattern( format );
+    }
+    return BigDecimal.valueOf( sdf.parse( constant ).getTime() );
+  }
+
+  private String substitute( String value ) {
+    return vars == null || value == null ? value : vars.environmentSubstitute( value );
+  }
+}
@@ -0,0 +1,151 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Boolean expression over {@link ColumnFilter}s, which can nest conjunctions and disjunctions. A {@link ColumnFilter}
+ * alone can only be added to the flat list of filters of a scan. {@link ColumnFilterCompiler} turns an expression
+ * into a {@link ScanPlan}, whose remaining filter may also contain {@link Type#KEY_RANGES} nodes.
+ */
+public final class ColumnFilterExpression {
+
+  public enum Type {
+    FILTER, AND, OR, KEY_RANGES
+  }
+
+  private final Type type;
+  private final ColumnFilter filter;
+  private final HBaseValueMeta columnMeta;
+  private final List<ColumnFilterExpression> children;
+  private final List<KeyRange> keyRanges;
+
+  private ColumnFilterExpression( Type type, ColumnFilter filter, HBaseValueMeta columnMeta,
+                                  List<ColumnFilterExpression> children, List<KeyRange> keyRanges ) {
+    this.type = type;
+    this.filter = filter;
+    this.columnMeta = columnMeta;
+    this.children = children;
+    this.keyRanges = keyRanges;
+  }
+
+  /**
+   * @param filter     the comparison
+   * @param columnMeta the mapped column the filter applies to, a key column for conditions on the row key
+   */
+  public static ColumnFilterExpression filter( ColumnFilter filter, HBaseValueMeta columnMeta ) {
+    if ( filter == null || columnMeta == null ) {
+      throw new IllegalArgumentException( "A column filter needs a filter and the meta data of its column" );
+    }
+    return new ColumnFilterExpression( Type.FILTER, filter, columnMeta, Collections.emptyList(), null );
+  }
+
+  /**
+   * @return expression matching the rows all children match
+   */
+  public static ColumnFilterExpression and( ColumnFilterExpression... children ) {
+    return and( Arrays.asList( children ) );
+  }
+
+  public static ColumnFilterExpression and( List<ColumnFilterExpression> children ) {
+    return group( Type.AND, children );
+  }
+
+  /**
+   * @return expression matching the rows any child matches
+   */
+  public static ColumnFilterExpression or( ColumnFilterExpression... children ) {
+    return or( Arrays.asList( children ) );
+  }
+
+  public static ColumnFilterExpression or( List<ColumnFilterExpression> children ) {
+    return group( Type.OR, children );
+  }
+
+  /**
+   * @return expression matching the rows whose key lies in one of the ranges
+   */
+  public static ColumnFilterExpression keyRanges( List<KeyRange> ranges ) {
+    return new ColumnFilterExpression( Type.KEY_RANGES, null, null, Collections.emptyList(),
+      KeyRange.normalize( ranges ) );
+  }
+
+  private static ColumnFilterExpression group( Type type, List<ColumnFilterExpression> children ) {
+    if ( children.isEmpty() ) {
+      throw new IllegalArgumentException( type + " needs at least one operand" );
+    }
+    for ( ColumnFilterExpression child : children ) {
+      if ( child == null ) {
+        throw new IllegalArgumentException( type + " operands must not be null" );
+      }
+    }
+    return new ColumnFilterExpression( type, null, null,
+      Collections.unmodifiableList( new ArrayList<>( children ) ), null );
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return the comparison of a {@link Type#FILTER} node
+   */
+  public ColumnFilter getFilter() {
+    return filter;
+  }
+
+  /**
+   * @return the column of a {@link Type#FILTER} node
+   */
+  public HBaseValueMeta getColumnMeta() {
+    return columnMeta;
+  }
+
+  /**
+   * @return the operands of an {@link Type#AND} or {@link Type#OR} node
+   */
+  public List<ColumnFilterExpression> getChildren() {
+    return children;
+  }
+
+  /**
+   * @return the normalized ranges of a {@link Type#KEY_RANGES} node
+   */
+  public List<KeyRange> getKeyRanges() {
+    return keyRanges;
+  }
+
+  @Override
+  public String toString() {
+    switch ( type ) {
+      case FILTER:
+        return filter.getFieldAlias() + " " + filter.getComparisonOperator() + " " + filter.getConstant();
+      case KEY_RANGES:
+        return "key in " + keyRanges;
+      default:
+        StringBuilder result = new StringBuilder( "(" );
+        for ( int i = 0; i < children.size(); i++ ) {
+          if ( i > 0 ) {
+            result.append( ' ' ).append( type ).append( ' ' );
+          }
+          result.append( children.get( i ) );
+        }
+        return result.append( ')' ).toString();
+    }
+  }
+}
@@ -13,6 +13,8 @@
 
 package org.pentaho.hadoop.shim.api.internal.hbase;
 
+import java.util.Arrays;
+
 public interface HBaseBytesUtilShim {
 
   int getSizeOfFloat();
@@ -50,4 +52,96 @@ public interface HBaseBytesUtilShim {
   double toDouble( byte[] value );
 
   short toShort( byte[] value );
+
+  /**
+   * Writes the same bytes as {@link #toBytes(int)} into the buffer.
+   *
+   * @return number of bytes written
+   */
+  default int putInt( byte[] buffer, int offset, int anInt ) {
+    byte[] bytes = toBytes( anInt );
+    System.arraycopy( bytes, 0, buffer, offset, bytes.length );
+    return bytes.length;
+  }
+
+  /**
+   * Writes the same bytes as {@link #toBytes(long)} into the buffer.
+   *
+   * @return number of bytes written
+   */
+  default int putLong( byte[] buffer, int offset, long aLong ) {
+    byte[] bytes = toBytes( aLong );
+    System.arraycopy( bytes, 0, buffer, offset, bytes.length );
+    return bytes.length;
+  }
+
+  /**
+   * Writes the same bytes as {@link #toBytes(float)} into the buffer.
+   *
+   * @return number of bytes written
+   */
+  default int putFloat( byte[] buffer, int offset, float aFloat ) {
+    byte[] bytes = toBytes( aFloat );
+    System.arraycopy( bytes, 0, buffer, offset, bytes.length );
+    return bytes.length;
+  }
+
+  /**
+   * Writes the same bytes as {@link #toBytes(double)} into the buffer.
+   *
+   * @return number of bytes written
+   */
+  default int putDouble( byte[] buffer, int offset, double aDouble ) {
+    byte[] bytes = toBytes( aDouble );
+    System.arraycopy( bytes, 0, buffer, offset, bytes.length );
+    return bytes.length;
+  }
+
+  /**
+   * Like {@link #toString(byte[])} for a part of an array.
+   */
+  default String toString( byte[] value, int offset, int length ) {
+    return toString(
+      offset == 0 && length == value.length ? value : Arrays.copyOfRange( value, offset, offset + length ) );
+  }
+
+  /**
+   * Like {@link #toLong(byte[])} for a part of an array.
+   */
+  default long toLong( byte[] value, int offset, int length ) {
+    return toLong(
+      offset == 0 && length == value.length ? value : Arrays.copyOfRange( value, offset, offset + length ) );
+  }
+
+  /**
+   * Like {@link #toInt(byte[])} for a part of an array.
+   */
+  default int toInt( byte[] value, int offset, int length ) {
+    return toInt(
+      offset == 0 && length == value.length ? value : Arrays.copyOfRange( value, offset, offset + length ) );
+  }
+
+  /**
+   * Like {@link #toFloat(byte[])} for a part of an array.
+   */
+  default float toFloat( byte[] value, int offset, int length ) {
+    return toFloat(
+      offset == 0 && length == value.length ? value : Arrays.copyOfRange( value, offset, offset + length ) );
+  }
+
+  /**
+   * Like {@link #toDouble(byte[])} for a part of an array.
+   */
+  default double toDouble( byte[] value, int offset, int length ) {
+    return toDouble(
+      offset == 0 && length == value.length ? value : Arrays.copyOfRange( value, offset, offset + length ) );
+  }
+
+  /**
+   * Like {@link #toShort(byte[])} for a part of an array.
+   */
+  default short toShort( byte[] value, int offset, int length ) {
+    return toShort(
+      offset == 0 && length == value.length ? value : Arrays.copyOfRange( value, offset, offset + length ) );
+  }
 }
@@ -0,0 +1,164 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer for a batch of scanned rows. The columns are resolved to their byte representation once, the
+ * connection filling the batch decodes the row key and the value of every column for each row it reads. All arrays are
+ * kept and reused by the next batch, so neither the batch nor the values read from it may be held on to after the next
+ * call to {@link #clear()}.
+ * <p>
+ * A batch is full once it holds {@link #getCapacity()} rows or its rows take up {@link #getMaxBytes()} bytes or more.
+ * The row completing the byte budget is kept, so a batch always takes at least one row.
+ */
+public class HBaseRowBatch {
+  private final byte[][] families;
+  private final byte[][] qualifiers;
+
+  private int capacity;
+  private long maxBytes;
+
+  private Object[] rows = new Object[ 0 ];
+  private byte[][] rowKeys = new byte[ 0 ][];
+  private byte[][] values = new byte[ 0 ][];
+  private int size;
+  private long bytes;
+
+  /**
+   * @param families   family of every requested column
+   * @param qualifiers qualifier of every requested column, in the order of {@code families}
+   */
+  public HBaseRowBatch( byte[][] families, byte[][] qualifiers ) {
+    if ( families.length != qualifiers.length ) {
+      throw new IllegalArgumentException( "Got " + families.length + " families but " + qualifiers.length
+        + " qualifiers" );
+    }
+    this.families = families;
+    this.qualifiers = qualifiers;
+  }
+
+  /**
+   * Empties the batch and sets the limits for the next fill.
+   *
+   * @param capacity maximum number of rows
+   * @param maxBytes byte budget of the rows, zero or less for none
+   */
+  public void reset( int capacity, long maxBytes ) {
+    if ( capacity <= 0 ) {
+      throw new IllegalArgumentException( "Batch capacity must be positive but was " + capacity );
+    }
+    if ( capacity > rows.length ) {
+      rows = new Object[ capacity ];
+      rowKeys = new byte[ capacity ][];
+      values = new byte[ capacity * families.length ][];
+    }
+    this.capacity = capacity;
+    this.maxBytes = maxBytes;
+    clear();
+  }
+
+  /**
+   * Empties the batch keeping its limits, references to the previous rows are released.
+   */
+  public void clear() {
+    Arrays.fill( rows, 0, size, null );
+    Arrays.fill( rowKeys, 0, size, null );
+    Arrays.fill( values, 0, size * families.length, null );
+    size = 0;
+    bytes = 0;
+  }
+
+  public boolean isFull() {
+    return size >= capacity || ( maxBytes > 0 && bytes >= maxBytes );
+  }
+
+  /**
+   * Appends a row, its column values are set with {@link #setValue(int, int, byte[])} afterwards.
+   *
+   * @param row         the row object of the connection
+   * @param rowKey      the row key
+   * @param sizeInBytes size of the row counted against the byte budget
+   * @return index of the row in the batch
+   */
+  public int add( Object row, byte[] rowKey, long sizeInBytes ) {
+    if ( size >= capacity ) {
+      throw new IllegalStateException( "Batch is full" );
+    }
+    rows[ size ] = row;
+    rowKeys[ size ] = rowKey;
+    bytes += sizeInBytes;
+    return size++;
+  }
+
+  public void setValue( int row, int column, byte[] value ) {
+    values[ row * families.length + column ] = value;
+  }
+
+  public int getColumnCount() {
+    return families.length;
+  }
+
+  public byte[] getFamily( int column ) {
+    return families[ column ];
+  }
+
+  public byte[] getQualifier( int column ) {
+    return qualifiers[ column ];
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return bytes of all rows of the batch as reported by the connection
+   */
+  public long getSizeInBytes() {
+    return bytes;
+  }
+
+  public Object getRow( int row ) {
+    checkRow( row );
+    return rows[ row ];
+  }
+
+  public byte[] getRowKey( int row ) {
+    checkRow( row );
+    return rowKeys[ row ];
+  }
+
+  public byte[] getValue( int row, int column ) {
+    checkRow( row );
+    if ( column < 0 || column >= families.length ) {
+      throw new IndexOutOfBoundsException( "Column " + column + " of " + families.length );
+    }
+    return values[ row * families.length + column ];
+  }
+
+  private void checkRow( int row ) {
+    if ( row < 0 || row >= size ) {
+      throw new IndexOutOfBoundsException( "Row " + row + " of " + size );
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Reusable target of a {@link HBaseValueCodec}. Every encode replaces the content, the encoded value is the first
+ * {@link #length()} bytes of {@link #array()}. The array is reused by the next encode, so callers which keep the value
+ * have to copy it with {@link #toBytes()}.
+ * <p/>
+ * Not thread safe, use one buffer per thread.
+ */
+public class HBaseValueBuffer {
+  private byte[] array;
+  private int length;
+  // false while array belongs to the caller, see wrap
+  private boolean owned = true;
+  private final OutputStream outputStream = new OutputStream() {
+    @Override public void write( int b ) {
+      ensureCapacity( length + 1 );
+      array[ length++ ] = (byte) b;
+    }
+
+    @Override public void write( byte[] b, int off, int len ) {
+      ensureCapacity( length + len );
+      System.arraycopy( b, off, array, length, len );
+      length += len;
+    }
+  };
+
+  public HBaseValueBuffer() {
+    this( 64 );
+  }
+
+  public HBaseValueBuffer( int initialCapacity ) {
+    if ( initialCapacity < 0 ) {
+      throw new IllegalArgumentException( "Initial capacity must not be negative: " + initialCapacity );
+    }
+    array = new byte[ initialCapacity ];
+  }
+
+  /**
+   * @return backing array holding the encoded value in its first {@link #length()} bytes
+   */
+  public byte[] array() {
+    return array;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * @return copy of the encoded value, the backing array itself if it is exactly the value and belongs to the caller
+   */
+  public byte[] toBytes() {
+    if ( !owned && length == array.length ) {
+      return array;
+    }
+    return Arrays.copyOf( array, length );
+  }
+
+  /**
+   * Clears the buffer and makes room for a value of up to the given size.
+   *
+   * @return the backing array to write the value to, starting at index 0
+   */
+  byte[] prepare( int capacity ) {
+    length = 0;
+    ensureCapacity( capacity );
+    return array;
+  }
+
+  /**
+   * Sets the length of the value written to the array returned by {@link #prepare(int)}.
+   */
+  void setLength( int length ) {
+    this.length = length;
+  }
+
+  /**
+   * Clears the buffer and returns a stream appending to it.
+   */
+  OutputStream outputStream() {
+    length = 0;
+    ensureCapacity( 0 );
+    return outputStream;
+  }
+
+  /**
+   * Replaces the content by a copy of the given bytes.
+   */
+  void set( byte[] bytes ) {
+    System.arraycopy( bytes, 0, prepare( bytes.length ), 0, bytes.length );
+    length = bytes.length;
+  }
+
+  /**
+   * Makes the given array the content without copying it. The next encode does not write to it.
+   */
+  void wrap( byte[] bytes ) {
+    array = bytes;
+    length = bytes.length;
+    owned = false;
+  }
+
+  private void ensureCapacity( int capacity ) {
+    if ( !owned ) {
+      array = new byte[ Math.max( capacity, 64 ) ];
+      owned = true;
+    } else if ( capacity > array.length ) {
+      array = Arrays.copyOf( array, Math.max( capacity, array.length * 2 ) );
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encoder and decoder of the values of one mapped column or of a table key. The conversion is chosen once when the
+ * codec is created, instead of on every value like the static methods of {@link HBaseValueMeta}, and produces the same
+ * bytes and values as those. Encoding writes into a reusable {@link HBaseValueBuffer} and numbers, dates and booleans
+ * can be decoded to primitives.
+ * <p/>
+ * A column codec captures the type, storage and index of the column when it is created, create a new one after
+ * changing the column. Codecs are stateless and can be shared between threads.
+ */
+public abstract class HBaseValueCodec {
+  protected final HBaseBytesUtilShim bytesUtil;
+
+  protected HBaseValueCodec( HBaseBytesUtilShim bytesUtil ) {
+    this.bytesUtil = bytesUtil;
+  }
+
+  /**
+   * Codec of a mapped column, equivalent to {@link HBaseValueMeta#encodeColumnValue} and
+   * {@link HBaseValueMeta#decodeColumnValue}.
+   */
+  public static HBaseValueCodec forColumn( HBaseValueMeta column, HBaseBytesUtilShim bytesUtil ) {
+    return HBaseValueCodecs.forColumn( column, bytesUtil, HBaseValueCodecs.encodesAscii( bytesUtil ) );
+  }
+
+  /**
+   * Codec of a table key, equivalent to {@link HBaseValueMeta#encodeKeyValue(Object, ValueMetaInterface,
+   * Mapping.KeyType, HBaseBytesUtilShim)} and {@link HBaseValueMeta#decodeKeyValue}.
+   */
+  public static HBaseValueCodec forKey( Mapping.KeyType keyType, HBaseBytesUtilShim bytesUtil ) {
+    return HBaseValueCodecs.forKey( keyType, bytesUtil, HBaseValueCodecs.encodesAscii( bytesUtil ) );
+  }
+
+  /**
+   * Codecs of all mapped columns of a mapping keyed by alias, in mapping order.
+   */
+  public static Map<String, HBaseValueCodec> forMapping( Mapping mapping, HBaseBytesUtilShim bytesUtil ) {
+    boolean ascii = HBaseValueCodecs.encodesAscii( bytesUtil );
+    Map<String, HBaseValueCodec> codecs = new LinkedHashMap<>();
+    Map<String, HBaseValueMeta> columns = mapping.getMappedColumns();
+    if ( columns != null ) {
+      for ( Map.Entry<String, HBaseValueMeta> column : columns.entrySet() ) {
+        codecs.put( column.getKey(), HBaseValueCodecs.forColumn( column.getValue(), bytesUtil, ascii ) );
+      }
+    }
+    return Collections.unmodifiableMap( codecs );
+  }
+
+  /**
+   * Encodes a Kettle value into the buffer, replacing its content.
+   *
+   * @param value     the value to encode
+   * @param valueMeta meta data of the incoming value
+   * @param buffer    target of the encoded bytes
+   * @throws KettleException if the value can't be encoded
+   */
+  public abstract void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+    throws KettleException;
+
+  /**
+   * Encodes a Kettle value into a new array.
+   */
+  public byte[] encode( Object value, ValueMetaInterface valueMeta ) throws KettleException {
+    HBaseValueBuffer buffer = new HBaseValueBuffer( 16 );
+    encode( value, valueMeta, buffer );
+    return buffer.toBytes();
+  }
+
+  /**
+   * @return the decoded Kettle value, null if raw is null
+   */
+  public Object decode( byte[] raw ) throws KettleException {
+    return raw == null ? null : decode( raw, 0, raw.length );
+  }
+
+  /**
+   * Decodes a part of an array to a Kettle value.
+   */
+  public abstract Object decode( byte[] raw, int offset, int length ) throws KettleException;
+
+  /**
+   * Decodes an integer, or the milliseconds of a date, without boxing.
+   *
+   * @throws UnsupportedOperationException if the codec is not for an integer or date
+   */
+  public long decodeLong( byte[] raw, int offset, int length ) throws KettleException {
+    throw new UnsupportedOperationException( "Decoding a long is not supported by " + getClass().getName() );
+  }
+
+  /**
+   * Decodes a number without boxing.
+   *
+   * @throws UnsupportedOperationException if the codec is not for a number
+   */
+  public double decodeDouble( byte[] raw, int offset, int length ) throws KettleException {
+    throw new UnsupportedOperationException( "Decoding a double is not supported by " + getClass().getName() );
+  }
+
+  /**
+   * Decodes a boolean without boxing.
+   *
+   * @throws UnsupportedOperationException if the codec is not for a boolean
+   */
+  public boolean decodeBoolean( byte[] raw, int offset, int length ) throws KettleException {
+    throw new UnsupportedOperationException( "Decoding a boolean is not supported by " + getClass().getName() );
+  }
+}
@@ -0,0 +1,700 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link HBaseValueCodec} implementations. Strings are written byte by byte when the bytes util encodes ASCII as
+ * plain ASCII, which is the case for the HBase UTF-8 encoding, and through the bytes util otherwise.
+ */
+final class HBaseValueCodecs {
+  private static final Class<?> PKG = HBaseValueMeta.class;
+
+  private static final String[] TRUE_TOKENS = { "y", "yes", "true", "t", "1" };
+  private static final String[] FALSE_TOKENS = { "n", "no", "false", "f", "0" };
+  // longest boolean token
+  private static final int MAX_TOKEN_LENGTH = 5;
+  // digits of an unscaled value which always fit into a long
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private HBaseValueCodecs() {
+  }
+
+  static HBaseValueCodec forColumn( HBaseValueMeta column, HBaseBytesUtilShim bytesUtil, boolean ascii ) {
+    switch ( column.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        if ( column.getStorageType() == ValueMetaInterface.STORAGE_TYPE_INDEXED ) {
+          return new IndexedStringCodec( bytesUtil, ascii, column.getIndex(), column.getAlias() );
+        }
+        return new StringCodec( bytesUtil, ascii );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return new IntegerCodec( bytesUtil, column.getIsLongOrDouble() );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return new NumberCodec( bytesUtil, column.getIsLongOrDouble() );
+      case ValueMetaInterface.TYPE_DATE:
+        return new DateCodec( bytesUtil );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return new BooleanCodec( bytesUtil, ascii );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return new BigNumberCodec( bytesUtil, ascii );
+      case ValueMetaInterface.TYPE_SERIALIZABLE:
+        return new SerializableCodec( bytesUtil );
+      case ValueMetaInterface.TYPE_BINARY:
+        return new BinaryCodec( bytesUtil );
+      default:
+        return new UnknownCodec( bytesUtil, "HBaseValueMeta.Error.UnknownTypeForColumn" );
+    }
+  }
+
+  static HBaseValueCodec forKey( Mapping.KeyType keyType, HBaseBytesUtilShim bytesUtil, boolean ascii ) {
+    if ( keyType == null ) {
+      return new UnknownCodec( bytesUtil, "HBaseValueMeta.Error.UnknownTableKeyType" );
+    }
+    switch ( keyType ) {
+      case STRING:
+        return new KeyStringCodec( bytesUtil, ascii );
+      case BINARY:
+        return new KeyBinaryCodec( bytesUtil );
+      case INTEGER:
+      case UNSIGNED_INTEGER:
+        return new KeyIntegerCodec( bytesUtil, keyType == Mapping.KeyType.UNSIGNED_INTEGER );
+      case LONG:
+      case UNSIGNED_LONG:
+        return new KeyLongCodec( bytesUtil, keyType == Mapping.KeyType.UNSIGNED_LONG );
+      case DATE:
+      case UNSIGNED_DATE:
+        return new KeyDateCodec( bytesUtil, keyType == Mapping.KeyType.UNSIGNED_DATE );
+      default:
+        return new UnknownCodec( bytesUtil, "HBaseValueMeta.Error.UnknownTableKeyType" );
+    }
+  }
+
+  /**
+   * @return true if the bytes util encodes every ASCII character as the single byte of its code and back
+   */
+  static boolean encodesAscii( HBaseBytesUtilShim bytesUtil ) {
+    char[] chars = new char[ 128 ];
+    for ( int i = 0; i < chars.length; i++ ) {
+      chars[ i ] = (char) i;
+    }
+    String probe = new String( chars );
+    try {
+      byte[] encoded = bytesUtil.toBytes( probe );
+      if ( encoded == null || encoded.length != chars.length ) {
+        return false;
+      }
+      for ( int i = 0; i < encoded.length; i++ ) {
+        if ( encoded[ i ] != i ) {
+          return false;
+        }
+      }
+      return probe.equals( bytesUtil.toString( encoded ) );
+    } catch ( RuntimeException e ) {
+      return false;
+    }
+  }
+
+  private static KettleException error( String key, Object... parameters ) {
+    return new KettleException( BaseMessages.getString( PKG, key, parameters ) );
+  }
+
+  private static byte[] slice( byte[] raw, int offset, int length ) {
+    return offset == 0 && length == raw.length ? raw : Arrays.copyOfRange( raw, offset, offset + length );
+  }
+
+  private abstract static class BaseCodec extends HBaseValueCodec {
+    protected final boolean ascii;
+
+    BaseCodec( HBaseBytesUtilShim bytesUtil, boolean ascii ) {
+      super( bytesUtil );
+      this.ascii = ascii;
+    }
+
+    protected void writeString( String value, HBaseValueBuffer buffer ) {
+      if ( ascii && value != null ) {
+        int length = value.length();
+        byte[] target = buffer.prepare( length );
+        for ( int i = 0; i < length; i++ ) {
+          char c = value.charAt( i );
+          if ( c >= 0x80 ) {
+            buffer.set( bytesUtil.toBytes( value ) );
+            return;
+          }
+          target[ i ] = (byte) c;
+        }
+        buffer.setLength( length );
+      } else {
+        buffer.set( bytesUtil.toBytes( value ) );
+      }
+    }
+
+    protected void writeInt( int value, HBaseValueBuffer buffer ) {
+      buffer.setLength( bytesUtil.putInt( buffer.prepare( Math.max( bytesUtil.getSizeOfInt(), 8 ) ), 0, value ) );
+    }
+
+    protected void writeLong( long value, HBaseValueBuffer buffer ) {
+      buffer.setLength( bytesUtil.putLong( buffer.prepare( Math.max( bytesUtil.getSizeOfLong(), 8 ) ), 0, value ) );
+    }
+
+    // whole arrays go through the plain methods so that they behave exactly like the static HBaseValueMeta methods
+    protected int readInt( byte[] raw, int offset, int length ) {
+      return offset == 0 && length == raw.length ? bytesUtil.toInt( raw ) : bytesUtil.toInt( raw, offset, length );
+    }
+
+    protected long readLong( byte[] raw, int offset, int length ) {
+      return offset == 0 && length == raw.length ? bytesUtil.toLong( raw ) : bytesUtil.toLong( raw, offset, length );
+    }
+
+    protected short readShort( byte[] raw, int offset, int length ) {
+      return offset == 0 && length == raw.length ? bytesUtil.toShort( raw ) : bytesUtil.toShort( raw, offset, length );
+    }
+
+    protected float readFloat( byte[] raw, int offset, int length ) {
+      return offset == 0 && length == raw.length ? bytesUtil.toFloat( raw ) : bytesUtil.toFloat( raw, offset, length );
+    }
+
+    protected double readDouble( byte[] raw, int offset, int length ) {
+      return offset == 0 && length == raw.length ? bytesUtil.toDouble( raw )
+        : bytesUtil.toDouble( raw, offset, length );
+    }
+
+    protected String readString( byte[] raw, int offset, int length ) {
+      return offset == 0 && length == raw.length ? bytesUtil.toString( raw )
+        : bytesUtil.toString( raw, offset, length );
+    }
+  }
+
+  private static class StringCodec extends BaseCodec {
+    StringCodec( HBaseBytesUtilShim bytesUtil, boolean ascii ) {
+      super( bytesUtil, ascii );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      writeString( valueMeta.getString( value ), buffer );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      return readString( raw, offset, length );
+    }
+  }
+
+  private static final class IndexedStringCodec extends StringCodec {
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final String alias;
+
+    IndexedStringCodec( HBaseBytesUtilShim bytesUtil, boolean ascii, Object[] legalValues, String alias ) {
+      super( bytesUtil, ascii );
+      this.alias = alias;
+      if ( legalValues != null ) {
+        for ( int i = 0; i < legalValues.length; i++ ) {
+          indexes.putIfAbsent( legalValues[ i ].toString().trim(), i );
+        }
+      }
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      String value = readString( raw, offset, length );
+      Integer index = indexes.get( value.trim() );
+      if ( index == null ) {
+        throw error( "HBaseValueMeta.Error.IllegalIndexedColumnValue", value, alias );
+      }
+      return index;
+    }
+  }
+
+  private static final class IntegerCodec extends BaseCodec {
+    private final boolean isLong;
+
+    IntegerCodec( HBaseBytesUtilShim bytesUtil, boolean isLong ) {
+      super( bytesUtil, false );
+      this.isLong = isLong;
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      long l = valueMeta.getInteger( value );
+      if ( isLong ) {
+        writeLong( l, buffer );
+      } else {
+        writeInt( (int) l, buffer );
+      }
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      return decodeLong( raw, offset, length );
+    }
+
+    @Override public long decodeLong( byte[] raw, int offset, int length ) throws KettleException {
+      if ( length == bytesUtil.getSizeOfInt() ) {
+        return readInt( raw, offset, length );
+      }
+      if ( length == bytesUtil.getSizeOfLong() ) {
+        return readLong( raw, offset, length );
+      }
+      if ( length == bytesUtil.getSizeOfShort() ) {
+        // lenient like HBaseValueMeta.decodeColumnValue
+        return readShort( raw, offset, length );
+      }
+      throw error( "HBaseValueMeta.Error.IllegalIntegerLength" );
+    }
+  }
+
+  private static final class NumberCodec extends BaseCodec {
+    private final boolean isDouble;
+
+    NumberCodec( HBaseBytesUtilShim bytesUtil, boolean isDouble ) {
+      super( bytesUtil, false );
+      this.isDouble = isDouble;
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      double d = valueMeta.getNumber( value );
+      if ( isDouble ) {
+        buffer.setLength(
+          bytesUtil.putDouble( buffer.prepare( Math.max( bytesUtil.getSizeOfDouble(), 8 ) ), 0, d ) );
+      } else {
+        buffer.setLength(
+          bytesUtil.putFloat( buffer.prepare( Math.max( bytesUtil.getSizeOfFloat(), 8 ) ), 0, (float) d ) );
+      }
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      return decodeDouble( raw, offset, length );
+    }
+
+    @Override public double decodeDouble( byte[] raw, int offset, int length ) throws KettleException {
+      if ( length == bytesUtil.getSizeOfFloat() ) {
+        return readFloat( raw, offset, length );
+      }
+      if ( length == bytesUtil.getSizeOfDouble() ) {
+        return readDouble( raw, offset, length );
+      }
+      throw error( "HBaseValueMeta.Error.UnknownTypeForColumn" );
+    }
+  }
+
+  private static final class DateCodec extends BaseCodec {
+    DateCodec( HBaseBytesUtilShim bytesUtil ) {
+      super( bytesUtil, false );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      writeLong( valueMeta.getDate( value ).getTime(), buffer );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      return new Date( decodeLong( raw, offset, length ) );
+    }
+
+    @Override public long decodeLong( byte[] raw, int offset, int length ) throws KettleException {
+      if ( length != bytesUtil.getSizeOfLong() ) {
+        throw error( "HBaseValueMeta.Error.DateValueLengthNotEqualToLong" );
+      }
+      return readLong( raw, offset, length );
+    }
+  }
+
+  private static final class BooleanCodec extends BaseCodec {
+    private final byte[] yes;
+    private final byte[] no;
+
+    BooleanCodec( HBaseBytesUtilShim bytesUtil, boolean ascii ) {
+      super( bytesUtil, ascii );
+      yes = bytesUtil.toBytes( "Y" );
+      no = bytesUtil.toBytes( "N" );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      buffer.set( valueMeta.getBoolean( value ) ? yes : no );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      return decodeBoolean( raw, offset, length );
+    }
+
+    @Override public boolean decodeBoolean( byte[] raw, int offset, int length ) throws KettleException {
+      int token = ascii ? asciiToken( raw, offset, length ) : -1;
+      if ( token >= 0 ) {
+        return token == 1;
+      }
+      if ( !ascii || token == -2 ) {
+        Boolean result = HBaseValueMeta.decodeBoolFromString( slice( raw, offset, length ), bytesUtil );
+        if ( result != null ) {
+          return result;
+        }
+      }
+      int number = fromNumber( raw, offset, length );
+      if ( number >= 0 ) {
+        return number == 1;
+      }
+      throw error( "HBaseValueMeta.Error.UnableToDecodeBoolean" );
+    }
+
+    /**
+     * @return 1 or 0 for a true or false token, -1 if the ASCII bytes are no token, -2 if they are not all ASCII
+     */
+    private static int asciiToken( byte[] raw, int offset, int length ) {
+      for ( int i = offset; i < offset + length; i++ ) {
+        if ( raw[ i ] < 0 ) {
+          return -2;
+        }
+      }
+      if ( length > MAX_TOKEN_LENGTH ) {
+        return -1;
+      }
+      if ( matchesAny( TRUE_TOKENS, raw, offset, length ) ) {
+        return 1;
+      }
+      return matchesAny( FALSE_TOKENS, raw, offset, length ) ? 0 : -1;
+    }
+
+    private static boolean matchesAny( String[] tokens, byte[] raw, int offset, int length ) {
+      for ( String token : tokens ) {
+        if ( token.length() == length ) {
+          int i = 0;
+          while ( i < length && Character.toLowerCase( (char) raw[ offset + i ] ) == token.charAt( i ) ) {
+            i++;
+          }
+          if ( i == length ) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Same checks as {@link HBaseValueMeta#decodeBoolFromNumber} on a part of an array.
+     *
+     * @return 1 or 0 for true or false, -1 if not identifiable from a number
+     */
+    private int fromNumber( byte[] raw, int offset, int length ) {
+      if ( length == bytesUtil.getSizeOfByte() ) {
+        byte val = raw[ offset ];
+        if ( val == 0 || val == 1 ) {
+          return val;
+        }
+      }
+      if ( length == bytesUtil.getSizeOfShort() ) {
+        short tempShort = readShort( raw, offset, length );
+        if ( tempShort == 0 || tempShort == 1 ) {
+          return tempShort;
+        }
+      }
+      if ( length == bytesUtil.getSizeOfInt() || length == bytesUtil.getSizeOfFloat() ) {
+        int tempInt = readInt( raw, offset, length );
+        if ( tempInt == 1 || tempInt == 0 ) {
+          return tempInt;
+        }
+        float tempFloat = readFloat( raw, offset, length );
+        if ( tempFloat == 0.0f || tempFloat == 1.0f ) {
+          return tempFloat == 1.0f ? 1 : 0;
+        }
+      }
+      if ( length == bytesUtil.getSizeOfLong() || length == bytesUtil.getSizeOfDouble() ) {
+        long tempLong = readLong( raw, offset, length );
+        if ( tempLong == 0L || tempLong == 1L ) {
+          return (int) tempLong;
+        }
+        double tempDouble = readDouble( raw, offset, length );
+        if ( tempDouble == 0.0 || tempDouble == 1.0 ) {
+          return tempDouble == 1.0 ? 1 : 0;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private static final class BigNumberCodec extends BaseCodec {
+    BigNumberCodec( HBaseBytesUtilShim bytesUtil, boolean ascii ) {
+      super( bytesUtil, ascii );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      // BigDecimal caches its string form
+      writeString( valueMeta.getBigNumber( value ).toString(), buffer );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      BigDecimal result = ascii ? parsePlain( raw, offset, length ) : null;
+      if ( result == null ) {
+        result = HBaseValueMeta.decodeBigDecimal( slice( raw, offset, length ), bytesUtil );
+      }
+      if ( result == null ) {
+        throw error( "HBaseValueMeta.Error.UnableToDecodeBigDecimal" );
+      }
+      return result;
+    }
+
+    /**
+     * Parses a plain decimal of up to 18 digits, e.g. {@code -12.50}, straight from the bytes. The scale is the number
+     * of fraction digits just like {@link BigDecimal#BigDecimal(String)} sets it.
+     *
+     * @return the decimal or null for any other form, which is left to the string parser
+     */
+    private static BigDecimal parsePlain( byte[] raw, int offset, int length ) {
+      int i = offset;
+      int end = offset + length;
+      boolean negative = false;
+      if ( i < end && ( raw[ i ] == '-' || raw[ i ] == '+' ) ) {
+        negative = raw[ i ] == '-';
+        i++;
+      }
+      long unscaled = 0;
+      int digits = 0;
+      int scale = 0;
+      boolean point = false;
+      for ( ; i < end; i++ ) {
+        byte b = raw[ i ];
+        if ( b >= '0' && b <= '9' ) {
+          if ( ++digits > MAX_LONG_DIGITS ) {
+            return null;
+          }
+          unscaled = unscaled * 10 + ( b - '0' );
+          if ( point ) {
+            scale++;
+          }
+        } else if ( b == '.' && !point ) {
+          point = true;
+        } else {
+          return null;
+        }
+      }
+      if ( digits == 0 ) {
+        return null;
+      }
+      return BigDecimal.valueOf( negative ? -unscaled : unscaled, scale );
+    }
+  }
+
+  private static final class SerializableCodec extends BaseCodec {
+    SerializableCodec( HBaseBytesUtilShim bytesUtil ) {
+      super( bytesUtil, false );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      try {
+        // same stream layout as HBaseValueMeta.encodeObject, written straight into the buffer
+        ObjectOutputStream oos = new ObjectOutputStream( buffer.outputStream() );
+        oos.writeObject( value );
+        oos.flush();
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString( PKG, "HBaseValueMeta.Error.UnableToSerialize",
+          valueMeta.getName() ), e );
+      }
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      Exception cause = null;
+      try ( ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( raw, offset, length ) ) ) {
+        Object result = ois.readObject();
+        if ( result != null ) {
+          return result;
+        }
+      } catch ( Exception e ) {
+        cause = e;
+      }
+      throw new KettleException( BaseMessages.getString( PKG, "HBaseValueMeta.Error.UnableToDeserializeObject" ),
+        cause );
+    }
+  }
+
+  private static final class BinaryCodec extends BaseCodec {
+    BinaryCodec( HBaseBytesUtilShim bytesUtil ) {
+      super( bytesUtil, false );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      byte[] binary = valueMeta.getBinary( value );
+      if ( binary == null ) {
+        throw error( "HBaseValueMeta.Error.UnknownTypeForColumn" );
+      }
+      buffer.wrap( binary );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) {
+      return slice( raw, offset, length );
+    }
+  }
+
+  private static final class KeyStringCodec extends BaseCodec {
+    KeyStringCodec( HBaseBytesUtilShim bytesUtil, boolean ascii ) {
+      super( bytesUtil, ascii );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      String key = valueMeta.getString( value );
+      writeString( Const.isEmpty( key ) ? "" : key, buffer );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) {
+      return readString( raw, offset, length );
+    }
+  }
+
+  private static final class KeyBinaryCodec extends BaseCodec {
+    KeyBinaryCodec( HBaseBytesUtilShim bytesUtil ) {
+      super( bytesUtil, false );
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      byte[] key = valueMeta.getBinary( value );
+      if ( key == null ) {
+        throw error( "HBaseValueMeta.Error.UnknownTableKeyType" );
+      }
+      buffer.wrap( key );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) {
+      return slice( raw, offset, length );
+    }
+  }
+
+  private static final class KeyIntegerCodec extends BaseCodec {
+    private final boolean unsigned;
+
+    KeyIntegerCodec( HBaseBytesUtilShim bytesUtil, boolean unsigned ) {
+      super( bytesUtil, false );
+      this.unsigned = unsigned;
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      int key = valueMeta.getInteger( value ).intValue();
+      if ( unsigned ) {
+        if ( key < 0 ) {
+          throw error( "HBaseValueMeta.Error.UnsignedIngteger" );
+        }
+      } else {
+        // flip the sign bit so that the byte order is the numeric order
+        key ^= ( 1 << 31 );
+      }
+      writeInt( key, buffer );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) {
+      return decodeLong( raw, offset, length );
+    }
+
+    @Override public long decodeLong( byte[] raw, int offset, int length ) {
+      int key = readInt( raw, offset, length );
+      return unsigned ? key : key ^ ( 1 << 31 );
+    }
+  }
+
+  private static final class KeyLongCodec extends BaseCodec {
+    private final boolean unsigned;
+
+    KeyLongCodec( HBaseBytesUtilShim bytesUtil, boolean unsigned ) {
+      super( bytesUtil, false );
+      this.unsigned = unsigned;
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      long key = valueMeta.getInteger( value ).longValue();
+      if ( unsigned ) {
+        if ( key < 0 ) {
+          throw error( "HBaseValueMeta.Error.UnsignedLong" );
+        }
+      } else {
+        key ^= ( 1L << 63 );
+      }
+      writeLong( key, buffer );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) {
+      return decodeLong( raw, offset, length );
+    }
+
+    @Override public long decodeLong( byte[] raw, int offset, int length ) {
+      long key = readLong( raw, offset, length );
+      return unsigned ? key : key ^ ( 1L << 63 );
+    }
+  }
+
+  private static final class KeyDateCodec extends BaseCodec {
+    private final boolean unsigned;
+
+    KeyDateCodec( HBaseBytesUtilShim bytesUtil, boolean unsigned ) {
+      super( bytesUtil, false );
+      this.unsigned = unsigned;
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      Date date = valueMeta.getDate( value );
+      long key = 0L;
+      if ( unsigned ) {
+        key = date.getTime();
+        if ( key < 0 ) {
+          throw error( "HBaseValueMeta.Error.UnsignedDate" );
+        }
+      } else if ( date != null ) {
+        key = date.getTime() ^ ( 1L << 63 );
+      }
+      writeLong( key, buffer );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) {
+      return new Date( decodeLong( raw, offset, length ) );
+    }
+
+    @Override public long decodeLong( byte[] raw, int offset, int length ) {
+      long key = readLong( raw, offset, length );
+      return unsigned ? key : key ^ ( 1L << 63 );
+    }
+  }
+
+  private static final class UnknownCodec extends HBaseValueCodec {
+    private final String messageKey;
+
+    UnknownCodec( HBaseBytesUtilShim bytesUtil, String messageKey ) {
+      super( bytesUtil );
+      this.messageKey = messageKey;
+    }
+
+    @Override public void encode( Object value, ValueMetaInterface valueMeta, HBaseValueBuffer buffer )
+      throws KettleException {
+      throw error( messageKey );
+    }
+
+    @Override public Object decode( byte[] raw, int offset, int length ) throws KettleException {
+      throw error( messageKey );
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Range of row keys from an inclusive start to an exclusive stop key in the unsigned byte order HBase sorts rows by.
+ * An empty start or stop key leaves that end of the range open. Lists of ranges, as used by {@link ScanPlan}, are kept
+ * sorted and without overlaps by {@link #normalize(Collection)}, an empty list matches no row at all.
+ */
+public final class KeyRange {
+  private static final byte[] OPEN = new byte[ 0 ];
+
+  /**
+   * Range of all row keys.
+   */
+  public static final KeyRange ALL = new KeyRange( OPEN, OPEN );
+
+  private final byte[] start;
+  private final byte[] stop;
+
+  private KeyRange( byte[] start, byte[] stop ) {
+    this.start = start;
+    this.stop = stop;
+  }
+
+  /**
+   * @param start inclusive start key, null or empty for no lower bound
+   * @param stop  exclusive stop key, null or empty for no upper bound
+   */
+  public static KeyRange of( byte[] start, byte[] stop ) {
+    return new KeyRange( start == null ? OPEN : start.clone(), stop == null ? OPEN : stop.clone() );
+  }
+
+  /**
+   * @return range of the keys starting with the prefix
+   */
+  public static KeyRange withPrefix( byte[] prefix ) {
+    return new KeyRange( prefix.clone(), nextPrefix( prefix ) );
+  }
+
+  /**
+   * @return range of the keys greater than or equal to the key
+   */
+  public static KeyRange atLeast( byte[] key ) {
+    return new KeyRange( key.clone(), OPEN );
+  }
+
+  /**
+   * @return range of the keys greater than the key
+   */
+  public static KeyRange greaterThan( byte[] key ) {
+    return new KeyRange( successor( key ), OPEN );
+  }
+
+  /**
+   * @return ranges of the keys less than the key, none for the empty key
+   */
+  public static List<KeyRange> lessThan( byte[] key ) {
+    return key.length == 0 ? Collections.emptyList() : Collections.singletonList( new KeyRange( OPEN, key.clone() ) );
+  }
+
+  /**
+   * @return range of the keys less than or equal to the key
+   */
+  public static KeyRange atMost( byte[] key ) {
+    return new KeyRange( OPEN, successor( key ) );
+  }
+
+  /**
+   * @return range of exactly the key
+   */
+  public static KeyRange exactly( byte[] key ) {
+    return new KeyRange( key.clone(), successor( key ) );
+  }
+
+  /**
+   * @return inclusive start key, empty when there is no lower bound
+   */
+  public byte[] getStart() {
+    return start.clone();
+  }
+
+  /**
+   * @return exclusive stop key, empty when there is no upper bound
+   */
+  public byte[] getStop() {
+    return stop.clone();
+  }
+
+  public boolean isStartOpen() {
+    return start.length == 0;
+  }
+
+  public boolean isStopOpen() {
+    return stop.length == 0;
+  }
+
+  public boolean isEmpty() {
+    return !isStopOpen() && compare( start, stop ) >= 0;
+  }
+
+  public boolean contains( byte[] key ) {
+    return compare( key, start ) >= 0 && ( isStopOpen() || compare( key, stop ) < 0 );
+  }
+
+  /**
+   * @return the ranges sorted by start key, without empty ranges and with overlapping or adjacent ranges merged
+   */
+  public static List<KeyRange> normalize( Collection<KeyRange> ranges ) {
+    List<KeyRange> sorted = new ArrayList<>( ranges.size() );
+    for ( KeyRange range : ranges ) {
+      if ( !range.isEmpty() ) {
+        sorted.add( range );
+      }
+    }
+    sorted.sort( ( a, b ) -> compare( a.start, b.start ) );
+
+    List<KeyRange> result = new ArrayList<>( sorted.size() );
+    KeyRange current = null;
+    for ( KeyRange range : sorted ) {
+      if ( current == null ) {
+        current = range;
+      } else if ( current.isStopOpen() || compare( range.start, current.stop ) <= 0 ) {
+        if ( !current.isStopOpen() && ( range.isStopOpen() || compare( range.stop, current.stop ) > 0 ) ) {
+          current = new KeyRange( current.start, range.stop );
+        }
+      } else {
+        result.add( current );
+        current = range;
+      }
+    }
+    if ( current != null ) {
+      result.add( current );
+    }
+    return Collections.unmodifiableList( result );
+  }
+
+  /**
+   * @return normalized ranges of the keys contained in any of the ranges
+   */
+  public static List<KeyRange> union( Collection<KeyRange> left, Collection<KeyRange> right ) {
+    List<KeyRange> all = new ArrayList<>( left );
+    all.addAll( right );
+    return normalize( all );
+  }
+
+  /**
+   * @return normalized ranges of the keys contained in both lists of ranges
+   */
+  public static List<KeyRange> intersect( Collection<KeyRange> left, Collection<KeyRange> right ) {
+    List<KeyRange> result = new ArrayList<>();
+    for ( KeyRange a : normalize( left ) ) {
+      for ( KeyRange b : normalize( right ) ) {
+        byte[] start = compare( a.start, b.start ) >= 0 ? a.start : b.start;
+        byte[] stop;
+        if ( a.isStopOpen() ) {
+          stop = b.stop;
+        } else if ( b.isStopOpen() ) {
+          stop = a.stop;
+        } else {
+          stop = compare( a.stop, b.stop ) <= 0 ? a.stop : b.stop;
+        }
+        result.add( new KeyRange( start, stop ) );
+      }
+    }
+    return normalize( result );
+  }
+
+  /**
+   * @return true if the ranges cover every key
+   */
+  public static boolean coversAll( List<KeyRange> ranges ) {
+    return ranges.size() == 1 && ranges.get( 0 ).isStartOpen() && ranges.get( 0 ).isStopOpen();
+  }
+
+  /**
+   * Compares keys by their unsigned bytes, the order of the rows in a table.
+   */
+  public static int compare( byte[] left, byte[] right ) {
+    int length = Math.min( left.length, right.length );
+    for ( int i = 0; i < length; i++ ) {
+      int diff = ( left[ i ] & 0xff ) - ( right[ i ] & 0xff );
+      if ( diff != 0 ) {
+        return diff;
+      }
+    }
+    return left.length - right.length;
+  }
+
+  /**
+   * @return the smallest key greater than the key
+   */
+  private static byte[] successor( byte[] key ) {
+    return Arrays.copyOf( key, key.length + 1 );
+  }
+
+  /**
+   * @return the smallest key greater than all keys with the prefix, empty if there is none
+   */
+  private static byte[] nextPrefix( byte[] prefix ) {
+    int last = prefix.length - 1;
+    while ( last >= 0 && prefix[ last ] == (byte) 0xff ) {
+      last--;
+    }
+    if ( last < 0 ) {
+      return OPEN;
+    }
+    byte[] next = Arrays.copyOf( prefix, last + 1 );
+    next[ last ]++;
+    return next;
+  }
+
+  @Override
+  public boolean equals( Object o ) {
+    if ( this == o ) {
+      return true;
+    }
+    if ( !( o instanceof KeyRange ) ) {
+      return false;
+    }
+    KeyRange other = (KeyRange) o;
+    return Arrays.equals( start, other.start ) && Arrays.equals( stop, other.stop );
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode( start ) + Arrays.hashCode( stop );
+  }
+
+  @Override
+  public String toString() {
+    return "[" + toStringBinary( start ) + ", " + ( isStopOpen() ? "" : toStringBinary( stop ) ) + ")";
+  }
+
+  private static String toStringBinary( byte[] key ) {
+    StringBuilder result = new StringBuilder();
+    for ( byte b : key ) {
+      int ch = b & 0xff;
+      if ( ch >= ' ' && ch < 0x7f && ch != '\\' ) {
+        result.append( (char) ch );
+      } else {
+        result.append( String.format( "\\x%02X", ch ) );
+      }
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of compiling a {@link ColumnFilterExpression}: the key ranges a scan has to read and the filter the region
+ * servers still have to apply to the rows in these ranges.
+ */
+public final class ScanPlan {
+  private final List<KeyRange> keyRanges;
+  private final ColumnFilterExpression filter;
+
+  ScanPlan( List<KeyRange> keyRanges, ColumnFilterExpression filter ) {
+    this.keyRanges = KeyRange.normalize( keyRanges );
+    this.filter = this.keyRanges.isEmpty() ? null : filter;
+  }
+
+  /**
+   * @return sorted, disjoint key ranges, empty when no row can match
+   */
+  public List<KeyRange> getKeyRanges() {
+    return keyRanges;
+  }
+
+  /**
+   * @return the conditions the key ranges do not cover, null when the key ranges alone select the matching rows
+   */
+  public ColumnFilterExpression getFilter() {
+    return filter;
+  }
+
+  public boolean matchesNothing() {
+    return keyRanges.isEmpty();
+  }
+
+  /**
+   * @return inclusive start key of the first range, empty for no lower bound
+   */
+  public byte[] getStartKey() {
+    return matchesNothing() ? new byte[ 0 ] : keyRanges.get( 0 ).getStart();
+  }
+
+  /**
+   * @return exclusive stop key of the last range, empty for no upper bound
+   */
+  public byte[] getStopKey() {
+    return matchesNothing() ? new byte[ 0 ] : keyRanges.get( keyRanges.size() - 1 ).getStop();
+  }
+
+  /**
+   * @return true if there are gaps between the key ranges, which a scan from the start to the stop key would read
+   */
+  public boolean hasMultipleRanges() {
+    return keyRanges.size() > 1;
+  }
+
+  /**
+   * @return the distinct mapped columns the remaining filter compares, in the order they first appear
+   */
+  public List<HBaseValueMeta> getFilterColumns() {
+    Map<String, HBaseValueMeta> columns = new LinkedHashMap<>();
+    if ( filter != null ) {
+      collectColumns( filter, columns );
+    }
+    return Collections.unmodifiableList( new ArrayList<>( columns.values() ) );
+  }
+
+  private static void collectColumns( ColumnFilterExpression expression, Map<String, HBaseValueMeta> columns ) {
+    if ( expression.getType() == ColumnFilterExpression.Type.FILTER ) {
+      HBaseValueMeta column = expression.getColumnMeta();
+      if ( !column.isKey() ) {
+        columns.putIfAbsent( column.getColumnFamily() + "," + column.getColumnName(), column );
+      }
+    }
+    for ( ColumnFilterExpression child : expression.getChildren() ) {
+      collectColumns( child, columns );
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ScanPlan{keyRanges=" + keyRanges + ", filter=" + filter + "}";
+  }
+}
@@ -14,15 +14,21 @@ package org.pentaho.hadoop.shim.common;
 
 import org.pentaho.hadoop.shim.ShimVersion;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IFormatTranscoder;
+import org.pentaho.hadoop.shim.api.format.IPentahoAvroInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoAvroOutputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat;
+import org.pentaho.hadoop.shim.common.format.avro.PentahoAvroInputFormat;
+import org.pentaho.hadoop.shim.common.format.avro.PentahoAvroOutputFormat;
 import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
 import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcOutputFormat;
 import org.pentaho.hadoop.shim.common.format.parquet.delegate.DelegateFormatFactory;
+import org.pentaho.hadoop.shim.common.format.transcode.FormatTranscoder;
 import org.pentaho.hadoop.shim.spi.FormatShim;
 
 public class CommonFormatShim implements FormatShim {
@@ -33,6 +39,8 @@ public class CommonFormatShim implements FormatShim {
       return (T) DelegateFormatFactory.getInputFormatInstance( namedCluster );
     } else if ( type.isAssignableFrom( IPentahoOrcInputFormat.class ) ) {
       return (T) new PentahoOrcInputFormat( namedCluster );
+    } else if ( type.isAssignableFrom( IPentahoAvroInputFormat.class ) ) {
+      return (T) new PentahoAvroInputFormat( namedCluster );
     }
     throw new IllegalArgumentException( "Not supported scheme format" );
   }
@@ -43,10 +51,17 @@ public class CommonFormatShim implements FormatShim {
       return (T) DelegateFormatFactory.getOutputFormatInstance( namedCluster );
     } else if ( type.isAssignableFrom( IPentahoOrcOutputFormat.class ) ) {
       return (T) new PentahoOrcOutputFormat( namedCluster );
+    } else if ( type.isAssignableFrom( IPentahoAvroOutputFormat.class ) ) {
+      return (T) new PentahoAvroOutputFormat( namedCluster );
     }
     throw new IllegalArgumentException( "Not supported scheme format" );
   }
 
+  @Override
+  public IFormatTranscoder createTranscoder( NamedCluster namedCluster ) {
+    return new FormatTranscoder( namedCluster );
+  }
+
   @Override
   public ShimVersion getVersion() {
     return null;
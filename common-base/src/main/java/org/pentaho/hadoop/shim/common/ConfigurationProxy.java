@@ -22,6 +22,7 @@ import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.Mapper;
 import org.apache.hadoop.mapred.OutputFormat;
 import org.apache.hadoop.mapred.Reducer;
+import org.apache.hadoop.security.Credentials;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.hadoop.shim.api.internal.mapred.RunningJob;
@@ -48,6 +49,15 @@ public class ConfigurationProxy extends org.apache.hadoop.mapred.JobConf impleme
     addConfigsAsResources( namedCluster );
   }
 
+  /**
+   * Copies the resources and the already loaded properties of another configuration, nothing is parsed again.
+   * Credentials are copied as well, so that tokens added to the copy are not seen by {@code conf}.
+   */
+  public ConfigurationProxy( org.apache.hadoop.conf.Configuration conf ) {
+    super( conf );
+    setCredentials( new Credentials( getCredentials() ) );
+  }
+
   @VisibleForTesting
   void addConfigsAsResources( String additionalPath ) {
     ShimConfigsLoader.addConfigsAsResources( additionalPath, this::addResource,
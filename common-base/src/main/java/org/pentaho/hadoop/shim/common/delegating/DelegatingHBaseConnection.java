@@ -15,10 +15,16 @@ package org.pentaho.hadoop.shim.common.delegating;
 
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
 import org.pentaho.hadoop.shim.api.internal.Configuration;
 import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
 import org.pentaho.hadoop.shim.spi.HBaseConnection;
 import org.pentaho.hbase.shim.common.wrapper.HBaseConnectionInterface;
 
@@ -39,6 +45,12 @@ public class DelegatingHBaseConnection implements HBaseConnection, HBaseConnecti
     delegate.addColumnFilterToScan( cf, columnMeta, vars, matchAny );
   }
 
+  @Override
+  public void addColumnFilterExpressionToScan( ColumnFilterExpression expression, Mapping.KeyType keyType,
+                                               VariableSpace vars ) throws Exception {
+    delegate.addColumnFilterExpressionToScan( expression, keyType, vars );
+  }
+
   @Override
   public void addColumnToScan( String colFamilyName, String colName, boolean colNameIsBinary ) throws Exception {
     delegate.addColumnToScan( colFamilyName, colName, colNameIsBinary );
@@ -110,6 +122,11 @@ public class DelegatingHBaseConnection implements HBaseConnection, HBaseConnecti
     delegate.executeSourceTableScan();
   }
 
+  @Override
+  public void executeParallelSourceTableScan( ParallelScanOptions options ) throws Exception {
+    delegate.executeParallelSourceTableScan( options );
+  }
+
   @Override
   public void executeTargetTableDelete( byte[] rowKey ) throws Exception {
     delegate.executeTargetTableDelete( rowKey );
@@ -239,11 +256,21 @@ public class DelegatingHBaseConnection implements HBaseConnection, HBaseConnecti
     delegate.newSourceTableScan( keyLowerBound, keyUpperBound, cacheSize );
   }
 
+  @Override
+  public void setSourceScanMaxResultSize( long maxResultSize ) throws Exception {
+    delegate.setSourceScanMaxResultSize( maxResultSize );
+  }
+
   @Override
   public void newTargetTable( String tableName, Properties props ) throws Exception {
     delegate.newTargetTable( tableName, props );
   }
 
+  @Override
+  public HBaseWriteErrorReport takeTargetTableWriteErrors() throws Exception {
+    return delegate.takeTargetTableWriteErrors();
+  }
+
   @Override
   public void newTargetTablePut( byte[] key, boolean writeToWAL ) throws Exception {
     delegate.newTargetTablePut( key, writeToWAL );
@@ -254,6 +281,21 @@ public class DelegatingHBaseConnection implements HBaseConnection, HBaseConnecti
     return delegate.resultSetNextRow();
   }
 
+  @Override
+  public int resultSetNextRows( HBaseRowBatch batch ) throws Exception {
+    return delegate.resultSetNextRows( batch );
+  }
+
+  @Override
+  public boolean[] sourceTableRowsExist( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    return delegate.sourceTableRowsExist( rowKeys, options );
+  }
+
+  @Override
+  public List<Object> sourceTableGetRows( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    return delegate.sourceTableGetRows( rowKeys, options );
+  }
+
   @Override
   public boolean sourceTableRowExists( byte[] rowKey ) throws Exception {
     return delegate.sourceTableRowExists( rowKey );
@@ -0,0 +1,171 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.pentaho.hadoop.shim.ShimConfigsLoader;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.common.ConfigurationProxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Parsed Hadoop configurations of the named clusters, copied by the formats instead of parsing {@code hive-site.xml}
+ * and the site files of the named cluster for every format instance. The site files are read again only when the last
+ * modified date of the named cluster differs from the one of the template, and a template is parsed again only when
+ * their content changed. Site files changed without a new last modified date are picked up after
+ * {@link #invalidate(NamedCluster)}.
+ * <p>
+ * Templates are kept per class loader, since the class loader of a configuration decides which default resources it
+ * finds. A template uses that class loader only while it is parsed and does not reference it afterwards, so the
+ * templates of a class loader are dropped once the class loader is collected. Templates are never handed out, every
+ * lookup returns a copy of its own.
+ */
+public class ConfigurationTemplateCache {
+
+  private static final ConfigurationTemplateCache INSTANCE = new ConfigurationTemplateCache();
+
+  private final Map<ClassLoader, Map<String, Template>> templates = new WeakHashMap<>();
+  private long buildCount;
+
+  /**
+   * @return cache shared by all formats
+   */
+  public static ConfigurationTemplateCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param namedCluster cluster whose site files are added, null for none
+   * @param classLoader  class loader of the returned configuration
+   * @return copy of the template, changes to it are not seen by the template or by other copies
+   */
+  public Configuration get( NamedCluster namedCluster, ClassLoader classLoader ) {
+    String name = namedCluster == null ? null : namedCluster.getName();
+    long lastModified = namedCluster == null ? 0 : namedCluster.getLastModifiedDate();
+    Configuration template = null;
+    synchronized ( this ) {
+      Template cached = templates.computeIfAbsent( classLoader, loader -> new HashMap<>() ).get( name );
+      if ( cached != null && cached.lastModified == lastModified ) {
+        template = cached.configuration;
+      }
+    }
+    if ( template == null ) {
+      template = refresh( namedCluster, lastModified, classLoader );
+    }
+    Configuration copy = new ConfigurationProxy( template );
+    copy.setClassLoader( classLoader );
+    return copy;
+  }
+
+  /**
+   * Reads the site files of a named cluster whose last modified date changed, and parses them when their content
+   * changed as well.
+   */
+  private Configuration refresh( NamedCluster namedCluster, long lastModified, ClassLoader classLoader ) {
+    Map<String, ByteBuffer> siteFiles = readSiteFiles( namedCluster );
+    String name = namedCluster == null ? null : namedCluster.getName();
+    synchronized ( this ) {
+      Map<String, Template> byCluster = templates.computeIfAbsent( classLoader, loader -> new HashMap<>() );
+      Template cached = byCluster.get( name );
+      if ( cached == null || !cached.siteFiles.equals( siteFiles ) ) {
+        cached = new Template( siteFiles, lastModified, build( siteFiles, classLoader ) );
+        buildCount++;
+      } else {
+        cached = new Template( siteFiles, lastModified, cached.configuration );
+      }
+      byCluster.put( name, cached );
+      return cached.configuration;
+    }
+  }
+
+  /**
+   * Drops the templates of a named cluster, the next lookup parses its site files again.
+   */
+  public synchronized void invalidate( NamedCluster namedCluster ) {
+    String name = namedCluster == null ? null : namedCluster.getName();
+    for ( Map<String, Template> byCluster : templates.values() ) {
+      byCluster.remove( name );
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    templates.clear();
+  }
+
+  /**
+   * @return number of templates parsed so far
+   */
+  public synchronized long getBuildCount() {
+    return buildCount;
+  }
+
+  private static Configuration build( Map<String, ByteBuffer> siteFiles, ClassLoader classLoader ) {
+    Configuration template = new ConfigurationProxy();
+    template.setClassLoader( classLoader );
+    template.addResource( "hive-site.xml" );
+    siteFiles.forEach( ( fileName, content ) ->
+      template.addResource( new ByteArrayInputStream( content.array() ), fileName ) );
+    // loads all resources now, so that the copies share the parsed properties instead of parsing them each
+    template.size();
+    // the template is a value of the weak map keyed by the class loader and must not keep the key reachable
+    template.setClassLoader( ConfigurationTemplateCache.class.getClassLoader() );
+    return template;
+  }
+
+  /**
+   * @return content of the site files in the order they are added to a configuration
+   */
+  private static Map<String, ByteBuffer> readSiteFiles( NamedCluster namedCluster ) {
+    Map<String, ByteBuffer> siteFiles = new LinkedHashMap<>();
+    if ( namedCluster != null ) {
+      ShimConfigsLoader.addConfigsAsResources( namedCluster,
+        ( is, fileName ) -> siteFiles.put( fileName, ByteBuffer.wrap( readFully( is, fileName ) ) ) );
+    }
+    return siteFiles;
+  }
+
+  private static byte[] readFully( InputStream is, String fileName ) {
+    try ( InputStream in = is ) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[ 8192 ];
+      int read;
+      while ( ( read = in.read( buffer ) ) > 0 ) {
+        out.write( buffer, 0, read );
+      }
+      return out.toByteArray();
+    } catch ( IOException e ) {
+      throw new IllegalStateException( "Unable to read site file " + fileName, e );
+    }
+  }
+
+  private static class Template {
+    private final Map<String, ByteBuffer> siteFiles;
+    private final long lastModified;
+    private final Configuration configuration;
+
+    Template( Map<String, ByteBuffer> siteFiles, long lastModified, Configuration configuration ) {
+      this.siteFiles = siteFiles;
+      this.lastModified = lastModified;
+      this.configuration = configuration;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded cache of file metadata such as parsed Parquet footers and the input fields derived from ORC files. Entries
+ * are keyed by kind, path, length and modification time, so a file which is rewritten is read again on the next
+ * lookup. The least recently used entry is dropped once the cache is full.
+ * <p>
+ * Cached values are shared between callers and must not be modified, hand out copies of mutable values.
+ */
+public class FormatMetadataCache {
+
+  public static final int DEFAULT_MAX_ENTRIES = 256;
+
+  private static final FormatMetadataCache INSTANCE = new FormatMetadataCache( DEFAULT_MAX_ENTRIES );
+
+  @FunctionalInterface
+  public interface Loader<T> {
+    T load() throws IOException;
+  }
+
+  private final int maxEntries;
+  private final Map<Key, Object> entries;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public FormatMetadataCache( int maxEntries ) {
+    if ( maxEntries <= 0 ) {
+      throw new IllegalArgumentException( "Cache size must be positive: " + maxEntries );
+    }
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>( 16, 0.75f, true );
+  }
+
+  /**
+   * @return cache shared by all input formats
+   */
+  public static FormatMetadataCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the cached value of the given kind for the file, loading it on a miss. The loader runs outside the lock,
+   * so two threads missing on the same file at the same time may both load it.
+   *
+   * @param kind       kind of metadata, keeps different values for the same file apart
+   * @param fileStatus status of the file the metadata belongs to
+   * @param loader     reads the metadata from the file, must not return null
+   */
+  @SuppressWarnings( "unchecked" )
+  public <T> T get( String kind, FileStatus fileStatus, Loader<T> loader ) throws IOException {
+    Key key = new Key( kind, fileStatus );
+    synchronized ( this ) {
+      Object value = entries.get( key );
+      if ( value != null ) {
+        hitCount++;
+        return (T) value;
+      }
+      missCount++;
+    }
+    T value = Objects.requireNonNull( loader.load(), "Loaded metadata must not be null" );
+    synchronized ( this ) {
+      entries.put( key, value );
+      while ( entries.size() > maxEntries ) {
+        Iterator<Key> eldest = entries.keySet().iterator();
+        eldest.next();
+        eldest.remove();
+        evictionCount++;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Drops all metadata cached for the path, whatever its length and modification time.
+   *
+   * @param path fully qualified path, as found in {@link FileStatus#getPath()}
+   */
+  public synchronized void invalidate( Path path ) {
+    String location = path.toString();
+    entries.keySet().removeIf( key -> key.path.equals( location ) );
+  }
+
+  public synchronized void invalidateAll() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  private static final class Key {
+    private final String kind;
+    private final String path;
+    private final long length;
+    private final long modificationTime;
+
+    Key( String kind, FileStatus fileStatus ) {
+      this.kind = kind;
+      this.path = fileStatus.getPath().toString();
+      this.length = fileStatus.getLen();
+      this.modificationTime = fileStatus.getModificationTime();
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof Key ) ) {
+        return false;
+      }
+      Key other = (Key) o;
+      return length == other.length && modificationTime == other.modificationTime && kind.equals( other.kind )
+        && path.equals( other.path );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash( kind, path, length, modificationTime );
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.pentaho.hadoop.shim.api.format.IFormatStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulates the statistics of row groups, stripes and files. Statistics of separate files or splits are combined
+ * with {@link #merge(FormatStatistics)}, where a column missing from one side counts as null in all of its rows.
+ */
+public class FormatStatistics implements IFormatStatistics {
+
+  private final Set<String> files = new LinkedHashSet<>();
+  private final Map<String, ColumnStatistics> columns = new LinkedHashMap<>();
+  private long rowCount;
+
+  public void addFile( String file ) {
+    files.add( file );
+  }
+
+  /**
+   * Adds the rows of a row group or stripe, add the values of its columns with {@link ColumnStatistics#add}.
+   */
+  public void addRows( long rows ) {
+    rowCount += rows;
+  }
+
+  /**
+   * @return statistics of the column, created when missing
+   */
+  public ColumnStatistics column( String name, int pentahoType ) {
+    return columns.computeIfAbsent( name, n -> new ColumnStatistics( n, pentahoType ) );
+  }
+
+  public FormatStatistics merge( FormatStatistics other ) {
+    for ( ColumnStatistics column : columns.values() ) {
+      if ( !other.columns.containsKey( column.name ) ) {
+        column.add( other.rowCount, other.rowCount, null, null );
+      }
+    }
+    for ( ColumnStatistics otherColumn : other.columns.values() ) {
+      ColumnStatistics column = columns.get( otherColumn.name );
+      if ( column == null ) {
+        column = column( otherColumn.name, otherColumn.pentahoType );
+        column.add( rowCount, rowCount, null, null );
+      }
+      column.merge( otherColumn );
+    }
+    files.addAll( other.files );
+    rowCount += other.rowCount;
+    return this;
+  }
+
+  @Override
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public int getFileCount() {
+    return files.size();
+  }
+
+  @Override
+  public List<String> getColumnNames() {
+    return Collections.unmodifiableList( new ArrayList<>( columns.keySet() ) );
+  }
+
+  @Override
+  public ColumnStatistics getColumn( String name ) {
+    return columns.get( name );
+  }
+
+  @Override
+  public String toString() {
+    return "FormatStatistics{files=" + files.size() + ", rows=" + rowCount + ", columns=" + columns.values() + "}";
+  }
+
+  public static class ColumnStatistics implements IColumnStatistics {
+    private final String name;
+    private final int pentahoType;
+    private Object min;
+    private Object max;
+    private boolean minMaxKnown = true;
+    private long nullCount;
+    private boolean nullCountKnown = true;
+    private long distinctBound;
+
+    ColumnStatistics( String name, int pentahoType ) {
+      this.name = name;
+      this.pentahoType = pentahoType;
+    }
+
+    /**
+     * Adds the statistics of one row group or stripe.
+     *
+     * @param values number of values including nulls
+     * @param nulls  number of nulls, negative when unknown
+     * @param min    smallest non null value, null when unknown or when there are only nulls
+     * @param max    largest non null value, null when unknown or when there are only nulls
+     */
+    public void add( long values, long nulls, Object min, Object max ) {
+      long nonNull = values;
+      if ( nulls < 0 ) {
+        nullCountKnown = false;
+      } else {
+        nullCount += nulls;
+        nonNull -= nulls;
+      }
+      if ( nonNull > 0 ) {
+        updateMinMax( min, max );
+      }
+      distinctBound = saturatedAdd( distinctBound, min == null || max == null ? nonNull
+        : Math.min( nonNull, distinctValuesBetween( min, max ) ) );
+    }
+
+    void merge( ColumnStatistics other ) {
+      if ( !other.minMaxKnown ) {
+        minMaxKnown = false;
+      } else if ( other.min != null ) {
+        updateMinMax( other.min, other.max );
+      }
+      nullCountKnown &= other.nullCountKnown;
+      nullCount += other.nullCount;
+      distinctBound = saturatedAdd( distinctBound, other.distinctBound );
+    }
+
+    private void updateMinMax( Object otherMin, Object otherMax ) {
+      if ( !minMaxKnown ) {
+        return;
+      }
+      if ( otherMin == null || otherMax == null || ( min != null && min.getClass() != otherMin.getClass() ) ) {
+        minMaxKnown = false;
+        min = null;
+        max = null;
+        return;
+      }
+      if ( min == null || compare( otherMin, min ) < 0 ) {
+        min = otherMin;
+      }
+      if ( max == null || compare( otherMax, max ) > 0 ) {
+        max = otherMax;
+      }
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public int getPentahoType() {
+      return pentahoType;
+    }
+
+    @Override
+    public boolean hasMinMax() {
+      return minMaxKnown && min != null;
+    }
+
+    @Override
+    public Object getMin() {
+      return hasMinMax() ? min : null;
+    }
+
+    @Override
+    public Object getMax() {
+      return hasMinMax() ? max : null;
+    }
+
+    @Override
+    public long getNullCount() {
+      return nullCountKnown ? nullCount : -1;
+    }
+
+    @Override
+    public long getDistinctCountHint() {
+      return hasMinMax() ? Math.min( distinctBound, distinctValuesBetween( min, max ) ) : distinctBound;
+    }
+
+    @Override
+    public String toString() {
+      return name + "{min=" + getMin() + ", max=" + getMax() + ", nulls=" + getNullCount() + ", distinct<="
+        + getDistinctCountHint() + "}";
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static int compare( Object value, Object other ) {
+      return ( (Comparable<Object>) value ).compareTo( other );
+    }
+
+    /**
+     * @return number of values in the closed range, {@link Long#MAX_VALUE} when not countable
+     */
+    static long distinctValuesBetween( Object min, Object max ) {
+      if ( min.equals( max ) ) {
+        return 1;
+      }
+      if ( min instanceof Boolean ) {
+        return 2;
+      }
+      if ( min instanceof Long ) {
+        long range = (Long) max - (Long) min;
+        return range < 0 || range == Long.MAX_VALUE ? Long.MAX_VALUE : range + 1;
+      }
+      return Long.MAX_VALUE;
+    }
+
+    private static long saturatedAdd( long a, long b ) {
+      long sum = a + b;
+      return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+  }
+}
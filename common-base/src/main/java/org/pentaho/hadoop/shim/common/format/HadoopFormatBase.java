@@ -13,14 +13,9 @@
 package org.pentaho.hadoop.shim.common.format;
 
 import org.apache.hadoop.conf.Configuration;
-import org.pentaho.hadoop.shim.ShimConfigsLoader;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
-import org.pentaho.hadoop.shim.common.ConfigurationProxy;
 import org.pentaho.hadoop.shim.common.fs.FileSystemRegistry;
 
-import java.io.InputStream;
-import java.util.function.BiConsumer;
-
 /**
  * Class for some base Input/Output Formats functionality, like classloders switching.
  *
@@ -31,27 +26,23 @@ public class HadoopFormatBase {
   /**
    * Creates a Hadoop Configuration with proper classloader and FileSystem registry setup.
    * This method ensures that custom FileSystem implementations (like PvfsHadoopBridge) can be
-   * loaded by Hadoop when FileSystem.get() is called.
+   * loaded by Hadoop when FileSystem.get() is called. The site files are parsed once per named cluster, see
+   * {@link ConfigurationTemplateCache}, every call returns a configuration of its own.
    *
    * @param namedCluster The named cluster configuration (can be null)
    * @param classLoader  The classloader to set on the Configuration
    * @return A configured Configuration object
    */
   protected static Configuration createConfigurationWithClassLoader( NamedCluster namedCluster, ClassLoader classLoader ) {
-    Configuration confProxy = new ConfigurationProxy();
-    confProxy.addResource( "hive-site.xml" );
-
-    if ( namedCluster != null ) {
-      BiConsumer<InputStream, String> consumer = ( is, filename ) -> confProxy.addResource( is, filename );
-      ShimConfigsLoader.addConfigsAsResources( namedCluster, consumer );
-    }
+    Configuration conf = ConfigurationTemplateCache.getInstance().get( namedCluster, classLoader );
 
+    // applied to the copy, file systems may be registered after the template was parsed
     FileSystemRegistry.registerDefaults();
-    FileSystemRegistry.applyToConfiguration( confProxy );
+    FileSystemRegistry.applyToConfiguration( conf );
     // Set the classloader on the Configuration so Hadoop can load PvfsHadoopBridge and other shim classes
-    confProxy.setClassLoader( classLoader );
+    conf.setClassLoader( classLoader );
 
-    return confProxy;
+    return conf;
   }
 
   protected <R, E extends Exception> R inClassloader( SupplierWithException<R, E> action ) {
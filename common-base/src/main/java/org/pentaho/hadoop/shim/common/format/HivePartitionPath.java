@@ -0,0 +1,106 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.Path;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hive compatible partition directory names: {@code name=value} per partition field, with the characters Hive
+ * reserves escaped as {@code %XX} and null or empty values mapped to {@link #DEFAULT_PARTITION}.
+ */
+public class HivePartitionPath {
+
+  public static final String DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+
+  private static final String ESCAPED_CHARS = "\"#%'*/:=?\\\u007F{[]^";
+
+  private HivePartitionPath() {
+  }
+
+  /**
+   * @return relative directory for the given values, e.g. {@code dt=2024-01-01/region=eu}
+   */
+  public static String toDirectory( List<String> names, List<String> values ) {
+    if ( names.size() != values.size() ) {
+      throw new IllegalArgumentException( "Expected " + names.size() + " partition values but got " + values.size() );
+    }
+    StringBuilder directory = new StringBuilder();
+    for ( int i = 0; i < names.size(); i++ ) {
+      if ( i > 0 ) {
+        directory.append( Path.SEPARATOR_CHAR );
+      }
+      String value = values.get( i );
+      directory.append( escape( names.get( i ) ) ).append( '=' )
+        .append( value == null || value.isEmpty() ? DEFAULT_PARTITION : escape( value ) );
+    }
+    return directory.toString();
+  }
+
+  /**
+   * Collects the {@code name=value} components of a path, outermost first. Values equal to
+   * {@link #DEFAULT_PARTITION} are returned as null.
+   */
+  public static Map<String, String> parse( Path path ) {
+    Deque<String> components = new ArrayDeque<>();
+    for ( Path current = path; current != null && !current.isRoot(); current = current.getParent() ) {
+      components.push( current.getName() );
+    }
+    Map<String, String> partitions = new LinkedHashMap<>();
+    for ( String component : components ) {
+      int eq = component.indexOf( '=' );
+      if ( eq > 0 ) {
+        String value = unescape( component.substring( eq + 1 ) );
+        partitions.put( unescape( component.substring( 0, eq ) ), DEFAULT_PARTITION.equals( value ) ? null : value );
+      }
+    }
+    return partitions;
+  }
+
+  public static String escape( String value ) {
+    StringBuilder escaped = new StringBuilder( value.length() );
+    for ( int i = 0; i < value.length(); i++ ) {
+      char c = value.charAt( i );
+      if ( c < ' ' || ESCAPED_CHARS.indexOf( c ) >= 0 ) {
+        escaped.append( '%' ).append( String.format( "%02X", (int) c ) );
+      } else {
+        escaped.append( c );
+      }
+    }
+    return escaped.toString();
+  }
+
+  public static String unescape( String value ) {
+    StringBuilder unescaped = new StringBuilder( value.length() );
+    for ( int i = 0; i < value.length(); i++ ) {
+      char c = value.charAt( i );
+      if ( c == '%' && i + 2 < value.length() && isHex( value.charAt( i + 1 ) ) && isHex( value.charAt( i + 2 ) ) ) {
+        unescaped.append( (char) Integer.parseInt( value.substring( i + 1, i + 3 ), 16 ) );
+        i += 2;
+      } else {
+        unescaped.append( c );
+      }
+    }
+    return unescaped.toString();
+  }
+
+  private static boolean isHex( char c ) {
+    return Character.digit( c, 16 ) >= 0;
+  }
+}
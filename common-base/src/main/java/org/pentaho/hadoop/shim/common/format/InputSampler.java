@@ -0,0 +1,407 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.SamplingOptions;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Chooses the row groups or stripes of a {@link SamplingOptions sample} from the file metadata and reads only those.
+ * Files are listed lazily, so a first rows sample of a large directory only lists and opens the first files. The
+ * format specific parts, listing the units of a file and reading one unit, are passed in.
+ */
+public class InputSampler {
+
+  /**
+   * A part of a file which can be read on its own, a Parquet row group or an ORC stripe.
+   */
+  public static final class Unit {
+    private final FileStatus file;
+    private final int index;
+    private final long offset;
+    private final long length;
+    private final long rows;
+    private final long bytes;
+
+    /**
+     * @param index  position of the unit in the file
+     * @param offset position of the first byte of the unit in the file
+     * @param length stored length of the unit
+     * @param rows   number of rows
+     * @param bytes  bytes read to get the requested columns, at most {@code length}
+     */
+    public Unit( FileStatus file, int index, long offset, long length, long rows, long bytes ) {
+      this.file = file;
+      this.index = index;
+      this.offset = offset;
+      this.length = length;
+      this.rows = rows;
+      this.bytes = bytes;
+    }
+
+    public FileStatus getFile() {
+      return file;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public long getLength() {
+      return length;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    @Override
+    public String toString() {
+      return file.getPath() + "#" + index;
+    }
+  }
+
+  @FunctionalInterface
+  public interface UnitLister {
+    /**
+     * @return the units of the file in file order, read from the file metadata
+     */
+    List<Unit> list( FileStatus file ) throws IOException;
+  }
+
+  @FunctionalInterface
+  public interface UnitReader {
+    /**
+     * @return reader of the rows of the unit, which reads no other unit of the file
+     */
+    IPentahoRecordReader open( Unit unit ) throws IOException;
+  }
+
+  private final UnitLister lister;
+  private final UnitReader reader;
+  private final SamplingOptions options;
+
+  public InputSampler( UnitLister lister, UnitReader reader, SamplingOptions options ) {
+    this.lister = lister;
+    this.reader = reader;
+    this.options = options;
+  }
+
+  /**
+   * Lists the files below the paths lazily, one directory at a time, in path order. Hidden files and directories, whose
+   * names start with {@code .} or {@code _}, are skipped.
+   *
+   * @param paths      files, which are returned as they are, or directories, which are searched recursively
+   * @param fileFilter data files to return from the directories
+   */
+  public static RemoteIterator<FileStatus> listFiles( Configuration conf, List<Path> paths, PathFilter fileFilter ) {
+    return new FileLister( conf, paths, fileFilter );
+  }
+
+  /**
+   * Chooses the units of the sample and returns a reader of their rows. Units are opened one at a time while the rows
+   * are read. The first unit chosen is read even when it alone is larger than the byte budget, a preview of files with
+   * large row groups or stripes would be empty otherwise.
+   */
+  public IPentahoRecordReader sample( RemoteIterator<FileStatus> files ) throws IOException {
+    return read( select( files ) );
+  }
+
+  /**
+   * @return the units to read in file order, whose bytes add up to at most the byte budget unless there is only one
+   */
+  List<Unit> select( RemoteIterator<FileStatus> files ) throws IOException {
+    switch ( options.getStrategy() ) {
+      case RESERVOIR:
+        return selectReservoir( files );
+      case ONE_PER_FILE:
+        return selectOnePerFile( files );
+      default:
+        return selectFirst( files );
+    }
+  }
+
+  IPentahoRecordReader read( List<Unit> units ) {
+    return new SampleRecordReader( units, options.getStrategy() != SamplingOptions.Strategy.FIRST_N );
+  }
+
+  private List<Unit> selectFirst( RemoteIterator<FileStatus> files ) throws IOException {
+    List<Unit> selected = new ArrayList<>();
+    long rows = 0;
+    long bytes = 0;
+    while ( rows < options.getMaxRows() && files.hasNext() ) {
+      for ( Unit unit : lister.list( files.next() ) ) {
+        if ( rows >= options.getMaxRows() ) {
+          break;
+        }
+        if ( unit.getRows() == 0 ) {
+          continue;
+        }
+        if ( !selected.isEmpty() && bytes + unit.getBytes() > options.getMaxBytes() ) {
+          // the rows must follow each other, a later unit would leave a gap
+          return selected;
+        }
+        selected.add( unit );
+        rows += unit.getRows();
+        bytes += unit.getBytes();
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Takes one random unit of every file until the units hold the rows of the sample. Files whose unit does not fit into
+   * the remaining byte budget are skipped.
+   */
+  private List<Unit> selectOnePerFile( RemoteIterator<FileStatus> files ) throws IOException {
+    Random random = new Random( options.getSeed() );
+    List<Unit> selected = new ArrayList<>();
+    long rows = 0;
+    long bytes = 0;
+    while ( rows < options.getMaxRows() && files.hasNext() ) {
+      List<Unit> units = nonEmpty( lister.list( files.next() ) );
+      if ( units.isEmpty() ) {
+        continue;
+      }
+      Unit unit = units.get( random.nextInt( units.size() ) );
+      if ( selected.isEmpty() || bytes + unit.getBytes() <= options.getMaxBytes() ) {
+        selected.add( unit );
+        rows += unit.getRows();
+        bytes += unit.getBytes();
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Draws a uniform random subset of all units with algorithm R, as many units as hold the requested rows on average.
+   * The drawn units are then taken in drawing order as long as they fit into the byte budget.
+   */
+  private List<Unit> selectReservoir( RemoteIterator<FileStatus> files ) throws IOException {
+    List<Unit> all = new ArrayList<>();
+    long rows = 0;
+    while ( files.hasNext() ) {
+      for ( Unit unit : nonEmpty( lister.list( files.next() ) ) ) {
+        all.add( unit );
+        rows += unit.getRows();
+      }
+    }
+    if ( all.isEmpty() ) {
+      return all;
+    }
+    long averageRows = Math.max( 1, rows / all.size() );
+    int size = (int) Math.min( all.size(), ( options.getMaxRows() + averageRows - 1 ) / averageRows );
+
+    Random random = new Random( options.getSeed() );
+    Unit[] reservoir = new Unit[ size ];
+    for ( int i = 0; i < all.size(); i++ ) {
+      if ( i < size ) {
+        reservoir[ i ] = all.get( i );
+      } else {
+        int j = random.nextInt( i + 1 );
+        if ( j < size ) {
+          reservoir[ j ] = all.get( i );
+        }
+      }
+    }
+
+    Set<Unit> chosen = Collections.newSetFromMap( new IdentityHashMap<>() );
+    long bytes = 0;
+    for ( Unit unit : reservoir ) {
+      if ( chosen.isEmpty() || bytes + unit.getBytes() <= options.getMaxBytes() ) {
+        chosen.add( unit );
+        bytes += unit.getBytes();
+      }
+    }
+    List<Unit> selected = new ArrayList<>( chosen.size() );
+    for ( Unit unit : all ) {
+      if ( chosen.contains( unit ) ) {
+        selected.add( unit );
+      }
+    }
+    return selected;
+  }
+
+  private static List<Unit> nonEmpty( List<Unit> units ) {
+    List<Unit> result = new ArrayList<>( units.size() );
+    for ( Unit unit : units ) {
+      if ( unit.getRows() > 0 ) {
+        result.add( unit );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the units one after the other. When rows are spread over the units, every unit gets an equal share of the
+   * rows still missing, so that units with fewer rows leave their share to the following ones.
+   */
+  private class SampleRecordReader implements IPentahoRecordReader {
+    private final List<Unit> units;
+    private final boolean spread;
+    private int nextUnit;
+    private long returned;
+    private IPentahoRecordReader current;
+    private Iterator<RowMetaAndData> currentRows;
+    private long currentLimit;
+
+    SampleRecordReader( List<Unit> units, boolean spread ) {
+      this.units = units;
+      this.spread = spread;
+    }
+
+    @Override
+    public Iterator<RowMetaAndData> iterator() {
+      return new Iterator<RowMetaAndData>() {
+        @Override
+        public boolean hasNext() {
+          while ( returned < options.getMaxRows() ) {
+            if ( current != null && currentLimit > 0 && currentRows.hasNext() ) {
+              return true;
+            }
+            closeCurrent();
+            if ( nextUnit >= units.size() ) {
+              return false;
+            }
+            open( units.get( nextUnit++ ) );
+          }
+          closeCurrent();
+          return false;
+        }
+
+        @Override
+        public RowMetaAndData next() {
+          if ( !hasNext() ) {
+            throw new NoSuchElementException();
+          }
+          currentLimit--;
+          returned++;
+          return currentRows.next();
+        }
+      };
+    }
+
+    private void open( Unit unit ) {
+      long missing = options.getMaxRows() - returned;
+      long remainingUnits = units.size() - nextUnit + 1L;
+      currentLimit = spread ? ( missing + remainingUnits - 1 ) / remainingUnits : missing;
+      try {
+        current = reader.open( unit );
+      } catch ( IOException e ) {
+        throw new IllegalStateException( "Unable to read " + unit, e );
+      }
+      currentRows = current.iterator();
+    }
+
+    private void closeCurrent() {
+      if ( current != null ) {
+        try {
+          current.close();
+        } catch ( IOException e ) {
+          throw new IllegalStateException( e );
+        } finally {
+          current = null;
+          currentRows = null;
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      closeCurrent();
+    }
+  }
+
+  private static class FileLister implements RemoteIterator<FileStatus> {
+    private final Configuration conf;
+    private final PathFilter fileFilter;
+    private final Deque<Path> roots;
+    /**
+     * Directories still to list and files to return, the next one on top
+     */
+    private final Deque<FileStatus> pending = new ArrayDeque<>();
+
+    FileLister( Configuration conf, List<Path> paths, PathFilter fileFilter ) {
+      this.conf = conf;
+      this.fileFilter = fileFilter;
+      this.roots = new ArrayDeque<>( paths );
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+      while ( true ) {
+        if ( pending.isEmpty() ) {
+          if ( roots.isEmpty() ) {
+            return false;
+          }
+          Path root = roots.poll();
+          pending.push( root.getFileSystem( conf ).getFileStatus( root ) );
+        }
+        FileStatus status = pending.peek();
+        if ( !status.isDirectory() ) {
+          return true;
+        }
+        pending.pop();
+        Path directory = status.getPath();
+        FileStatus[] children = directory.getFileSystem( conf ).listStatus( directory, FileLister::isVisible );
+        Arrays.sort( children, Comparator.comparing( child -> child.getPath().toString() ) );
+        for ( int i = children.length - 1; i >= 0; i-- ) {
+          if ( children[ i ].isDirectory() || fileFilter.accept( children[ i ].getPath() ) ) {
+            pending.push( children[ i ] );
+          }
+        }
+      }
+    }
+
+    @Override
+    public FileStatus next() throws IOException {
+      if ( !hasNext() ) {
+        throw new NoSuchElementException();
+      }
+      return pending.pop();
+    }
+
+    private static boolean isVisible( Path path ) {
+      String name = path.getName();
+      return !name.startsWith( "." ) && !name.startsWith( "_" );
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.Path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds deterministic names for the part files of a rolling output: {@code <prefix>-<sequence>[-<token>...]<ext>},
+ * where the sequence is zero padded to five digits so that part files sort in write order.
+ */
+public class PartFileNamer {
+
+  private final String prefix;
+  private final String extension;
+  private final List<String> tokens;
+  private final Pattern namePattern;
+
+  public PartFileNamer( String prefix, String extension, List<String> tokens ) {
+    if ( prefix == null || prefix.isEmpty() ) {
+      throw new IllegalArgumentException( "Part file prefix must not be empty" );
+    }
+    checkNamePart( prefix );
+    this.prefix = prefix;
+    this.extension = extension == null ? "" : extension;
+    this.tokens = tokens == null ? Collections.emptyList() : new ArrayList<>( tokens );
+    for ( String token : this.tokens ) {
+      if ( token == null || token.isEmpty() ) {
+        throw new IllegalArgumentException( "Part file tokens must not be empty" );
+      }
+      checkNamePart( token );
+    }
+    StringBuilder pattern = new StringBuilder( Pattern.quote( prefix ) ).append( "-\\d{5,}" );
+    for ( String token : this.tokens ) {
+      pattern.append( '-' ).append( Pattern.quote( token ) );
+    }
+    namePattern = Pattern.compile( pattern.append( Pattern.quote( this.extension ) ).toString() );
+  }
+
+  /**
+   * Creates a namer from the output file chosen by the user: the file name without extension becomes the default
+   * prefix and its extension (or {@code defaultExtension} when there is none) is kept for all parts.
+   */
+  public static PartFileNamer forOutputFile( Path outputFile, String prefix, String defaultExtension,
+                                             List<String> tokens ) {
+    String name = outputFile.getName();
+    int dot = name.lastIndexOf( '.' );
+    String baseName = dot > 0 ? name.substring( 0, dot ) : name;
+    String extension = dot > 0 ? name.substring( dot ) : defaultExtension;
+    return new PartFileNamer( prefix == null ? baseName : prefix, extension, tokens );
+  }
+
+  public String getName( int sequence ) {
+    StringBuilder name = new StringBuilder( prefix ).append( '-' ).append( String.format( "%05d", sequence ) );
+    for ( String token : tokens ) {
+      name.append( '-' ).append( token );
+    }
+    return name.append( extension ).toString();
+  }
+
+  /**
+   * @return whether the file name is the name of a part of this namer, whatever its sequence
+   */
+  public boolean isPartName( String name ) {
+    return namePattern.matcher( name ).matches();
+  }
+
+  public Path getPath( Path directory, int sequence ) {
+    return new Path( directory, getName( sequence ) );
+  }
+
+  private static void checkNamePart( String part ) {
+    if ( part.indexOf( '/' ) >= 0 || part.indexOf( '\\' ) >= 0 ) {
+      throw new IllegalArgumentException( "Part file name must not contain path separators: " + part );
+    }
+  }
+}
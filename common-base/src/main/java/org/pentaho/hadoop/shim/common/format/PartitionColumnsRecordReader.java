@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.Path;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends the partition fields of a Hive style partitioned layout, parsed from the directories of the file being
+ * read, to every row of the wrapped reader. The values are added as strings whatever the type of the field they were
+ * written from, since the directory names carry no type and the input formats only know the partition field names.
+ * Default partitions and partitions missing from the path read as null.
+ */
+public class PartitionColumnsRecordReader implements IPentahoRecordReader {
+
+  private final IPentahoRecordReader delegate;
+  private final List<String> partitionFields;
+  private final Object[] partitionValues;
+
+  private RowMetaInterface lastSourceMeta;
+  private RowMetaInterface lastTargetMeta;
+
+  public PartitionColumnsRecordReader( IPentahoRecordReader delegate, Path file, List<String> partitionFields ) {
+    this.delegate = delegate;
+    this.partitionFields = new ArrayList<>( partitionFields );
+    Map<String, String> partitions = HivePartitionPath.parse( file );
+    partitionValues = new Object[ this.partitionFields.size() ];
+    for ( int i = 0; i < partitionValues.length; i++ ) {
+      partitionValues[ i ] = partitions.get( this.partitionFields.get( i ) );
+    }
+  }
+
+  @Override
+  public Iterator<RowMetaAndData> iterator() {
+    Iterator<RowMetaAndData> rows = delegate.iterator();
+    return new Iterator<RowMetaAndData>() {
+      @Override
+      public boolean hasNext() {
+        return rows.hasNext();
+      }
+
+      @Override
+      public RowMetaAndData next() {
+        return appendPartitionValues( rows.next() );
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  private RowMetaAndData appendPartitionValues( RowMetaAndData row ) {
+    RowMetaInterface sourceMeta = row.getRowMeta();
+    // readers may share one row meta between rows, so it is extended once per distinct instance and never modified
+    if ( sourceMeta != lastSourceMeta ) {
+      RowMetaInterface targetMeta = sourceMeta.clone();
+      for ( String field : partitionFields ) {
+        targetMeta.addValueMeta( new ValueMetaString( field ) );
+      }
+      lastSourceMeta = sourceMeta;
+      lastTargetMeta = targetMeta;
+    }
+    int size = sourceMeta.size();
+    Object[] data = Arrays.copyOf( row.getData(), size + partitionValues.length );
+    System.arraycopy( partitionValues, 0, data, size, partitionValues.length );
+    return new RowMetaAndData( lastTargetMeta, data );
+  }
+}
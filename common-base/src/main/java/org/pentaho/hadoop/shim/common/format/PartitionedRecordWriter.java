@@ -0,0 +1,167 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.Path;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record writer for Hive style partitioned output. Every row is routed to a {@link RollingRecordWriter} in the
+ * directory of its partition values. At most {@code maxOpenWriters} writers are kept open; when another partition
+ * needs a writer the least recently used one is closed, and a later row for that partition continues with the next
+ * part number.
+ */
+public class PartitionedRecordWriter implements IPentahoRecordWriter {
+
+  public static final int DEFAULT_MAX_OPEN_WRITERS = 16;
+
+  @FunctionalInterface
+  public interface PartitionWriterFactory {
+    /**
+     * @param directory     partition directory
+     * @param firstSequence sequence number of the first part file to write into the directory
+     */
+    RollingRecordWriter create( Path directory, int firstSequence ) throws IOException;
+  }
+
+  private final Path root;
+  private final List<String> partitionFields;
+  private final int maxOpenWriters;
+  private final PartitionWriterFactory partitionWriterFactory;
+
+  // access ordered, so the first entry is always the least recently used writer
+  private final LinkedHashMap<String, RollingRecordWriter> openWriters = new LinkedHashMap<>( 16, 0.75f, true );
+  private final Map<String, Integer> nextSequences = new HashMap<>();
+  private final List<Path> committedFiles = new ArrayList<>();
+  private int evictions;
+
+  public PartitionedRecordWriter( Path root, List<String> partitionFields, int maxOpenWriters,
+                                  PartitionWriterFactory partitionWriterFactory ) {
+    if ( partitionFields == null || partitionFields.isEmpty() ) {
+      throw new IllegalArgumentException( "At least one partition field is required" );
+    }
+    if ( maxOpenWriters < 1 ) {
+      throw new IllegalArgumentException( "Maximum number of open writers must be positive: " + maxOpenWriters );
+    }
+    this.root = root;
+    this.partitionFields = new ArrayList<>( partitionFields );
+    this.maxOpenWriters = maxOpenWriters;
+    this.partitionWriterFactory = partitionWriterFactory;
+  }
+
+  @Override
+  public void write( RowMetaAndData row ) throws Exception {
+    String directory = HivePartitionPath.toDirectory( partitionFields, partitionValues( row ) );
+    RollingRecordWriter writer = openWriters.get( directory );
+    if ( writer == null ) {
+      if ( openWriters.size() >= maxOpenWriters ) {
+        evictLeastRecentlyUsed();
+      }
+      writer = partitionWriterFactory.create( new Path( root, directory ),
+        nextSequences.getOrDefault( directory, 0 ) );
+      openWriters.put( directory, writer );
+    }
+    writer.write( row );
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for ( Iterator<Map.Entry<String, RollingRecordWriter>> it = openWriters.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, RollingRecordWriter> entry = it.next();
+      it.remove();
+      try {
+        closeWriter( entry.getKey(), entry.getValue() );
+      } catch ( IOException e ) {
+        if ( failure == null ) {
+          failure = e;
+        } else {
+          failure.addSuppressed( e );
+        }
+      }
+    }
+    if ( failure != null ) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Discards the part files currently being written in every partition. Part files which were already completed, e.g.
+   * because their writer was evicted, stay in place.
+   */
+  @Override
+  public void abort() {
+    for ( RollingRecordWriter writer : openWriters.values() ) {
+      writer.abort();
+    }
+    openWriters.clear();
+  }
+
+  public int getOpenWriterCount() {
+    return openWriters.size();
+  }
+
+  /**
+   * @return how many writers were closed early to stay within the open writer limit
+   */
+  public int getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * @return final paths of all part files completed so far
+   */
+  public List<Path> getCommittedFiles() {
+    return Collections.unmodifiableList( committedFiles );
+  }
+
+  private List<String> partitionValues( RowMetaAndData row ) throws KettleValueException {
+    RowMetaInterface rowMeta = row.getRowMeta();
+    List<String> values = new ArrayList<>( partitionFields.size() );
+    for ( String field : partitionFields ) {
+      int index = rowMeta.indexOfValue( field );
+      if ( index < 0 ) {
+        throw new IllegalArgumentException( "Partition field " + field + " is not present in the row" );
+      }
+      values.add( rowMeta.getValueMeta( index ).getString( row.getData()[ index ] ) );
+    }
+    return values;
+  }
+
+  private void evictLeastRecentlyUsed() throws IOException {
+    Iterator<Map.Entry<String, RollingRecordWriter>> it = openWriters.entrySet().iterator();
+    Map.Entry<String, RollingRecordWriter> eldest = it.next();
+    it.remove();
+    evictions++;
+    closeWriter( eldest.getKey(), eldest.getValue() );
+  }
+
+  private void closeWriter( String directory, RollingRecordWriter writer ) throws IOException {
+    writer.close();
+    nextSequences.put( directory, writer.getNextSequence() );
+    committedFiles.addAll( writer.getCommittedFiles() );
+  }
+}
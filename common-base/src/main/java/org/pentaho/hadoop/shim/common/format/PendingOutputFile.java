@@ -0,0 +1,86 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.UUID;
+
+/**
+ * Output file which is written under a unique hidden temporary name next to its final location and only becomes
+ * visible under the final name once {@link #commit(boolean)} renames it. Readers therefore never see a partially
+ * written file, and an {@link #abort()} leaves nothing behind.
+ */
+public class PendingOutputFile {
+
+  private static final Logger logger = LogManager.getLogger( PendingOutputFile.class );
+
+  static final String TEMP_SUFFIX = ".inprogress";
+
+  private final FileSystem fs;
+  private final Path finalPath;
+  private final Path tempPath;
+
+  public PendingOutputFile( FileSystem fs, Path finalPath ) {
+    this.fs = fs;
+    this.finalPath = finalPath;
+    // leading dot keeps the file hidden from FileInputFormat based readers while it is written
+    this.tempPath = new Path( finalPath.getParent(),
+      "." + finalPath.getName() + "." + UUID.randomUUID() + TEMP_SUFFIX );
+  }
+
+  public Path getFinalPath() {
+    return finalPath;
+  }
+
+  public Path getTempPath() {
+    return tempPath;
+  }
+
+  /**
+   * Moves the temporary file to its final name.
+   *
+   * @param overwrite replace an existing file with the final name instead of failing
+   */
+  public void commit( boolean overwrite ) throws IOException {
+    if ( fs.exists( finalPath ) ) {
+      if ( !overwrite ) {
+        abort();
+        throw new FileAlreadyExistsException( finalPath.toString() );
+      }
+      fs.delete( finalPath, false );
+    }
+    if ( !fs.rename( tempPath, finalPath ) ) {
+      abort();
+      throw new IOException( "Unable to rename " + tempPath + " to " + finalPath );
+    }
+  }
+
+  /**
+   * Removes the temporary file. Failures are only logged since abort is usually called while handling another error.
+   */
+  public void abort() {
+    try {
+      if ( fs.exists( tempPath ) ) {
+        fs.delete( tempPath, false );
+      }
+    } catch ( IOException e ) {
+      logger.warn( "Unable to delete temporary file " + tempPath, e );
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between Kettle values and the exact representations of the file formats. Timestamps keep their
+ * nanoseconds and decimals keep their scale, unlike the generic
+ * {@link org.pentaho.di.core.row.value.ValueMetaConverter} which goes through milliseconds and doubles.
+ */
+public final class PreciseValues {
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final long MILLIS_PER_SECOND = 1000L;
+
+  private PreciseValues() {
+  }
+
+  /**
+   * @return the value itself when it is a {@link Timestamp}, otherwise a timestamp of the same millisecond
+   */
+  public static Timestamp toTimestamp( Date value ) {
+    if ( value == null || value instanceof Timestamp ) {
+      return (Timestamp) value;
+    }
+    return new Timestamp( value.getTime() );
+  }
+
+  /**
+   * @param value time since the epoch in the given unit, negative before 1970
+   * @param unit  one of {@link TimeUnit#MILLISECONDS}, {@link TimeUnit#MICROSECONDS} or {@link TimeUnit#NANOSECONDS}
+   */
+  public static Timestamp timestampFromEpoch( long value, TimeUnit unit ) {
+    long unitsPerSecond = unitsPerSecond( unit );
+    return timestampOf( Math.floorDiv( value, unitsPerSecond ),
+      Math.floorMod( value, unitsPerSecond ) * ( NANOS_PER_SECOND / unitsPerSecond ) );
+  }
+
+  /**
+   * Converts to the time since the epoch in the given unit. Digits finer than the unit are truncated towards the past,
+   * so that a value never moves into the next unit.
+   *
+   * @throws IllegalArgumentException when the value does not fit into a long in that unit, e.g. nanoseconds outside
+   *                                  of 1677-2262
+   */
+  public static long timestampToEpoch( Date value, TimeUnit unit ) {
+    long unitsPerSecond = unitsPerSecond( unit );
+    Timestamp timestamp = toTimestamp( value );
+    long seconds = Math.floorDiv( timestamp.getTime(), MILLIS_PER_SECOND );
+    long fraction = timestamp.getNanos() / ( NANOS_PER_SECOND / unitsPerSecond );
+    if ( seconds < 0 && fraction > 0 ) {
+      // keeps the multiplication in range for the earliest representable values
+      seconds++;
+      fraction -= unitsPerSecond;
+    }
+    try {
+      return Math.addExact( Math.multiplyExact( seconds, unitsPerSecond ), fraction );
+    } catch ( ArithmeticException e ) {
+      throw new IllegalArgumentException( "Timestamp " + timestamp + " is out of range for " + unit, e );
+    }
+  }
+
+  /**
+   * @param epochSeconds  seconds since the epoch, negative before 1970
+   * @param nanosOfSecond nanoseconds within that second, 0 to 999999999
+   */
+  public static Timestamp timestampOf( long epochSeconds, long nanosOfSecond ) {
+    Timestamp timestamp = new Timestamp( epochSeconds * MILLIS_PER_SECOND );
+    timestamp.setNanos( (int) nanosOfSecond );
+    return timestamp;
+  }
+
+  /**
+   * Brings a decimal to the declared scale and checks that it fits the declared precision. Digits beyond the scale are
+   * rounded half up like Kettle does for its own number formats, but integer digits are never dropped.
+   *
+   * @param precision declared precision, zero or less skips the precision check
+   * @param scale     declared scale
+   * @throws IllegalArgumentException when the value needs more than {@code precision - scale} integer digits
+   */
+  public static BigDecimal toDecimal( BigDecimal value, int precision, int scale, String fieldName ) {
+    if ( value == null ) {
+      return null;
+    }
+    BigDecimal scaled = value.setScale( scale, RoundingMode.HALF_UP );
+    if ( precision > 0 && scaled.precision() > precision ) {
+      throw new IllegalArgumentException( "Value " + value.toPlainString() + " of field '" + fieldName
+        + "' does not fit into decimal(" + precision + "," + scale + ")" );
+    }
+    return scaled;
+  }
+
+  private static long unitsPerSecond( TimeUnit unit ) {
+    switch ( unit ) {
+      case MILLISECONDS:
+        return MILLIS_PER_SECOND;
+      case MICROSECONDS:
+        return 1_000_000L;
+      case NANOSECONDS:
+        return NANOS_PER_SECOND;
+      default:
+        throw new IllegalArgumentException( "Unsupported timestamp unit " + unit );
+    }
+  }
+}
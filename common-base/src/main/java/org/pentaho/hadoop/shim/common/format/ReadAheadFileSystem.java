@@ -0,0 +1,260 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.impl.OpenFileParameters;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.ReadAheadOptions;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * File system which opens the files of another file system through a {@link ReadAheadInputStream}. The format readers
+ * open their files themselves, e.g. Parquet through {@code HadoopInputFile}, so the buffer is put in place through the
+ * configuration: {@link #addFile(Configuration, String)} records the scheme of every input file,
+ * {@link #setOptions(Configuration, ReadAheadOptions)} the buffer settings, and {@link #forReading(Configuration)}
+ * returns a copy of the configuration in which the file system implementation of those schemes is replaced by this
+ * class. Only record readers get the copy, listing, metadata and output calls keep using the cached file systems of
+ * the original configuration. The original implementation is used as delegate, everything but opening files goes to it
+ * unchanged.
+ * <p>
+ * The wrappers are not cached, so every copy keeps track of the file systems created for it. Readers are opened
+ * through {@link #openReader(Configuration, ReaderFactory)}, which closes them together with the reader.
+ */
+public class ReadAheadFileSystem extends FilterFileSystem {
+
+  static final String PREFIX = "pentaho.format.readahead.";
+  static final String ENABLED = PREFIX + "enabled";
+  static final String BLOCK_SIZE = PREFIX + "block.size";
+  static final String READ_AHEAD_BLOCKS = PREFIX + "blocks";
+  static final String CACHE_BLOCKS = PREFIX + "cache.blocks";
+  static final String SCHEMES = PREFIX + "schemes";
+  static final String DELEGATE = PREFIX + "delegate.";
+  static final String DELEGATE_CACHE_DISABLED = ".disable.cache";
+  static final String READER = PREFIX + "reader";
+
+  static final Map<String, Collection<ReadAheadFileSystem>> READER_FILE_SYSTEMS = new ConcurrentHashMap<>();
+
+  private ReadAheadOptions options;
+  private boolean ownsDelegate;
+
+  /**
+   * Creates a record reader from the configuration of {@link #forReading(Configuration)}.
+   */
+  @FunctionalInterface
+  public interface ReaderFactory {
+    IPentahoRecordReader create( Configuration readConf ) throws Exception;
+  }
+
+  /**
+   * Enables read ahead for the schemes of all files added so far and of all files added later.
+   *
+   * @param options buffer settings, null disables read ahead
+   */
+  public static void setOptions( Configuration conf, ReadAheadOptions options ) {
+    if ( options == null ) {
+      conf.setBoolean( ENABLED, false );
+      return;
+    }
+    conf.setBoolean( ENABLED, true );
+    conf.setInt( BLOCK_SIZE, options.getBlockSize() );
+    conf.setInt( READ_AHEAD_BLOCKS, options.getReadAheadBlocks() );
+    conf.setInt( CACHE_BLOCKS, options.getCacheBlocks() );
+  }
+
+  /**
+   * Records the scheme of an input file, its file system is wrapped for reading when read ahead is enabled.
+   */
+  public static void addFile( Configuration conf, String file ) {
+    String scheme = schemeOf( new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) ).toUri(), conf );
+    Collection<String> schemes = new LinkedHashSet<>( conf.getTrimmedStringCollection( SCHEMES ) );
+    if ( schemes.add( scheme ) ) {
+      conf.setStrings( SCHEMES, schemes.toArray( new String[ 0 ] ) );
+    }
+  }
+
+  /**
+   * @return the configuration to open input files with: a copy which opens the files of the added schemes through
+   * this file system when read ahead is enabled, the configuration itself otherwise
+   */
+  public static Configuration forReading( Configuration conf ) throws IOException {
+    if ( !conf.getBoolean( ENABLED, false ) ) {
+      return conf;
+    }
+    Configuration readConf = new Configuration( conf );
+    readConf.set( READER, UUID.randomUUID().toString() );
+    for ( String scheme : conf.getTrimmedStringCollection( SCHEMES ) ) {
+      wrap( readConf, scheme );
+    }
+    return readConf;
+  }
+
+  /**
+   * Creates a reader with the configuration of {@link #forReading(Configuration)}. The file systems created for that
+   * configuration are closed together with the reader, or right away when the reader cannot be created.
+   */
+  public static IPentahoRecordReader openReader( Configuration conf, ReaderFactory factory ) throws Exception {
+    Configuration readConf = forReading( conf );
+    if ( readConf.get( READER ) == null ) {
+      return factory.create( readConf );
+    }
+    IPentahoRecordReader recordReader;
+    try {
+      recordReader = factory.create( readConf );
+    } catch ( Exception e ) {
+      closeFileSystems( readConf );
+      throw e;
+    }
+    return new IPentahoRecordReader() {
+      @Override
+      public Iterator<RowMetaAndData> iterator() {
+        return recordReader.iterator();
+      }
+
+      @Override
+      public void close() throws IOException {
+        try {
+          recordReader.close();
+        } finally {
+          closeFileSystems( readConf );
+        }
+      }
+    };
+  }
+
+  /**
+   * Closes the file systems created for a configuration of {@link #forReading(Configuration)} so far.
+   */
+  static void closeFileSystems( Configuration readConf ) throws IOException {
+    Collection<ReadAheadFileSystem> fileSystems = READER_FILE_SYSTEMS.remove( readConf.get( READER ) );
+    if ( fileSystems == null ) {
+      return;
+    }
+    IOException failure = null;
+    for ( ReadAheadFileSystem fileSystem : fileSystems ) {
+      try {
+        fileSystem.close();
+      } catch ( IOException e ) {
+        if ( failure == null ) {
+          failure = e;
+        } else {
+          failure.addSuppressed( e );
+        }
+      }
+    }
+    if ( failure != null ) {
+      throw failure;
+    }
+  }
+
+  private static void wrap( Configuration conf, String scheme ) throws IOException {
+    if ( conf.get( DELEGATE + scheme ) != null ) {
+      return;
+    }
+    conf.set( DELEGATE + scheme, FileSystem.getFileSystemClass( scheme, conf ).getName() );
+    conf.setBoolean( DELEGATE + scheme + DELEGATE_CACHE_DISABLED, conf.getBoolean( disableCacheKey( scheme ), false ) );
+    conf.set( implKey( scheme ), ReadAheadFileSystem.class.getName() );
+    // the file system cache is keyed by scheme, authority and user only, a cached instance would be handed out for
+    // configurations without read ahead as well
+    conf.setBoolean( disableCacheKey( scheme ), true );
+  }
+
+  private static String schemeOf( URI uri, Configuration conf ) {
+    return uri.getScheme() != null ? uri.getScheme() : FileSystem.getDefaultUri( conf ).getScheme();
+  }
+
+  private static String implKey( String scheme ) {
+    return "fs." + scheme + ".impl";
+  }
+
+  private static String disableCacheKey( String scheme ) {
+    return "fs." + scheme + ".impl.disable.cache";
+  }
+
+  /**
+   * The delegate is taken from the file system cache unless caching was disabled for the original implementation, a
+   * cached delegate is shared and not closed with this file system.
+   */
+  @Override
+  public void initialize( URI name, Configuration conf ) throws IOException {
+    String scheme = schemeOf( name, conf );
+    String delegate = conf.get( DELEGATE + scheme );
+    if ( delegate == null ) {
+      throw new IOException( "No file system to read ahead for scheme " + scheme );
+    }
+    ownsDelegate = conf.getBoolean( DELEGATE + scheme + DELEGATE_CACHE_DISABLED, false );
+    Configuration delegateConf = new Configuration( conf );
+    delegateConf.set( implKey( scheme ), delegate );
+    delegateConf.setBoolean( disableCacheKey( scheme ), ownsDelegate );
+    fs = FileSystem.get( name, delegateConf );
+    options = ReadAheadOptions.builder()
+      .blockSize( conf.getInt( BLOCK_SIZE, ReadAheadOptions.DEFAULT_BLOCK_SIZE ) )
+      .readAheadBlocks( conf.getInt( READ_AHEAD_BLOCKS, ReadAheadOptions.DEFAULT_READ_AHEAD_BLOCKS ) )
+      .cacheBlocks( conf.getInt( CACHE_BLOCKS, ReadAheadOptions.DEFAULT_CACHE_BLOCKS ) )
+      .build();
+    super.initialize( name, conf );
+    String reader = conf.get( READER );
+    if ( reader != null ) {
+      READER_FILE_SYSTEMS.computeIfAbsent( reader, key -> new ConcurrentLinkedQueue<>() ).add( this );
+    }
+  }
+
+  public ReadAheadOptions getOptions() {
+    return options;
+  }
+
+  @Override
+  public FSDataInputStream open( Path path, int bufferSize ) throws IOException {
+    return open( path, bufferSize, null );
+  }
+
+  @Override
+  protected CompletableFuture<FSDataInputStream> openFileWithOptions( Path path, OpenFileParameters parameters )
+    throws IOException {
+    return CompletableFuture.completedFuture( open( path, parameters.getBufferSize(), parameters.getStatus() ) );
+  }
+
+  private FSDataInputStream open( Path path, int bufferSize, FileStatus status ) throws IOException {
+    FSDataInputStream in = fs.open( path, bufferSize );
+    try {
+      long length = status != null ? status.getLen() : fs.getFileStatus( path ).getLen();
+      return new FSDataInputStream( new ReadAheadInputStream( in, length, options ) );
+    } catch ( IOException | RuntimeException e ) {
+      in.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( ownsDelegate ) {
+      super.close();
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSExceptionMessages;
+import org.apache.hadoop.fs.FSInputStream;
+import org.pentaho.hadoop.shim.api.format.ReadAheadOptions;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Input stream which reads a file in blocks and keeps recently used blocks in a small LRU cache. Format readers issue
+ * many small positioned reads for footers, indexes and column chunks; on an object store every one of them is a
+ * separate request. This stream serves them from cached blocks and fetches missing blocks together:
+ * <ul>
+ * <li>a read of a missing block fetches the following blocks up to the read ahead in the same request, stopping at
+ * the first block already cached, so adjacent ranges are coalesced;</li>
+ * <li>a read near the end of the file fetches the whole read ahead window before it as well, footers and the indexes
+ * stored in front of them are then served by one request;</li>
+ * <li>reads of at least a full read ahead window go directly to the file and do not evict the cache.</li>
+ * </ul>
+ * Wrap it in an {@link FSDataInputStream} to hand it to a reader. Not meant for concurrent use, the methods are
+ * synchronized only to keep the cache consistent.
+ */
+public class ReadAheadInputStream extends FSInputStream {
+
+  private final FSDataInputStream in;
+  private final long length;
+  private final int blockSize;
+  private final int readAheadBlocks;
+  private final long lastBlock;
+  private final Map<Long, byte[]> cache;
+
+  private long position;
+  private boolean closed;
+
+  private long remoteReads;
+  private long remoteBytes;
+  private long cacheHits;
+
+  /**
+   * @param in     stream of the file, only positioned reads are used
+   * @param length length of the file
+   */
+  public ReadAheadInputStream( FSDataInputStream in, long length, ReadAheadOptions options ) {
+    this.in = in;
+    this.length = length;
+    this.blockSize = options.getBlockSize();
+    this.readAheadBlocks = options.getReadAheadBlocks();
+    this.lastBlock = length == 0 ? 0 : ( length - 1 ) / blockSize;
+    int cacheBlocks = options.getCacheBlocks();
+    this.cache = new LinkedHashMap<Long, byte[]>( 16, 0.75f, true ) {
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<Long, byte[]> eldest ) {
+        return size() > cacheBlocks;
+      }
+    };
+  }
+
+  @Override
+  public synchronized int read( long position, byte[] buffer, int offset, int length ) throws IOException {
+    checkOpen();
+    validatePositionedReadArgs( position, buffer, offset, length );
+    if ( length == 0 ) {
+      return 0;
+    }
+    if ( position >= this.length ) {
+      return -1;
+    }
+    int toRead = (int) Math.min( length, this.length - position );
+    if ( toRead >= (long) blockSize * readAheadBlocks ) {
+      readRemote( position, buffer, offset, toRead );
+      return toRead;
+    }
+    long lastNeeded = ( position + toRead - 1 ) / blockSize;
+    int copied = 0;
+    while ( copied < toRead ) {
+      long current = position + copied;
+      long block = current / blockSize;
+      byte[] data = cache.get( block );
+      if ( data == null ) {
+        data = fetch( block, lastNeeded );
+      } else {
+        cacheHits++;
+      }
+      int inBlock = (int) ( current - block * blockSize );
+      int count = Math.min( data.length - inBlock, toRead - copied );
+      System.arraycopy( data, inBlock, buffer, offset + copied, count );
+      copied += count;
+    }
+    return toRead;
+  }
+
+  @Override
+  public synchronized int read( byte[] buffer, int offset, int length ) throws IOException {
+    int read = read( position, buffer, offset, length );
+    if ( read > 0 ) {
+      position += read;
+    }
+    return read;
+  }
+
+  @Override
+  public synchronized int read() throws IOException {
+    byte[] single = new byte[ 1 ];
+    int read = read( single, 0, 1 );
+    return read < 0 ? -1 : single[ 0 ] & 0xff;
+  }
+
+  @Override
+  public synchronized void seek( long position ) throws IOException {
+    checkOpen();
+    if ( position < 0 ) {
+      throw new EOFException( FSExceptionMessages.NEGATIVE_SEEK );
+    }
+    if ( position > length ) {
+      throw new EOFException( FSExceptionMessages.CANNOT_SEEK_PAST_EOF );
+    }
+    this.position = position;
+  }
+
+  @Override
+  public synchronized long getPos() {
+    return position;
+  }
+
+  @Override
+  public boolean seekToNewSource( long targetPos ) {
+    return false;
+  }
+
+  @Override
+  public synchronized long skip( long n ) throws IOException {
+    checkOpen();
+    long skipped = Math.max( 0, Math.min( n, length - position ) );
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public synchronized int available() throws IOException {
+    checkOpen();
+    return (int) Math.min( Integer.MAX_VALUE, length - position );
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if ( !closed ) {
+      closed = true;
+      cache.clear();
+      in.close();
+    }
+  }
+
+  /**
+   * @return number of reads issued to the underlying stream
+   */
+  public synchronized long getRemoteReads() {
+    return remoteReads;
+  }
+
+  /**
+   * @return number of bytes read from the underlying stream
+   */
+  public synchronized long getRemoteBytes() {
+    return remoteBytes;
+  }
+
+  /**
+   * @return number of block lookups served from the cache
+   */
+  public synchronized long getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * Fetches {@code first} together with the missing blocks around it in one read and caches all of them.
+   *
+   * @param lastNeeded last block of the current read, always part of the window unless cached already
+   * @return the data of {@code first}
+   */
+  private byte[] fetch( long first, long lastNeeded ) throws IOException {
+    long start = first;
+    long end = Math.min( lastBlock, Math.max( lastNeeded, first + readAheadBlocks - 1 ) );
+    for ( long block = first + 1; block <= end; block++ ) {
+      if ( cache.containsKey( block ) ) {
+        end = block - 1;
+        break;
+      }
+    }
+    if ( end == lastBlock ) {
+      long tailStart = Math.max( 0, end - readAheadBlocks + 1 );
+      while ( start > tailStart && !cache.containsKey( start - 1 ) ) {
+        start--;
+      }
+    }
+
+    long offset = start * blockSize;
+    // at most one block more than the read ahead, which ReadAheadOptions keeps below the maximum array size
+    int size = Math.toIntExact( Math.min( length, ( end + 1 ) * blockSize ) - offset );
+    byte[] data = new byte[ size ];
+    readRemote( offset, data, 0, size );
+
+    byte[] result = null;
+    for ( long block = start; block <= end; block++ ) {
+      int from = (int) ( ( block - start ) * blockSize );
+      byte[] blockData = Arrays.copyOfRange( data, from, Math.min( size, from + blockSize ) );
+      cache.put( block, blockData );
+      if ( block == first ) {
+        result = blockData;
+      }
+    }
+    return result;
+  }
+
+  private void readRemote( long offset, byte[] buffer, int bufferOffset, int size ) throws IOException {
+    in.readFully( offset, buffer, bufferOffset, size );
+    remoteReads++;
+    remoteBytes += size;
+  }
+
+  private void checkOpen() throws IOException {
+    if ( closed ) {
+      throw new IOException( FSExceptionMessages.STREAM_IS_CLOSED );
+    }
+  }
+}
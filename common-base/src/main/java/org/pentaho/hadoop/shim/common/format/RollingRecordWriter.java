@@ -0,0 +1,211 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Record writer which splits its output into several part files. A part is finalized once it reaches the byte or
+ * row threshold, and the next row opens a new part. Every part is written to a hidden temporary file and renamed
+ * to its final name on completion, so only complete files are ever visible.
+ */
+public class RollingRecordWriter implements IPentahoRecordWriter {
+
+  /**
+   * Writer of a single part file.
+   */
+  public interface PartWriter extends IPentahoRecordWriter {
+    /**
+     * @return bytes written so far including data still buffered in memory
+     */
+    long getDataSize();
+
+    /**
+     * Releases the writer without reporting failures, the rolling writer deletes the part file afterwards.
+     */
+    @Override
+    void abort();
+  }
+
+  @FunctionalInterface
+  public interface PartWriterFactory {
+    PartWriter create( Path file ) throws IOException;
+  }
+
+  private final FileSystem fs;
+  private final Path directory;
+  private final PartFileNamer namer;
+  private final long maxBytesPerFile;
+  private final long maxRowsPerFile;
+  private final boolean overwrite;
+  private final PartWriterFactory partWriterFactory;
+
+  private final List<Path> committedFiles = new ArrayList<>();
+  private PendingOutputFile currentFile;
+  private PartWriter currentWriter;
+  private long rowsInCurrentFile;
+  private int nextSequence;
+  private boolean aborted;
+
+  public RollingRecordWriter( FileSystem fs, Path directory, PartFileNamer namer, long maxBytesPerFile,
+                              long maxRowsPerFile, boolean overwrite, PartWriterFactory partWriterFactory ) {
+    this( fs, directory, namer, maxBytesPerFile, maxRowsPerFile, overwrite, partWriterFactory, 0 );
+  }
+
+  /**
+   * @param firstSequence sequence number of the first part, used to continue a directory written by a previous writer
+   */
+  public RollingRecordWriter( FileSystem fs, Path directory, PartFileNamer namer, long maxBytesPerFile,
+                              long maxRowsPerFile, boolean overwrite, PartWriterFactory partWriterFactory,
+                              int firstSequence ) {
+    this.fs = fs;
+    this.directory = directory;
+    this.namer = namer;
+    this.maxBytesPerFile = maxBytesPerFile;
+    this.maxRowsPerFile = maxRowsPerFile;
+    this.overwrite = overwrite;
+    this.partWriterFactory = partWriterFactory;
+    this.nextSequence = firstSequence;
+  }
+
+  /**
+   * Removes the parts a previous run with the same naming left in the directory. Without this a rerun which writes
+   * fewer parts would leave the higher numbered parts of the previous run next to the new ones.
+   *
+   * @param overwrite delete the existing parts instead of failing
+   * @throws FileAlreadyExistsException if there are existing parts and overwrite is not set
+   */
+  public static void removeExistingParts( FileSystem fs, Path directory, PartFileNamer namer, boolean overwrite )
+    throws IOException {
+    if ( !fs.exists( directory ) ) {
+      return;
+    }
+    for ( FileStatus part : fs.listStatus( directory, path -> namer.isPartName( path.getName() ) ) ) {
+      if ( !overwrite ) {
+        throw new FileAlreadyExistsException( part.getPath().toString() );
+      }
+      fs.delete( part.getPath(), false );
+    }
+  }
+
+  @Override
+  public void write( RowMetaAndData row ) throws Exception {
+    if ( aborted ) {
+      throw new IllegalStateException( "Writer has been aborted" );
+    }
+    if ( currentWriter == null ) {
+      openNextPart();
+    }
+    try {
+      currentWriter.write( row );
+    } catch ( Exception e ) {
+      abort();
+      throw e;
+    }
+    rowsInCurrentFile++;
+    if ( thresholdReached() ) {
+      finishCurrentPart();
+    }
+  }
+
+  /**
+   * Finalizes the current part. When nothing has been written at all a single empty part is produced, so that the
+   * output keeps the schema just like a non rolling output does.
+   */
+  @Override
+  public void close() throws IOException {
+    if ( aborted ) {
+      return;
+    }
+    if ( currentWriter == null && committedFiles.isEmpty() ) {
+      openNextPart();
+    }
+    if ( currentWriter != null ) {
+      finishCurrentPart();
+    }
+  }
+
+  /**
+   * Discards the part currently being written. Parts which were already completed stay in place.
+   */
+  @Override
+  public void abort() {
+    aborted = true;
+    abortCurrentPart();
+  }
+
+  /**
+   * @return final paths of all parts completed so far, in write order
+   */
+  public List<Path> getCommittedFiles() {
+    return Collections.unmodifiableList( committedFiles );
+  }
+
+  /**
+   * @return sequence number the next part would get
+   */
+  public int getNextSequence() {
+    return nextSequence;
+  }
+
+  private boolean thresholdReached() {
+    return ( maxRowsPerFile > 0 && rowsInCurrentFile >= maxRowsPerFile )
+      || ( maxBytesPerFile > 0 && currentWriter.getDataSize() >= maxBytesPerFile );
+  }
+
+  private void openNextPart() throws IOException {
+    PendingOutputFile file = new PendingOutputFile( fs, namer.getPath( directory, nextSequence ) );
+    if ( !overwrite && fs.exists( file.getFinalPath() ) ) {
+      throw new FileAlreadyExistsException( file.getFinalPath().toString() );
+    }
+    currentWriter = partWriterFactory.create( file.getTempPath() );
+    currentFile = file;
+    rowsInCurrentFile = 0;
+    nextSequence++;
+  }
+
+  private void finishCurrentPart() throws IOException {
+    try {
+      currentWriter.close();
+    } catch ( IOException | RuntimeException e ) {
+      abortCurrentPart();
+      throw e;
+    }
+    PendingOutputFile file = currentFile;
+    currentWriter = null;
+    currentFile = null;
+    file.commit( overwrite );
+    committedFiles.add( file.getFinalPath() );
+  }
+
+  private void abortCurrentPart() {
+    if ( currentWriter != null ) {
+      currentWriter.abort();
+    }
+    if ( currentFile != null ) {
+      currentFile.abort();
+    }
+    currentWriter = null;
+    currentFile = null;
+  }
+}
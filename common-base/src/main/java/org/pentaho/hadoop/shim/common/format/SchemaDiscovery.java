@@ -0,0 +1,319 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.api.format.DiscoveredSchema;
+import org.pentaho.hadoop.shim.api.format.IFormatInputField;
+import org.pentaho.hadoop.shim.api.format.SchemaConflict;
+import org.pentaho.hadoop.shim.api.format.SchemaDescription;
+import org.pentaho.hadoop.shim.api.format.SchemaDiscoveryOptions;
+import org.pentaho.hadoop.shim.api.format.SchemaDiscoveryOptions.MergeRule;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Discovers the schema of a directory by reading the schemas of its files on a bounded thread pool and merging them
+ * under a {@link MergeRule}. Types are merged on the pentaho level: Integer widens to Number and BigNumber, Number to
+ * BigNumber and Date to Timestamp. A field with incompatible types is read as a String. All merged fields allow null
+ * since the format readers return null for values missing from a file.
+ */
+public class SchemaDiscovery {
+
+  /**
+   * Reads the fields of a single file, called concurrently for different files.
+   */
+  @FunctionalInterface
+  public interface SchemaReader {
+    List<? extends IFormatInputField> read( FileStatus file ) throws Exception;
+  }
+
+  private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+  private final FileSystem fs;
+  private final PathFilter fileFilter;
+  private final SchemaReader schemaReader;
+
+  /**
+   * @param fileFilter selects the data files of a directory, hidden files are always skipped
+   */
+  public SchemaDiscovery( FileSystem fs, PathFilter fileFilter, SchemaReader schemaReader ) {
+    this.fs = fs;
+    this.fileFilter = fileFilter;
+    this.schemaReader = schemaReader;
+  }
+
+  /**
+   * Resolves the file system of {@code path} like the input formats do, including S3 credentials, and discovers the
+   * schema.
+   */
+  public static DiscoveredSchema discover( String path, Configuration conf, SchemaDiscoveryOptions options,
+                                           PathFilter fileFilter, SchemaReader schemaReader )
+    throws IOException, InterruptedException {
+    new S3NCredentialUtils().applyS3CredentialsToHadoopConfigurationIfNecessary( path, conf );
+    Path dirPath = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( path ) );
+    FileSystem fs = FileSystem.get( dirPath.toUri(), conf );
+    return new SchemaDiscovery( fs, fileFilter, schemaReader ).discover( dirPath, options );
+  }
+
+  /**
+   * @throws NoSuchFileException when {@code path} does not exist or contains no data files
+   * @throws IOException         when no schema at all could be read
+   */
+  public DiscoveredSchema discover( Path path, SchemaDiscoveryOptions options )
+    throws IOException, InterruptedException {
+    List<FileStatus> files = sample( listFiles( path ), options.getMaxFiles() );
+    if ( files.isEmpty() ) {
+      throw new NoSuchFileException( path.toString() );
+    }
+    List<FileSchema> schemas = readSchemas( files, options.getParallelism() );
+    FileSchema firstFailure = null;
+    for ( FileSchema schema : schemas ) {
+      if ( schema.fields != null ) {
+        return merge( schemas, options.getMergeRule() );
+      }
+      firstFailure = firstFailure == null ? schema : firstFailure;
+    }
+    throw new IOException( "Unable to read the schema of any file below " + path, firstFailure.error );
+  }
+
+  /**
+   * @return the file itself or the visible data files below the directory, in path order
+   */
+  List<FileStatus> listFiles( Path path ) throws IOException {
+    if ( !fs.exists( path ) ) {
+      throw new NoSuchFileException( path.toString() );
+    }
+    FileStatus status = fs.getFileStatus( path );
+    if ( !status.isDirectory() ) {
+      return Collections.singletonList( status );
+    }
+    List<FileStatus> files = new ArrayList<>();
+    collectFiles( status.getPath(), files );
+    files.sort( Comparator.comparing( file -> file.getPath().toString() ) );
+    return files;
+  }
+
+  private void collectFiles( Path directory, List<FileStatus> files ) throws IOException {
+    for ( FileStatus child : fs.listStatus( directory, SchemaDiscovery::isVisible ) ) {
+      if ( child.isDirectory() ) {
+        collectFiles( child.getPath(), files );
+      } else if ( fileFilter.accept( child.getPath() ) ) {
+        files.add( child );
+      }
+    }
+  }
+
+  private static boolean isVisible( Path path ) {
+    String name = path.getName();
+    return !name.startsWith( "." ) && !name.startsWith( "_" );
+  }
+
+  /**
+   * Picks {@code maxFiles} files spread evenly over {@code files}, including the first and the last one.
+   */
+  static List<FileStatus> sample( List<FileStatus> files, int maxFiles ) {
+    if ( maxFiles <= 0 || files.size() <= maxFiles ) {
+      return files;
+    }
+    if ( maxFiles == 1 ) {
+      return Collections.singletonList( files.get( 0 ) );
+    }
+    List<FileStatus> sample = new ArrayList<>( maxFiles );
+    for ( int i = 0; i < maxFiles; i++ ) {
+      sample.add( files.get( (int) ( (long) i * ( files.size() - 1 ) / ( maxFiles - 1 ) ) ) );
+    }
+    return sample;
+  }
+
+  private List<FileSchema> readSchemas( List<FileStatus> files, int parallelism ) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool( Math.min( parallelism, files.size() ), runnable -> {
+      Thread thread = new Thread( runnable, "schema-discovery-" + THREAD_NUMBER.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    try {
+      List<Future<List<? extends IFormatInputField>>> futures = new ArrayList<>( files.size() );
+      for ( FileStatus file : files ) {
+        futures.add( executor.submit( () -> schemaReader.read( file ) ) );
+      }
+      List<FileSchema> schemas = new ArrayList<>( files.size() );
+      for ( int i = 0; i < files.size(); i++ ) {
+        String file = files.get( i ).getPath().toString();
+        try {
+          schemas.add( new FileSchema( file, futures.get( i ).get(), null ) );
+        } catch ( ExecutionException e ) {
+          schemas.add( new FileSchema( file, null, e.getCause() ) );
+        }
+      }
+      return schemas;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Merges the schemas of the files in the given order. A file without fields is one whose schema could not be read.
+   */
+  static DiscoveredSchema merge( List<FileSchema> schemas, MergeRule rule ) {
+    List<String> files = new ArrayList<>( schemas.size() );
+    List<String> readableFiles = new ArrayList<>( schemas.size() );
+    List<String> unreadableFiles = new ArrayList<>();
+    Map<String, MergedField> fields = new LinkedHashMap<>();
+    for ( FileSchema schema : schemas ) {
+      files.add( schema.file );
+      if ( schema.fields == null ) {
+        unreadableFiles.add( schema.file );
+        continue;
+      }
+      readableFiles.add( schema.file );
+      for ( IFormatInputField field : schema.fields ) {
+        fields.computeIfAbsent( field.getFormatFieldName(), name -> new MergedField( field ) )
+          .add( schema.file, field.getPentahoType() );
+      }
+    }
+
+    List<SchemaConflict> conflicts = new ArrayList<>();
+    if ( !unreadableFiles.isEmpty() ) {
+      conflicts.add( new SchemaConflict( SchemaConflict.Kind.UNREADABLE_FILE, null, ValueMetaInterface.TYPE_NONE,
+        ValueMetaInterface.TYPE_NONE, unreadableFiles, false ) );
+    }
+    String firstFile = readableFiles.get( 0 );
+    SchemaDescription merged = new SchemaDescription();
+    for ( MergedField field : fields.values() ) {
+      int type = field.firstType;
+      boolean incompatible = false;
+      for ( Map.Entry<Integer, List<String>> entry : field.filesByType.entrySet() ) {
+        int actualType = entry.getKey();
+        if ( actualType == field.firstType ) {
+          continue;
+        }
+        boolean widened = widen( field.firstType, actualType ) != ValueMetaInterface.TYPE_NONE;
+        conflicts.add( new SchemaConflict(
+          widened ? SchemaConflict.Kind.WIDENED_TYPE : SchemaConflict.Kind.INCOMPATIBLE_TYPE, field.name,
+          field.firstType, actualType, entry.getValue(), widened && rule != MergeRule.STRICT ) );
+        int widenedType = widen( type, actualType );
+        incompatible |= widenedType == ValueMetaInterface.TYPE_NONE;
+        type = incompatible ? type : widenedType;
+      }
+
+      List<String> missingFiles = new ArrayList<>();
+      for ( String file : readableFiles ) {
+        if ( !field.files.contains( file ) ) {
+          missingFiles.add( file );
+        }
+      }
+      if ( !missingFiles.isEmpty() ) {
+        conflicts.add( new SchemaConflict( SchemaConflict.Kind.MISSING_FIELD, field.name, field.firstType,
+          ValueMetaInterface.TYPE_NONE, missingFiles, rule != MergeRule.STRICT ) );
+      }
+
+      if ( rule == MergeRule.STRICT ) {
+        if ( field.files.contains( firstFile ) ) {
+          merged.addField( merged.new Field( field.name, field.pentahoName, field.firstType, true ) );
+        }
+      } else if ( rule == MergeRule.UNION || missingFiles.isEmpty() ) {
+        merged.addField( merged.new Field( field.name, field.pentahoName,
+          incompatible ? ValueMetaInterface.TYPE_STRING : type, true ) );
+      }
+    }
+    return new DiscoveredSchema( merged, files, conflicts );
+  }
+
+  /**
+   * @return the narrowest type both types can be converted to without losing values, or
+   * {@link ValueMetaInterface#TYPE_NONE} when there is none
+   */
+  static int widen( int type, int otherType ) {
+    if ( type == otherType ) {
+      return type;
+    }
+    int rank = numericRank( type );
+    int otherRank = numericRank( otherType );
+    if ( rank >= 0 && otherRank >= 0 ) {
+      return rank > otherRank ? type : otherType;
+    }
+    if ( isDate( type ) && isDate( otherType ) ) {
+      return ValueMetaInterface.TYPE_TIMESTAMP;
+    }
+    return ValueMetaInterface.TYPE_NONE;
+  }
+
+  private static int numericRank( int type ) {
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        return 0;
+      case ValueMetaInterface.TYPE_NUMBER:
+        return 1;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return 2;
+      default:
+        return -1;
+    }
+  }
+
+  private static boolean isDate( int type ) {
+    return type == ValueMetaInterface.TYPE_DATE || type == ValueMetaInterface.TYPE_TIMESTAMP;
+  }
+
+  static class FileSchema {
+    final String file;
+    final List<? extends IFormatInputField> fields;
+    final Throwable error;
+
+    FileSchema( String file, List<? extends IFormatInputField> fields, Throwable error ) {
+      this.file = file;
+      this.fields = fields;
+      this.error = error;
+    }
+  }
+
+  private static class MergedField {
+    final String name;
+    final String pentahoName;
+    final int firstType;
+    final Set<String> files = new HashSet<>();
+    final Map<Integer, List<String>> filesByType = new LinkedHashMap<>();
+
+    MergedField( IFormatInputField field ) {
+      name = field.getFormatFieldName();
+      pentahoName = field.getPentahoFieldName() == null ? name : field.getPentahoFieldName();
+      firstType = field.getPentahoType();
+    }
+
+    void add( String file, int type ) {
+      if ( files.add( file ) ) {
+        filesByType.computeIfAbsent( type, t -> new ArrayList<>() ).add( file );
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericFixed;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.api.format.AvroSpec.DataType;
+import org.pentaho.hadoop.shim.common.format.PreciseValues;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts single values between the generic Avro representation and Pentaho values. Dates are calendar days in the
+ * default time zone, the same way the ORC format stores them.
+ */
+public class AvroConverter {
+
+  private AvroConverter() {
+  }
+
+  /**
+   * @param type   type of the field in the file
+   * @param schema non null schema of the field in the file
+   * @param datum  value read by the generic datum reader
+   * @return the value as the Pentaho type {@link DataType#getPdiType()} of {@code type}
+   */
+  public static Object toPentaho( DataType type, Schema schema, Object datum ) {
+    if ( datum == null ) {
+      return null;
+    }
+    switch ( type ) {
+      case BOOLEAN:
+        return datum;
+      case INTEGER:
+      case LONG:
+        return ( (Number) datum ).longValue();
+      case FLOAT:
+      case DOUBLE:
+        return ( (Number) datum ).doubleValue();
+      case STRING:
+      case ENUM:
+        return datum.toString();
+      case BYTES:
+      case FIXED:
+        return toBytes( datum );
+      case DECIMAL:
+        int scale = ( (LogicalTypes.Decimal) schema.getLogicalType() ).getScale();
+        return new BigDecimal( new BigInteger( toBytes( datum ) ), scale );
+      case DATE:
+        LocalDate localDate = LocalDate.ofEpochDay( ( (Number) datum ).longValue() );
+        return Date.from( localDate.atStartOfDay( ZoneId.systemDefault() ).toInstant() );
+      case TIMESTAMP_MILLIS:
+        return new Timestamp( ( (Number) datum ).longValue() );
+      case TIMESTAMP_MICROS:
+        return PreciseValues.timestampFromEpoch( ( (Number) datum ).longValue(), TimeUnit.MICROSECONDS );
+      default:
+        throw new IllegalArgumentException( "Unsupported Avro type " + type.getName() );
+    }
+  }
+
+  /**
+   * @param type      type of the field in the file
+   * @param schema    non null schema of the field in the file
+   * @param valueMeta meta of the incoming value
+   * @param value     non null incoming value
+   * @return the value in the generic representation expected by the datum writer
+   */
+  public static Object toAvro( DataType type, Schema schema, ValueMetaInterface valueMeta, Object value )
+    throws KettleValueException {
+    switch ( type ) {
+      case BOOLEAN:
+        return valueMeta.getBoolean( value );
+      case INTEGER:
+        return Math.toIntExact( valueMeta.getInteger( value ) );
+      case LONG:
+        return valueMeta.getInteger( value );
+      case FLOAT:
+        return valueMeta.getNumber( value ).floatValue();
+      case DOUBLE:
+        return valueMeta.getNumber( value );
+      case STRING:
+        return valueMeta.getString( value );
+      case BYTES:
+        return ByteBuffer.wrap( valueMeta.getBinary( value ) );
+      case DECIMAL:
+        LogicalTypes.Decimal decimal = (LogicalTypes.Decimal) schema.getLogicalType();
+        BigDecimal bigDecimal = PreciseValues.toDecimal( valueMeta.getBigNumber( value ), decimal.getPrecision(),
+          decimal.getScale(), valueMeta.getName() );
+        return ByteBuffer.wrap( bigDecimal.unscaledValue().toByteArray() );
+      case DATE:
+        Instant instant = Instant.ofEpochMilli( valueMeta.getDate( value ).getTime() );
+        return (int) instant.atZone( ZoneId.systemDefault() ).toLocalDate().toEpochDay();
+      case TIMESTAMP_MILLIS:
+        return valueMeta.getDate( value ).getTime();
+      case TIMESTAMP_MICROS:
+        // keep the nanos of an incoming timestamp, the value meta may hand out a plain date
+        Date date = value instanceof Timestamp ? (Date) value : valueMeta.getDate( value );
+        return PreciseValues.timestampToEpoch( date, TimeUnit.MICROSECONDS );
+      default:
+        throw new IllegalArgumentException( "Avro type " + type.getName() + " cannot be written" );
+    }
+  }
+
+  private static byte[] toBytes( Object datum ) {
+    if ( datum instanceof ByteBuffer ) {
+      ByteBuffer buffer = ( (ByteBuffer) datum ).duplicate();
+      byte[] bytes = new byte[ buffer.remaining() ];
+      buffer.get( bytes );
+      return bytes;
+    }
+    if ( datum instanceof GenericFixed ) {
+      byte[] bytes = ( (GenericFixed) datum ).bytes();
+      return Arrays.copyOf( bytes, bytes.length );
+    }
+    return (byte[]) datum;
+  }
+}
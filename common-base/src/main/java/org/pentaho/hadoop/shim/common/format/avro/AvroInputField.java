@@ -0,0 +1,43 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.pentaho.di.core.row.value.ValueMetaFactory;
+import org.pentaho.hadoop.shim.api.format.AvroSpec.DataType;
+import org.pentaho.hadoop.shim.api.format.IAvroInputField;
+import org.pentaho.hadoop.shim.common.format.BaseFormatInputField;
+
+public class AvroInputField extends BaseFormatInputField implements IAvroInputField {
+  @Override
+  public DataType getAvroType() {
+    return DataType.getDataType( getFormatType() );
+  }
+
+  @Override
+  public void setAvroType( DataType avroType ) {
+    setFormatType( avroType.getId() );
+  }
+
+  public void setAvroType( String avroType ) {
+    for ( DataType tmpType : DataType.values() ) {
+      if ( tmpType.getName().equalsIgnoreCase( avroType ) ) {
+        setFormatType( tmpType.getId() );
+        break;
+      }
+    }
+  }
+
+  public String getTypeDesc() {
+    return ValueMetaFactory.getValueMetaName( getPentahoType() );
+  }
+}
@@ -0,0 +1,49 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.hadoop.fs.Path;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+
+/**
+ * Byte range of an Avro container file. The range is read from the first sync marker after {@link #getStart()} up
+ * to the block containing the sync marker at the end of the range.
+ */
+public class AvroInputSplit implements IPentahoInputSplit {
+  private final Path path;
+  private final long start;
+  private final long length;
+
+  public AvroInputSplit( Path path, long start, long length ) {
+    this.path = path;
+    this.start = start;
+    this.length = length;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  @Override
+  public String toString() {
+    return path + ":" + start + "+" + length;
+  }
+}
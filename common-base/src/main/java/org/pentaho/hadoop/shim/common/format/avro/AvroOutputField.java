@@ -0,0 +1,54 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.pentaho.hadoop.shim.api.format.AvroSpec;
+import org.pentaho.hadoop.shim.api.format.IAvroOutputField;
+import org.pentaho.hadoop.shim.common.format.BaseFormatOutputField;
+
+public class AvroOutputField extends BaseFormatOutputField implements IAvroOutputField {
+  @Override
+  public AvroSpec.DataType getAvroType() {
+    return AvroSpec.DataType.getDataType( formatType );
+  }
+
+  @Override
+  public void setFormatType( AvroSpec.DataType avroType ) {
+    this.formatType = avroType.getId();
+  }
+
+  @Override
+  public void setFormatType( int formatType ) {
+    for ( AvroSpec.DataType avroType : AvroSpec.DataType.values() ) {
+      if ( avroType.getId() == formatType ) {
+        this.formatType = formatType;
+      }
+    }
+  }
+
+  public void setFormatType( String typeName ) {
+    try {
+      setFormatType( Integer.parseInt( typeName ) );
+    } catch ( NumberFormatException nfe ) {
+      for ( AvroSpec.DataType avroType : AvroSpec.DataType.values() ) {
+        if ( avroType.getName().equals( typeName ) ) {
+          this.formatType = avroType.getId();
+        }
+      }
+    }
+  }
+
+  public boolean isDecimalType() {
+    return getAvroType() == AvroSpec.DataType.DECIMAL;
+  }
+}
@@ -0,0 +1,88 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.mapred.FsInput;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.pentaho.hadoop.shim.api.format.IAvroInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.common.format.FormatMetadataCache;
+import org.pentaho.hadoop.shim.common.format.InputSampler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Block access for the {@link InputSampler}. The blocks of a file are listed by seeking from block header to block
+ * header and kept in the {@link FormatMetadataCache}, a block is read by a record reader whose split starts at the
+ * sync marker in front of the block.
+ */
+public class AvroSampler {
+
+  static final String BLOCKS_CACHE_KIND = "avro.blocks";
+
+  private AvroSampler() {
+    // static methods only
+  }
+
+  /**
+   * @return the blocks of the file, their bytes are the whole stored blocks since Avro stores rows and not columns
+   */
+  public static List<InputSampler.Unit> listBlocks( Configuration conf, FileStatus file ) throws IOException {
+    return FormatMetadataCache.getInstance().get( BLOCKS_CACHE_KIND, file, () -> {
+      Path path = file.getPath();
+      long offset;
+      try ( DataFileReader<GenericRecord> reader = new DataFileReader<>( new FsInput( path, conf ),
+        new GenericDatumReader<>() ) ) {
+        // the sync marker closing the header is found first, the first block follows it
+        reader.sync( 0 );
+        offset = reader.previousSync();
+      }
+      List<InputSampler.Unit> blocks = new ArrayList<>();
+      try ( FSDataInputStream in = path.getFileSystem( conf ).open( path ) ) {
+        // the direct decoder reads no byte ahead, so the stream position is right after the header fields
+        BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder( in, null );
+        int index = 0;
+        while ( offset < file.getLen() ) {
+          in.seek( offset );
+          long rows = decoder.readLong();
+          long size = decoder.readLong();
+          long length = in.getPos() + size + DataFileConstants.SYNC_SIZE - offset;
+          blocks.add( new InputSampler.Unit( file, index++, offset, length, rows, length ) );
+          offset += length;
+        }
+      }
+      return Collections.unmodifiableList( blocks );
+    } );
+  }
+
+  /**
+   * The split of the block starts at the sync marker in front of it, and ends before the sync marker at its end.
+   */
+  public static IPentahoRecordReader readBlock( Configuration conf, List<? extends IAvroInputField> inputFields,
+                                               InputSampler.Unit block ) throws IOException {
+    return new PentahoAvroRecordReader( new AvroInputSplit( block.getFile().getPath(),
+      block.getOffset() - DataFileConstants.SYNC_SIZE, block.getLength() ), conf, inputFields );
+  }
+}
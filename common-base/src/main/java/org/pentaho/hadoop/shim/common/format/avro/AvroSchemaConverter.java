@@ -0,0 +1,168 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.JsonProperties;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.pentaho.hadoop.shim.api.format.AvroSpec;
+import org.pentaho.hadoop.shim.api.format.AvroSpec.DataType;
+import org.pentaho.hadoop.shim.api.format.IAvroInputField;
+import org.pentaho.hadoop.shim.api.format.IAvroOutputField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps between the fields of an Avro record schema and the Pentaho field definitions. Nullable fields are written
+ * as a union of {@code null} and the field type, which is also the only union understood on read.
+ */
+public class AvroSchemaConverter {
+
+  public Schema buildSchema( List<? extends IAvroOutputField> fields, String recordName, String namespace ) {
+    List<Schema.Field> avroFields = new ArrayList<>( fields.size() );
+    for ( IAvroOutputField field : fields ) {
+      Schema fieldSchema = createSchema( field );
+      if ( field.getAllowNull() ) {
+        Schema nullable = Schema.createUnion( Arrays.asList( Schema.create( Schema.Type.NULL ), fieldSchema ) );
+        avroFields.add( new Schema.Field( field.getFormatFieldName(), nullable, null, JsonProperties.NULL_VALUE ) );
+      } else {
+        avroFields.add( new Schema.Field( field.getFormatFieldName(), fieldSchema, null, (Object) null ) );
+      }
+    }
+    Schema record = Schema.createRecord( recordName, null, namespace, false );
+    record.setFields( avroFields );
+    return record;
+  }
+
+  /**
+   * @return non null schema of the field as written to the file
+   */
+  Schema createSchema( IAvroOutputField field ) {
+    DataType type = field.getAvroType();
+    switch ( type ) {
+      case BOOLEAN:
+        return Schema.create( Schema.Type.BOOLEAN );
+      case INTEGER:
+        return Schema.create( Schema.Type.INT );
+      case LONG:
+        return Schema.create( Schema.Type.LONG );
+      case FLOAT:
+        return Schema.create( Schema.Type.FLOAT );
+      case DOUBLE:
+        return Schema.create( Schema.Type.DOUBLE );
+      case BYTES:
+        return Schema.create( Schema.Type.BYTES );
+      case STRING:
+        return Schema.create( Schema.Type.STRING );
+      case DECIMAL:
+        int precision = field.getPrecision() > 0 ? field.getPrecision() : AvroSpec.DEFAULT_DECIMAL_PRECISION;
+        int scale = field.getPrecision() > 0 ? field.getScale() : AvroSpec.DEFAULT_DECIMAL_SCALE;
+        return LogicalTypes.decimal( precision, scale ).addToSchema( Schema.create( Schema.Type.BYTES ) );
+      case DATE:
+        return LogicalTypes.date().addToSchema( Schema.create( Schema.Type.INT ) );
+      case TIMESTAMP_MILLIS:
+        return LogicalTypes.timestampMillis().addToSchema( Schema.create( Schema.Type.LONG ) );
+      case TIMESTAMP_MICROS:
+        return LogicalTypes.timestampMicros().addToSchema( Schema.create( Schema.Type.LONG ) );
+      default:
+        throw new IllegalArgumentException(
+          "Avro type " + type.getName() + " of field " + field.getFormatFieldName() + " cannot be written" );
+    }
+  }
+
+  /**
+   * Builds the input fields of a record schema. Fields without a Pentaho counterpart are skipped.
+   */
+  public List<IAvroInputField> buildInputFields( Schema recordSchema ) {
+    List<IAvroInputField> inputFields = new ArrayList<>();
+    for ( Schema.Field field : recordSchema.getFields() ) {
+      Schema fieldSchema = unwrapNullable( field.schema() );
+      DataType type = fieldSchema == null ? null : getDataType( fieldSchema );
+      if ( type == null ) {
+        continue;
+      }
+      AvroInputField inputField = new AvroInputField();
+      inputField.setFormatFieldName( field.name() );
+      inputField.setPentahoFieldName( field.name() );
+      inputField.setAvroType( type );
+      inputField.setPentahoType( type.getPdiType() );
+      if ( type == DataType.DECIMAL ) {
+        LogicalTypes.Decimal decimal = (LogicalTypes.Decimal) fieldSchema.getLogicalType();
+        inputField.setPrecision( decimal.getPrecision() );
+        inputField.setScale( decimal.getScale() );
+      }
+      inputFields.add( inputField );
+    }
+    return inputFields;
+  }
+
+  /**
+   * @return the schema itself, the non null branch of a {@code [null, T]} union or null for any other union
+   */
+  static Schema unwrapNullable( Schema schema ) {
+    if ( schema.getType() != Schema.Type.UNION ) {
+      return schema;
+    }
+    List<Schema> types = schema.getTypes();
+    if ( types.size() != 2 ) {
+      return null;
+    }
+    if ( types.get( 0 ).getType() == Schema.Type.NULL ) {
+      return types.get( 1 );
+    }
+    if ( types.get( 1 ).getType() == Schema.Type.NULL ) {
+      return types.get( 0 );
+    }
+    return null;
+  }
+
+  /**
+   * @return the type of a non union schema, or null when it has no Pentaho counterpart. Unknown logical types are
+   * read as their underlying type.
+   */
+  static DataType getDataType( Schema schema ) {
+    LogicalType logicalType = schema.getLogicalType();
+    if ( logicalType != null ) {
+      for ( DataType type : DataType.values() ) {
+        if ( logicalType.getName().equals( type.getLogicalType() ) ) {
+          return type;
+        }
+      }
+    }
+    switch ( schema.getType() ) {
+      case BOOLEAN:
+        return DataType.BOOLEAN;
+      case INT:
+        return DataType.INTEGER;
+      case LONG:
+        return DataType.LONG;
+      case FLOAT:
+        return DataType.FLOAT;
+      case DOUBLE:
+        return DataType.DOUBLE;
+      case BYTES:
+        return DataType.BYTES;
+      case STRING:
+        return DataType.STRING;
+      case ENUM:
+        return DataType.ENUM;
+      case FIXED:
+        return DataType.FIXED;
+      default:
+        return null;
+    }
+  }
+}
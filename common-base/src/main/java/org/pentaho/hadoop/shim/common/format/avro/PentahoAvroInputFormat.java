@@ -0,0 +1,235 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.FsInput;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.DiscoveredSchema;
+import org.pentaho.hadoop.shim.api.format.IAvroInputField;
+import org.pentaho.hadoop.shim.api.format.IFormatStatistics;
+import org.pentaho.hadoop.shim.api.format.IPentahoAvroInputFormat;
+import org.pentaho.hadoop.shim.api.format.ReadAheadOptions;
+import org.pentaho.hadoop.shim.api.format.SamplingOptions;
+import org.pentaho.hadoop.shim.api.format.SchemaDiscoveryOptions;
+import org.pentaho.hadoop.shim.common.format.FormatMetadataCache;
+import org.pentaho.hadoop.shim.common.format.FormatStatistics;
+import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.InputSampler;
+import org.pentaho.hadoop.shim.common.format.ReadAheadFileSystem;
+import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
+import org.pentaho.hadoop.shim.common.format.SchemaDiscovery;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads Avro container files. Files are cut into byte ranges of {@link #setSplitSize(long)} bytes which are aligned
+ * to the sync markers of the file by the record reader, see {@link AvroInputSplit}.
+ */
+public class PentahoAvroInputFormat extends HadoopFormatBase implements IPentahoAvroInputFormat {
+
+  protected static final String NOT_NULL_MSG = "filename and inputfields must not be null";
+  static final String SCHEMA_CACHE_KIND = "avro.schema";
+
+  protected String fileName;
+  protected List<? extends IAvroInputField> inputFields;
+  protected long splitSize;
+
+  protected Configuration conf;
+
+  public PentahoAvroInputFormat( NamedCluster namedCluster ) {
+    conf = inClassloader( () -> createConfigurationWithClassLoader( namedCluster, getClass().getClassLoader() ) );
+  }
+
+  @Override
+  public List<IPentahoInputSplit> getSplits() {
+    requireNonNull( fileName, NOT_NULL_MSG );
+    return inClassloader( () -> {
+      List<IPentahoInputSplit> splits = new ArrayList<>();
+      for ( FileStatus file : listFiles() ) {
+        long length = file.getLen();
+        if ( splitSize <= 0 || length <= splitSize ) {
+          splits.add( new AvroInputSplit( file.getPath(), 0, length ) );
+          continue;
+        }
+        for ( long start = 0; start < length; start += splitSize ) {
+          splits.add( new AvroInputSplit( file.getPath(), start, Math.min( splitSize, length - start ) ) );
+        }
+      }
+      return splits;
+    } );
+  }
+
+  @Override
+  public IPentahoRecordReader createRecordReader( IPentahoInputSplit split ) {
+    requireNonNull( split, "split must not be null, use getSplits()" );
+    requireNonNull( inputFields, NOT_NULL_MSG );
+    return inClassloader( () -> ReadAheadFileSystem.openReader( conf,
+      readConf -> new PentahoAvroRecordReader( (AvroInputSplit) split, readConf, inputFields ) ) );
+  }
+
+  /**
+   * Samples the blocks of {@link #fileName}, or of the files below it when it is a directory, see {@link AvroSampler}.
+   */
+  @Override
+  public IPentahoRecordReader createSampleReader( SamplingOptions options ) {
+    requireNonNull( fileName, NOT_NULL_MSG );
+    requireNonNull( inputFields, NOT_NULL_MSG );
+    return inClassloader( () -> ReadAheadFileSystem.openReader( conf, readConf -> {
+      InputSampler sampler = new InputSampler( file -> AvroSampler.listBlocks( conf, file ),
+        block -> AvroSampler.readBlock( readConf, inputFields, block ), options );
+      return sampler.sample( InputSampler.listFiles( conf, Collections.singletonList( new Path( fileName ) ),
+        file -> true ) );
+    } ) );
+  }
+
+  /**
+   * Avro files keep no column statistics, only the row and file counts are known. The rows are counted from the block
+   * headers, which reads the files but decodes no record.
+   */
+  @Override
+  public IFormatStatistics readStatistics() {
+    requireNonNull( fileName, NOT_NULL_MSG );
+    return inClassloader( () -> {
+      FormatStatistics statistics = new FormatStatistics();
+      for ( FileStatus file : listFiles() ) {
+        statistics.merge( countRows( new AvroInputSplit( file.getPath(), 0, file.getLen() ) ) );
+      }
+      return statistics;
+    } );
+  }
+
+  /**
+   * Counts the rows of the blocks the record reader of the split reads, see {@link #readStatistics()}.
+   */
+  @Override
+  public IFormatStatistics readStatistics( IPentahoInputSplit split ) {
+    requireNonNull( split, "split must not be null, use getSplits()" );
+    return inClassloader( () -> countRows( (AvroInputSplit) split ) );
+  }
+
+  private FormatStatistics countRows( AvroInputSplit split ) throws IOException {
+    FormatStatistics statistics = new FormatStatistics();
+    statistics.addFile( split.getPath().toString() );
+    try ( DataFileReader<GenericRecord> reader = new DataFileReader<>(
+      new FsInput( split.getPath(), conf ), new GenericDatumReader<>() ) ) {
+      reader.sync( split.getStart() );
+      long end = split.getStart() + split.getLength();
+      while ( reader.hasNext() && !reader.pastSync( end ) ) {
+        statistics.addRows( reader.getBlockCount() );
+        reader.nextBlock();
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * Reads the fields of the first file of {@link #fileName}. The schema is kept in the {@link FormatMetadataCache},
+   * the fields are built for every call since callers customize them.
+   */
+  @Override
+  public List<IAvroInputField> readSchema() {
+    requireNonNull( fileName, NOT_NULL_MSG );
+    return inClassloader( () -> {
+      return new AvroSchemaConverter().buildInputFields( readCachedSchema( listFiles().get( 0 ) ) );
+    } );
+  }
+
+  /**
+   * Merges the schemas of the Avro files below {@code path}, see {@link SchemaDiscovery}.
+   */
+  @Override
+  public DiscoveredSchema discoverSchema( String path, SchemaDiscoveryOptions options ) {
+    return inClassloader( () -> SchemaDiscovery.discover( path, conf, options, file -> true,
+      file -> inClassloader( () -> new AvroSchemaConverter().buildInputFields( readCachedSchema( file ) ) ) ) );
+  }
+
+  private Schema readCachedSchema( FileStatus fileStatus ) throws IOException {
+    return FormatMetadataCache.getInstance().get( SCHEMA_CACHE_KIND, fileStatus, () -> {
+      try ( DataFileReader<GenericRecord> reader = new DataFileReader<>(
+        new FsInput( fileStatus.getPath(), conf ), new GenericDatumReader<>() ) ) {
+        return reader.getSchema();
+      }
+    } );
+  }
+
+  /**
+   * @return the file itself or the visible files of a directory in name order
+   */
+  private List<FileStatus> listFiles() throws IOException {
+    Path path = new Path( fileName );
+    FileSystem fs = FileSystem.get( path.toUri(), conf );
+    if ( !fs.exists( path ) ) {
+      throw new NoSuchFileException( fileName );
+    }
+    FileStatus fileStatus = fs.getFileStatus( path );
+    if ( !fileStatus.isDirectory() ) {
+      return Arrays.asList( fileStatus );
+    }
+    List<FileStatus> files = new ArrayList<>();
+    for ( FileStatus child : fs.listStatus( path, file -> !file.getName().startsWith( "." )
+      && !file.getName().startsWith( "_" ) ) ) {
+      if ( child.isFile() ) {
+        files.add( child );
+      }
+    }
+    if ( files.isEmpty() ) {
+      throw new NoSuchFileException( fileName );
+    }
+    files.sort( ( a, b ) -> a.getPath().getName().compareTo( b.getPath().getName() ) );
+    return files;
+  }
+
+  /**
+   * Set schema from user's metadata
+   * <p>
+   * This schema will be used instead of schema from {@link #fileName} since we allow user to override pentaho filed
+   * name
+   */
+  @Override
+  public void setSchema( List<IAvroInputField> inputFields ) {
+    this.inputFields = inputFields;
+  }
+
+  @Override
+  public void setInputFile( String fileName ) {
+    S3NCredentialUtils util = new S3NCredentialUtils();
+    util.applyS3CredentialsToHadoopConfigurationIfNecessary( fileName, conf );
+    this.fileName = S3NCredentialUtils.scrubFilePathIfNecessary( fileName );
+    inClassloader( () -> ReadAheadFileSystem.addFile( conf, this.fileName ) );
+  }
+
+  @Override
+  public void setReadAhead( ReadAheadOptions options ) {
+    inClassloader( () -> ReadAheadFileSystem.setOptions( conf, options ) );
+  }
+
+  @Override
+  public void setSplitSize( long splitSize ) {
+    this.splitSize = splitSize;
+  }
+}
@@ -0,0 +1,146 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.util.StringUtil;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IAvroOutputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoAvroOutputFormat;
+import org.pentaho.hadoop.shim.api.format.org.pentaho.hadoop.shim.pvfs.api.PvfsHadoopBridgeFileSystemExtension;
+import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.PendingOutputFile;
+import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.List;
+
+/**
+ * Writes a single Avro container file with a record schema built from the output fields.
+ */
+public class PentahoAvroOutputFormat extends HadoopFormatBase implements IPentahoAvroOutputFormat {
+
+  protected static final LogChannelInterface logger = LogChannel.GENERAL;
+
+  protected String outputFilename;
+  protected Configuration conf;
+  protected COMPRESSION compression = COMPRESSION.UNCOMPRESSED;
+  protected String namespace;
+  protected String recordName = DEFAULT_RECORD_NAME;
+  protected int syncInterval = DataFileConstants.DEFAULT_SYNC_INTERVAL;
+  protected List<? extends IAvroOutputField> fields;
+  private boolean override;
+
+  public PentahoAvroOutputFormat() {
+    this( null );
+  }
+
+  public PentahoAvroOutputFormat( NamedCluster namedCluster ) {
+    conf = inClassloader( () -> createConfigurationWithClassLoader( namedCluster, getClass().getClassLoader() ) );
+  }
+
+  @Override
+  public IPentahoRecordWriter createRecordWriter() {
+    logger.logDetailed( "Initializing Avro Writer" );
+    if ( fields == null ) {
+      throw new IllegalStateException( "Invalid state.  The fields to write are null" );
+    }
+    if ( outputFilename == null ) {
+      throw new IllegalStateException( "Invalid state.  The outputFileName is null" );
+    }
+    Schema schema = new AvroSchemaConverter().buildSchema( fields, recordName, namespace );
+    // fails for codecs the Avro library on the classpath does not provide, e.g. zstandard before Avro 1.9
+    CodecFactory codec = CodecFactory.fromString( compression.getCodecName() );
+
+    return inClassloader( () -> {
+      Path outputFile = new Path( outputFilename );
+      FileSystem fs = FileSystem.get( outputFile.toUri(), conf );
+      PendingOutputFile pendingFile = new PendingOutputFile( fs, outputFile );
+      DataFileWriter<GenericRecord> writer = new DataFileWriter<>( new GenericDatumWriter<GenericRecord>( schema ) );
+      try {
+        writer.setCodec( codec );
+        writer.setSyncInterval( syncInterval );
+        writer.create( schema, fs.create( pendingFile.getTempPath(), false ) );
+      } catch ( IOException | RuntimeException e ) {
+        pendingFile.abort();
+        throw e;
+      }
+      return new PentahoAvroRecordWriter( writer, schema, fields, pendingFile, override );
+    } );
+  }
+
+  @Override
+  public void setFields( List<? extends IAvroOutputField> fields ) {
+    this.fields = fields;
+  }
+
+  @Override
+  public void setOutputFile( String file, boolean override ) throws Exception {
+    this.outputFilename = S3NCredentialUtils.scrubFilePathIfNecessary( file );
+    this.override = override;
+    S3NCredentialUtils util = new S3NCredentialUtils();
+    util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, conf );
+    Path outputFile = new Path( outputFilename );
+    FileSystem fs = FileSystem.get( outputFile.toUri(), conf );
+    if ( fs.exists( outputFile ) ) {
+      if ( override ) {
+        fs.delete( outputFile, true );
+      } else {
+        throw new FileAlreadyExistsException( file );
+      }
+    }
+  }
+
+  @Override
+  public void setCompression( COMPRESSION compression ) {
+    this.compression = compression == null ? COMPRESSION.UNCOMPRESSED : compression;
+  }
+
+  @Override
+  public void setNameSpace( String namespace ) {
+    this.namespace = namespace;
+  }
+
+  @Override
+  public void setRecordName( String recordName ) {
+    this.recordName = recordName == null ? DEFAULT_RECORD_NAME : recordName;
+  }
+
+  @Override
+  public void setSyncInterval( int syncInterval ) {
+    this.syncInterval = syncInterval;
+  }
+
+  public String generateAlias( String pvfsPath ) {
+    return inClassloader( () -> {
+        FileSystem fs = FileSystem.get( StringUtil.toUri( pvfsPath ), conf );
+        if ( fs instanceof PvfsHadoopBridgeFileSystemExtension ) {
+          return ( ( PvfsHadoopBridgeFileSystemExtension ) fs ).generateAlias( pvfsPath );
+        } else {
+          return null;
+        }
+      }
+    );
+  }
+}
@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.FsInput;
+import org.apache.hadoop.conf.Configuration;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaConversionException;
+import org.pentaho.di.core.row.value.ValueMetaConverter;
+import org.pentaho.di.core.row.value.ValueMetaFactory;
+import org.pentaho.hadoop.shim.api.format.AvroSpec.DataType;
+import org.pentaho.hadoop.shim.api.format.IAvroInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the records of one {@link AvroInputSplit}. The rows share one row meta, built from the requested fields.
+ */
+public class PentahoAvroRecordReader implements IPentahoRecordReader {
+  private final DataFileReader<GenericRecord> reader;
+  private final long end;
+  private final RowMetaInterface rowMeta = new RowMeta();
+  private final int[] positions;
+  private final DataType[] types;
+  private final Schema[] schemas;
+  private final ValueMetaConverter[] converters;
+  private GenericRecord record;
+
+  public PentahoAvroRecordReader( AvroInputSplit split, Configuration conf,
+                                  List<? extends IAvroInputField> inputFields ) throws IOException {
+    reader = new DataFileReader<>( new FsInput( split.getPath(), conf ), new GenericDatumReader<>() );
+    try {
+      reader.sync( split.getStart() );
+      end = split.getStart() + split.getLength();
+
+      Schema fileSchema = reader.getSchema();
+      positions = new int[ inputFields.size() ];
+      types = new DataType[ inputFields.size() ];
+      schemas = new Schema[ inputFields.size() ];
+      converters = new ValueMetaConverter[ inputFields.size() ];
+      for ( int i = 0; i < inputFields.size(); i++ ) {
+        mapField( i, inputFields.get( i ), fileSchema );
+      }
+    } catch ( IOException | RuntimeException e ) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  private void mapField( int index, IAvroInputField inputField, Schema fileSchema ) {
+    Schema.Field field = fileSchema.getField( inputField.getFormatFieldName() );
+    if ( field == null ) {
+      throw new IllegalArgumentException( "Field " + inputField.getFormatFieldName()
+        + " does not exist in the Avro file.  Please use the getFields button" );
+    }
+    Schema schema = AvroSchemaConverter.unwrapNullable( field.schema() );
+    DataType type = schema == null ? null : AvroSchemaConverter.getDataType( schema );
+    if ( type == null ) {
+      throw new IllegalArgumentException(
+        "Field " + inputField.getFormatFieldName() + " has the unsupported Avro type " + field.schema() );
+    }
+    positions[ index ] = field.pos();
+    types[ index ] = type;
+    schemas[ index ] = schema;
+
+    String stringFormat = inputField.getStringFormat();
+    boolean hasFormat = stringFormat != null && !stringFormat.trim().isEmpty();
+    if ( type.getPdiType() != inputField.getPentahoType() ) {
+      converters[ index ] = new ValueMetaConverter();
+      converters[ index ].setDatePattern(
+        new SimpleDateFormat( hasFormat ? stringFormat : ValueMetaBase.DEFAULT_DATE_FORMAT_MASK ) );
+    }
+    try {
+      ValueMetaInterface valueMeta =
+        ValueMetaFactory.createValueMeta( inputField.getPentahoFieldName(), inputField.getPentahoType() );
+      if ( hasFormat ) {
+        valueMeta.setConversionMask( stringFormat );
+      }
+      rowMeta.addValueMeta( valueMeta );
+    } catch ( KettlePluginException e ) {
+      throw new IllegalArgumentException( "Unable to create field " + inputField.getPentahoFieldName(), e );
+    }
+  }
+
+  private RowMetaAndData convert( GenericRecord avroRecord ) {
+    Object[] data = new Object[ positions.length ];
+    for ( int i = 0; i < positions.length; i++ ) {
+      Object value = AvroConverter.toPentaho( types[ i ], schemas[ i ], avroRecord.get( positions[ i ] ) );
+      if ( converters[ i ] != null && value != null ) {
+        try {
+          value = converters[ i ].convertFromSourceToTargetDataType( types[ i ].getPdiType(),
+            rowMeta.getValueMeta( i ).getType(), value );
+        } catch ( ValueMetaConversionException e ) {
+          throw new IllegalArgumentException( "Unable to convert field " + rowMeta.getValueMeta( i ).getName(), e );
+        }
+      }
+      data[ i ] = value;
+    }
+    return new RowMetaAndData( rowMeta, data );
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  @Override
+  public Iterator<RowMetaAndData> iterator() {
+    return new Iterator<RowMetaAndData>() {
+      @Override
+      public boolean hasNext() {
+        try {
+          return reader.hasNext() && !reader.pastSync( end );
+        } catch ( IOException e ) {
+          throw new IllegalStateException( "Unable to read Avro file", e );
+        }
+      }
+
+      @Override
+      public RowMetaAndData next() {
+        if ( !hasNext() ) {
+          throw new NoSuchElementException();
+        }
+        try {
+          record = reader.next( record );
+        } catch ( IOException e ) {
+          throw new IllegalStateException( "Unable to read Avro file", e );
+        }
+        return convert( record );
+      }
+    };
+  }
+}
@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.format.IAvroOutputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.common.format.PendingOutputFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes rows to the temporary file of a {@link PendingOutputFile}, which is renamed to its final name on
+ * {@link #commit()} and removed on {@link #abort()}.
+ */
+public class PentahoAvroRecordWriter implements IPentahoRecordWriter {
+  private final DataFileWriter<GenericRecord> writer;
+  private final Schema schema;
+  private final List<? extends IAvroOutputField> fields;
+  private final Schema[] fieldSchemas;
+  private final PendingOutputFile pendingFile;
+  private final boolean overwrite;
+  private boolean failed;
+  private boolean finished;
+
+  /**
+   * @param writer    writer already created on the temporary file of {@code pendingFile}
+   * @param overwrite replace a file which appeared under the final name while writing instead of failing the commit
+   */
+  public PentahoAvroRecordWriter( DataFileWriter<GenericRecord> writer, Schema schema,
+                                  List<? extends IAvroOutputField> fields, PendingOutputFile pendingFile,
+                                  boolean overwrite ) {
+    this.writer = writer;
+    this.schema = schema;
+    this.fields = fields;
+    this.pendingFile = pendingFile;
+    this.overwrite = overwrite;
+    fieldSchemas = new Schema[ fields.size() ];
+    for ( int i = 0; i < fields.size(); i++ ) {
+      fieldSchemas[ i ] = AvroSchemaConverter.unwrapNullable( schema.getFields().get( i ).schema() );
+    }
+  }
+
+  @Override
+  public void write( RowMetaAndData row ) throws Exception {
+    if ( finished ) {
+      throw new IllegalStateException( "Avro writer is already closed" );
+    }
+    try {
+      GenericRecord avroRecord = new GenericData.Record( schema );
+      for ( int i = 0; i < fields.size(); i++ ) {
+        avroRecord.put( i, convert( fields.get( i ), fieldSchemas[ i ], row ) );
+      }
+      writer.append( avroRecord );
+    } catch ( Exception e ) {
+      failed = true;
+      throw e;
+    }
+  }
+
+  private static Object convert( IAvroOutputField field, Schema fieldSchema, RowMetaAndData row )
+    throws KettleValueException {
+    int index = row.getRowMeta().indexOfValue( field.getPentahoFieldName() );
+    if ( index < 0 ) {
+      throw new IllegalArgumentException( "Field " + field.getPentahoFieldName() + " does not exist in the row" );
+    }
+    ValueMetaInterface valueMeta = row.getValueMeta( index );
+    Object value = row.getData()[ index ];
+    if ( value == null && field.getDefaultValue() != null && !field.getDefaultValue().isEmpty() ) {
+      valueMeta = new ValueMetaString( field.getPentahoFieldName() );
+      value = field.getDefaultValue();
+    }
+    if ( value == null ) {
+      if ( !field.getAllowNull() ) {
+        throw new IllegalArgumentException( "Field " + field.getPentahoFieldName() + " does not allow null values" );
+      }
+      return null;
+    }
+    return AvroConverter.toAvro( field.getAvroType(), fieldSchema, valueMeta, value );
+  }
+
+  /**
+   * Commits the file, or aborts it when a write failed, so that a partially written file never gets the final name.
+   */
+  @Override
+  public void close() throws IOException {
+    if ( finished ) {
+      return;
+    }
+    if ( failed ) {
+      abort();
+    } else {
+      commit();
+    }
+  }
+
+  @Override
+  public void commit() throws IOException {
+    if ( finished ) {
+      throw new IllegalStateException( "Avro writer is already closed" );
+    }
+    if ( failed ) {
+      abort();
+      throw new IOException( "Output is not committed since writing a row failed" );
+    }
+    finished = true;
+    try {
+      writer.close();
+    } catch ( IOException | RuntimeException e ) {
+      pendingFile.abort();
+      throw e;
+    }
+    pendingFile.commit( overwrite );
+  }
+
+  @Override
+  public void abort() {
+    if ( finished ) {
+      return;
+    }
+    finished = true;
+    try {
+      writer.close();
+    } catch ( Exception ignored ) {
+      // the output is discarded anyway
+    }
+    pendingFile.abort();
+  }
+}
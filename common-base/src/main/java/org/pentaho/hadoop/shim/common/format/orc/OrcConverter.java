@@ -31,6 +31,7 @@ import org.pentaho.di.core.row.value.ValueMetaConversionException;
 import org.pentaho.di.core.row.value.ValueMetaConverter;
 import org.pentaho.hadoop.shim.api.format.IOrcInputField;
 
+import java.math.BigDecimal;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.sql.Timestamp;
@@ -74,17 +75,22 @@ public class OrcConverter {
           convertFromSourceToTargetDataType( columnVector, currentBatchRow, orcField.getPentahoType() );
 
         Object convertToSchemaValue = null;
-        try {
-          String dateFormatStr = inputField.getStringFormat();
-          if ( ( dateFormatStr == null ) || ( dateFormatStr.trim().length() == 0 ) ) {
-            dateFormatStr = ValueMetaBase.DEFAULT_DATE_FORMAT_MASK;
+        if ( orcField.getPentahoType() == inputField.getPentahoType() && isExactType( inputField.getPentahoType() ) ) {
+          // the generic conversion would drop sub millisecond digits and the scale
+          convertToSchemaValue = orcToPentahoValue;
+        } else {
+          try {
+            String dateFormatStr = inputField.getStringFormat();
+            if ( ( dateFormatStr == null ) || ( dateFormatStr.trim().length() == 0 ) ) {
+              dateFormatStr = ValueMetaBase.DEFAULT_DATE_FORMAT_MASK;
+            }
+            valueMetaConverter.setDatePattern( new SimpleDateFormat( dateFormatStr ) );
+            convertToSchemaValue = valueMetaConverter
+              .convertFromSourceToTargetDataType( orcField.getPentahoType(), inputField.getPentahoType(),
+                orcToPentahoValue );
+          } catch ( ValueMetaConversionException e ) {
+            logger.error( e );
           }
-          valueMetaConverter.setDatePattern( new SimpleDateFormat( dateFormatStr ) );
-          convertToSchemaValue = valueMetaConverter
-            .convertFromSourceToTargetDataType( orcField.getPentahoType(), inputField.getPentahoType(),
-              orcToPentahoValue );
-        } catch ( ValueMetaConversionException e ) {
-          logger.error( e );
         }
         rowMetaAndData.addValue( inputField.getPentahoFieldName(), inputField.getPentahoType(), convertToSchemaValue );
         String stringFormat = inputField.getStringFormat();
@@ -128,7 +134,10 @@ public class OrcConverter {
 
       case ValueMetaInterface.TYPE_BIGNUMBER:
         HiveDecimalWritable obj = ( (DecimalColumnVector) columnVector ).vector[ indexToLookup ];
-        return obj.getHiveDecimal().bigDecimalValue();
+        // HiveDecimal drops trailing zeros, the column scale brings them back
+        BigDecimal decimal = obj.getHiveDecimal().bigDecimalValue();
+        int scale = ( (DecimalColumnVector) columnVector ).scale;
+        return decimal.scale() < scale ? decimal.setScale( scale ) : decimal;
 
       case ValueMetaInterface.TYPE_TIMESTAMP:
         Timestamp timestamp = new Timestamp( ( (TimestampColumnVector) columnVector ).time[ indexToLookup ] );
@@ -158,6 +167,10 @@ public class OrcConverter {
     return null;
   }
 
+  private static boolean isExactType( int pentahoType ) {
+    return pentahoType == ValueMetaInterface.TYPE_TIMESTAMP || pentahoType == ValueMetaInterface.TYPE_BIGNUMBER;
+  }
+
   public IOrcInputField getFormatField( String formatFieldName, List<? extends IOrcInputField> fields ) {
     if ( formatFieldName == null || formatFieldName.trim().isEmpty() ) {
       return null;
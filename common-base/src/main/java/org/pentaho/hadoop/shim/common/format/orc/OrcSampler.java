@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.orc;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.orc.Reader;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.TypeDescription;
+import org.pentaho.hadoop.shim.api.format.IOrcInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.common.format.FormatMetadataCache;
+import org.pentaho.hadoop.shim.common.format.InputSampler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stripe access for the {@link InputSampler}. The stripes of a file are listed from its tail and kept in the
+ * {@link FormatMetadataCache}, a stripe is read with the range of the stripe and the columns of the input fields.
+ */
+public class OrcSampler {
+
+  static final String STRIPES_CACHE_KIND = "orc.stripes";
+
+  private OrcSampler() {
+    // static methods only
+  }
+
+  /**
+   * @return the stripes of the file, their bytes are the whole stored stripes since the sizes of single columns are
+   * only known from the stripe footers
+   */
+  public static List<InputSampler.Unit> listStripes( Configuration conf, FileStatus file ) throws IOException {
+    return FormatMetadataCache.getInstance().get( STRIPES_CACHE_KIND, file, () -> {
+      try ( Reader reader = PentahoOrcRecordReader.getReader( file, conf ) ) {
+        List<InputSampler.Unit> stripes = new ArrayList<>();
+        int index = 0;
+        for ( StripeInformation stripe : reader.getStripes() ) {
+          stripes.add( new InputSampler.Unit( file, index++, stripe.getOffset(), stripe.getLength(),
+            stripe.getNumberOfRows(), stripe.getLength() ) );
+        }
+        return Collections.unmodifiableList( stripes );
+      }
+    } );
+  }
+
+  public static IPentahoRecordReader readStripe( Configuration conf, List<? extends IOrcInputField> inputFields,
+                                                 InputSampler.Unit stripe ) throws IOException {
+    Reader reader = PentahoOrcRecordReader.getReader( stripe.getFile(), conf );
+    try {
+      Reader.Options options = reader.options()
+        .range( stripe.getOffset(), stripe.getLength() )
+        .include( include( reader.getSchema(), inputFields ) );
+      return new PentahoOrcRecordReader( stripe.getFile().getPath().toString(), inputFields, reader, options ) {
+        @Override public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            reader.close();
+          }
+        }
+      };
+    } catch ( RuntimeException e ) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return the columns of the input fields including their nested columns, unknown fields are left to the record
+   * reader to report
+   */
+  static boolean[] include( TypeDescription schema, List<? extends IOrcInputField> inputFields ) {
+    boolean[] include = new boolean[ schema.getMaximumId() + 1 ];
+    include[ 0 ] = true;
+    List<String> names = schema.getFieldNames();
+    for ( IOrcInputField field : inputFields ) {
+      int index = field == null ? -1 : names.indexOf( field.getFormatFieldName() );
+      if ( index < 0 ) {
+        continue;
+      }
+      TypeDescription column = schema.getChildren().get( index );
+      for ( int id = column.getId(); id <= column.getMaximumId(); id++ ) {
+        include[ id ] = true;
+      }
+    }
+    return include;
+  }
+}
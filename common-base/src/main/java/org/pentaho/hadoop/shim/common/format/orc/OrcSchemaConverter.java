@@ -33,7 +33,12 @@ public class OrcSchemaConverter {
   }
 
   private void addStructField( TypeDescription typeDescription, IOrcOutputField field ) {
-    typeDescription.addField( field.getFormatFieldName(), determineOrcType( field.getOrcType() ) );
+    TypeDescription type = determineOrcType( field.getOrcType() );
+    if ( type.getCategory() == TypeDescription.Category.DECIMAL && field.getPrecision() > 0 ) {
+      // scale first, both setters check scale <= precision and the default scale is 10
+      type.withScale( field.getScale() ).withPrecision( field.getPrecision() );
+    }
+    typeDescription.addField( field.getFormatFieldName(), type );
   }
 
   private TypeDescription determineOrcType( OrcSpec.DataType dataType ) {
@@ -91,6 +96,10 @@ public class OrcSchemaConverter {
         inputField.setFormatType( formatType );
         inputField.setPentahoType( metaType );
         inputField.setPentahoFieldName( fieldName );
+        if ( subDescription.getCategory() == TypeDescription.Category.DECIMAL ) {
+          inputField.setPrecision( subDescription.getPrecision() );
+          inputField.setScale( subDescription.getScale() );
+        }
         inputFields.add( inputField );
       }
     }
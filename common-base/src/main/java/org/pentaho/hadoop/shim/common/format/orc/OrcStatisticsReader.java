@@ -0,0 +1,181 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.orc;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.orc.BooleanColumnStatistics;
+import org.apache.orc.ColumnStatistics;
+import org.apache.orc.DateColumnStatistics;
+import org.apache.orc.DecimalColumnStatistics;
+import org.apache.orc.DoubleColumnStatistics;
+import org.apache.orc.IntegerColumnStatistics;
+import org.apache.orc.Reader;
+import org.apache.orc.StringColumnStatistics;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.StripeStatistics;
+import org.apache.orc.TimestampColumnStatistics;
+import org.apache.orc.TypeDescription;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.common.format.FormatMetadataCache;
+import org.pentaho.hadoop.shim.common.format.FormatStatistics;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Builds {@link FormatStatistics} from the stripe statistics of ORC files, falling back to the file statistics for
+ * files written without them. Values are converted the way {@link OrcConverter} converts the column when reading rows.
+ */
+public class OrcStatisticsReader {
+
+  static final String STATISTICS_CACHE_KIND = "orc.statistics";
+
+  private OrcStatisticsReader() {
+    // static methods only
+  }
+
+  /**
+   * @return statistics shared through the {@link FormatMetadataCache}, merge them into another instance instead of
+   * modifying them
+   */
+  static FormatStatistics read( Configuration conf, FileStatus fileStatus ) throws IOException {
+    return FormatMetadataCache.getInstance().get( STATISTICS_CACHE_KIND, fileStatus, () -> {
+      try ( Reader reader = PentahoOrcRecordReader.getReader( fileStatus, conf ) ) {
+        return read( fileStatus.getPath().toString(), reader );
+      }
+    } );
+  }
+
+  static FormatStatistics read( String file, Reader reader ) throws IOException {
+    FormatStatistics statistics = new FormatStatistics();
+    statistics.addFile( file );
+    TypeDescription schema = reader.getSchema();
+    List<String> names = schema.getFieldNames();
+    List<TypeDescription> children = schema.getChildren() == null ? Collections.emptyList() : schema.getChildren();
+    for ( int i = 0; i < children.size(); i++ ) {
+      int pentahoType = pentahoType( children.get( i ) );
+      if ( pentahoType >= 0 ) {
+        statistics.column( names.get( i ), pentahoType );
+      }
+    }
+
+    List<StripeInformation> stripes = reader.getStripes();
+    List<StripeStatistics> stripeStatistics = reader.getStripeStatistics();
+    if ( stripeStatistics.size() == stripes.size() ) {
+      for ( int s = 0; s < stripes.size(); s++ ) {
+        add( statistics, names, children, stripes.get( s ).getNumberOfRows(),
+          stripeStatistics.get( s ).getColumnStatistics() );
+      }
+    } else {
+      add( statistics, names, children, reader.getNumberOfRows(), reader.getStatistics() );
+    }
+    return statistics;
+  }
+
+  private static void add( FormatStatistics statistics, List<String> names, List<TypeDescription> children, long rows,
+                           ColumnStatistics[] columnStatistics ) {
+    statistics.addRows( rows );
+    for ( int i = 0; i < children.size(); i++ ) {
+      TypeDescription type = children.get( i );
+      int pentahoType = pentahoType( type );
+      if ( pentahoType < 0 ) {
+        continue;
+      }
+      ColumnStatistics column = columnStatistics[ type.getId() ];
+      Object min = null;
+      Object max = null;
+      if ( column.getNumberOfValues() > 0 ) {
+        min = value( type, column, true );
+        max = value( type, column, false );
+      }
+      // top level columns have a value or a null in every row
+      statistics.column( names.get( i ), pentahoType ).add( rows, rows - column.getNumberOfValues(), min, max );
+    }
+  }
+
+  /**
+   * @return Pentaho type of a top level column, -1 for nested types which the input format does not read
+   */
+  static int pentahoType( TypeDescription type ) {
+    switch ( type.getCategory() ) {
+      case STRING:
+      case CHAR:
+      case VARCHAR:
+        return ValueMetaInterface.TYPE_STRING;
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+        return ValueMetaInterface.TYPE_INTEGER;
+      case FLOAT:
+      case DOUBLE:
+        return ValueMetaInterface.TYPE_NUMBER;
+      case DECIMAL:
+        return ValueMetaInterface.TYPE_BIGNUMBER;
+      case TIMESTAMP:
+        return ValueMetaInterface.TYPE_TIMESTAMP;
+      case DATE:
+        return ValueMetaInterface.TYPE_DATE;
+      case BOOLEAN:
+        return ValueMetaInterface.TYPE_BOOLEAN;
+      case BINARY:
+        return ValueMetaInterface.TYPE_BINARY;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * @return minimum or maximum as Pentaho value, null when the statistics do not have it, e.g. truncated strings
+   */
+  private static Object value( TypeDescription type, ColumnStatistics column, boolean minimum ) {
+    switch ( type.getCategory() ) {
+      case STRING:
+      case CHAR:
+      case VARCHAR:
+        StringColumnStatistics strings = (StringColumnStatistics) column;
+        return minimum ? strings.getMinimum() : strings.getMaximum();
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+        IntegerColumnStatistics integers = (IntegerColumnStatistics) column;
+        return minimum ? integers.getMinimum() : integers.getMaximum();
+      case FLOAT:
+      case DOUBLE:
+        DoubleColumnStatistics doubles = (DoubleColumnStatistics) column;
+        return minimum ? doubles.getMinimum() : doubles.getMaximum();
+      case DECIMAL:
+        DecimalColumnStatistics decimals = (DecimalColumnStatistics) column;
+        return minimum ? decimals.getMinimum().bigDecimalValue() : decimals.getMaximum().bigDecimalValue();
+      case TIMESTAMP:
+        TimestampColumnStatistics timestamps = (TimestampColumnStatistics) column;
+        return minimum ? timestamps.getMinimum() : timestamps.getMaximum();
+      case DATE:
+        DateColumnStatistics dates = (DateColumnStatistics) column;
+        LocalDate localDate =
+          LocalDate.ofEpochDay( minimum ? dates.getMinimumDayOfEpoch() : dates.getMaximumDayOfEpoch() );
+        return Date.from( localDate.atStartOfDay( ZoneId.systemDefault() ).toInstant() );
+      case BOOLEAN:
+        BooleanColumnStatistics booleans = (BooleanColumnStatistics) column;
+        return minimum ? booleans.getFalseCount() == 0 : booleans.getTrueCount() > 0;
+      default:
+        return null;
+    }
+  }
+}
@@ -13,14 +13,33 @@
 package org.pentaho.hadoop.shim.common.format.orc;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.orc.Reader;
 import org.apache.orc.TypeDescription;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.DiscoveredSchema;
+import org.pentaho.hadoop.shim.api.format.IFormatStatistics;
 import org.pentaho.hadoop.shim.api.format.IOrcInputField;
 import org.pentaho.hadoop.shim.api.format.IOrcMetaData;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.api.format.ReadAheadOptions;
+import org.pentaho.hadoop.shim.api.format.SamplingOptions;
+import org.pentaho.hadoop.shim.api.format.SchemaDiscoveryOptions;
+import org.pentaho.hadoop.shim.common.format.FormatMetadataCache;
+import org.pentaho.hadoop.shim.common.format.FormatStatistics;
 import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.InputSampler;
+import org.pentaho.hadoop.shim.common.format.PartitionColumnsRecordReader;
+import org.pentaho.hadoop.shim.common.format.ReadAheadFileSystem;
 import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
+import org.pentaho.hadoop.shim.common.format.SchemaDiscovery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static java.util.Objects.requireNonNull;
@@ -31,10 +50,12 @@ import static java.util.Objects.requireNonNull;
 public class PentahoOrcInputFormat extends HadoopFormatBase implements IPentahoOrcInputFormat {
 
   protected static final String NOT_NULL_MSG = "filename and inputfields must not be null";
+  static final String SCHEMA_CACHE_KIND = "orc.fields";
   protected String fileName;
   protected List<? extends IOrcInputField> inputFields;
 
   protected Configuration conf;
+  private List<String> partitionFields = Collections.emptyList();
 
   public PentahoOrcInputFormat( NamedCluster namedCluster ) {
     conf = inClassloader( () -> createConfigurationWithClassLoader( namedCluster, getClass().getClassLoader() ) );
@@ -44,14 +65,86 @@ public class PentahoOrcInputFormat extends HadoopFormatBase implements IPentahoO
   public IPentahoRecordReader createRecordReader( IPentahoInputSplit split ) {
     requireNonNull( fileName, NOT_NULL_MSG );
     requireNonNull( inputFields, NOT_NULL_MSG );
-    return inClassloader( () -> new PentahoOrcRecordReader( fileName, conf, inputFields ) );
+    return withPartitionColumns( inClassloader( () -> ReadAheadFileSystem.openReader( conf,
+      readConf -> new PentahoOrcRecordReader( fileName, readConf, inputFields ) ) ) );
+  }
+
+  /**
+   * Appends the partition fields parsed from the directories of {@link #fileName} when partition fields are set.
+   */
+  protected IPentahoRecordReader withPartitionColumns( IPentahoRecordReader recordReader ) {
+    return withPartitionColumns( recordReader, new Path( fileName ) );
+  }
+
+  private IPentahoRecordReader withPartitionColumns( IPentahoRecordReader recordReader, Path file ) {
+    if ( partitionFields.isEmpty() ) {
+      return recordReader;
+    }
+    return new PartitionColumnsRecordReader( recordReader, file, partitionFields );
+  }
+
+  /**
+   * Samples the stripes of {@link #fileName}, or of the ORC files below it when it is a directory.
+   */
+  @Override
+  public IPentahoRecordReader createSampleReader( SamplingOptions options ) {
+    requireNonNull( fileName, NOT_NULL_MSG );
+    requireNonNull( inputFields, NOT_NULL_MSG );
+    return inClassloader( () -> ReadAheadFileSystem.openReader( conf, readConf -> {
+      InputSampler sampler = new InputSampler( file -> OrcSampler.listStripes( conf, file ),
+        stripe -> withPartitionColumns( OrcSampler.readStripe( readConf, inputFields, stripe ),
+          stripe.getFile().getPath() ), options );
+      return sampler.sample( InputSampler.listFiles( conf, Collections.singletonList( new Path( fileName ) ),
+        file -> file.getName().endsWith( ".orc" ) ) );
+    } ) );
   }
 
+  /**
+   * Reads the fields of {@link #fileName}. The fields are kept in the {@link FormatMetadataCache}, every call gets its
+   * own copies since callers customize them.
+   */
   @Override
   public List<IOrcInputField> readSchema() {
-    return inClassloader( () -> readSchema(
-      PentahoOrcRecordReader.getReader(
-        requireNonNull( fileName, NOT_NULL_MSG ), conf ) ) );
+    return inClassloader( () -> {
+      FileStatus fileStatus = PentahoOrcRecordReader.getFileStatus( requireNonNull( fileName, NOT_NULL_MSG ), conf );
+      return copyOf( readCachedSchema( fileStatus ) );
+    } );
+  }
+
+  /**
+   * Merges the schemas of the ORC files below {@code path}, see {@link SchemaDiscovery}.
+   */
+  @Override
+  public DiscoveredSchema discoverSchema( String path, SchemaDiscoveryOptions options ) {
+    return inClassloader( () -> SchemaDiscovery.discover( path, conf, options,
+      file -> file.getName().endsWith( ".orc" ), file -> inClassloader( () -> readCachedSchema( file ) ) ) );
+  }
+
+  /**
+   * @return the fields of the file, shared with the cache and not modifiable
+   */
+  private List<IOrcInputField> readCachedSchema( FileStatus fileStatus ) throws IOException {
+    return FormatMetadataCache.getInstance().get( SCHEMA_CACHE_KIND, fileStatus, () -> {
+      try ( Reader orcReader = PentahoOrcRecordReader.getReader( fileStatus, conf ) ) {
+        return Collections.unmodifiableList( readSchema( orcReader ) );
+      }
+    } );
+  }
+
+  private static List<IOrcInputField> copyOf( List<IOrcInputField> fields ) {
+    List<IOrcInputField> copy = new ArrayList<>( fields.size() );
+    for ( IOrcInputField field : fields ) {
+      OrcInputField orcInputField = new OrcInputField();
+      orcInputField.setFormatFieldName( field.getFormatFieldName() );
+      orcInputField.setPentahoFieldName( field.getPentahoFieldName() );
+      orcInputField.setFormatType( field.getFormatType() );
+      orcInputField.setPentahoType( field.getPentahoType() );
+      orcInputField.setPrecision( field.getPrecision() );
+      orcInputField.setScale( field.getScale() );
+      orcInputField.setStringFormat( field.getStringFormat() );
+      copy.add( orcInputField );
+    }
+    return copy;
   }
 
   protected List<IOrcInputField> readSchema( Reader orcReader ) {
@@ -80,6 +173,47 @@ public class PentahoOrcInputFormat extends HadoopFormatBase implements IPentahoO
   @Override
   public void setInputFile( String fileName ) {
     this.fileName = S3NCredentialUtils.scrubFilePathIfNecessary( fileName );
+    inClassloader( () -> ReadAheadFileSystem.addFile( conf, this.fileName ) );
+  }
+
+  @Override
+  public void setReadAhead( ReadAheadOptions options ) {
+    inClassloader( () -> ReadAheadFileSystem.setOptions( conf, options ) );
+  }
+
+  /**
+   * Aggregates the statistics of {@link #fileName}, or of all ORC files in it when it is a directory.
+   */
+  @Override
+  public IFormatStatistics readStatistics() {
+    requireNonNull( fileName, NOT_NULL_MSG );
+    return inClassloader( () -> {
+      // fails when there is no ORC file at all
+      FileStatus firstFile = PentahoOrcRecordReader.getFileStatus( fileName, conf );
+      Path path = new Path( fileName );
+      FileSystem fs = path.getFileSystem( conf );
+      List<FileStatus> files = fs.getFileStatus( path ).isDirectory()
+        ? Arrays.asList( fs.listStatus( path, file -> file.getName().endsWith( ".orc" ) ) )
+        : Collections.singletonList( firstFile );
+      FormatStatistics statistics = new FormatStatistics();
+      for ( FileStatus file : files ) {
+        statistics.merge( OrcStatisticsReader.read( conf, file ) );
+      }
+      return statistics;
+    } );
+  }
+
+  /**
+   * ORC input is not split, the statistics are those of the whole input.
+   */
+  @Override
+  public IFormatStatistics readStatistics( IPentahoInputSplit split ) {
+    return readStatistics();
+  }
+
+  @Override
+  public void setPartitionFields( List<String> partitionFields ) {
+    this.partitionFields = partitionFields == null ? Collections.emptyList() : partitionFields;
   }
 
 
@@ -24,10 +24,16 @@ import org.pentaho.hadoop.shim.api.format.IOrcOutputField;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
 import org.pentaho.hadoop.shim.api.format.org.pentaho.hadoop.shim.pvfs.api.PvfsHadoopBridgeFileSystemExtension;
 import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.PartFileNamer;
+import org.pentaho.hadoop.shim.common.format.PartitionedRecordWriter;
+import org.pentaho.hadoop.shim.common.format.RollingRecordWriter;
 import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
 
+import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Created by tkafalas on 11/3/2017.
@@ -35,12 +41,18 @@ import java.util.List;
 public class PentahoOrcOutputFormat extends HadoopFormatBase implements IPentahoOrcOutputFormat {
 
   protected static final LogChannelInterface logger = LogChannel.GENERAL;
+  static final String ORC_EXTENSION = ".orc";
+  static final String DEFAULT_PART_PREFIX = "part";
+
   protected String outputFilename;
   protected Configuration conf;
   protected CompressionKind compression = CompressionKind.NONE;
   protected int compressSize = 0;
   protected int stripeSize = DEFAULT_STRIPE_SIZE;
   protected List<? extends IOrcOutputField> fields;
+  protected boolean override;
+  private List<String> partitionFields = Collections.emptyList();
+  private int maxOpenWriters = PartitionedRecordWriter.DEFAULT_MAX_OPEN_WRITERS;
 
   public PentahoOrcOutputFormat() {
     this( null );
@@ -58,10 +70,60 @@ public class PentahoOrcOutputFormat extends HadoopFormatBase implements IPentaho
     if ( outputFilename == null ) {
       throw new IllegalStateException( "Invalid state.  The outputFileName is null" );
     }
+    if ( !partitionFields.isEmpty() ) {
+      return createPartitionedRecordWriter();
+    }
     OrcSchemaConverter converter = new OrcSchemaConverter();
     TypeDescription schema = converter.buildTypeDescription( fields );
 
-    return new PentahoOrcRecordWriter( fields, schema, outputFilename, conf );
+    try {
+      return createOrcRecordWriter( fields, schema, outputFilename );
+    } catch ( IOException e ) {
+      throw new IllegalStateException( "Unable to create ORC file " + outputFilename, e );
+    }
+  }
+
+  /**
+   * Creates the writer of one ORC file, either the output file or a part file of a partitioned output.
+   */
+  protected PentahoOrcRecordWriter createOrcRecordWriter( List<? extends IOrcOutputField> fields,
+                                                          TypeDescription schema, String file ) throws IOException {
+    return new PentahoOrcRecordWriter( fields, schema, file, conf );
+  }
+
+  /**
+   * @return file system which holds the directories of a partitioned output
+   */
+  protected FileSystem getOutputFileSystem( Path path ) throws IOException {
+    return FileSystem.get( path.toUri(), conf );
+  }
+
+  /**
+   * The output file is the root directory of the partitioned layout, the partition fields are only kept in the
+   * directory names.
+   */
+  private IPentahoRecordWriter createPartitionedRecordWriter() {
+    List<? extends IOrcOutputField> dataFields = fields.stream()
+      .filter( field -> !partitionFields.contains( field.getPentahoFieldName() ) )
+      .collect( Collectors.toList() );
+    if ( dataFields.isEmpty() ) {
+      throw new IllegalStateException( "Invalid state.  There are no fields besides the partition fields" );
+    }
+    TypeDescription schema = new OrcSchemaConverter().buildTypeDescription( dataFields );
+    Path root = new Path( outputFilename );
+    PartFileNamer namer = new PartFileNamer( DEFAULT_PART_PREFIX, ORC_EXTENSION, null );
+    return inClassloader( () -> {
+      FileSystem fs = getOutputFileSystem( root );
+      return new PartitionedRecordWriter( root, partitionFields, maxOpenWriters,
+        ( directory, firstSequence ) -> {
+          // a directory reopened after its writer was evicted keeps the parts written so far
+          if ( firstSequence == 0 ) {
+            RollingRecordWriter.removeExistingParts( fs, directory, namer, override );
+          }
+          return new RollingRecordWriter( fs, directory, namer, 0, 0, override,
+            file -> createOrcRecordWriter( dataFields, schema, file.toString() ), firstSequence );
+        } );
+    } );
   }
 
   @Override
@@ -72,6 +134,7 @@ public class PentahoOrcOutputFormat extends HadoopFormatBase implements IPentaho
   @Override
   public void setOutputFile( String file, boolean override ) throws Exception {
     this.outputFilename = S3NCredentialUtils.scrubFilePathIfNecessary( file );
+    this.override = override;
     S3NCredentialUtils util = new S3NCredentialUtils();
     util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, conf );
     Path outputFile = new Path( outputFilename );
@@ -86,6 +149,16 @@ public class PentahoOrcOutputFormat extends HadoopFormatBase implements IPentaho
 
   }
 
+  @Override
+  public void setPartitionFields( List<String> partitionFields ) {
+    this.partitionFields = partitionFields == null ? Collections.emptyList() : partitionFields;
+  }
+
+  @Override
+  public void setMaxOpenWriters( int maxOpenWriters ) {
+    this.maxOpenWriters = maxOpenWriters;
+  }
+
   @Override
   public void setCompression( CompressionKind compression ) {
     this.compression = compression;
@@ -57,17 +57,26 @@ public class PentahoOrcRecordReader implements IPentahoInputFormat.IPentahoRecor
     this.dialogInputFields = dialogInputFields;
 
     Reader reader = getReader( fileName, conf );
-    readRows( fileName, reader );
+    readRows( fileName, reader, reader.options() );
   }
 
   protected PentahoOrcRecordReader( String fileName, List<? extends IOrcInputField> dialogInputFields, Reader reader ) {
     this.dialogInputFields = dialogInputFields;
-    readRows( fileName, reader );
+    readRows( fileName, reader, reader.options() );
   }
 
-  private void readRows( String fileName, Reader reader ) {
+  /**
+   * @param options rows to read, e.g. the range of one stripe and the columns of the input fields
+   */
+  protected PentahoOrcRecordReader( String fileName, List<? extends IOrcInputField> dialogInputFields, Reader reader,
+                                    Reader.Options options ) {
+    this.dialogInputFields = dialogInputFields;
+    readRows( fileName, reader, options );
+  }
+
+  private void readRows( String fileName, Reader reader, Reader.Options options ) {
     try {
-      recordReader = reader.rows();
+      recordReader = reader.rows( options );
     } catch ( IOException e ) {
       throw new IllegalArgumentException( "Unable to get record reader for file " + fileName, e );
     }
@@ -108,6 +117,13 @@ public class PentahoOrcRecordReader implements IPentahoInputFormat.IPentahoRecor
   }
 
   static Reader getReader( String fileName, Configuration conf ) {
+    return getReader( getFileStatus( fileName, conf ), conf );
+  }
+
+  /**
+   * Resolves the file to read, which is the first ORC file when {@code fileName} is a directory.
+   */
+  static FileStatus getFileStatus( String fileName, Configuration conf ) {
 
     try {
       S3NCredentialUtils util = new S3NCredentialUtils();
@@ -117,22 +133,33 @@ public class PentahoOrcRecordReader implements IPentahoInputFormat.IPentahoRecor
       if ( !fs.exists( filePath ) ) {
         throw new NoSuchFileException( fileName );
       }
-      if ( fs.getFileStatus( filePath ).isDirectory() ) {
+      FileStatus fileStatus = fs.getFileStatus( filePath );
+      if ( fileStatus.isDirectory() ) {
         PathFilter pathFilter = file -> file.getName().endsWith( ".orc" );
 
         FileStatus[] fileStatuses = fs.listStatus( filePath, pathFilter );
         if ( fileStatuses.length == 0 ) {
           throw new NoSuchFileException( fileName );
         }
-        filePath = fileStatuses[ 0 ].getPath();
+        fileStatus = fileStatuses[ 0 ];
       }
-      return OrcFile.createReader( filePath,
-        OrcFile.readerOptions( conf ).filesystem( fs ) );
+      return fileStatus;
     } catch ( IOException e ) {
       throw new IllegalArgumentException( "Unable to read data from file " + fileName, e );
     }
   }
 
+  static Reader getReader( FileStatus fileStatus, Configuration conf ) {
+    Path filePath = fileStatus.getPath();
+    try {
+      FileSystem fs = FileSystem.get( filePath.toUri(), conf );
+      return OrcFile.createReader( filePath,
+        OrcFile.readerOptions( conf ).filesystem( fs ).maxLength( fileStatus.getLen() ) );
+    } catch ( IOException e ) {
+      throw new IllegalArgumentException( "Unable to read data from file " + filePath, e );
+    }
+  }
+
 
   protected boolean setNextBatch() throws IOException {
     currentBatchRow = 0;
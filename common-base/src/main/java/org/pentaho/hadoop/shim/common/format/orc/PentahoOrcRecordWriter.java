@@ -12,6 +12,7 @@
 
 package org.pentaho.hadoop.shim.common.format.orc;
 
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
@@ -46,14 +47,14 @@ import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.row.value.ValueMetaTimestamp;
 import org.pentaho.hadoop.shim.api.format.IOrcOutputField;
-import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat;
+import org.pentaho.hadoop.shim.common.format.PreciseValues;
+import org.pentaho.hadoop.shim.common.format.RollingRecordWriter;
 import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
-import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -67,7 +68,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Created by tkafalas on 11/3/2017.
  */
-public class PentahoOrcRecordWriter implements IPentahoOutputFormat.IPentahoRecordWriter {
+public class PentahoOrcRecordWriter implements RollingRecordWriter.PartWriter {
   private final TypeDescription schema;
   protected VectorizedRowBatch batch;
   protected int batchRowNumber;
@@ -79,26 +80,38 @@ public class PentahoOrcRecordWriter implements IPentahoOutputFormat.IPentahoReco
   protected RowMetaAndData outputRowMetaAndData;
   protected static final Logger logger = LogManager.getLogger( PentahoOrcRecordWriter.class );
   protected List<? extends IOrcOutputField> fields;
+  private final Path outputFile;
+  private final Configuration conf;
+  private final FileSystem fileSystem;
 
   public PentahoOrcRecordWriter( List<? extends IOrcOutputField> fields, TypeDescription schema, String filePath,
-                                 Configuration conf ) {
+                                 Configuration conf ) throws IOException {
+    this( fields, schema, filePath, conf, null );
+  }
+
+  /**
+   * @param fileSystem file system the file is created in, null for the file system of {@code filePath}
+   * @throws IOException if the file cannot be created
+   */
+  protected PentahoOrcRecordWriter( List<? extends IOrcOutputField> fields, TypeDescription schema, String filePath,
+                                    Configuration conf, FileSystem fileSystem ) throws IOException {
     this.fields = fields;
     this.schema = schema;
     final AtomicInteger fieldNumber = new AtomicInteger();  //Mutable field count
     fields.forEach( field -> setOutputMeta( fieldNumber, field ) );
     outputRowMetaAndData = new RowMetaAndData( outputRowMeta, new Object[ fieldNumber.get() ] );
 
-    try {
-      S3NCredentialUtils util = new S3NCredentialUtils();
-      util.applyS3CredentialsToHadoopConfigurationIfNecessary( filePath, conf );
-      Path outputFile = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( filePath ) );
-      writer = OrcFile.createWriter( outputFile,
-        OrcFile.writerOptions( conf )
-          .setSchema( schema ) );
-      batch = schema.createRowBatch();
-    } catch ( IOException e ) {
-      logger.error( e );
+    S3NCredentialUtils util = new S3NCredentialUtils();
+    util.applyS3CredentialsToHadoopConfigurationIfNecessary( filePath, conf );
+    outputFile = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( filePath ) );
+    this.conf = conf;
+    this.fileSystem = fileSystem;
+    OrcFile.WriterOptions writerOptions = OrcFile.writerOptions( conf ).setSchema( schema );
+    if ( fileSystem != null ) {
+      writerOptions.fileSystem( fileSystem );
     }
+    writer = OrcFile.createWriter( outputFile, writerOptions );
+    batch = schema.createRowBatch();
 
     //Write the addition metadata for the fields
     // new OrcMetaDataWriter( writer ).write( fields );
@@ -146,7 +159,7 @@ public class PentahoOrcRecordWriter implements IPentahoOutputFormat.IPentahoReco
       logger.error( e );
     }
     //Set the final converted value
-    outputRowMetaAndData.getData()[ rowMetaIndex ] = setValue;
+    outputRowMetaAndData.getData()[ fieldNo ] = setValue;
 
     switch ( field.getOrcType() ) {
       case BOOLEAN:
@@ -192,9 +205,14 @@ public class PentahoOrcRecordWriter implements IPentahoOutputFormat.IPentahoReco
         break;
       case DECIMAL:
         try {
-          ( (DecimalColumnVector) columnVector ).vector[ batchRowNumber ] = new HiveDecimalWritable( HiveDecimal.create(
-            rowMetaAndData.getBigNumber( field.getPentahoFieldName(),
-              field.getDefaultValue() != null ? new BigDecimal( field.getDefaultValue() ) : new BigDecimal( 0 ) ) ) );
+          BigDecimal bigNumber = rowMetaAndData.getBigNumber( field.getPentahoFieldName(),
+            field.getDefaultValue() != null ? new BigDecimal( field.getDefaultValue() ) : new BigDecimal( 0 ) );
+          if ( field.getPrecision() > 0 ) {
+            bigNumber = PreciseValues.toDecimal( bigNumber, field.getPrecision(), field.getScale(),
+              field.getPentahoFieldName() );
+          }
+          ( (DecimalColumnVector) columnVector ).vector[ batchRowNumber ] =
+            new HiveDecimalWritable( HiveDecimal.create( bigNumber ) );
         } catch ( KettleValueException e ) {
           logger.error( e );
         }
@@ -234,9 +252,8 @@ public class PentahoOrcRecordWriter implements IPentahoOutputFormat.IPentahoReco
           }
           DateFormat dateFormat = new SimpleDateFormat( conversionMask );
           ( (TimestampColumnVector) columnVector ).set( batchRowNumber,
-            new Timestamp( rowMetaAndData.getDate( field.getPentahoFieldName(),
-              field.getDefaultValue() != null ? ( dateFormat.parse( field.getDefaultValue() ) ) : new Date( 0 ) )
-              .getTime() ) );
+            PreciseValues.toTimestamp( rowMetaAndData.getDate( field.getPentahoFieldName(),
+              field.getDefaultValue() != null ? ( dateFormat.parse( field.getDefaultValue() ) ) : new Date( 0 ) ) ) );
         } catch ( KettleValueException | ParseException e ) {
           logger.error( e );
         }
@@ -279,6 +296,10 @@ public class PentahoOrcRecordWriter implements IPentahoOutputFormat.IPentahoReco
     bytesColumnVector.length[ batchRowNumber ] = value.length;
   }
 
+  @Override public long getDataSize() {
+    return writer == null ? 0 : writer.getRawDataSize();
+  }
+
   @Override public void close() throws IOException {
     if ( batch.size > 0 ) {
       writer.addRowBatch( batch );
@@ -286,6 +307,25 @@ public class PentahoOrcRecordWriter implements IPentahoOutputFormat.IPentahoReco
     writer.close();
   }
 
+  /**
+   * Releases the writer and deletes the file, which ORC writes under its final name right away.
+   */
+  @Override public void abort() {
+    try {
+      writer.close();
+    } catch ( Exception ignored ) {
+      // the file is deleted anyway
+    }
+    try {
+      FileSystem fs = fileSystem == null ? outputFile.getFileSystem( conf ) : fileSystem;
+      if ( fs.exists( outputFile ) ) {
+        fs.delete( outputFile, false );
+      }
+    } catch ( IOException e ) {
+      logger.warn( "Unable to delete aborted file " + outputFile, e );
+    }
+  }
+
   private ByteBuffer toByteBuffer( int i ) throws UnsupportedEncodingException {
     return toByteBuffer( String.valueOf( i ) );
   }
@@ -16,31 +16,32 @@ package org.pentaho.hadoop.shim.common.format.parquet.delegate;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
-import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
-import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
-import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.PentahoTwitterInputFormat;
-import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.PentahoTwitterOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.ApacheParquetDelegate;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetDelegate;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.TwitterParquetDelegate;
 
 public class DelegateFormatFactory {
 
+  private static final ParquetDelegate APACHE = new ApacheParquetDelegate();
+  private static final ParquetDelegate TWITTER = new TwitterParquetDelegate();
+
   private DelegateFormatFactory() {
     // static methods only
   }
 
   public static IPentahoParquetInputFormat getInputFormatInstance( NamedCluster namedCluster )  {
-    if ( shimUsesTwitterLibs( namedCluster ) ) {
-      return new PentahoTwitterInputFormat( namedCluster );
-    } else {
-      return new PentahoApacheInputFormat( namedCluster );
-    }
+    return getDelegate( namedCluster ).createInputFormat( namedCluster );
   }
 
   public static IPentahoParquetOutputFormat getOutputFormatInstance( NamedCluster namedCluster )  {
-    if ( shimUsesTwitterLibs( namedCluster ) ) {
-      return new PentahoTwitterOutputFormat();
-    } else {
-      return new PentahoApacheOutputFormat( namedCluster );
-    }
+    return getDelegate( namedCluster ).createOutputFormat( namedCluster );
+  }
+
+  /**
+   * @return the adapter for the Parquet library shipped by the shim of the cluster
+   */
+  public static ParquetDelegate getDelegate( NamedCluster namedCluster ) {
+    return shimUsesTwitterLibs( namedCluster ) ? TWITTER : APACHE;
   }
 
   private static boolean shimUsesTwitterLibs( NamedCluster namedCluster ) {
@@ -16,13 +16,9 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.TaskAttemptID;
-import org.apache.hadoop.mapreduce.TaskType;
-import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileWriter;
 import org.apache.parquet.hadoop.ParquetOutputFormat;
 import org.apache.parquet.hadoop.ParquetRecordWriter;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
@@ -30,10 +26,10 @@ import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.util.StringUtil;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.format.IParquetOutputField;
-import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
 import org.pentaho.hadoop.shim.api.format.org.pentaho.hadoop.shim.pvfs.api.PvfsHadoopBridgeFileSystemExtension;
-import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.PendingOutputFile;
 import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetOutputFormatBase;
 
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
@@ -44,14 +40,10 @@ import static org.apache.hadoop.mapreduce.lib.output.FileOutputFormat.setOutputP
 /**
  * Created by Vasilina_Terehova on 8/3/2017.
  */
-public class PentahoApacheOutputFormat extends HadoopFormatBase implements IPentahoParquetOutputFormat {
+public class PentahoApacheOutputFormat extends ParquetOutputFormatBase {
 
   protected static final Logger logger = LogManager.getLogger( PentahoApacheOutputFormat.class );
 
-  protected Job job;
-  protected Path outputFile;
-  private List<? extends IParquetOutputField> outputFields;
-
   public PentahoApacheOutputFormat() {
     this( null );
   }
@@ -79,6 +71,7 @@ public class PentahoApacheOutputFormat extends HadoopFormatBase implements IPent
       S3NCredentialUtils util = new S3NCredentialUtils();
       util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, job.getConfiguration() );
       outputFile = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) );
+      this.override = override;
       FileSystem fs = FileSystem.get( outputFile.toUri(), job.getConfiguration() );
       if ( fs.exists( outputFile ) ) {
         if ( override ) {
@@ -93,21 +86,8 @@ public class PentahoApacheOutputFormat extends HadoopFormatBase implements IPent
 
   @Override
   public void setVersion( VERSION version ) throws Exception {
-    inClassloader( () -> {
-      ParquetProperties.WriterVersion writerVersion;
-      switch ( version ) {
-        case VERSION_1_0:
-          writerVersion = ParquetProperties.WriterVersion.PARQUET_1_0;
-          break;
-        case VERSION_2_0:
-          writerVersion = ParquetProperties.WriterVersion.PARQUET_2_0;
-          break;
-        default:
-          writerVersion = ParquetProperties.WriterVersion.PARQUET_2_0;
-          break;
-      }
-      job.getConfiguration().set( ParquetOutputFormat.WRITER_VERSION, writerVersion.toString() );
-    } );
+    inClassloader( () -> job.getConfiguration().set( ParquetOutputFormat.WRITER_VERSION,
+      toWriterVersion( version ).toString() ) );
   }
 
   @Override
@@ -136,30 +116,22 @@ public class PentahoApacheOutputFormat extends HadoopFormatBase implements IPent
   }
 
   @Override
-  public IPentahoRecordWriter createRecordWriter() throws Exception {
-    if ( outputFile == null ) {
-      throw new IllegalStateException( "Output file is not defined" );
-    }
-    if ( ( outputFields == null ) || outputFields.isEmpty() ) {
-      throw new IllegalStateException( "Schema is not defined" );
-    }
-
+  protected IPentahoRecordWriter createFileRecordWriter() {
     return inClassloader( () -> {
+      Configuration conf = job.getConfiguration();
+      PendingOutputFile pendingFile = new PendingOutputFile( FileSystem.get( outputFile.toUri(), conf ), outputFile );
       FixedParquetOutputFormat nativeParquetOutputFormat
         = new FixedParquetOutputFormat( new PentahoParquetWriteSupport( outputFields ) );
-
-      TaskAttemptID taskAttemptID = new TaskAttemptID( "qq", 111, TaskType.MAP, 11, 11 );
-      TaskAttemptContextImpl task = new TaskAttemptContextImpl( job.getConfiguration(), taskAttemptID );
       try {
-
-        ParquetRecordWriter<RowMetaAndData> recordWriter
-          = ( ParquetRecordWriter<RowMetaAndData> ) nativeParquetOutputFormat.getRecordWriter( task );
-        return new PentahoParquetRecordWriter( recordWriter, task );
+        ParquetRecordWriter<RowMetaAndData> recordWriter =
+          nativeParquetOutputFormat.getRecordWriter( conf, pendingFile.getTempPath() );
+        return new PentahoParquetRecordWriter( recordWriter, pendingFile, override );
       } catch ( IOException e ) {
+        pendingFile.abort();
         throw new IllegalStateException( "Some error accessing parquet files", e );
       } catch ( InterruptedException e ) {
-        // logging here
         Thread.currentThread().interrupt();
+        pendingFile.abort();
         logger.error( e.getMessage(), e );
         throw new IllegalStateException( "This should never happen " + e );
       }
@@ -184,14 +156,19 @@ public class PentahoApacheOutputFormat extends HadoopFormatBase implements IPent
     );
   }
 
-  public class FixedParquetOutputFormat extends ParquetOutputFormat<RowMetaAndData> {
+  /**
+   * Native output format used outside of a map reduce task. The record writer writes straight to the given file, which
+   * is the temporary file of a {@link PendingOutputFile}, instead of the work file of an output committer.
+   */
+  public static class FixedParquetOutputFormat extends ParquetOutputFormat<RowMetaAndData> {
     public FixedParquetOutputFormat( PentahoParquetWriteSupport writeSupport ) {
       super( writeSupport );
     }
 
-    @Override
-    public Path getDefaultWorkFile( TaskAttemptContext context, String extension ) throws IOException {
-      return outputFile;
+    public ParquetRecordWriter<RowMetaAndData> getRecordWriter( Configuration conf, Path file )
+      throws IOException, InterruptedException {
+      return (ParquetRecordWriter<RowMetaAndData>) getRecordWriter( conf, file, getCompression( conf ),
+        ParquetFileWriter.Mode.CREATE );
     }
   }
 }
@@ -12,56 +12,16 @@
 
 package org.pentaho.hadoop.shim.common.format.parquet.delegate.apache;
 
-import java.io.IOException;
-import java.util.Iterator;
-
 import org.apache.parquet.hadoop.ParquetRecordReader;
 import org.pentaho.di.core.RowMetaAndData;
-import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
 
 /**
- * Created by Vasilina_Terehova on 7/29/2017.
+ * Delegate specific entry point of the shared
+ * {@link org.pentaho.hadoop.shim.common.format.parquet.delegate.core.PentahoParquetRecordReader}.
  */
-public class PentahoParquetRecordReader implements IPentahoRecordReader {
-
-  private final ParquetRecordReader<RowMetaAndData> nativeParquetRecordReader;
-
+public class PentahoParquetRecordReader
+  extends org.pentaho.hadoop.shim.common.format.parquet.delegate.core.PentahoParquetRecordReader {
   public PentahoParquetRecordReader( ParquetRecordReader<RowMetaAndData> parquetReader ) {
-    this.nativeParquetRecordReader = parquetReader;
-  }
-
-  @Override
-  public void close() throws IOException {
-    nativeParquetRecordReader.close();
-  }
-
-  @Override
-  public Iterator<RowMetaAndData> iterator() {
-    return new Iterator<RowMetaAndData>() {
-      @Override
-      public boolean hasNext() {
-        try {
-          return nativeParquetRecordReader.nextKeyValue();
-        } catch ( IOException e ) {
-          throw new IllegalArgumentException( "some error while reading parquet file", e );
-        } catch ( InterruptedException e ) {
-          // this should never happen
-          throw new IllegalArgumentException( "sync error while reading parquet file", e );
-        }
-      }
-
-      @Override
-      public RowMetaAndData next() {
-        try {
-          return nativeParquetRecordReader.getCurrentValue();
-        } catch ( IOException e ) {
-          throw new IllegalArgumentException( "some error while reading parquet file", e );
-        } catch ( InterruptedException e ) {
-          // this should never happen
-          throw new IllegalArgumentException( "sync error while reading parquet file", e );
-        }
-        // return rowMetaAndData;
-      }
-    };
+    super( parquetReader );
   }
 }
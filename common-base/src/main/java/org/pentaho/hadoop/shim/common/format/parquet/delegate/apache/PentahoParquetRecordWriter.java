@@ -15,42 +15,21 @@ package org.pentaho.hadoop.shim.common.format.parquet.delegate.apache;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.parquet.hadoop.ParquetRecordWriter;
 import org.pentaho.di.core.RowMetaAndData;
-import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
-
-import java.io.IOException;
+import org.pentaho.hadoop.shim.common.format.PendingOutputFile;
 
 /**
- * Created by Vasilina_Terehova on 8/3/2017.
+ * Delegate specific entry point of the shared
+ * {@link org.pentaho.hadoop.shim.common.format.parquet.delegate.core.PentahoParquetRecordWriter}.
  */
-public class PentahoParquetRecordWriter implements IPentahoRecordWriter {
-  private final ParquetRecordWriter<RowMetaAndData> nativeParquetRecordWriter;
-
-  private final TaskAttemptContext taskAttemptContext;
-
+public class PentahoParquetRecordWriter
+  extends org.pentaho.hadoop.shim.common.format.parquet.delegate.core.PentahoParquetRecordWriter {
   public PentahoParquetRecordWriter( ParquetRecordWriter<RowMetaAndData> recordWriter,
                                      TaskAttemptContext taskAttemptContext ) {
-    this.nativeParquetRecordWriter = recordWriter;
-
-    this.taskAttemptContext = taskAttemptContext;
-  }
-
-  @Override
-  public void write( RowMetaAndData row ) {
-    try {
-      nativeParquetRecordWriter.write( null, row );
-    } catch ( IOException e ) {
-      throw new IllegalArgumentException( "some exception while writing ", e );
-    } catch ( InterruptedException e ) {
-      throw new IllegalArgumentException( "interrupted exception writing parquet ", e );
-    }
+    super( recordWriter, taskAttemptContext );
   }
 
-  @Override
-  public void close() throws IOException {
-    try {
-      nativeParquetRecordWriter.close( taskAttemptContext );
-    } catch ( InterruptedException e ) {
-      throw new IllegalArgumentException( "interrupted exception writing parquet ", e );
-    }
+  public PentahoParquetRecordWriter( ParquetRecordWriter<RowMetaAndData> recordWriter, PendingOutputFile pendingFile,
+                                     boolean overwrite ) {
+    super( recordWriter, pendingFile, overwrite );
   }
 }
@@ -0,0 +1,34 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+
+/**
+ * Adapter over one of the Parquet libraries a shim can ship. Schema mapping, value conversion and field binding are
+ * shared by all adapters and live in this package, an adapter only provides the input and output formats which drive
+ * its library.
+ */
+public interface ParquetDelegate {
+
+  /**
+   * @return short name of the library, used in logs and test names
+   */
+  String getName();
+
+  IPentahoParquetInputFormat createInputFormat( NamedCluster namedCluster );
+
+  IPentahoParquetOutputFormat createOutputFormat( NamedCluster namedCluster );
+}
@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+import org.apache.parquet.hadoop.Footer;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.util.HiddenFileFilter;
+import org.apache.parquet.schema.MessageType;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.common.format.FormatMetadataCache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads Parquet footers through the {@link FormatMetadataCache}, so asking for the schema of the same file again does
+ * not reopen it. Footers are cached per data file, a directory is listed on every call, so a file rewritten inside an
+ * unchanged directory is read again.
+ */
+public class ParquetFooterReader {
+
+  static final String FOOTER = "parquet.footer.schema";
+
+  private ParquetFooterReader() {
+    // static methods only
+  }
+
+  /**
+   * @param fileStatus a Parquet file or a directory of Parquet files
+   * @return footers without row group metadata, in listing order
+   */
+  public static List<Footer> readFooters( Configuration conf, FileStatus fileStatus ) throws IOException {
+    List<Footer> footers = new ArrayList<>();
+    for ( FileStatus file : listDataFiles( conf, fileStatus ) ) {
+      footers.add( readFooter( conf, file ) );
+    }
+    return Collections.unmodifiableList( footers );
+  }
+
+  /**
+   * Builds the input fields from the schema of the first data file. The fields are created on every call since
+   * callers customize them.
+   */
+  public static List<IParquetInputField> readSchema( Configuration conf, FileStatus fileStatus ) throws IOException {
+    List<FileStatus> files = listDataFiles( conf, fileStatus );
+    if ( files.isEmpty() ) {
+      return new ArrayList<>();
+    }
+    MessageType schema = readFooter( conf, files.get( 0 ) ).getParquetMetadata().getFileMetaData().getSchema();
+    return ParquetConverter.buildInputFields( schema );
+  }
+
+  @SuppressWarnings( "squid:CallToDeprecatedMethod" )
+  private static Footer readFooter( Configuration conf, FileStatus file ) throws IOException {
+    return FormatMetadataCache.getInstance().get( FOOTER, file, () -> new Footer( file.getPath(),
+      ParquetFileReader.readFooter( conf, file, ParquetMetadataConverter.SKIP_ROW_GROUPS ) ) );
+  }
+
+  /**
+   * @return the file itself, or the files below the directory skipping hidden and summary files like Parquet does
+   */
+  static List<FileStatus> listDataFiles( Configuration conf, FileStatus fileStatus ) throws IOException {
+    if ( !fileStatus.isDirectory() ) {
+      return Collections.singletonList( fileStatus );
+    }
+    FileSystem fs = fileStatus.getPath().getFileSystem( conf );
+    List<FileStatus> files = new ArrayList<>();
+    for ( FileStatus child : fs.listStatus( fileStatus.getPath(), HiddenFileFilter.INSTANCE ) ) {
+      files.addAll( listDataFiles( conf, child ) );
+    }
+    return files;
+  }
+}
@@ -0,0 +1,225 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
+import org.pentaho.hadoop.shim.api.format.IParquetOutputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+import org.pentaho.hadoop.shim.api.format.ParquetWriterOptions;
+import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.PartFileNamer;
+import org.pentaho.hadoop.shim.common.format.PartitionedRecordWriter;
+import org.pentaho.hadoop.shim.common.format.RollingRecordWriter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Output format code shared by the parquet delegates. Rolling and partitioned output write their part files with a
+ * standalone {@link PentahoParquetWriterBuilder} writer, only a single output file is written by the native output
+ * format of the delegate.
+ */
+public abstract class ParquetOutputFormatBase extends HadoopFormatBase implements IPentahoParquetOutputFormat {
+
+  protected static final String PARQUET_EXTENSION = ".parquet";
+  protected static final String DEFAULT_PART_PREFIX = "part";
+
+  protected Job job;
+  protected Path outputFile;
+  protected List<? extends IParquetOutputField> outputFields;
+  protected boolean override;
+  private long maxBytesPerFile;
+  private long maxRowsPerFile;
+  private String partFilePrefix;
+  private List<String> partitionTokens = Collections.emptyList();
+  private List<String> partitionFields = Collections.emptyList();
+  private int maxOpenWriters = PartitionedRecordWriter.DEFAULT_MAX_OPEN_WRITERS;
+  private ParquetWriterOptions writerOptions;
+
+  protected static ParquetProperties.WriterVersion toWriterVersion( VERSION version ) {
+    switch ( version ) {
+      case VERSION_1_0:
+        return ParquetProperties.WriterVersion.PARQUET_1_0;
+      case VERSION_2_0:
+      default:
+        return ParquetProperties.WriterVersion.PARQUET_2_0;
+    }
+  }
+
+  /**
+   * Stores the options in the job configuration, where the native output format picks them up, and keeps them for
+   * the writers of rolling and partitioned output.
+   */
+  @Override
+  public void setWriterOptions( ParquetWriterOptions options ) throws Exception {
+    inClassloader( () -> {
+      Configuration conf = job.getConfiguration();
+      if ( options.getCompression() != null ) {
+        ParquetOutputFormat.setCompression( job, options.getCompression() );
+      }
+      if ( options.getDictionaryEnabled() != null ) {
+        ParquetOutputFormat.setEnableDictionary( job, options.getDictionaryEnabled() );
+      }
+      if ( options.getDictionaryPageSize() != null ) {
+        ParquetOutputFormat.setDictionaryPageSize( job, options.getDictionaryPageSize() );
+      }
+      if ( options.getDataPageSize() != null ) {
+        ParquetOutputFormat.setPageSize( job, options.getDataPageSize() );
+      }
+      if ( options.getPageRowCountLimit() != null ) {
+        conf.setInt( ParquetOutputFormat.PAGE_ROW_COUNT_LIMIT, options.getPageRowCountLimit() );
+      }
+      if ( options.getRowGroupRowCountLimit() != null ) {
+        conf.setInt( ParquetOutputFormat.BLOCK_ROW_COUNT_LIMIT, options.getRowGroupRowCountLimit() );
+      }
+      if ( options.getPageFormat() != null ) {
+        conf.set( ParquetOutputFormat.WRITER_VERSION, toWriterVersion( options.getPageFormat() ).toString() );
+      }
+      if ( options.getColumnIndexTruncateLength() != null ) {
+        conf.setInt( ParquetOutputFormat.COLUMN_INDEX_TRUNCATE_LENGTH, options.getColumnIndexTruncateLength() );
+      }
+      // per column settings use the "<property>#<column path>" keys of parquet's column config parser
+      options.getBloomFilters().forEach( ( column, bloomFilter ) -> {
+        conf.setBoolean( ParquetOutputFormat.BLOOM_FILTER_ENABLED + "#" + column, true );
+        if ( bloomFilter.getExpectedDistinctValues() != null ) {
+          conf.setLong( ParquetOutputFormat.BLOOM_FILTER_EXPECTED_NDV + "#" + column,
+            bloomFilter.getExpectedDistinctValues() );
+        }
+        if ( bloomFilter.getFalsePositiveProbability() != null ) {
+          conf.setDouble( ParquetOutputFormat.BLOOM_FILTER_FPP + "#" + column,
+            bloomFilter.getFalsePositiveProbability() );
+        }
+      } );
+    } );
+    this.writerOptions = options;
+  }
+
+  @Override
+  public void setRollingThresholds( long maxBytesPerFile, long maxRowsPerFile ) {
+    this.maxBytesPerFile = maxBytesPerFile;
+    this.maxRowsPerFile = maxRowsPerFile;
+  }
+
+  @Override
+  public void setPartFileNaming( String prefix, List<String> partitionTokens ) {
+    this.partFilePrefix = prefix;
+    this.partitionTokens = partitionTokens == null ? Collections.emptyList() : partitionTokens;
+  }
+
+  @Override
+  public void setPartitionFields( List<String> partitionFields ) {
+    this.partitionFields = partitionFields == null ? Collections.emptyList() : partitionFields;
+  }
+
+  @Override
+  public void setMaxOpenWriters( int maxOpenWriters ) {
+    this.maxOpenWriters = maxOpenWriters;
+  }
+
+  @Override
+  public IPentahoRecordWriter createRecordWriter() throws Exception {
+    if ( outputFile == null ) {
+      throw new IllegalStateException( "Output file is not defined" );
+    }
+    if ( ( outputFields == null ) || outputFields.isEmpty() ) {
+      throw new IllegalStateException( "Schema is not defined" );
+    }
+    validateWriterOptions();
+    if ( isPartitioned() ) {
+      return createPartitionedRecordWriter();
+    }
+    if ( isRolling() ) {
+      return createRollingRecordWriter();
+    }
+    return createFileRecordWriter();
+  }
+
+  /**
+   * Creates the writer of a single output file, which is neither rolled nor partitioned.
+   */
+  protected abstract IPentahoRecordWriter createFileRecordWriter() throws Exception;
+
+  private void validateWriterOptions() {
+    if ( writerOptions == null ) {
+      return;
+    }
+    for ( String column : writerOptions.getBloomFilters().keySet() ) {
+      boolean known = outputFields.stream()
+        .filter( field -> !partitionFields.contains( field.getPentahoFieldName() ) )
+        .anyMatch( field -> column.equals( field.getFormatFieldName() ) );
+      if ( !known ) {
+        throw new IllegalArgumentException( "Bloom filter column " + column + " is not an output field" );
+      }
+    }
+  }
+
+  private boolean isPartitioned() {
+    return !partitionFields.isEmpty();
+  }
+
+  private boolean isRolling() {
+    return maxBytesPerFile > 0 || maxRowsPerFile > 0;
+  }
+
+  private IPentahoRecordWriter createRollingRecordWriter() {
+    return inClassloader( () -> {
+      FileSystem fs = FileSystem.get( outputFile.toUri(), job.getConfiguration() );
+      PartFileNamer namer =
+        PartFileNamer.forOutputFile( outputFile, partFilePrefix, PARQUET_EXTENSION, partitionTokens );
+      RollingRecordWriter.removeExistingParts( fs, outputFile.getParent(), namer, override );
+      return new RollingRecordWriter( fs, outputFile.getParent(), namer, maxBytesPerFile, maxRowsPerFile, override,
+        file -> inClassloader( () -> createPartWriter( file, outputFields ) ) );
+    } );
+  }
+
+  /**
+   * The output file is the root directory of the partitioned layout, the partition fields are only kept in the
+   * directory names.
+   */
+  private IPentahoRecordWriter createPartitionedRecordWriter() {
+    return inClassloader( () -> {
+      FileSystem fs = FileSystem.get( outputFile.toUri(), job.getConfiguration() );
+      List<? extends IParquetOutputField> dataFields = outputFields.stream()
+        .filter( field -> !partitionFields.contains( field.getPentahoFieldName() ) )
+        .collect( Collectors.toList() );
+      if ( dataFields.isEmpty() ) {
+        throw new IllegalStateException( "Schema has no fields besides the partition fields" );
+      }
+      PartFileNamer namer = new PartFileNamer( partFilePrefix == null ? DEFAULT_PART_PREFIX : partFilePrefix,
+        PARQUET_EXTENSION, partitionTokens );
+      return new PartitionedRecordWriter( outputFile, partitionFields, maxOpenWriters,
+        ( directory, firstSequence ) -> {
+          // a directory reopened after its writer was evicted keeps the parts written so far
+          if ( firstSequence == 0 ) {
+            RollingRecordWriter.removeExistingParts( fs, directory, namer, override );
+          }
+          return new RollingRecordWriter( fs, directory, namer, maxBytesPerFile, maxRowsPerFile, override,
+            file -> inClassloader( () -> createPartWriter( file, dataFields ) ), firstSequence );
+        } );
+    } );
+  }
+
+  private RollingRecordWriter.PartWriter createPartWriter( Path file, List<? extends IParquetOutputField> fields )
+    throws IOException {
+    return new PentahoParquetPartWriter(
+      new PentahoParquetWriterBuilder( file, fields ).withJobConfiguration( job.getConfiguration() )
+        .withWriterOptions( writerOptions ).build() );
+  }
+}
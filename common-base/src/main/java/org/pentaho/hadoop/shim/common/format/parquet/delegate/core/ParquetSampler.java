@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.common.format.InputSampler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Row group access for the {@link InputSampler}. Row groups are listed from the cached footers of
+ * {@link ParquetStatisticsReader} and read one at a time, only the column chunks of the fields set in
+ * {@link ParquetConverter#PARQUET_SCHEMA_CONF_KEY} are read.
+ */
+public class ParquetSampler {
+
+  private ParquetSampler() {
+    // static methods only
+  }
+
+  /**
+   * @return the row groups of the file, their bytes are the stored sizes of the requested column chunks
+   */
+  public static List<InputSampler.Unit> listRowGroups( Configuration conf, FileStatus file ) throws IOException {
+    ParquetMetadata footer = ParquetStatisticsReader.readFooter( conf, file );
+    MessageType fileSchema = footer.getFileMetaData().getSchema();
+    Set<ColumnPath> requestedColumns = new HashSet<>();
+    for ( ColumnDescriptor column : init( conf, fileSchema ).getRequestedSchema().getColumns() ) {
+      requestedColumns.add( ColumnPath.get( column.getPath() ) );
+    }
+
+    List<InputSampler.Unit> rowGroups = new ArrayList<>();
+    List<BlockMetaData> blocks = footer.getBlocks();
+    for ( int i = 0; i < blocks.size(); i++ ) {
+      BlockMetaData block = blocks.get( i );
+      long bytes = 0;
+      for ( ColumnChunkMetaData chunk : block.getColumns() ) {
+        if ( requestedColumns.contains( chunk.getPath() ) ) {
+          bytes += chunk.getTotalSize();
+        }
+      }
+      rowGroups.add( new InputSampler.Unit( file, i, block.getStartingPos(), block.getCompressedSize(),
+        block.getRowCount(), bytes ) );
+    }
+    return rowGroups;
+  }
+
+  /**
+   * Reads the requested columns of one row group into memory and returns its rows.
+   */
+  @SuppressWarnings( "squid:CallToDeprecatedMethod" )
+  public static IPentahoRecordReader readRowGroup( Configuration conf, InputSampler.Unit rowGroup )
+    throws IOException {
+    ParquetMetadata footer = ParquetStatisticsReader.readFooter( conf, rowGroup.getFile() );
+    MessageType fileSchema = footer.getFileMetaData().getSchema();
+    PentahoParquetReadSupport readSupport = new PentahoParquetReadSupport();
+    ReadSupport.ReadContext context = readSupport.init( new InitContext( conf, Collections.emptyMap(), fileSchema ) );
+    RecordMaterializer<RowMetaAndData> materializer = readSupport.prepareForRead( conf,
+      footer.getFileMetaData().getKeyValueMetaData(), fileSchema, context );
+
+    // the footer is passed in, so that only the column chunks are read
+    ParquetFileReader reader = new ParquetFileReader( conf, rowGroup.getFile().getPath(), footer );
+    try {
+      reader.setRequestedSchema( context.getRequestedSchema() );
+      PageReadStore pages = reader.readRowGroup( rowGroup.getIndex() );
+      RecordReader<RowMetaAndData> records = new ColumnIOFactory()
+        .getColumnIO( context.getRequestedSchema(), fileSchema )
+        .getRecordReader( pages, materializer );
+      return new RowGroupRecordReader( reader, records, pages.getRowCount() );
+    } catch ( IOException | RuntimeException e ) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  private static ReadSupport.ReadContext init( Configuration conf, MessageType fileSchema ) {
+    return new PentahoParquetReadSupport().init( new InitContext( conf, Collections.emptyMap(), fileSchema ) );
+  }
+
+  private static class RowGroupRecordReader implements IPentahoRecordReader {
+    private final ParquetFileReader reader;
+    private final RecordReader<RowMetaAndData> records;
+    private final long rows;
+    private long read;
+
+    RowGroupRecordReader( ParquetFileReader reader, RecordReader<RowMetaAndData> records, long rows ) {
+      this.reader = reader;
+      this.records = records;
+      this.rows = rows;
+    }
+
+    @Override
+    public Iterator<RowMetaAndData> iterator() {
+      return new Iterator<RowMetaAndData>() {
+        @Override
+        public boolean hasNext() {
+          return read < rows;
+        }
+
+        @Override
+        public RowMetaAndData next() {
+          if ( !hasNext() ) {
+            throw new NoSuchElementException();
+          }
+          read++;
+          return records.read();
+        }
+      };
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+}
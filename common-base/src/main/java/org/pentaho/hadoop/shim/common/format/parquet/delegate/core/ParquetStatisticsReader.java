@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.common.format.FormatMetadataCache;
+import org.pentaho.hadoop.shim.common.format.FormatStatistics;
+import org.pentaho.hadoop.shim.common.format.PreciseValues;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds {@link FormatStatistics} from the row group metadata in Parquet footers. Values are converted the way
+ * {@link ParquetConverter} converts the column when reading rows.
+ */
+public class ParquetStatisticsReader {
+
+  static final String FOOTER = "parquet.footer.rowgroups";
+
+  private ParquetStatisticsReader() {
+    // static methods only
+  }
+
+  /**
+   * Reads the statistics of the row groups of a split. Like Parquet itself a row group belongs to the split containing
+   * its midpoint.
+   */
+  public static FormatStatistics read( Configuration conf, FileSplit split ) throws IOException {
+    Path path = split.getPath();
+    FileStatus fileStatus = path.getFileSystem( conf ).getFileStatus( path );
+    return read( path.toString(), readFooter( conf, fileStatus ), split.getStart(), split.getLength() );
+  }
+
+  /**
+   * @return footer including the row group metadata, shared through the {@link FormatMetadataCache}
+   */
+  static ParquetMetadata readFooter( Configuration conf, FileStatus fileStatus ) throws IOException {
+    return FormatMetadataCache.getInstance().get( FOOTER, fileStatus, () -> {
+      try ( ParquetFileReader reader = ParquetFileReader.open( HadoopInputFile.fromStatus( fileStatus, conf ) ) ) {
+        return reader.getFooter();
+      }
+    } );
+  }
+
+  static FormatStatistics read( String file, ParquetMetadata footer, long start, long length ) {
+    FormatStatistics statistics = new FormatStatistics();
+    statistics.addFile( file );
+    Map<String, IParquetInputField> fields = new HashMap<>();
+    for ( IParquetInputField field : ParquetConverter.buildInputFields( footer.getFileMetaData().getSchema() ) ) {
+      fields.put( field.getFormatFieldName(), field );
+      statistics.column( field.getFormatFieldName(), field.getPentahoType() );
+    }
+
+    long end = length == Long.MAX_VALUE ? Long.MAX_VALUE : start + length;
+    for ( BlockMetaData block : footer.getBlocks() ) {
+      long midpoint = block.getStartingPos() + block.getCompressedSize() / 2;
+      if ( midpoint < start || midpoint >= end ) {
+        continue;
+      }
+      statistics.addRows( block.getRowCount() );
+      for ( ColumnChunkMetaData chunk : block.getColumns() ) {
+        String[] path = chunk.getPath().toArray();
+        IParquetInputField field = path.length == 1 ? fields.get( path[ 0 ] ) : null;
+        if ( field == null ) {
+          continue;
+        }
+        Statistics<?> chunkStatistics = chunk.getStatistics();
+        long nulls = chunkStatistics != null && chunkStatistics.isNumNullsSet() ? chunkStatistics.getNumNulls() : -1;
+        Object min = null;
+        Object max = null;
+        if ( chunkStatistics != null && chunkStatistics.hasNonNullValue() ) {
+          min = toPentahoValue( field, chunkStatistics.genericGetMin() );
+          max = toPentahoValue( field, chunkStatistics.genericGetMax() );
+        }
+        statistics.column( field.getFormatFieldName(), field.getPentahoType() )
+          .add( chunk.getValueCount(), nulls, min, max );
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * @return the Pentaho value, null for types without usable ordering such as INT96, unsigned 32 bit integers and
+   * plain binaries
+   */
+  static Object toPentahoValue( IParquetInputField field, Object value ) {
+    switch ( field.getParquetType() ) {
+      case INT_8:
+      case INT_16:
+      case INT_32:
+      case INT_64:
+      case UINT_8:
+      case UINT_16:
+        return ( (Number) value ).longValue();
+      case FLOAT:
+      case DOUBLE:
+        return ( (Number) value ).doubleValue();
+      case BOOLEAN:
+        return value;
+      case UTF8:
+      case ENUM:
+        return ( (Binary) value ).toStringUsingUTF8();
+      case DECIMAL_INT_32:
+      case DECIMAL_INT_64:
+        return BigDecimal.valueOf( ( (Number) value ).longValue(), field.getScale() );
+      case DECIMAL:
+      case DECIMAL_FIXED_LEN_BYTE_ARRAY:
+        return new BigDecimal( new BigInteger( ( (Binary) value ).getBytes() ), field.getScale() );
+      case DATE:
+        LocalDate localDate = LocalDate.ofEpochDay( ( (Number) value ).intValue() );
+        return Date.from( localDate.atStartOfDay( ZoneId.systemDefault() ).toInstant() );
+      case TIMESTAMP_MILLIS:
+      case TIMESTAMP_MICROS:
+      case TIMESTAMP_NANOS:
+        return PreciseValues.timestampFromEpoch( ( (Number) value ).longValue(),
+          ParquetConverter.timestampUnit( field.getParquetType() ) );
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.common.format.RollingRecordWriter;
+
+import java.io.IOException;
+
+/**
+ * Writer of one part file of a rolling parquet output.
+ */
+public class PentahoParquetPartWriter implements RollingRecordWriter.PartWriter {
+  private final ParquetWriter<RowMetaAndData> nativeParquetWriter;
+
+  public PentahoParquetPartWriter( ParquetWriter<RowMetaAndData> parquetWriter ) {
+    this.nativeParquetWriter = parquetWriter;
+  }
+
+  @Override
+  public void write( RowMetaAndData row ) throws IOException {
+    nativeParquetWriter.write( row );
+  }
+
+  @Override
+  public long getDataSize() {
+    return nativeParquetWriter.getDataSize();
+  }
+
+  @Override
+  public void close() throws IOException {
+    nativeParquetWriter.close();
+  }
+
+  /**
+   * Only releases the writer, the rolling writer owns the part file and deletes it.
+   */
+  @Override
+  public void abort() {
+    try {
+      nativeParquetWriter.close();
+    } catch ( Exception ignored ) {
+      // the part is discarded anyway
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.parquet.hadoop.ParquetRecordWriter;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.common.format.PendingOutputFile;
+
+import java.io.IOException;
+
+/**
+ * Created by Vasilina_Terehova on 8/3/2017.
+ */
+public class PentahoParquetRecordWriter implements IPentahoRecordWriter {
+  private final ParquetRecordWriter<RowMetaAndData> nativeParquetRecordWriter;
+
+  private final TaskAttemptContext taskAttemptContext;
+
+  private final PendingOutputFile pendingFile;
+  private final boolean overwrite;
+  private boolean failed;
+  private boolean finished;
+
+  public PentahoParquetRecordWriter( ParquetRecordWriter<RowMetaAndData> recordWriter,
+                                     TaskAttemptContext taskAttemptContext ) {
+    this( recordWriter, taskAttemptContext, null, false );
+  }
+
+  /**
+   * Creates a writer for the temporary file of {@code pendingFile}, which is renamed to its final name on
+   * {@link #commit()} and removed on {@link #abort()}.
+   *
+   * @param overwrite replace a file which appeared under the final name while writing instead of failing the commit
+   */
+  public PentahoParquetRecordWriter( ParquetRecordWriter<RowMetaAndData> recordWriter, PendingOutputFile pendingFile,
+                                     boolean overwrite ) {
+    // the native writer does not use the task context on close
+    this( recordWriter, null, pendingFile, overwrite );
+  }
+
+  private PentahoParquetRecordWriter( ParquetRecordWriter<RowMetaAndData> recordWriter,
+                                      TaskAttemptContext taskAttemptContext, PendingOutputFile pendingFile,
+                                      boolean overwrite ) {
+    this.nativeParquetRecordWriter = recordWriter;
+
+    this.taskAttemptContext = taskAttemptContext;
+    this.pendingFile = pendingFile;
+    this.overwrite = overwrite;
+  }
+
+  @Override
+  public void write( RowMetaAndData row ) {
+    if ( finished ) {
+      throw new IllegalStateException( "Parquet writer is already closed" );
+    }
+    try {
+      nativeParquetRecordWriter.write( null, row );
+    } catch ( IOException e ) {
+      failed = true;
+      throw new IllegalArgumentException( "some exception while writing ", e );
+    } catch ( InterruptedException e ) {
+      failed = true;
+      Thread.currentThread().interrupt();
+      throw new IllegalArgumentException( "interrupted exception writing parquet ", e );
+    } catch ( RuntimeException e ) {
+      failed = true;
+      throw e;
+    }
+  }
+
+  /**
+   * Commits the file, or aborts it when a write failed, so that a partially written file never gets the final name.
+   */
+  @Override
+  public void close() throws IOException {
+    if ( finished ) {
+      return;
+    }
+    if ( failed ) {
+      abort();
+    } else {
+      commit();
+    }
+  }
+
+  @Override
+  public void commit() throws IOException {
+    if ( finished ) {
+      throw new IllegalStateException( "Parquet writer is already closed" );
+    }
+    if ( failed ) {
+      abort();
+      throw new IOException( "Output is not committed since writing a row failed" );
+    }
+    finished = true;
+    try {
+      closeNativeWriter();
+    } catch ( IOException | RuntimeException e ) {
+      if ( pendingFile != null ) {
+        pendingFile.abort();
+      }
+      throw e;
+    }
+    if ( pendingFile != null ) {
+      pendingFile.commit( overwrite );
+    }
+  }
+
+  @Override
+  public void abort() {
+    if ( finished ) {
+      return;
+    }
+    finished = true;
+    try {
+      closeNativeWriter();
+    } catch ( Exception ignored ) {
+      // the output is discarded anyway
+    }
+    if ( pendingFile != null ) {
+      pendingFile.abort();
+    }
+  }
+
+  private void closeNativeWriter() throws IOException {
+    try {
+      nativeParquetRecordWriter.close( taskAttemptContext );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IllegalArgumentException( "interrupted exception writing parquet ", e );
+    }
+  }
+}
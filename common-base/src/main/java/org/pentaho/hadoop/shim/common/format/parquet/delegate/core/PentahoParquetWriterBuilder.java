@@ -0,0 +1,92 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.core;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.hadoop.shim.api.format.IParquetOutputField;
+import org.pentaho.hadoop.shim.api.format.ParquetWriterOptions;
+
+import java.util.List;
+
+/**
+ * Builds standalone parquet writers for {@link RowMetaAndData} rows. Unlike {@link ParquetOutputFormat} it does not
+ * need a task attempt and gives access to the size of the data written so far.
+ */
+public class PentahoParquetWriterBuilder extends ParquetWriter.Builder<RowMetaAndData, PentahoParquetWriterBuilder> {
+
+  private final List<? extends IParquetOutputField> outputFields;
+
+  public PentahoParquetWriterBuilder( Path file, List<? extends IParquetOutputField> outputFields ) {
+    super( file );
+    this.outputFields = outputFields;
+  }
+
+  /**
+   * Applies the writer settings which the output format stored in the job configuration through the
+   * {@link ParquetOutputFormat} setters.
+   */
+  public PentahoParquetWriterBuilder withJobConfiguration( Configuration conf ) {
+    return withConf( conf )
+      .withCompressionCodec( ParquetOutputFormat.getCompression( conf ) )
+      .withRowGroupSize( ParquetOutputFormat.getLongBlockSize( conf ) )
+      .withPageSize( ParquetOutputFormat.getPageSize( conf ) )
+      .withDictionaryPageSize( ParquetOutputFormat.getDictionaryPageSize( conf ) )
+      .withDictionaryEncoding( ParquetOutputFormat.getEnableDictionary( conf ) )
+      .withWriterVersion( ParquetOutputFormat.getWriterVersion( conf ) )
+      .withValidation( ParquetOutputFormat.getValidation( conf ) );
+  }
+
+  /**
+   * Applies the settings the native output format reads from column specific configuration keys, which the plain
+   * writer builder ignores. Does nothing when {@code options} is null.
+   */
+  public PentahoParquetWriterBuilder withWriterOptions( ParquetWriterOptions options ) {
+    if ( options == null ) {
+      return this;
+    }
+    if ( options.getPageRowCountLimit() != null ) {
+      withPageRowCountLimit( options.getPageRowCountLimit() );
+    }
+    if ( options.getRowGroupRowCountLimit() != null ) {
+      withRowGroupRowCountLimit( options.getRowGroupRowCountLimit() );
+    }
+    if ( options.getColumnIndexTruncateLength() != null ) {
+      withColumnIndexTruncateLength( options.getColumnIndexTruncateLength() );
+    }
+    options.getBloomFilters().forEach( ( column, bloomFilter ) -> {
+      withBloomFilterEnabled( column, true );
+      if ( bloomFilter.getExpectedDistinctValues() != null ) {
+        withBloomFilterNDV( column, bloomFilter.getExpectedDistinctValues() );
+      }
+      if ( bloomFilter.getFalsePositiveProbability() != null ) {
+        withBloomFilterFPP( column, bloomFilter.getFalsePositiveProbability() );
+      }
+    } );
+    return this;
+  }
+
+  @Override
+  protected PentahoParquetWriterBuilder self() {
+    return this;
+  }
+
+  @Override
+  protected WriteSupport<RowMetaAndData> getWriteSupport( Configuration conf ) {
+    return new PentahoParquetWriteSupport( outputFields );
+  }
+}
@@ -19,29 +19,40 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.parquet.hadoop.Footer;
-import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.ParquetInputFormat;
 import org.apache.parquet.hadoop.ParquetRecordReader;
 import org.apache.parquet.hadoop.api.ReadSupport;
-import org.apache.parquet.hadoop.metadata.ParquetMetadata;
-import org.apache.parquet.schema.MessageType;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.DiscoveredSchema;
+import org.pentaho.hadoop.shim.api.format.IFormatStatistics;
 import org.pentaho.hadoop.shim.api.format.IParquetInputField;
 import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
+import org.pentaho.hadoop.shim.api.format.ReadAheadOptions;
+import org.pentaho.hadoop.shim.api.format.SamplingOptions;
+import org.pentaho.hadoop.shim.api.format.SchemaDiscoveryOptions;
+import org.pentaho.hadoop.shim.common.format.FormatStatistics;
 import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.InputSampler;
+import org.pentaho.hadoop.shim.common.format.PartitionColumnsRecordReader;
+import org.pentaho.hadoop.shim.common.format.ReadAheadFileSystem;
 import org.pentaho.hadoop.shim.common.format.ReadFileFilter;
 import org.pentaho.hadoop.shim.common.format.ReadFilesFilter;
 import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
+import org.pentaho.hadoop.shim.common.format.SchemaDiscovery;
 import org.pentaho.hadoop.shim.common.format.parquet.ParquetInputFieldList;
 import org.pentaho.hadoop.shim.common.format.parquet.PentahoInputSplitImpl;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetFooterReader;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetSampler;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetStatisticsReader;
 
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -58,6 +69,8 @@ public class PentahoTwitterInputFormat extends HadoopFormatBase implements IPent
 
   private ParquetInputFormat<RowMetaAndData> nativeParquetInputFormat;
   private Job job;
+  private List<Path> inputPaths = Collections.emptyList();
+  private List<String> partitionFields = Collections.emptyList();
 
   public PentahoTwitterInputFormat( NamedCluster namedCluster ) {
     logger.info( "We are initializing parquet input format" );
@@ -83,10 +96,12 @@ public class PentahoTwitterInputFormat extends HadoopFormatBase implements IPent
       S3NCredentialUtils util = new S3NCredentialUtils();
       util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, job.getConfiguration() );
       Path filePath = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) );
+      ReadAheadFileSystem.addFile( job.getConfiguration(), file );
       FileSystem fs = FileSystem.get( filePath.toUri(), job.getConfiguration() );
       if ( !fs.exists( filePath ) ) {
         throw new NoSuchFileException( file );
       }
+      inputPaths = Collections.singletonList( filePath );
       if ( fs.getFileStatus( filePath ).isDirectory() ) { // directory
         ParquetInputFormat.setInputPaths( job, filePath );
         ParquetInputFormat.setInputDirRecursive( job, true );
@@ -106,20 +121,24 @@ public class PentahoTwitterInputFormat extends HadoopFormatBase implements IPent
       boolean pathIsDir = false;
       String[] filePaths = new String[files.length];
       int i = 0;
+      List<Path> paths = new ArrayList<>();
       for ( String file : files ) {
         S3NCredentialUtils util = new S3NCredentialUtils();
         util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, job.getConfiguration() );
         Path filePath = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) );
+        ReadAheadFileSystem.addFile( job.getConfiguration(), file );
         FileSystem fs = FileSystem.get( filePath.toUri(), job.getConfiguration() );
         filePath = fs.makeQualified( filePath );
         if ( !fs.exists( filePath ) ) {
           throw new NoSuchFileException( file );
         }
+        paths.add( filePath );
         filePaths[i++] = filePath.getName();
         if ( fs.getFileStatus( filePath ).isDirectory() ) { // directory
           pathIsDir = true;
         }
       }
+      inputPaths = paths;
       if ( pathIsDir ) { // directory
         setInputPaths( job, String.join( ",", filePaths ) );
         setInputDirRecursive( job, true );
@@ -133,6 +152,25 @@ public class PentahoTwitterInputFormat extends HadoopFormatBase implements IPent
     } );
   }
 
+  @Override public void setReadAhead( ReadAheadOptions options ) throws Exception {
+    inClassloader( () -> ReadAheadFileSystem.setOptions( job.getConfiguration(), options ) );
+  }
+
+  /**
+   * Samples the row groups of the input files, reading the fields set with {@link #setSchema(List)}.
+   */
+  @Override public IPentahoRecordReader createSampleReader( SamplingOptions options ) throws Exception {
+    Configuration conf = job.getConfiguration();
+    return inClassloader( () -> ReadAheadFileSystem.openReader( conf, readConf -> {
+      InputSampler sampler = new InputSampler( file -> ParquetSampler.listRowGroups( conf, file ), rowGroup -> {
+        IPentahoRecordReader recordReader = ParquetSampler.readRowGroup( readConf, rowGroup );
+        return partitionFields.isEmpty() ? recordReader
+          : new PartitionColumnsRecordReader( recordReader, rowGroup.getFile().getPath(), partitionFields );
+      }, options );
+      return sampler.sample( InputSampler.listFiles( conf, inputPaths, file -> true ) );
+    } ) );
+  }
+
   @Override @SuppressWarnings("squid:CommentedOutCodeLine")
   public void setSplitSize( long blockSize )
     throws Exception {
@@ -158,6 +196,21 @@ public class PentahoTwitterInputFormat extends HadoopFormatBase implements IPent
     } );
   }
 
+  @Override public IFormatStatistics readStatistics() throws Exception {
+    return inClassloader( () -> {
+      FormatStatistics statistics = new FormatStatistics();
+      for ( InputSplit split : nativeParquetInputFormat.getSplits( job ) ) {
+        statistics.merge( ParquetStatisticsReader.read( job.getConfiguration(), (FileSplit) split ) );
+      }
+      return statistics;
+    } );
+  }
+
+  @Override public IFormatStatistics readStatistics( IPentahoInputSplit split ) throws Exception {
+    return inClassloader( () -> ParquetStatisticsReader.read( job.getConfiguration(),
+      (FileSplit) ( (PentahoInputSplitImpl) split ).getInputSplit() ) );
+  }
+
   // for parquet not actual to point split
   @Override public IPentahoRecordReader createRecordReader( IPentahoInputSplit split ) throws Exception {
     return inClassloader( () -> {
@@ -168,13 +221,23 @@ public class PentahoTwitterInputFormat extends HadoopFormatBase implements IPent
 
       ParquetRecordReader<RowMetaAndData> nativeRecordReader
         = new ParquetRecordReader<>( readSupport, ParquetInputFormat.getFilter( job.getConfiguration() ) );
-      TaskAttemptContextImpl task = new TaskAttemptContextImpl( job.getConfiguration(), new TaskAttemptID() );
-      nativeRecordReader.initialize( inputSplit, task );
-
-      return new PentahoParquetRecordReader( nativeRecordReader );
+      IPentahoRecordReader recordReader = ReadAheadFileSystem.openReader( job.getConfiguration(), readConf -> {
+        TaskAttemptContextImpl task = new TaskAttemptContextImpl( readConf, new TaskAttemptID() );
+        nativeRecordReader.initialize( inputSplit, task );
+        return new PentahoParquetRecordReader( nativeRecordReader );
+      } );
+      if ( !partitionFields.isEmpty() && inputSplit instanceof FileSplit ) {
+        recordReader =
+          new PartitionColumnsRecordReader( recordReader, ( (FileSplit) inputSplit ).getPath(), partitionFields );
+      }
+      return recordReader;
     } );
   }
 
+  @Override public void setPartitionFields( List<String> partitionFields ) {
+    this.partitionFields = partitionFields == null ? Collections.emptyList() : partitionFields;
+  }
+
   @Override public List<IParquetInputField> readSchema( String file ) throws Exception {
     return inClassloader( () -> {
       Configuration conf = job.getConfiguration();
@@ -183,14 +246,18 @@ public class PentahoTwitterInputFormat extends HadoopFormatBase implements IPent
       Path filePath = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) );
       FileSystem fs = FileSystem.get( filePath.toUri(), conf );
       FileStatus fileStatus = fs.getFileStatus( filePath );
-      List<Footer> footers = ParquetFileReader.readFooters( conf, fileStatus, true );
-      if ( footers.isEmpty() ) {
-        return new ArrayList<>();
-      } else {
-        ParquetMetadata meta = footers.get( 0 ).getParquetMetadata();
-        MessageType schema = meta.getFileMetaData().getSchema();
-        return ParquetConverter.buildInputFields( schema );
-      }
+      return ParquetFooterReader.readSchema( conf, fileStatus );
+    } );
+  }
+
+  /**
+   * Merges the schemas of the Parquet files below {@code path}, see {@link SchemaDiscovery}.
+   */
+  @Override public DiscoveredSchema discoverSchema( String path, SchemaDiscoveryOptions options ) throws Exception {
+    return inClassloader( () -> {
+      Configuration conf = job.getConfiguration();
+      return SchemaDiscovery.discover( path, conf, options, file -> true,
+        file -> inClassloader( () -> ParquetFooterReader.readSchema( conf, file ) ) );
     } );
   }
 }
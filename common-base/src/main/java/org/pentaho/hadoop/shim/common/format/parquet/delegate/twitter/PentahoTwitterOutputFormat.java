@@ -16,13 +16,10 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.mapreduce.TaskAttemptID;
-import org.apache.hadoop.mapreduce.TaskType;
-import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetFileWriter;
 import org.apache.parquet.hadoop.ParquetOutputFormat;
 import org.apache.parquet.hadoop.ParquetRecordWriter;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
@@ -30,9 +27,9 @@ import org.pentaho.hadoop.shim.api.format.org.pentaho.hadoop.shim.pvfs.api.PvfsH
 
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.hadoop.shim.api.format.IParquetOutputField;
-import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
-import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.PendingOutputFile;
 import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetOutputFormatBase;
 
 import java.io.IOException;
 import java.net.URI;
@@ -42,14 +39,10 @@ import java.util.List;
 /**
  * Created by Vasilina_Terehova on 8/3/2017.
  */
-public class PentahoTwitterOutputFormat extends HadoopFormatBase implements IPentahoParquetOutputFormat {
+public class PentahoTwitterOutputFormat extends ParquetOutputFormatBase {
 
   private static final Logger logger = LogManager.getLogger( PentahoTwitterOutputFormat.class );
 
-  private Job job;
-  private Path outputFile;
-  private List<? extends IParquetOutputField> outputFields;
-
   public PentahoTwitterOutputFormat() {
     logger.info( "We are initializing parquet output format" );
 
@@ -73,6 +66,7 @@ public class PentahoTwitterOutputFormat extends HadoopFormatBase implements IPen
       S3NCredentialUtils util = new S3NCredentialUtils();
       util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, job.getConfiguration() );
       outputFile = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) );
+      this.override = override;
       FileSystem fs = FileSystem.get( outputFile.toUri(), job.getConfiguration() );
       if ( fs.exists( outputFile ) ) {
         if ( override ) {
@@ -130,43 +124,41 @@ public class PentahoTwitterOutputFormat extends HadoopFormatBase implements IPen
   }
 
   @Override
-  public IPentahoRecordWriter createRecordWriter() throws Exception {
-    if ( outputFile == null ) {
-      throw new IllegalStateException( "Output file is not defined" );
-    }
-    if ( ( outputFields == null ) || ( outputFields.isEmpty() ) ) {
-      throw new IllegalStateException( "Schema is not defined" );
-    }
-
+  protected IPentahoRecordWriter createFileRecordWriter() {
     return inClassloader( () -> {
+      Configuration conf = job.getConfiguration();
+      PendingOutputFile pendingFile = new PendingOutputFile( FileSystem.get( outputFile.toUri(), conf ), outputFile );
       FixedParquetOutputFormat nativeParquetOutputFormat
         = new FixedParquetOutputFormat( new PentahoParquetWriteSupport( outputFields ) );
-
-      TaskAttemptID taskAttemptID = new TaskAttemptID( "qq", 111, TaskType.MAP, 11, 11 );
-      TaskAttemptContextImpl task = new TaskAttemptContextImpl( job.getConfiguration(), taskAttemptID );
       try {
-
-        ParquetRecordWriter<RowMetaAndData> recordWriter
-          = ( ParquetRecordWriter<RowMetaAndData> ) nativeParquetOutputFormat.getRecordWriter( task );
-        return new PentahoParquetRecordWriter( recordWriter, task );
+        ParquetRecordWriter<RowMetaAndData> recordWriter =
+          nativeParquetOutputFormat.getRecordWriter( conf, pendingFile.getTempPath() );
+        return new PentahoParquetRecordWriter( recordWriter, pendingFile, override );
       } catch ( IOException e ) {
+        pendingFile.abort();
         throw new IllegalStateException( "Some error accessing parquet files", e );
       } catch ( InterruptedException e ) {
-        // logging here
         Thread.currentThread().interrupt();
+        pendingFile.abort();
+        logger.error( e.getMessage(), e );
         throw new IllegalStateException( "This should never happen " + e );
       }
     } );
   }
 
-  public class FixedParquetOutputFormat extends ParquetOutputFormat<RowMetaAndData> {
+  /**
+   * Native output format used outside of a map reduce task. The record writer writes straight to the given file, which
+   * is the temporary file of a {@link PendingOutputFile}, instead of the work file of an output committer.
+   */
+  public static class FixedParquetOutputFormat extends ParquetOutputFormat<RowMetaAndData> {
     public FixedParquetOutputFormat( PentahoParquetWriteSupport writeSupport ) {
       super( writeSupport );
     }
 
-    @Override
-    public Path getDefaultWorkFile( TaskAttemptContext context, String extension ) throws IOException {
-      return outputFile;
+    public ParquetRecordWriter<RowMetaAndData> getRecordWriter( Configuration conf, Path file )
+      throws IOException, InterruptedException {
+      return (ParquetRecordWriter<RowMetaAndData>) getRecordWriter( conf, file, getCompression( conf ),
+        ParquetFileWriter.Mode.CREATE );
     }
   }
 
@@ -0,0 +1,36 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter;
+
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetDelegate;
+
+public class TwitterParquetDelegate implements ParquetDelegate {
+
+  @Override
+  public String getName() {
+    return "TWITTER";
+  }
+
+  @Override
+  public IPentahoParquetInputFormat createInputFormat( NamedCluster namedCluster ) {
+    return new PentahoTwitterInputFormat( namedCluster );
+  }
+
+  @Override
+  public IPentahoParquetOutputFormat createOutputFormat( NamedCluster namedCluster ) {
+    return new PentahoTwitterOutputFormat();
+  }
+}
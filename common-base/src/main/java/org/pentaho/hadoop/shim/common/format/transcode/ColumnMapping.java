@@ -0,0 +1,243 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.transcode;
+
+import org.apache.orc.TypeDescription;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.IntLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimestampLogicalTypeAnnotation;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Type of one top level column as seen by both formats. The mapping is resolved once per file, the copy loops only
+ * switch on {@link Kind}.
+ */
+final class ColumnMapping {
+
+  static final int MAX_DECIMAL_PRECISION = 38;
+  private static final int MAX_INT32_DECIMAL_PRECISION = 9;
+  private static final int MAX_INT64_DECIMAL_PRECISION = 18;
+
+  enum Kind {
+    BOOLEAN, INT, UNSIGNED_INT, LONG, FLOAT, DOUBLE, STRING, BINARY, DECIMAL, DATE,
+    TIMESTAMP_INT96, TIMESTAMP_MILLIS, TIMESTAMP_MICROS, TIMESTAMP_NANOS
+  }
+
+  final String name;
+  final Kind kind;
+  /**
+   * Bit width of {@link Kind#INT} columns, 8 and 16 keep ORC tinyint and smallint columns apart from int ones.
+   */
+  final int bitWidth;
+  final int precision;
+  final int scale;
+
+  private ColumnMapping( String name, Kind kind, int bitWidth, int precision, int scale ) {
+    this.name = name;
+    this.kind = kind;
+    this.bitWidth = bitWidth;
+    this.precision = precision;
+    this.scale = scale;
+  }
+
+  private static ColumnMapping of( String name, Kind kind ) {
+    return new ColumnMapping( name, kind, 0, 0, 0 );
+  }
+
+  static ColumnMapping fromOrc( String name, TypeDescription type ) {
+    switch ( type.getCategory() ) {
+      case BOOLEAN:
+        return of( name, Kind.BOOLEAN );
+      case BYTE:
+        return new ColumnMapping( name, Kind.INT, 8, 0, 0 );
+      case SHORT:
+        return new ColumnMapping( name, Kind.INT, 16, 0, 0 );
+      case INT:
+        return new ColumnMapping( name, Kind.INT, 32, 0, 0 );
+      case LONG:
+        return of( name, Kind.LONG );
+      case FLOAT:
+        return of( name, Kind.FLOAT );
+      case DOUBLE:
+        return of( name, Kind.DOUBLE );
+      case STRING:
+      case VARCHAR:
+      case CHAR:
+        return of( name, Kind.STRING );
+      case BINARY:
+        return of( name, Kind.BINARY );
+      case DECIMAL:
+        return new ColumnMapping( name, Kind.DECIMAL, 0, type.getPrecision(), type.getScale() );
+      case DATE:
+        return of( name, Kind.DATE );
+      case TIMESTAMP:
+      case TIMESTAMP_INSTANT:
+        // INT96 keeps the nanoseconds and is understood by the Parquet reader of this shim
+        return of( name, Kind.TIMESTAMP_INT96 );
+      default:
+        throw unsupported( name, type.toString() );
+    }
+  }
+
+  static ColumnMapping fromParquet( Type type ) {
+    String name = type.getName();
+    if ( !type.isPrimitive() || type.isRepetition( Type.Repetition.REPEATED ) ) {
+      throw unsupported( name, type.toString() );
+    }
+    PrimitiveType primitive = type.asPrimitiveType();
+    LogicalTypeAnnotation annotation = primitive.getLogicalTypeAnnotation();
+    if ( annotation instanceof DecimalLogicalTypeAnnotation ) {
+      DecimalLogicalTypeAnnotation decimal = (DecimalLogicalTypeAnnotation) annotation;
+      if ( decimal.getPrecision() > MAX_DECIMAL_PRECISION ) {
+        throw unsupported( name, type.toString() );
+      }
+      return new ColumnMapping( name, Kind.DECIMAL, 0, decimal.getPrecision(), decimal.getScale() );
+    }
+    switch ( primitive.getPrimitiveTypeName() ) {
+      case BOOLEAN:
+        return of( name, Kind.BOOLEAN );
+      case INT32:
+        if ( annotation instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation ) {
+          return of( name, Kind.DATE );
+        }
+        if ( annotation instanceof IntLogicalTypeAnnotation ) {
+          IntLogicalTypeAnnotation intType = (IntLogicalTypeAnnotation) annotation;
+          if ( !intType.isSigned() ) {
+            return intType.getBitWidth() == 32 ? of( name, Kind.UNSIGNED_INT )
+              : new ColumnMapping( name, Kind.INT, 32, 0, 0 );
+          }
+          return new ColumnMapping( name, Kind.INT, intType.getBitWidth(), 0, 0 );
+        }
+        return new ColumnMapping( name, Kind.INT, 32, 0, 0 );
+      case INT64:
+        if ( annotation instanceof TimestampLogicalTypeAnnotation ) {
+          switch ( ( (TimestampLogicalTypeAnnotation) annotation ).getUnit() ) {
+            case MILLIS:
+              return of( name, Kind.TIMESTAMP_MILLIS );
+            case MICROS:
+              return of( name, Kind.TIMESTAMP_MICROS );
+            default:
+              return of( name, Kind.TIMESTAMP_NANOS );
+          }
+        }
+        if ( annotation instanceof IntLogicalTypeAnnotation
+          && !( (IntLogicalTypeAnnotation) annotation ).isSigned() ) {
+          // ORC has no type for the upper half of unsigned 64 bit values
+          throw unsupported( name, type.toString() );
+        }
+        return of( name, Kind.LONG );
+      case INT96:
+        return of( name, Kind.TIMESTAMP_INT96 );
+      case FLOAT:
+        return of( name, Kind.FLOAT );
+      case DOUBLE:
+        return of( name, Kind.DOUBLE );
+      case BINARY:
+        if ( annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation
+          || annotation instanceof LogicalTypeAnnotation.EnumLogicalTypeAnnotation
+          || annotation instanceof LogicalTypeAnnotation.JsonLogicalTypeAnnotation ) {
+          return of( name, Kind.STRING );
+        }
+        return of( name, Kind.BINARY );
+      case FIXED_LEN_BYTE_ARRAY:
+        return of( name, Kind.BINARY );
+      default:
+        throw unsupported( name, type.toString() );
+    }
+  }
+
+  TypeDescription toOrc() {
+    switch ( kind ) {
+      case BOOLEAN:
+        return TypeDescription.createBoolean();
+      case INT:
+        if ( bitWidth == 8 ) {
+          return TypeDescription.createByte();
+        }
+        return bitWidth == 16 ? TypeDescription.createShort() : TypeDescription.createInt();
+      case UNSIGNED_INT:
+      case LONG:
+        return TypeDescription.createLong();
+      case FLOAT:
+        return TypeDescription.createFloat();
+      case DOUBLE:
+        return TypeDescription.createDouble();
+      case STRING:
+        return TypeDescription.createString();
+      case BINARY:
+        return TypeDescription.createBinary();
+      case DECIMAL:
+        return TypeDescription.createDecimal().withPrecision( precision ).withScale( scale );
+      case DATE:
+        return TypeDescription.createDate();
+      default:
+        return TypeDescription.createTimestamp();
+    }
+  }
+
+  /**
+   * @return the optional Parquet column, ORC columns are always nullable
+   */
+  Type toParquet() {
+    switch ( kind ) {
+      case BOOLEAN:
+        return Types.optional( PrimitiveTypeName.BOOLEAN ).named( name );
+      case INT:
+        if ( bitWidth < 32 ) {
+          return Types.optional( PrimitiveTypeName.INT32 ).as( LogicalTypeAnnotation.intType( bitWidth, true ) )
+            .named( name );
+        }
+        return Types.optional( PrimitiveTypeName.INT32 ).named( name );
+      case UNSIGNED_INT:
+      case LONG:
+        return Types.optional( PrimitiveTypeName.INT64 ).named( name );
+      case FLOAT:
+        return Types.optional( PrimitiveTypeName.FLOAT ).named( name );
+      case DOUBLE:
+        return Types.optional( PrimitiveTypeName.DOUBLE ).named( name );
+      case STRING:
+        return Types.optional( PrimitiveTypeName.BINARY ).as( LogicalTypeAnnotation.stringType() ).named( name );
+      case BINARY:
+        return Types.optional( PrimitiveTypeName.BINARY ).named( name );
+      case DECIMAL:
+        LogicalTypeAnnotation decimal = LogicalTypeAnnotation.decimalType( scale, precision );
+        if ( precision <= MAX_INT32_DECIMAL_PRECISION ) {
+          return Types.optional( PrimitiveTypeName.INT32 ).as( decimal ).named( name );
+        }
+        if ( precision <= MAX_INT64_DECIMAL_PRECISION ) {
+          return Types.optional( PrimitiveTypeName.INT64 ).as( decimal ).named( name );
+        }
+        return Types.optional( PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY ).length( decimalBytes( precision ) )
+          .as( decimal ).named( name );
+      case DATE:
+        return Types.optional( PrimitiveTypeName.INT32 ).as( LogicalTypeAnnotation.dateType() ).named( name );
+      default:
+        return Types.optional( PrimitiveTypeName.INT96 ).named( name );
+    }
+  }
+
+  /**
+   * @return the minimal number of bytes holding the two's complement of every unscaled value of the precision
+   */
+  static int decimalBytes( int precision ) {
+    return (int) Math.ceil( ( precision * Math.log( 10 ) / Math.log( 2 ) + 1 ) / 8 );
+  }
+
+  private static IllegalArgumentException unsupported( String name, String type ) {
+    return new IllegalArgumentException( "Column " + name + " of type " + type + " cannot be transcoded" );
+  }
+}
@@ -0,0 +1,185 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.transcode;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IFormatTranscoder;
+import org.pentaho.hadoop.shim.common.format.HadoopFormatBase;
+import org.pentaho.hadoop.shim.common.format.PendingOutputFile;
+import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transcodes between ORC and Parquet on column batches. ORC batches are handed to the Parquet writer row by row
+ * through {@link OrcBatchWriteSupport}, Parquet row groups are read column by column into ORC batches by
+ * {@link ParquetColumnBatchReader}. No value passes through a Pentaho row.
+ */
+public class FormatTranscoder extends HadoopFormatBase implements IFormatTranscoder {
+
+  static final String PARQUET_SCHEMA_NAME = "parquet-schema";
+
+  private final Configuration conf;
+  private CompressionCodecName parquetCompression = CompressionCodecName.UNCOMPRESSED;
+  private CompressionKind orcCompression = CompressionKind.ZLIB;
+
+  public FormatTranscoder( NamedCluster namedCluster ) {
+    conf = inClassloader( () -> createConfigurationWithClassLoader( namedCluster, getClass().getClassLoader() ) );
+  }
+
+  @Override
+  public long transcode( String sourceFile, Format sourceFormat, String targetFile, Format targetFormat,
+                         boolean overwrite ) {
+    if ( sourceFormat == targetFormat ) {
+      throw new IllegalArgumentException( "Source and target are both " + sourceFormat + " files" );
+    }
+    return inClassloader( () -> {
+      Path source = resolve( sourceFile );
+      Path target = resolve( targetFile );
+      FileSystem targetFs = getFileSystem( target );
+      if ( !overwrite && targetFs.exists( target ) ) {
+        throw new FileAlreadyExistsException( targetFile );
+      }
+      PendingOutputFile pendingFile = new PendingOutputFile( targetFs, target );
+      long rows;
+      try {
+        rows = sourceFormat == Format.ORC
+          ? orcToParquet( source, pendingFile.getTempPath() )
+          : parquetToOrc( source, pendingFile.getTempPath(), targetFs );
+      } catch ( IOException | RuntimeException e ) {
+        pendingFile.abort();
+        throw e;
+      }
+      pendingFile.commit( overwrite );
+      return rows;
+    } );
+  }
+
+  /**
+   * @return file system the ORC files and the target file are accessed through
+   */
+  protected FileSystem getFileSystem( Path path ) throws IOException {
+    return FileSystem.get( path.toUri(), conf );
+  }
+
+  private Path resolve( String file ) {
+    new S3NCredentialUtils().applyS3CredentialsToHadoopConfigurationIfNecessary( file, conf );
+    return new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) );
+  }
+
+  private long orcToParquet( Path source, Path target ) throws IOException {
+    FileSystem sourceFs = getFileSystem( source );
+    try ( Reader reader = OrcFile.createReader( source, OrcFile.readerOptions( conf ).filesystem( sourceFs ) ) ) {
+      TypeDescription orcSchema = reader.getSchema();
+      if ( orcSchema.getCategory() != TypeDescription.Category.STRUCT ) {
+        throw new IllegalArgumentException( "ORC file " + source + " has no struct schema" );
+      }
+      List<String> names = orcSchema.getFieldNames();
+      ColumnMapping[] columns = new ColumnMapping[ names.size() ];
+      List<Type> fields = new ArrayList<>( names.size() );
+      for ( int i = 0; i < columns.length; i++ ) {
+        columns[ i ] = ColumnMapping.fromOrc( names.get( i ), orcSchema.getChildren().get( i ) );
+        fields.add( columns[ i ].toParquet() );
+      }
+      OrcBatchWriteSupport writeSupport =
+        new OrcBatchWriteSupport( new MessageType( PARQUET_SCHEMA_NAME, fields ), columns );
+
+      long rows = 0;
+      try ( RecordReader recordReader = reader.rows();
+            ParquetWriter<OrcBatchWriteSupport.BatchRow> writer = createParquetWriter( target, writeSupport ) ) {
+        OrcBatchWriteSupport.BatchRow batchRow = new OrcBatchWriteSupport.BatchRow();
+        batchRow.batch = orcSchema.createRowBatch();
+        while ( recordReader.nextBatch( batchRow.batch ) ) {
+          for ( batchRow.row = 0; batchRow.row < batchRow.batch.size; batchRow.row++ ) {
+            writer.write( batchRow );
+          }
+          rows += batchRow.batch.size;
+        }
+      }
+      return rows;
+    }
+  }
+
+  private ParquetWriter<OrcBatchWriteSupport.BatchRow> createParquetWriter( Path target,
+                                                                           OrcBatchWriteSupport writeSupport )
+    throws IOException {
+    return new OrcBatchWriteSupport.Builder( target, writeSupport )
+      .withConf( conf )
+      .withCompressionCodec( parquetCompression )
+      .withWriteMode( ParquetFileWriter.Mode.CREATE )
+      .build();
+  }
+
+  private long parquetToOrc( Path source, Path target, FileSystem targetFs ) throws IOException {
+    try ( ParquetFileReader reader = ParquetFileReader.open( HadoopInputFile.fromPath( source, conf ) ) ) {
+      FileMetaData metaData = reader.getFooter().getFileMetaData();
+      MessageType schema = metaData.getSchema();
+      ColumnMapping[] columns = new ColumnMapping[ schema.getFieldCount() ];
+      TypeDescription orcSchema = TypeDescription.createStruct();
+      for ( int i = 0; i < columns.length; i++ ) {
+        columns[ i ] = ColumnMapping.fromParquet( schema.getType( i ) );
+        orcSchema.addField( columns[ i ].name, columns[ i ].toOrc() );
+      }
+
+      long rows = 0;
+      try ( Writer writer = OrcFile.createWriter( target, OrcFile.writerOptions( conf )
+        .setSchema( orcSchema )
+        .fileSystem( targetFs )
+        .compress( orcCompression ) ) ) {
+        VectorizedRowBatch batch = orcSchema.createRowBatch();
+        PageReadStore rowGroup;
+        while ( ( rowGroup = reader.readNextRowGroup() ) != null ) {
+          ParquetColumnBatchReader batchReader =
+            new ParquetColumnBatchReader( rowGroup, schema, metaData.getCreatedBy(), columns );
+          while ( batchReader.nextBatch( batch ) ) {
+            writer.addRowBatch( batch );
+            rows += batch.size;
+          }
+        }
+      }
+      return rows;
+    }
+  }
+
+  @Override
+  public void setParquetCompression( CompressionCodecName compression ) {
+    this.parquetCompression = compression == null ? CompressionCodecName.UNCOMPRESSED : compression;
+  }
+
+  @Override
+  public void setOrcCompression( CompressionKind compression ) {
+    this.orcCompression = compression == null ? CompressionKind.NONE : compression;
+  }
+}
@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.transcode;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+
+/**
+ * Writes the rows of an ORC column batch straight from the column vectors to the Parquet record consumer.
+ */
+class OrcBatchWriteSupport extends WriteSupport<OrcBatchWriteSupport.BatchRow> {
+
+  private static final long SECONDS_PER_DAY = 86400L;
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final int MAX_INT32_DECIMAL_PRECISION = 9;
+  private static final int MAX_INT64_DECIMAL_PRECISION = 18;
+
+  /**
+   * Position in the current batch, one instance is reused for all rows.
+   */
+  static final class BatchRow {
+    VectorizedRowBatch batch;
+    int row;
+  }
+
+  private final MessageType schema;
+  private final ColumnMapping[] columns;
+  private final byte[] int96 = new byte[ 12 ];
+  private final ByteBuffer int96Buffer = ByteBuffer.wrap( int96 ).order( ByteOrder.LITTLE_ENDIAN );
+  private RecordConsumer recordConsumer;
+
+  OrcBatchWriteSupport( MessageType schema, ColumnMapping[] columns ) {
+    this.schema = schema;
+    this.columns = columns;
+  }
+
+  @Override
+  public WriteContext init( Configuration configuration ) {
+    return new WriteContext( schema, new HashMap<>() );
+  }
+
+  @Override
+  public void prepareForWrite( RecordConsumer recordConsumer ) {
+    this.recordConsumer = recordConsumer;
+  }
+
+  @Override
+  public void write( BatchRow record ) {
+    recordConsumer.startMessage();
+    for ( int i = 0; i < columns.length; i++ ) {
+      ColumnVector vector = record.batch.cols[ i ];
+      int row = vector.isRepeating ? 0 : record.row;
+      if ( !vector.noNulls && vector.isNull[ row ] ) {
+        continue;
+      }
+      recordConsumer.startField( columns[ i ].name, i );
+      writeValue( columns[ i ], vector, row );
+      recordConsumer.endField( columns[ i ].name, i );
+    }
+    recordConsumer.endMessage();
+  }
+
+  private void writeValue( ColumnMapping column, ColumnVector vector, int row ) {
+    switch ( column.kind ) {
+      case BOOLEAN:
+        recordConsumer.addBoolean( ( (LongColumnVector) vector ).vector[ row ] != 0 );
+        break;
+      case INT:
+      case DATE:
+        recordConsumer.addInteger( (int) ( (LongColumnVector) vector ).vector[ row ] );
+        break;
+      case LONG:
+        recordConsumer.addLong( ( (LongColumnVector) vector ).vector[ row ] );
+        break;
+      case FLOAT:
+        recordConsumer.addFloat( (float) ( (DoubleColumnVector) vector ).vector[ row ] );
+        break;
+      case DOUBLE:
+        recordConsumer.addDouble( ( (DoubleColumnVector) vector ).vector[ row ] );
+        break;
+      case STRING:
+      case BINARY:
+        BytesColumnVector bytes = (BytesColumnVector) vector;
+        // the vector buffers are reused for the next batch, the writer copies values it keeps
+        recordConsumer.addBinary(
+          Binary.fromReusedByteArray( bytes.vector[ row ], bytes.start[ row ], bytes.length[ row ] ) );
+        break;
+      case DECIMAL:
+        writeDecimal( column, ( (DecimalColumnVector) vector ).vector[ row ].getHiveDecimal().bigDecimalValue()
+          .setScale( column.scale, RoundingMode.HALF_UP ).unscaledValue() );
+        break;
+      case TIMESTAMP_INT96:
+        TimestampColumnVector timestamps = (TimestampColumnVector) vector;
+        long seconds = Math.floorDiv( timestamps.time[ row ], 1000L );
+        int96Buffer.clear();
+        int96Buffer.putLong( Math.floorMod( seconds, SECONDS_PER_DAY ) * NANOS_PER_SECOND + timestamps.nanos[ row ] );
+        int96Buffer.putInt( (int) ( Math.floorDiv( seconds, SECONDS_PER_DAY ) + ParquetSpec.JULIAN_DAY_OF_EPOCH ) );
+        recordConsumer.addBinary( Binary.fromReusedByteArray( int96 ) );
+        break;
+      default:
+        throw new IllegalStateException( "Unexpected column kind " + column.kind );
+    }
+  }
+
+  private void writeDecimal( ColumnMapping column, BigInteger unscaled ) {
+    if ( column.precision <= MAX_INT32_DECIMAL_PRECISION ) {
+      recordConsumer.addInteger( unscaled.intValue() );
+    } else if ( column.precision <= MAX_INT64_DECIMAL_PRECISION ) {
+      recordConsumer.addLong( unscaled.longValue() );
+    } else {
+      recordConsumer.addBinary( Binary.fromConstantByteArray( toFixed( unscaled,
+        ColumnMapping.decimalBytes( column.precision ), column.name ) ) );
+    }
+  }
+
+  /**
+   * @return the two's complement of {@code unscaled} sign extended to {@code length} bytes
+   */
+  static byte[] toFixed( BigInteger unscaled, int length, String columnName ) {
+    byte[] bytes = unscaled.toByteArray();
+    if ( bytes.length > length ) {
+      throw new IllegalArgumentException( "Decimal value of column " + columnName + " exceeds its precision" );
+    }
+    byte[] fixed = new byte[ length ];
+    byte padding = unscaled.signum() < 0 ? (byte) 0xFF : 0;
+    for ( int i = 0; i < length - bytes.length; i++ ) {
+      fixed[ i ] = padding;
+    }
+    System.arraycopy( bytes, 0, fixed, length - bytes.length, bytes.length );
+    return fixed;
+  }
+
+  static class Builder extends ParquetWriter.Builder<BatchRow, Builder> {
+    private final OrcBatchWriteSupport writeSupport;
+
+    Builder( Path file, OrcBatchWriteSupport writeSupport ) {
+      super( file );
+      this.writeSupport = writeSupport;
+    }
+
+    @Override
+    protected Builder self() {
+      return this;
+    }
+
+    @Override
+    protected WriteSupport<BatchRow> getWriteSupport( Configuration conf ) {
+      return writeSupport;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.transcode;
+
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Fills ORC column batches column by column from the pages of one Parquet row group. Only flat schemas are read, so
+ * every row holds exactly one value or null per column.
+ */
+class ParquetColumnBatchReader {
+
+  private static final long SECONDS_PER_DAY = 86400L;
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  private final ColumnMapping[] columns;
+  private final ColumnReader[] readers;
+  private final PrimitiveTypeName[] physicalTypes;
+  private final int[] maxDefinitionLevels;
+  private long remaining;
+
+  ParquetColumnBatchReader( PageReadStore rowGroup, MessageType schema, String createdBy, ColumnMapping[] columns ) {
+    this.columns = columns;
+    ColumnReadStoreImpl store = new ColumnReadStoreImpl( rowGroup, new ValueIgnoringConverter(), schema, createdBy );
+    List<ColumnDescriptor> descriptors = schema.getColumns();
+    readers = new ColumnReader[ columns.length ];
+    physicalTypes = new PrimitiveTypeName[ columns.length ];
+    maxDefinitionLevels = new int[ columns.length ];
+    for ( int i = 0; i < columns.length; i++ ) {
+      ColumnDescriptor descriptor = descriptors.get( i );
+      readers[ i ] = store.getColumnReader( descriptor );
+      physicalTypes[ i ] = descriptor.getPrimitiveType().getPrimitiveTypeName();
+      maxDefinitionLevels[ i ] = descriptor.getMaxDefinitionLevel();
+    }
+    remaining = rowGroup.getRowCount();
+  }
+
+  /**
+   * Replaces the content of {@code batch} with the next rows of the row group.
+   *
+   * @return false when the row group has no more rows
+   */
+  boolean nextBatch( VectorizedRowBatch batch ) {
+    batch.reset();
+    if ( remaining == 0 ) {
+      return false;
+    }
+    int count = (int) Math.min( remaining, batch.getMaxSize() );
+    for ( int i = 0; i < columns.length; i++ ) {
+      fill( i, batch.cols[ i ], count );
+    }
+    batch.size = count;
+    remaining -= count;
+    return true;
+  }
+
+  private void fill( int column, ColumnVector vector, int count ) {
+    ColumnReader reader = readers[ column ];
+    if ( vector instanceof BytesColumnVector ) {
+      ( (BytesColumnVector) vector ).initBuffer();
+    }
+    for ( int row = 0; row < count; row++ ) {
+      if ( reader.getCurrentDefinitionLevel() < maxDefinitionLevels[ column ] ) {
+        vector.noNulls = false;
+        vector.isNull[ row ] = true;
+      } else {
+        readValue( column, reader, vector, row );
+      }
+      reader.consume();
+    }
+  }
+
+  private void readValue( int column, ColumnReader reader, ColumnVector vector, int row ) {
+    switch ( columns[ column ].kind ) {
+      case BOOLEAN:
+        ( (LongColumnVector) vector ).vector[ row ] = reader.getBoolean() ? 1L : 0L;
+        break;
+      case INT:
+      case DATE:
+        ( (LongColumnVector) vector ).vector[ row ] = reader.getInteger();
+        break;
+      case UNSIGNED_INT:
+        ( (LongColumnVector) vector ).vector[ row ] = Integer.toUnsignedLong( reader.getInteger() );
+        break;
+      case LONG:
+        ( (LongColumnVector) vector ).vector[ row ] = reader.getLong();
+        break;
+      case FLOAT:
+        ( (DoubleColumnVector) vector ).vector[ row ] = reader.getFloat();
+        break;
+      case DOUBLE:
+        ( (DoubleColumnVector) vector ).vector[ row ] = reader.getDouble();
+        break;
+      case STRING:
+      case BINARY:
+        byte[] bytes = reader.getBinary().getBytesUnsafe();
+        ( (BytesColumnVector) vector ).setVal( row, bytes, 0, bytes.length );
+        break;
+      case DECIMAL:
+        ( (DecimalColumnVector) vector ).vector[ row ].set( HiveDecimal.create( readDecimal( column, reader ) ) );
+        break;
+      case TIMESTAMP_INT96:
+        ByteBuffer int96 = reader.getBinary().toByteBuffer().order( ByteOrder.LITTLE_ENDIAN );
+        long nanosOfDay = int96.getLong();
+        long epochDay = int96.getInt() - (long) ParquetSpec.JULIAN_DAY_OF_EPOCH;
+        setTimestamp( vector, row, epochDay * SECONDS_PER_DAY + nanosOfDay / NANOS_PER_SECOND,
+          nanosOfDay % NANOS_PER_SECOND );
+        break;
+      case TIMESTAMP_MILLIS:
+        long millis = reader.getLong();
+        setTimestamp( vector, row, Math.floorDiv( millis, 1000L ), Math.floorMod( millis, 1000L ) * NANOS_PER_MILLI );
+        break;
+      case TIMESTAMP_MICROS:
+        long micros = reader.getLong();
+        setTimestamp( vector, row, Math.floorDiv( micros, 1_000_000L ), Math.floorMod( micros, 1_000_000L ) * 1000L );
+        break;
+      case TIMESTAMP_NANOS:
+        long nanos = reader.getLong();
+        setTimestamp( vector, row, Math.floorDiv( nanos, NANOS_PER_SECOND ), Math.floorMod( nanos, NANOS_PER_SECOND ) );
+        break;
+      default:
+        throw new IllegalStateException( "Unexpected column kind " + columns[ column ].kind );
+    }
+  }
+
+  private BigDecimal readDecimal( int column, ColumnReader reader ) {
+    int scale = columns[ column ].scale;
+    switch ( physicalTypes[ column ] ) {
+      case INT32:
+        return BigDecimal.valueOf( reader.getInteger(), scale );
+      case INT64:
+        return BigDecimal.valueOf( reader.getLong(), scale );
+      default:
+        Binary unscaled = reader.getBinary();
+        return new BigDecimal( new BigInteger( unscaled.getBytesUnsafe() ), scale );
+    }
+  }
+
+  private static void setTimestamp( ColumnVector vector, int row, long epochSeconds, long nanosOfSecond ) {
+    TimestampColumnVector timestamps = (TimestampColumnVector) vector;
+    timestamps.time[ row ] = epochSeconds * 1000L + nanosOfSecond / NANOS_PER_MILLI;
+    timestamps.nanos[ row ] = (int) nanosOfSecond;
+  }
+
+  /**
+   * The column readers require a converter for every column, the values are taken from the readers directly.
+   */
+  private static final class ValueIgnoringConverter extends GroupConverter {
+    private final PrimitiveConverter primitiveConverter = new PrimitiveConverter() {
+    };
+
+    @Override
+    public Converter getConverter( int fieldIndex ) {
+      return primitiveConverter;
+    }
+
+    @Override
+    public void start() {
+      // values are not materialized
+    }
+
+    @Override
+    public void end() {
+      // values are not materialized
+    }
+  }
+}
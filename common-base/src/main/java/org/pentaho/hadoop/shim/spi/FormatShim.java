@@ -15,6 +15,7 @@ package org.pentaho.hadoop.shim.spi;
 
 
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IFormatTranscoder;
 import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat;
 
@@ -22,4 +23,6 @@ public interface FormatShim extends PentahoHadoopShim {
   <T extends IPentahoInputFormat> T createInputFormat( Class<T> type, NamedCluster namedCluster );
 
   <T extends IPentahoOutputFormat> T createOutputFormat( Class<T> type, NamedCluster namedCluster );
+
+  IFormatTranscoder createTranscoder( NamedCluster namedCluster );
 }
@@ -21,10 +21,16 @@ import java.util.Properties;
 
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
 import org.pentaho.hadoop.shim.api.internal.Configuration;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
 import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
 
 @SuppressWarnings( "squid:S112" )
 public interface HBaseConnection {
@@ -64,6 +70,8 @@ public interface HBaseConnection {
 
   // constant HTable writing keys
   public static final String HTABLE_WRITE_BUFFER_SIZE_KEY = "htable.writeBufferSize";
+  public static final String HTABLE_PERIODIC_FLUSH_MILLIS_KEY = "htable.periodicFlushMillis";
+  public static final String HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY = "htable.maxInFlightMutations";
 
   /**
    * Method for getting a byte utility implementation
@@ -197,6 +205,34 @@ public interface HBaseConnection {
    */
   public abstract boolean sourceTableRowExists( byte[] rowKey ) throws Exception;
 
+  /**
+   * Checks which of the row keys exist in the source table. With columns in the options a row only counts when it
+   * has at least one of them. The default implementation checks one key after the other.
+   *
+   * @param rowKeys the row keys to check for
+   * @param options chunking, parallelism and columns of the lookup
+   * @return one flag per row key in the order of {@code rowKeys}
+   * @throws Exception if a problem occurs
+   */
+  default boolean[] sourceTableRowsExist( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    boolean[] exist = new boolean[ rowKeys.size() ];
+    for ( int i = 0; i < exist.length; i++ ) {
+      exist[ i ] = sourceTableRowExists( rowKeys.get( i ) );
+    }
+    return exist;
+  }
+
+  /**
+   * Fetches rows of the source table, limited to the columns of the options if there are any.
+   *
+   * @param rowKeys the row keys to fetch
+   * @param options chunking, parallelism and columns of the lookup
+   * @return one row per row key in the order of {@code rowKeys}, null where there is no row. The rows can be passed to
+   * the methods taking a row object, e.g. {@link #getRowColumnLatest(Object, String, String, boolean)}
+   * @throws Exception if a problem occurs
+   */
+  public abstract List<Object> sourceTableGetRows( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception;
+
   /**
    * Configure a new source table scan. HBase can do a full table scan if no lower and upper bound are supplied or an
    * open upper-ended scan if a lower bound but no upper bound is specified. An upper bound with no lower bound is not
@@ -210,6 +246,14 @@ public interface HBaseConnection {
   public abstract void newSourceTableScan( byte[] keyLowerBound,
                                            byte[] keyUpperBound, int cacheSize ) throws Exception;
 
+  /**
+   * Limits the bytes the region servers return for one request of the current source table scan.
+   *
+   * @param maxResultSize size in bytes
+   * @throws Exception if no source table scan has been configured or if a problem occurs
+   */
+  public abstract void setSourceScanMaxResultSize( long maxResultSize ) throws Exception;
+
   /**
    * Configure a new target table put
    *
@@ -268,6 +312,19 @@ public interface HBaseConnection {
                                               HBaseValueMeta columnMeta, VariableSpace vars, boolean matchAny )
     throws Exception;
 
+  /**
+   * Add a boolean expression over column filters to the current source table scan. Conditions on the key column
+   * narrow the key range of the scan, the rest is applied to the rows server-side. Filters added with
+   * {@link #addColumnFilterToScan(ColumnFilter, HBaseValueMeta, VariableSpace, boolean)} must match as well.
+   *
+   * @param expression the conditions to apply
+   * @param keyType    the key type of the mapping, which determines the encoding of the row keys
+   * @param vars       environment variables
+   * @throws Exception if a problem occurs
+   */
+  public abstract void addColumnFilterExpressionToScan( ColumnFilterExpression expression, Mapping.KeyType keyType,
+                                                        VariableSpace vars ) throws Exception;
+
   /**
    * Add a specific column to the current source table scan
    *
@@ -286,6 +343,16 @@ public interface HBaseConnection {
    */
   public abstract void executeSourceTableScan() throws Exception;
 
+  /**
+   * Execute the current source table scan as several range scans running in parallel. The scan range is split at the
+   * region boundaries of the source table or at the split keys of the options. The rows are read with
+   * {@link #resultSetNextRow()} like the rows of a sequential scan.
+   *
+   * @param options parallelism, ordering and split keys of the scan
+   * @throws Exception if a problem occurs
+   */
+  public abstract void executeParallelSourceTableScan( ParallelScanOptions options ) throws Exception;
+
   /**
    * Advance the source table scanner to the next row.
    *
@@ -295,6 +362,16 @@ public interface HBaseConnection {
    */
   public abstract boolean resultSetNextRow() throws Exception;
 
+  /**
+   * Advance the source table scanner by as many rows as fit into the batch. The batch is cleared first, then the row
+   * key and the columns of the batch are decoded for every row read. The last row read becomes the current row.
+   *
+   * @param batch the batch to fill
+   * @return number of rows read; 0 if there is no next row
+   * @throws Exception if the scan has not been "executed" or if a problem occurs
+   */
+  public abstract int resultSetNextRows( HBaseRowBatch batch ) throws Exception;
+
   /**
    * Get the row key of the supplied row object.
    *
@@ -417,6 +494,16 @@ public interface HBaseConnection {
    */
   public abstract void newTargetTable( String tableName, Properties props ) throws Exception;
 
+  /**
+   * Returns and clears the rows of the target table which were rejected by HBase since the last call. Connections
+   * which report write failures by throwing them right away return an empty report.
+   *
+   * @throws Exception if a problem occurs
+   */
+  default HBaseWriteErrorReport takeTargetTableWriteErrors() throws Exception {
+    return HBaseWriteErrorReport.empty();
+  }
+
   /**
    * Close the target table
    *
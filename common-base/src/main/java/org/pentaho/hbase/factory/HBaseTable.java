@@ -13,18 +13,53 @@
 package org.pentaho.hbase.factory;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
 
 public interface HBaseTable {
   Result get( Get toGet ) throws IOException;
 
+  /**
+   * Fetches several rows with one request per region server instead of one per row.
+   *
+   * @return one result per get in the same order, empty where there is no row
+   */
+  default Result[] get( List<Get> gets ) throws IOException {
+    Result[] results = new Result[ gets.size() ];
+    for ( int i = 0; i < results.length; i++ ) {
+      results[ i ] = get( gets.get( i ) );
+    }
+    return results;
+  }
+
+  /**
+   * Checks several rows for existence without transferring their data.
+   *
+   * @return one flag per get in the same order
+   */
+  default boolean[] exists( List<Get> gets ) throws IOException {
+    boolean[] exist = new boolean[ gets.size() ];
+    for ( int i = 0; i < exist.length; i++ ) {
+      exist[ i ] = !get( gets.get( i ) ).isEmpty();
+    }
+    return exist;
+  }
+
   ResultScanner getScanner( Scan s ) throws IOException;
 
+  /**
+   * @return locator of the regions of the table, to be closed by the caller, or null when the table has no region
+   * information
+   */
+  RegionLocator getRegionLocator() throws IOException;
+
   void put( HBasePut put ) throws IOException;
 
   void close() throws IOException;
@@ -38,4 +73,22 @@ public interface HBaseTable {
   boolean isAutoFlush() throws IOException;
 
   void setAutoFlush( boolean autoFlush ) throws IOException;
+
+  /**
+   * Applies all write settings at once. Tables without a write pipeline only honour the buffer size and auto flush.
+   */
+  default void configureWrites( HBaseWriteOptions options ) throws IOException {
+    if ( options.getWriteBufferSize() > 0 ) {
+      setWriteBufferSize( options.getWriteBufferSize() );
+    }
+    setAutoFlush( options.isAutoFlush() );
+  }
+
+  /**
+   * Returns and clears the rows rejected by HBase since the last call. Tables which throw write failures right away
+   * return an empty report.
+   */
+  default HBaseWriteErrorReport takeWriteErrorReport() throws IOException {
+    return HBaseWriteErrorReport.empty();
+  }
 }
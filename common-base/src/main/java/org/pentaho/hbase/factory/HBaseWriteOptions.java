@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hbase.factory;
+
+import org.pentaho.hadoop.shim.spi.HBaseConnection;
+
+import java.util.Properties;
+
+/**
+ * Write settings of a target table. Without a write buffer size every mutation is flushed right away, otherwise
+ * mutations are collected on the client and sent in batches.
+ */
+public class HBaseWriteOptions {
+  private final long writeBufferSize;
+  private final long periodicFlushMillis;
+  private final int maxInFlightMutations;
+  private final boolean autoFlush;
+
+  private HBaseWriteOptions( Builder builder ) {
+    writeBufferSize = builder.writeBufferSize;
+    periodicFlushMillis = builder.periodicFlushMillis;
+    maxInFlightMutations = builder.maxInFlightMutations;
+    autoFlush = builder.autoFlush;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return builder initialized with these options
+   */
+  public Builder toBuilder() {
+    return builder().writeBufferSize( writeBufferSize ).periodicFlushMillis( periodicFlushMillis )
+      .maxInFlightMutations( maxInFlightMutations ).autoFlush( autoFlush );
+  }
+
+  /**
+   * Reads the options from the constant HTable writing keys of {@link HBaseConnection}. Setting a write buffer size
+   * turns auto flush off.
+   *
+   * @throws IllegalArgumentException if a value is not a valid number
+   */
+  public static HBaseWriteOptions fromProperties( Properties props ) {
+    Builder builder = builder();
+    if ( props == null ) {
+      return builder.build();
+    }
+    String bufferSize = props.getProperty( HBaseConnection.HTABLE_WRITE_BUFFER_SIZE_KEY );
+    if ( bufferSize != null ) {
+      builder.writeBufferSize( parse( HBaseConnection.HTABLE_WRITE_BUFFER_SIZE_KEY, bufferSize ) ).autoFlush( false );
+    }
+    String periodicFlush = props.getProperty( HBaseConnection.HTABLE_PERIODIC_FLUSH_MILLIS_KEY );
+    if ( periodicFlush != null ) {
+      builder.periodicFlushMillis( parse( HBaseConnection.HTABLE_PERIODIC_FLUSH_MILLIS_KEY, periodicFlush ) );
+    }
+    String maxInFlight = props.getProperty( HBaseConnection.HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY );
+    if ( maxInFlight != null ) {
+      builder.maxInFlightMutations( parseInt( HBaseConnection.HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY, maxInFlight ) );
+    }
+    return builder.build();
+  }
+
+  private static long parse( String key, String value ) {
+    try {
+      return Long.parseLong( value.trim() );
+    } catch ( NumberFormatException e ) {
+      throw new IllegalArgumentException( "Invalid value '" + value + "' for " + key, e );
+    }
+  }
+
+  private static int parseInt( String key, String value ) {
+    try {
+      return Integer.parseInt( value.trim() );
+    } catch ( NumberFormatException e ) {
+      throw new IllegalArgumentException( "Invalid value '" + value + "' for " + key + ", expected an int", e );
+    }
+  }
+
+  /**
+   * @return client side buffer size in bytes, zero for the default of the HBase client
+   */
+  public long getWriteBufferSize() {
+    return writeBufferSize;
+  }
+
+  /**
+   * @return interval of the background flush in milliseconds, zero if disabled
+   */
+  public long getPeriodicFlushMillis() {
+    return periodicFlushMillis;
+  }
+
+  /**
+   * @return number of buffered mutations which forces a flush, zero if only the buffer size counts
+   */
+  public int getMaxInFlightMutations() {
+    return maxInFlightMutations;
+  }
+
+  public boolean isAutoFlush() {
+    return autoFlush;
+  }
+
+  public static class Builder {
+    private long writeBufferSize;
+    private long periodicFlushMillis;
+    private int maxInFlightMutations;
+    private boolean autoFlush = true;
+
+    private Builder() {
+    }
+
+    public Builder writeBufferSize( long bytes ) {
+      if ( bytes < 0 ) {
+        throw new IllegalArgumentException( "Write buffer size must not be negative: " + bytes );
+      }
+      this.writeBufferSize = bytes;
+      return this;
+    }
+
+    /**
+     * @param millis interval of the background flush, zero or less disables it
+     */
+    public Builder periodicFlushMillis( long millis ) {
+      this.periodicFlushMillis = Math.max( 0, millis );
+      return this;
+    }
+
+    /**
+     * @param mutations buffered mutations which force a flush, zero or less disables the limit
+     */
+    public Builder maxInFlightMutations( int mutations ) {
+      this.maxInFlightMutations = Math.max( 0, mutations );
+      return this;
+    }
+
+    public Builder autoFlush( boolean autoFlush ) {
+      this.autoFlush = autoFlush;
+      return this;
+    }
+
+    public HBaseWriteOptions build() {
+      return new HBaseWriteOptions( this );
+    }
+  }
+}
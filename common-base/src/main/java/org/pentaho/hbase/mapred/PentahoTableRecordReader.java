@@ -122,9 +122,7 @@ public class PentahoTableRecordReader extends TableRecordReader {
   }
 
   public float getProgress() {
-    // Depends on the total number of tuples and getPos
-
-    return m_recordReaderImpl.getPos();
+    return m_recordReaderImpl.getProgress();
   }
 
   /**
@@ -14,8 +14,10 @@
 package org.pentaho.hbase.mapred;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -43,6 +45,14 @@ public class PentahoTableRecordReaderImpl {
   static final Log LOG = LogFactory.getLog( PentahoTableRecordReaderImpl.class );
   public static final int ZERO = 0;
 
+  /**
+   * Number of key bytes following the prefix shared by the start and end row which the progress is interpolated over.
+   */
+  static final int PROGRESS_KEY_BYTES = 8;
+
+  private static final MethodHandle PARSE_COLUMN = findParseColumn();
+  private static final MethodHandle COPY_FROM = findCopyFrom();
+
   private byte[] startRow;
   private byte[] endRow;
   private byte[] lastRow;
@@ -54,6 +64,7 @@ public class PentahoTableRecordReaderImpl {
   private Long timeStamp;
   private Long timeStampStart;
   private Long timeStampEnd;
+  private boolean exhausted;
 
   /**
    * Restart from survivable exceptions by creating a new scanner.
@@ -105,18 +116,7 @@ public class PentahoTableRecordReaderImpl {
    */
   protected static void configureScanWithInputColumns( Scan scan, byte[][] inputColumns ) {
     for ( byte[] familyAndQualifier : inputColumns ) {
-      byte[][] fq = null;
-      try {
-        Method method = KeyValue.class.getMethod( "parseColumn", (Class[]) new Class[] { byte[].class } );
-        fq = (byte[][]) method.invoke( null, familyAndQualifier );
-      } catch ( Exception e1 ) {
-        try {
-          Method method = CellUtil.class.getMethod( "parseColumn", (Class[]) new Class[] { byte[].class } );
-          fq = (byte[][]) method.invoke( null, familyAndQualifier );
-        } catch ( Exception e2 ) {
-          LOG.debug( "TIFB.configureScanWithInputColumns: error calling the parseColumn method." );
-        }
-      }
+      byte[][] fq = parseColumn( familyAndQualifier );
 
       if ( fq == null ) {
         return;
@@ -130,6 +130,58 @@ public class PentahoTableRecordReaderImpl {
     }
   }
 
+  private static byte[][] parseColumn( byte[] familyAndQualifier ) {
+    if ( PARSE_COLUMN != null ) {
+      try {
+        return (byte[][]) PARSE_COLUMN.invokeExact( familyAndQualifier );
+      } catch ( Exception e ) {
+        LOG.debug( "TIFB.configureScanWithInputColumns: error calling the parseColumn method.", e );
+        return null;
+      } catch ( Throwable e ) {
+        throw rethrow( e );
+      }
+    }
+    LOG.debug( "TIFB.configureScanWithInputColumns: error calling the parseColumn method." );
+    return null;
+  }
+
+  /**
+   * Method handles declare {@link Throwable}; errors are passed on unchanged.
+   */
+  private static Error rethrow( Throwable throwable ) {
+    if ( throwable instanceof Error ) {
+      throw (Error) throwable;
+    }
+    throw new UndeclaredThrowableException( throwable );
+  }
+
+  /**
+   * Older HBase versions have parseColumn in KeyValue, newer ones in CellUtil.
+   */
+  private static MethodHandle findParseColumn() {
+    MethodType type = MethodType.methodType( byte[][].class, byte[].class );
+    for ( Class<?> owner : new Class<?>[] { KeyValue.class, CellUtil.class } ) {
+      try {
+        return MethodHandles.publicLookup().findStatic( owner, "parseColumn", type );
+      } catch ( NoSuchMethodException | IllegalAccessException e ) {
+        // try the next class
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Some versions of HBase have removed the Writable interface from Result and added a copyFrom() method.
+   */
+  private static MethodHandle findCopyFrom() {
+    try {
+      return MethodHandles.publicLookup()
+        .findVirtual( Result.class, "copyFrom", MethodType.methodType( void.class, Result.class ) );
+    } catch ( NoSuchMethodException | IllegalAccessException e ) {
+      return null;
+    }
+  }
+
   public void setScanCacheRowSize( int size ) {
     scanCacheRows = size;
   }
@@ -149,6 +201,8 @@ public class PentahoTableRecordReaderImpl {
    * @throws IOException
    */
   public void init() throws IOException {
+    exhausted = false;
+    lastRow = null;
     restart( startRow );
   }
 
@@ -217,12 +271,67 @@ public class PentahoTableRecordReaderImpl {
     return ZERO;
   }
 
+  /**
+   * @return position of the last row read between the start and end row of the split, 1 once all rows have been read
+   */
   public float getProgress() {
-    // Depends on the total number of tuples and getPos
-    return ZERO;
+    if ( exhausted ) {
+      return 1f;
+    }
+    if ( lastRow == null ) {
+      return 0f;
+    }
+    return getProgress( startRow, endRow, lastRow );
+  }
+
+  /**
+   * Interpolates the position of a row between the start and end row over the {@link #PROGRESS_KEY_BYTES} bytes
+   * following the prefix all keys in the range share. Rows read in key order never make the progress go back.
+   *
+   * @param start first row of the range, null or empty for the start of the table
+   * @param end   row after the range, null or empty for the end of the table
+   * @param row   a row of the range
+   * @return progress from 0 to 1
+   */
+  static float getProgress( byte[] start, byte[] end, byte[] row ) {
+    boolean openStart = start == null || start.length == 0;
+    boolean openEnd = end == null || end.length == 0;
+    int offset = openStart || openEnd ? 0 : commonPrefixLength( start, end );
+    double low = openStart ? 0d : keyFraction( start, offset );
+    double high = openEnd ? 1d : keyFraction( end, offset );
+    if ( high <= low ) {
+      return 0f;
+    }
+    double progress = ( keyFraction( row, offset ) - low ) / ( high - low );
+    return (float) Math.min( 1d, Math.max( 0d, progress ) );
+  }
+
+  private static int commonPrefixLength( byte[] a, byte[] b ) {
+    int length = Math.min( a.length, b.length );
+    int i = 0;
+    while ( i < length && a[ i ] == b[ i ] ) {
+      i++;
+    }
+    return i;
   }
 
   /**
+   * @return the key bytes from the offset as a fraction from 0 to 1, missing bytes count as zero
+   */
+  private static double keyFraction( byte[] key, int offset ) {
+    double fraction = 0d;
+    double scale = 1d;
+    int end = Math.min( key.length, offset + PROGRESS_KEY_BYTES );
+    for ( int i = offset; i < end; i++ ) {
+      scale /= 256;
+      fraction += ( key[ i ] & 0xff ) * scale;
+    }
+    return fraction;
+  }
+
+  /**
+   * Fills the key and value objects of the caller with the next row, so the same objects can be passed for every row.
+   *
    * @param key   HStoreKey as input key.
    * @param value MapWritable as input value
    * @return true if there was more data
@@ -247,18 +356,22 @@ public class PentahoTableRecordReaderImpl {
       // class and method
       if ( result instanceof Writable && value instanceof Writable ) {
         Writables.copyWritable( (Writable) result, (Writable) value );
+      } else if ( COPY_FROM == null ) {
+        throw new IOException( new NoSuchMethodException( Result.class.getName() + ".copyFrom" ) );
       } else {
-
         try {
-          Method m = result.getClass().getMethod( "copyFrom", Result.class );
-          m.invoke( value, result );
-        } catch ( NoSuchMethodException | SecurityException | IllegalAccessException | InvocationTargetException e ) {
+          COPY_FROM.invokeExact( value, result );
+        } catch ( RuntimeException e ) {
+          throw e;
+        } catch ( Exception e ) {
           throw new IOException( e );
+        } catch ( Throwable e ) {
+          throw rethrow( e );
         }
-
       }
       return true;
     }
+    exhausted = true;
     return false;
   }
 }
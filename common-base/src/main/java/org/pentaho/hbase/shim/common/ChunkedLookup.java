@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hbase.shim.common;
+
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a batch lookup of row keys into chunks and runs them one after the other or on a bounded number of threads.
+ * The results are put together in the order of the keys, whatever order the chunks complete in.
+ */
+public final class ChunkedLookup {
+
+  @FunctionalInterface
+  public interface ChunkFunction<T, R> {
+    /**
+     * Looks up one chunk. Runs concurrently with other chunks when the parallelism is greater than one.
+     *
+     * @param resource what the worker running the chunk opened, see {@link WorkerResources}
+     * @return one result per key in the order of {@code keys}
+     */
+    List<T> apply( List<byte[]> keys, R resource ) throws Exception;
+  }
+
+  /**
+   * Opens what a worker needs for its chunks, e.g. a table instance. A sequential lookup opens it once for all chunks,
+   * every worker of a parallel lookup opens one of its own and keeps it for all of the chunks it takes.
+   */
+  public interface WorkerResources<R> {
+    /**
+     * @param parallel whether the resource is used by one of several workers, which must not share it
+     */
+    R open( boolean parallel ) throws Exception;
+
+    void close( R resource, boolean parallel ) throws Exception;
+  }
+
+  private static final WorkerResources<Void> NO_RESOURCES = new WorkerResources<Void>() {
+    @Override
+    public Void open( boolean parallel ) {
+      return null;
+    }
+
+    @Override
+    public void close( Void resource, boolean parallel ) {
+      // nothing was opened
+    }
+  };
+
+  private ChunkedLookup() {
+  }
+
+  /**
+   * Looks up the chunks without resources of their own.
+   */
+  public static <T> List<T> lookup( List<byte[]> keys, BatchGetOptions options, ChunkFunction<T, Void> function )
+    throws Exception {
+    return lookup( keys, options, NO_RESOURCES, function );
+  }
+
+  public static <T, R> List<T> lookup( List<byte[]> keys, BatchGetOptions options, WorkerResources<R> resources,
+                                       ChunkFunction<T, R> function ) throws Exception {
+    int chunkSize = options.getChunkSize();
+    int chunks = ( keys.size() + chunkSize - 1 ) / chunkSize;
+    int workers = Math.min( options.getParallelism(), chunks );
+    Object[] results = new Object[ keys.size() ];
+
+    if ( workers <= 1 ) {
+      R resource = resources.open( false );
+      try {
+        for ( int chunk = 0; chunk < chunks; chunk++ ) {
+          runChunk( keys, chunkSize, chunk, results, function, resource );
+        }
+      } finally {
+        resources.close( resource, false );
+      }
+    } else {
+      runParallel( keys, chunkSize, chunks, workers, options.getExecutor(), results, resources, function );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    List<T> list = (List<T>) Arrays.asList( results );
+    return list;
+  }
+
+  private static <T, R> void runParallel( List<byte[]> keys, int chunkSize, int chunks, int workers,
+                                          ExecutorService executor, Object[] results, WorkerResources<R> resources,
+                                          ChunkFunction<T, R> function ) throws Exception {
+    ExecutorService owned = null;
+    if ( executor == null ) {
+      owned = Executors.newFixedThreadPool( workers, runnable -> {
+        Thread thread = new Thread( runnable, "hbase-batch-lookup" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+      executor = owned;
+    }
+    AtomicInteger nextChunk = new AtomicInteger();
+    CompletionService<Void> completion = new ExecutorCompletionService<>( executor );
+    List<Future<Void>> futures = new ArrayList<>( workers );
+    boolean completed = false;
+    try {
+      // each worker takes chunks until none are left, so no more than "workers" requests are in flight
+      for ( int i = 0; i < workers; i++ ) {
+        futures.add( completion.submit( () -> {
+          R resource = resources.open( true );
+          try {
+            for ( int chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement() ) {
+              runChunk( keys, chunkSize, chunk, results, function, resource );
+            }
+          } finally {
+            resources.close( resource, true );
+          }
+          return null;
+        } ) );
+      }
+      // the workers are awaited in the order they finish, so the first failure is seen while others still run
+      for ( int i = 0; i < workers; i++ ) {
+        try {
+          completion.take().get();
+        } catch ( ExecutionException e ) {
+          Throwable cause = e.getCause();
+          if ( cause instanceof Exception ) {
+            throw (Exception) cause;
+          }
+          throw e;
+        } catch ( CancellationException e ) {
+          throw new InterruptedException( "Batch lookup was cancelled" );
+        }
+      }
+      completed = true;
+    } finally {
+      if ( !completed ) {
+        // stops the other workers from taking more chunks and interrupts the requests in flight, also on a
+        // caller supplied executor which is not shut down here
+        nextChunk.set( chunks );
+        for ( Future<Void> future : futures ) {
+          future.cancel( true );
+        }
+      }
+      if ( owned != null ) {
+        owned.shutdownNow();
+      }
+    }
+  }
+
+  private static <T, R> void runChunk( List<byte[]> keys, int chunkSize, int chunk, Object[] results,
+                                       ChunkFunction<T, R> function, R resource ) throws Exception {
+    int from = chunk * chunkSize;
+    int to = Math.min( from + chunkSize, keys.size() );
+    List<T> chunkResults = function.apply( keys.subList( from, to ), resource );
+    if ( chunkResults.size() != to - from ) {
+      throw new IllegalStateException( "Expected " + ( to - from ) + " results but got " + chunkResults.size() );
+    }
+    for ( int i = from; i < to; i++ ) {
+      results[ i ] = chunkResults.get( i - from );
+    }
+  }
+}
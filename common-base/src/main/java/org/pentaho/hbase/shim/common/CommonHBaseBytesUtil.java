@@ -93,4 +93,48 @@ public class CommonHBaseBytesUtil implements HBaseBytesUtilShim {
   public short toShort( byte[] value ) {
     return Bytes.toShort( value );
   }
+
+  @Override public int putInt( byte[] buffer, int offset, int anInt ) {
+    Bytes.putInt( buffer, offset, anInt );
+    return Bytes.SIZEOF_INT;
+  }
+
+  @Override public int putLong( byte[] buffer, int offset, long aLong ) {
+    Bytes.putLong( buffer, offset, aLong );
+    return Bytes.SIZEOF_LONG;
+  }
+
+  @Override public int putFloat( byte[] buffer, int offset, float aFloat ) {
+    Bytes.putFloat( buffer, offset, aFloat );
+    return Bytes.SIZEOF_FLOAT;
+  }
+
+  @Override public int putDouble( byte[] buffer, int offset, double aDouble ) {
+    Bytes.putDouble( buffer, offset, aDouble );
+    return Bytes.SIZEOF_DOUBLE;
+  }
+
+  @Override public String toString( byte[] value, int offset, int length ) {
+    return Bytes.toString( value, offset, length );
+  }
+
+  @Override public long toLong( byte[] value, int offset, int length ) {
+    return Bytes.toLong( value, offset, length );
+  }
+
+  @Override public int toInt( byte[] value, int offset, int length ) {
+    return Bytes.toInt( value, offset, length );
+  }
+
+  @Override public float toFloat( byte[] value, int offset, int length ) {
+    return Bytes.toFloat( value, offset );
+  }
+
+  @Override public double toDouble( byte[] value, int offset, int length ) {
+    return Bytes.toDouble( value, offset );
+  }
+
+  @Override public short toShort( byte[] value, int offset, int length ) {
+    return Bytes.toShort( value, offset, length );
+  }
 }
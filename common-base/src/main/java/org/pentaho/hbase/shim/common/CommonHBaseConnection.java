@@ -19,14 +19,17 @@ import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
 import org.apache.hadoop.hbase.filter.BinaryPrefixComparator;
 import org.apache.hadoop.hbase.filter.CompareFilter;
 import org.apache.hadoop.hbase.filter.FamilyFilter;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
 import org.apache.hadoop.hbase.filter.PrefixFilter;
 import org.apache.hadoop.hbase.filter.QualifierFilter;
 import org.apache.hadoop.hbase.filter.RegexStringComparator;
@@ -43,15 +46,24 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.hadoop.hbase.factory.HBase10ClientFactory;
 import org.pentaho.hadoop.shim.ShimConfigsLoader;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
 import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterCompiler;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.KeyRange;
 import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
+import org.pentaho.hadoop.shim.api.internal.hbase.ScanPlan;
 import org.pentaho.hadoop.shim.spi.HBaseConnection;
 import org.pentaho.hbase.factory.HBaseAdmin;
 import org.pentaho.hbase.factory.HBaseClientFactory;
 import org.pentaho.hbase.factory.HBasePut;
 import org.pentaho.hbase.factory.HBaseTable;
+import org.pentaho.hbase.factory.HBaseWriteOptions;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -65,7 +77,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -83,7 +97,10 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
   protected HBaseClientFactory m_factory;
 
   protected HBaseTable m_sourceTable;
+  protected String m_sourceTableName;
   protected Scan m_sourceScan;
+  // set when the filters of the source scan can match no row, the scan then reads nothing from the region servers
+  protected boolean m_sourceScanMatchesNothing;
   protected ResultScanner m_resultSet;
   protected Result m_currentResultSetRow;
   protected HBaseTable m_targetTable;
@@ -463,6 +480,7 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
 
     closeSourceTable();
     m_sourceTable = m_factory.getHBaseTable( tableName );
+    m_sourceTableName = tableName;
   }
 
   @Override
@@ -476,6 +494,91 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     return ( !r.isEmpty() );
   }
 
+  @Override
+  public boolean[] sourceTableRowsExist( List<byte[]> rowKeys, final BatchGetOptions options ) throws Exception {
+    checkConfiguration();
+    checkSourceTable();
+
+    final byte[][] columns = resolveColumns( options );
+    List<Boolean> exist = ChunkedLookup.lookup( rowKeys, options, sourceTableResources(), ( keys, table ) -> {
+      boolean[] chunk = table.exists( toGets( keys, columns ) );
+      List<Boolean> result = new ArrayList<>( chunk.length );
+      for ( boolean b : chunk ) {
+        result.add( b );
+      }
+      return result;
+    } );
+
+    boolean[] result = new boolean[ exist.size() ];
+    for ( int i = 0; i < result.length; i++ ) {
+      result[ i ] = exist.get( i );
+    }
+    return result;
+  }
+
+  @Override
+  public List<Object> sourceTableGetRows( List<byte[]> rowKeys, final BatchGetOptions options ) throws Exception {
+    checkConfiguration();
+    checkSourceTable();
+
+    final byte[][] columns = resolveColumns( options );
+    return ChunkedLookup.lookup( rowKeys, options, sourceTableResources(), ( keys, table ) -> {
+      Result[] chunk = table.get( toGets( keys, columns ) );
+      List<Object> result = new ArrayList<>( chunk.length );
+      for ( Result r : chunk ) {
+        result.add( r == null || r.isEmpty() ? null : r );
+      }
+      return result;
+    } );
+  }
+
+  /**
+   * The source table for the chunks of a batch lookup. Every worker of a parallel lookup gets a table instance of its
+   * own, because table instances must not be shared between threads, and keeps it for all of its chunks.
+   */
+  protected ChunkedLookup.WorkerResources<HBaseTable> sourceTableResources() {
+    return new ChunkedLookup.WorkerResources<HBaseTable>() {
+      @Override
+      public HBaseTable open( boolean parallel ) throws IOException {
+        return parallel ? m_factory.getHBaseTable( m_sourceTableName ) : m_sourceTable;
+      }
+
+      @Override
+      public void close( HBaseTable table, boolean parallel ) throws IOException {
+        if ( parallel ) {
+          table.close();
+        }
+      }
+    };
+  }
+
+  /**
+   * @return family and qualifier bytes of the projected columns, alternating
+   */
+  protected byte[][] resolveColumns( BatchGetOptions options ) {
+    List<BatchGetOptions.Column> columns = options.getColumns();
+    byte[][] resolved = new byte[ columns.size() * 2 ][];
+    for ( int i = 0; i < columns.size(); i++ ) {
+      BatchGetOptions.Column column = columns.get( i );
+      resolved[ 2 * i ] = m_bytesUtil.toBytes( column.getFamily() );
+      resolved[ 2 * i + 1 ] = column.isQualifierBinary() ? m_bytesUtil.toBytesBinary( column.getQualifier() )
+        : m_bytesUtil.toBytes( column.getQualifier() );
+    }
+    return resolved;
+  }
+
+  protected List<Get> toGets( List<byte[]> keys, byte[][] columns ) {
+    List<Get> gets = new ArrayList<>( keys.size() );
+    for ( byte[] key : keys ) {
+      Get get = new Get( key );
+      for ( int i = 0; i < columns.length; i += 2 ) {
+        get.addColumn( columns[ i ], columns[ i + 1 ] );
+      }
+      gets.add( get );
+    }
+    return gets;
+  }
+
   @Override
   public void newSourceTableScan( byte[] keyLowerBound, byte[] keyUpperBound, int cacheSize ) throws Exception {
 
@@ -483,6 +586,7 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     checkSourceTable();
     closeSourceResultSet();
 
+    m_sourceScanMatchesNothing = false;
     if ( keyLowerBound != null ) {
       if ( keyUpperBound != null ) {
         m_sourceScan = new Scan( keyLowerBound, keyUpperBound );
@@ -498,6 +602,13 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     }
   }
 
+  @Override
+  public void setSourceScanMaxResultSize( long maxResultSize ) throws Exception {
+    checkSourceScan();
+
+    m_sourceScan.setMaxResultSize( maxResultSize );
+  }
+
   @Override
   public void addColumnToScan( String colFamilyName, String colName, boolean colNameIsBinary ) throws Exception {
     checkSourceScan();
@@ -528,84 +639,221 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
 
       createEmptyFilterIfNull( matchAny );
 
-      FilterList fl = (FilterList) m_sourceScan.getFilter();
+      Filter filter = createColumnFilter( cf, columnMeta, vars );
+      if ( filter != null ) {
+        ( (FilterList) m_sourceScan.getFilter() ).addFilter( filter );
+      }
+    } finally {
+      Thread.currentThread().setContextClassLoader( cl );
+    }
+  }
 
-      ColumnFilter.ComparisonType op = cf.getComparisonOperator();
-      CompareFilter.CompareOp comp = getCompareOpByComparisonType( op );
+  /**
+   * Compiles the expression and applies the plan to the current scan: the start and stop row narrow the scan to the
+   * key ranges, a {@link MultiRowRangeFilter} skips the gaps between several ranges and the remaining conditions
+   * become a tree of filter lists. Value filters drop rows without the column, which lets the region servers load
+   * the other column families only for matching rows. Filters added before or after are combined with a logical AND.
+   */
+  @Override
+  public void addColumnFilterExpressionToScan( ColumnFilterExpression expression, Mapping.KeyType keyType,
+                                               VariableSpace vars ) throws Exception {
+    checkSourceScan();
 
-      String comparisonString = cf.getConstant().trim();
-      comparisonString = vars.environmentSubstitute( comparisonString );
-      byte[] comparison = m_bytesUtil.toBytes( comparisonString );
-      Class<?> comparatorClass = getByteArrayComparableClass();
-      Object comparator = null;
+    ScanPlan plan = new ColumnFilterCompiler( keyType, m_bytesUtil, vars )
+      .compile( expression, m_sourceScan.getStartRow(), m_sourceScan.getStopRow() );
 
-      if ( comp != null ) {
+    ClassLoader cl = Thread.currentThread().getContextClassLoader();
+    try {
+      Thread.currentThread().setContextClassLoader( getClass().getClassLoader() );
+      applyScanPlan( plan, vars );
+    } finally {
+      Thread.currentThread().setContextClassLoader( cl );
+    }
+  }
 
-        // do the numeric comparison stuff
-        if ( columnMeta.isNumeric() ) {
-          if ( !cf.getSignedComparison() && columnMeta.isInteger() ) {
-            comparatorClass = byte[].class;
-          }
-          comparator = getNumericComparator( cf, columnMeta, vars, comparisonString );
-        } else if ( columnMeta.isDate() ) {
-          comparator = getDateComparator( cf, vars, comparisonString );
-        } else if ( columnMeta.isBoolean() ) {
-
-          // temporarily encode it so that we can use the utility routine in
-          // HBaseValueMeta
-          byte[] tempEncoded = m_bytesUtil.toBytes( comparisonString );
-          Boolean decodedB = HBaseValueMeta.decodeBoolFromString( tempEncoded, m_bytesUtil );
-          // skip if we can't parse the comparison value
-          if ( decodedB == null ) {
-            return;
-          }
-          comparator = getBooleanComparator( decodedB );
+  @VisibleForTesting
+  void applyScanPlan( ScanPlan plan, VariableSpace vars ) throws Exception {
+    if ( plan.matchesNothing() ) {
+      // executing the scan returns an empty result set without asking the region servers
+      m_sourceScanMatchesNothing = true;
+      return;
+    }
+    List<Filter> filters = new ArrayList<>();
+    m_sourceScan.withStartRow( plan.getStartKey() ).withStopRow( plan.getStopKey() );
+    if ( plan.hasMultipleRanges() ) {
+      filters.add( createRangeFilter( plan.getKeyRanges() ) );
+    }
+    Filter remaining = plan.getFilter() == null ? null : createExpressionFilter( plan.getFilter(), vars );
+    if ( remaining != null ) {
+      filters.add( remaining );
+      addFilterColumnsToScan( plan.getFilterColumns() );
+      m_sourceScan.setLoadColumnFamiliesOnDemand( true );
+    }
+    if ( filters.isEmpty() ) {
+      return;
+    }
+
+    createEmptyFilterIfNull( false );
+    FilterList existing = (FilterList) m_sourceScan.getFilter();
+    if ( existing.getOperator() == FilterList.Operator.MUST_PASS_ALL ) {
+      existing.addFilter( filters );
+    } else {
+      FilterList all = new FilterList( FilterList.Operator.MUST_PASS_ALL );
+      if ( !existing.getFilters().isEmpty() ) {
+        all.addFilter( existing );
+      }
+      all.addFilter( filters );
+      m_sourceScan.setFilter( all );
+    }
+  }
+
+  /**
+   * @return the filter for a remaining condition of a scan plan, null if it does not restrict the rows
+   */
+  protected Filter createExpressionFilter( ColumnFilterExpression expression, VariableSpace vars ) throws Exception {
+    switch ( expression.getType() ) {
+      case KEY_RANGES:
+        return createRangeFilter( expression.getKeyRanges() );
+      case FILTER:
+        ColumnFilter cf = expression.getFilter();
+        if ( expression.getColumnMeta().isKey() && ( cf.getComparisonOperator() == ColumnFilter.ComparisonType.SUBSTRING
+          || cf.getComparisonOperator() == ColumnFilter.ComparisonType.REGEX ) ) {
+          String comparisonString = vars.environmentSubstitute( cf.getConstant().trim() );
+          return new RowFilter( CompareFilter.CompareOp.EQUAL,
+            cf.getComparisonOperator() == ColumnFilter.ComparisonType.SUBSTRING
+              ? new SubstringComparator( comparisonString ) : new RegexStringComparator( comparisonString ) );
         }
-      } else {
-        comp = CompareFilter.CompareOp.EQUAL;
-        if ( cf.getComparisonOperator() == ColumnFilter.ComparisonType.SUBSTRING ) {
-          comparator = new SubstringComparator( comparisonString );
-        } else if ( cf.getComparisonOperator() == ColumnFilter.ComparisonType.REGEX ) {
-          comparator = new RegexStringComparator( comparisonString );
-        } else /*if ( cf.getComparisonOperator() == ColumnFilter.ComparisonType.PREFIX )*/ {
-          //First of all check if it is Key in this case prefix filter is more appreciable
-          if ( columnMeta.isKey() ) {
-            PrefixFilter scf = new PrefixFilter( comparison );
-            fl.addFilter( scf );
-            return;
+        return createColumnFilter( cf, expression.getColumnMeta(), vars );
+      default:
+        boolean and = expression.getType() == ColumnFilterExpression.Type.AND;
+        FilterList list = new FilterList( and ? FilterList.Operator.MUST_PASS_ALL : FilterList.Operator.MUST_PASS_ONE );
+        for ( ColumnFilterExpression child : expression.getChildren() ) {
+          Filter filter = createExpressionFilter( child, vars );
+          if ( filter != null ) {
+            list.addFilter( filter );
+          } else if ( !and ) {
+            // one operand matching every row makes the whole disjunction match every row
+            return null;
           }
-          comparator = new BinaryPrefixComparator( comparison );
-          // comparator == null means prefix was chosen
         }
+        if ( list.getFilters().isEmpty() ) {
+          return null;
+        }
+        return list.getFilters().size() == 1 ? list.getFilters().get( 0 ) : list;
+    }
+  }
+
+  protected Filter createRangeFilter( List<KeyRange> ranges ) throws Exception {
+    List<MultiRowRangeFilter.RowRange> rowRanges = new ArrayList<>( ranges.size() );
+    for ( KeyRange range : ranges ) {
+      rowRanges.add( new MultiRowRangeFilter.RowRange( range.getStart(), true, range.getStop(), false ) );
+    }
+    return new MultiRowRangeFilter( rowRanges );
+  }
+
+  /**
+   * A value filter only sees the columns the scan reads, so the compared columns are added to a scan which is limited
+   * to some columns. Families the scan reads completely are left alone.
+   */
+  private void addFilterColumnsToScan( List<HBaseValueMeta> columns ) {
+    if ( !m_sourceScan.hasFamilies() ) {
+      return;
+    }
+    Map<byte[], NavigableSet<byte[]>> familyMap = m_sourceScan.getFamilyMap();
+    for ( HBaseValueMeta column : columns ) {
+      if ( getTupleMappingByName( column.getAlias().toUpperCase() ) != null ) {
+        continue;
       }
+      byte[] family = m_bytesUtil.toBytes( column.getColumnFamily() );
+      byte[] qualifier = m_bytesUtil.toBytes( column.getColumnName() );
+      if ( familyMap.containsKey( family ) && familyMap.get( family ) == null ) {
+        continue;
+      }
+      NavigableSet<byte[]> qualifiers = familyMap.get( family );
+      if ( qualifiers == null || !qualifiers.contains( qualifier ) ) {
+        m_sourceScan.addColumn( family, qualifier );
+      }
+    }
+  }
 
-      if ( comparator != null ) {
-        Mapping.TupleMapping tupleMapping;
-        tupleMapping = getTupleMappingByName( cf.getFieldAlias().toUpperCase() );
-        if ( tupleMapping != null ) {
-          addFilterByMapping( fl, comp, comparatorClass, comparator, tupleMapping );
-          return;
+  /**
+   * Creates the server-side filter for a single column filter.
+   *
+   * @return the filter or null if the column filter does not restrict the rows, e.g. a boolean comparison with a
+   * constant which is no boolean
+   */
+  protected Filter createColumnFilter( ColumnFilter cf, HBaseValueMeta columnMeta, VariableSpace vars )
+    throws Exception {
+    ColumnFilter.ComparisonType op = cf.getComparisonOperator();
+    CompareFilter.CompareOp comp = getCompareOpByComparisonType( op );
+
+    String comparisonString = cf.getConstant().trim();
+    comparisonString = vars.environmentSubstitute( comparisonString );
+    byte[] comparison = m_bytesUtil.toBytes( comparisonString );
+    Class<?> comparatorClass = getByteArrayComparableClass();
+    Object comparator = null;
+
+    if ( comp != null ) {
+
+      // do the numeric comparison stuff
+      if ( columnMeta.isNumeric() ) {
+        if ( !cf.getSignedComparison() && columnMeta.isInteger() ) {
+          comparatorClass = byte[].class;
         }
-        byte[] family = m_bytesUtil.toBytes( columnMeta.getColumnFamily() );
-        byte[] qualifier = m_bytesUtil.toBytes( columnMeta.getColumnName() );
-
-        Constructor<SingleColumnValueFilter>
-          scvfCtor =
-          SingleColumnValueFilter.class
-            .getConstructor( byte[].class, byte[].class, CompareFilter.CompareOp.class, comparatorClass );
-        SingleColumnValueFilter scf = scvfCtor.newInstance( family, qualifier, comp, comparator );
-        scf.setFilterIfMissing( true );
-        fl.addFilter( scf );
-      } else {
-        //First of all check if it is Key
+        comparator = getNumericComparator( cf, columnMeta, vars, comparisonString );
+      } else if ( columnMeta.isDate() ) {
+        comparator = getDateComparator( cf, vars, comparisonString );
+      } else if ( columnMeta.isBoolean() ) {
+
+        // temporarily encode it so that we can use the utility routine in
+        // HBaseValueMeta
+        byte[] tempEncoded = m_bytesUtil.toBytes( comparisonString );
+        Boolean decodedB = HBaseValueMeta.decodeBoolFromString( tempEncoded, m_bytesUtil );
+        // skip if we can't parse the comparison value
+        if ( decodedB == null ) {
+          return null;
+        }
+        comparator = getBooleanComparator( decodedB );
+      }
+    } else {
+      comp = CompareFilter.CompareOp.EQUAL;
+      if ( cf.getComparisonOperator() == ColumnFilter.ComparisonType.SUBSTRING ) {
+        comparator = new SubstringComparator( comparisonString );
+      } else if ( cf.getComparisonOperator() == ColumnFilter.ComparisonType.REGEX ) {
+        comparator = new RegexStringComparator( comparisonString );
+      } else /*if ( cf.getComparisonOperator() == ColumnFilter.ComparisonType.PREFIX )*/ {
+        //First of all check if it is Key in this case prefix filter is more appreciable
         if ( columnMeta.isKey() ) {
-          PrefixFilter scf = new PrefixFilter( comparison );
-          fl.addFilter( scf );
+          return new PrefixFilter( comparison );
         }
+        comparator = new BinaryPrefixComparator( comparison );
+        // comparator == null means prefix was chosen
       }
-    } finally {
-      Thread.currentThread().setContextClassLoader( cl );
     }
+
+    if ( comparator != null ) {
+      Mapping.TupleMapping tupleMapping;
+      tupleMapping = getTupleMappingByName( cf.getFieldAlias().toUpperCase() );
+      if ( tupleMapping != null ) {
+        return createFilterByMapping( comp, comparatorClass, comparator, tupleMapping );
+      }
+      byte[] family = m_bytesUtil.toBytes( columnMeta.getColumnFamily() );
+      byte[] qualifier = m_bytesUtil.toBytes( columnMeta.getColumnName() );
+
+      Constructor<SingleColumnValueFilter>
+        scvfCtor =
+        SingleColumnValueFilter.class
+          .getConstructor( byte[].class, byte[].class, CompareFilter.CompareOp.class, comparatorClass );
+      SingleColumnValueFilter scf = scvfCtor.newInstance( family, qualifier, comp, comparator );
+      scf.setFilterIfMissing( true );
+      return scf;
+    } else {
+      //First of all check if it is Key
+      if ( columnMeta.isKey() ) {
+        return new PrefixFilter( comparison );
+      }
+    }
+    return null;
   }
 
   protected Object getNumericComparator( ColumnFilter cf, HBaseValueMeta columnMeta, VariableSpace vars,
@@ -701,33 +949,36 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
                            Mapping.TupleMapping tupleMapping )
     throws NoSuchMethodException, InstantiationException, IllegalAccessException,
     java.lang.reflect.InvocationTargetException {
+    fl.addFilter( createFilterByMapping( comp, comparatorClass, comparator, tupleMapping ) );
+  }
+
+  Filter createFilterByMapping( CompareFilter.CompareOp comp, Class<?> comparatorClass, Object comparator,
+                                Mapping.TupleMapping tupleMapping )
+    throws NoSuchMethodException, InstantiationException, IllegalAccessException,
+    java.lang.reflect.InvocationTargetException {
     switch ( tupleMapping ) {
       case KEY: {
-        addFilter( RowFilter.class, fl, comp, comparatorClass, comparator );
-        return;
+        return createFilter( RowFilter.class, comp, comparatorClass, comparator );
       }
       case FAMILY: {
-        addFilter( FamilyFilter.class, fl, comp, comparatorClass, comparator );
-        return;
+        return createFilter( FamilyFilter.class, comp, comparatorClass, comparator );
       }
       case COLUMN: {
         //TODO Check if ColumnPrefixFilter works faster and suit more
 
-        addFilter( QualifierFilter.class, fl, comp, comparatorClass, comparator );
-        return;
+        return createFilter( QualifierFilter.class, comp, comparatorClass, comparator );
       }
       case VALUE: {
-        addFilter( ValueFilter.class, fl, comp, comparatorClass, comparator );
-        return;
+        return createFilter( ValueFilter.class, comp, comparatorClass, comparator );
       }
       case TIMESTAMP: {
-        addFilter( TimestampsFilter.class, fl, comp, comparatorClass, comparator );
         //        Constructor<TimestampsFilter> columnFilterConstructor =
         //          TimestampsFilter.class.getConstructor( CompareFilter.CompareOp.class, comparatorClass );
         //        TimestampsFilter scf = columnFilterConstructor.newInstance( comp, comparator );
-        //        fl.addFilter( scf );
-        return;
+        return createFilter( TimestampsFilter.class, comp, comparatorClass, comparator );
       }
+      default:
+        return null;
     }
   }
 
@@ -735,9 +986,15 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
                                                Class<?> comparatorClass, Object comparator )
     throws NoSuchMethodException, InstantiationException, IllegalAccessException,
     java.lang.reflect.InvocationTargetException {
+    fl.addFilter( createFilter( filterClass, comp, comparatorClass, comparator ) );
+  }
+
+  protected <T extends Filter> T createFilter( Class<T> filterClass, CompareFilter.CompareOp comp,
+                                               Class<?> comparatorClass, Object comparator )
+    throws NoSuchMethodException, InstantiationException, IllegalAccessException,
+    java.lang.reflect.InvocationTargetException {
     Constructor<T> constructor = filterClass.getConstructor( CompareFilter.CompareOp.class, comparatorClass );
-    T scf = constructor.newInstance( comp, comparator );
-    fl.addFilter( scf );
+    return constructor.newInstance( comp, comparator );
   }
 
   protected Mapping.TupleMapping getTupleMappingByName( String name ) {
@@ -839,14 +1096,81 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     checkConfiguration();
     checkSourceTable();
     checkSourceScan();
+    removeEmptyScanFilter();
+
+    m_resultSet = m_sourceScanMatchesNothing ? new EmptyResultScanner() : m_sourceTable.getScanner( m_sourceScan );
+  }
 
+  /**
+   * Every range is scanned with a table instance of its own, tables are not safe for use by several threads. Without
+   * split keys and region information, e.g. for a wrapped table, the scan runs sequentially.
+   */
+  @Override
+  public void executeParallelSourceTableScan( ParallelScanOptions options ) throws Exception {
+    checkConfiguration();
+    checkSourceTable();
+    checkSourceScan();
+    removeEmptyScanFilter();
+    closeSourceResultSet();
+    if ( m_sourceScanMatchesNothing ) {
+      m_resultSet = new EmptyResultScanner();
+      return;
+    }
+
+    byte[][] boundaries;
+    if ( options.getSplitKeys().isEmpty() ) {
+      try ( RegionLocator locator = m_sourceTable.getRegionLocator() ) {
+        if ( locator == null ) {
+          m_resultSet = m_sourceTable.getScanner( m_sourceScan );
+          return;
+        }
+        boundaries = locator.getStartKeys();
+      }
+    } else {
+      boundaries = options.getSplitKeys().toArray( new byte[ 0 ][] );
+    }
+
+    final Scan template = m_sourceScan;
+    final String tableName = m_sourceTableName;
+    List<ParallelScanner.KeyRange> ranges =
+      ParallelScanner.split( boundaries, template.getStartRow(), template.getStopRow() );
+    m_resultSet = ParallelScanner.open( ranges, options, range -> openRange( tableName, template, range ) );
+  }
+
+  private ParallelScanner.RangeReader openRange( String tableName, Scan template, ParallelScanner.KeyRange range )
+    throws IOException {
+    final HBaseTable table = m_factory.getHBaseTable( tableName );
+    if ( table == null ) {
+      throw new IOException( "Unable to open the table " + tableName );
+    }
+    final ResultScanner scanner;
+    try {
+      scanner = table.getScanner( range.restrict( template ) );
+    } catch ( IOException | RuntimeException e ) {
+      table.close();
+      throw e;
+    }
+    return new ParallelScanner.RangeReader() {
+      @Override public Result next() throws IOException {
+        return scanner.next();
+      }
+
+      @Override public void close() throws IOException {
+        try {
+          scanner.close();
+        } finally {
+          table.close();
+        }
+      }
+    };
+  }
+
+  private void removeEmptyScanFilter() {
     if ( m_sourceScan.getFilter() != null ) {
       if ( ( (FilterList) m_sourceScan.getFilter() ).getFilters().size() == 0 ) {
         m_sourceScan.setFilter( null );
       }
     }
-
-    m_resultSet = m_sourceTable.getScanner( m_sourceScan );
   }
 
   @Override
@@ -858,6 +1182,32 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     return ( m_currentResultSetRow != null );
   }
 
+  /**
+   * Reads the rows from the client side cache of the scanner, the columns are looked up with the byte arrays resolved
+   * by the batch so nothing is converted per row.
+   */
+  @Override
+  public int resultSetNextRows( HBaseRowBatch batch ) throws Exception {
+    checkResultSet();
+
+    batch.clear();
+    int columns = batch.getColumnCount();
+    while ( !batch.isFull() ) {
+      m_currentResultSetRow = m_resultSet.next();
+      if ( m_currentResultSetRow == null ) {
+        break;
+      }
+      int row = batch.add( m_currentResultSetRow, m_currentResultSetRow.getRow(),
+        Result.getTotalSizeOfCells( m_currentResultSetRow ) );
+      for ( int column = 0; column < columns; column++ ) {
+        batch.setValue( row, column,
+          m_currentResultSetRow.getValue( batch.getFamily( column ), batch.getQualifier( column ) ) );
+      }
+    }
+
+    return batch.size();
+  }
+
   @Override
   public boolean checkForHBaseRow( Object rowToCheck ) {
     return ( rowToCheck instanceof Result );
@@ -965,18 +1315,14 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     closeTargetTable();
 
     m_targetTable = m_factory.getHBaseTable( tableName );
+    m_targetTable.configureWrites( HBaseWriteOptions.fromProperties( props ) );
+  }
 
-    if ( props != null ) {
-      Set<Object> keys = props.keySet();
-      for ( Object key : keys ) {
-        String value = props.getProperty( key.toString() );
+  @Override
+  public HBaseWriteErrorReport takeTargetTableWriteErrors() throws Exception {
+    checkTargetTable();
 
-        if ( key.toString().equals( HTABLE_WRITE_BUFFER_SIZE_KEY ) ) {
-          m_targetTable.setWriteBufferSize( Long.parseLong( value ) );
-          m_targetTable.setAutoFlush( false );
-        }
-      }
-    }
+    return m_targetTable.takeWriteErrorReport();
   }
 
   @Override
@@ -1036,11 +1382,14 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     checkConfiguration();
 
     if ( m_targetTable != null ) {
-      if ( !m_targetTable.isAutoFlush() ) {
-        flushCommitsTargetTable();
+      try {
+        if ( !m_targetTable.isAutoFlush() ) {
+          flushCommitsTargetTable();
+        }
+      } finally {
+        m_targetTable.close();
+        m_targetTable = null;
       }
-      m_targetTable.close();
-      m_targetTable = null;
     }
   }
 
@@ -1064,6 +1413,7 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     if ( m_sourceTable != null ) {
       m_sourceTable.close();
       m_sourceTable = null;
+      m_sourceTableName = null;
     }
   }
 
@@ -1114,4 +1464,28 @@ public class CommonHBaseConnection implements HBaseConnection, IHBaseClientFacto
     checkConfiguration();
     return m_admin.listTableNamesByNamespace( namespace );
   }
+
+  /**
+   * Result set of a source scan whose filters match no row.
+   */
+  private static class EmptyResultScanner implements ResultScanner {
+    @Override public Result next() {
+      return null;
+    }
+
+    @Override public Result[] next( int nbRows ) {
+      return new Result[ 0 ];
+    }
+
+    @Override public void close() {
+    }
+
+    @Override public boolean renewLease() {
+      return false;
+    }
+
+    @Override public ScanMetrics getScanMetrics() {
+      return null;
+    }
+  }
 }
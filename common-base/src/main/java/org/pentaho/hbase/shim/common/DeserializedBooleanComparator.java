@@ -18,12 +18,9 @@ import org.apache.hadoop.hbase.filter.ByteArrayComparable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.pentaho.hbase.shim.spi.IDeserializedBooleanComparator;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.DataOutput;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 
 /**
@@ -37,6 +34,9 @@ import java.io.IOException;
  */
 public class DeserializedBooleanComparator extends ByteArrayComparable implements IDeserializedBooleanComparator {
 
+  private static final String[] TRUE_TOKENS = { "y", "yes", "true", "t", "1" };
+  private static final String[] FALSE_TOKENS = { "n", "no", "false", "f", "0" };
+
   protected Boolean m_value;
 
   // Use the HBaseBytesUtilShim to convert your boolean to bytes
@@ -62,20 +62,27 @@ public class DeserializedBooleanComparator extends ByteArrayComparable implement
   }
 
   public int compareTo( byte[] value ) {
+    return compareTo( value, 0, value.length );
+  }
 
-    Boolean decodedValue = decodeBoolFromString( value );
+  /**
+   * Decodes the value in place, plain ASCII values and numbers are recognized without any allocation.
+   */
+  public int compareTo( byte[] value, int offset, int length ) {
+    int decodedValue = decodeBoolFromString( value, offset, length );
 
-    // if null then try as a number
-    if ( decodedValue == null ) {
-      decodedValue = decodeBoolFromNumber( value );
+    // if not identifiable then try as a number
+    if ( decodedValue < 0 ) {
+      decodedValue = decodeBoolFromNumber( value, offset, length );
     }
 
-    if ( decodedValue != null ) {
-      if ( m_value.equals( decodedValue ) ) {
+    if ( decodedValue >= 0 ) {
+      boolean decoded = decodedValue == 1;
+      if ( m_value.booleanValue() == decoded ) {
         return 0;
       }
 
-      if ( m_value.booleanValue() == false && decodedValue.booleanValue() == true ) {
+      if ( !m_value.booleanValue() && decoded ) {
         return -1;
       }
 
@@ -87,10 +94,6 @@ public class DeserializedBooleanComparator extends ByteArrayComparable implement
     return 0;
   }
 
-  public int compareTo( byte[] value, int offset, int length ) {
-    return compareTo( Bytes.copy( value, offset, length ) );
-  }
-
   public static Boolean decodeBoolFromString( byte[] rawEncoded ) {
     String tempString = Bytes.toString( rawEncoded );
     if ( tempString.equalsIgnoreCase( "Y" ) || tempString.equalsIgnoreCase( "N" )
@@ -152,18 +155,96 @@ public class DeserializedBooleanComparator extends ByteArrayComparable implement
     return null;
   }
 
+  /**
+   * Same as {@link #decodeBoolFromString(byte[])} on a part of an array.
+   *
+   * @return 1 for true, 0 for false or -1 if not identifiable from a string
+   */
+  static int decodeBoolFromString( byte[] rawEncoded, int offset, int length ) {
+    for ( int i = offset; i < offset + length; i++ ) {
+      if ( rawEncoded[ i ] < 0 ) {
+        // a multi byte character may still equal a token ignoring case
+        Boolean decoded = decodeBoolFromString( Bytes.copy( rawEncoded, offset, length ) );
+        return decoded == null ? -1 : ( decoded ? 1 : 0 );
+      }
+    }
+    if ( matchesAny( TRUE_TOKENS, rawEncoded, offset, length ) ) {
+      return 1;
+    }
+    return matchesAny( FALSE_TOKENS, rawEncoded, offset, length ) ? 0 : -1;
+  }
+
+  private static boolean matchesAny( String[] tokens, byte[] rawEncoded, int offset, int length ) {
+    for ( String token : tokens ) {
+      if ( token.length() == length ) {
+        int i = 0;
+        while ( i < length && Character.toLowerCase( (char) rawEncoded[ offset + i ] ) == token.charAt( i ) ) {
+          i++;
+        }
+        if ( i == length ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Same as {@link #decodeBoolFromNumber(byte[])} on a part of an array.
+   *
+   * @return 1 for true, 0 for false or -1 if not identifiable from a number
+   */
+  static int decodeBoolFromNumber( byte[] rawEncoded, int offset, int length ) {
+    if ( length == Bytes.SIZEOF_BYTE ) {
+      byte val = rawEncoded[ offset ];
+      if ( val == 0 || val == 1 ) {
+        return val;
+      }
+    }
+
+    if ( length == Bytes.SIZEOF_SHORT ) {
+      short tempShort = Bytes.toShort( rawEncoded, offset, length );
+
+      if ( tempShort == 0 || tempShort == 1 ) {
+        return tempShort;
+      }
+    }
+
+    if ( length == Bytes.SIZEOF_INT || length == Bytes.SIZEOF_FLOAT ) {
+      int tempInt = Bytes.toInt( rawEncoded, offset, length );
+      if ( tempInt == 1 || tempInt == 0 ) {
+        return tempInt;
+      }
+
+      float tempFloat = Float.intBitsToFloat( tempInt );
+      if ( tempFloat == 0.0f || tempFloat == 1.0f ) {
+        return tempFloat == 1.0f ? 1 : 0;
+      }
+    }
+
+    if ( length == Bytes.SIZEOF_LONG || length == Bytes.SIZEOF_DOUBLE ) {
+      long tempLong = Bytes.toLong( rawEncoded, offset, length );
+      if ( tempLong == 0L || tempLong == 1L ) {
+        return (int) tempLong;
+      }
+
+      double tempDouble = Double.longBitsToDouble( tempLong );
+      if ( tempDouble == 0.0 || tempDouble == 1.0 ) {
+        return tempDouble == 1.0 ? 1 : 0;
+      }
+    }
+
+    // not identifiable from a number
+    return -1;
+  }
+
+  /**
+   * Writes the same byte as {@link #write(DataOutput)}, which is the format region servers read in
+   * {@link #parseFrom(byte[])}.
+   */
   @Override
   public byte[] toByteArray() {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    DataOutputStream output = new DataOutputStream( byteArrayOutputStream );
-    try {
-      write( output );
-      output.close();
-      byteArrayOutputStream.close();
-      return byteArrayOutputStream.toByteArray();
-    } catch ( IOException e ) {
-      throw new RuntimeException( "Unable to serialize to byte array.", e );
-    }
+    return new byte[] { (byte) ( m_value.booleanValue() ? 1 : 0 ) };
   }
 
   /**
@@ -172,12 +253,9 @@ public class DeserializedBooleanComparator extends ByteArrayComparable implement
    * @throws java.io.IOException
    */
   public static ByteArrayComparable parseFrom( final byte[] pbBytes ) {
-    DataInput in = new DataInputStream( new ByteArrayInputStream( pbBytes ) );
-    try {
-      boolean m_value = new Boolean( in.readBoolean() );
-      return new DeserializedBooleanComparator( m_value );
-    } catch ( IOException e ) {
-      throw new RuntimeException( "Unable to deserialize byte array", e );
+    if ( pbBytes.length < 1 ) {
+      throw new RuntimeException( "Unable to deserialize byte array", new EOFException() );
     }
+    return new DeserializedBooleanComparator( pbBytes[ 0 ] != 0 );
   }
 }
@@ -17,12 +17,9 @@ import org.apache.hadoop.hbase.filter.ByteArrayComparable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.pentaho.hbase.shim.spi.IDeserializedNumericComparator;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
-import java.io.DataInputStream;
 import java.io.DataOutput;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 
 /**
@@ -35,6 +32,9 @@ import java.io.IOException;
  */
 public class DeserializedNumericComparator extends ByteArrayComparable implements IDeserializedNumericComparator {
 
+  // two flags, the long and the double written by write( DataOutput )
+  private static final int SERIALIZED_LENGTH = 2 + Bytes.SIZEOF_LONG + Bytes.SIZEOF_DOUBLE;
+
   protected long m_longValue;
 
   protected double m_doubleValue;
@@ -87,47 +87,53 @@ public class DeserializedNumericComparator extends ByteArrayComparable implement
 
   @Override
   public int compareTo( byte[] value ) {
+    return compareTo( value, 0, value.length );
+  }
+
+  /**
+   * Decodes the value in place. The length selects the encoding just like for a whole array: a long or an int for
+   * integers and a double for eight bytes of a floating point column, otherwise a short or a float read from the
+   * start of the value.
+   */
+  @Override
+  public int compareTo( byte[] value, int offset, int length ) {
     if ( m_isInteger ) {
       long compV;
-      if ( value.length == Bytes.SIZEOF_LONG ) {
-        compV = Bytes.toLong( value );
-      } else if ( value.length == Bytes.SIZEOF_INT ) {
-        compV = Bytes.toInt( value );
+      if ( length == Bytes.SIZEOF_LONG ) {
+        compV = Bytes.toLong( value, offset, Bytes.SIZEOF_LONG );
+      } else if ( length == Bytes.SIZEOF_INT ) {
+        compV = Bytes.toInt( value, offset, Bytes.SIZEOF_INT );
       } else {
-        compV = Bytes.toShort( value );
+        // shorter values fail the same way as Bytes.toShort on a copy
+        compV = Bytes.toShort( value, offset, length < Bytes.SIZEOF_SHORT ? length : Bytes.SIZEOF_SHORT );
       }
 
-      Long l = new Long( m_longValue );
-      return l.compareTo( compV );
+      return Long.compare( m_longValue, compV );
     }
 
     double compV;
-    if ( value.length == Bytes.SIZEOF_DOUBLE ) {
-      compV = Bytes.toDouble( value );
+    if ( length == Bytes.SIZEOF_DOUBLE ) {
+      compV = Double.longBitsToDouble( Bytes.toLong( value, offset, Bytes.SIZEOF_LONG ) );
     } else {
-      compV = Bytes.toFloat( value );
+      int bits = Bytes.toInt( value, offset, length < Bytes.SIZEOF_INT ? length : Bytes.SIZEOF_INT );
+      compV = Float.intBitsToFloat( bits );
     }
 
-    Double d = new Double( m_doubleValue );
-    return d.compareTo( compV );
-  }
-
-  public int compareTo( byte[] value, int offset, int length ) {
-    return compareTo( Bytes.copy( value, offset, length ) );
+    return Double.compare( m_doubleValue, compV );
   }
 
+  /**
+   * Writes the same bytes as {@link #write(DataOutput)}, which is the format region servers read in
+   * {@link #parseFrom(byte[])}.
+   */
   @Override
   public byte[] toByteArray() {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    DataOutputStream output = new DataOutputStream( byteArrayOutputStream );
-    try {
-      write( output );
-      output.close();
-      byteArrayOutputStream.close();
-      return byteArrayOutputStream.toByteArray();
-    } catch ( IOException e ) {
-      throw new RuntimeException( "Unable to serialize to byte array.", e );
-    }
+    byte[] result = new byte[ SERIALIZED_LENGTH ];
+    result[ 0 ] = (byte) ( m_isInteger ? 1 : 0 );
+    result[ 1 ] = (byte) ( m_isLongOrDouble ? 1 : 0 );
+    Bytes.putLong( result, 2, m_longValue );
+    Bytes.putDouble( result, 2 + Bytes.SIZEOF_LONG, m_doubleValue );
+    return result;
   }
 
   /**
@@ -136,19 +142,16 @@ public class DeserializedNumericComparator extends ByteArrayComparable implement
    * @throws java.io.IOException
    */
   public static ByteArrayComparable parseFrom( final byte[] pbBytes ) {
-    DataInput in = new DataInputStream( new ByteArrayInputStream( pbBytes ) );
-    try {
-      boolean m_isInteger = in.readBoolean();
-      boolean m_isLongOrDouble = in.readBoolean();
-      long m_longValue = in.readLong();
-      double m_doubleValue = in.readDouble();
-      if ( m_isInteger ) {
-        return new DeserializedNumericComparator( m_isInteger, m_isLongOrDouble, m_longValue );
-      } else {
-        return new DeserializedNumericComparator( m_isInteger, m_isLongOrDouble, m_doubleValue );
-      }
-    } catch ( IOException e ) {
-      throw new RuntimeException( "Unable to deserialize byte array", e );
+    if ( pbBytes.length < SERIALIZED_LENGTH ) {
+      throw new RuntimeException( "Unable to deserialize byte array", new EOFException() );
+    }
+    boolean m_isInteger = pbBytes[ 0 ] != 0;
+    boolean m_isLongOrDouble = pbBytes[ 1 ] != 0;
+    if ( m_isInteger ) {
+      return new DeserializedNumericComparator( m_isInteger, m_isLongOrDouble, Bytes.toLong( pbBytes, 2 ) );
+    } else {
+      return new DeserializedNumericComparator( m_isInteger, m_isLongOrDouble,
+        Bytes.toDouble( pbBytes, 2 + Bytes.SIZEOF_LONG ) );
     }
   }
 }
@@ -0,0 +1,310 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hbase.shim.common;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans several key ranges of a table at the same time and hands out their rows as one scanner. Every range is read
+ * into a bounded buffer by a worker thread, at most {@link ParallelScanOptions#getParallelism()} ranges are read at a
+ * time and the ranges are started in key order.
+ * <p>
+ * Ordered scans return the rows range after range, which is the key order of a sequential scan as the ranges do not
+ * overlap. Unordered scans return the rows as soon as any range delivers them.
+ */
+public final class ParallelScanner implements ResultScanner {
+
+  /**
+   * Reader of the rows of one range.
+   */
+  public interface RangeReader extends Closeable {
+    /**
+     * @return the next row of the range or null at its end
+     */
+    Result next() throws IOException;
+  }
+
+  @FunctionalInterface
+  public interface RangeReaderFactory {
+    /**
+     * Opens a range, called from the worker threads.
+     */
+    RangeReader open( KeyRange range ) throws IOException;
+  }
+
+  /**
+   * Key range from an inclusive start to an exclusive stop key, an empty key leaves the range open on that side.
+   */
+  public static final class KeyRange {
+    private final byte[] start;
+    private final byte[] stop;
+
+    public KeyRange( byte[] start, byte[] stop ) {
+      this.start = start;
+      this.stop = stop;
+    }
+
+    public byte[] getStart() {
+      return start;
+    }
+
+    public byte[] getStop() {
+      return stop;
+    }
+
+    /**
+     * @return a copy of {@code template} limited to this range
+     */
+    public Scan restrict( Scan template ) throws IOException {
+      return new Scan( template ).withStartRow( start ).withStopRow( stop );
+    }
+
+    @Override public String toString() {
+      return "[" + Bytes.toStringBinary( start ) + ", " + Bytes.toStringBinary( stop ) + ")";
+    }
+  }
+
+  private static final Object END = new Object();
+
+  private static final class Failure {
+    private final Exception cause;
+
+    private Failure( Exception cause ) {
+      this.cause = cause;
+    }
+  }
+
+  private final List<KeyRange> ranges;
+  private final boolean ordered;
+  private final RangeReaderFactory readerFactory;
+  private final BlockingQueue<Object>[] queues;
+  private final AtomicInteger nextRange = new AtomicInteger();
+  private final List<Future<?>> workers = new ArrayList<>();
+  private ExecutorService ownedExecutor;
+  private volatile boolean closed;
+
+  private int currentRange;
+  private int finishedRanges;
+  private IOException failure;
+
+  @SuppressWarnings( "unchecked" )
+  private ParallelScanner( List<KeyRange> ranges, ParallelScanOptions options, RangeReaderFactory readerFactory ) {
+    this.ranges = ranges;
+    this.ordered = options.isOrdered();
+    this.readerFactory = readerFactory;
+    if ( ordered ) {
+      queues = new BlockingQueue[ ranges.size() ];
+      for ( int i = 0; i < queues.length; i++ ) {
+        queues[ i ] = new LinkedBlockingQueue<>( options.getBufferSize() );
+      }
+    } else {
+      int workerCount = Math.max( 1, Math.min( options.getParallelism(), ranges.size() ) );
+      queues = new BlockingQueue[] { new LinkedBlockingQueue<>( options.getBufferSize() * workerCount ) };
+    }
+  }
+
+  /**
+   * Starts reading the ranges in the background.
+   *
+   * @param ranges        non overlapping ranges in key order, see {@link #split(byte[][], byte[], byte[])}
+   * @param options       parallelism, buffer size, ordering and executor of the scan
+   * @param readerFactory opens the reader of a range
+   */
+  public static ParallelScanner open( List<KeyRange> ranges, ParallelScanOptions options,
+                                      RangeReaderFactory readerFactory ) {
+    ParallelScanner scanner = new ParallelScanner( new ArrayList<>( ranges ), options, readerFactory );
+    scanner.start( Math.min( options.getParallelism(), ranges.size() ), options.getExecutor() );
+    return scanner;
+  }
+
+  /**
+   * Splits the key range from {@code lower} to {@code upper} at the given boundaries.
+   *
+   * @param boundaries start keys of the regions or split keys, in any order. The table start is always a boundary
+   * @param lower      inclusive start of the scan, null or empty for the table start
+   * @param upper      exclusive stop of the scan, null or empty for the table end
+   * @return the non empty ranges in key order
+   */
+  public static List<KeyRange> split( byte[][] boundaries, byte[] lower, byte[] upper ) {
+    lower = lower == null ? HConstants.EMPTY_START_ROW : lower;
+    upper = upper == null ? HConstants.EMPTY_END_ROW : upper;
+    TreeSet<byte[]> starts = new TreeSet<>( Bytes.BYTES_COMPARATOR );
+    starts.add( HConstants.EMPTY_START_ROW );
+    for ( byte[] boundary : boundaries ) {
+      if ( boundary != null ) {
+        starts.add( boundary );
+      }
+    }
+
+    List<KeyRange> ranges = new ArrayList<>();
+    List<byte[]> sorted = new ArrayList<>( starts );
+    for ( int i = 0; i < sorted.size(); i++ ) {
+      byte[] regionStart = sorted.get( i );
+      byte[] regionStop = i + 1 < sorted.size() ? sorted.get( i + 1 ) : HConstants.EMPTY_END_ROW;
+      byte[] start = Bytes.compareTo( regionStart, lower ) >= 0 ? regionStart : lower;
+      byte[] stop;
+      if ( regionStop.length == 0 ) {
+        stop = upper;
+      } else if ( upper.length == 0 ) {
+        stop = regionStop;
+      } else {
+        stop = Bytes.compareTo( regionStop, upper ) <= 0 ? regionStop : upper;
+      }
+      if ( stop.length == 0 || Bytes.compareTo( start, stop ) < 0 ) {
+        ranges.add( new KeyRange( start, stop ) );
+      }
+    }
+    return Collections.unmodifiableList( ranges );
+  }
+
+  private void start( int workerCount, ExecutorService executor ) {
+    if ( workerCount < 1 ) {
+      return;
+    }
+    if ( executor == null ) {
+      ownedExecutor = Executors.newFixedThreadPool( workerCount, runnable -> {
+        Thread thread = new Thread( runnable, "hbase-parallel-scan" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+      executor = ownedExecutor;
+    }
+    // each worker takes ranges in key order until none are left, so no more than "workerCount" ranges are open
+    for ( int i = 0; i < workerCount; i++ ) {
+      workers.add( executor.submit( this::readRanges ) );
+    }
+  }
+
+  private void readRanges() {
+    for ( int range = nextRange.getAndIncrement(); range < ranges.size() && !closed;
+          range = nextRange.getAndIncrement() ) {
+      BlockingQueue<Object> queue = ordered ? queues[ range ] : queues[ 0 ];
+      try {
+        try ( RangeReader reader = readerFactory.open( ranges.get( range ) ) ) {
+          for ( Result row = reader.next(); row != null; row = reader.next() ) {
+            queue.put( row );
+          }
+        }
+        queue.put( END );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch ( Exception e ) {
+        // stop the other workers from taking more ranges, the consumer fails once it gets here
+        nextRange.set( ranges.size() );
+        try {
+          queue.put( new Failure( e ) );
+        } catch ( InterruptedException interrupted ) {
+          Thread.currentThread().interrupt();
+        }
+        return;
+      }
+    }
+  }
+
+  @Override
+  public Result next() throws IOException {
+    if ( failure != null ) {
+      throw failure;
+    }
+    try {
+      while ( true ) {
+        Object item;
+        if ( ordered ) {
+          if ( currentRange >= queues.length ) {
+            return null;
+          }
+          item = queues[ currentRange ].take();
+          if ( item == END ) {
+            queues[ currentRange++ ] = null;
+            continue;
+          }
+        } else {
+          if ( finishedRanges >= ranges.size() ) {
+            return null;
+          }
+          item = queues[ 0 ].take();
+          if ( item == END ) {
+            finishedRanges++;
+            continue;
+          }
+        }
+        if ( item instanceof Failure ) {
+          Exception cause = ( (Failure) item ).cause;
+          failure = cause instanceof IOException ? (IOException) cause : new IOException( cause );
+          close();
+          throw failure;
+        }
+        return (Result) item;
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Parallel scan was interrupted" );
+    }
+  }
+
+  /**
+   * Stops the workers, the readers of the ranges in progress are closed.
+   */
+  @Override
+  public void close() {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    for ( Future<?> worker : workers ) {
+      worker.cancel( true );
+    }
+    if ( ownedExecutor != null ) {
+      ownedExecutor.shutdownNow();
+    }
+  }
+
+  @Override
+  public boolean renewLease() {
+    return false;
+  }
+
+  @Override
+  public ScanMetrics getScanMetrics() {
+    return null;
+  }
+
+  /**
+   * @return the ranges of the scan in key order
+   */
+  public List<KeyRange> getRanges() {
+    return Collections.unmodifiableList( ranges );
+  }
+}
@@ -15,10 +15,16 @@ package org.pentaho.hbase.shim.common.wrapper;
 
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
 import org.pentaho.hadoop.shim.api.internal.Configuration;
 import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
 
 import java.util.List;
 import java.util.NavigableMap;
@@ -30,6 +36,9 @@ public interface HBaseConnectionInterface {
   public abstract void addColumnFilterToScan( ColumnFilter cf, HBaseValueMeta columnMeta, VariableSpace vars,
                                               boolean matchAny ) throws Exception;
 
+  public abstract void addColumnFilterExpressionToScan( ColumnFilterExpression expression, Mapping.KeyType keyType,
+                                                        VariableSpace vars ) throws Exception;
+
   public abstract void addColumnToScan( String colFamilyName, String colName, boolean colNameIsBinary )
     throws Exception;
 
@@ -61,6 +70,8 @@ public interface HBaseConnectionInterface {
 
   public abstract void executeSourceTableScan() throws Exception;
 
+  public abstract void executeParallelSourceTableScan( ParallelScanOptions options ) throws Exception;
+
   public abstract void executeTargetTableDelete( byte[] rowKey ) throws Exception;
 
   public abstract void executeTargetTablePut() throws Exception;
@@ -113,14 +124,32 @@ public interface HBaseConnectionInterface {
 
   public abstract void newSourceTableScan( byte[] keyLowerBound, byte[] keyUpperBound, int cacheSize ) throws Exception;
 
+  public abstract void setSourceScanMaxResultSize( long maxResultSize ) throws Exception;
+
   public abstract void newTargetTable( String tableName, Properties props ) throws Exception;
 
   public abstract void newTargetTablePut( byte[] key, boolean writeToWAL ) throws Exception;
 
+  default HBaseWriteErrorReport takeTargetTableWriteErrors() throws Exception {
+    return HBaseWriteErrorReport.empty();
+  }
+
   public abstract boolean resultSetNextRow() throws Exception;
 
+  public abstract int resultSetNextRows( HBaseRowBatch batch ) throws Exception;
+
   public abstract boolean sourceTableRowExists( byte[] rowKey ) throws Exception;
 
+  default boolean[] sourceTableRowsExist( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    boolean[] exist = new boolean[ rowKeys.size() ];
+    for ( int i = 0; i < exist.length; i++ ) {
+      exist[ i ] = sourceTableRowExists( rowKeys.get( i ) );
+    }
+    return exist;
+  }
+
+  public abstract List<Object> sourceTableGetRows( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception;
+
   public abstract boolean tableExists( String tableName ) throws Exception;
 
   public abstract boolean targetTableIsAutoFlush() throws Exception;
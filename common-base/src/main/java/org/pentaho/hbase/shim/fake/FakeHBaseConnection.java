@@ -16,17 +16,30 @@ package org.pentaho.hbase.shim.fake;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.hadoop.shim.ShimVersion;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
 import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterCompiler;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseRowBatch;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.KeyRange;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
+import org.pentaho.hadoop.shim.api.internal.hbase.ScanPlan;
 import org.pentaho.hadoop.shim.spi.HBaseConnection;
 
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
@@ -34,8 +47,11 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.pentaho.hadoop.shim.api.internal.Configuration;
+import org.pentaho.hbase.shim.common.ChunkedLookup;
 import org.pentaho.hbase.shim.common.CommonHBaseBytesUtil;
 
 /**
@@ -255,6 +271,7 @@ public class FakeHBaseConnection implements HBaseConnection {
     protected byte[] m_stopKey; // exclusive
 
     protected List<Col> m_cols = new ArrayList<Col>();
+    protected List<PlanFilter> m_planFilters = new ArrayList<PlanFilter>();
 
     public Scan() {
       // full table scan
@@ -277,6 +294,39 @@ public class FakeHBaseConnection implements HBaseConnection {
       return m_cols;
     }
 
+    /**
+     * Restricts the scan to the rows matching the plan. Like the filters of a real scan the plan sees only the columns
+     * of the scan, so the compared columns are added to a scan limited to some columns.
+     */
+    public void addPlan( ScanPlan plan, VariableSpace vars ) {
+      m_planFilters.add( new PlanFilter( plan, vars ) );
+      if ( m_cols.isEmpty() ) {
+        return;
+      }
+      BytesComparator comp = new BytesComparator();
+      for ( HBaseValueMeta column : plan.getFilterColumns() ) {
+        byte[] family = m_bytesUtil.toBytes( column.getColumnFamily() );
+        byte[] name = m_bytesUtil.toBytes( column.getColumnName() );
+        boolean present = false;
+        for ( Col col : m_cols ) {
+          present |= comp.compare( col.m_colFamName, family ) == 0 && comp.compare( col.m_colName, name ) == 0;
+        }
+        if ( !present ) {
+          addColumn( family, name );
+        }
+      }
+    }
+
+    public boolean matches( byte[] rowKey,
+                            NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> fullRow ) {
+      for ( PlanFilter planFilter : m_planFilters ) {
+        if ( !planFilter.matches( rowKey, fullRow ) ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     public ResultScanner getScanner( String tableName ) {
       FakeTable table = m_db.get( tableName );
       if ( table == null ) {
@@ -378,6 +428,21 @@ public class FakeHBaseConnection implements HBaseConnection {
       return m_row;
     }
 
+    /**
+     * @return size of the row key, the column names and all versions of the values
+     */
+    public long getSizeInBytes() {
+      long size = m_rowKey.length;
+      for ( Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> family : m_row.entrySet() ) {
+        for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> column : family.getValue().entrySet() ) {
+          for ( byte[] value : column.getValue().values() ) {
+            size += family.getKey().length + column.getKey().length + value.length;
+          }
+        }
+      }
+      return size;
+    }
+
     public NavigableMap<byte[], byte[]> getFamilyMap( byte[] colFamily ) {
       NavigableMap<byte[], NavigableMap<Long, byte[]>> famMap = m_row
         .get( colFamily );
@@ -397,6 +462,141 @@ public class FakeHBaseConnection implements HBaseConnection {
     }
   }
 
+  /**
+   * Evaluates a scan plan against the rows of the table the way the region servers evaluate the filters a real
+   * connection creates for it.
+   */
+  protected class PlanFilter {
+    protected ScanPlan m_plan;
+    protected VariableSpace m_vars;
+
+    public PlanFilter( ScanPlan plan, VariableSpace vars ) {
+      m_plan = plan;
+      m_vars = vars;
+    }
+
+    public boolean matches( byte[] rowKey,
+                            NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> fullRow ) {
+      if ( !inRanges( m_plan.getKeyRanges(), rowKey ) ) {
+        return false;
+      }
+      try {
+        return m_plan.getFilter() == null || matches( m_plan.getFilter(), new Result( rowKey, fullRow ) );
+      } catch ( Exception ex ) {
+        throw new RuntimeException( ex );
+      }
+    }
+
+    protected boolean matches( ColumnFilterExpression expression, Result row ) throws Exception {
+      switch ( expression.getType() ) {
+        case KEY_RANGES:
+          return inRanges( expression.getKeyRanges(), row.getRow() );
+        case AND:
+          for ( ColumnFilterExpression child : expression.getChildren() ) {
+            if ( !matches( child, row ) ) {
+              return false;
+            }
+          }
+          return true;
+        case OR:
+          for ( ColumnFilterExpression child : expression.getChildren() ) {
+            if ( matches( child, row ) ) {
+              return true;
+            }
+          }
+          return false;
+        default:
+          return matches( expression.getFilter(), expression.getColumnMeta(), row );
+      }
+    }
+
+    /**
+     * Rows without the column never match, comparisons the real connection creates no filter for match every row.
+     */
+    protected boolean matches( ColumnFilter cf, HBaseValueMeta column, Result row ) throws Exception {
+      byte[] raw = column.isKey() ? row.getRow() : row.getValue( m_bytesUtil.toBytes( column.getColumnFamily() ),
+        m_bytesUtil.toBytes( column.getColumnName() ) );
+      if ( raw == null ) {
+        return false;
+      }
+      String constant = substitute( cf.getConstant().trim() );
+      switch ( cf.getComparisonOperator() ) {
+        case SUBSTRING:
+          // like the substring comparator of HBase the match ignores the case
+          return m_bytesUtil.toString( raw ).toLowerCase( Locale.ROOT )
+            .contains( constant.toLowerCase( Locale.ROOT ) );
+        case REGEX:
+          return Pattern.compile( constant ).matcher( m_bytesUtil.toString( raw ) ).find();
+        case PREFIX:
+          byte[] prefix = m_bytesUtil.toBytes( constant );
+          return raw.length >= prefix.length
+            && new BytesComparator().compareTo( raw, 0, prefix.length, prefix, 0, prefix.length ) == 0;
+        default:
+          break;
+      }
+
+      Object value = HBaseValueMeta.decodeColumnValue( raw, column, m_bytesUtil );
+      int comparison;
+      if ( column.isNumeric() ) {
+        if ( !( value instanceof Number ) ) {
+          return false;
+        }
+        DecimalFormat df = new DecimalFormat();
+        String format = substitute( cf.getFormat() );
+        if ( !HBaseConnection.isEmpty( format ) ) {
+          df.applyPattern( format );
+        }
+        df.setParseBigDecimal( true );
+        BigDecimal decoded = value instanceof Double ? BigDecimal.valueOf( (Double) value )
+          : BigDecimal.valueOf( ( (Number) value ).longValue() );
+        comparison = decoded.compareTo( (BigDecimal) df.parse( constant ) );
+      } else if ( column.isDate() ) {
+        SimpleDateFormat sdf = new SimpleDateFormat();
+        String format = substitute( cf.getFormat() );
+        if ( !HBaseConnection.isEmpty( format ) ) {
+          sdf.applyPattern( format );
+        }
+        comparison = Long.compare( ( (Date) value ).getTime(), sdf.parse( constant ).getTime() );
+      } else if ( column.isBoolean() ) {
+        Boolean decoded = HBaseValueMeta.decodeBoolFromString( m_bytesUtil.toBytes( constant ), m_bytesUtil );
+        if ( decoded == null ) {
+          return true;
+        }
+        comparison = Boolean.compare( (Boolean) value, decoded );
+      } else {
+        return true;
+      }
+
+      switch ( cf.getComparisonOperator() ) {
+        case EQUAL:
+          return comparison == 0;
+        case NOT_EQUAL:
+          return comparison != 0;
+        case GREATER_THAN:
+          return comparison > 0;
+        case GREATER_THAN_OR_EQUAL:
+          return comparison >= 0;
+        case LESS_THAN:
+          return comparison < 0;
+        default:
+          return comparison <= 0;
+      }
+    }
+
+    protected boolean inRanges( List<KeyRange> ranges, byte[] rowKey ) {
+      for ( KeyRange range : ranges ) {
+        if ( range.contains( rowKey ) ) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    protected String substitute( String s ) {
+      return m_vars == null ? s : m_vars.environmentSubstitute( s );
+    }
+  }
+
   protected class ResultScanner {
     protected Scan m_scan;
     protected SortedMap<byte[], NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>> m_rows;
@@ -419,6 +619,10 @@ public class FakeHBaseConnection implements HBaseConnection {
       Entry<byte[], NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>> nextR = m_rowIterator
         .next();
 
+      while ( nextR != null && !m_scan.matches( nextR.getKey(), nextR.getValue() ) ) {
+        nextR = m_rowIterator.hasNext() ? m_rowIterator.next() : null;
+      }
+
       if ( nextR == null ) {
         return null;
       }
@@ -431,6 +635,11 @@ public class FakeHBaseConnection implements HBaseConnection {
 
   protected Map<String, FakeTable> m_db = new HashMap<String, FakeTable>();
 
+  /**
+   * Number of requests a real connection would have sent to the region servers for row lookups.
+   */
+  protected final AtomicInteger m_lookupRpcCount = new AtomicInteger();
+
   protected String m_sourceTable;
   protected String m_targetTable;
   protected Scan m_sourceScan;
@@ -466,6 +675,19 @@ public class FakeHBaseConnection implements HBaseConnection {
 
   }
 
+  /**
+   * Rows of the source scan not matching the expression are skipped when reading the result set.
+   */
+  @Override
+  public void addColumnFilterExpressionToScan( ColumnFilterExpression expression, Mapping.KeyType keyType,
+                                               VariableSpace vars ) throws Exception {
+    checkSourceScan();
+
+    ScanPlan plan = new ColumnFilterCompiler( keyType, m_bytesUtil, vars )
+      .compile( expression, m_sourceScan.m_startKey, m_sourceScan.m_stopKey );
+    m_sourceScan.addPlan( plan, vars );
+  }
+
   @Override
   public void addColumnToScan( String colFamilyName, String colName,
                                boolean colNameIsBinary ) throws Exception {
@@ -489,9 +711,8 @@ public class FakeHBaseConnection implements HBaseConnection {
   }
 
   @Override
-  public boolean checkForHBaseRow( Object arg0 ) {
-    // TODO Auto-generated method stub
-    return false;
+  public boolean checkForHBaseRow( Object rowToCheck ) {
+    return rowToCheck instanceof Result;
   }
 
   @Override
@@ -594,6 +815,14 @@ public class FakeHBaseConnection implements HBaseConnection {
     m_resultSet = m_sourceScan.getScanner( m_sourceTable );
   }
 
+  /**
+   * The fake tables have no regions, the scan runs sequentially and returns the rows in key order.
+   */
+  @Override
+  public void executeParallelSourceTableScan( ParallelScanOptions options ) throws Exception {
+    executeSourceTableScan();
+  }
+
   @Override
   public void executeTargetTableDelete( byte[] rowKey ) throws Exception {
     checkTargetTable();
@@ -655,30 +884,27 @@ public class FakeHBaseConnection implements HBaseConnection {
   }
 
   @Override
-  public byte[] getRowColumnLatest( Object arg0, String arg1, String arg2,
-                                    boolean arg3 ) throws Exception {
-    // TODO Auto-generated method stub
-    return null;
+  public byte[] getRowColumnLatest( Object aRow, String colFamilyName, String colName,
+                                    boolean colNameIsBinary ) throws Exception {
+    return ( (Result) aRow ).getValue( m_bytesUtil.toBytes( colFamilyName ),
+      colNameIsBinary ? m_bytesUtil.toBytesBinary( colName ) : m_bytesUtil.toBytes( colName ) );
   }
 
   @Override
   public NavigableMap<byte[], byte[]> getRowFamilyMap( Object aRow, String family )
     throws Exception {
-    // TODO Auto-generated method stub
-    return null;
+    return ( (Result) aRow ).getFamilyMap( m_bytesUtil.toBytes( family ) );
   }
 
   @Override
-  public byte[] getRowKey( Object arg0 ) throws Exception {
-    // TODO Auto-generated method stub
-    return null;
+  public byte[] getRowKey( Object aRow ) throws Exception {
+    return ( (Result) aRow ).getRow();
   }
 
   @Override
   public NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> getRowMap(
-    Object arg0 ) throws Exception {
-    // TODO Auto-generated method stub
-    return null;
+    Object aRow ) throws Exception {
+    return ( (Result) aRow ).getMap();
   }
 
   @Override
@@ -746,6 +972,12 @@ public class FakeHBaseConnection implements HBaseConnection {
     m_sourceScan = new Scan( keyLowerBound, keyUpperBound );
   }
 
+  @Override
+  public void setSourceScanMaxResultSize( long maxResultSize ) throws Exception {
+    checkSourceScan();
+    // the fake scanner reads everything in memory, there are no requests to limit
+  }
+
   @Override
   public void newTargetTable( String tableName, Properties arg1 )
     throws Exception {
@@ -770,6 +1002,26 @@ public class FakeHBaseConnection implements HBaseConnection {
     return ( m_currentResultSetRow != null );
   }
 
+  @Override
+  public int resultSetNextRows( HBaseRowBatch batch ) throws Exception {
+    checkResultSet();
+    batch.clear();
+    while ( !batch.isFull() ) {
+      m_currentResultSetRow = m_resultSet.next();
+      if ( m_currentResultSetRow == null ) {
+        break;
+      }
+      int row = batch.add( m_currentResultSetRow, m_currentResultSetRow.getRow(),
+        m_currentResultSetRow.getSizeInBytes() );
+      for ( int column = 0; column < batch.getColumnCount(); column++ ) {
+        batch.setValue( row, column,
+          m_currentResultSetRow.getValue( batch.getFamily( column ), batch.getQualifier( column ) ) );
+      }
+    }
+
+    return batch.size();
+  }
+
   @Override
   public boolean sourceTableRowExists( byte[] rowKey ) throws Exception {
     checkSourceTable();
@@ -778,6 +1030,7 @@ public class FakeHBaseConnection implements HBaseConnection {
       return false;
     }
 
+    m_lookupRpcCount.incrementAndGet();
     if ( tab.get( rowKey ) == null ) {
       return false;
     }
@@ -785,6 +1038,54 @@ public class FakeHBaseConnection implements HBaseConnection {
     return true;
   }
 
+  @Override
+  public boolean[] sourceTableRowsExist( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    List<Object> rows = sourceTableGetRows( rowKeys, options );
+    boolean[] exist = new boolean[ rows.size() ];
+    for ( int i = 0; i < exist.length; i++ ) {
+      exist[ i ] = rows.get( i ) != null;
+    }
+    return exist;
+  }
+
+  /**
+   * Looks up the keys in chunks like a real connection does, every chunk counts as one request.
+   */
+  @Override
+  public List<Object> sourceTableGetRows( List<byte[]> rowKeys, BatchGetOptions options ) throws Exception {
+    checkSourceTable();
+    final FakeTable tab = m_db.get( m_sourceTable );
+    final Scan projection = new Scan();
+    for ( BatchGetOptions.Column column : options.getColumns() ) {
+      projection.addColumn( m_bytesUtil.toBytes( column.getFamily() ), column.isQualifierBinary()
+        ? m_bytesUtil.toBytesBinary( column.getQualifier() ) : m_bytesUtil.toBytes( column.getQualifier() ) );
+    }
+
+    return ChunkedLookup.lookup( rowKeys, options, ( keys, none ) -> {
+      m_lookupRpcCount.incrementAndGet();
+      List<Object> rows = new ArrayList<Object>( keys.size() );
+      for ( byte[] key : keys ) {
+        Result row = tab == null ? null : tab.get( key );
+        if ( row != null ) {
+          row = projection.columnLimitedRow( key, row.getMap() );
+        }
+        rows.add( row == null || row.getMap().isEmpty() ? null : row );
+      }
+      return rows;
+    } );
+  }
+
+  /**
+   * @return number of row lookup requests a real connection would have sent so far
+   */
+  public int getLookupRpcCount() {
+    return m_lookupRpcCount.get();
+  }
+
+  public void resetLookupRpcCount() {
+    m_lookupRpcCount.set( 0 );
+  }
+
   @Override
   public boolean tableExists( String tableName ) throws Exception {
     return ( m_db.get( tableName ) != null );
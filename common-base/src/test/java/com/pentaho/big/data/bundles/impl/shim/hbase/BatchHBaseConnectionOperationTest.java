@@ -13,12 +13,35 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase;
 
+import com.pentaho.big.data.bundles.impl.shim.hbase.BatchHBaseConnectionOperation.BatchResult;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 /**
@@ -46,4 +69,208 @@ public class BatchHBaseConnectionOperationTest {
     verify( operation1 ).perform( hBaseConnectionWrapper );
     verify( operation2 ).perform( hBaseConnectionWrapper );
   }
+
+  @Test
+  public void testIndependentTablesRunConcurrentlyWithinTheBound() throws Exception {
+    LatencyConnections connections = new LatencyConnections( 100 );
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    for ( int i = 0; i < 6; i++ ) {
+      batch.addOperation( connections.operation( "t" + i ), "t" + i );
+    }
+
+    BatchResult result = batch.performParallel( connections, 3 );
+
+    assertTrue( result.isSuccessful() );
+    assertTrue( connections.maxInFlight.get() > 1 );
+    assertTrue( connections.maxInFlight.get() <= 3 );
+    assertEquals( 6, connections.closed.get() );
+  }
+
+  @Test
+  public void testOperationsOnTheSameTableKeepTheirOrder() throws Exception {
+    LatencyConnections connections = new LatencyConnections( 0 );
+    Random random = new Random( 50 );
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    Map<String, List<String>> expected = new HashMap<>();
+    for ( int i = 0; i < 30; i++ ) {
+      String table = "t" + random.nextInt( 3 );
+      String label = table + "-" + i;
+      expected.computeIfAbsent( table, t -> new ArrayList<>() ).add( label );
+      batch.addOperation( connections.operation( table, label, random.nextInt( 20 ) ), table );
+    }
+
+    BatchResult result = batch.performParallel( connections, 4 );
+
+    assertTrue( result.isSuccessful() );
+    assertEquals( expected, connections.performedByTable );
+    assertFalse( connections.overlapOnTable );
+  }
+
+  @Test
+  public void testFailuresSkipDependentOperations() throws Exception {
+    LatencyConnections connections = new LatencyConnections( 10 );
+    IOException failure = new IOException( "write failed" );
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    batch.addOperation( wrapper -> {
+      throw failure;
+    }, "a" );
+    batch.addOperation( connections.operation( "a" ), "a" );
+    batch.addOperation( connections.operation( "b" ), "b" );
+    batch.addOperation( connections.operation( "c" ) );
+
+    BatchResult result = batch.performParallel( connections, 2 );
+
+    assertFalse( result.isSuccessful() );
+    assertEquals( 4, result.size() );
+    assertEquals( BatchResult.Status.FAILED, result.getStatus( 0 ) );
+    assertSame( failure, result.getFailure( 0 ) );
+    assertEquals( BatchResult.Status.SKIPPED, result.getStatus( 1 ) );
+    assertEquals( BatchResult.Status.SUCCEEDED, result.getStatus( 2 ) );
+    assertNull( result.getFailure( 2 ) );
+    assertEquals( BatchResult.Status.SKIPPED, result.getStatus( 3 ) );
+    assertEquals( Collections.singletonList( "b" ), connections.performedByTable.get( "b" ) );
+    try {
+      result.throwIfFailed();
+      fail( "Expected the failure of the first operation" );
+    } catch ( IOException e ) {
+      assertSame( failure, e );
+    }
+  }
+
+  @Test
+  public void testInterruptCancelsTheOperationsOnAGivenExecutor() throws Exception {
+    LatencyConnections connections = new LatencyConnections( 0 );
+    CountDownLatch started = new CountDownLatch( 1 );
+    CountDownLatch interrupted = new CountDownLatch( 1 );
+    AtomicInteger laterRuns = new AtomicInteger();
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    batch.addOperation( wrapper -> {
+      started.countDown();
+      try {
+        new CountDownLatch( 1 ).await();
+      } catch ( InterruptedException e ) {
+        interrupted.countDown();
+        throw new InterruptedIOException();
+      }
+    }, "a" );
+    batch.addOperation( wrapper -> laterRuns.incrementAndGet(), "a" );
+    ExecutorService executor = Executors.newFixedThreadPool( 2 );
+    Thread caller = Thread.currentThread();
+    Thread interrupter = new Thread( () -> {
+      try {
+        started.await();
+        caller.interrupt();
+      } catch ( InterruptedException e ) {
+        // the test fails on the missing interrupt
+      }
+    } );
+    interrupter.start();
+    try {
+      batch.performParallel( connections, 2, executor );
+      fail( "Expected the interrupt of the caller" );
+    } catch ( InterruptedIOException e ) {
+      assertTrue( Thread.interrupted() );
+    } finally {
+      interrupter.join();
+    }
+    assertTrue( interrupted.await( 10, TimeUnit.SECONDS ) );
+    executor.shutdown();
+    assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+    assertEquals( 0, laterRuns.get() );
+  }
+
+  @Test
+  public void testUndeclaredOperationsAreBarriers() {
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    HBaseConnectionOperation operation = mock( HBaseConnectionOperation.class );
+    batch.addOperation( operation, "a" );
+    batch.addOperation( operation, "b" );
+    batch.addOperation( operation );
+    batch.addOperation( operation, "a", "b" );
+    batch.addOperation( operation, "c" );
+    batch.addOperation( operation, "b" );
+
+    assertEquals( Arrays.asList( Collections.<Integer>emptyList(), Collections.<Integer>emptyList(),
+      Arrays.asList( 0, 1 ), Collections.singletonList( 2 ), Collections.singletonList( 2 ),
+      Arrays.asList( 2, 3 ) ), batch.getDependencies() );
+    assertTrue( batch.getTables().isEmpty() );
+  }
+
+  @Test
+  public void testBatchDeclaresTheTablesOfItsOperations() {
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    HBaseConnectionOperation operation = mock( HBaseConnectionOperation.class );
+    batch.addOperation( operation, "a" );
+    batch.addOperation( operation, "b", "a" );
+
+    assertEquals( new HashSet<>( Arrays.asList( "a", "b" ) ), batch.getTables() );
+  }
+
+  /**
+   * Hands out a new connection per operation whose {@code newSourceTable} takes the given latency, and records which
+   * operations ran on which table.
+   */
+  private static class LatencyConnections implements BatchHBaseConnectionOperation.ConnectionSource {
+    private final long latency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final Map<String, List<String>> performedByTable = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlightByTable = new ConcurrentHashMap<>();
+    private volatile boolean overlapOnTable;
+
+    private LatencyConnections( long latency ) {
+      this.latency = latency;
+    }
+
+    @Override public HBaseConnectionHandle getConnectionHandle() throws IOException {
+      HBaseConnectionWrapper connection = mock( HBaseConnectionWrapper.class );
+      try {
+        doAnswer( invocation -> {
+          int count = inFlight.incrementAndGet();
+          maxInFlight.accumulateAndGet( count, Math::max );
+          try {
+            Thread.sleep( latency );
+          } finally {
+            inFlight.decrementAndGet();
+          }
+          return null;
+        } ).when( connection ).newSourceTable( anyString() );
+      } catch ( Exception e ) {
+        throw new IOException( e );
+      }
+      return new HBaseConnectionHandle() {
+        @Override public HBaseConnectionWrapper getConnection() {
+          return connection;
+        }
+
+        @Override public void close() {
+          closed.incrementAndGet();
+        }
+      };
+    }
+
+    private HBaseConnectionOperation operation( String table ) {
+      return operation( table, table, 0 );
+    }
+
+    private HBaseConnectionOperation operation( String table, String label, long extraLatency ) {
+      return wrapper -> {
+        AtomicInteger tableInFlight = inFlightByTable.computeIfAbsent( table, t -> new AtomicInteger() );
+        if ( tableInFlight.incrementAndGet() > 1 ) {
+          overlapOnTable = true;
+        }
+        try {
+          wrapper.newSourceTable( table );
+          Thread.sleep( extraLatency );
+          performedByTable.computeIfAbsent( table, t -> Collections.synchronizedList( new ArrayList<>() ) )
+            .add( label );
+        } catch ( Exception e ) {
+          throw new IOException( e );
+        } finally {
+          tableInFlight.decrementAndGet();
+        }
+      };
+    }
+  }
 }
@@ -62,6 +62,45 @@ public class HBaseConnectionImplTest {
     assertNotNull( hBaseConnection.getTable( "tableName" ) );
   }
 
+  @Test
+  public void testBatchOfDeclaredTablesRunsOnConnectionsOfItsOwn() throws Exception {
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    HBaseConnectionOperation operation = mock( HBaseConnectionOperation.class );
+    batch.addOperation( operation, "a" );
+    batch.addOperation( operation, "b" );
+
+    hBaseConnection.performBatch( batch, 2 );
+
+    verify( operation, times( 2 ) ).perform( poolConnection );
+    verify( hBaseConnectionPool, times( 2 ) ).getConnectionHandle();
+    verify( hBaseConnectionHandle, times( 2 ) ).close();
+  }
+
+  @Test
+  public void testBatchOfUndeclaredTablesRunsOnOneConnection() throws Exception {
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    HBaseConnectionOperation operation = mock( HBaseConnectionOperation.class );
+    batch.addOperation( operation );
+    batch.addOperation( operation );
+
+    hBaseConnection.performBatch( batch, 2 );
+
+    verify( operation, times( 2 ) ).perform( poolConnection );
+    verify( hBaseConnectionPool ).getConnectionHandle();
+    verify( hBaseConnectionHandle ).close();
+  }
+
+  @Test( expected = IOException.class )
+  public void testBatchFailureIsThrown() throws Exception {
+    BatchHBaseConnectionOperation batch = new BatchHBaseConnectionOperation();
+    HBaseConnectionOperation operation = mock( HBaseConnectionOperation.class );
+    doThrow( ioException ).when( operation ).perform( poolConnection );
+    batch.addOperation( operation, "a" );
+    batch.addOperation( mock( HBaseConnectionOperation.class ), "b" );
+
+    hBaseConnection.performBatch( batch, 2 );
+  }
+
   @Test
   public void testCheckHBaseAvailable() throws Exception {
     hBaseConnection.checkHBaseAvailable();
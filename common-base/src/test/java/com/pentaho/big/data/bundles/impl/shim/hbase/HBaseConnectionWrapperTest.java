@@ -21,8 +21,11 @@ import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.internal.Configuration;
 import org.pentaho.hadoop.shim.api.hbase.HBaseConnection;
 import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
 import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.KeyRange;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
 
 
 import java.lang.reflect.Field;
@@ -30,6 +33,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.List;
 import java.util.NavigableMap;
 import java.util.Properties;
@@ -223,6 +227,14 @@ public class HBaseConnectionWrapperTest {
     verify( delegate ).addColumnFilterToScan( columnFilter, hBaseValueMeta, variableSpace, false );
   }
 
+  @Test
+  public void testAddColumnFilterExpressionToScan() throws Exception {
+    ColumnFilterExpression expression = ColumnFilterExpression.keyRanges( Collections.<KeyRange>emptyList() );
+    VariableSpace variableSpace = mock( VariableSpace.class );
+    hBaseConnectionWrapper.addColumnFilterExpressionToScan( expression, Mapping.KeyType.LONG, variableSpace );
+    verify( delegate ).addColumnFilterExpressionToScan( expression, Mapping.KeyType.LONG, variableSpace );
+  }
+
   @Test
   public void testExecuteSourceTableScan() throws Exception {
     hBaseConnectionWrapper.executeSourceTableScan();
@@ -0,0 +1,379 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pentaho.hbase.shim.fake.FakeHBaseConnection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HBaseConnectionPoolConcurrencyTest {
+  private static final List<String> TABLES = Arrays.asList( "t0", "t1", "t2" );
+
+  private final Queue<PooledFakeConnection> fakes = new ConcurrentLinkedQueue<>();
+  private HBaseConnectionPool pool;
+  private ExecutorService executor;
+
+  @After
+  public void tearDown() throws IOException {
+    if ( executor != null ) {
+      executor.shutdownNow();
+    }
+    if ( pool != null ) {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testMaxTotalTimesOut() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().maxTotal( 2 ).build() );
+    pool.getConnectionHandle();
+    pool.getConnectionHandle( "t0" );
+    try {
+      pool.getConnectionHandle( "t1", 20, TimeUnit.MILLISECONDS );
+      fail( "Expected a timeout" );
+    } catch ( IOException e ) {
+      // expected
+    }
+    HBaseConnectionPoolMetrics metrics = pool.getMetrics();
+    assertEquals( 2, metrics.getCreated() );
+    assertEquals( 2, metrics.getActive() );
+    assertEquals( 1, metrics.getTimeouts() );
+  }
+
+  @Test
+  public void testWaiterGetsReleasedConnection() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().maxTotal( 1 ).build() );
+    HBaseConnectionHandle handle = pool.getConnectionHandle( "t0" );
+    HBaseConnectionPoolConnection connection = (HBaseConnectionPoolConnection) handle.getConnection();
+    executor = Executors.newSingleThreadExecutor();
+    Future<HBaseConnectionHandle> waiting =
+      executor.submit( () -> pool.getConnectionHandle( "t1", 10, TimeUnit.SECONDS ) );
+    awaitWaiters( 1 );
+    handle.close();
+    HBaseConnectionPoolConnection reused = (HBaseConnectionPoolConnection) waiting.get().getConnection();
+    assertSame( connection, reused );
+    assertEquals( "t1", reused.getSourceTable() );
+    assertEquals( 1, pool.getMetrics().getCreated() );
+    assertEquals( 0, pool.getMetrics().getWaiters() );
+  }
+
+  @Test
+  public void testMaxPerKeyOnlyLimitsSameKey() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().maxPerKey( 1 ).build() );
+    Properties props = new Properties();
+    pool.getConnectionHandle( "t0" );
+    pool.getConnectionHandle( "t0", props );
+    try {
+      pool.getConnectionHandle( "t0", 20, TimeUnit.MILLISECONDS );
+      fail( "Expected a timeout" );
+    } catch ( IOException e ) {
+      // expected
+    }
+    try {
+      pool.getConnectionHandle( "t0", props, 20, TimeUnit.MILLISECONDS );
+      fail( "Expected a timeout" );
+    } catch ( IOException e ) {
+      // expected
+    }
+    Properties otherProps = new Properties();
+    otherProps.setProperty( "hbase.client.write.buffer", "1024" );
+    pool.getConnectionHandle( "t1" );
+    pool.getConnectionHandle( "t0", otherProps );
+    pool.getConnectionHandle();
+    pool.getConnectionHandle();
+    assertEquals( 6, pool.getMetrics().getActive() );
+  }
+
+  @Test
+  public void testIdleConnectionsAreEvicted() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().idleTimeoutMillis( 1 ).build() );
+    pool.getConnectionHandle( "t0" ).close();
+    Thread.sleep( 20 );
+    assertEquals( 1, pool.evictIdle() );
+    assertTrue( fakes.peek().closed );
+    HBaseConnectionPoolMetrics metrics = pool.getMetrics();
+    assertEquals( 1, metrics.getEvicted() );
+    assertEquals( 0, metrics.getIdle() );
+    assertEquals( 0, pool.getTotal() );
+  }
+
+  @Test
+  public void testBackgroundEviction() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().idleTimeoutMillis( 1 ).evictionIntervalMillis( 5 ).build() );
+    pool.getConnectionHandle( "t0" ).close();
+    long deadline = System.currentTimeMillis() + 10000;
+    while ( pool.getMetrics().getEvicted() == 0 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 5 );
+    }
+    assertEquals( 1, pool.getMetrics().getEvicted() );
+  }
+
+  @Test
+  public void testInvalidConnectionIsReplacedOnBorrow() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().validateOnBorrow( true ).build() );
+    HBaseConnectionHandle handle = pool.getConnectionHandle( "t0" );
+    HBaseConnectionPoolConnection broken = (HBaseConnectionPoolConnection) handle.getConnection();
+    handle.close();
+    fakes.peek().healthy = false;
+    HBaseConnectionPoolConnection replacement =
+      (HBaseConnectionPoolConnection) pool.getConnectionHandle( "t0" ).getConnection();
+    assertNotSame( broken, replacement );
+    assertTrue( fakes.peek().closed );
+    assertEquals( 2, pool.getMetrics().getCreated() );
+    assertEquals( 1, pool.getMetrics().getInvalidated() );
+  }
+
+  @Test
+  public void testInvalidConnectionIsClosedOnReturn() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().validateOnReturn( true ).build() );
+    HBaseConnectionHandle handle = pool.getConnectionHandle();
+    fakes.peek().healthy = false;
+    handle.close();
+    assertTrue( fakes.peek().closed );
+    assertEquals( 0, pool.getMetrics().getIdle() );
+    assertEquals( 1, pool.getMetrics().getInvalidated() );
+    assertEquals( 0, pool.getTotal() );
+  }
+
+  @Test
+  public void testCloseFailsWaiters() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.builder().maxTotal( 1 ).build() );
+    pool.getConnectionHandle();
+    executor = Executors.newSingleThreadExecutor();
+    Future<HBaseConnectionHandle> waiting = executor.submit( () -> pool.getConnectionHandle( -1, TimeUnit.SECONDS ) );
+    awaitWaiters( 1 );
+    pool.close();
+    try {
+      waiting.get( 10, TimeUnit.SECONDS );
+      fail( "Expected the waiter to fail" );
+    } catch ( java.util.concurrent.ExecutionException e ) {
+      assertTrue( e.getCause() instanceof IOException );
+    }
+    assertTrue( fakes.peek().closed );
+  }
+
+  @Test
+  public void testDoubleReleaseIsIgnored() throws Exception {
+    pool = createPool( HBaseConnectionPoolConfig.defaults() );
+    HBaseConnectionHandle handle = pool.getConnectionHandle();
+    HBaseConnectionPoolConnection connection = (HBaseConnectionPoolConnection) handle.getConnection();
+    handle.close();
+    pool.releaseConnection( connection );
+    handle.close();
+    assertEquals( 1, pool.getMetrics().getIdle() );
+    assertSame( connection, pool.getConnectionHandle().getConnection() );
+    assertEquals( 1, pool.getMetrics().getCreated() );
+  }
+
+  @Test
+  public void testConfigFromProperties() {
+    Properties props = new Properties();
+    props.setProperty( HBaseConnectionPoolConfig.MAX_TOTAL_KEY, "8" );
+    props.setProperty( HBaseConnectionPoolConfig.MAX_PER_KEY_KEY, " 2 " );
+    props.setProperty( HBaseConnectionPoolConfig.IDLE_TIMEOUT_MILLIS_KEY, "1000" );
+    props.setProperty( HBaseConnectionPoolConfig.VALIDATE_ON_BORROW_KEY, "true" );
+    HBaseConnectionPoolConfig config = HBaseConnectionPoolConfig.fromProperties( props );
+    assertEquals( 8, config.getMaxTotal() );
+    assertEquals( 2, config.getMaxPerKey() );
+    assertEquals( 1000, config.getIdleTimeoutMillis() );
+    assertEquals( HBaseConnectionPoolConfig.DEFAULT_MAX_WAIT_MILLIS, config.getMaxWaitMillis() );
+    assertTrue( config.isValidateOnBorrow() );
+    assertFalse( config.isValidateOnReturn() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testConfigFromPropertiesRejectsGarbage() {
+    Properties props = new Properties();
+    props.setProperty( HBaseConnectionPoolConfig.MAX_TOTAL_KEY, "many" );
+    HBaseConnectionPoolConfig.fromProperties( props );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testConfigFromPropertiesRejectsLimitsBeyondInt() {
+    Properties props = new Properties();
+    props.setProperty( HBaseConnectionPoolConfig.MAX_PER_KEY_KEY, "4294967297" );
+    HBaseConnectionPoolConfig.fromProperties( props );
+  }
+
+  @Test
+  public void testStressRespectsLimits() throws Exception {
+    int maxTotal = 4;
+    int maxPerKey = 2;
+    pool = createPool( HBaseConnectionPoolConfig.builder().maxTotal( maxTotal ).maxPerKey( maxPerKey )
+      .maxWaitMillis( -1 ).build() );
+    runStress( 16, 500, maxTotal, maxPerKey );
+    HBaseConnectionPoolMetrics metrics = pool.getMetrics();
+    assertEquals( 0, metrics.getActive() );
+    assertEquals( 0, metrics.getWaiters() );
+    assertEquals( 16 * 500, metrics.getBorrows() );
+    assertTrue( metrics.getCreated() <= maxTotal );
+    assertEquals( metrics.getIdle(), pool.getTotal() );
+    assertTrue( metrics.getMaxBorrowNanos() >= metrics.getAverageBorrowNanos() );
+  }
+
+  @Test
+  public void testStressWithEvictionAndValidation() throws Exception {
+    int maxTotal = 6;
+    pool = createPool( HBaseConnectionPoolConfig.builder().maxTotal( maxTotal ).maxWaitMillis( -1 )
+      .idleTimeoutMillis( 1 ).evictionIntervalMillis( 1 ).validateOnBorrow( true ).validateOnReturn( true )
+      .build() );
+    runStress( 12, 300, maxTotal, 0 );
+    long deadline = System.currentTimeMillis() + 10000;
+    while ( pool.getMetrics().getIdle() > 0 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 5 );
+    }
+    HBaseConnectionPoolMetrics metrics = pool.getMetrics();
+    assertEquals( 0, metrics.getActive() );
+    assertEquals( 0, metrics.getIdle() );
+    assertEquals( 0, pool.getTotal() );
+    assertEquals( metrics.getCreated(), metrics.getEvicted() + metrics.getInvalidated() );
+    for ( PooledFakeConnection fake : fakes ) {
+      assertTrue( fake.closed );
+    }
+  }
+
+  /**
+   * Borrows random source, target and plain connections from many threads and checks that no connection is lent
+   * twice, that every connection has the requested table and that the limits hold.
+   */
+  private void runStress( int threads, int iterations, int maxTotal, int maxPerKey ) throws Exception {
+    Set<HBaseConnectionPoolConnection> lent = ConcurrentHashMap.newKeySet();
+    Map<String, AtomicInteger> borrowedByKey = new ConcurrentHashMap<>();
+    AtomicInteger active = new AtomicInteger();
+    Properties[] props = { new Properties(), new Properties() };
+    props[ 1 ].setProperty( "p", "1" );
+    CountDownLatch start = new CountDownLatch( 1 );
+    executor = Executors.newFixedThreadPool( threads );
+    List<Future<Void>> futures = new ArrayList<>();
+    for ( int t = 0; t < threads; t++ ) {
+      long seed = t;
+      futures.add( executor.submit( (Callable<Void>) () -> {
+        Random random = new Random( seed );
+        start.await();
+        for ( int i = 0; i < iterations; i++ ) {
+          String table = TABLES.get( random.nextInt( TABLES.size() ) );
+          int kind = random.nextInt( 3 );
+          String key;
+          HBaseConnectionHandle handle;
+          if ( kind == 0 ) {
+            key = "source:" + table;
+            handle = pool.getConnectionHandle( table );
+          } else if ( kind == 1 ) {
+            Properties tableProps = props[ random.nextInt( props.length ) ];
+            key = "target:" + table + tableProps;
+            handle = pool.getConnectionHandle( table, tableProps );
+            HBaseConnectionPoolConnection connection = (HBaseConnectionPoolConnection) handle.getConnection();
+            assertEquals( table, connection.getTargetTable() );
+            assertEquals( tableProps, connection.getTargetTableProperties() );
+          } else {
+            key = null;
+            handle = pool.getConnectionHandle();
+          }
+          HBaseConnectionPoolConnection connection = (HBaseConnectionPoolConnection) handle.getConnection();
+          if ( kind == 0 ) {
+            assertEquals( table, connection.getSourceTable() );
+          }
+          assertTrue( "Connection lent twice", lent.add( connection ) );
+          assertTrue( active.incrementAndGet() <= maxTotal );
+          if ( key != null && maxPerKey > 0 ) {
+            assertTrue( borrowedByKey.computeIfAbsent( key, k -> new AtomicInteger() ).incrementAndGet() <= maxPerKey );
+          }
+          if ( random.nextInt( 4 ) == 0 ) {
+            Thread.yield();
+          }
+          if ( key != null && maxPerKey > 0 ) {
+            borrowedByKey.get( key ).decrementAndGet();
+          }
+          active.decrementAndGet();
+          lent.remove( connection );
+          handle.close();
+        }
+        return null;
+      } ) );
+    }
+    start.countDown();
+    for ( Future<Void> future : futures ) {
+      future.get( 60, TimeUnit.SECONDS );
+    }
+  }
+
+  private void awaitWaiters( int waiters ) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while ( pool.getMetrics().getWaiters() < waiters && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 1 );
+    }
+    assertEquals( waiters, pool.getMetrics().getWaiters() );
+  }
+
+  private HBaseConnectionPool createPool( HBaseConnectionPoolConfig config ) {
+    return new HBaseConnectionPool( null, new Properties(), null, null, config ) {
+      @Override protected HBaseConnectionPoolConnection create() throws IOException {
+        try {
+          PooledFakeConnection fake = new PooledFakeConnection();
+          fakes.add( fake );
+          return new HBaseConnectionPoolConnection( fake );
+        } catch ( Exception e ) {
+          throw new IOException( e );
+        }
+      }
+    };
+  }
+
+  private static class PooledFakeConnection extends FakeHBaseConnection {
+    private volatile boolean healthy = true;
+    private volatile boolean closed;
+
+    PooledFakeConnection() throws Exception {
+      for ( String table : TABLES ) {
+        createTable( table, Arrays.asList( "f" ), new Properties() );
+      }
+    }
+
+    @Override public void checkHBaseAvailable() throws Exception {
+      if ( !healthy ) {
+        throw new IOException( "Connection lost" );
+      }
+    }
+
+    @Override public void close() throws Exception {
+      closed = true;
+    }
+  }
+}
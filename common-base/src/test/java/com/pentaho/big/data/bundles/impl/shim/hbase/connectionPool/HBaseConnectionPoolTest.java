@@ -299,6 +299,46 @@ public class HBaseConnectionPoolTest {
     assertEquals( connection, hBaseConnectionPool.getConnectionHandle( table, null ).getConnection() );
   }
 
+  @Test
+  public void testGetConnectionHandleTargetTableSamePropsKeepsTable() throws Exception {
+    String table = "table";
+    Properties properties = mock( Properties.class );
+    hBaseConnectionPool.getConnectionHandle( table, properties ).close();
+    HBaseConnectionHandle connectionHandle = hBaseConnectionPool.getConnectionHandle( table, properties );
+    assertEquals( 1, mockConnections.size() );
+    verify( mockConnections.get( 0 ), times( 1 ) ).newTargetTable( table, properties );
+    connectionHandle.close();
+  }
+
+  @Test
+  public void testGetConnectionHandleTargetTableDifferentPropsSwitchesTable() throws Exception {
+    String table = "table";
+    Properties properties = mock( Properties.class );
+    Properties otherProperties = mock( Properties.class );
+    hBaseConnectionPool.getConnectionHandle( table, properties ).close();
+    HBaseConnectionHandle connectionHandle = hBaseConnectionPool.getConnectionHandle( table, otherProperties );
+    assertEquals( 1, mockConnections.size() );
+    verify( mockConnections.get( 0 ) ).newTargetTable( table, otherProperties );
+    assertEquals( otherProperties,
+      ( (HBaseConnectionPoolConnection) connectionHandle.getConnection() ).getTargetTableProperties() );
+  }
+
+  @Test
+  public void testChangedTargetTablePropsDoNotHandOutBorrowedConnection() throws Exception {
+    String table = "table";
+    Properties properties = new Properties();
+    properties.setProperty( "a", "1" );
+    hBaseConnectionPool.getConnectionHandle( table, properties ).close();
+    properties.setProperty( "b", "2" );
+    HBaseConnectionHandle borrowed = hBaseConnectionPool.getConnectionHandle( table, properties );
+    properties.remove( "b" );
+    HBaseConnectionHandle other = hBaseConnectionPool.getConnectionHandle( table, properties );
+    assertNotSame( borrowed.getConnection(), other.getConnection() );
+    assertEquals( 2, mockConnections.size() );
+    borrowed.close();
+    other.close();
+  }
+
   @Test
   public void testConfigMessage() throws Exception {
     hBaseShim = mock( HBaseShim.class );
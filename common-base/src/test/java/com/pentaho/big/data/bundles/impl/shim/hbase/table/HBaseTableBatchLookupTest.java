@@ -0,0 +1,166 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.table;
+
+import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPool;
+import com.pentaho.big.data.bundles.impl.shim.hbase.meta.HBaseValueMetaInterfaceFactoryImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hbase.shim.fake.FakeHBaseConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HBaseTableBatchLookupTest {
+  private static final String TABLE = "lookup";
+
+  private FakeHBaseConnection connection;
+  private HBaseTableImpl hBaseTable;
+
+  @Before
+  public void setUp() throws Exception {
+    connection = new FakeHBaseConnection();
+    connection.createTable( TABLE, Arrays.asList( "f" ), new Properties() );
+    connection.newTargetTable( TABLE, null );
+    // every even key from k00 to k18 exists
+    for ( int i = 0; i < 20; i += 2 ) {
+      connection.newTargetTablePut( key( i ), true );
+      connection.addColumnToTargetPut( "f", "q1", false, bytes( "a" + i ) );
+      connection.addColumnToTargetPut( "f", "q2", false, bytes( "b" + i ) );
+      connection.executeTargetTablePut();
+    }
+    connection.newSourceTable( TABLE );
+
+    HBaseConnectionHandle handle = mock( HBaseConnectionHandle.class );
+    when( handle.getConnection() ).thenReturn( new HBaseConnectionWrapper( connection ) );
+    HBaseConnectionPool pool = mock( HBaseConnectionPool.class );
+    when( pool.getConnectionHandle( TABLE ) ).thenReturn( handle );
+    hBaseTable = new HBaseTableImpl( pool, mock( HBaseValueMetaInterfaceFactoryImpl.class ),
+      mock( HBaseBytesUtilShim.class ), TABLE );
+  }
+
+  @Test
+  public void singleKeyLookupsCostOneRequestEach() throws Exception {
+    for ( int i = 0; i < 20; i++ ) {
+      assertEquals( i % 2 == 0, hBaseTable.keyExists( key( i ) ) );
+    }
+    assertEquals( 20, connection.getLookupRpcCount() );
+  }
+
+  @Test
+  public void keysExistSendsOneRequestPerChunk() throws Exception {
+    boolean[] exist = hBaseTable.keysExist( keys( 25 ), BatchGetOptions.builder().chunkSize( 10 ).build() );
+
+    assertEquals( 3, connection.getLookupRpcCount() );
+    assertEquals( 25, exist.length );
+    for ( int i = 0; i < 25; i++ ) {
+      assertEquals( "key " + i, i % 2 == 0 && i < 20, exist[ i ] );
+    }
+  }
+
+  @Test
+  public void rowsComeBackInInputOrderWithProjection() throws Exception {
+    List<byte[]> keys = Arrays.asList( key( 6 ), key( 3 ), key( 0 ), key( 18 ), key( 99 ) );
+    List<Object> rows = connection.sourceTableGetRows( keys,
+      BatchGetOptions.builder().chunkSize( 2 ).addColumn( "f", "q2", false ).build() );
+
+    assertEquals( 3, connection.getLookupRpcCount() );
+    assertEquals( 5, rows.size() );
+    assertArrayEquals( key( 6 ), connection.getRowKey( rows.get( 0 ) ) );
+    assertNull( rows.get( 1 ) );
+    assertArrayEquals( key( 0 ), connection.getRowKey( rows.get( 2 ) ) );
+    assertArrayEquals( key( 18 ), connection.getRowKey( rows.get( 3 ) ) );
+    assertNull( rows.get( 4 ) );
+
+    assertArrayEquals( bytes( "b6" ), connection.getRowColumnLatest( rows.get( 0 ), "f", "q2", false ) );
+    assertNull( connection.getRowColumnLatest( rows.get( 0 ), "f", "q1", false ) );
+  }
+
+  @Test
+  public void projectionOfMissingColumnFindsNoRow() throws Exception {
+    boolean[] exist = hBaseTable.keysExist( Arrays.asList( key( 0 ), key( 2 ) ),
+      BatchGetOptions.builder().addColumn( "f", "missing", false ).build() );
+    assertFalse( exist[ 0 ] );
+    assertFalse( exist[ 1 ] );
+  }
+
+  @Test
+  public void parallelChunksKeepInputOrder() throws Exception {
+    List<byte[]> keys = keys( 40 );
+    boolean[] exist = hBaseTable.keysExist( keys, BatchGetOptions.builder().chunkSize( 3 ).parallelism( 4 ).build() );
+
+    assertEquals( 14, connection.getLookupRpcCount() );
+    for ( int i = 0; i < 40; i++ ) {
+      assertEquals( "key " + i, i % 2 == 0 && i < 20, exist[ i ] );
+    }
+  }
+
+  @Test
+  public void callerExecutorIsNotShutDown() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool( 2 );
+    try {
+      boolean[] exist = hBaseTable.keysExist( keys( 10 ),
+        BatchGetOptions.builder().chunkSize( 2 ).parallelism( 2 ).executor( executor ).build() );
+      assertEquals( 5, connection.getLookupRpcCount() );
+      assertTrue( exist[ 8 ] );
+      assertFalse( exist[ 9 ] );
+      assertFalse( executor.isShutdown() );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void emptyKeyListSendsNothing() throws Exception {
+    assertEquals( 0, hBaseTable.keysExist( new ArrayList<byte[]>(), BatchGetOptions.defaults() ).length );
+    assertEquals( 0, connection.getLookupRpcCount() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void chunkSizeMustBePositive() {
+    BatchGetOptions.builder().chunkSize( 0 );
+  }
+
+  private static List<byte[]> keys( int count ) {
+    List<byte[]> keys = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      keys.add( key( i ) );
+    }
+    return keys;
+  }
+
+  private static byte[] key( int i ) {
+    return bytes( String.format( "k%02d", i ) );
+  }
+
+  private static byte[] bytes( String value ) {
+    return value.getBytes( StandardCharsets.UTF_8 );
+  }
+}
@@ -17,9 +17,13 @@ import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteException;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteFailure;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Collections;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -89,6 +93,27 @@ public class HBaseTableWriteOperationManagerImplTest {
     }
   }
 
+  @Test
+  public void testFlushCommitsKeepsWriteErrorReport() throws Exception {
+    HBaseWriteException writeException = new HBaseWriteException( new HBaseWriteErrorReport( Collections.singletonList(
+      new HBaseWriteFailure( new byte[] { 1 }, HBaseWriteFailure.Operation.PUT, true, null, "region moved" ) ) ) );
+    doThrow( new Exception( writeException ) ).when( hBaseConnectionWrapper ).flushCommitsTargetTable();
+    try {
+      hBaseTableWriteOperationManager.flushCommits();
+      fail();
+    } catch ( HBaseWriteException e ) {
+      assertSame( writeException, e );
+      assertTrue( e.getReport().isRetriable() );
+    }
+  }
+
+  @Test
+  public void testTakeWriteErrorReport() throws Exception {
+    HBaseWriteErrorReport report = HBaseWriteErrorReport.empty();
+    when( hBaseConnectionWrapper.takeTargetTableWriteErrors() ).thenReturn( report );
+    assertSame( report, hBaseTableWriteOperationManager.takeWriteErrorReport() );
+  }
+
   @Test
   public void testClose() throws IOException {
     hBaseTableWriteOperationManager.close();
@@ -0,0 +1,142 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.table;
+
+import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPool;
+import com.pentaho.big.data.bundles.impl.shim.hbase.meta.HBaseValueMetaInterfaceFactoryImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultBatch;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScanner;
+import org.pentaho.hadoop.shim.api.hbase.table.ResultScannerBuilder;
+import org.pentaho.hbase.shim.common.CommonHBaseBytesUtil;
+import org.pentaho.hbase.shim.fake.FakeHBaseConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResultScannerBatchTest {
+  private static final String TABLE = "scan";
+  private static final int ROWS = 25;
+
+  private HBaseTableImpl hBaseTable;
+
+  @Before
+  public void setUp() throws Exception {
+    FakeHBaseConnection connection = new FakeHBaseConnection();
+    connection.createTable( TABLE, Arrays.asList( "f" ), new Properties() );
+    connection.newTargetTable( TABLE, null );
+    for ( int i = 0; i < ROWS; i++ ) {
+      connection.newTargetTablePut( key( i ), true );
+      connection.addColumnToTargetPut( "f", "q1", false, bytes( "a" + i ) );
+      connection.addColumnToTargetPut( "f", "q2", false, bytes( "b" + i ) );
+      connection.executeTargetTablePut();
+    }
+    connection.newSourceTable( TABLE );
+
+    HBaseConnectionHandle handle = mock( HBaseConnectionHandle.class );
+    when( handle.getConnection() ).thenReturn( new HBaseConnectionWrapper( connection ) );
+    HBaseConnectionPool pool = mock( HBaseConnectionPool.class );
+    when( pool.getConnectionHandle( TABLE ) ).thenReturn( handle );
+    hBaseTable = new HBaseTableImpl( pool, mock( HBaseValueMetaInterfaceFactoryImpl.class ),
+      new CommonHBaseBytesUtil(), TABLE );
+  }
+
+  @Test
+  public void batchesFollowTheScanOrder() throws Exception {
+    ResultScannerBuilder builder = hBaseTable.createScannerBuilder( null, null );
+    builder.addColumnToScan( "f", "q2", false );
+    builder.addColumnToScan( "f", "q1", false );
+    ResultScanner scanner = builder.build();
+
+    int row = 0;
+    for ( int expected : new int[] { 10, 10, 5, 0 } ) {
+      ResultBatch batch = scanner.next( 10 );
+      assertEquals( expected, batch.size() );
+      for ( int i = 0; i < batch.size(); i++, row++ ) {
+        assertArrayEquals( key( row ), batch.getRow( i ) );
+        assertArrayEquals( bytes( "b" + row ), batch.getValue( i, 0 ) );
+        assertArrayEquals( bytes( "a" + row ), batch.getValue( i, 1 ) );
+        assertArrayEquals( bytes( "a" + row ), batch.get( i ).getValue( "f", "q1", false ) );
+        assertNull( batch.get( i ).getValue( "f", "missing", false ) );
+      }
+    }
+    assertEquals( ROWS, row );
+  }
+
+  @Test
+  public void cacheSizeLimitsTheBatch() throws Exception {
+    ResultScannerBuilder builder = hBaseTable.createScannerBuilder( null, null );
+    builder.setCaching( 4 );
+    ResultScanner scanner = builder.build();
+
+    assertEquals( 4, scanner.next( 10 ).size() );
+    assertEquals( 3, scanner.next( 3 ).size() );
+  }
+
+  @Test
+  public void maxResultSizeEndsTheBatchEarly() throws Exception {
+    ResultScannerBuilder builder = hBaseTable.createScannerBuilder( null, null );
+    builder.setMaxResultSize( 1 );
+    ResultScanner scanner = builder.build();
+
+    ResultBatch batch = scanner.next( 10 );
+    assertEquals( 1, batch.size() );
+    assertTrue( batch.getSizeInBytes() >= 1 );
+    assertArrayEquals( key( 1 ), scanner.next( 10 ).getRow( 0 ) );
+  }
+
+  @Test
+  public void resultsAreReusedAcrossBatches() throws Exception {
+    ResultScanner scanner = hBaseTable.createScannerBuilder( null, null ).build();
+
+    ResultBatch first = scanner.next( 5 );
+    Result result = first.get( 0 );
+    assertArrayEquals( key( 0 ), result.getRow() );
+    assertFalse( result.isEmpty() );
+
+    ResultBatch second = scanner.next( 5 );
+    assertSame( first, second );
+    assertSame( result, second.get( 0 ) );
+    assertArrayEquals( key( 5 ), result.getRow() );
+    assertArrayEquals( bytes( "b5" ), result.getFamilyMap( "f" ).get( bytes( "q2" ) ) );
+  }
+
+  @Test( expected = IndexOutOfBoundsException.class )
+  public void rowsBeyondTheBatchAreRejected() throws Exception {
+    ResultScanner scanner = hBaseTable.createScannerBuilder( null, null ).build();
+    scanner.next( ROWS + 5 ).get( ROWS );
+  }
+
+  private static byte[] key( int i ) {
+    return bytes( String.format( "k%02d", i ) );
+  }
+
+  private static byte[] bytes( String value ) {
+    return value.getBytes( StandardCharsets.UTF_8 );
+  }
+}
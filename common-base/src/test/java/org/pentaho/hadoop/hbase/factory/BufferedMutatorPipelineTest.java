@@ -0,0 +1,332 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.hbase.factory;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteErrorReport;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteException;
+import org.pentaho.hadoop.shim.api.hbase.table.HBaseWriteFailure;
+import org.pentaho.hadoop.shim.spi.HBaseConnection;
+import org.pentaho.hbase.factory.HBaseWriteOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BufferedMutatorPipelineTest {
+  private static final TableName TABLE = TableName.valueOf( "target" );
+
+  private final List<FakeBufferedMutator> mutators = new ArrayList<>();
+  private BufferedMutatorPipeline pipeline;
+
+  @Before
+  public void setUp() {
+    mutators.clear();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if ( pipeline != null ) {
+      try {
+        pipeline.close();
+      } catch ( HBaseWriteException ignored ) {
+        // failures of the test scenario
+      }
+    }
+  }
+
+  @Test
+  public void mutationsAreBufferedUntilFlush() throws IOException {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).build() );
+    put( "r0", "r1", "r2" );
+    assertEquals( Arrays.asList( "r0", "r1", "r2" ), mutator().getEvents() );
+
+    pipeline.flush();
+    assertEquals( Arrays.asList( "r0", "r1", "r2", FakeBufferedMutator.FLUSH ), mutator().getEvents() );
+    assertEquals( Collections.singletonList( Arrays.asList( "r0", "r1", "r2" ) ), mutator().getBatches() );
+  }
+
+  @Test
+  public void inFlightLimitFlushesInOrder() throws IOException {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).maxInFlightMutations( 3 ).build() );
+    put( "r0", "r1", "r2", "r3", "r4", "r5", "r6" );
+    pipeline.flush();
+
+    String f = FakeBufferedMutator.FLUSH;
+    assertEquals( Arrays.asList( "r0", "r1", "r2", f, "r3", "r4", "r5", f, "r6", f ), mutator().getEvents() );
+    assertEquals( Arrays.asList( Arrays.asList( "r0", "r1", "r2" ), Arrays.asList( "r3", "r4", "r5" ),
+      Collections.singletonList( "r6" ) ), mutator().getBatches() );
+  }
+
+  @Test
+  public void autoFlushSendsEveryMutation() throws IOException {
+    pipeline = create( HBaseWriteOptions.builder().build() );
+    put( "r0" );
+    pipeline.mutate( new Delete( Bytes.toBytes( "r1" ) ) );
+
+    String f = FakeBufferedMutator.FLUSH;
+    assertEquals( Arrays.asList( "r0", f, "r1", f ), mutator().getEvents() );
+  }
+
+  @Test
+  public void bufferSizeAndListenerArePassedToMutator() throws IOException {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).writeBufferSize( 4096 ).build() );
+    assertEquals( 4096, mutator().getParams().getWriteBufferSize() );
+    assertEquals( TABLE, mutator().getParams().getTableName() );
+    assertTrue( mutator().getParams().getListener() != null );
+  }
+
+  @Test
+  public void rejectedRowsAreReportedByNextFlush() throws IOException {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).maxInFlightMutations( 2 ).build() );
+    mutator().reject( "r1", FakeBufferedMutator.retriable() );
+    mutator().reject( "r2", FakeBufferedMutator.notRetriable() );
+
+    // the limit flushes the batch with r1, the failure does not interrupt writing
+    put( "r0", "r1", "r2" );
+    pipeline.mutate( new Delete( Bytes.toBytes( "r2" ) ) );
+    try {
+      pipeline.flush();
+      fail( "rejected rows must be reported" );
+    } catch ( HBaseWriteException e ) {
+      HBaseWriteErrorReport report = e.getReport();
+      assertEquals( 2, report.size() );
+      assertFalse( report.isRetriable() );
+
+      HBaseWriteFailure first = report.getFailures().get( 0 );
+      assertArrayEquals( Bytes.toBytes( "r1" ), first.getRowKey() );
+      assertEquals( HBaseWriteFailure.Operation.PUT, first.getOperation() );
+      assertTrue( first.isRetriable() );
+      assertEquals( "rs1:16020", first.getServer() );
+
+      HBaseWriteFailure second = report.getFailures().get( 1 );
+      assertArrayEquals( Bytes.toBytes( "r2" ), second.getRowKey() );
+      assertFalse( second.isRetriable() );
+      assertEquals( Collections.singletonList( first ), report.getRetriableFailures() );
+    }
+
+    // reported once only
+    pipeline.flush();
+    assertTrue( pipeline.takeErrorReport().isEmpty() );
+  }
+
+  @Test
+  public void autoFlushThrowsForRejectedRow() throws IOException {
+    pipeline = create( HBaseWriteOptions.builder().build() );
+    mutator().reject( "r0", FakeBufferedMutator.retriable() );
+    try {
+      put( "r0" );
+      fail( "rejected row must be reported" );
+    } catch ( HBaseWriteException e ) {
+      assertEquals( 1, e.getReport().size() );
+      assertTrue( e.getReport().isRetriable() );
+    }
+    put( "r1" );
+  }
+
+  @Test
+  public void periodicFlushSendsBufferedMutations() throws Exception {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).periodicFlushMillis( 10 ).build() );
+    mutator().reject( "r1", FakeBufferedMutator.retriable() );
+    CountDownLatch flushed = mutator().expectFlushes( 1 );
+    put( "r0" );
+    assertTrue( "no background flush", flushed.await( 10, TimeUnit.SECONDS ) );
+    assertEquals( Collections.singletonList( Collections.singletonList( "r0" ) ), mutator().getBatches() );
+
+    // a failure of a background flush can be taken without flushing
+    flushed = mutator().expectFlushes( 1 );
+    put( "r1" );
+    assertTrue( "no background flush", flushed.await( 10, TimeUnit.SECONDS ) );
+    HBaseWriteErrorReport report = pipeline.takeErrorReport();
+    assertEquals( 1, report.size() );
+    assertArrayEquals( Bytes.toBytes( "r1" ), report.getFailures().get( 0 ).getRowKey() );
+    pipeline.flush();
+  }
+
+  @Test
+  public void failureOfBackgroundFlushIsThrownByFlush() throws Exception {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).periodicFlushMillis( 10 ).build() );
+    IOException failure = new IOException( "region server is gone" );
+    mutator().failNextFlush( failure );
+    CountDownLatch flushed = mutator().expectFlushes( 1 );
+    put( "r0" );
+    assertTrue( "no background flush", flushed.await( 10, TimeUnit.SECONDS ) );
+
+    try {
+      pipeline.flush();
+      fail( "failure of the background flush must be reported" );
+    } catch ( IOException e ) {
+      assertSame( failure, e );
+    }
+    assertEquals( Collections.singletonList( Collections.singletonList( "r0" ) ), mutator().getBatches() );
+    pipeline.flush();
+  }
+
+  @Test
+  public void failureOfBackgroundFlushIsThrownByClose() throws Exception {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).periodicFlushMillis( 10 ).build() );
+    IOException failure = new IOException( "region server is gone" );
+    mutator().failNextFlush( failure );
+    CountDownLatch flushed = mutator().expectFlushes( 1 );
+    put( "r0" );
+    assertTrue( "no background flush", flushed.await( 10, TimeUnit.SECONDS ) );
+
+    try {
+      pipeline.close();
+      fail( "failure of the background flush must be reported" );
+    } catch ( IOException e ) {
+      assertSame( failure, e );
+    }
+    assertEquals( Collections.singletonList( Collections.singletonList( "r0" ) ), mutator().getBatches() );
+    assertTrue( mutator().isClosed() );
+  }
+
+  @Test
+  public void closeFlushesAndRejectsFurtherWrites() throws IOException {
+    pipeline = create( HBaseWriteOptions.builder().autoFlush( false ).periodicFlushMillis( 60000 ).build() );
+    put( "r0" );
+    pipeline.close();
+
+    assertEquals( Arrays.asList( "r0", FakeBufferedMutator.FLUSH, FakeBufferedMutator.CLOSE ),
+      mutator().getEvents() );
+    try {
+      put( "r1" );
+      fail( "closed pipeline must not accept writes" );
+    } catch ( IOException expected ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void tableWritesThroughPipeline() throws IOException {
+    Table table = mock( Table.class );
+    when( table.getName() ).thenReturn( TABLE );
+    HBase10Table hBaseTable = new HBase10Table( table, this::newMutator );
+    hBaseTable.configureWrites( HBaseWriteOptions.builder().writeBufferSize( 1024 ).autoFlush( false ).build() );
+
+    hBaseTable.put( new Put( Bytes.toBytes( "r0" ) ).addColumn( Bytes.toBytes( "f" ), Bytes.toBytes( "q" ),
+      Bytes.toBytes( "v" ) ) );
+    hBaseTable.delete( new Delete( Bytes.toBytes( "r1" ) ) );
+    assertFalse( hBaseTable.isAutoFlush() );
+    assertEquals( 1, mutators.size() );
+    assertEquals( 1024, mutator().getParams().getWriteBufferSize() );
+    assertTrue( mutator().getBatches().isEmpty() );
+
+    hBaseTable.flushCommits();
+    hBaseTable.close();
+    assertEquals( Arrays.asList( "r0", "r1", FakeBufferedMutator.FLUSH, FakeBufferedMutator.FLUSH,
+      FakeBufferedMutator.CLOSE ), mutator().getEvents() );
+    assertTrue( mutator().isClosed() );
+    verify( table ).close();
+  }
+
+  @Test
+  public void reconfiguringTableFlushesPendingWrites() throws IOException {
+    Table table = mock( Table.class );
+    when( table.getName() ).thenReturn( TABLE );
+    HBase10Table hBaseTable = new HBase10Table( table, this::newMutator );
+    hBaseTable.setAutoFlush( false );
+    hBaseTable.put( new Put( Bytes.toBytes( "r0" ) ) );
+
+    hBaseTable.setWriteBufferSize( 2048 );
+    assertEquals( Collections.singletonList( Collections.singletonList( "r0" ) ), mutators.get( 0 ).getBatches() );
+    assertTrue( mutators.get( 0 ).isClosed() );
+
+    hBaseTable.put( new Put( Bytes.toBytes( "r1" ) ) );
+    assertEquals( 2048, mutators.get( 1 ).getParams().getWriteBufferSize() );
+    assertFalse( hBaseTable.isAutoFlush() );
+    hBaseTable.close();
+  }
+
+  @Test( expected = IOException.class )
+  public void readOnlyTableRejectsWrites() throws IOException {
+    Table table = mock( Table.class );
+    new HBase10Table( table ).delete( new Delete( Bytes.toBytes( "r0" ) ) );
+  }
+
+  @Test
+  public void optionsFromProperties() {
+    Properties props = new Properties();
+    assertTrue( HBaseWriteOptions.fromProperties( props ).isAutoFlush() );
+
+    props.setProperty( HBaseConnection.HTABLE_WRITE_BUFFER_SIZE_KEY, "8192" );
+    props.setProperty( HBaseConnection.HTABLE_PERIODIC_FLUSH_MILLIS_KEY, "500" );
+    props.setProperty( HBaseConnection.HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY, "100" );
+    HBaseWriteOptions options = HBaseWriteOptions.fromProperties( props );
+    assertFalse( options.isAutoFlush() );
+    assertEquals( 8192, options.getWriteBufferSize() );
+    assertEquals( 500, options.getPeriodicFlushMillis() );
+    assertEquals( 100, options.getMaxInFlightMutations() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void invalidPropertyIsRejected() {
+    Properties props = new Properties();
+    props.setProperty( HBaseConnection.HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY, "many" );
+    HBaseWriteOptions.fromProperties( props );
+  }
+
+  @Test
+  public void mutationLimitBeyondIntIsRejected() {
+    Properties props = new Properties();
+    props.setProperty( HBaseConnection.HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY, "4294967296" );
+    try {
+      HBaseWriteOptions.fromProperties( props );
+      fail( "a limit which does not fit into an int must not wrap around" );
+    } catch ( IllegalArgumentException e ) {
+      assertTrue( e.getMessage(), e.getMessage().contains( HBaseConnection.HTABLE_MAX_IN_FLIGHT_MUTATIONS_KEY ) );
+    }
+  }
+
+  private BufferedMutatorPipeline create( HBaseWriteOptions options ) throws IOException {
+    return new BufferedMutatorPipeline( TABLE, options, this::newMutator );
+  }
+
+  private FakeBufferedMutator newMutator( org.apache.hadoop.hbase.client.BufferedMutatorParams params ) {
+    FakeBufferedMutator mutator = new FakeBufferedMutator( params );
+    mutators.add( mutator );
+    return mutator;
+  }
+
+  private FakeBufferedMutator mutator() {
+    return mutators.get( mutators.size() - 1 );
+  }
+
+  private void put( String... rowKeys ) throws IOException {
+    for ( String rowKey : rowKeys ) {
+      pipeline.mutate( new Put( Bytes.toBytes( rowKey ) ) );
+    }
+  }
+}
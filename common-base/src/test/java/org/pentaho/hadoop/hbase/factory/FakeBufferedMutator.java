@@ -0,0 +1,188 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.hbase.factory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * In-process {@link BufferedMutator} which keeps the mutations in memory and records every mutate and flush in the
+ * order they happen. Rows can be set up to be rejected by the next flush, which is reported through the exception
+ * listener the same way the HBase client does once retries are exhausted.
+ */
+class FakeBufferedMutator implements BufferedMutator {
+  static final String FLUSH = "flush";
+  static final String CLOSE = "close";
+
+  private final BufferedMutatorParams params;
+  private final List<String> events = new ArrayList<>();
+  private final List<List<String>> batches = new ArrayList<>();
+  private final List<Mutation> buffer = new ArrayList<>();
+  private final Map<String, Throwable> rejectedRows = new HashMap<>();
+  private volatile CountDownLatch flushLatch = new CountDownLatch( 0 );
+  private IOException flushFailure;
+  private boolean closed;
+
+  FakeBufferedMutator( BufferedMutatorParams params ) {
+    this.params = params;
+  }
+
+  synchronized void reject( String rowKey, Throwable cause ) {
+    rejectedRows.put( rowKey, cause );
+  }
+
+  /**
+   * Makes the next flush throw the failure, the buffered mutations are kept for the flush after it.
+   */
+  synchronized void failNextFlush( IOException failure ) {
+    flushFailure = failure;
+  }
+
+  /**
+   * @return latch counted down by every flush which sent at least one mutation or failed
+   */
+  CountDownLatch expectFlushes( int count ) {
+    flushLatch = new CountDownLatch( count );
+    return flushLatch;
+  }
+
+  synchronized List<String> getEvents() {
+    return new ArrayList<>( events );
+  }
+
+  /**
+   * @return row keys of every batch sent by a flush, in flush order
+   */
+  synchronized List<List<String>> getBatches() {
+    return new ArrayList<>( batches );
+  }
+
+  synchronized boolean isClosed() {
+    return closed;
+  }
+
+  BufferedMutatorParams getParams() {
+    return params;
+  }
+
+  @Override
+  public TableName getName() {
+    return params.getTableName();
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return null;
+  }
+
+  @Override
+  public synchronized void mutate( Mutation mutation ) throws IOException {
+    if ( closed ) {
+      throw new IOException( "mutator is closed" );
+    }
+    buffer.add( mutation );
+    events.add( Bytes.toString( mutation.getRow() ) );
+  }
+
+  @Override
+  public void mutate( List<? extends Mutation> mutations ) throws IOException {
+    for ( Mutation mutation : mutations ) {
+      mutate( mutation );
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if ( !closed ) {
+      flush();
+      closed = true;
+      events.add( CLOSE );
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    List<Throwable> causes = new ArrayList<>();
+    List<Row> rows = new ArrayList<>();
+    List<String> servers = new ArrayList<>();
+    boolean sent;
+    synchronized ( this ) {
+      if ( flushFailure != null ) {
+        IOException failure = flushFailure;
+        flushFailure = null;
+        flushLatch.countDown();
+        throw failure;
+      }
+      events.add( FLUSH );
+      sent = !buffer.isEmpty();
+      if ( sent ) {
+        List<String> batch = new ArrayList<>();
+        for ( Mutation mutation : buffer ) {
+          String key = Bytes.toString( mutation.getRow() );
+          batch.add( key );
+          Throwable cause = rejectedRows.remove( key );
+          if ( cause != null ) {
+            causes.add( cause );
+            rows.add( mutation );
+            servers.add( "rs1:16020" );
+          }
+        }
+        batches.add( batch );
+        buffer.clear();
+      }
+    }
+    if ( !causes.isEmpty() ) {
+      RetriesExhaustedWithDetailsException e = new RetriesExhaustedWithDetailsException( causes, rows, servers );
+      if ( params.getListener() == null ) {
+        throw e;
+      }
+      params.getListener().onException( e, this );
+    }
+    if ( sent ) {
+      flushLatch.countDown();
+    }
+  }
+
+  @Override
+  public long getWriteBufferSize() {
+    return params.getWriteBufferSize();
+  }
+
+  public void setRpcTimeout( int timeout ) {
+  }
+
+  public void setOperationTimeout( int timeout ) {
+  }
+
+  static Throwable retriable() {
+    return new IOException( "region is moving" );
+  }
+
+  static Throwable notRetriable() {
+    return new DoNotRetryIOException( "unknown column family" );
+  }
+}
@@ -0,0 +1,244 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hbase.shim.common.CommonHBaseBytesUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.EQUAL;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.GREATER_THAN;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.GREATER_THAN_OR_EQUAL;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.LESS_THAN;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.LESS_THAN_OR_EQUAL;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.NOT_EQUAL;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.PREFIX;
+import static org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter.ComparisonType.SUBSTRING;
+
+public class ColumnFilterCompilerTest {
+  private final HBaseBytesUtilShim bytesUtil = new CommonHBaseBytesUtil();
+
+  private final HBaseValueMeta stringKey = key( ValueMetaInterface.TYPE_STRING );
+  private final HBaseValueMeta integerKey = key( ValueMetaInterface.TYPE_INTEGER );
+  private final HBaseValueMeta amount = column( "amount", ValueMetaInterface.TYPE_INTEGER );
+  private final HBaseValueMeta name = column( "name", ValueMetaInterface.TYPE_STRING );
+
+  @Test
+  public void testKeyComparisonBecomesRange() throws Exception {
+    ScanPlan plan = compile( Mapping.KeyType.STRING, filter( stringKey, EQUAL, "m" ) );
+
+    assertEquals( Collections.singletonList( KeyRange.exactly( bytes( "m" ) ) ), plan.getKeyRanges() );
+    assertNull( plan.getFilter() );
+    assertFalse( plan.hasMultipleRanges() );
+  }
+
+  @Test
+  public void testConjunctionNarrowsRangeAndKeepsValueFilter() throws Exception {
+    ColumnFilterExpression valueFilter = filter( amount, GREATER_THAN, "10" );
+    ScanPlan plan = compile( Mapping.KeyType.STRING, ColumnFilterExpression.and(
+      filter( stringKey, GREATER_THAN_OR_EQUAL, "b" ), valueFilter, filter( stringKey, LESS_THAN, "d" ) ) );
+
+    assertEquals( Collections.singletonList( KeyRange.of( bytes( "b" ), bytes( "d" ) ) ), plan.getKeyRanges() );
+    assertSame( valueFilter, plan.getFilter() );
+    assertEquals( Collections.singletonList( amount ), plan.getFilterColumns() );
+  }
+
+  @Test
+  public void testDisjunctionOfKeysBecomesSeveralRanges() throws Exception {
+    ScanPlan plan = compile( Mapping.KeyType.STRING, ColumnFilterExpression.or(
+      filter( stringKey, EQUAL, "c" ), filter( stringKey, EQUAL, "a" ) ) );
+
+    assertEquals( Arrays.asList( KeyRange.exactly( bytes( "a" ) ), KeyRange.exactly( bytes( "c" ) ) ),
+      plan.getKeyRanges() );
+    assertTrue( plan.hasMultipleRanges() );
+    assertNull( plan.getFilter() );
+    assertEquals( "a", bytesUtil.toString( plan.getStartKey() ) );
+    assertEquals( "c\u0000", bytesUtil.toString( plan.getStopKey() ) );
+  }
+
+  @Test
+  public void testDisjunctionOfKeyAndValueKeepsKeyRangesInFilter() throws Exception {
+    ColumnFilterExpression valueFilter = filter( name, SUBSTRING, "x" );
+    ScanPlan plan = compile( Mapping.KeyType.STRING, ColumnFilterExpression.or(
+      filter( stringKey, EQUAL, "a" ), valueFilter ) );
+
+    assertTrue( KeyRange.coversAll( plan.getKeyRanges() ) );
+    ColumnFilterExpression filter = plan.getFilter();
+    assertEquals( ColumnFilterExpression.Type.OR, filter.getType() );
+    assertEquals( ColumnFilterExpression.Type.KEY_RANGES, filter.getChildren().get( 0 ).getType() );
+    assertEquals( Collections.singletonList( KeyRange.exactly( bytes( "a" ) ) ),
+      filter.getChildren().get( 0 ).getKeyRanges() );
+    assertSame( valueFilter, filter.getChildren().get( 1 ) );
+  }
+
+  @Test
+  public void testNestedExpression() throws Exception {
+    // (key < c AND amount > 10) OR (key >= x AND key <= y)
+    ColumnFilterExpression valueFilter = filter( amount, GREATER_THAN, "10" );
+    ScanPlan plan = compile( Mapping.KeyType.STRING, ColumnFilterExpression.or(
+      ColumnFilterExpression.and( filter( stringKey, LESS_THAN, "c" ), valueFilter ),
+      ColumnFilterExpression.and( filter( stringKey, GREATER_THAN_OR_EQUAL, "x" ),
+        filter( stringKey, LESS_THAN_OR_EQUAL, "y" ) ) ) );
+
+    assertEquals( Arrays.asList( KeyRange.of( null, bytes( "c" ) ), KeyRange.of( bytes( "x" ), bytes( "y\u0000" ) ) ),
+      plan.getKeyRanges() );
+    ColumnFilterExpression filter = plan.getFilter();
+    assertEquals( ColumnFilterExpression.Type.OR, filter.getType() );
+    ColumnFilterExpression first = filter.getChildren().get( 0 );
+    assertEquals( ColumnFilterExpression.Type.AND, first.getType() );
+    assertEquals( Collections.singletonList( KeyRange.of( null, bytes( "c" ) ) ),
+      first.getChildren().get( 0 ).getKeyRanges() );
+    assertSame( valueFilter, first.getChildren().get( 1 ) );
+    assertEquals( ColumnFilterExpression.Type.KEY_RANGES, filter.getChildren().get( 1 ).getType() );
+  }
+
+  @Test
+  public void testContradictionMatchesNothing() throws Exception {
+    ScanPlan plan = compile( Mapping.KeyType.STRING, ColumnFilterExpression.and(
+      filter( stringKey, GREATER_THAN, "m" ), filter( name, PREFIX, "a" ), filter( stringKey, LESS_THAN, "c" ) ) );
+
+    assertTrue( plan.matchesNothing() );
+    assertNull( plan.getFilter() );
+    assertTrue( plan.getFilterColumns().isEmpty() );
+  }
+
+  @Test
+  public void testUnmatchableOperandIsDroppedFromDisjunction() throws Exception {
+    ColumnFilterExpression valueFilter = filter( name, PREFIX, "a" );
+    ScanPlan plan = compile( Mapping.KeyType.STRING, ColumnFilterExpression.or(
+      ColumnFilterExpression.and( filter( stringKey, GREATER_THAN, "m" ), filter( stringKey, LESS_THAN, "c" ) ),
+      valueFilter ) );
+
+    assertTrue( KeyRange.coversAll( plan.getKeyRanges() ) );
+    assertSame( valueFilter, plan.getFilter() );
+  }
+
+  @Test
+  public void testKeyPrefixAndSubstring() throws Exception {
+    ScanPlan prefix = compile( Mapping.KeyType.STRING, filter( stringKey, PREFIX, "ab" ) );
+    assertEquals( Collections.singletonList( KeyRange.of( bytes( "ab" ), bytes( "ac" ) ) ), prefix.getKeyRanges() );
+    assertNull( prefix.getFilter() );
+
+    ColumnFilterExpression substring = filter( stringKey, SUBSTRING, "ab" );
+    ScanPlan plan = compile( Mapping.KeyType.STRING, substring );
+    assertTrue( KeyRange.coversAll( plan.getKeyRanges() ) );
+    assertSame( substring, plan.getFilter() );
+    assertTrue( plan.getFilterColumns().isEmpty() );
+  }
+
+  @Test
+  public void testStringKeyNotEqual() throws Exception {
+    ScanPlan plan = compile( Mapping.KeyType.STRING, filter( stringKey, NOT_EQUAL, "m" ) );
+
+    assertEquals( Arrays.asList( KeyRange.of( null, bytes( "m" ) ), KeyRange.greaterThan( bytes( "m" ) ) ),
+      plan.getKeyRanges() );
+  }
+
+  @Test
+  public void testFractionalConstantOnIntegerKey() throws Exception {
+    assertEquals( Collections.singletonList( KeyRange.atLeast( encode( Mapping.KeyType.INTEGER, 2 ) ) ),
+      compile( Mapping.KeyType.INTEGER, filter( integerKey, GREATER_THAN, "1.5" ) ).getKeyRanges() );
+    assertEquals( Collections.singletonList( KeyRange.of( null, encode( Mapping.KeyType.INTEGER, -1 ) ) ),
+      compile( Mapping.KeyType.INTEGER, filter( integerKey, LESS_THAN_OR_EQUAL, "-1.5" ) ).getKeyRanges() );
+    assertTrue( compile( Mapping.KeyType.INTEGER, filter( integerKey, EQUAL, "1.5" ) ).matchesNothing() );
+    assertTrue( KeyRange.coversAll(
+      compile( Mapping.KeyType.INTEGER, filter( integerKey, NOT_EQUAL, "1.5" ) ).getKeyRanges() ) );
+  }
+
+  @Test
+  public void testSignedIntegerKeyNotEqual() throws Exception {
+    ScanPlan plan = compile( Mapping.KeyType.INTEGER, filter( integerKey, NOT_EQUAL, "-7" ) );
+
+    assertEquals( Arrays.asList( KeyRange.of( null, encode( Mapping.KeyType.INTEGER, -7 ) ),
+      KeyRange.atLeast( encode( Mapping.KeyType.INTEGER, -6 ) ) ), plan.getKeyRanges() );
+  }
+
+  @Test
+  public void testConstantsOutsideTheKeyDomain() throws Exception {
+    assertTrue( compile( Mapping.KeyType.UNSIGNED_LONG, filter( integerKey, LESS_THAN, "0" ) ).matchesNothing() );
+    assertTrue( KeyRange.coversAll(
+      compile( Mapping.KeyType.UNSIGNED_LONG, filter( integerKey, GREATER_THAN_OR_EQUAL, "-5" ) ).getKeyRanges() ) );
+    assertTrue( compile( Mapping.KeyType.INTEGER, filter( integerKey, GREATER_THAN, "3000000000" ) )
+      .matchesNothing() );
+    assertTrue( KeyRange.coversAll(
+      compile( Mapping.KeyType.INTEGER, filter( integerKey, LESS_THAN, "3000000000" ) ).getKeyRanges() ) );
+    assertEquals( Collections.singletonList( KeyRange.of( null, encode( Mapping.KeyType.UNSIGNED_INTEGER, 11 ) ) ),
+      compile( Mapping.KeyType.UNSIGNED_INTEGER, filter( integerKey, LESS_THAN_OR_EQUAL, "10" ) ).getKeyRanges() );
+  }
+
+  @Test
+  public void testFormattedConstant() throws Exception {
+    ColumnFilterExpression expression = filter( integerKey, EQUAL, "1,234" );
+    expression.getFilter().setFormat( "#,##0" );
+
+    assertEquals( Collections.singletonList( KeyRange.of( encode( Mapping.KeyType.LONG, 1234 ),
+      encode( Mapping.KeyType.LONG, 1235 ) ) ), compile( Mapping.KeyType.LONG, expression ).getKeyRanges() );
+  }
+
+  @Test( expected = KettleException.class )
+  public void testUnparsableKeyConstant() throws Exception {
+    compile( Mapping.KeyType.LONG, filter( integerKey, EQUAL, "abc" ) );
+  }
+
+  @Test
+  public void testScanBoundsAreIntersected() throws Exception {
+    ScanPlan plan = new ColumnFilterCompiler( Mapping.KeyType.STRING, bytesUtil, null ).compile(
+      ColumnFilterExpression.or( filter( stringKey, LESS_THAN, "c" ), filter( stringKey, GREATER_THAN, "x" ) ),
+      bytes( "b" ), bytes( "y" ) );
+
+    assertEquals( Arrays.asList( KeyRange.of( bytes( "b" ), bytes( "c" ) ), KeyRange.of( bytes( "x\u0000" ),
+      bytes( "y" ) ) ), plan.getKeyRanges() );
+  }
+
+  private ScanPlan compile( Mapping.KeyType keyType, ColumnFilterExpression expression ) throws KettleException {
+    return new ColumnFilterCompiler( keyType, bytesUtil, null ).compile( expression );
+  }
+
+  private byte[] bytes( String value ) {
+    return bytesUtil.toBytes( value );
+  }
+
+  private byte[] encode( Mapping.KeyType keyType, long value ) throws KettleException {
+    Object key = keyType == Mapping.KeyType.LONG || keyType == Mapping.KeyType.UNSIGNED_LONG
+      ? Long.valueOf( value ) : Integer.valueOf( (int) value );
+    return HBaseValueMeta.encodeKeyValue( key, keyType, bytesUtil );
+  }
+
+  private static HBaseValueMeta key( int type ) {
+    HBaseValueMeta meta = new HBaseValueMeta( "key,key,id", type, -1, -1 );
+    meta.setKey( true );
+    return meta;
+  }
+
+  private static HBaseValueMeta column( String name, int type ) {
+    return new HBaseValueMeta( "f," + name + "," + name, type, -1, -1 );
+  }
+
+  private static ColumnFilterExpression filter( HBaseValueMeta meta, ColumnFilter.ComparisonType op,
+                                                String constant ) {
+    ColumnFilter filter = new ColumnFilter( meta.getAlias() );
+    filter.setComparisonOperator( op );
+    filter.setConstant( constant );
+    return ColumnFilterExpression.filter( filter, meta );
+  }
+}
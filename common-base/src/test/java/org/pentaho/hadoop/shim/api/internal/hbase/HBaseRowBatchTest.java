@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseRowBatchTest {
+  private static final byte[] F = { 'f' };
+
+  private HBaseRowBatch batch;
+
+  @Before
+  public void setUp() {
+    batch = new HBaseRowBatch( new byte[][] { F, F }, new byte[][] { { 'a' }, { 'b' } } );
+  }
+
+  @Test
+  public void fullAtCapacity() {
+    batch.reset( 2, 0 );
+    batch.add( "r0", new byte[] { 0 }, 100 );
+    assertFalse( batch.isFull() );
+    batch.add( "r1", new byte[] { 1 }, 100 );
+    assertTrue( batch.isFull() );
+    assertEquals( 200, batch.getSizeInBytes() );
+  }
+
+  @Test
+  public void rowReachingTheByteBudgetIsKept() {
+    batch.reset( 10, 150 );
+    batch.add( "r0", new byte[] { 0 }, 100 );
+    assertFalse( batch.isFull() );
+    int row = batch.add( "r1", new byte[] { 1 }, 100 );
+    batch.setValue( row, 1, new byte[] { 42 } );
+    assertTrue( batch.isFull() );
+    assertEquals( 2, batch.size() );
+    assertArrayEquals( new byte[] { 42 }, batch.getValue( 1, 1 ) );
+    assertNull( batch.getValue( 1, 0 ) );
+  }
+
+  @Test
+  public void resetReleasesThePreviousRows() {
+    batch.reset( 2, 0 );
+    batch.setValue( batch.add( "r0", new byte[] { 0 }, 1 ), 0, new byte[] { 7 } );
+    batch.reset( 1, 0 );
+    assertEquals( 0, batch.size() );
+    assertEquals( 1, batch.getCapacity() );
+    batch.add( "r1", new byte[] { 1 }, 1 );
+    assertEquals( "r1", batch.getRow( 0 ) );
+    assertNull( batch.getValue( 0, 0 ) );
+  }
+
+  @Test( expected = IndexOutOfBoundsException.class )
+  public void rowsBeyondTheSizeAreRejected() {
+    batch.reset( 2, 0 );
+    batch.add( "r0", new byte[] { 0 }, 1 );
+    batch.getRowKey( 1 );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void capacityMustBePositive() {
+    batch.reset( 0, 0 );
+  }
+}
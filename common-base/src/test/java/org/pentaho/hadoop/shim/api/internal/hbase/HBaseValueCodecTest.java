@@ -0,0 +1,353 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaSerializable;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.spi.MockHBaseBytesUtilShim;
+import org.pentaho.hbase.shim.common.CommonHBaseBytesUtil;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the codecs produce exactly the bytes and values of the static {@link HBaseValueMeta} methods.
+ */
+public class HBaseValueCodecTest {
+  private static final HBaseBytesUtilShim HBASE = new CommonHBaseBytesUtil();
+  private static final HBaseBytesUtilShim MOCK = new MockHBaseBytesUtilShim();
+
+  private static final Object[] LONGS =
+    { 0L, 1L, -1L, 127L, 128L, -129L, 65535L, (long) Integer.MAX_VALUE, (long) Integer.MIN_VALUE, Long.MAX_VALUE,
+      Long.MIN_VALUE, 1234567890123L };
+  private static final Object[] DOUBLES =
+    { 0.0, -0.0, 1.5, -2.25, Math.PI, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, Double.NEGATIVE_INFINITY,
+      1e-300, (double) Float.MAX_VALUE };
+  private static final Object[] DATES =
+    { new Date( 0L ), new Date( 1L ), new Date( -1L ), new Date( 1700000000000L ), new Date( -62135596800000L ) };
+  private static final Object[] STRINGS =
+    { "", "a", "hello world", " padded ", "\u00e9t\u00e9", "\u4e2d\u6587", "emoji \ud83d\ude00", "tab\tnew\nline",
+      "\u0000" };
+  private static final Object[] DECIMALS =
+    { BigDecimal.ZERO, new BigDecimal( "1.50" ), new BigDecimal( "-0.001" ), new BigDecimal( "1E+5" ),
+      new BigDecimal( "123456789012345678901234567890.123456789" ), new BigDecimal( "-99999999999999999.9" ),
+      BigDecimal.valueOf( 1, -3 ), BigDecimal.valueOf( 7, 12 ) };
+
+  @Test
+  public void testColumnsRoundTripLikeStaticMethods() throws Exception {
+    for ( HBaseBytesUtilShim bytesUtil : Arrays.asList( HBASE, MOCK ) ) {
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_INTEGER, true ), new ValueMetaInteger( "v" ), LONGS );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_INTEGER, false ), new ValueMetaInteger( "v" ), LONGS );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_NUMBER, true ), new ValueMetaNumber( "v" ), DOUBLES );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_NUMBER, false ), new ValueMetaNumber( "v" ), DOUBLES );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_DATE, true ), new ValueMetaDate( "v" ), DATES );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_STRING, true ), new ValueMetaString( "v" ), STRINGS );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_BOOLEAN, true ), new ValueMetaBoolean( "v" ),
+        new Object[] { true, false } );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_BIGNUMBER, true ), new ValueMetaBigNumber( "v" ),
+        DECIMALS );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_BINARY, true ), new ValueMetaBinary( "v" ),
+        new Object[] { new byte[ 0 ], new byte[] { 1, 2, 3 }, new byte[] { -1, 0, 127 } } );
+      ArrayList<String> list = new ArrayList<>( Arrays.asList( "a", "b" ) );
+      checkColumn( bytesUtil, column( ValueMetaInterface.TYPE_SERIALIZABLE, true ),
+        new ValueMetaSerializable( "v" ), new Object[] { "text", 42L, list, new Date( 5L ) } );
+    }
+  }
+
+  @Test
+  public void testConvertsIncomingValueTypes() throws Exception {
+    checkColumn( HBASE, column( ValueMetaInterface.TYPE_STRING, true ), new ValueMetaInteger( "v" ),
+      new Object[] { 5L, -12L } );
+    checkColumn( HBASE, column( ValueMetaInterface.TYPE_INTEGER, true ), new ValueMetaString( "v" ),
+      new Object[] { "17", "-3" } );
+    checkColumn( HBASE, column( ValueMetaInterface.TYPE_NUMBER, true ), new ValueMetaInteger( "v" ),
+      new Object[] { 3L } );
+  }
+
+  @Test
+  public void testDecodesForeignEncodingsLikeStaticMethods() throws Exception {
+    for ( HBaseBytesUtilShim bytesUtil : Arrays.asList( HBASE, MOCK ) ) {
+      List<byte[]> raws = new ArrayList<>();
+      for ( String s : Arrays.asList( "Y", "n", "yes", "NO", "True", "fAlSe", "t", "F", "1", "0", "maybe", "yes ",
+        "", "\u0178", "1.5", "-12.50", "+3", ".5", "5.", "1e3", "-", ".", "1.2.3", "12345678901234567890.5",
+        "007", "-0.0" ) ) {
+        raws.add( s.getBytes( StandardCharsets.UTF_8 ) );
+      }
+      raws.add( new byte[] { 0 } );
+      raws.add( new byte[] { 1 } );
+      raws.add( new byte[] { 2 } );
+      raws.add( bytesUtil.toBytes( 1 ) );
+      raws.add( bytesUtil.toBytes( 0L ) );
+      raws.add( bytesUtil.toBytes( 1.0f ) );
+      raws.add( bytesUtil.toBytes( 0.0 ) );
+      raws.add( bytesUtil.toBytes( 7 ) );
+      raws.add( new byte[] { 0, 1 } );
+      raws.add( new byte[] { 0, 2 } );
+      raws.add( new byte[] { 1, 2, 3 } );
+      raws.add( HBaseValueMeta.encodeBigDecimal( new BigDecimal( "2.5" ) ) );
+      raws.add( HBaseValueMeta.encodeObject( "serialized" ) );
+
+      for ( int type : new int[] { ValueMetaInterface.TYPE_BOOLEAN, ValueMetaInterface.TYPE_BIGNUMBER,
+        ValueMetaInterface.TYPE_INTEGER, ValueMetaInterface.TYPE_NUMBER, ValueMetaInterface.TYPE_DATE,
+        ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_BINARY } ) {
+        HBaseValueMeta column = column( type, true );
+        HBaseValueCodec codec = HBaseValueCodec.forColumn( column, bytesUtil );
+        for ( byte[] raw : raws ) {
+          assertDecodesLikeStatic( column, codec, bytesUtil, raw );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIndexedString() throws Exception {
+    HBaseValueMeta column = column( ValueMetaInterface.TYPE_STRING, true );
+    column.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
+    column.setIndex( new Object[] { "red", " green ", "blue", "green" } );
+    HBaseValueCodec codec = HBaseValueCodec.forColumn( column, HBASE );
+    for ( String value : Arrays.asList( "red", "green", " blue", "purple", "" ) ) {
+      assertDecodesLikeStatic( column, codec, HBASE, HBASE.toBytes( value ) );
+    }
+    assertEquals( 1, codec.decode( HBASE.toBytes( "green" ) ) );
+  }
+
+  @Test
+  public void testKeysRoundTripLikeStaticMethods() throws Exception {
+    for ( HBaseBytesUtilShim bytesUtil : Arrays.asList( HBASE, MOCK ) ) {
+      checkKey( bytesUtil, Mapping.KeyType.STRING, new ValueMetaString( "k" ), STRINGS );
+      checkKey( bytesUtil, Mapping.KeyType.STRING, new ValueMetaString( "k" ), new Object[] { null } );
+      checkKey( bytesUtil, Mapping.KeyType.BINARY, new ValueMetaBinary( "k" ),
+        new Object[] { new byte[] { 0 }, new byte[] { 9, -9 } } );
+      checkKey( bytesUtil, Mapping.KeyType.INTEGER, new ValueMetaInteger( "k" ),
+        new Object[] { 0L, 1L, -1L, (long) Integer.MAX_VALUE, (long) Integer.MIN_VALUE } );
+      checkKey( bytesUtil, Mapping.KeyType.UNSIGNED_INTEGER, new ValueMetaInteger( "k" ),
+        new Object[] { 0L, 1L, (long) Integer.MAX_VALUE, -1L } );
+      checkKey( bytesUtil, Mapping.KeyType.LONG, new ValueMetaInteger( "k" ), LONGS );
+      checkKey( bytesUtil, Mapping.KeyType.UNSIGNED_LONG, new ValueMetaInteger( "k" ), LONGS );
+      checkKey( bytesUtil, Mapping.KeyType.DATE, new ValueMetaDate( "k" ), DATES );
+      checkKey( bytesUtil, Mapping.KeyType.DATE, new ValueMetaDate( "k" ), new Object[] { null } );
+      checkKey( bytesUtil, Mapping.KeyType.UNSIGNED_DATE, new ValueMetaDate( "k" ), DATES );
+    }
+  }
+
+  @Test
+  public void testSignedKeysKeepNumericOrder() throws Exception {
+    HBaseValueCodec codec = HBaseValueCodec.forKey( Mapping.KeyType.LONG, HBASE );
+    byte[] previous = null;
+    for ( long value : new long[] { Long.MIN_VALUE, -5L, -1L, 0L, 1L, 5L, Long.MAX_VALUE } ) {
+      byte[] encoded = codec.encode( value, new ValueMetaInteger( "k" ) );
+      if ( previous != null ) {
+        assertTrue( compareUnsigned( previous, encoded ) < 0 );
+      }
+      previous = encoded;
+    }
+  }
+
+  @Test
+  public void testDecodePartOfArray() throws Exception {
+    HBaseValueCodec longs = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_INTEGER, true ), HBASE );
+    HBaseValueCodec doubles = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_NUMBER, false ), HBASE );
+    HBaseValueCodec booleans = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_BOOLEAN, true ), HBASE );
+    HBaseValueCodec strings = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_STRING, true ), HBASE );
+    HBaseValueCodec decimals = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_BIGNUMBER, true ), HBASE );
+    HBaseValueCodec keys = HBaseValueCodec.forKey( Mapping.KeyType.INTEGER, HBASE );
+
+    assertEquals( -42L, longs.decodeLong( embed( HBASE.toBytes( -42L ) ), 3, 8 ) );
+    assertEquals( 2.5, doubles.decodeDouble( embed( HBASE.toBytes( 2.5f ) ), 3, 4 ), 0.0 );
+    assertTrue( booleans.decodeBoolean( embed( HBASE.toBytes( "Yes" ) ), 3, 3 ) );
+    assertFalse( booleans.decodeBoolean( embed( HBASE.toBytes( 0L ) ), 3, 8 ) );
+    assertEquals( "\u00e9t\u00e9", strings.decode( embed( HBASE.toBytes( "\u00e9t\u00e9" ) ), 3, 5 ) );
+    assertEquals( new BigDecimal( "-1.250" ), decimals.decode( embed( HBASE.toBytes( "-1.250" ) ), 3, 6 ) );
+    byte[] key = keys.encode( -7L, new ValueMetaInteger( "k" ) );
+    assertEquals( -7L, keys.decodeLong( embed( key ), 3, key.length ) );
+  }
+
+  @Test
+  public void testPrimitiveDecodeMatchesBoxed() throws Exception {
+    HBaseValueCodec dates = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_DATE, true ), HBASE );
+    byte[] raw = HBASE.toBytes( 1234L );
+    assertEquals( 1234L, dates.decodeLong( raw, 0, raw.length ) );
+    assertEquals( new Date( 1234L ), dates.decode( raw ) );
+    assertNull( dates.decode( null ) );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void testPrimitiveDecodeOfWrongType() throws Exception {
+    HBaseValueCodec strings = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_STRING, true ), HBASE );
+    strings.decodeLong( new byte[ 8 ], 0, 8 );
+  }
+
+  @Test
+  public void testBufferIsReused() throws Exception {
+    HBaseValueCodec strings = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_STRING, true ), HBASE );
+    HBaseValueCodec longs = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_INTEGER, true ), HBASE );
+    HBaseValueCodec binaries = HBaseValueCodec.forColumn( column( ValueMetaInterface.TYPE_BINARY, true ), HBASE );
+    HBaseValueBuffer buffer = new HBaseValueBuffer( 4 );
+
+    strings.encode( "a longer string than the buffer", new ValueMetaString( "v" ), buffer );
+    byte[] array = buffer.array();
+    longs.encode( 3L, new ValueMetaInteger( "v" ), buffer );
+    assertSame( array, buffer.array() );
+    assertArrayEquals( HBASE.toBytes( 3L ), buffer.toBytes() );
+
+    byte[] binary = { 1, 2, 3 };
+    binaries.encode( binary, new ValueMetaBinary( "v" ), buffer );
+    assertSame( binary, buffer.toBytes() );
+    longs.encode( Long.MAX_VALUE, new ValueMetaInteger( "v" ), buffer );
+    assertArrayEquals( new byte[] { 1, 2, 3 }, binary );
+    assertArrayEquals( HBASE.toBytes( Long.MAX_VALUE ), buffer.toBytes() );
+  }
+
+  @Test
+  public void testForMapping() throws Exception {
+    Mapping mapping = new Mapping( "table", "mapping", "key", Mapping.KeyType.LONG );
+    HBaseValueMeta first = column( ValueMetaInterface.TYPE_INTEGER, true );
+    first.setAlias( "first" );
+    HBaseValueMeta second = new HBaseValueMeta( "f,q2,second", ValueMetaInterface.TYPE_STRING, -1, -1 );
+    mapping.addMappedColumn( first, false );
+    mapping.addMappedColumn( second, false );
+
+    Map<String, HBaseValueCodec> codecs = HBaseValueCodec.forMapping( mapping, HBASE );
+    assertEquals( new HashSet<>( Arrays.asList( "first", "second" ) ), codecs.keySet() );
+    assertEquals( 8L, codecs.get( "first" ).decode( HBASE.toBytes( 8L ) ) );
+    assertEquals( "x", codecs.get( "second" ).decode( HBASE.toBytes( "x" ) ) );
+  }
+
+  @Test
+  public void testAsciiDetection() {
+    assertTrue( HBaseValueCodecs.encodesAscii( HBASE ) );
+    assertFalse( HBaseValueCodecs.encodesAscii( MOCK ) );
+  }
+
+  private void checkColumn( HBaseBytesUtilShim bytesUtil, HBaseValueMeta column, ValueMetaInterface valueMeta,
+                            Object[] values ) throws Exception {
+    HBaseValueCodec codec = HBaseValueCodec.forColumn( column, bytesUtil );
+    HBaseValueBuffer buffer = new HBaseValueBuffer( 1 );
+    for ( Object value : values ) {
+      byte[] expected = HBaseValueMeta.encodeColumnValue( value, valueMeta, column, bytesUtil );
+      codec.encode( value, valueMeta, buffer );
+      assertArrayEquals( column.getTypeDesc() + " " + value, expected, buffer.toBytes() );
+      assertDecodesLikeStatic( column, codec, bytesUtil, expected );
+    }
+  }
+
+  private void assertDecodesLikeStatic( HBaseValueMeta column, HBaseValueCodec codec, HBaseBytesUtilShim bytesUtil,
+                                        byte[] raw ) {
+    Object expected;
+    try {
+      expected = HBaseValueMeta.decodeColumnValue( raw, column, bytesUtil );
+    } catch ( Exception e ) {
+      expected = e;
+    }
+    String message = column.getTypeDesc() + " " + Arrays.toString( raw );
+    try {
+      assertSameValue( message, expected, codec.decode( raw ) );
+      assertSameValue( message, expected, codec.decode( embed( raw ), 3, raw.length ) );
+    } catch ( KettleException e ) {
+      if ( !( expected instanceof KettleException ) ) {
+        throw new AssertionError( message + " failed but static method returned " + expected, e );
+      }
+      assertEquals( message, ( (KettleException) expected ).getMessage().trim(), e.getMessage().trim() );
+    }
+  }
+
+  private void checkKey( HBaseBytesUtilShim bytesUtil, Mapping.KeyType keyType, ValueMetaInterface keyMeta,
+                         Object[] values ) throws Exception {
+    HBaseValueCodec codec = HBaseValueCodec.forKey( keyType, bytesUtil );
+    Mapping mapping = new Mapping();
+    mapping.setKeyType( keyType );
+    HBaseValueBuffer buffer = new HBaseValueBuffer( 1 );
+    for ( Object value : values ) {
+      String message = keyType + " " + value;
+      byte[] expected;
+      try {
+        expected = HBaseValueMeta.encodeKeyValue( value, keyMeta, keyType, bytesUtil );
+      } catch ( KettleException e ) {
+        try {
+          codec.encode( value, keyMeta, buffer );
+          fail( message + " should fail" );
+        } catch ( KettleException codecError ) {
+          assertEquals( message, e.getMessage().trim(), codecError.getMessage().trim() );
+        }
+        continue;
+      }
+      codec.encode( value, keyMeta, buffer );
+      assertArrayEquals( message, expected, buffer.toBytes() );
+      Object decoded = HBaseValueMeta.decodeKeyValue( expected, mapping, bytesUtil );
+      assertSameValue( message, decoded, codec.decode( expected ) );
+      assertSameValue( message, decoded, codec.decode( embed( expected ), 3, expected.length ) );
+    }
+  }
+
+  private static void assertSameValue( String message, Object expected, Object actual ) {
+    if ( expected instanceof Exception ) {
+      fail( message + " should fail like the static method: " + expected + " but returned " + actual );
+    }
+    if ( expected instanceof byte[] ) {
+      assertArrayEquals( message, (byte[]) expected, (byte[]) actual );
+    } else {
+      assertEquals( message, expected, actual );
+      if ( expected instanceof BigDecimal ) {
+        assertEquals( message, ( (BigDecimal) expected ).scale(), ( (BigDecimal) actual ).scale() );
+      }
+    }
+  }
+
+  private static HBaseValueMeta column( int type, boolean longOrDouble ) {
+    HBaseValueMeta column = new HBaseValueMeta( "f,q,alias", type, -1, -1 );
+    column.setIsLongOrDouble( longOrDouble );
+    return column;
+  }
+
+  // copies the bytes to index 3 of a larger array
+  private static byte[] embed( byte[] raw ) {
+    byte[] result = new byte[ raw.length + 5 ];
+    Arrays.fill( result, (byte) 0x55 );
+    System.arraycopy( raw, 0, result, 3, raw.length );
+    return result;
+  }
+
+  private static int compareUnsigned( byte[] left, byte[] right ) {
+    for ( int i = 0; i < Math.min( left.length, right.length ); i++ ) {
+      int diff = ( left[ i ] & 0xff ) - ( right[ i ] & 0xff );
+      if ( diff != 0 ) {
+        return diff;
+      }
+    }
+    return left.length - right.length;
+  }
+}
@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.internal.hbase;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyRangeTest {
+
+  @Test
+  public void testContains() {
+    KeyRange range = KeyRange.of( key( "b" ), key( "d" ) );
+    assertFalse( range.contains( key( "a" ) ) );
+    assertTrue( range.contains( key( "b" ) ) );
+    assertTrue( range.contains( key( "c\u0000" ) ) );
+    assertFalse( range.contains( key( "d" ) ) );
+    assertTrue( KeyRange.ALL.contains( new byte[ 0 ] ) );
+    assertTrue( KeyRange.atLeast( key( "b" ) ).contains( new byte[] { (byte) 0xff } ) );
+  }
+
+  @Test
+  public void testSingleKeyRanges() {
+    assertEquals( KeyRange.of( key( "k" ), key( "k\u0000" ) ), KeyRange.exactly( key( "k" ) ) );
+    assertEquals( KeyRange.of( key( "k\u0000" ), null ), KeyRange.greaterThan( key( "k" ) ) );
+    assertEquals( KeyRange.of( null, key( "k\u0000" ) ), KeyRange.atMost( key( "k" ) ) );
+    assertEquals( Collections.singletonList( KeyRange.of( null, key( "k" ) ) ), KeyRange.lessThan( key( "k" ) ) );
+    assertTrue( KeyRange.lessThan( new byte[ 0 ] ).isEmpty() );
+  }
+
+  @Test
+  public void testPrefix() {
+    assertEquals( KeyRange.of( key( "ab" ), key( "ac" ) ), KeyRange.withPrefix( key( "ab" ) ) );
+    assertEquals( KeyRange.of( new byte[] { 1, (byte) 0xff }, new byte[] { 2 } ),
+      KeyRange.withPrefix( new byte[] { 1, (byte) 0xff } ) );
+    assertTrue( KeyRange.withPrefix( new byte[] { (byte) 0xff, (byte) 0xff } ).isStopOpen() );
+    assertEquals( KeyRange.ALL, KeyRange.withPrefix( new byte[ 0 ] ) );
+  }
+
+  @Test
+  public void testKeysAreComparedUnsigned() {
+    assertTrue( KeyRange.compare( new byte[] { (byte) 0x80 }, new byte[] { 0x7f } ) > 0 );
+    assertTrue( KeyRange.compare( key( "a" ), key( "a\u0000" ) ) < 0 );
+    assertEquals( 0, KeyRange.compare( key( "a" ), key( "a" ) ) );
+  }
+
+  @Test
+  public void testNormalizeSortsMergesAndDropsEmptyRanges() {
+    List<KeyRange> ranges = KeyRange.normalize( Arrays.asList(
+      KeyRange.of( key( "m" ), key( "p" ) ),
+      KeyRange.of( key( "a" ), key( "c" ) ),
+      KeyRange.of( key( "x" ), key( "x" ) ),
+      KeyRange.of( key( "c" ), key( "e" ) ),
+      KeyRange.of( key( "n" ), key( "o" ) ) ) );
+    assertEquals( Arrays.asList( KeyRange.of( key( "a" ), key( "e" ) ), KeyRange.of( key( "m" ), key( "p" ) ) ),
+      ranges );
+
+    assertEquals( Collections.singletonList( KeyRange.atLeast( key( "b" ) ) ), KeyRange.normalize( Arrays.asList(
+      KeyRange.atLeast( key( "b" ) ), KeyRange.of( key( "c" ), key( "d" ) ) ) ) );
+  }
+
+  @Test
+  public void testUnion() {
+    List<KeyRange> union = KeyRange.union( KeyRange.lessThan( key( "c" ) ),
+      Collections.singletonList( KeyRange.atLeast( key( "c" ) ) ) );
+    assertTrue( KeyRange.coversAll( union ) );
+  }
+
+  @Test
+  public void testIntersect() {
+    List<KeyRange> left = Arrays.asList( KeyRange.of( key( "a" ), key( "f" ) ), KeyRange.atLeast( key( "p" ) ) );
+    List<KeyRange> right = Arrays.asList( KeyRange.of( key( "d" ), key( "r" ) ) );
+    assertEquals( Arrays.asList( KeyRange.of( key( "d" ), key( "f" ) ), KeyRange.of( key( "p" ), key( "r" ) ) ),
+      KeyRange.intersect( left, right ) );
+
+    assertTrue( KeyRange.intersect( Collections.singletonList( KeyRange.of( key( "a" ), key( "b" ) ) ),
+      Collections.singletonList( KeyRange.atLeast( key( "b" ) ) ) ).isEmpty() );
+    assertEquals( left, KeyRange.intersect( left, Collections.singletonList( KeyRange.ALL ) ) );
+  }
+
+  @Test
+  public void testAccessorsReturnCopies() {
+    KeyRange range = KeyRange.of( key( "a" ), key( "b" ) );
+    range.getStart()[ 0 ] = 'z';
+    assertArrayEquals( key( "a" ), range.getStart() );
+    assertEquals( "[a, b)", range.toString() );
+    assertEquals( "[\\x00, )", KeyRange.atLeast( new byte[] { 0 } ).toString() );
+  }
+
+  private static byte[] key( String key ) {
+    return key.getBytes( StandardCharsets.UTF_8 );
+  }
+}
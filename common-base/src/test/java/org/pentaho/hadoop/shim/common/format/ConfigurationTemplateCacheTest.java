@@ -0,0 +1,185 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.common.fs.FileSystemRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConfigurationTemplateCacheTest {
+
+  private static final String KEY = "pentaho.test.template.value";
+
+  private final ConfigurationTemplateCache cache = ConfigurationTemplateCache.getInstance();
+  private final ClassLoader classLoader = getClass().getClassLoader();
+
+  @Before
+  public void setUp() {
+    cache.invalidateAll();
+  }
+
+  @Test
+  public void siteFilesAreParsedOnce() {
+    NamedCluster cluster = cluster( "cluster-a", new AtomicReference<>( "1" ) );
+    long builds = cache.getBuildCount();
+
+    for ( int i = 0; i < 5; i++ ) {
+      Configuration conf = HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader );
+      assertEquals( "1", conf.get( KEY ) );
+    }
+    assertEquals( builds + 1, cache.getBuildCount() );
+  }
+
+  @Test
+  public void siteFilesAreReadOnlyWhenTheClusterWasModified() {
+    AtomicLong lastModified = new AtomicLong( 1 );
+    NamedCluster cluster = cluster( "cluster-a", new AtomicReference<>( "1" ), lastModified );
+    long builds = cache.getBuildCount();
+
+    for ( int i = 0; i < 5; i++ ) {
+      HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader );
+    }
+    verify( cluster, times( 1 ) ).getSiteFileInputStream( "core-site.xml" );
+
+    lastModified.set( 2 );
+    for ( int i = 0; i < 5; i++ ) {
+      assertEquals( "1", HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader ).get( KEY ) );
+    }
+    verify( cluster, times( 2 ) ).getSiteFileInputStream( "core-site.xml" );
+    assertEquals( "unchanged site files are not parsed again", builds + 1, cache.getBuildCount() );
+  }
+
+  @Test
+  public void copiesAreIsolated() {
+    NamedCluster cluster = cluster( "cluster-a", new AtomicReference<>( "1" ) );
+    Configuration first = HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader );
+    Configuration second = HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader );
+
+    first.set( KEY, "changed" );
+    first.set( "pentaho.test.only.first", "yes" );
+    second.unset( KEY );
+    ( (JobConf) first ).getCredentials().addSecretKey( new Text( "secret" ), new byte[] { 1 } );
+
+    assertEquals( "changed", first.get( KEY ) );
+    assertNull( second.get( KEY ) );
+    assertNull( second.get( "pentaho.test.only.first" ) );
+    assertNull( ( (JobConf) second ).getCredentials().getSecretKey( new Text( "secret" ) ) );
+    Configuration third = HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader );
+    assertEquals( "1", third.get( KEY ) );
+    assertNull( third.get( "pentaho.test.only.first" ) );
+  }
+
+  @Test
+  public void changedSiteFilesAreParsedAgain() {
+    AtomicReference<String> value = new AtomicReference<>( "1" );
+    AtomicLong lastModified = new AtomicLong( 1 );
+    NamedCluster cluster = cluster( "cluster-a", value, lastModified );
+    long builds = cache.getBuildCount();
+    assertEquals( "1", HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader ).get( KEY ) );
+
+    value.set( "2" );
+    lastModified.set( 2 );
+    assertEquals( "2", HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader ).get( KEY ) );
+    assertEquals( "2", HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader ).get( KEY ) );
+    assertEquals( builds + 2, cache.getBuildCount() );
+
+    value.set( "3" );
+    assertEquals( "changes without a new date are picked up once invalidated", "2",
+      HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader ).get( KEY ) );
+    cache.invalidate( cluster );
+    assertEquals( "3", HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader ).get( KEY ) );
+    assertEquals( builds + 3, cache.getBuildCount() );
+  }
+
+  @Test
+  public void namedClustersHaveTemplatesOfTheirOwn() {
+    NamedCluster first = cluster( "cluster-a", new AtomicReference<>( "a" ) );
+    NamedCluster second = cluster( "cluster-b", new AtomicReference<>( "b" ) );
+
+    assertEquals( "a", HadoopFormatBase.createConfigurationWithClassLoader( first, classLoader ).get( KEY ) );
+    assertEquals( "b", HadoopFormatBase.createConfigurationWithClassLoader( second, classLoader ).get( KEY ) );
+    assertNull( HadoopFormatBase.createConfigurationWithClassLoader( null, classLoader ).get( KEY ) );
+    assertEquals( "a", HadoopFormatBase.createConfigurationWithClassLoader( first, classLoader ).get( KEY ) );
+  }
+
+  @Test
+  public void fileSystemsRegisteredLaterAreApplied() {
+    NamedCluster cluster = cluster( "cluster-a", new AtomicReference<>( "1" ) );
+    HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader );
+
+    FileSystemRegistry.registerFileSystem( "templatetest", "org.example.TemplateTestFileSystem" );
+    try {
+      Configuration conf = HadoopFormatBase.createConfigurationWithClassLoader( cluster, classLoader );
+
+      assertEquals( "org.example.TemplateTestFileSystem", conf.get( "fs.templatetest.impl" ) );
+      assertEquals( classLoader, conf.getClassLoader() );
+    } finally {
+      FileSystemRegistry.unregisterFileSystem( "templatetest" );
+    }
+  }
+
+  @Test
+  public void templatesDoNotKeepTheirClassLoaderReachable() throws Exception {
+    NamedCluster cluster = cluster( "cluster-a", new AtomicReference<>( "1" ) );
+    WeakReference<ClassLoader> released = lookUpWithThrowawayClassLoader( cluster );
+
+    for ( int i = 0; i < 50 && released.get() != null; i++ ) {
+      System.gc();
+      Thread.sleep( 20 );
+    }
+    assertNull( released.get() );
+  }
+
+  private WeakReference<ClassLoader> lookUpWithThrowawayClassLoader( NamedCluster cluster ) {
+    ClassLoader throwaway = new URLClassLoader( new URL[ 0 ], classLoader );
+    Configuration conf = cache.get( cluster, throwaway );
+
+    assertEquals( "1", conf.get( KEY ) );
+    assertSame( throwaway, conf.getClassLoader() );
+    return new WeakReference<>( throwaway );
+  }
+
+  private static NamedCluster cluster( String name, AtomicReference<String> value ) {
+    return cluster( name, value, new AtomicLong() );
+  }
+
+  private static NamedCluster cluster( String name, AtomicReference<String> value, AtomicLong lastModified ) {
+    NamedCluster cluster = mock( NamedCluster.class );
+    when( cluster.getName() ).thenReturn( name );
+    when( cluster.getLastModifiedDate() ).thenAnswer( invocation -> lastModified.get() );
+    when( cluster.getSiteFileInputStream( "core-site.xml" ) ).thenAnswer( invocation -> new ByteArrayInputStream(
+      ( "<?xml version=\"1.0\"?><configuration><property><name>" + KEY + "</name><value>" + value.get()
+        + "</value></property></configuration>" ).getBytes( StandardCharsets.UTF_8 ) ) );
+    return cluster;
+  }
+}
@@ -0,0 +1,340 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IOrcInputField;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat;
+import org.pentaho.hadoop.shim.api.format.OrcSpec;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.common.format.orc.OrcOutputField;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.ParquetUtils;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetFooterReader;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.PentahoTwitterInputFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class FormatMetadataCacheTest {
+
+  private static FileSystem countingFs;
+
+  private File outputDir;
+  private FormatMetadataCache cache;
+  private long hits;
+  private long misses;
+
+  /**
+   * Local file system under its own scheme which counts how often each file is opened.
+   */
+  public static class CountingFileSystem extends RawLocalFileSystem {
+    static final URI NAME = URI.create( "countfs:///" );
+    static final Map<String, AtomicInteger> OPENS = new ConcurrentHashMap<>();
+
+    @Override
+    public URI getUri() {
+      return NAME;
+    }
+
+    @Override
+    public FSDataInputStream open( Path f, int bufferSize ) throws IOException {
+      OPENS.computeIfAbsent( f.getName(), name -> new AtomicInteger() ).incrementAndGet();
+      return super.open( f, bufferSize );
+    }
+
+    static int opens( String name ) {
+      AtomicInteger count = OPENS.get( name );
+      return count == null ? 0 : count.get();
+    }
+  }
+
+  @BeforeClass
+  public static void registerCountingFileSystem() throws Exception {
+    Configuration conf = new Configuration();
+    conf.set( "fs.countfs.impl", CountingFileSystem.class.getName() );
+    // formats create their own configuration, they get this instance from the FileSystem cache
+    countingFs = FileSystem.get( CountingFileSystem.NAME, conf );
+  }
+
+  @AfterClass
+  public static void closeCountingFileSystem() throws Exception {
+    countingFs.close();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    outputDir = Files.createTempDirectory( "metadata-cache" ).toFile();
+    cache = FormatMetadataCache.getInstance();
+    cache.invalidateAll();
+    CountingFileSystem.OPENS.clear();
+    hits = cache.getHitCount();
+    misses = cache.getMissCount();
+  }
+
+  @Test
+  public void parquetFooterIsReadOnce() throws Exception {
+    File file = writeParquet( "data.parquet", 10 );
+
+    for ( int i = 0; i < 3; i++ ) {
+      PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+      assertEquals( 2, inputFormat.readSchema( countingUri( file ) ).size() );
+    }
+
+    assertEquals( 1, CountingFileSystem.opens( "data.parquet" ) );
+    assertEquals( 1, cache.getMissCount() - misses );
+    assertEquals( 2, cache.getHitCount() - hits );
+  }
+
+  @Test
+  public void parquetDelegatesShareCachedFooter() throws Exception {
+    File file = writeParquet( "data.parquet", 10 );
+
+    new PentahoApacheInputFormat( mock( NamedCluster.class ) ).readSchema( countingUri( file ) );
+    List<IParquetInputField> fields =
+      new PentahoTwitterInputFormat( mock( NamedCluster.class ) ).readSchema( countingUri( file ) );
+
+    assertEquals( "Name", fields.get( 0 ).getFormatFieldName() );
+    assertEquals( 1, CountingFileSystem.opens( "data.parquet" ) );
+  }
+
+  @Test
+  public void parquetFieldsAreNotShared() throws Exception {
+    File file = writeParquet( "data.parquet", 10 );
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+
+    inputFormat.readSchema( countingUri( file ) ).get( 0 ).setPentahoFieldName( "renamed" );
+
+    assertEquals( "Name", inputFormat.readSchema( countingUri( file ) ).get( 0 ).getPentahoFieldName() );
+  }
+
+  @Test
+  public void rewrittenParquetFileIsReadAgain() throws Exception {
+    File file = writeParquet( "data.parquet", 10 );
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.readSchema( countingUri( file ) );
+
+    writeParquet( "data.parquet", 500 );
+    inputFormat.readSchema( countingUri( file ) );
+
+    assertEquals( 2, CountingFileSystem.opens( "data.parquet" ) );
+  }
+
+  @Test
+  public void fileRewrittenInsideDirectoryIsReadAgain() throws Exception {
+    File first = writeParquet( "data-0.parquet", 10 );
+    File replacement = writeParquet( "replacement.parquet", 500 );
+    File dir = new File( outputDir, "dir" );
+    assertTrue( dir.mkdir() );
+    Files.move( first.toPath(), new File( dir, first.getName() ).toPath() );
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.readSchema( countingUri( dir ) );
+    long directoryModified = dir.lastModified();
+
+    // rewrite the file in place, the directory entry and its modification time stay the same
+    Files.write( new File( dir, first.getName() ).toPath(), Files.readAllBytes( replacement.toPath() ) );
+    assertTrue( dir.setLastModified( directoryModified ) );
+    inputFormat.readSchema( countingUri( dir ) );
+
+    assertEquals( 2, CountingFileSystem.opens( "data-0.parquet" ) );
+  }
+
+  @Test
+  public void parquetFootersAreCachedPerFile() throws Exception {
+    File dir = new File( outputDir, "dir" );
+    assertTrue( dir.mkdir() );
+    for ( String name : new String[] { "a.parquet", "b.parquet" } ) {
+      Files.move( writeParquet( name, 10 ).toPath(), new File( dir, name ).toPath() );
+    }
+    Configuration conf = new Configuration();
+    Path dirPath = countingFs.makeQualified( new Path( dir.getAbsolutePath() ) );
+
+    assertEquals( 2, ParquetFooterReader.readFooters( conf, countingFs.getFileStatus( dirPath ) ).size() );
+    ParquetFooterReader.readFooters( conf, countingFs.getFileStatus( dirPath ) );
+    ParquetFooterReader.readFooters( conf, countingFs.getFileStatus( new Path( dirPath, "a.parquet" ) ) );
+
+    assertEquals( 1, CountingFileSystem.opens( "a.parquet" ) );
+    assertEquals( 1, CountingFileSystem.opens( "b.parquet" ) );
+    assertEquals( 2, cache.getMissCount() - misses );
+    assertEquals( 3, cache.getHitCount() - hits );
+  }
+
+  @Test
+  public void invalidatedParquetFileIsReadAgain() throws Exception {
+    File file = writeParquet( "data.parquet", 10 );
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.readSchema( countingUri( file ) );
+
+    cache.invalidate( countingFs.makeQualified( new Path( file.getAbsolutePath() ) ) );
+    inputFormat.readSchema( countingUri( file ) );
+
+    assertEquals( 2, CountingFileSystem.opens( "data.parquet" ) );
+  }
+
+  @Test
+  public void orcFieldsAreReadOnce() throws Exception {
+    File file = writeOrc( "data.orc" );
+
+    PentahoOrcInputFormat inputFormat = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( countingUri( file ) );
+    List<IOrcInputField> fields = inputFormat.readSchema();
+    int opens = CountingFileSystem.opens( "data.orc" );
+    fields.get( 0 ).setPentahoFieldName( "renamed" );
+
+    for ( int i = 0; i < 3; i++ ) {
+      PentahoOrcInputFormat another = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+      another.setInputFile( countingUri( file ) );
+      assertEquals( "Name", another.readSchema().get( 0 ).getPentahoFieldName() );
+    }
+
+    assertTrue( opens > 0 );
+    assertEquals( opens, CountingFileSystem.opens( "data.orc" ) );
+    assertEquals( 1, cache.getMissCount() - misses );
+    assertEquals( 3, cache.getHitCount() - hits );
+  }
+
+  @Test
+  public void countsHitsAndMisses() throws Exception {
+    FormatMetadataCache local = new FormatMetadataCache( 4 );
+    AtomicInteger loads = new AtomicInteger();
+
+    Object first = local.get( "kind", status( "/a", 10, 1 ), () -> "value" + loads.incrementAndGet() );
+    Object second = local.get( "kind", status( "/a", 10, 1 ), () -> "value" + loads.incrementAndGet() );
+
+    assertSame( first, second );
+    assertEquals( 1, loads.get() );
+    assertEquals( 1, local.getHitCount() );
+    assertEquals( 1, local.getMissCount() );
+  }
+
+  @Test
+  public void keyIncludesKindLengthAndModificationTime() throws Exception {
+    FormatMetadataCache local = new FormatMetadataCache( 8 );
+    String value = local.get( "kind", status( "/a", 10, 1 ), () -> "original" );
+
+    assertNotEquals( value, local.get( "kind", status( "/a", 11, 1 ), () -> "longer" ) );
+    assertNotEquals( value, local.get( "kind", status( "/a", 10, 2 ), () -> "touched" ) );
+    assertNotEquals( value, local.get( "other", status( "/a", 10, 1 ), () -> "other kind" ) );
+    assertEquals( 4, local.getMissCount() );
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedEntry() throws Exception {
+    FormatMetadataCache local = new FormatMetadataCache( 2 );
+    local.get( "kind", status( "/a", 1, 1 ), () -> "a" );
+    local.get( "kind", status( "/b", 1, 1 ), () -> "b" );
+    local.get( "kind", status( "/a", 1, 1 ), () -> "a" );
+    local.get( "kind", status( "/c", 1, 1 ), () -> "c" );
+
+    assertEquals( 2, local.size() );
+    assertEquals( 1, local.getEvictionCount() );
+    assertEquals( "a", local.get( "kind", status( "/a", 1, 1 ), () -> "reloaded" ) );
+    assertEquals( "reloaded", local.get( "kind", status( "/b", 1, 1 ), () -> "reloaded" ) );
+  }
+
+  @Test
+  public void invalidateDropsAllEntriesOfPath() throws Exception {
+    FormatMetadataCache local = new FormatMetadataCache( 8 );
+    local.get( "footer", status( "/a", 1, 1 ), () -> "footer" );
+    local.get( "fields", status( "/a", 1, 1 ), () -> "fields" );
+    local.get( "footer", status( "/b", 1, 1 ), () -> "other" );
+
+    local.invalidate( new Path( "file:/a" ) );
+
+    assertEquals( 1, local.size() );
+    assertEquals( "new", local.get( "footer", status( "/a", 1, 1 ), () -> "new" ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void rejectsNonPositiveSize() {
+    new FormatMetadataCache( 0 );
+  }
+
+  private static FileStatus status( String path, long length, long modificationTime ) {
+    return new FileStatus( length, false, 1, 1, modificationTime, new Path( "file:" + path ) );
+  }
+
+  private static String countingUri( File file ) {
+    return "countfs://" + file.getAbsolutePath();
+  }
+
+  private File writeParquet( String name, int rows ) throws Exception {
+    File file = new File( outputDir, name );
+    PentahoApacheOutputFormat outputFormat = new PentahoApacheOutputFormat();
+    outputFormat.setOutputFile( file.toURI().toString(), true );
+    outputFormat.setFields( ParquetUtils.createOutputFields( ParquetSpec.DataType.INT_64 ) );
+    write( outputFormat.createRecordWriter(), rows );
+    return file;
+  }
+
+  private File writeOrc( String name ) throws Exception {
+    File file = new File( outputDir, name );
+    List<OrcOutputField> fields = new ArrayList<>();
+    for ( String fieldName : new String[] { "Name", "Age" } ) {
+      OrcOutputField field = new OrcOutputField();
+      field.setFormatFieldName( fieldName );
+      field.setPentahoFieldName( fieldName );
+      field.setFormatType( "Age".equals( fieldName ) ? OrcSpec.DataType.BIGINT : OrcSpec.DataType.STRING );
+      field.setAllowNull( true );
+      fields.add( field );
+    }
+    PentahoOrcOutputFormat outputFormat = new PentahoOrcOutputFormat();
+    outputFormat.setOutputFile( file.toURI().toString(), true );
+    outputFormat.setFields( fields );
+    write( outputFormat.createRecordWriter(), 10 );
+    return file;
+  }
+
+  private static void write( IPentahoOutputFormat.IPentahoRecordWriter writer, int rows ) throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "Name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "Age" ) );
+    for ( long i = 0; i < rows; i++ ) {
+      writer.write( new RowMetaAndData( rowMeta, "name" + i, i ) );
+    }
+    writer.close();
+  }
+}
@@ -0,0 +1,327 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcConf;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IFormatStatistics;
+import org.pentaho.hadoop.shim.api.format.IFormatStatistics.IColumnStatistics;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class FormatStatisticsTest {
+
+  private static final List<String> COLUMNS = Arrays.asList( "id", "name", "price", "day", "flag" );
+  private static final String PARQUET_SCHEMA = "message test { required int64 id; optional binary name (UTF8); "
+    + "optional double price; optional int32 day (DATE); required boolean flag; }";
+  private static final String ORC_SCHEMA = "struct<id:bigint,name:string,price:double,day:date,flag:boolean>";
+  private static final int FILES = 3;
+  private static final int ROWS_PER_FILE = 3000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    KettleLogStore.init();
+  }
+
+  @Test
+  public void parquetStatisticsMatchFullScan() throws Exception {
+    File dir = folder.newFolder( "parquet" );
+    for ( int f = 0; f < FILES; f++ ) {
+      writeParquet( new File( dir, "part-" + f + ".parquet" ), f );
+    }
+    String uri = dir.toURI().toString();
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( uri );
+    inputFormat.setSchema( inputFormat.readSchema( uri ) );
+
+    Scan scan = new Scan();
+    for ( IPentahoInputFormat.IPentahoInputSplit split : inputFormat.getSplits() ) {
+      scan.read( inputFormat.createRecordReader( split ) );
+    }
+    IFormatStatistics statistics = inputFormat.readStatistics();
+
+    assertEquals( FILES, statistics.getFileCount() );
+    assertMatches( scan, statistics );
+  }
+
+  @Test
+  public void parquetSplitStatisticsAddUpToTotal() throws Exception {
+    File dir = folder.newFolder( "parquet" );
+    for ( int f = 0; f < FILES; f++ ) {
+      writeParquet( new File( dir, "part-" + f + ".parquet" ), f );
+    }
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( dir.toURI().toString() );
+
+    FormatStatistics merged = new FormatStatistics();
+    for ( IPentahoInputFormat.IPentahoInputSplit split : inputFormat.getSplits() ) {
+      merged.merge( (FormatStatistics) inputFormat.readStatistics( split ) );
+    }
+    IFormatStatistics total = inputFormat.readStatistics();
+    assertEquals( total.getRowCount(), merged.getRowCount() );
+    for ( String column : COLUMNS ) {
+      assertEquals( total.getColumn( column ).getNullCount(), merged.getColumn( column ).getNullCount() );
+      assertEquals( total.getColumn( column ).getMin(), merged.getColumn( column ).getMin() );
+      assertEquals( total.getColumn( column ).getMax(), merged.getColumn( column ).getMax() );
+    }
+  }
+
+  @Test
+  public void orcStatisticsMatchFullScan() throws Exception {
+    File dir = folder.newFolder( "orc" );
+    Scan scan = new Scan();
+    for ( int f = 0; f < FILES; f++ ) {
+      File file = new File( dir, "part-" + f + ".orc" );
+      writeOrc( file, f );
+      PentahoOrcInputFormat fileFormat = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+      fileFormat.setInputFile( file.toURI().toString() );
+      fileFormat.setSchema( fileFormat.readSchema() );
+      scan.read( fileFormat.createRecordReader( null ) );
+    }
+
+    PentahoOrcInputFormat inputFormat = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( dir.toURI().toString() );
+    IFormatStatistics statistics = inputFormat.readStatistics();
+
+    assertEquals( FILES, statistics.getFileCount() );
+    assertMatches( scan, statistics );
+  }
+
+  @Test
+  public void columnMissingFromOneFileCountsAsNull() {
+    FormatStatistics first = new FormatStatistics();
+    first.addFile( "a" );
+    first.addRows( 10 );
+    first.column( "id", ValueMetaInterface.TYPE_INTEGER ).add( 10, 0, 1L, 10L );
+    FormatStatistics second = new FormatStatistics();
+    second.addFile( "b" );
+    second.addRows( 5 );
+    second.column( "id", ValueMetaInterface.TYPE_INTEGER ).add( 5, 1, 20L, 23L );
+    second.column( "extra", ValueMetaInterface.TYPE_STRING ).add( 5, 0, "a", "b" );
+
+    FormatStatistics merged = new FormatStatistics().merge( first ).merge( second );
+    assertEquals( 15, merged.getRowCount() );
+    assertEquals( 2, merged.getFileCount() );
+    assertEquals( Arrays.asList( "id", "extra" ), merged.getColumnNames() );
+    assertEquals( 1L, merged.getColumn( "id" ).getMin() );
+    assertEquals( 23L, merged.getColumn( "id" ).getMax() );
+    assertEquals( 1, merged.getColumn( "id" ).getNullCount() );
+    assertEquals( 14, merged.getColumn( "id" ).getDistinctCountHint() );
+    assertEquals( 10, merged.getColumn( "extra" ).getNullCount() );
+    assertEquals( "a", merged.getColumn( "extra" ).getMin() );
+  }
+
+  @Test
+  public void unknownStatisticsAreReportedAsUnknown() {
+    FormatStatistics statistics = new FormatStatistics();
+    statistics.addRows( 20 );
+    FormatStatistics.ColumnStatistics column = statistics.column( "value", ValueMetaInterface.TYPE_BINARY );
+    column.add( 10, 2, null, null );
+    column.add( 10, -1, null, null );
+    assertFalse( column.hasMinMax() );
+    assertNull( column.getMin() );
+    assertEquals( -1, column.getNullCount() );
+    assertEquals( 18, column.getDistinctCountHint() );
+  }
+
+  @Test
+  public void distinctHintIsBoundedByRange() {
+    FormatStatistics statistics = new FormatStatistics();
+    statistics.column( "flag", ValueMetaInterface.TYPE_BOOLEAN ).add( 100, 0, false, true );
+    statistics.column( "small", ValueMetaInterface.TYPE_INTEGER ).add( 100, 0, 5L, 7L );
+    statistics.column( "constant", ValueMetaInterface.TYPE_STRING ).add( 100, 50, "x", "x" );
+    statistics.column( "wide", ValueMetaInterface.TYPE_INTEGER ).add( 100, 0, Long.MIN_VALUE, Long.MAX_VALUE );
+    assertEquals( 2, statistics.getColumn( "flag" ).getDistinctCountHint() );
+    assertEquals( 3, statistics.getColumn( "small" ).getDistinctCountHint() );
+    assertEquals( 1, statistics.getColumn( "constant" ).getDistinctCountHint() );
+    assertEquals( 100, statistics.getColumn( "wide" ).getDistinctCountHint() );
+  }
+
+  private static void assertMatches( Scan scan, IFormatStatistics statistics ) {
+    assertEquals( FILES * ROWS_PER_FILE, scan.rows );
+    assertEquals( scan.rows, statistics.getRowCount() );
+    assertEquals( COLUMNS, statistics.getColumnNames() );
+    for ( String name : COLUMNS ) {
+      IColumnStatistics column = statistics.getColumn( name );
+      ColumnScan expected = scan.columns.get( name );
+      assertEquals( name, expected.nulls, column.getNullCount() );
+      assertTrue( name, column.hasMinMax() );
+      assertEquals( name, expected.min, column.getMin() );
+      assertEquals( name, expected.max, column.getMax() );
+      assertTrue( name + " distinct hint " + column.getDistinctCountHint() + " below " + expected.values.size(),
+        column.getDistinctCountHint() >= expected.values.size() );
+    }
+    assertEquals( scan.rows, statistics.getColumn( "id" ).getDistinctCountHint() );
+    assertEquals( 2, statistics.getColumn( "flag" ).getDistinctCountHint() );
+  }
+
+  private static boolean isNull( int row, int modulo ) {
+    return row % modulo == 0;
+  }
+
+  private static void writeParquet( File file, int fileIndex ) throws IOException {
+    MessageType schema = MessageTypeParser.parseMessageType( PARQUET_SCHEMA );
+    SimpleGroupFactory groups = new SimpleGroupFactory( schema );
+    try ( ParquetWriter<Group> writer = ExampleParquetWriter.builder( new Path( file.toURI() ) )
+      .withConf( new Configuration() ).withType( schema ).withRowGroupSize( 8 * 1024L ).withPageSize( 1024 )
+      .build() ) {
+      for ( int i = 0; i < ROWS_PER_FILE; i++ ) {
+        Group group = groups.newGroup().append( "id", (long) fileIndex * ROWS_PER_FILE + i );
+        if ( !isNull( i, 7 ) ) {
+          group.append( "name", "name-" + ( i + fileIndex ) % 50 );
+        }
+        if ( !isNull( i, 11 ) ) {
+          group.append( "price", i * 0.5 - 100 * fileIndex );
+        }
+        if ( !isNull( i, 13 ) ) {
+          group.append( "day", 18000 + ( i + fileIndex * 10 ) % 30 );
+        }
+        writer.write( group.append( "flag", i % 3 == 0 ) );
+      }
+    }
+  }
+
+  private static void writeOrc( File file, int fileIndex ) throws IOException {
+    Configuration conf = new Configuration();
+    OrcConf.ROWS_BETWEEN_CHECKS.setLong( conf, 500 );
+    Writer writer = OrcFile.createWriter( new Path( file.toURI() ), OrcFile.writerOptions( conf )
+      .setSchema( TypeDescription.fromString( ORC_SCHEMA ) ).stripeSize( 16 * 1024 ).bufferSize( 1024 ) );
+    VectorizedRowBatch batch = writer.getSchema().createRowBatch();
+    LongColumnVector ids = (LongColumnVector) batch.cols[ 0 ];
+    BytesColumnVector names = (BytesColumnVector) batch.cols[ 1 ];
+    DoubleColumnVector prices = (DoubleColumnVector) batch.cols[ 2 ];
+    LongColumnVector days = (LongColumnVector) batch.cols[ 3 ];
+    LongColumnVector flags = (LongColumnVector) batch.cols[ 4 ];
+    for ( int i = 0; i < ROWS_PER_FILE; i++ ) {
+      int row = batch.size++;
+      ids.vector[ row ] = (long) fileIndex * ROWS_PER_FILE + i;
+      if ( isNull( i, 7 ) ) {
+        names.noNulls = false;
+        names.isNull[ row ] = true;
+      } else {
+        names.setVal( row, ( "name-" + ( i + fileIndex ) % 50 ).getBytes( StandardCharsets.UTF_8 ) );
+      }
+      if ( isNull( i, 11 ) ) {
+        prices.noNulls = false;
+        prices.isNull[ row ] = true;
+      } else {
+        prices.vector[ row ] = i * 0.5 - 100 * fileIndex;
+      }
+      if ( isNull( i, 13 ) ) {
+        days.noNulls = false;
+        days.isNull[ row ] = true;
+      } else {
+        days.vector[ row ] = 18000 + ( i + fileIndex * 10 ) % 30;
+      }
+      flags.vector[ row ] = i % 3 == 0 ? 1 : 0;
+      if ( batch.size == batch.getMaxSize() ) {
+        writer.addRowBatch( batch );
+        batch.reset();
+      }
+    }
+    if ( batch.size > 0 ) {
+      writer.addRowBatch( batch );
+    }
+    writer.close();
+  }
+
+  /**
+   * Aggregates computed from the rows returned by the record readers.
+   */
+  private static class Scan {
+    long rows;
+    final Map<String, ColumnScan> columns = new LinkedHashMap<>();
+
+    Scan() {
+      for ( String name : COLUMNS ) {
+        columns.put( name, new ColumnScan() );
+      }
+    }
+
+    void read( IPentahoRecordReader reader ) throws IOException {
+      try ( IPentahoRecordReader records = reader ) {
+        for ( RowMetaAndData row : records ) {
+          rows++;
+          for ( String name : COLUMNS ) {
+            columns.get( name ).add( row.getData()[ row.getRowMeta().indexOfValue( name ) ] );
+          }
+        }
+      }
+    }
+  }
+
+  private static class ColumnScan {
+    long nulls;
+    Object min;
+    Object max;
+    final Set<Object> values = new HashSet<>();
+
+    @SuppressWarnings( "unchecked" )
+    void add( Object value ) {
+      if ( value == null ) {
+        nulls++;
+        return;
+      }
+      values.add( value );
+      if ( min == null || ( (Comparable<Object>) value ).compareTo( min ) < 0 ) {
+        min = value;
+      }
+      if ( max == null || ( (Comparable<Object>) value ).compareTo( max ) > 0 ) {
+        max = value;
+      }
+    }
+  }
+}
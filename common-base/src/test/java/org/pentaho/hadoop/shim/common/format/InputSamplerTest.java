@@ -0,0 +1,525 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcConf;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IAvroInputField;
+import org.pentaho.hadoop.shim.api.format.IOrcInputField;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.SamplingOptions;
+import org.pentaho.hadoop.shim.common.format.avro.AvroSampler;
+import org.pentaho.hadoop.shim.common.format.avro.AvroSchemaConverter;
+import org.pentaho.hadoop.shim.common.format.avro.PentahoAvroInputFormat;
+import org.pentaho.hadoop.shim.common.format.orc.OrcSampler;
+import org.pentaho.hadoop.shim.common.format.orc.OrcSchemaConverter;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.ParquetInputFieldList;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetConverter;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetSampler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class InputSamplerTest {
+
+  private static final String PARQUET_SCHEMA = "message test { required int64 id; required binary name (UTF8); }";
+  private static final String ORC_SCHEMA = "struct<id:bigint,name:string>";
+  private static final int FILES = 4;
+  private static final int PARQUET_ROWS = 20_000;
+  private static final int ORC_ROWS = 50_000;
+  private static final Schema AVRO_SCHEMA =
+    SchemaBuilder.record( "test" ).fields().requiredLong( "id" ).requiredString( "name" ).endRecord();
+  private static final int AVRO_ROWS = 20_000;
+  /**
+   * Bytes a file may read when it is opened: Parquet footers and ORC tails
+   */
+  private static final long METADATA_ALLOWANCE = 32 * 1024L;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    KettleLogStore.init();
+    FormatMetadataCache.getInstance().invalidateAll();
+    conf = new Configuration();
+    conf.set( "fs.file.impl", CountingFileSystem.class.getName() );
+    conf.setBoolean( "fs.file.impl.disable.cache", true );
+    CountingFileSystem.reset();
+  }
+
+  @Test
+  public void parquetFirstRowsOpenOnlyTheFirstFile() throws Exception {
+    File dir = parquetDirectory();
+    InputSampler sampler = parquetSampler( options( SamplingOptions.Strategy.FIRST_N, 100, Long.MAX_VALUE ) );
+
+    List<Long> ids = sample( sampler, dir );
+
+    assertEquals( range( 0, 100 ), ids );
+    assertEquals( Collections.singleton( "part-0.parquet" ), CountingFileSystem.OPENED );
+    assertTrue( CountingFileSystem.BYTES.get() < size( dir ) / 20 );
+  }
+
+  @Test
+  public void parquetFirstRowsStopAtTheByteBudget() throws Exception {
+    File dir = parquetDirectory();
+    FileStatus firstFile = CountingFileSystem.status( conf, new File( dir, "part-0.parquet" ) );
+    List<InputSampler.Unit> rowGroups = ParquetSampler.listRowGroups( parquetConf(), firstFile );
+    long budget = rowGroups.get( 0 ).getBytes() + rowGroups.get( 1 ).getBytes();
+    CountingFileSystem.reset();
+    InputSampler sampler = parquetSampler( options( SamplingOptions.Strategy.FIRST_N, PARQUET_ROWS, budget ) );
+
+    List<Long> ids = sample( sampler, dir );
+
+    assertEquals( range( 0, rowGroups.get( 0 ).getRows() + rowGroups.get( 1 ).getRows() ), ids );
+  }
+
+  @Test
+  public void firstRowGroupIsReadWhenNoRowGroupFitsTheBudget() throws Exception {
+    File dir = parquetDirectory();
+    InputSampler sampler = parquetSampler( options( SamplingOptions.Strategy.FIRST_N, 100, 1 ) );
+
+    List<Long> ids = sample( sampler, dir );
+
+    assertEquals( range( 0, 100 ), ids );
+    assertEquals( Collections.singleton( "part-0.parquet" ), CountingFileSystem.OPENED );
+  }
+
+  @Test
+  public void oneRowGroupIsReadWhenNoRowGroupFitsTheBudget() throws Exception {
+    File dir = parquetDirectory();
+    for ( SamplingOptions.Strategy strategy : SamplingOptions.Strategy.values() ) {
+      InputSampler sampler = parquetSampler( options( strategy, FILES * PARQUET_ROWS, 1 ) );
+
+      assertEquals( strategy.name(), 1, select( sampler, dir ).size() );
+    }
+  }
+
+  @Test
+  public void parquetReservoirChoosesRowGroupsOfSeveralFiles() throws Exception {
+    File dir = parquetDirectory();
+    SamplingOptions options = options( SamplingOptions.Strategy.RESERVOIR, 5000, 1024 * 1024 );
+
+    List<Long> ids = sample( parquetSampler( options ), dir );
+
+    assertTrue( ids.size() <= 5000 );
+    assertTrue( rowsPerFile( ids, PARQUET_ROWS ).size() > 1 );
+    assertTrue( CountingFileSystem.BYTES.get() < size( dir ) / 4 );
+
+    FormatMetadataCache.getInstance().invalidateAll();
+    CountingFileSystem.reset();
+    assertEquals( "the same seed chooses the same rows", ids, sample( parquetSampler( options ), dir ) );
+  }
+
+  @Test
+  public void parquetOnePerFileReadsOneRowGroupPerFile() throws Exception {
+    File dir = parquetDirectory();
+    InputSampler sampler =
+      parquetSampler( options( SamplingOptions.Strategy.ONE_PER_FILE, FILES * PARQUET_ROWS, Long.MAX_VALUE ) );
+
+    List<Long> ids = sample( sampler, dir );
+
+    assertEquals( FILES, rowsPerFile( ids, PARQUET_ROWS ).size() );
+    assertTrue( CountingFileSystem.BYTES.get() < size( dir ) / 4 );
+  }
+
+  @Test
+  public void onePerFileStopsWhenTheRowsAreChosen() throws Exception {
+    File dir = parquetDirectory();
+    InputSampler sampler = parquetSampler( options( SamplingOptions.Strategy.ONE_PER_FILE, 100, Long.MAX_VALUE ) );
+
+    List<InputSampler.Unit> units = select( sampler, dir );
+
+    long rows = units.stream().mapToLong( InputSampler.Unit::getRows ).sum();
+    assertTrue( rows >= 100 );
+    assertTrue( rows - units.get( units.size() - 1 ).getRows() < 100 );
+    assertTrue( units.size() < FILES );
+  }
+
+  @Test
+  public void orcFirstRowsOpenOnlyTheFirstFile() throws Exception {
+    File dir = orcDirectory();
+    InputSampler sampler = orcSampler( options( SamplingOptions.Strategy.FIRST_N, 100, Long.MAX_VALUE ) );
+
+    List<Long> ids = sample( sampler, dir );
+
+    assertEquals( range( 0, 100 ), ids );
+    assertEquals( Collections.singleton( "part-0.orc" ), CountingFileSystem.OPENED );
+    assertTrue( CountingFileSystem.BYTES.get() < size( dir ) / 20 );
+  }
+
+  @Test
+  public void orcOnePerFileReadsOneStripePerFile() throws Exception {
+    File dir = orcDirectory();
+    InputSampler sampler =
+      orcSampler( options( SamplingOptions.Strategy.ONE_PER_FILE, FILES * ORC_ROWS, Long.MAX_VALUE ) );
+
+    List<Long> ids = sample( sampler, dir );
+
+    assertEquals( FILES, rowsPerFile( ids, ORC_ROWS ).size() );
+    assertTrue( CountingFileSystem.BYTES.get() < size( dir ) / 4 );
+  }
+
+  @Test
+  public void avroFirstRowsOpenOnlyTheFirstFile() throws Exception {
+    File dir = avroDirectory();
+    InputSampler sampler = avroSampler( options( SamplingOptions.Strategy.FIRST_N, 100, Long.MAX_VALUE ) );
+
+    List<Long> ids = sample( sampler, dir );
+
+    assertEquals( range( 0, 100 ), ids );
+    assertEquals( Collections.singleton( "part-0.avro" ), CountingFileSystem.OPENED );
+    assertTrue( CountingFileSystem.BYTES.get() < size( dir ) / 20 );
+  }
+
+  @Test
+  public void avroBlocksAreReadOnTheirOwn() throws Exception {
+    File dir = avroDirectory();
+    FileStatus firstFile = CountingFileSystem.status( conf, new File( dir, "part-0.avro" ) );
+    List<InputSampler.Unit> blocks = AvroSampler.listBlocks( conf, firstFile );
+    assertEquals( AVRO_ROWS, blocks.stream().mapToLong( InputSampler.Unit::getRows ).sum() );
+    assertEquals( firstFile.getLen(), blocks.get( blocks.size() - 1 ).getOffset()
+      + blocks.get( blocks.size() - 1 ).getLength() );
+
+    InputSampler.Unit second = blocks.get( 1 );
+    List<Long> ids;
+    try ( IPentahoRecordReader reader = AvroSampler.readBlock( conf, avroFields(), second ) ) {
+      ids = ids( reader );
+    }
+    long first = blocks.get( 0 ).getRows();
+    assertEquals( range( first, first + second.getRows() ), ids );
+  }
+
+  @Test
+  public void inputFormatsReturnSamples() throws Exception {
+    File parquetDir = parquetDirectory();
+    String parquetUri = parquetDir.toURI().toString();
+    PentahoApacheInputFormat parquetFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    parquetFormat.setInputFile( parquetUri );
+    parquetFormat.setSchema( parquetFormat.readSchema( parquetUri ) );
+    try ( IPentahoRecordReader reader = parquetFormat.createSampleReader(
+      options( SamplingOptions.Strategy.FIRST_N, 10, Long.MAX_VALUE ) ) ) {
+      assertEquals( range( 0, 10 ), ids( reader ) );
+    }
+
+    File orcDir = orcDirectory();
+    PentahoOrcInputFormat orcFormat = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+    orcFormat.setInputFile( orcDir.toURI().toString() );
+    orcFormat.setSchema( orcFormat.readSchema() );
+    try ( IPentahoRecordReader reader = orcFormat.createSampleReader(
+      options( SamplingOptions.Strategy.ONE_PER_FILE, FILES * ORC_ROWS, Long.MAX_VALUE ) ) ) {
+      assertEquals( FILES, rowsPerFile( ids( reader ), ORC_ROWS ).size() );
+    }
+
+    File avroDir = avroDirectory();
+    PentahoAvroInputFormat avroFormat = new PentahoAvroInputFormat( mock( NamedCluster.class ) );
+    avroFormat.setInputFile( avroDir.toURI().toString() );
+    avroFormat.setSchema( avroFormat.readSchema() );
+    try ( IPentahoRecordReader reader = avroFormat.createSampleReader(
+      options( SamplingOptions.Strategy.FIRST_N, 10, Long.MAX_VALUE ) ) ) {
+      assertEquals( range( 0, 10 ), ids( reader ) );
+    }
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void maxRowsMustBePositive() {
+    SamplingOptions.builder().maxRows( 0 );
+  }
+
+  private InputSampler parquetSampler( SamplingOptions options ) {
+    Configuration parquetConf = parquetConf();
+    return new InputSampler( file -> ParquetSampler.listRowGroups( parquetConf, file ),
+      rowGroup -> ParquetSampler.readRowGroup( parquetConf, rowGroup ), options );
+  }
+
+  private Configuration parquetConf() {
+    MessageType schema = MessageTypeParser.parseMessageType( PARQUET_SCHEMA );
+    List<IParquetInputField> fields = ParquetConverter.buildInputFields( schema ).stream()
+      .filter( field -> field.getFormatFieldName().equals( "id" ) )
+      .collect( Collectors.toList() );
+    Configuration parquetConf = new Configuration( conf );
+    parquetConf.set( ParquetConverter.PARQUET_SCHEMA_CONF_KEY, new ParquetInputFieldList( fields ).marshall() );
+    return parquetConf;
+  }
+
+  private InputSampler orcSampler( SamplingOptions options ) {
+    List<IOrcInputField> fields = new OrcSchemaConverter().buildInputFields( TypeDescription.fromString( ORC_SCHEMA ) )
+      .stream()
+      .filter( field -> field.getFormatFieldName().equals( "id" ) )
+      .collect( Collectors.toList() );
+    return new InputSampler( file -> OrcSampler.listStripes( conf, file ),
+      stripe -> OrcSampler.readStripe( conf, fields, stripe ), options );
+  }
+
+  private InputSampler avroSampler( SamplingOptions options ) {
+    List<IAvroInputField> fields = avroFields();
+    return new InputSampler( file -> AvroSampler.listBlocks( conf, file ),
+      block -> AvroSampler.readBlock( conf, fields, block ), options );
+  }
+
+  private static List<IAvroInputField> avroFields() {
+    return new AvroSchemaConverter().buildInputFields( AVRO_SCHEMA ).stream()
+      .filter( field -> field.getFormatFieldName().equals( "id" ) )
+      .collect( Collectors.toList() );
+  }
+
+  /**
+   * Reads a sample and checks that only the chosen units were read besides the file metadata.
+   */
+  private List<Long> sample( InputSampler sampler, File dir ) throws IOException {
+    List<InputSampler.Unit> units = select( sampler, dir );
+    long dataBytes = units.stream().mapToLong( InputSampler.Unit::getBytes ).sum();
+    List<Long> ids;
+    try ( IPentahoRecordReader reader = sampler.read( units ) ) {
+      ids = ids( reader );
+    }
+    long bytes = CountingFileSystem.BYTES.get();
+    long allowance = CountingFileSystem.OPENS.get() * METADATA_ALLOWANCE;
+    assertTrue( "read " + bytes + " bytes for " + dataBytes + " bytes of data", bytes <= dataBytes + allowance );
+    return ids;
+  }
+
+  private List<InputSampler.Unit> select( InputSampler sampler, File dir ) throws IOException {
+    return sampler.select(
+      InputSampler.listFiles( conf, Collections.singletonList( new Path( dir.toURI() ) ), path -> true ) );
+  }
+
+  private static SamplingOptions options( SamplingOptions.Strategy strategy, int maxRows, long maxBytes ) {
+    return SamplingOptions.builder().strategy( strategy ).maxRows( maxRows ).maxBytes( maxBytes ).seed( 42 ).build();
+  }
+
+  private static List<Long> ids( IPentahoRecordReader reader ) {
+    List<Long> ids = new ArrayList<>();
+    for ( RowMetaAndData row : reader ) {
+      ids.add( row.getInteger( "id", -1 ) );
+    }
+    return ids;
+  }
+
+  private static List<Long> range( long from, long to ) {
+    return LongStream.range( from, to ).boxed().collect( Collectors.toList() );
+  }
+
+  private static Map<Long, Integer> rowsPerFile( List<Long> ids, int rowsPerFile ) {
+    Map<Long, Integer> counts = new TreeMap<>();
+    for ( long id : ids ) {
+      counts.merge( id / rowsPerFile, 1, Integer::sum );
+    }
+    return counts;
+  }
+
+  private static long size( File dir ) {
+    long size = 0;
+    for ( File file : dir.listFiles() ) {
+      size += file.length();
+    }
+    return size;
+  }
+
+  private File parquetDirectory() throws IOException {
+    File dir = folder.newFolder( "parquet" );
+    MessageType schema = MessageTypeParser.parseMessageType( PARQUET_SCHEMA );
+    SimpleGroupFactory groups = new SimpleGroupFactory( schema );
+    for ( int f = 0; f < FILES; f++ ) {
+      try ( ParquetWriter<Group> writer = ExampleParquetWriter.builder( new Path( new File( dir, "part-" + f
+          + ".parquet" ).toURI() ) )
+        .withConf( new Configuration() ).withType( schema ).withRowGroupSize( 16 * 1024L ).withPageSize( 2 * 1024 )
+        .withDictionaryEncoding( false ).build() ) {
+        for ( int i = 0; i < PARQUET_ROWS; i++ ) {
+          long id = (long) f * PARQUET_ROWS + i;
+          writer.write( groups.newGroup().append( "id", id ).append( "name", "name-" + id ) );
+        }
+      }
+    }
+    return dir;
+  }
+
+  private File avroDirectory() throws IOException {
+    File dir = folder.newFolder( "avro" );
+    for ( int f = 0; f < FILES; f++ ) {
+      try ( DataFileWriter<GenericRecord> writer = new DataFileWriter<>( new GenericDatumWriter<>( AVRO_SCHEMA ) ) ) {
+        writer.setSyncInterval( 4 * 1024 );
+        writer.create( AVRO_SCHEMA, new File( dir, "part-" + f + ".avro" ) );
+        for ( int i = 0; i < AVRO_ROWS; i++ ) {
+          long id = (long) f * AVRO_ROWS + i;
+          GenericRecord avroRecord = new GenericData.Record( AVRO_SCHEMA );
+          avroRecord.put( "id", id );
+          avroRecord.put( "name", "name-" + id );
+          writer.append( avroRecord );
+        }
+      }
+    }
+    return dir;
+  }
+
+  private File orcDirectory() throws IOException {
+    File dir = folder.newFolder( "orc" );
+    Configuration writeConf = new Configuration();
+    OrcConf.ROWS_BETWEEN_CHECKS.setLong( writeConf, 1000 );
+    for ( int f = 0; f < FILES; f++ ) {
+      Writer writer = OrcFile.createWriter( new Path( new File( dir, "part-" + f + ".orc" ).toURI() ),
+        OrcFile.writerOptions( writeConf ).setSchema( TypeDescription.fromString( ORC_SCHEMA ) )
+          .stripeSize( 64 * 1024 ).bufferSize( 4 * 1024 ) );
+      VectorizedRowBatch batch = writer.getSchema().createRowBatch();
+      LongColumnVector ids = (LongColumnVector) batch.cols[ 0 ];
+      BytesColumnVector names = (BytesColumnVector) batch.cols[ 1 ];
+      for ( int i = 0; i < ORC_ROWS; i++ ) {
+        long id = (long) f * ORC_ROWS + i;
+        int row = batch.size++;
+        ids.vector[ row ] = id;
+        names.setVal( row, ( "name-" + id ).getBytes( StandardCharsets.UTF_8 ) );
+        if ( batch.size == batch.getMaxSize() ) {
+          writer.addRowBatch( batch );
+          batch.reset();
+        }
+      }
+      if ( batch.size > 0 ) {
+        writer.addRowBatch( batch );
+      }
+      writer.close();
+    }
+    return dir;
+  }
+
+  /**
+   * Local file system which counts the opened files and the bytes read from them.
+   */
+  public static class CountingFileSystem extends RawLocalFileSystem {
+    static final AtomicLong BYTES = new AtomicLong();
+    static final AtomicInteger OPENS = new AtomicInteger();
+    static final Set<String> OPENED = Collections.synchronizedSet( new HashSet<>() );
+
+    static void reset() {
+      BYTES.set( 0 );
+      OPENS.set( 0 );
+      OPENED.clear();
+    }
+
+    static FileStatus status( Configuration conf, File file ) throws IOException {
+      Path path = new Path( file.toURI() );
+      return path.getFileSystem( conf ).getFileStatus( path );
+    }
+
+    @Override
+    public FSDataInputStream open( Path path, int bufferSize ) throws IOException {
+      OPENS.incrementAndGet();
+      OPENED.add( path.getName() );
+      return new FSDataInputStream( new CountingInputStream( super.open( path, bufferSize ) ) );
+    }
+  }
+
+  private static class CountingInputStream extends FSInputStream {
+    private final FSDataInputStream in;
+
+    CountingInputStream( FSDataInputStream in ) {
+      this.in = in;
+    }
+
+    @Override
+    public int read( long position, byte[] buffer, int offset, int length ) throws IOException {
+      return count( in.read( position, buffer, offset, length ) );
+    }
+
+    @Override
+    public int read( byte[] buffer, int offset, int length ) throws IOException {
+      return count( in.read( buffer, offset, length ) );
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = in.read();
+      if ( value >= 0 ) {
+        CountingFileSystem.BYTES.incrementAndGet();
+      }
+      return value;
+    }
+
+    @Override
+    public void seek( long position ) throws IOException {
+      in.seek( position );
+    }
+
+    @Override
+    public long getPos() throws IOException {
+      return in.getPos();
+    }
+
+    @Override
+    public boolean seekToNewSource( long targetPos ) {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+    private static int count( int read ) {
+      if ( read > 0 ) {
+        CountingFileSystem.BYTES.addAndGet( read );
+      }
+      return read;
+    }
+  }
+}
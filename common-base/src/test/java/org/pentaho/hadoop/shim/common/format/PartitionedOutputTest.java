@@ -0,0 +1,332 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IOrcInputField;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
+import org.pentaho.hadoop.shim.api.format.OrcSpec;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.common.format.orc.OrcOutputField;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.ParquetInputField;
+import org.pentaho.hadoop.shim.common.format.parquet.ParquetOutputField;
+import org.pentaho.hadoop.shim.common.format.parquet.ParquetUtils;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.PentahoTwitterInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.PentahoTwitterOutputFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class PartitionedOutputTest {
+
+  private static final List<String> PARTITION_FIELDS = Arrays.asList( "dt", "region" );
+  private static final String[] DATES = { "2024-01-01", "2024-01-02" };
+  private static final String[] REGIONS = { "eu", "us" };
+
+  private File outputDir;
+  private RowMeta rowMeta;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    outputDir = new File( Files.createTempDirectory( "partitioned" ).toFile(), "sales" );
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "Name" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "dt" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "Age" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "region" ) );
+  }
+
+  @Test
+  public void parquetWritesHiveDirectoryLayout() throws Exception {
+    writeRows( createParquetOutput( 16 ), 20 );
+
+    assertEquals( Arrays.asList(
+      "dt=2024-01-01/region=eu/part-00000.parquet",
+      "dt=2024-01-01/region=us/part-00000.parquet",
+      "dt=2024-01-02/region=eu/part-00000.parquet",
+      "dt=2024-01-02/region=us/part-00000.parquet" ), visibleFiles() );
+  }
+
+  @Test
+  public void parquetFileSchemaOmitsPartitionFields() throws Exception {
+    writeRows( createParquetOutput( 16 ), 4 );
+
+    String file = new File( outputDir, "dt=2024-01-01/region=eu/part-00000.parquet" ).toURI().toString();
+    List<String> names = new PentahoApacheInputFormat( mock( NamedCluster.class ) ).readSchema( file ).stream()
+      .map( IParquetInputField::getFormatFieldName ).collect( Collectors.toList() );
+    assertEquals( Arrays.asList( "Name", "Age" ), names );
+  }
+
+  @Test
+  public void openWritersStayWithinLimit() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createParquetOutput( 2 );
+    PartitionedRecordWriter writer = (PartitionedRecordWriter) outputFormat.createRecordWriter();
+    // cycling over four partitions with room for two writers evicts on every row after the second
+    for ( long i = 0; i < 12; i++ ) {
+      writer.write( row( i ) );
+      assertTrue( writer.getOpenWriterCount() <= 2 );
+    }
+    writer.close();
+
+    assertEquals( 0, writer.getOpenWriterCount() );
+    assertEquals( 10, writer.getEvictionCount() );
+    assertEquals( Arrays.asList(
+      "dt=2024-01-01/region=eu/part-00000.parquet",
+      "dt=2024-01-01/region=eu/part-00001.parquet",
+      "dt=2024-01-01/region=eu/part-00002.parquet" ), visibleFiles().subList( 0, 3 ) );
+    assertEquals( 12, visibleFiles().size() );
+    assertEquals( 12, readParquet( outputDir ).size() );
+  }
+
+  @Test
+  public void rerunRemovesStalePartsOfEachPartition() throws Exception {
+    writeRows( createParquetOutput( 2 ), 12 );
+    assertEquals( 12, visibleFiles().size() );
+
+    writeRows( createParquetOutput( 16 ), 4 );
+
+    assertEquals( Arrays.asList(
+      "dt=2024-01-01/region=eu/part-00000.parquet",
+      "dt=2024-01-01/region=us/part-00000.parquet",
+      "dt=2024-01-02/region=eu/part-00000.parquet",
+      "dt=2024-01-02/region=us/part-00000.parquet" ), visibleFiles() );
+    assertEquals( 4, readParquet( outputDir ).size() );
+  }
+
+  @Test
+  public void parquetRoundTripReconstructsPartitionFields() throws Exception {
+    writeRows( createParquetOutput( 3 ), 50 );
+
+    List<RowMetaAndData> rows = readParquet( outputDir );
+    assertEquals( 50, rows.size() );
+    assertPartitionFieldsMatch( rows );
+  }
+
+  @Test
+  public void twitterDelegateRoundTripReconstructsPartitionFields() throws Exception {
+    PentahoTwitterOutputFormat outputFormat = new PentahoTwitterOutputFormat();
+    outputFormat.setOutputFile( outputDir.toURI().toString(), true );
+    outputFormat.setFields( parquetFields() );
+    outputFormat.setPartitionFields( PARTITION_FIELDS );
+    writeRows( outputFormat, 20 );
+
+    assertEquals( 4, visibleFiles().size() );
+    List<RowMetaAndData> rows = readParquet( new PentahoTwitterInputFormat( mock( NamedCluster.class ) ), outputDir );
+    assertEquals( 20, rows.size() );
+    assertPartitionFieldsMatch( rows );
+  }
+
+  @Test
+  public void orcRoundTripReconstructsPartitionFields() throws Exception {
+    PentahoOrcOutputFormat outputFormat = new PentahoOrcOutputFormat();
+    outputFormat.setOutputFile( outputDir.toURI().toString(), true );
+    outputFormat.setFields( orcFields() );
+    outputFormat.setPartitionFields( PARTITION_FIELDS );
+    outputFormat.setMaxOpenWriters( 1 );
+    writeRows( outputFormat, 30 );
+
+    List<String> files = visibleFiles();
+    assertTrue( files.contains( "dt=2024-01-02/region=us/part-00000.orc" ) );
+    List<RowMetaAndData> rows = new ArrayList<>();
+    for ( String file : files ) {
+      PentahoOrcInputFormat inputFormat = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+      inputFormat.setInputFile( new File( outputDir, file ).toURI().toString() );
+      List<IOrcInputField> schema = inputFormat.readSchema();
+      assertEquals( Arrays.asList( "Name", "Age" ),
+        schema.stream().map( IOrcInputField::getFormatFieldName ).collect( Collectors.toList() ) );
+      inputFormat.setSchema( schema );
+      inputFormat.setPartitionFields( PARTITION_FIELDS );
+      try ( IPentahoInputFormat.IPentahoRecordReader reader = inputFormat.createRecordReader( null ) ) {
+        for ( RowMetaAndData row : reader ) {
+          rows.add( row );
+        }
+      }
+    }
+    assertEquals( 30, rows.size() );
+    assertPartitionFieldsMatch( rows );
+  }
+
+  @Test
+  public void orcFileWhichCannotBeCreatedIsReported() throws Exception {
+    assertTrue( outputDir.getParentFile().isDirectory() );
+    assertTrue( outputDir.createNewFile() );
+    PentahoOrcOutputFormat outputFormat = new PentahoOrcOutputFormat();
+    outputFormat.setOutputFile( new File( outputDir, "out.orc" ).toURI().toString(), true );
+    outputFormat.setFields( orcFields() );
+    try {
+      outputFormat.createRecordWriter();
+      fail( "Expected the writer creation to fail" );
+    } catch ( IllegalStateException e ) {
+      assertTrue( e.getCause() instanceof IOException );
+    }
+  }
+
+  @Test
+  public void partitionValuesAreEscapedAndNullsUseDefaultPartition() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createParquetOutput( 16 );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    writer.write( new RowMetaAndData( rowMeta, "a", "2024/01/01", 1L, "eu=west" ) );
+    writer.write( new RowMetaAndData( rowMeta, "b", null, 2L, "us" ) );
+    writer.close();
+
+    assertEquals( Arrays.asList(
+      "dt=2024%2F01%2F01/region=eu%3Dwest/part-00000.parquet",
+      "dt=__HIVE_DEFAULT_PARTITION__/region=us/part-00000.parquet" ), visibleFiles() );
+    Map<Long, RowMetaAndData> byAge = new HashMap<>();
+    for ( RowMetaAndData row : readParquet( outputDir ) ) {
+      byAge.put( row.getInteger( "Age", -1 ), row );
+    }
+    assertEquals( "2024/01/01", byAge.get( 1L ).getString( "dt", null ) );
+    assertEquals( "eu=west", byAge.get( 1L ).getString( "region", null ) );
+    RowMetaAndData defaultPartitionRow = byAge.get( 2L );
+    assertNull( defaultPartitionRow.getData()[ defaultPartitionRow.getRowMeta().indexOfValue( "dt" ) ] );
+  }
+
+  @Test
+  public void parsesPartitionPath() {
+    Map<String, String> partitions =
+      HivePartitionPath.parse( new Path( "file:/data/sales/dt=2024-01-01/region=a%2Fb/part-00000.orc" ) );
+    assertEquals( Arrays.asList( "dt", "region" ), new ArrayList<>( partitions.keySet() ) );
+    assertEquals( "2024-01-01", partitions.get( "dt" ) );
+    assertEquals( "a/b", partitions.get( "region" ) );
+    assertFalse( HivePartitionPath.parse( new Path( "/data/sales/part-00000.orc" ) ).containsKey( "dt" ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void missingPartitionFieldIsRejected() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createParquetOutput( 16 );
+    outputFormat.setPartitionFields( Collections.singletonList( "country" ) );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    writer.write( row( 0 ) );
+  }
+
+  private PentahoApacheOutputFormat createParquetOutput( int maxOpenWriters ) throws Exception {
+    PentahoApacheOutputFormat outputFormat = new PentahoApacheOutputFormat();
+    outputFormat.setOutputFile( outputDir.toURI().toString(), true );
+    outputFormat.setFields( parquetFields() );
+    outputFormat.setPartitionFields( PARTITION_FIELDS );
+    outputFormat.setMaxOpenWriters( maxOpenWriters );
+    return outputFormat;
+  }
+
+  private static List<ParquetOutputField> parquetFields() {
+    List<ParquetOutputField> fields = new ArrayList<>();
+    for ( String name : Arrays.asList( "Name", "dt", "Age", "region" ) ) {
+      ParquetOutputField field = new ParquetOutputField();
+      field.setFormatFieldName( name );
+      field.setPentahoFieldName( name );
+      field.setFormatType( "Age".equals( name ) ? ParquetSpec.DataType.INT_64 : ParquetSpec.DataType.UTF8 );
+      field.setAllowNull( true );
+      fields.add( field );
+    }
+    return fields;
+  }
+
+  private static List<OrcOutputField> orcFields() {
+    List<OrcOutputField> fields = new ArrayList<>();
+    for ( String name : Arrays.asList( "Name", "dt", "Age", "region" ) ) {
+      OrcOutputField field = new OrcOutputField();
+      field.setFormatFieldName( name );
+      field.setPentahoFieldName( name );
+      field.setFormatType( "Age".equals( name ) ? OrcSpec.DataType.BIGINT : OrcSpec.DataType.STRING );
+      field.setAllowNull( true );
+      fields.add( field );
+    }
+    return fields;
+  }
+
+  private RowMetaAndData row( long i ) {
+    return new RowMetaAndData( rowMeta, "name" + i, expectedDate( i ), i, expectedRegion( i ) );
+  }
+
+  private static String expectedDate( long i ) {
+    return DATES[ (int) ( i / 2 % 2 ) ];
+  }
+
+  private static String expectedRegion( long i ) {
+    return REGIONS[ (int) ( i % 2 ) ];
+  }
+
+  private void writeRows( IPentahoOutputFormat outputFormat, int count ) throws Exception {
+    ParquetUtils.writeRows( outputFormat, count, this::row );
+  }
+
+  private void assertPartitionFieldsMatch( List<RowMetaAndData> rows ) throws Exception {
+    for ( RowMetaAndData row : rows ) {
+      long age = row.getInteger( "Age", -1 );
+      assertEquals( "name" + age, row.getString( "Name", null ) );
+      assertEquals( expectedDate( age ), row.getString( "dt", null ) );
+      assertEquals( expectedRegion( age ), row.getString( "region", null ) );
+    }
+  }
+
+  private List<RowMetaAndData> readParquet( File dir ) throws Exception {
+    return readParquet( new PentahoApacheInputFormat( mock( NamedCluster.class ) ), dir );
+  }
+
+  private List<RowMetaAndData> readParquet( IPentahoParquetInputFormat inputFormat, File dir ) throws Exception {
+    inputFormat.setInputFile( dir.toURI().toString() );
+    inputFormat.setSchema( Arrays.asList(
+      new ParquetInputField( "Name", ParquetSpec.DataType.UTF8, "Name", ValueMetaInterface.TYPE_STRING ),
+      new ParquetInputField( "Age", ParquetSpec.DataType.INT_64, "Age", ValueMetaInterface.TYPE_INTEGER ) ) );
+    inputFormat.setPartitionFields( PARTITION_FIELDS );
+
+    List<RowMetaAndData> rows = new ArrayList<>();
+    for ( IPentahoInputFormat.IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoInputFormat.IPentahoRecordReader reader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : reader ) {
+          rows.add( row );
+        }
+      }
+    }
+    return rows;
+  }
+
+  private List<String> visibleFiles() throws IOException {
+    return ParquetUtils.visibleFiles( outputDir );
+  }
+}
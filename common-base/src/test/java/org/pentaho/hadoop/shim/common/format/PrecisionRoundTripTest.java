@@ -0,0 +1,372 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.AvroSpec;
+import org.pentaho.hadoop.shim.api.format.IOrcInputField;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.OrcSpec;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.common.format.avro.AvroConverter;
+import org.pentaho.hadoop.shim.common.format.orc.OrcOutputField;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.ParquetOutputField;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Writes edge values through the ORC and Parquet output formats and the Avro converter and expects to read every digit
+ * back.
+ */
+public class PrecisionRoundTripTest {
+
+  /**
+   * Timestamps every format has to keep, inside of the range of nanoseconds in a long.
+   */
+  private static final List<Timestamp> TIMESTAMPS = Arrays.asList(
+    PreciseValues.timestampOf( 0, 0 ),
+    PreciseValues.timestampOf( 0, 1 ),
+    PreciseValues.timestampOf( -1, 999_999_999 ),
+    PreciseValues.timestampOf( -1, 0 ),
+    PreciseValues.timestampOf( -86_401, 123_456_789 ),
+    PreciseValues.timestampOf( -631_152_000, 1_000 ),
+    PreciseValues.timestampOf( 1_514_811_600, 999_999_999 ),
+    PreciseValues.timestampOf( 1_700_000_000, 100 ),
+    PreciseValues.timestampOf( 4_102_444_799L, 999_999_001 ),
+    PreciseValues.timestampOf( 7_258_118_400L, 500_000_000 ) );
+
+  private static final List<BigDecimal> DECIMALS_38_10 = decimals( "0.0000000000", "0.0000000001", "-0.0000000001",
+    "1.5000000000", "-1.5000000000", "1234567890123456789012345678.9012345678",
+    "-9999999999999999999999999999.9999999999", "9999999999999999999999999999.9999999999" );
+
+  private static final List<BigDecimal> DECIMALS_18_4 = decimals( "0.0000", "12.3000", "-0.0001",
+    "99999999999999.9999", "-99999999999999.9999", "922337203685.4775" );
+
+  private static final List<BigDecimal> DECIMALS_9_2 = decimals( "0.00", "-0.01", "9999999.99", "-9999999.99",
+    "100.10" );
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    KettleLogStore.init();
+  }
+
+  @Test
+  public void timestampsConvertToEveryUnit() {
+    Timestamp beforeEpoch = PreciseValues.timestampOf( -2, 123_456_789 );
+    assertEquals( -1_877L, PreciseValues.timestampToEpoch( beforeEpoch, TimeUnit.MILLISECONDS ) );
+    assertEquals( -1_876_544L, PreciseValues.timestampToEpoch( beforeEpoch, TimeUnit.MICROSECONDS ) );
+    assertEquals( -1_876_543_211L, PreciseValues.timestampToEpoch( beforeEpoch, TimeUnit.NANOSECONDS ) );
+    assertEquals( beforeEpoch, PreciseValues.timestampFromEpoch( -1_876_543_211L, TimeUnit.NANOSECONDS ) );
+    assertEquals( PreciseValues.timestampOf( -2, 123_456_000 ),
+      PreciseValues.timestampFromEpoch( -1_876_544L, TimeUnit.MICROSECONDS ) );
+
+    for ( Timestamp timestamp : TIMESTAMPS ) {
+      long nanos = PreciseValues.timestampToEpoch( timestamp, TimeUnit.NANOSECONDS );
+      assertEquals( timestamp, PreciseValues.timestampFromEpoch( nanos, TimeUnit.NANOSECONDS ) );
+    }
+    assertEquals( Long.MAX_VALUE, PreciseValues.timestampToEpoch(
+      PreciseValues.timestampFromEpoch( Long.MAX_VALUE, TimeUnit.NANOSECONDS ), TimeUnit.NANOSECONDS ) );
+    assertEquals( Long.MIN_VALUE, PreciseValues.timestampToEpoch(
+      PreciseValues.timestampFromEpoch( Long.MIN_VALUE, TimeUnit.NANOSECONDS ), TimeUnit.NANOSECONDS ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void nanosecondsOutOfRangeAreRejected() {
+    PreciseValues.timestampToEpoch( PreciseValues.timestampOf( 9_300_000_000L, 0 ), TimeUnit.NANOSECONDS );
+  }
+
+  @Test
+  public void decimalsAreRoundedToScaleButNeverTruncated() {
+    assertEquals( new BigDecimal( "1.01" ), PreciseValues.toDecimal( new BigDecimal( "1.005" ), 9, 2, "f" ) );
+    assertEquals( new BigDecimal( "-1.01" ), PreciseValues.toDecimal( new BigDecimal( "-1.005" ), 9, 2, "f" ) );
+    assertEquals( new BigDecimal( "12.30" ), PreciseValues.toDecimal( new BigDecimal( "12.3" ), 9, 2, "f" ) );
+    assertEquals( new BigDecimal( "1.23" ), PreciseValues.toDecimal( new BigDecimal( "1.2349999" ), 3, 2, "f" ) );
+    assertEquals( new BigDecimal( "9999999.99" ),
+      PreciseValues.toDecimal( new BigDecimal( "9999999.994" ), 9, 2, "f" ) );
+    assertDecimalRejected( "9999999.995", 9, 2 );
+    assertDecimalRejected( "12345678.9", 9, 2 );
+    assertDecimalRejected( "-100", 2, 0 );
+  }
+
+  @Test
+  public void parquetNanosecondsKeepEveryDigit() throws Exception {
+    List<Timestamp> timestamps = new ArrayList<>( TIMESTAMPS );
+    timestamps.add( PreciseValues.timestampFromEpoch( Long.MAX_VALUE, TimeUnit.NANOSECONDS ) );
+    timestamps.add( PreciseValues.timestampFromEpoch( Long.MIN_VALUE, TimeUnit.NANOSECONDS ) );
+
+    assertEquals( timestamps, roundTripParquet( ParquetSpec.DataType.TIMESTAMP_NANOS, timestamps ) );
+  }
+
+  @Test
+  public void parquetMicrosecondsTruncateFinerDigits() throws Exception {
+    List<Timestamp> timestamps = new ArrayList<>( TIMESTAMPS );
+    timestamps.add( PreciseValues.timestampOf( 253_402_300_799L, 999_999_999 ) );
+    timestamps.add( PreciseValues.timestampOf( -62_135_596_800L, 1_000 ) );
+
+    List<Timestamp> expected = new ArrayList<>();
+    for ( Timestamp timestamp : timestamps ) {
+      expected.add( PreciseValues.timestampOf( Math.floorDiv( timestamp.getTime(), 1000L ),
+        timestamp.getNanos() - timestamp.getNanos() % 1000 ) );
+    }
+    assertEquals( expected, roundTripParquet( ParquetSpec.DataType.TIMESTAMP_MICROS, timestamps ) );
+  }
+
+  @Test
+  public void parquetInt96KeepsEveryDigit() throws Exception {
+    assertEquals( TIMESTAMPS, roundTripParquet( ParquetSpec.DataType.INT_96, TIMESTAMPS ) );
+  }
+
+  @Test
+  public void parquetSchemaReportsTimestampUnits() throws Exception {
+    String file = writeParquet( "schema.parquet", Arrays.asList(
+      parquetField( "micros", ParquetSpec.DataType.TIMESTAMP_MICROS, 0, 0 ),
+      parquetField( "nanos", ParquetSpec.DataType.TIMESTAMP_NANOS, 0, 0 ) ),
+      timestampRowMeta( "micros", "nanos" ), Collections.emptyList() );
+
+    List<IParquetInputField> schema = new PentahoApacheInputFormat( mock( NamedCluster.class ) ).readSchema( file );
+    assertEquals( ParquetSpec.DataType.TIMESTAMP_MICROS, schema.get( 0 ).getParquetType() );
+    assertEquals( ParquetSpec.DataType.TIMESTAMP_NANOS, schema.get( 1 ).getParquetType() );
+    assertEquals( ValueMetaInterface.TYPE_TIMESTAMP, schema.get( 1 ).getPentahoType() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void parquetRejectsTimestampsOutsideOfNanosecondRange() throws Exception {
+    roundTripParquet( ParquetSpec.DataType.TIMESTAMP_NANOS,
+      Collections.singletonList( PreciseValues.timestampOf( 9_300_000_000L, 0 ) ) );
+  }
+
+  @Test
+  public void parquetDecimalsKeepPrecisionAndScale() throws Exception {
+    assertEquals( DECIMALS_38_10, roundTripParquet( ParquetSpec.DataType.DECIMAL, 38, 10, DECIMALS_38_10 ) );
+    assertEquals( DECIMALS_18_4, roundTripParquet( ParquetSpec.DataType.DECIMAL, 18, 4, DECIMALS_18_4 ) );
+    assertEquals( DECIMALS_18_4, roundTripParquet( ParquetSpec.DataType.DECIMAL_INT_64, 18, 4, DECIMALS_18_4 ) );
+    assertEquals( DECIMALS_9_2, roundTripParquet( ParquetSpec.DataType.DECIMAL_INT_32, 9, 2, DECIMALS_9_2 ) );
+  }
+
+  @Test
+  public void parquetDecimalsAreRoundedToTheDeclaredScale() throws Exception {
+    assertEquals( decimals( "1.01", "12.30", "-0.01" ), roundTripParquet( ParquetSpec.DataType.DECIMAL_INT_32, 9, 2,
+      decimals( "1.005", "12.3", "-0.005" ) ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void parquetRejectsDecimalsExceedingPrecision() throws Exception {
+    roundTripParquet( ParquetSpec.DataType.DECIMAL_INT_32, 9, 2, decimals( "12345678.9" ) );
+  }
+
+  @Test
+  public void avroDecimalsAreRoundedToTheDeclaredScale() throws Exception {
+    assertEquals( DECIMALS_9_2, roundTripAvro( 9, 2, DECIMALS_9_2 ) );
+    assertEquals( decimals( "1.01", "12.30", "-0.01" ), roundTripAvro( 9, 2, decimals( "1.005", "12.3", "-0.005" ) ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void avroRejectsDecimalsExceedingPrecision() throws Exception {
+    roundTripAvro( 9, 2, decimals( "12345678.9" ) );
+  }
+
+  @Test
+  public void orcTimestampsKeepEveryDigit() throws Exception {
+    assertEquals( TIMESTAMPS, roundTripOrc( OrcSpec.DataType.TIMESTAMP, 0, 0, TIMESTAMPS ) );
+  }
+
+  @Test
+  public void orcDecimalsKeepPrecisionAndScale() throws Exception {
+    assertEquals( DECIMALS_38_10, roundTripOrc( OrcSpec.DataType.DECIMAL, 38, 10, DECIMALS_38_10 ) );
+    assertEquals( DECIMALS_18_4, roundTripOrc( OrcSpec.DataType.DECIMAL, 18, 4, DECIMALS_18_4 ) );
+    assertEquals( DECIMALS_9_2, roundTripOrc( OrcSpec.DataType.DECIMAL, 9, 2, DECIMALS_9_2 ) );
+  }
+
+  @Test
+  public void orcSchemaReportsDecimalPrecisionAndScale() throws Exception {
+    roundTripOrc( OrcSpec.DataType.DECIMAL, 12, 3, decimals( "1.000" ) );
+
+    PentahoOrcInputFormat inputFormat = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( new File( folder.getRoot(), "value.orc" ).toURI().toString() );
+    IOrcInputField field = inputFormat.readSchema().get( 0 );
+    assertEquals( 12, field.getPrecision() );
+    assertEquals( 3, field.getScale() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void orcRejectsDecimalsExceedingPrecision() throws Exception {
+    roundTripOrc( OrcSpec.DataType.DECIMAL, 9, 2, decimals( "-12345678.9" ) );
+  }
+
+  private List<Object> roundTripParquet( ParquetSpec.DataType type, List<?> values ) throws Exception {
+    return roundTripParquet( type, 0, 0, values );
+  }
+
+  private List<Object> roundTripParquet( ParquetSpec.DataType type, int precision, int scale, List<?> values )
+    throws Exception {
+    String file = writeParquet( type.name().toLowerCase() + "-" + precision + ".parquet",
+      Collections.singletonList( parquetField( "value", type, precision, scale ) ), rowMeta( type.getPdiType() ),
+      values );
+
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( file );
+    inputFormat.setSchema( inputFormat.readSchema( file ) );
+    List<Object> read = new ArrayList<>();
+    for ( IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoRecordReader reader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : reader ) {
+          read.add( row.getData()[ 0 ] );
+        }
+      }
+    }
+    return read;
+  }
+
+  private String writeParquet( String name, List<ParquetOutputField> fields, RowMeta rowMeta, List<?> values )
+    throws Exception {
+    String file = new File( folder.getRoot(), name ).toURI().toString();
+    PentahoApacheOutputFormat outputFormat = new PentahoApacheOutputFormat();
+    outputFormat.setOutputFile( file, true );
+    outputFormat.setFields( fields );
+    write( outputFormat.createRecordWriter(), rowMeta, values );
+    return file;
+  }
+
+  private List<Object> roundTripOrc( OrcSpec.DataType type, int precision, int scale, List<?> values )
+    throws Exception {
+    String file = new File( folder.getRoot(), "value.orc" ).toURI().toString();
+    OrcOutputField field = new OrcOutputField();
+    field.setFormatFieldName( "value" );
+    field.setPentahoFieldName( "value" );
+    field.setFormatType( type );
+    field.setAllowNull( true );
+    if ( precision > 0 ) {
+      field.setPrecision( String.valueOf( precision ) );
+      field.setScale( String.valueOf( scale ) );
+    }
+    PentahoOrcOutputFormat outputFormat = new PentahoOrcOutputFormat();
+    outputFormat.setOutputFile( file, true );
+    outputFormat.setFields( Collections.singletonList( field ) );
+    write( outputFormat.createRecordWriter(), rowMeta( type.getPdiType() ), values );
+
+    PentahoOrcInputFormat inputFormat = new PentahoOrcInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( file );
+    inputFormat.setSchema( inputFormat.readSchema() );
+    List<Object> read = new ArrayList<>();
+    try ( IPentahoRecordReader reader = inputFormat.createRecordReader( null ) ) {
+      for ( RowMetaAndData row : reader ) {
+        read.add( row.getData()[ 0 ] );
+      }
+    }
+    return read;
+  }
+
+  private static void write( IPentahoRecordWriter writer, RowMeta rowMeta, List<?> values ) throws Exception {
+    try {
+      for ( Object value : values ) {
+        Object[] row = new Object[ rowMeta.size() ];
+        Arrays.fill( row, value );
+        writer.write( new RowMetaAndData( rowMeta, row ) );
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static ParquetOutputField parquetField( String name, ParquetSpec.DataType type, int precision,
+                                                  int scale ) {
+    ParquetOutputField field = new ParquetOutputField();
+    field.setFormatFieldName( name );
+    field.setPentahoFieldName( name );
+    field.setFormatType( type );
+    field.setAllowNull( true );
+    field.setPrecision( String.valueOf( precision ) );
+    field.setScale( String.valueOf( scale ) );
+    return field;
+  }
+
+  private static RowMeta rowMeta( int pdiType ) {
+    if ( pdiType == ValueMetaInterface.TYPE_BIGNUMBER ) {
+      RowMeta rowMeta = new RowMeta();
+      rowMeta.addValueMeta( new ValueMetaBigNumber( "value" ) );
+      return rowMeta;
+    }
+    return timestampRowMeta( "value" );
+  }
+
+  private static RowMeta timestampRowMeta( String... names ) {
+    RowMeta rowMeta = new RowMeta();
+    for ( String name : names ) {
+      rowMeta.addValueMeta( new ValueMetaTimestamp( name ) );
+    }
+    return rowMeta;
+  }
+
+  private static List<BigDecimal> roundTripAvro( int precision, int scale, List<BigDecimal> values )
+    throws KettleValueException {
+    Schema schema = LogicalTypes.decimal( precision, scale ).addToSchema( Schema.create( Schema.Type.BYTES ) );
+    ValueMetaInterface valueMeta = new ValueMetaBigNumber( "value" );
+    List<BigDecimal> read = new ArrayList<>();
+    for ( BigDecimal value : values ) {
+      Object datum = AvroConverter.toAvro( AvroSpec.DataType.DECIMAL, schema, valueMeta, value );
+      read.add( (BigDecimal) AvroConverter.toPentaho( AvroSpec.DataType.DECIMAL, schema, datum ) );
+    }
+    return read;
+  }
+
+  private static List<BigDecimal> decimals( String... values ) {
+    List<BigDecimal> decimals = new ArrayList<>();
+    for ( String value : values ) {
+      decimals.add( new BigDecimal( value ) );
+    }
+    return decimals;
+  }
+
+  private static void assertDecimalRejected( String value, int precision, int scale ) {
+    try {
+      PreciseValues.toDecimal( new BigDecimal( value ), precision, scale, "f" );
+      fail( value + " should not fit into decimal(" + precision + "," + scale + ")" );
+    } catch ( IllegalArgumentException expected ) {
+      // expected
+    }
+  }
+}
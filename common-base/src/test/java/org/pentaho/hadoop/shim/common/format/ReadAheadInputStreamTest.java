@@ -0,0 +1,471 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcConf;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
+import org.pentaho.hadoop.shim.api.format.ReadAheadOptions;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ReadAheadInputStreamTest {
+
+  private static final String PARQUET_SCHEMA = "message test { required int64 id; required binary name (UTF8); }";
+  private static final String ORC_SCHEMA = "struct<id:bigint,name:string>";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    KettleLogStore.init();
+    conf = new Configuration();
+    conf.set( "fs.file.impl", LatencyFileSystem.class.getName() );
+    conf.setBoolean( "fs.file.impl.disable.cache", true );
+    LatencyFileSystem.READS.set( 0 );
+    LatencyFileSystem.latencyMillis = 0;
+  }
+
+  @Test
+  public void randomReadsReturnFileContent() throws Exception {
+    byte[] content = randomContent( 300_000 );
+    File file = write( content );
+    Random random = new Random( 7 );
+    try ( ReadAheadInputStream in = open( file, options( 4096, 4, 8 ) ) ) {
+      for ( int i = 0; i < 2000; i++ ) {
+        int position = random.nextInt( content.length + 100 );
+        int size = 1 + random.nextInt( 40_000 );
+        byte[] buffer = new byte[ size ];
+        int read = in.read( position, buffer, 0, size );
+        if ( position >= content.length ) {
+          assertEquals( -1, read );
+        } else {
+          assertEquals( Math.min( size, content.length - position ), read );
+          assertArrayEquals( Arrays.copyOfRange( content, position, position + read ),
+            Arrays.copyOf( buffer, read ) );
+        }
+      }
+
+      in.seek( 0 );
+      byte[] sequential = new byte[ content.length ];
+      int total = 0;
+      int read;
+      while ( ( read = in.read( sequential, total, Math.min( 1000, content.length - total ) ) ) > 0 ) {
+        total += read;
+      }
+      assertEquals( content.length, total );
+      assertArrayEquals( content, sequential );
+      assertEquals( -1, in.read() );
+    }
+  }
+
+  @Test
+  public void adjacentSmallReadsAreCoalesced() throws Exception {
+    File file = write( randomContent( 100_000 ) );
+    try ( ReadAheadInputStream in = open( file, options( 4096, 4, 8 ) ) ) {
+      byte[] buffer = new byte[ 100 ];
+      for ( int i = 0; i < 100; i++ ) {
+        in.readFully( i * 100L, buffer, 0, buffer.length );
+      }
+      assertEquals( 1, in.getRemoteReads() );
+      assertEquals( 4 * 4096, in.getRemoteBytes() );
+      assertEquals( 1, LatencyFileSystem.READS.get() );
+    }
+  }
+
+  @Test
+  public void footerAndIndexReadsAreServedByOneRequest() throws Exception {
+    int length = 100_000;
+    File file = write( randomContent( length ) );
+    try ( ReadAheadInputStream in = open( file, options( 4096, 4, 8 ) ) ) {
+      byte[] buffer = new byte[ 2000 ];
+      in.readFully( length - 8, buffer, 0, 8 );
+      in.readFully( length - 2008, buffer, 0, 2000 );
+      in.readFully( length - 12_000, buffer, 0, 4 );
+      assertEquals( 1, in.getRemoteReads() );
+      assertEquals( 3, in.getCacheHits() );
+    }
+  }
+
+  @Test
+  public void largeReadsBypassTheCache() throws Exception {
+    File file = write( randomContent( 100_000 ) );
+    try ( ReadAheadInputStream in = open( file, options( 4096, 4, 8 ) ) ) {
+      byte[] buffer = new byte[ 20_000 ];
+      in.readFully( 0, buffer, 0, buffer.length );
+      in.readFully( 0, buffer, 0, buffer.length );
+      in.readFully( 100, buffer, 0, 10 );
+      assertEquals( 3, in.getRemoteReads() );
+      assertEquals( 0, in.getCacheHits() );
+    }
+  }
+
+  @Test
+  public void leastRecentlyUsedBlockIsEvicted() throws Exception {
+    File file = write( randomContent( 10_000 ) );
+    try ( ReadAheadInputStream in = open( file, options( 1000, 1, 2 ) ) ) {
+      for ( long position : new long[] { 0, 1000, 0, 2000, 1000 } ) {
+        in.seek( position );
+        in.read();
+      }
+      assertEquals( 4, in.getRemoteReads() );
+      assertEquals( 1, in.getCacheHits() );
+    }
+  }
+
+  @Test
+  public void parquetReadUsesFewerRequests() throws Exception {
+    File file = folder.newFile( "data.parquet" );
+    file.delete();
+    writeParquet( file, 20_000 );
+    LatencyFileSystem.latencyMillis = 1;
+
+    int rowGroups = readParquet( file, conf );
+    int direct = LatencyFileSystem.READS.getAndSet( 0 );
+    assertTrue( "expected several row groups but got " + rowGroups, rowGroups >= 8 );
+
+    readParquet( file, readAheadConf( file ) );
+    int buffered = LatencyFileSystem.READS.get();
+    assertTrue( "read ahead needed " + buffered + " reads, direct access " + direct, buffered * 2 <= direct );
+  }
+
+  @Test
+  public void orcReadUsesFewerRequests() throws Exception {
+    File file = folder.newFile( "data.orc" );
+    file.delete();
+    writeOrc( file, 50_000 );
+    LatencyFileSystem.latencyMillis = 1;
+
+    int stripes = readOrc( file, conf );
+    int direct = LatencyFileSystem.READS.getAndSet( 0 );
+    assertTrue( "expected several stripes but got " + stripes, stripes >= 4 );
+
+    readOrc( file, readAheadConf( file ) );
+    int buffered = LatencyFileSystem.READS.get();
+    assertTrue( "read ahead needed " + buffered + " reads, direct access " + direct, buffered * 2 <= direct );
+  }
+
+  @Test
+  public void fileSystemIsWrappedOnlyForReadingWhileEnabled() throws Exception {
+    Configuration plain = new Configuration();
+    File file = write( randomContent( 10 ) );
+    String uri = file.toURI().toString();
+    ReadAheadFileSystem.addFile( plain, uri );
+    assertSame( plain, ReadAheadFileSystem.forReading( plain ) );
+
+    ReadAheadFileSystem.setOptions( plain, options( 1024, 2, 4 ) );
+    // the shared configuration keeps handing out the cached file system
+    assertSame( FileSystem.get( file.toURI(), new Configuration() ), FileSystem.get( file.toURI(), plain ) );
+    Configuration readConf = ReadAheadFileSystem.forReading( plain );
+    FileSystem fs = FileSystem.get( file.toURI(), readConf );
+    assertTrue( fs instanceof ReadAheadFileSystem );
+    assertEquals( 1024, ( (ReadAheadFileSystem) fs ).getOptions().getBlockSize() );
+    try ( FSDataInputStream in = fs.open( new Path( file.toURI() ) ) ) {
+      assertTrue( in.getWrappedStream() instanceof ReadAheadInputStream );
+    }
+    fs.close();
+    assertTrue( FileSystem.get( file.toURI(), plain ).exists( new Path( file.toURI() ) ) );
+
+    ReadAheadFileSystem.setOptions( plain, null );
+    assertSame( plain, ReadAheadFileSystem.forReading( plain ) );
+  }
+
+  @Test
+  public void fileSystemsOfAReaderAreClosedWithIt() throws Exception {
+    Configuration plain = new Configuration();
+    File file = write( randomContent( 10 ) );
+    ReadAheadFileSystem.addFile( plain, file.toURI().toString() );
+    ReadAheadFileSystem.setOptions( plain, options( 1024, 2, 4 ) );
+
+    AtomicReference<String> reader = new AtomicReference<>();
+    IPentahoInputFormat.IPentahoRecordReader recordReader = ReadAheadFileSystem.openReader( plain, readConf -> {
+      assertTrue( FileSystem.get( file.toURI(), readConf ) instanceof ReadAheadFileSystem );
+      reader.set( readConf.get( ReadAheadFileSystem.READER ) );
+      return mock( IPentahoInputFormat.IPentahoRecordReader.class );
+    } );
+    assertEquals( 1, ReadAheadFileSystem.READER_FILE_SYSTEMS.get( reader.get() ).size() );
+
+    recordReader.close();
+    assertFalse( ReadAheadFileSystem.READER_FILE_SYSTEMS.containsKey( reader.get() ) );
+  }
+
+  @Test
+  public void fileSystemsAreClosedWhenTheReaderCannotBeCreated() throws Exception {
+    Configuration plain = new Configuration();
+    File file = write( randomContent( 10 ) );
+    ReadAheadFileSystem.addFile( plain, file.toURI().toString() );
+    ReadAheadFileSystem.setOptions( plain, options( 1024, 2, 4 ) );
+
+    AtomicReference<String> reader = new AtomicReference<>();
+    try {
+      ReadAheadFileSystem.openReader( plain, readConf -> {
+        FileSystem.get( file.toURI(), readConf );
+        reader.set( readConf.get( ReadAheadFileSystem.READER ) );
+        throw new IOException( "unreadable" );
+      } );
+      fail( "Expected the reader creation to fail" );
+    } catch ( IOException e ) {
+      assertEquals( "unreadable", e.getMessage() );
+    }
+    assertFalse( ReadAheadFileSystem.READER_FILE_SYSTEMS.containsKey( reader.get() ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void readAheadMustFitInOneArray() {
+    options( Integer.MAX_VALUE / 4, 4, 8 );
+  }
+
+  @Test
+  public void inputFormatReadsSameRowsWithReadAhead() throws Exception {
+    File file = folder.newFile( "rows.parquet" );
+    file.delete();
+    writeParquet( file, 5000 );
+    String uri = file.toURI().toString();
+
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setReadAhead( options( 4096, 4, 8 ) );
+    inputFormat.setInputFile( uri );
+    List<IParquetInputField> schema = inputFormat.readSchema( uri );
+    inputFormat.setSchema( schema );
+
+    long count = 0;
+    long sum = 0;
+    for ( IPentahoInputFormat.IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoInputFormat.IPentahoRecordReader reader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : reader ) {
+          count++;
+          sum += row.getInteger( "id", -1 );
+        }
+      }
+    }
+    assertEquals( 5000, count );
+    assertEquals( 4999L * 5000 / 2, sum );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void cacheMustHoldMoreThanOneReadAhead() {
+    options( 1024, 8, 8 );
+  }
+
+  private static ReadAheadOptions options( int blockSize, int readAheadBlocks, int cacheBlocks ) {
+    return ReadAheadOptions.builder().blockSize( blockSize ).readAheadBlocks( readAheadBlocks )
+      .cacheBlocks( cacheBlocks ).build();
+  }
+
+  private ReadAheadInputStream open( File file, ReadAheadOptions options ) throws IOException {
+    Path path = new Path( file.toURI() );
+    FSDataInputStream in = FileSystem.get( path.toUri(), conf ).open( path );
+    return new ReadAheadInputStream( in, file.length(), options );
+  }
+
+  private Configuration readAheadConf( File file ) throws IOException {
+    Configuration readAhead = new Configuration( conf );
+    ReadAheadFileSystem.addFile( readAhead, file.toURI().toString() );
+    ReadAheadFileSystem.setOptions( readAhead, ReadAheadOptions.builder().build() );
+    return ReadAheadFileSystem.forReading( readAhead );
+  }
+
+  private File write( byte[] content ) throws IOException {
+    File file = folder.newFile();
+    Files.write( file.toPath(), content );
+    return file;
+  }
+
+  private static byte[] randomContent( int length ) {
+    byte[] content = new byte[ length ];
+    new Random( length ).nextBytes( content );
+    return content;
+  }
+
+  private static void writeParquet( File file, int rows ) throws IOException {
+    MessageType schema = MessageTypeParser.parseMessageType( PARQUET_SCHEMA );
+    SimpleGroupFactory groups = new SimpleGroupFactory( schema );
+    try ( ParquetWriter<Group> writer = ExampleParquetWriter.builder( new Path( file.toURI() ) )
+      .withConf( new Configuration() ).withType( schema ).withRowGroupSize( 16 * 1024L ).withPageSize( 2 * 1024 )
+      .build() ) {
+      for ( int i = 0; i < rows; i++ ) {
+        writer.write( groups.newGroup().append( "id", (long) i ).append( "name", "name-" + i ) );
+      }
+    }
+  }
+
+  private static int readParquet( File file, Configuration conf ) throws IOException {
+    long rows = 0;
+    int rowGroups = 0;
+    try ( ParquetFileReader reader = ParquetFileReader.open( HadoopInputFile.fromPath( new Path( file.toURI() ),
+      conf ) ) ) {
+      PageReadStore rowGroup;
+      while ( ( rowGroup = reader.readNextRowGroup() ) != null ) {
+        rows += rowGroup.getRowCount();
+        rowGroups++;
+      }
+    }
+    assertEquals( 20_000, rows );
+    return rowGroups;
+  }
+
+  private static void writeOrc( File file, int rows ) throws IOException {
+    Configuration writeConf = new Configuration();
+    OrcConf.ROWS_BETWEEN_CHECKS.setLong( writeConf, 1000 );
+    Writer writer = OrcFile.createWriter( new Path( file.toURI() ), OrcFile.writerOptions( writeConf )
+      .setSchema( TypeDescription.fromString( ORC_SCHEMA ) ).stripeSize( 64 * 1024 ).bufferSize( 4 * 1024 ) );
+    VectorizedRowBatch batch = writer.getSchema().createRowBatch();
+    LongColumnVector ids = (LongColumnVector) batch.cols[ 0 ];
+    BytesColumnVector names = (BytesColumnVector) batch.cols[ 1 ];
+    for ( int i = 0; i < rows; i++ ) {
+      int row = batch.size++;
+      ids.vector[ row ] = i;
+      names.setVal( row, ( "name-" + i ).getBytes( StandardCharsets.UTF_8 ) );
+      if ( batch.size == batch.getMaxSize() ) {
+        writer.addRowBatch( batch );
+        batch.reset();
+      }
+    }
+    if ( batch.size > 0 ) {
+      writer.addRowBatch( batch );
+    }
+    writer.close();
+  }
+
+  private static int readOrc( File file, Configuration conf ) throws IOException {
+    long rows = 0;
+    try ( Reader reader = OrcFile.createReader( new Path( file.toURI() ), OrcFile.readerOptions( conf ) );
+          RecordReader records = reader.rows() ) {
+      VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+      while ( records.nextBatch( batch ) ) {
+        rows += batch.size;
+      }
+      assertEquals( 50_000, rows );
+      return reader.getStripes().size();
+    }
+  }
+
+  /**
+   * Local file system which counts every read of an opened file and delays it like a remote request.
+   */
+  public static class LatencyFileSystem extends RawLocalFileSystem {
+    static final AtomicInteger READS = new AtomicInteger();
+    static volatile long latencyMillis;
+
+    @Override
+    public FSDataInputStream open( Path path, int bufferSize ) throws IOException {
+      return new FSDataInputStream( new LatencyInputStream( super.open( path, bufferSize ) ) );
+    }
+  }
+
+  private static class LatencyInputStream extends FSInputStream {
+    private final FSDataInputStream in;
+
+    LatencyInputStream( FSDataInputStream in ) {
+      this.in = in;
+    }
+
+    @Override
+    public int read( long position, byte[] buffer, int offset, int length ) throws IOException {
+      request();
+      return in.read( position, buffer, offset, length );
+    }
+
+    @Override
+    public int read( byte[] buffer, int offset, int length ) throws IOException {
+      request();
+      return in.read( buffer, offset, length );
+    }
+
+    @Override
+    public int read() throws IOException {
+      request();
+      return in.read();
+    }
+
+    @Override
+    public void seek( long position ) throws IOException {
+      in.seek( position );
+    }
+
+    @Override
+    public long getPos() throws IOException {
+      return in.getPos();
+    }
+
+    @Override
+    public boolean seekToNewSource( long targetPos ) {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+    private static void request() throws IOException {
+      LatencyFileSystem.READS.incrementAndGet();
+      try {
+        Thread.sleep( LatencyFileSystem.latencyMillis );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new IOException( e );
+      }
+    }
+  }
+}
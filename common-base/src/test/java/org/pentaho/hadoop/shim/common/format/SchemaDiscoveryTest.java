@@ -0,0 +1,329 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.DiscoveredSchema;
+import org.pentaho.hadoop.shim.api.format.SchemaConflict;
+import org.pentaho.hadoop.shim.api.format.SchemaDescription;
+import org.pentaho.hadoop.shim.api.format.SchemaDiscoveryOptions;
+import org.pentaho.hadoop.shim.api.format.SchemaDiscoveryOptions.MergeRule;
+import org.pentaho.hadoop.shim.common.format.orc.OrcInputField;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcInputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class SchemaDiscoveryTest {
+
+  private static final String ID_NAME = "message m { optional int64 id; optional binary name (UTF8); }";
+  private static final String ID_NAME_EXTRA =
+    "message m { optional double id; optional binary name (UTF8); optional int32 extra; }";
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final Configuration conf = new Configuration();
+  private PentahoApacheInputFormat parquetInputFormat;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    parquetInputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+  }
+
+  @Test
+  public void unionKeepsAddedColumnsAndWidensTypes() throws Exception {
+    File dir = tempFolder.newFolder( "union" );
+    writeParquet( new File( dir, "a.parquet" ), ID_NAME );
+    writeParquet( new File( dir, "b.parquet" ), ID_NAME_EXTRA );
+
+    DiscoveredSchema discovered = discoverParquet( dir, MergeRule.UNION );
+
+    assertEquals( Arrays.asList( "id", "name", "extra" ), names( discovered.getSchema() ) );
+    assertEquals( ValueMetaInterface.TYPE_NUMBER, type( discovered, "id" ) );
+    assertEquals( ValueMetaInterface.TYPE_STRING, type( discovered, "name" ) );
+    assertEquals( ValueMetaInterface.TYPE_INTEGER, type( discovered, "extra" ) );
+    assertTrue( discovered.getSchema().getFormatField( "extra" ).allowNull );
+    assertEquals( 2, discovered.getFiles().size() );
+
+    assertEquals( 2, discovered.getConflicts().size() );
+    SchemaConflict widened = conflict( discovered, "id" );
+    assertEquals( SchemaConflict.Kind.WIDENED_TYPE, widened.getKind() );
+    assertEquals( ValueMetaInterface.TYPE_INTEGER, widened.getExpectedType() );
+    assertEquals( ValueMetaInterface.TYPE_NUMBER, widened.getActualType() );
+    assertEquals( Collections.singletonList( uri( dir, "b.parquet" ) ), widened.getFiles() );
+    SchemaConflict missing = conflict( discovered, "extra" );
+    assertEquals( SchemaConflict.Kind.MISSING_FIELD, missing.getKind() );
+    assertEquals( Collections.singletonList( uri( dir, "a.parquet" ) ), missing.getFiles() );
+    assertTrue( discovered.isConsistent() );
+  }
+
+  @Test
+  public void intersectionDropsColumnsMissingFromSomeFiles() throws Exception {
+    File dir = tempFolder.newFolder( "intersection" );
+    writeParquet( new File( dir, "a.parquet" ), ID_NAME );
+    writeParquet( new File( dir, "b.parquet" ), ID_NAME_EXTRA );
+
+    DiscoveredSchema discovered = discoverParquet( dir, MergeRule.INTERSECTION );
+
+    assertEquals( Arrays.asList( "id", "name" ), names( discovered.getSchema() ) );
+    assertEquals( ValueMetaInterface.TYPE_NUMBER, type( discovered, "id" ) );
+    assertTrue( conflict( discovered, "extra" ).isResolved() );
+    assertTrue( discovered.isConsistent() );
+  }
+
+  @Test
+  public void strictKeepsFirstSchemaAndReportsEveryDifference() throws Exception {
+    File dir = tempFolder.newFolder( "strict" );
+    writeParquet( new File( dir, "a.parquet" ), ID_NAME );
+    writeParquet( new File( dir, "b.parquet" ), ID_NAME_EXTRA );
+
+    DiscoveredSchema discovered = discoverParquet( dir, MergeRule.STRICT );
+
+    assertEquals( Arrays.asList( "id", "name" ), names( discovered.getSchema() ) );
+    assertEquals( ValueMetaInterface.TYPE_INTEGER, type( discovered, "id" ) );
+    assertEquals( 2, discovered.getConflicts().size() );
+    assertFalse( conflict( discovered, "id" ).isResolved() );
+    assertFalse( conflict( discovered, "extra" ).isResolved() );
+    assertFalse( discovered.isConsistent() );
+  }
+
+  @Test
+  public void identicalSchemasPassStrictMerge() throws Exception {
+    File dir = tempFolder.newFolder( "identical" );
+    writeParquet( new File( dir, "a.parquet" ), ID_NAME );
+    writeParquet( new File( dir, "b.parquet" ), ID_NAME );
+
+    DiscoveredSchema discovered = discoverParquet( dir, MergeRule.STRICT );
+
+    assertEquals( Arrays.asList( "id", "name" ), names( discovered.getSchema() ) );
+    assertTrue( discovered.getConflicts().isEmpty() );
+    assertTrue( discovered.isConsistent() );
+  }
+
+  @Test
+  public void incompatibleTypesAreReadAsString() throws Exception {
+    File dir = tempFolder.newFolder( "incompatible" );
+    writeParquet( new File( dir, "a.parquet" ), ID_NAME );
+    writeParquet( new File( dir, "b.parquet" ), "message m { optional int64 id; optional boolean name; }" );
+
+    DiscoveredSchema discovered = discoverParquet( dir, MergeRule.UNION );
+
+    assertEquals( ValueMetaInterface.TYPE_INTEGER, type( discovered, "id" ) );
+    assertEquals( ValueMetaInterface.TYPE_STRING, type( discovered, "name" ) );
+    SchemaConflict conflict = conflict( discovered, "name" );
+    assertEquals( SchemaConflict.Kind.INCOMPATIBLE_TYPE, conflict.getKind() );
+    assertEquals( ValueMetaInterface.TYPE_STRING, conflict.getExpectedType() );
+    assertEquals( ValueMetaInterface.TYPE_BOOLEAN, conflict.getActualType() );
+    assertFalse( conflict.isResolved() );
+    assertFalse( discovered.isConsistent() );
+  }
+
+  @Test
+  public void nestedDirectoriesAreSearchedAndHiddenFilesSkipped() throws Exception {
+    File dir = tempFolder.newFolder( "nested" );
+    writeParquet( new File( dir, "dt=2024-01-01/part-0.parquet" ), ID_NAME );
+    writeParquet( new File( dir, "dt=2024-01-02/part-0.parquet" ), ID_NAME_EXTRA );
+    writeParquet( new File( dir, "_temporary/part-0.parquet" ), "message m { optional boolean hidden; }" );
+    Files.write( new File( dir, "_SUCCESS" ).toPath(), new byte[ 0 ] );
+    Files.write( new File( dir, ".part-1.parquet.crc" ).toPath(), new byte[] { 1, 2, 3 } );
+
+    DiscoveredSchema discovered = discoverParquet( dir, MergeRule.UNION );
+
+    assertEquals( Arrays.asList( uri( dir, "dt=2024-01-01/part-0.parquet" ),
+      uri( dir, "dt=2024-01-02/part-0.parquet" ) ), discovered.getFiles() );
+    assertNull( discovered.getSchema().getFormatField( "hidden" ) );
+    assertTrue( discovered.isConsistent() );
+  }
+
+  @Test
+  public void unreadableFilesAreReportedAndLeftOut() throws Exception {
+    File dir = tempFolder.newFolder( "unreadable" );
+    writeParquet( new File( dir, "a.parquet" ), ID_NAME );
+    Files.write( new File( dir, "b.parquet" ).toPath(), "not parquet".getBytes( StandardCharsets.UTF_8 ) );
+
+    DiscoveredSchema discovered = discoverParquet( dir, MergeRule.UNION );
+
+    assertEquals( Arrays.asList( "id", "name" ), names( discovered.getSchema() ) );
+    assertEquals( 1, discovered.getConflicts().size() );
+    SchemaConflict conflict = discovered.getConflicts().get( 0 );
+    assertEquals( SchemaConflict.Kind.UNREADABLE_FILE, conflict.getKind() );
+    assertEquals( Collections.singletonList( uri( dir, "b.parquet" ) ), conflict.getFiles() );
+    assertFalse( discovered.isConsistent() );
+  }
+
+  @Test
+  public void orcFilesAreMerged() throws Exception {
+    File dir = tempFolder.newFolder( "orc" );
+    writeOrc( new File( dir, "a.orc" ), "struct<id:int,name:string>" );
+    writeOrc( new File( dir, "b.orc" ), "struct<id:bigint,name:string,amount:decimal(10,2)>" );
+    Files.write( new File( dir, "notes.txt" ).toPath(), "not orc".getBytes( StandardCharsets.UTF_8 ) );
+
+    DiscoveredSchema discovered = new PentahoOrcInputFormat( mock( NamedCluster.class ) )
+      .discoverSchema( dir.toURI().toString(), SchemaDiscoveryOptions.builder().build() );
+
+    assertEquals( 2, discovered.getFiles().size() );
+    assertEquals( Arrays.asList( "id", "name", "amount" ), names( discovered.getSchema() ) );
+    assertEquals( ValueMetaInterface.TYPE_INTEGER, type( discovered, "id" ) );
+    assertEquals( ValueMetaInterface.TYPE_BIGNUMBER, type( discovered, "amount" ) );
+    assertEquals( SchemaConflict.Kind.MISSING_FIELD, conflict( discovered, "amount" ).getKind() );
+  }
+
+  @Test
+  public void samplePicksFilesSpreadOverTheDirectory() {
+    List<FileStatus> files = new ArrayList<>();
+    for ( int i = 0; i < 10; i++ ) {
+      files.add( new FileStatus( 1, false, 1, 1, 0, new Path( "/data/part-" + i ) ) );
+    }
+
+    assertEquals( Arrays.asList( "part-0", "part-4", "part-9" ), fileNames( SchemaDiscovery.sample( files, 3 ) ) );
+    assertEquals( Arrays.asList( "part-0", "part-9" ), fileNames( SchemaDiscovery.sample( files, 2 ) ) );
+    assertEquals( Collections.singletonList( "part-0" ), fileNames( SchemaDiscovery.sample( files, 1 ) ) );
+    assertEquals( 10, SchemaDiscovery.sample( files, 0 ).size() );
+    assertEquals( 10, SchemaDiscovery.sample( files, 20 ).size() );
+  }
+
+  @Test
+  public void readsAreBoundedByParallelism() throws Exception {
+    File dir = tempFolder.newFolder( "parallel" );
+    for ( int i = 0; i < 12; i++ ) {
+      Files.write( new File( dir, "part-" + i ).toPath(), new byte[ 0 ] );
+    }
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger reads = new AtomicInteger();
+    SchemaDiscovery discovery = new SchemaDiscovery( FileSystem.getLocal( conf ), path -> true, file -> {
+      maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+      try {
+        Thread.sleep( 20 );
+        reads.incrementAndGet();
+        return Collections.singletonList( field( "id", ValueMetaInterface.TYPE_INTEGER ) );
+      } finally {
+        running.decrementAndGet();
+      }
+    } );
+
+    DiscoveredSchema discovered = discovery.discover( new Path( dir.toURI() ),
+      SchemaDiscoveryOptions.builder().parallelism( 3 ).maxFiles( 8 ).build() );
+
+    assertEquals( 8, reads.get() );
+    assertEquals( 8, discovered.getFiles().size() );
+    assertTrue( "at most 3 reads expected at a time but were " + maxRunning.get(), maxRunning.get() <= 3 );
+  }
+
+  @Test
+  public void widenFollowsNumericAndDateOrder() {
+    assertEquals( ValueMetaInterface.TYPE_NUMBER,
+      SchemaDiscovery.widen( ValueMetaInterface.TYPE_INTEGER, ValueMetaInterface.TYPE_NUMBER ) );
+    assertEquals( ValueMetaInterface.TYPE_BIGNUMBER,
+      SchemaDiscovery.widen( ValueMetaInterface.TYPE_BIGNUMBER, ValueMetaInterface.TYPE_INTEGER ) );
+    assertEquals( ValueMetaInterface.TYPE_TIMESTAMP,
+      SchemaDiscovery.widen( ValueMetaInterface.TYPE_DATE, ValueMetaInterface.TYPE_TIMESTAMP ) );
+    assertEquals( ValueMetaInterface.TYPE_NONE,
+      SchemaDiscovery.widen( ValueMetaInterface.TYPE_STRING, ValueMetaInterface.TYPE_INTEGER ) );
+    assertEquals( ValueMetaInterface.TYPE_NONE,
+      SchemaDiscovery.widen( ValueMetaInterface.TYPE_BOOLEAN, ValueMetaInterface.TYPE_DATE ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void negativeSampleSizeIsRejected() {
+    SchemaDiscoveryOptions.builder().maxFiles( -1 );
+  }
+
+  private DiscoveredSchema discoverParquet( File dir, MergeRule rule ) throws Exception {
+    return parquetInputFormat.discoverSchema( dir.toURI().toString(),
+      SchemaDiscoveryOptions.builder().mergeRule( rule ).build() );
+  }
+
+  private void writeParquet( File file, String schema ) throws Exception {
+    file.getParentFile().mkdirs();
+    try ( ParquetWriter<Group> writer = ExampleParquetWriter.builder( new Path( file.toURI() ) )
+      .withConf( conf ).withType( MessageTypeParser.parseMessageType( schema ) ).build() ) {
+      // the footer is all schema discovery needs
+    }
+  }
+
+  private void writeOrc( File file, String schema ) throws Exception {
+    Writer writer = OrcFile.createWriter( new Path( file.toURI() ),
+      OrcFile.writerOptions( conf ).setSchema( TypeDescription.fromString( schema ) ) );
+    writer.close();
+  }
+
+  private static OrcInputField field( String name, int pentahoType ) {
+    OrcInputField field = new OrcInputField();
+    field.setFormatFieldName( name );
+    field.setPentahoFieldName( name );
+    field.setPentahoType( pentahoType );
+    return field;
+  }
+
+  private static String uri( File dir, String relativePath ) {
+    return new Path( new File( dir, relativePath ).toURI() ).toString();
+  }
+
+  private static int type( DiscoveredSchema discovered, String name ) {
+    return discovered.getSchema().getFormatField( name ).pentahoValueMetaType;
+  }
+
+  private static SchemaConflict conflict( DiscoveredSchema discovered, String name ) {
+    List<SchemaConflict> conflicts = discovered.getConflicts().stream()
+      .filter( conflict -> name.equals( conflict.getFieldName() ) )
+      .collect( Collectors.toList() );
+    assertEquals( "conflicts of " + name, 1, conflicts.size() );
+    return conflicts.get( 0 );
+  }
+
+  private static List<String> names( SchemaDescription schema ) {
+    List<String> names = new ArrayList<>();
+    for ( SchemaDescription.Field field : schema ) {
+      names.add( field.formatFieldName );
+    }
+    return names;
+  }
+
+  private static List<String> fileNames( List<FileStatus> files ) {
+    return files.stream().map( file -> file.getPath().getName() ).collect( Collectors.toList() );
+  }
+}
@@ -0,0 +1,446 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.avro;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaPluginType;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.AvroSpec.DataType;
+import org.pentaho.hadoop.shim.api.format.IAvroInputField;
+import org.pentaho.hadoop.shim.api.format.IFormatStatistics;
+import org.pentaho.hadoop.shim.api.format.IPentahoAvroOutputFormat.COMPRESSION;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class PentahoAvroReadWriteTest {
+
+  private static final Date DATE =
+    Date.from( LocalDate.of( 2024, 2, 29 ).atStartOfDay( ZoneId.systemDefault() ).toInstant() );
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    KettleLogStore.init();
+    PluginRegistry.addPluginType( ValueMetaPluginType.getInstance() );
+    PluginRegistry.init( true );
+  }
+
+  @Test
+  public void roundTripsAllWritableTypes() throws Exception {
+    String file = write( "types.avro", COMPRESSION.UNCOMPRESSED, 0, allTypesRow( 1 ), allTypesNullRow() );
+
+    List<RowMetaAndData> rows = readAll( file, 0 );
+    assertEquals( 2, rows.size() );
+
+    RowMetaAndData row = rows.get( 0 );
+    assertEquals( Boolean.TRUE, row.getData()[ 0 ] );
+    assertEquals( 1L, row.getData()[ 1 ] );
+    assertEquals( 5000000000L, row.getData()[ 2 ] );
+    assertEquals( 1.5d, row.getData()[ 3 ] );
+    assertEquals( 2.25d, row.getData()[ 4 ] );
+    assertArrayEquals( new byte[] { 1, 2, 3 }, (byte[]) row.getData()[ 5 ] );
+    assertEquals( "text1", row.getData()[ 6 ] );
+    assertEquals( new BigDecimal( "12345.67" ), row.getData()[ 7 ] );
+    assertEquals( DATE, row.getData()[ 8 ] );
+    assertEquals( timestampMillis(), row.getData()[ 9 ] );
+    assertEquals( timestampMicros(), row.getData()[ 10 ] );
+    assertEquals( 123456000, ( (Timestamp) row.getData()[ 10 ] ).getNanos() );
+
+    for ( Object value : rows.get( 1 ).getData() ) {
+      assertNull( value );
+    }
+  }
+
+  @Test
+  public void writesLogicalTypes() throws Exception {
+    String file = write( "logical.avro", COMPRESSION.UNCOMPRESSED, 0 );
+
+    Schema schema = readFileSchema( file );
+    Schema decimal = AvroSchemaConverter.unwrapNullable( schema.getField( "decimal" ).schema() );
+    assertEquals( Schema.Type.BYTES, decimal.getType() );
+    assertEquals( LogicalTypes.decimal( 10, 2 ), decimal.getLogicalType() );
+    assertEquals( "date", AvroSchemaConverter.unwrapNullable( schema.getField( "date" ).schema() )
+      .getLogicalType().getName() );
+    assertEquals( "timestamp-millis", AvroSchemaConverter.unwrapNullable( schema.getField( "tsMillis" ).schema() )
+      .getLogicalType().getName() );
+    assertEquals( "timestamp-micros", AvroSchemaConverter.unwrapNullable( schema.getField( "tsMicros" ).schema() )
+      .getLogicalType().getName() );
+
+    List<IAvroInputField> fields = createInputFormat( file ).readSchema();
+    IAvroInputField decimalField = fields.get( 7 );
+    assertEquals( DataType.DECIMAL, decimalField.getAvroType() );
+    assertEquals( ValueMetaInterface.TYPE_BIGNUMBER, decimalField.getPentahoType() );
+    assertEquals( 10, decimalField.getPrecision() );
+    assertEquals( 2, decimalField.getScale() );
+    assertEquals( DataType.TIMESTAMP_MICROS, fields.get( 10 ).getAvroType() );
+  }
+
+  @Test
+  public void writesRecordNameAndNamespace() throws Exception {
+    PentahoAvroOutputFormat outputFormat = createOutputFormat( "named.avro", COMPRESSION.UNCOMPRESSED, 0 );
+    outputFormat.setRecordName( "Person" );
+    outputFormat.setNameSpace( "org.example" );
+    outputFormat.createRecordWriter().close();
+
+    Schema schema = readFileSchema( new File( tempFolder.getRoot(), "named.avro" ).toURI().toString() );
+    assertEquals( "org.example.Person", schema.getFullName() );
+  }
+
+  @Test
+  public void roundTripsWithDeflate() throws Exception {
+    assertCodecRoundTrip( COMPRESSION.DEFLATE );
+  }
+
+  @Test
+  public void roundTripsWithSnappy() throws Exception {
+    assumeCodecAvailable( COMPRESSION.SNAPPY );
+    assertCodecRoundTrip( COMPRESSION.SNAPPY );
+  }
+
+  @Test
+  public void roundTripsWithZstandard() throws Exception {
+    assumeCodecAvailable( COMPRESSION.ZSTANDARD );
+    assertCodecRoundTrip( COMPRESSION.ZSTANDARD );
+  }
+
+  @Test
+  public void splitsReadEveryRowExactlyOnce() throws Exception {
+    RowMetaAndData[] rows = new RowMetaAndData[ 2000 ];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = allTypesRow( i );
+    }
+    String file = write( "split.avro", COMPRESSION.DEFLATE, 512, rows );
+
+    PentahoAvroInputFormat inputFormat = createInputFormat( file );
+    inputFormat.setSplitSize( 2048 );
+    List<IPentahoInputSplit> splits = inputFormat.getSplits();
+    assertTrue( "expected several splits but got " + splits.size(), splits.size() > 2 );
+
+    List<Long> ids = new ArrayList<>();
+    for ( RowMetaAndData row : readAll( file, 2048 ) ) {
+      ids.add( (Long) row.getData()[ 1 ] );
+    }
+    assertEquals( rows.length, ids.size() );
+    assertEquals( rows.length, new HashSet<>( ids ).size() );
+  }
+
+  @Test
+  public void statisticsCountTheRowsOfEverySplitOnce() throws Exception {
+    RowMetaAndData[] rows = new RowMetaAndData[ 2000 ];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = allTypesRow( i );
+    }
+    String file = write( "statistics.avro", COMPRESSION.DEFLATE, 512, rows );
+
+    PentahoAvroInputFormat inputFormat = createInputFormat( file );
+    inputFormat.setSplitSize( 2048 );
+    IFormatStatistics statistics = inputFormat.readStatistics();
+    assertEquals( rows.length, statistics.getRowCount() );
+    assertEquals( 1, statistics.getFileCount() );
+
+    long splitRows = 0;
+    for ( IPentahoInputSplit split : inputFormat.getSplits() ) {
+      splitRows += inputFormat.readStatistics( split ).getRowCount();
+    }
+    assertEquals( rows.length, splitRows );
+  }
+
+  @Test
+  public void splitSizeLargerThanFileKeepsOneSplit() throws Exception {
+    String file = write( "single.avro", COMPRESSION.UNCOMPRESSED, 0, allTypesRow( 1 ) );
+
+    PentahoAvroInputFormat inputFormat = createInputFormat( file );
+    inputFormat.setSplitSize( 1024 * 1024 );
+    assertEquals( 1, inputFormat.getSplits().size() );
+  }
+
+  @Test
+  public void readsAllFilesOfDirectory() throws Exception {
+    File directory = tempFolder.newFolder( "dir" );
+    write( "dir/a.avro", COMPRESSION.UNCOMPRESSED, 0, allTypesRow( 1 ), allTypesRow( 2 ) );
+    write( "dir/b.avro", COMPRESSION.DEFLATE, 0, allTypesRow( 3 ) );
+
+    assertEquals( 3, readAll( directory.toURI().toString(), 0 ).size() );
+  }
+
+  @Test
+  public void readsFilesOfOtherWriters() throws Exception {
+    Schema schema = SchemaBuilder.record( "External" ).fields()
+      .name( "color" ).type().enumeration( "Color" ).symbols( "RED", "GREEN" ).noDefault()
+      .name( "tags" ).type().array().items().stringType().noDefault()
+      .name( "choice" ).type().unionOf().intType().and().stringType().endUnion().noDefault()
+      .name( "id" ).type().intType().noDefault()
+      .endRecord();
+    File file = tempFolder.newFile( "external.avro" );
+    try ( DataFileWriter<GenericRecord> writer = new DataFileWriter<>( new GenericDatumWriter<>( schema ) ) ) {
+      writer.create( schema, file );
+      GenericRecord avroRecord = new GenericData.Record( schema );
+      avroRecord.put( "color", new GenericData.EnumSymbol( schema.getField( "color" ).schema(), "GREEN" ) );
+      avroRecord.put( "tags", Arrays.asList( "a", "b" ) );
+      avroRecord.put( "choice", 1 );
+      avroRecord.put( "id", 7 );
+      writer.append( avroRecord );
+    }
+
+    PentahoAvroInputFormat inputFormat = createInputFormat( file.toURI().toString() );
+    List<IAvroInputField> fields = inputFormat.readSchema();
+    assertEquals( 2, fields.size() );
+    assertEquals( DataType.ENUM, fields.get( 0 ).getAvroType() );
+    assertEquals( DataType.INTEGER, fields.get( 1 ).getAvroType() );
+
+    fields.get( 1 ).setPentahoType( ValueMetaInterface.TYPE_STRING );
+    inputFormat.setSchema( fields );
+    List<RowMetaAndData> rows = read( inputFormat );
+    assertEquals( 1, rows.size() );
+    assertEquals( "GREEN", rows.get( 0 ).getData()[ 0 ] );
+    assertEquals( "7", rows.get( 0 ).getData()[ 1 ] );
+  }
+
+  @Test
+  public void nullInNonNullableFieldDiscardsFile() throws Exception {
+    PentahoAvroOutputFormat outputFormat = createOutputFormat( "strict.avro", COMPRESSION.UNCOMPRESSED, 0 );
+    outputFormat.setFields( Arrays.asList( outputField( "string", DataType.STRING, false ) ) );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    writer.write( new RowMetaAndData( rowMeta, "value" ) );
+    try {
+      writer.write( new RowMetaAndData( rowMeta, (Object) null ) );
+      fail( "null written to a non nullable field" );
+    } catch ( IllegalArgumentException expected ) {
+      // expected
+    }
+    writer.close();
+
+    assertFalse( new File( tempFolder.getRoot(), "strict.avro" ).exists() );
+    String[] leftovers = tempFolder.getRoot().list();
+    assertEquals( Arrays.toString( leftovers ), 0, leftovers.length );
+  }
+
+  @Test
+  public void defaultValueReplacesNull() throws Exception {
+    PentahoAvroOutputFormat outputFormat = createOutputFormat( "default.avro", COMPRESSION.UNCOMPRESSED, 0 );
+    AvroOutputField field = outputField( "long", DataType.LONG, false );
+    field.setDefaultValue( "42" );
+    outputFormat.setFields( Arrays.asList( field ) );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "long" ) );
+    writer.write( new RowMetaAndData( rowMeta, (Object) null ) );
+    writer.close();
+
+    List<RowMetaAndData> rows = readAll( new File( tempFolder.getRoot(), "default.avro" ).toURI().toString(), 0 );
+    assertEquals( 42L, rows.get( 0 ).getData()[ 0 ] );
+  }
+
+  private void assertCodecRoundTrip( COMPRESSION compression ) throws Exception {
+    RowMetaAndData[] rows = new RowMetaAndData[ 100 ];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = allTypesRow( i );
+    }
+    String file = write( compression.name() + ".avro", compression, 0, rows );
+
+    try ( DataFileReader<GenericRecord> reader = new DataFileReader<>(
+      new File( tempFolder.getRoot(), compression.name() + ".avro" ), new GenericDatumReader<>() ) ) {
+      assertEquals( compression.getCodecName(), reader.getMetaString( "avro.codec" ) );
+    }
+    List<RowMetaAndData> read = readAll( file, 0 );
+    assertEquals( rows.length, read.size() );
+    for ( int i = 0; i < rows.length; i++ ) {
+      assertEquals( "text" + i, read.get( i ).getData()[ 6 ] );
+    }
+  }
+
+  /**
+   * Skips the test when the Avro library on the classpath or its native compression library lacks the codec.
+   */
+  private static void assumeCodecAvailable( COMPRESSION compression ) {
+    Schema schema = SchemaBuilder.record( "Probe" ).fields().requiredString( "value" ).endRecord();
+    try ( DataFileWriter<GenericRecord> writer = new DataFileWriter<>( new GenericDatumWriter<>( schema ) ) ) {
+      writer.setCodec( CodecFactory.fromString( compression.getCodecName() ) );
+      writer.create( schema, new ByteArrayOutputStream() );
+      GenericRecord avroRecord = new GenericData.Record( schema );
+      avroRecord.put( "value", "probe" );
+      writer.append( avroRecord );
+    } catch ( Throwable e ) {
+      Assume.assumeNoException( e );
+    }
+  }
+
+  private String write( String fileName, COMPRESSION compression, int syncInterval, RowMetaAndData... rows )
+    throws Exception {
+    PentahoAvroOutputFormat outputFormat = createOutputFormat( fileName, compression, syncInterval );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    for ( RowMetaAndData row : rows ) {
+      writer.write( row );
+    }
+    writer.close();
+    return new File( tempFolder.getRoot(), fileName ).toURI().toString();
+  }
+
+  private PentahoAvroOutputFormat createOutputFormat( String fileName, COMPRESSION compression, int syncInterval )
+    throws Exception {
+    PentahoAvroOutputFormat outputFormat = new PentahoAvroOutputFormat();
+    outputFormat.setOutputFile( new File( tempFolder.getRoot(), fileName ).toURI().toString(), true );
+    outputFormat.setFields( allTypesFields() );
+    outputFormat.setCompression( compression );
+    if ( syncInterval > 0 ) {
+      outputFormat.setSyncInterval( syncInterval );
+    }
+    return outputFormat;
+  }
+
+  private PentahoAvroInputFormat createInputFormat( String file ) {
+    PentahoAvroInputFormat inputFormat = new PentahoAvroInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( file );
+    return inputFormat;
+  }
+
+  private List<RowMetaAndData> readAll( String file, long splitSize ) throws Exception {
+    PentahoAvroInputFormat inputFormat = createInputFormat( file );
+    inputFormat.setSplitSize( splitSize );
+    inputFormat.setSchema( inputFormat.readSchema() );
+    return read( inputFormat );
+  }
+
+  private static List<RowMetaAndData> read( PentahoAvroInputFormat inputFormat ) throws Exception {
+    List<RowMetaAndData> rows = new ArrayList<>();
+    for ( IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoRecordReader reader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : reader ) {
+          rows.add( row );
+        }
+      }
+    }
+    return rows;
+  }
+
+  private static Schema readFileSchema( String file ) throws Exception {
+    try ( DataFileReader<GenericRecord> reader = new DataFileReader<>( new File( URI.create( file ) ),
+      new GenericDatumReader<>() ) ) {
+      return reader.getSchema();
+    }
+  }
+
+  private static List<AvroOutputField> allTypesFields() {
+    AvroOutputField decimal = outputField( "decimal", DataType.DECIMAL, true );
+    decimal.setPrecision( "10" );
+    decimal.setScale( "2" );
+    return Arrays.asList(
+      outputField( "boolean", DataType.BOOLEAN, true ),
+      outputField( "int", DataType.INTEGER, true ),
+      outputField( "long", DataType.LONG, true ),
+      outputField( "float", DataType.FLOAT, true ),
+      outputField( "double", DataType.DOUBLE, true ),
+      outputField( "bytes", DataType.BYTES, true ),
+      outputField( "string", DataType.STRING, true ),
+      decimal,
+      outputField( "date", DataType.DATE, true ),
+      outputField( "tsMillis", DataType.TIMESTAMP_MILLIS, true ),
+      outputField( "tsMicros", DataType.TIMESTAMP_MICROS, true ) );
+  }
+
+  private static AvroOutputField outputField( String name, DataType type, boolean allowNull ) {
+    AvroOutputField field = new AvroOutputField();
+    field.setFormatFieldName( name );
+    field.setPentahoFieldName( name );
+    field.setFormatType( type );
+    field.setPentahoType( type.getPdiType() );
+    field.setAllowNull( allowNull );
+    return field;
+  }
+
+  private static RowMeta allTypesRowMeta() {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "int" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "long" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "float" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "double" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "bytes" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "decimal" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "tsMillis" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "tsMicros" ) );
+    return rowMeta;
+  }
+
+  private static RowMetaAndData allTypesRow( long id ) {
+    return new RowMetaAndData( allTypesRowMeta(), Boolean.TRUE, id, 5000000000L, 1.5d, 2.25d, new byte[] { 1, 2, 3 },
+      "text" + id, new BigDecimal( "12345.67" ), DATE, timestampMillis(), timestampMicros() );
+  }
+
+  private static RowMetaAndData allTypesNullRow() {
+    return new RowMetaAndData( allTypesRowMeta(), new Object[ 11 ] );
+  }
+
+  private static Timestamp timestampMillis() {
+    return Timestamp.valueOf( "2024-03-01 10:15:30.123" );
+  }
+
+  private static Timestamp timestampMicros() {
+    return Timestamp.valueOf( "2024-03-01 10:15:30.123456" );
+  }
+}
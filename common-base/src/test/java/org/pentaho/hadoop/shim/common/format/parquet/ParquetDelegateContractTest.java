@@ -0,0 +1,223 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoInputSplit;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat.IPentahoRecordReader;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.ApacheParquetDelegate;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.core.ParquetDelegate;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.TwitterParquetDelegate;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs every pair of Parquet delegates against the same locally generated file: the file written through one delegate
+ * has to be read with identical schema and values through the other one.
+ */
+@RunWith( Parameterized.class )
+public class ParquetDelegateContractTest {
+
+  @Parameterized.Parameters( name = "{0} writes, {2} reads" )
+  public static Iterable<Object[]> data() {
+    List<ParquetDelegate> delegates = Arrays.asList( new ApacheParquetDelegate(), new TwitterParquetDelegate() );
+    List<Object[]> data = new ArrayList<>();
+    for ( ParquetDelegate writer : delegates ) {
+      for ( ParquetDelegate reader : delegates ) {
+        data.add( new Object[] { writer.getName(), writer, reader.getName(), reader } );
+      }
+    }
+    return data;
+  }
+
+  @Parameterized.Parameter
+  public String writerName;
+
+  @Parameterized.Parameter( 1 )
+  public ParquetDelegate writer;
+
+  @Parameterized.Parameter( 2 )
+  public String readerName;
+
+  @Parameterized.Parameter( 3 )
+  public ParquetDelegate reader;
+
+  private NamedCluster namedCluster;
+  private File outputDir;
+  private RowMeta rowMeta;
+  private List<Object[]> rows;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    namedCluster = mock( NamedCluster.class );
+    outputDir = Files.createTempDirectory( "parquet-contract" ).toFile();
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "count" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "score" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "active" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "created" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "updated" ) );
+
+    rows = new ArrayList<>();
+    rows.add( new Object[] { "John", 1L, 2.5, true, new BigDecimal( "4.50" ), new Timestamp( 1514811600000L ),
+      new Timestamp( 1525179600000L ) } );
+    rows.add( new Object[] { "Paul", null, -1.25, false, null, new Timestamp( 1525179600123L ), null } );
+    rows.add( new Object[] { null, Long.MAX_VALUE, null, null, new BigDecimal( "-12345678.99" ), null,
+      new Timestamp( 0L ) } );
+    rows.add( new Object[] { "Ringo", Long.MIN_VALUE, 0.0, true, new BigDecimal( "0.01" ),
+      new Timestamp( 1000L ), new Timestamp( 1525179600999L ) } );
+  }
+
+  @Test
+  public void readsWrittenValues() throws Exception {
+    String file = write();
+
+    List<RowMetaAndData> read = read( file );
+
+    assertEquals( rows.size(), read.size() );
+    for ( int i = 0; i < rows.size(); i++ ) {
+      Object[] expected = rows.get( i );
+      RowMetaAndData actual = read.get( i );
+      for ( int j = 0; j < expected.length; j++ ) {
+        String name = rowMeta.getValueMeta( j ).getName();
+        assertEquals( "row " + i + " field " + name, normalize( expected[ j ] ),
+          normalize( actual.getData()[ actual.getRowMeta().indexOfValue( name ) ] ) );
+      }
+    }
+  }
+
+  @Test
+  public void readsSameSchemaAsWriterDelegate() throws Exception {
+    String file = write();
+
+    List<? extends IParquetInputField> readerSchema = reader.createInputFormat( namedCluster ).readSchema( file );
+    List<? extends IParquetInputField> writerSchema = writer.createInputFormat( namedCluster ).readSchema( file );
+
+    assertEquals( describe( writerSchema ), describe( readerSchema ) );
+    assertEquals( Arrays.asList( "name", "count", "score", "active", "amount", "created", "updated" ),
+      readerSchema.stream().map( IParquetInputField::getFormatFieldName ).collect( Collectors.toList() ) );
+  }
+
+  @Test
+  public void readsEmptyFile() throws Exception {
+    rows.clear();
+    String file = write();
+
+    assertEquals( 0, read( file ).size() );
+  }
+
+  private String write() throws Exception {
+    String file = new File( outputDir, writerName.toLowerCase() + ".parquet" ).toURI().toString();
+    IPentahoParquetOutputFormat outputFormat = writer.createOutputFormat( namedCluster );
+    outputFormat.setFields( Arrays.asList(
+      outputField( "name", ParquetSpec.DataType.UTF8 ),
+      outputField( "count", ParquetSpec.DataType.INT_64 ),
+      outputField( "score", ParquetSpec.DataType.DOUBLE ),
+      outputField( "active", ParquetSpec.DataType.BOOLEAN ),
+      decimalField( "amount", 10, 2 ),
+      outputField( "created", ParquetSpec.DataType.TIMESTAMP_MILLIS ),
+      outputField( "updated", ParquetSpec.DataType.INT_96 ) ) );
+    outputFormat.setOutputFile( file, true );
+
+    IPentahoRecordWriter recordWriter = outputFormat.createRecordWriter();
+    for ( Object[] row : rows ) {
+      recordWriter.write( new RowMetaAndData( rowMeta, row.clone() ) );
+    }
+    recordWriter.close();
+    return file;
+  }
+
+  private List<RowMetaAndData> read( String file ) throws Exception {
+    IPentahoParquetInputFormat inputFormat = reader.createInputFormat( namedCluster );
+    inputFormat.setInputFile( file );
+    inputFormat.setSchema( (List<IParquetInputField>) inputFormat.readSchema( file ) );
+
+    List<RowMetaAndData> result = new ArrayList<>();
+    for ( IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoRecordReader recordReader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : recordReader ) {
+          result.add( row );
+        }
+      }
+    }
+    return result;
+  }
+
+  private static ParquetOutputField outputField( String name, ParquetSpec.DataType type ) {
+    ParquetOutputField field = new ParquetOutputField();
+    field.setFormatFieldName( name );
+    field.setPentahoFieldName( name );
+    field.setFormatType( type );
+    field.setAllowNull( true );
+    return field;
+  }
+
+  private static ParquetOutputField decimalField( String name, int precision, int scale ) {
+    ParquetOutputField field = outputField( name, ParquetSpec.DataType.DECIMAL );
+    field.setPrecision( String.valueOf( precision ) );
+    field.setScale( String.valueOf( scale ) );
+    return field;
+  }
+
+  private static List<String> describe( List<? extends IParquetInputField> schema ) {
+    List<String> fields = new ArrayList<>();
+    for ( IParquetInputField field : schema ) {
+      fields.add( field.getFormatFieldName() + ":" + field.getParquetType() + ":" + field.getPentahoType() + ":"
+        + field.getPrecision() + ":" + field.getScale() );
+    }
+    return fields;
+  }
+
+  private static Object normalize( Object value ) {
+    if ( value instanceof BigDecimal ) {
+      return ( (BigDecimal) value ).stripTrailingZeros();
+    }
+    if ( value instanceof Date ) {
+      return ( (Date) value ).getTime();
+    }
+    return value;
+  }
+}
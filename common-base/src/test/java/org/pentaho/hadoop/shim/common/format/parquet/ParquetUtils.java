@@ -13,14 +13,36 @@
 package org.pentaho.hadoop.shim.common.format.parquet;
 
 
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
 import org.pentaho.hadoop.shim.api.format.IParquetInputField;
+import org.pentaho.hadoop.shim.api.format.IParquetOutputField;
+import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
 import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheInputFormat;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
 
 public class ParquetUtils {
+  private static final String IN_PROGRESS_SUFFIX = ".inprogress";
+
   public static List<IParquetInputField> createSchema( int ageType ) {
     List<IParquetInputField> fields = new ArrayList<>();
     fields.add( new ParquetInputField( "Name", ParquetSpec.DataType.UTF8, "Name", ValueMetaInterface.TYPE_STRING ) );
@@ -64,4 +86,93 @@ public class ParquetUtils {
     fields.add( new ParquetInputField( "Age", ParquetSpec.DataType.INT_64, "Age", ageType ) );
     return fields;
   }
+
+  /**
+   * Points the output format at the file and sets its fields.
+   */
+  public static <T extends IPentahoParquetOutputFormat> T createOutputFormat( T outputFormat, File file,
+    boolean override, List<? extends IParquetOutputField> fields ) throws Exception {
+    outputFormat.setOutputFile( file.toURI().toString(), override );
+    outputFormat.setFields( fields );
+    return outputFormat;
+  }
+
+  /**
+   * @return the row of the "Name" and "Age" fields written by the output tests, "name" followed by the age
+   */
+  public static RowMetaAndData createRow( long age ) {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "Name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "Age" ) );
+    return new RowMetaAndData( rowMeta, "name" + age, age );
+  }
+
+  public static void writeRows( IPentahoRecordWriter writer, long first, int count ) throws Exception {
+    for ( long i = first; i < first + count; i++ ) {
+      writer.write( createRow( i ) );
+    }
+  }
+
+  public static void writeRows( IPentahoOutputFormat outputFormat, int count ) throws Exception {
+    writeRows( outputFormat, count, ParquetUtils::createRow );
+  }
+
+  /**
+   * Writes the rows to a new record writer of the output format and closes it.
+   */
+  public static void writeRows( IPentahoOutputFormat outputFormat, int count, LongFunction<RowMetaAndData> rows )
+    throws Exception {
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    for ( long i = 0; i < count; i++ ) {
+      writer.write( rows.apply( i ) );
+    }
+    writer.close();
+  }
+
+  /**
+   * @return data files below the directory relative to it, hidden files such as checksums and files in progress
+   * excluded
+   */
+  public static List<String> visibleFiles( File dir ) throws IOException {
+    Path root = dir.toPath();
+    try ( Stream<Path> paths = Files.walk( root ) ) {
+      return paths.filter( Files::isRegularFile )
+        .filter( path -> !path.getFileName().toString().startsWith( "." ) )
+        .map( path -> root.relativize( path ).toString().replace( File.separatorChar, '/' ) )
+        .sorted()
+        .collect( Collectors.toList() );
+    }
+  }
+
+  /**
+   * @return files of the directory which are still being written
+   */
+  public static List<File> temporaryFiles( File dir ) throws IOException {
+    try ( Stream<Path> paths = Files.list( dir.toPath() ) ) {
+      return paths.filter( path -> path.getFileName().toString().endsWith( IN_PROGRESS_SUFFIX ) )
+        .map( Path::toFile )
+        .collect( Collectors.toList() );
+    }
+  }
+
+  /**
+   * @return the "Age" values of the parquet file, in file order
+   */
+  public static List<Long> readAges( File file ) throws Exception {
+    String fileName = file.toURI().toString();
+    PentahoApacheInputFormat inputFormat = new PentahoApacheInputFormat( mock( NamedCluster.class ) );
+    inputFormat.setInputFile( fileName );
+    List<IParquetInputField> schema = inputFormat.readSchema( fileName );
+    inputFormat.setSchema( schema );
+
+    List<Long> ages = new ArrayList<>();
+    for ( IPentahoInputFormat.IPentahoInputSplit split : inputFormat.getSplits() ) {
+      try ( IPentahoInputFormat.IPentahoRecordReader reader = inputFormat.createRecordReader( split ) ) {
+        for ( RowMetaAndData row : reader ) {
+          ages.add( row.getInteger( "Age", -1 ) );
+        }
+      }
+    }
+    return ages;
+  }
 }
@@ -0,0 +1,224 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.common.format.parquet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.PentahoTwitterOutputFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PentahoParquetCommitProtocolTest {
+
+  private static final List<ParquetOutputField> FIELDS =
+    ParquetUtils.createOutputFields( ParquetSpec.DataType.UTF8, false, ParquetSpec.DataType.INT_64, false );
+
+  private File outputDir;
+  private File outputFile;
+  private RowMeta rowMeta;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    outputDir = Files.createTempDirectory( "parquet-commit" ).toFile();
+    outputFile = new File( outputDir, "out.parquet" );
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "Name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "Age" ) );
+  }
+
+  @Test
+  public void fileIsOnlyVisibleAfterCommit() throws Exception {
+    IPentahoRecordWriter writer = createOutputFormat( true ).createRecordWriter();
+    ParquetUtils.writeRows( writer, 0, 100 );
+
+    assertFalse( outputFile.exists() );
+    assertEquals( 1, temporaryFiles().size() );
+
+    writer.close();
+
+    assertTrue( outputFile.exists() );
+    assertTrue( temporaryFiles().isEmpty() );
+    assertEquals( 100, readAges().size() );
+  }
+
+  @Test
+  public void failedWriteLeavesNoPartialFile() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( true );
+    // small row groups make sure that data reaches the temporary file before the failure
+    outputFormat.setRowGroupSize( 1024 );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    ParquetUtils.writeRows( writer, 0, 1000 );
+    File partial = temporaryFiles().get( 0 );
+    assertTrue( partial.length() > 0 );
+
+    try {
+      // Name is a required field
+      writer.write( new RowMetaAndData( rowMeta, null, 1000L ) );
+      fail( "row without a required value was written" );
+    } catch ( RuntimeException expected ) {
+      // the write fails half way through the file
+    }
+    writer.close();
+
+    assertFalse( outputFile.exists() );
+    assertFalse( partial.exists() );
+    assertTrue( ParquetUtils.visibleFiles( outputDir ).isEmpty() );
+    assertTrue( temporaryFiles().isEmpty() );
+  }
+
+  @Test
+  public void commitAfterFailedWriteIsRefused() throws Exception {
+    IPentahoRecordWriter writer = createOutputFormat( true ).createRecordWriter();
+    ParquetUtils.writeRows( writer, 0, 10 );
+    try {
+      writer.write( new RowMetaAndData( rowMeta, null, 10L ) );
+      fail( "row without a required value was written" );
+    } catch ( RuntimeException expected ) {
+      // the write fails
+    }
+
+    try {
+      writer.commit();
+      fail( "output of a failed writer was committed" );
+    } catch ( IOException expected ) {
+      // nothing is committed
+    }
+    assertFalse( outputFile.exists() );
+    assertTrue( temporaryFiles().isEmpty() );
+  }
+
+  @Test
+  public void abortDiscardsOutput() throws Exception {
+    IPentahoRecordWriter writer = createOutputFormat( true ).createRecordWriter();
+    ParquetUtils.writeRows( writer, 0, 100 );
+    writer.abort();
+    writer.close();
+
+    assertFalse( outputFile.exists() );
+    assertTrue( temporaryFiles().isEmpty() );
+  }
+
+  @Test
+  public void concurrentWritersDoNotCollide() throws Exception {
+    IPentahoRecordWriter first = createOutputFormat( false ).createRecordWriter();
+    IPentahoRecordWriter second = createOutputFormat( false ).createRecordWriter();
+    assertEquals( 2, temporaryFiles().size() );
+
+    ParquetUtils.writeRows( first, 0, 50 );
+    ParquetUtils.writeRows( second, 1000, 70 );
+    first.commit();
+    try {
+      second.commit();
+      fail( "second writer replaced the committed file" );
+    } catch ( FileAlreadyExistsException expected ) {
+      // the file of the first writer is kept
+    }
+
+    assertEquals( 50, readAges().size() );
+    assertTrue( readAges().stream().allMatch( age -> age < 50 ) );
+    assertTrue( temporaryFiles().isEmpty() );
+  }
+
+  @Test
+  public void overwriteReplacesFileCommittedMeanwhile() throws Exception {
+    IPentahoRecordWriter first = createOutputFormat( true ).createRecordWriter();
+    IPentahoRecordWriter second = createOutputFormat( true ).createRecordWriter();
+    ParquetUtils.writeRows( first, 0, 50 );
+    ParquetUtils.writeRows( second, 1000, 70 );
+    first.commit();
+    second.commit();
+
+    assertEquals( 70, readAges().size() );
+    assertTrue( readAges().stream().allMatch( age -> age >= 1000 ) );
+    assertEquals( Arrays.asList( "out.parquet" ), ParquetUtils.visibleFiles( outputDir ) );
+  }
+
+  @Test
+  public void twitterFailedWriteLeavesNoPartialFile() throws Exception {
+    PentahoTwitterOutputFormat outputFormat = createTwitterOutputFormat( true );
+    outputFormat.setRowGroupSize( 1024 );
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    ParquetUtils.writeRows( writer, 0, 1000 );
+    assertFalse( outputFile.exists() );
+    File partial = temporaryFiles().get( 0 );
+    assertTrue( partial.length() > 0 );
+
+    try {
+      writer.write( new RowMetaAndData( rowMeta, null, 1000L ) );
+      fail( "row without a required value was written" );
+    } catch ( RuntimeException expected ) {
+      // the write fails half way through the file
+    }
+    writer.close();
+
+    assertFalse( outputFile.exists() );
+    assertTrue( ParquetUtils.visibleFiles( outputDir ).isEmpty() );
+    assertTrue( temporaryFiles().isEmpty() );
+  }
+
+  @Test
+  public void twitterConcurrentWritersDoNotCollide() throws Exception {
+    IPentahoRecordWriter first = createTwitterOutputFormat( false ).createRecordWriter();
+    IPentahoRecordWriter second = createTwitterOutputFormat( false ).createRecordWriter();
+    assertEquals( 2, temporaryFiles().size() );
+
+    ParquetUtils.writeRows( first, 0, 50 );
+    ParquetUtils.writeRows( second, 1000, 70 );
+    first.close();
+    try {
+      second.close();
+      fail( "second writer replaced the committed file" );
+    } catch ( FileAlreadyExistsException expected ) {
+      // the file of the first writer is kept
+    }
+
+    assertEquals( 50, readAges().size() );
+    assertTrue( temporaryFiles().isEmpty() );
+  }
+
+  private PentahoTwitterOutputFormat createTwitterOutputFormat( boolean override ) throws Exception {
+    return ParquetUtils.createOutputFormat( new PentahoTwitterOutputFormat(), outputFile, override, FIELDS );
+  }
+
+  private PentahoApacheOutputFormat createOutputFormat( boolean override ) throws Exception {
+    return ParquetUtils.createOutputFormat( new PentahoApacheOutputFormat(), outputFile, override, FIELDS );
+  }
+
+  private List<File> temporaryFiles() throws IOException {
+    return ParquetUtils.temporaryFiles( outputDir );
+  }
+
+  private List<Long> readAges() throws Exception {
+    return ParquetUtils.readAges( outputFile );
+  }
+}
@@ -0,0 +1,219 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.parquet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.common.format.PartFileNamer;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.twitter.PentahoTwitterOutputFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PentahoParquetRollingOutputTest {
+
+  private File outputDir;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    outputDir = Files.createTempDirectory( "parquet-rolling" ).toFile();
+  }
+
+  @Test
+  public void rowThresholdRotatesAtExactBoundaries() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 10 );
+    ParquetUtils.writeRows( outputFormat, 25 );
+
+    assertEquals( Arrays.asList( "out-00000.parquet", "out-00001.parquet", "out-00002.parquet" ), visibleFiles() );
+    assertEquals( 10, readRows( "out-00000.parquet" ).size() );
+    assertEquals( 10, readRows( "out-00001.parquet" ).size() );
+    assertEquals( 5, readRows( "out-00002.parquet" ).size() );
+    assertEveryRowReadOnce( 25 );
+  }
+
+  @Test
+  public void noTrailingEmptyPartWhenLastPartIsFull() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 10 );
+    ParquetUtils.writeRows( outputFormat, 20 );
+
+    assertEquals( Arrays.asList( "out-00000.parquet", "out-00001.parquet" ), visibleFiles() );
+    assertEveryRowReadOnce( 20 );
+  }
+
+  @Test
+  public void emptyOutputProducesSinglePart() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 10 );
+    ParquetUtils.writeRows( outputFormat, 0 );
+
+    assertEquals( Arrays.asList( "out-00000.parquet" ), visibleFiles() );
+    assertEquals( 0, readRows( "out-00000.parquet" ).size() );
+  }
+
+  @Test
+  public void byteThresholdRotatesFiles() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setDataPageSize( 1024 );
+    outputFormat.setRollingThresholds( 16 * 1024, 0 );
+    ParquetUtils.writeRows( outputFormat, 5000 );
+
+    List<String> files = visibleFiles();
+    assertTrue( "expected several part files but got " + files, files.size() > 1 );
+    int total = 0;
+    for ( String file : files ) {
+      int rows = readRows( file ).size();
+      assertTrue( "part " + file + " is empty", rows > 0 );
+      total += rows;
+    }
+    assertEquals( 5000, total );
+    assertEveryRowReadOnce( 5000 );
+  }
+
+  @Test
+  public void partNamesUsePrefixAndTokens() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 3 );
+    outputFormat.setPartFileNaming( "part", Arrays.asList( "copy1", "node7" ) );
+    ParquetUtils.writeRows( outputFormat, 4 );
+
+    assertEquals( Arrays.asList( "part-00000-copy1-node7.parquet", "part-00001-copy1-node7.parquet" ),
+      visibleFiles() );
+  }
+
+  @Test
+  public void noTemporaryFilesRemain() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 7 );
+    ParquetUtils.writeRows( outputFormat, 30 );
+
+    String[] names = outputDir.list();
+    for ( String name : names ) {
+      assertTrue( "temporary file left behind: " + name, !name.endsWith( ".inprogress" ) );
+    }
+  }
+
+  @Test
+  public void rerunWithSmallerInputRemovesStaleParts() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 10 );
+    ParquetUtils.writeRows( outputFormat, 25 );
+    assertTrue( new File( outputDir, "other-00000.parquet" ).createNewFile() );
+    assertTrue( new File( outputDir, "out-00000-copy1.parquet" ).createNewFile() );
+
+    outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 10 );
+    ParquetUtils.writeRows( outputFormat, 5 );
+
+    // parts with another prefix or other tokens belong to other writers
+    assertEquals( Arrays.asList( "other-00000.parquet", "out-00000-copy1.parquet", "out-00000.parquet" ),
+      visibleFiles() );
+    assertEquals( 5, readRows( "out-00000.parquet" ).size() );
+  }
+
+  @Test
+  public void existingPartsFailWithoutOverride() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( "out.parquet" );
+    outputFormat.setRollingThresholds( 0, 10 );
+    ParquetUtils.writeRows( outputFormat, 25 );
+
+    outputFormat = new PentahoApacheOutputFormat();
+    outputFormat.setOutputFile( new File( outputDir, "out.parquet" ).toURI().toString(), false );
+    outputFormat.setFields( ParquetUtils.createOutputFields( ParquetSpec.DataType.INT_64 ) );
+    outputFormat.setRollingThresholds( 0, 10 );
+    try {
+      outputFormat.createRecordWriter();
+      fail( "Expected the existing parts to be reported" );
+    } catch ( IllegalStateException e ) {
+      assertTrue( e.getCause() instanceof FileAlreadyExistsException );
+    }
+    assertEquals( Arrays.asList( "out-00000.parquet", "out-00001.parquet", "out-00002.parquet" ), visibleFiles() );
+  }
+
+  @Test
+  public void twitterDelegateRollsFilesToo() throws Exception {
+    PentahoTwitterOutputFormat outputFormat = ParquetUtils.createOutputFormat( new PentahoTwitterOutputFormat(),
+      new File( outputDir, "out.parquet" ), true, ParquetUtils.createOutputFields( ParquetSpec.DataType.INT_64 ) );
+    outputFormat.setRollingThresholds( 0, 10 );
+    ParquetUtils.writeRows( outputFormat, 25 );
+
+    assertEquals( Arrays.asList( "out-00000.parquet", "out-00001.parquet", "out-00002.parquet" ), visibleFiles() );
+    assertEveryRowReadOnce( 25 );
+  }
+
+  @Test
+  public void namerRecognizesItsPartNames() {
+    PartFileNamer namer = new PartFileNamer( "part", ".parquet", Arrays.asList( "copy1" ) );
+    assertTrue( namer.isPartName( namer.getName( 0 ) ) );
+    assertTrue( namer.isPartName( namer.getName( 123456 ) ) );
+    assertFalse( namer.isPartName( "part-00000.parquet" ) );
+    assertFalse( namer.isPartName( "part-00000-copy2.parquet" ) );
+    assertFalse( namer.isPartName( "part-x0000-copy1.parquet" ) );
+    assertFalse( namer.isPartName( "." + namer.getName( 0 ) + ".inprogress" ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void tokensWithSeparatorsAreRejected() {
+    new PartFileNamer( "part", ".parquet", Arrays.asList( "a/b" ) );
+  }
+
+  @Test
+  public void namerDefaultsToOutputFileName() {
+    PartFileNamer namer = PartFileNamer.forOutputFile( new org.apache.hadoop.fs.Path( "/tmp/data" ), null,
+      ".parquet", null );
+    assertEquals( "data-00012.parquet", namer.getName( 12 ) );
+  }
+
+  private PentahoApacheOutputFormat createOutputFormat( String fileName ) throws Exception {
+    return ParquetUtils.createOutputFormat( new PentahoApacheOutputFormat(), new File( outputDir, fileName ), true,
+      ParquetUtils.createOutputFields( ParquetSpec.DataType.INT_64 ) );
+  }
+
+  private List<String> visibleFiles() throws IOException {
+    return ParquetUtils.visibleFiles( outputDir );
+  }
+
+  private void assertEveryRowReadOnce( int count ) throws Exception {
+    List<Long> ages = new ArrayList<>();
+    for ( String file : visibleFiles() ) {
+      ages.addAll( readRows( file ) );
+    }
+    Set<Long> unique = new HashSet<>( ages );
+    assertEquals( count, ages.size() );
+    assertEquals( count, unique.size() );
+    for ( long i = 0; i < count; i++ ) {
+      assertTrue( unique.contains( i ) );
+    }
+  }
+
+  private List<Long> readRows( String fileName ) throws Exception {
+    return ParquetUtils.readAges( new File( outputDir, fileName ) );
+  }
+}
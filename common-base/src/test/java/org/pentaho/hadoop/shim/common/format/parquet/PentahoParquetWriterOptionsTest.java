@@ -0,0 +1,251 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.common.format.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.values.bloomfilter.BloomFilter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.hadoop.shim.api.format.IPentahoOutputFormat.IPentahoRecordWriter;
+import org.pentaho.hadoop.shim.api.format.IPentahoParquetOutputFormat;
+import org.pentaho.hadoop.shim.api.format.ParquetSpec;
+import org.pentaho.hadoop.shim.api.format.ParquetWriterOptions;
+import org.pentaho.hadoop.shim.common.format.parquet.delegate.apache.PentahoApacheOutputFormat;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PentahoParquetWriterOptionsTest {
+
+  private static final int ROWS = 1000;
+
+  private File outputDir;
+  private RowMeta rowMeta;
+
+  @Before
+  public void setUp() throws Exception {
+    KettleLogStore.init();
+    outputDir = Files.createTempDirectory( "parquet-options" ).toFile();
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "Name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "Age" ) );
+  }
+
+  @Test
+  public void dictionaryIsDisabledByDefaultAndCanBeEnabled() throws Exception {
+    assertFalse( column( write( "plain.parquet", null ), 0, "Name" ).hasDictionaryPage() );
+
+    ParquetMetadata footer = write( "dictionary.parquet", ParquetWriterOptions.builder()
+      .dictionaryEnabled( true ).dictionaryPageSize( 64 * 1024 ).build() );
+    assertTrue( column( footer, 0, "Name" ).hasDictionaryPage() );
+  }
+
+  @Test
+  public void pageRowCountLimitSplitsPages() throws Exception {
+    File file = file( "pages.parquet" );
+    write( file, ParquetWriterOptions.builder().pageRowCountLimit( 100 ).build() );
+
+    try ( ParquetFileReader reader = open( file ) ) {
+      ColumnChunkMetaData age = column( reader.getFooter(), 0, "Age" );
+      int pages = reader.readOffsetIndex( age ).getPageCount();
+      assertTrue( "only " + pages + " pages", pages >= ROWS / 100 );
+    }
+  }
+
+  @Test
+  public void rowGroupRowCountLimitSplitsRowGroups() throws Exception {
+    ParquetMetadata footer = write( "groups.parquet",
+      ParquetWriterOptions.builder().rowGroupRowCountLimit( 300 ).build() );
+
+    List<Long> rowCounts = footer.getBlocks().stream().map( BlockMetaData::getRowCount ).collect( Collectors.toList() );
+    assertEquals( 4, rowCounts.size() );
+    assertEquals( Long.valueOf( 300 ), rowCounts.get( 0 ) );
+    assertEquals( Long.valueOf( 100 ), rowCounts.get( 3 ) );
+  }
+
+  @Test
+  public void pageFormatSelectsDataPageVersion() throws Exception {
+    ParquetMetadata v1 = write( "v1.parquet",
+      ParquetWriterOptions.builder().pageFormat( IPentahoParquetOutputFormat.VERSION.VERSION_1_0 ).build() );
+    ParquetMetadata v2 = write( "v2.parquet",
+      ParquetWriterOptions.builder().pageFormat( IPentahoParquetOutputFormat.VERSION.VERSION_2_0 ).build() );
+
+    assertFalse( column( v1, 0, "Age" ).getEncodingStats().usesV2Pages() );
+    assertTrue( column( v2, 0, "Age" ).getEncodingStats().usesV2Pages() );
+  }
+
+  @Test
+  public void bloomFilterIsWrittenOnlyForSelectedColumn() throws Exception {
+    File file = file( "bloom.parquet" );
+    write( file, ParquetWriterOptions.builder().bloomFilter( "Name", ROWS, 0.01 ).build() );
+
+    try ( ParquetFileReader reader = open( file ) ) {
+      BloomFilter names = reader.readBloomFilter( column( reader.getFooter(), 0, "Name" ) );
+      assertNotNull( names );
+      assertTrue( names.findHash( names.hash( Binary.fromString( name( 42 ) ) ) ) );
+      assertNull( reader.readBloomFilter( column( reader.getFooter(), 0, "Age" ) ) );
+    }
+  }
+
+  @Test
+  public void columnIndexValuesAreTruncated() throws Exception {
+    File file = file( "truncated.parquet" );
+    write( file, ParquetWriterOptions.builder().columnIndexTruncateLength( 8 ).build() );
+
+    try ( ParquetFileReader reader = open( file ) ) {
+      ColumnChunkMetaData name = column( reader.getFooter(), 0, "Name" );
+      ByteBuffer min = reader.readColumnIndex( name ).getMinValues().get( 0 );
+      assertTrue( "min value has " + min.remaining() + " bytes", min.remaining() <= 8 );
+    }
+  }
+
+  @Test
+  public void zstdAndLz4RawCodecs() throws Exception {
+    for ( CompressionCodecName codec : new CompressionCodecName[] {
+      CompressionCodecName.ZSTD, CompressionCodecName.LZ4_RAW } ) {
+      ParquetMetadata footer = write( codec + ".parquet", ParquetWriterOptions.builder().compression( codec ).build() );
+      assertEquals( codec, column( footer, 0, "Name" ).getCodec() );
+      assertEquals( codec, column( footer, 0, "Age" ).getCodec() );
+    }
+  }
+
+  @Test
+  public void rollingOutputAppliesOptions() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( file( "rolling.parquet" ) );
+    outputFormat.setWriterOptions( ParquetWriterOptions.builder()
+      .rowGroupRowCountLimit( 250 ).bloomFilter( "Name" ).compression( CompressionCodecName.ZSTD ).build() );
+    outputFormat.setRollingThresholds( 0, ROWS );
+    writeRows( outputFormat );
+
+    File part = file( "rolling-00000.parquet" );
+    try ( ParquetFileReader reader = open( part ) ) {
+      ParquetMetadata footer = reader.getFooter();
+      assertEquals( 4, footer.getBlocks().size() );
+      assertEquals( CompressionCodecName.ZSTD, column( footer, 0, "Name" ).getCodec() );
+      assertNotNull( reader.readBloomFilter( column( footer, 0, "Name" ) ) );
+    }
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void unsupportedCodecIsRejected() {
+    ParquetWriterOptions.builder().compression( CompressionCodecName.LZO );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void nonPositivePageSizeIsRejected() {
+    ParquetWriterOptions.builder().dataPageSize( 0 );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void dictionaryPageSizeWithoutDictionaryIsRejected() {
+    ParquetWriterOptions.builder().dictionaryEnabled( false ).dictionaryPageSize( 1024 ).build();
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void invalidFalsePositiveProbabilityIsRejected() {
+    ParquetWriterOptions.builder().bloomFilter( "Name", 100, 1.0 );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void bloomFilterForUnknownColumnIsRejected() throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( file( "unknown.parquet" ) );
+    outputFormat.setWriterOptions( ParquetWriterOptions.builder().bloomFilter( "Height" ).build() );
+    outputFormat.createRecordWriter();
+  }
+
+  @Test
+  public void optionsKeepUnsetValuesEmpty() {
+    ParquetWriterOptions options = ParquetWriterOptions.builder().bloomFilter( "Name" ).build();
+    assertNull( options.getCompression() );
+    assertNull( options.getDataPageSize() );
+    assertArrayEquals( new Object[] { "Name" }, options.getBloomFilters().keySet().toArray() );
+    assertNull( options.getBloomFilters().get( "Name" ).getExpectedDistinctValues() );
+  }
+
+  private ParquetMetadata write( String fileName, ParquetWriterOptions options ) throws Exception {
+    File file = file( fileName );
+    write( file, options );
+    try ( ParquetFileReader reader = open( file ) ) {
+      return reader.getFooter();
+    }
+  }
+
+  private void write( File file, ParquetWriterOptions options ) throws Exception {
+    PentahoApacheOutputFormat outputFormat = createOutputFormat( file );
+    if ( options != null ) {
+      outputFormat.setWriterOptions( options );
+    }
+    writeRows( outputFormat );
+  }
+
+  private PentahoApacheOutputFormat createOutputFormat( File file ) throws Exception {
+    PentahoApacheOutputFormat outputFormat = new PentahoApacheOutputFormat();
+    outputFormat.setOutputFile( file.toURI().toString(), true );
+    outputFormat.setFields( ParquetUtils.createOutputFields( ParquetSpec.DataType.INT_64 ) );
+    return outputFormat;
+  }
+
+  private void writeRows( PentahoApacheOutputFormat outputFormat ) throws Exception {
+    IPentahoRecordWriter writer = outputFormat.createRecordWriter();
+    for ( long i = 0; i < ROWS; i++ ) {
+      writer.write( new RowMetaAndData( rowMeta, name( i ), i ) );
+    }
+    writer.close();
+  }
+
+  /**
+   * Long values with few distinct prefixes, so that truncation and dictionary encoding are both observable.
+   */
+  private static String name( long i ) {
+    return "customer-with-a-rather-long-name-" + ( i % 50 );
+  }
+
+  private File file( String name ) {
+    return new File( outputDir, name );
+  }
+
+  private static ParquetFileReader open( File file ) throws Exception {
+    return ParquetFileReader.open( HadoopInputFile.fromPath( new Path( file.toURI() ), new Configuration() ) );
+  }
+
+  private static ColumnChunkMetaData column( ParquetMetadata footer, int block, String name ) {
+    return footer.getBlocks().get( block ).getColumns().stream()
+      .filter( column -> column.getPath().toDotString().equals( name ) )
+      .findFirst()
+      .orElseThrow( () -> new AssertionError( "no column " + name ) );
+  }
+}
@@ -0,0 +1,395 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.common.format.transcode;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IFormatTranscoder.Format;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class FormatTranscoderTest {
+
+  private static final String ALL_TYPES = "struct<b:boolean,tiny:tinyint,small:smallint,i:int,l:bigint,f:float,"
+    + "d:double,s:string,bin:binary,dec9:decimal(9,2),dec18:decimal(18,4),dec30:decimal(30,5),dt:date,ts:timestamp>";
+  private static final int ROWS = 2500;
+  private static final long POSITIVE_BASE = 1_700_000_000_000L;
+  private static final long NEGATIVE_BASE = -86_400_000L * 400;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final Configuration conf = new Configuration();
+  private FormatTranscoder transcoder;
+
+  @Before
+  public void setUp() {
+    KettleLogStore.init();
+    transcoder = new FormatTranscoder( mock( NamedCluster.class ) );
+  }
+
+  @Test
+  public void orcToParquetAndBackKeepsEveryValue() throws Exception {
+    File orc = writeAllTypesOrc( "source.orc" );
+    File parquet = new File( tempFolder.getRoot(), "copy.parquet" );
+    File back = new File( tempFolder.getRoot(), "back.orc" );
+
+    assertEquals( ROWS, transcoder.transcode( uri( orc ), Format.ORC, uri( parquet ), Format.PARQUET, false ) );
+    assertEquals( ROWS, transcoder.transcode( uri( parquet ), Format.PARQUET, uri( back ), Format.ORC, false ) );
+
+    try ( Reader reader = OrcFile.createReader( new Path( back.toURI() ), OrcFile.readerOptions( conf ) ) ) {
+      assertEquals( TypeDescription.fromString( ALL_TYPES ), reader.getSchema() );
+      VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+      int i = 0;
+      try ( RecordReader rows = reader.rows() ) {
+        while ( rows.nextBatch( batch ) ) {
+          for ( int row = 0; row < batch.size; row++, i++ ) {
+            for ( int column = 0; column < batch.numCols; column++ ) {
+              assertValue( batch.cols[ column ], row, column, i );
+            }
+          }
+        }
+      }
+      assertEquals( ROWS, i );
+    }
+  }
+
+  @Test
+  public void parquetSchemaUsesNarrowestDecimalAndInt96Timestamps() throws Exception {
+    File orc = writeAllTypesOrc( "source.orc" );
+    File parquet = new File( tempFolder.getRoot(), "copy.parquet" );
+    transcoder.transcode( uri( orc ), Format.ORC, uri( parquet ), Format.PARQUET, false );
+
+    MessageType schema = readParquetSchema( parquet );
+    for ( Type field : schema.getFields() ) {
+      assertTrue( field.getName(), field.isRepetition( Type.Repetition.OPTIONAL ) );
+    }
+    assertEquals( LogicalTypeAnnotation.intType( 8, true ), schema.getType( "tiny" ).getLogicalTypeAnnotation() );
+    assertEquals( LogicalTypeAnnotation.stringType(), schema.getType( "s" ).getLogicalTypeAnnotation() );
+    assertEquals( PrimitiveTypeName.INT32, physicalType( schema, "dec9" ) );
+    assertEquals( PrimitiveTypeName.INT64, physicalType( schema, "dec18" ) );
+    assertEquals( PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, physicalType( schema, "dec30" ) );
+    assertEquals( 13, schema.getType( "dec30" ).asPrimitiveType().getTypeLength() );
+    assertEquals( LogicalTypeAnnotation.decimalType( 5, 30 ), schema.getType( "dec30" ).getLogicalTypeAnnotation() );
+    assertEquals( LogicalTypeAnnotation.dateType(), schema.getType( "dt" ).getLogicalTypeAnnotation() );
+    assertEquals( PrimitiveTypeName.INT96, physicalType( schema, "ts" ) );
+  }
+
+  @Test
+  public void parquetTimestampUnitsUnsignedAndRequiredColumnsToOrc() throws Exception {
+    MessageType schema = MessageTypeParser.parseMessageType( "message m {"
+      + " required int64 ts_millis (TIMESTAMP(MILLIS,true));"
+      + " optional int64 ts_micros (TIMESTAMP(MICROS,true));"
+      + " optional int64 ts_nanos (TIMESTAMP(NANOS,true));"
+      + " optional int32 u (INTEGER(32,false));"
+      + " optional binary raw;"
+      + " optional fixed_len_byte_array(16) dec (DECIMAL(38,10));"
+      + " optional int64 dec_long (DECIMAL(12,3));"
+      + " }" );
+    BigDecimal bigDecimal = new BigDecimal( "-1234567890123456789012345678.0123456789" );
+    File parquet = new File( tempFolder.getRoot(), "external.parquet" );
+    try ( ParquetWriter<Group> writer = ExampleParquetWriter.builder( new Path( parquet.toURI() ) )
+      .withConf( conf ).withType( schema ).build() ) {
+      SimpleGroupFactory groups = new SimpleGroupFactory( schema );
+      writer.write( groups.newGroup()
+        .append( "ts_millis", -1L )
+        .append( "ts_micros", 1_500_000_000_123_456L )
+        .append( "ts_nanos", 1_500_000_000_123_456_789L )
+        .append( "u", -1 )
+        .append( "raw", Binary.fromConstantByteArray( new byte[] { 0, -1, 7 } ) )
+        .append( "dec", Binary.fromConstantByteArray(
+          OrcBatchWriteSupport.toFixed( bigDecimal.unscaledValue(), 16, "dec" ) ) )
+        .append( "dec_long", 123456789L ) );
+      writer.write( groups.newGroup().append( "ts_millis", 0L ) );
+    }
+
+    File orc = new File( tempFolder.getRoot(), "external.orc" );
+    assertEquals( 2, transcoder.transcode( uri( parquet ), Format.PARQUET, uri( orc ), Format.ORC, false ) );
+
+    try ( Reader reader = OrcFile.createReader( new Path( orc.toURI() ), OrcFile.readerOptions( conf ) ) ) {
+      assertEquals( TypeDescription.fromString( "struct<ts_millis:timestamp,ts_micros:timestamp,"
+        + "ts_nanos:timestamp,u:bigint,raw:binary,dec:decimal(38,10),dec_long:decimal(12,3)>" ), reader.getSchema() );
+      VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+      try ( RecordReader rows = reader.rows() ) {
+        assertTrue( rows.nextBatch( batch ) );
+      }
+      assertEquals( 2, batch.size );
+      assertTimestamp( batch.cols[ 0 ], 0, -1L, 999_000_000 );
+      assertTimestamp( batch.cols[ 1 ], 0, 1_500_000_000_123L, 123_456_000 );
+      assertTimestamp( batch.cols[ 2 ], 0, 1_500_000_000_123L, 123_456_789 );
+      assertEquals( 4294967295L, ( (LongColumnVector) batch.cols[ 3 ] ).vector[ 0 ] );
+      assertArrayEquals( new byte[] { 0, -1, 7 }, bytes( batch.cols[ 4 ], 0 ) );
+      assertEquals( 0, bigDecimal.compareTo( decimal( batch.cols[ 5 ], 0 ) ) );
+      assertEquals( 0, new BigDecimal( "123456.789" ).compareTo( decimal( batch.cols[ 6 ], 0 ) ) );
+
+      assertTimestamp( batch.cols[ 0 ], 1, 0L, 0 );
+      for ( int column = 1; column < batch.numCols; column++ ) {
+        assertTrue( batch.cols[ column ].isNull[ 1 ] );
+      }
+    }
+  }
+
+  @Test
+  public void nestedColumnIsRejected() throws Exception {
+    TypeDescription schema = TypeDescription.fromString( "struct<id:int,inner:struct<a:int>>" );
+    File orc = new File( tempFolder.getRoot(), "nested.orc" );
+    try ( Writer writer = OrcFile.createWriter( new Path( orc.toURI() ),
+      OrcFile.writerOptions( conf ).setSchema( schema ) ) ) {
+      VectorizedRowBatch batch = schema.createRowBatch();
+      batch.size = 1;
+      writer.addRowBatch( batch );
+    }
+    File parquet = new File( tempFolder.getRoot(), "nested.parquet" );
+    try {
+      transcoder.transcode( uri( orc ), Format.ORC, uri( parquet ), Format.PARQUET, false );
+      fail( "nested column transcoded" );
+    } catch ( IllegalStateException e ) {
+      assertTrue( e.getCause() instanceof IllegalArgumentException );
+      assertTrue( e.getCause().getMessage(), e.getCause().getMessage().contains( "inner" ) );
+    }
+    String[] files = tempFolder.getRoot().list( ( dir, name ) -> name.contains( "nested.parquet" ) );
+    assertEquals( 0, files.length );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void sameFormatIsRejected() throws Exception {
+    transcoder.transcode( "a.orc", Format.ORC, "b.orc", Format.ORC, true );
+  }
+
+  @Test
+  public void existingTargetIsOnlyReplacedWithOverwrite() throws Exception {
+    File orc = writeAllTypesOrc( "source.orc" );
+    File parquet = tempFolder.newFile( "existing.parquet" );
+    try {
+      transcoder.transcode( uri( orc ), Format.ORC, uri( parquet ), Format.PARQUET, false );
+      fail( "existing target replaced" );
+    } catch ( IllegalStateException e ) {
+      assertTrue( e.getCause() instanceof FileAlreadyExistsException );
+    }
+    assertEquals( 0, parquet.length() );
+
+    transcoder.transcode( uri( orc ), Format.ORC, uri( parquet ), Format.PARQUET, true );
+    assertFalse( readParquetSchema( parquet ).getFields().isEmpty() );
+  }
+
+  private File writeAllTypesOrc( String name ) throws Exception {
+    TypeDescription schema = TypeDescription.fromString( ALL_TYPES );
+    File file = new File( tempFolder.getRoot(), name );
+    try ( Writer writer = OrcFile.createWriter( new Path( file.toURI() ),
+      OrcFile.writerOptions( conf ).setSchema( schema ) ) ) {
+      VectorizedRowBatch batch = schema.createRowBatch();
+      for ( int i = 0; i < ROWS; i++ ) {
+        int row = batch.size++;
+        for ( int column = 0; column < batch.numCols; column++ ) {
+          setValue( batch.cols[ column ], row, column, i );
+        }
+        if ( batch.size == batch.getMaxSize() ) {
+          writer.addRowBatch( batch );
+          batch.reset();
+        }
+      }
+      if ( batch.size > 0 ) {
+        writer.addRowBatch( batch );
+      }
+    }
+    return file;
+  }
+
+  private static boolean isNull( int column, int i ) {
+    return ( i + column ) % 7 == 0;
+  }
+
+  private static void setValue( ColumnVector vector, int row, int column, int i ) {
+    if ( isNull( column, i ) ) {
+      vector.noNulls = false;
+      vector.isNull[ row ] = true;
+      return;
+    }
+    switch ( column ) {
+      case 9:
+      case 10:
+      case 11:
+        ( (DecimalColumnVector) vector ).vector[ row ].set( HiveDecimal.create( expectedDecimal( column, i ) ) );
+        break;
+      case 13:
+        TimestampColumnVector timestamps = (TimestampColumnVector) vector;
+        timestamps.time[ row ] = expectedMillis( i );
+        timestamps.nanos[ row ] = expectedNanos( i );
+        break;
+      case 7:
+      case 8:
+        byte[] bytes = expectedBytes( column, i );
+        ( (BytesColumnVector) vector ).setRef( row, bytes, 0, bytes.length );
+        break;
+      case 5:
+      case 6:
+        ( (DoubleColumnVector) vector ).vector[ row ] = expectedDouble( column, i );
+        break;
+      default:
+        ( (LongColumnVector) vector ).vector[ row ] = expectedLong( column, i );
+    }
+  }
+
+  private static void assertValue( ColumnVector vector, int row, int column, int i ) {
+    String message = "column " + column + " row " + i;
+    int index = vector.isRepeating ? 0 : row;
+    assertEquals( message, isNull( column, i ), !vector.noNulls && vector.isNull[ index ] );
+    if ( isNull( column, i ) ) {
+      return;
+    }
+    switch ( column ) {
+      case 9:
+      case 10:
+      case 11:
+        assertEquals( message, 0, expectedDecimal( column, i ).compareTo( decimal( vector, index ) ) );
+        break;
+      case 13:
+        assertTimestamp( vector, index, expectedMillis( i ), expectedNanos( i ) );
+        break;
+      case 7:
+      case 8:
+        assertArrayEquals( message, expectedBytes( column, i ), bytes( vector, index ) );
+        break;
+      case 5:
+      case 6:
+        assertEquals( message, expectedDouble( column, i ), ( (DoubleColumnVector) vector ).vector[ index ], 0d );
+        break;
+      default:
+        assertEquals( message, expectedLong( column, i ), ( (LongColumnVector) vector ).vector[ index ] );
+    }
+  }
+
+  private static long expectedLong( int column, int i ) {
+    switch ( column ) {
+      case 0:
+        return i % 2;
+      case 1:
+        return (byte) ( i % 256 - 128 );
+      case 2:
+        return (short) ( i * 13 - 16000 );
+      case 3:
+        return i * 100_003 - 7;
+      case 4:
+        return i * 10_000_000_007L - 3;
+      default:
+        // days since epoch of the date column, before and after 1970
+        return i - ROWS / 2;
+    }
+  }
+
+  private static double expectedDouble( int column, int i ) {
+    return column == 5 ? (double) ( i + 0.25f ) : i / 3.0;
+  }
+
+  private static byte[] expectedBytes( int column, int i ) {
+    if ( column == 7 ) {
+      return ( i == 1 ? "ü✓ unicode" : "row" + i ).getBytes( StandardCharsets.UTF_8 );
+    }
+    return new byte[] { (byte) i, (byte) ( i >> 8 ), -1 };
+  }
+
+  private static BigDecimal expectedDecimal( int column, int i ) {
+    switch ( column ) {
+      case 9:
+        return BigDecimal.valueOf( i * 1001L - 500_000, 2 );
+      case 10:
+        return BigDecimal.valueOf( ( i % 2 == 0 ? 1 : -1 ) * i * 123_456_789_01L, 4 );
+      default:
+        return new BigDecimal( "-1234567890123456789012.34567" ).add( BigDecimal.valueOf( i, 5 ) );
+    }
+  }
+
+  private static long expectedMillis( int i ) {
+    long base = i % 5 == 1 ? NEGATIVE_BASE : POSITIVE_BASE;
+    return base + i * 1000L + i % 1000;
+  }
+
+  private static int expectedNanos( int i ) {
+    return ( i % 1000 ) * 1_000_000 + 456_789;
+  }
+
+  private static void assertTimestamp( ColumnVector vector, int row, long millis, int nanos ) {
+    TimestampColumnVector timestamps = (TimestampColumnVector) vector;
+    assertEquals( millis, timestamps.time[ row ] );
+    assertEquals( nanos, timestamps.nanos[ row ] );
+  }
+
+  private static byte[] bytes( ColumnVector vector, int row ) {
+    BytesColumnVector bytes = (BytesColumnVector) vector;
+    byte[] value = new byte[ bytes.length[ row ] ];
+    System.arraycopy( bytes.vector[ row ], bytes.start[ row ], value, 0, value.length );
+    return value;
+  }
+
+  private static BigDecimal decimal( ColumnVector vector, int row ) {
+    return ( (DecimalColumnVector) vector ).vector[ row ].getHiveDecimal().bigDecimalValue();
+  }
+
+  private MessageType readParquetSchema( File file ) throws Exception {
+    try ( ParquetFileReader reader = ParquetFileReader.open( HadoopInputFile.fromPath( new Path( file.toURI() ),
+      conf ) ) ) {
+      return reader.getFooter().getFileMetaData().getSchema();
+    }
+  }
+
+  private static PrimitiveTypeName physicalType( MessageType schema, String field ) {
+    PrimitiveType type = schema.getType( field ).asPrimitiveType();
+    return type.getPrimitiveTypeName();
+  }
+
+  private static String uri( File file ) {
+    return file.toURI().toString();
+  }
+}
@@ -0,0 +1,205 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hbase.mapred;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.hbase.factory.HBaseTable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PentahoTableRecordReaderImplTest {
+
+  private static final byte[] FAMILY = Bytes.toBytes( "f" );
+  private static final byte[] QUALIFIER = Bytes.toBytes( "q" );
+
+  @Test
+  public void progressInterpolatesBetweenStartAndEndRow() {
+    assertEquals( 0f, PentahoTableRecordReaderImpl.getProgress( new byte[] { 0x10 }, new byte[] { 0x20 },
+      new byte[] { 0x10 } ), 0f );
+    assertEquals( 0.5f, PentahoTableRecordReaderImpl.getProgress( new byte[] { 0x10 }, new byte[] { 0x20 },
+      new byte[] { 0x18 } ), 0f );
+    assertEquals( 0.5f, PentahoTableRecordReaderImpl.getProgress( null, null, new byte[] { (byte) 0x80 } ), 0f );
+    assertEquals( 0.25f, PentahoTableRecordReaderImpl.getProgress( new byte[0], new byte[] { (byte) 0x80 },
+      new byte[] { 0x20 } ), 0f );
+    // the shared prefix does not count
+    assertEquals( 0.5f, PentahoTableRecordReaderImpl.getProgress( Bytes.toBytes( "user0" ),
+      Bytes.toBytes( "user2" ), Bytes.toBytes( "user1" ) ), 0.001f );
+  }
+
+  @Test
+  public void progressIsMonotonicOverSyntheticKeyRanges() throws Exception {
+    Random random = new Random( 49 );
+    byte[][][] ranges = {
+      { null, null },
+      { Bytes.toBytes( "row-100" ), Bytes.toBytes( "row-200" ) },
+      { Bytes.toBytes( "prefix/a" ), null },
+      { new byte[0], Bytes.toBytes( "m" ) },
+      { Bytes.toBytes( "common-prefix-0000" ), Bytes.toBytes( "common-prefix-0001" ) }
+    };
+    for ( byte[][] range : ranges ) {
+      List<byte[]> rows = randomRows( random, range[ 0 ], range[ 1 ], 300 );
+      PentahoTableRecordReaderImpl reader = reader( rows, range[ 0 ], range[ 1 ] );
+      ImmutableBytesWritable key = reader.createKey();
+      Result value = reader.createValue();
+
+      assertEquals( 0f, reader.getProgress(), 0f );
+      float last = 0f;
+      int count = 0;
+      while ( reader.next( key, value ) ) {
+        float progress = reader.getProgress();
+        assertTrue( progress >= last );
+        assertTrue( progress <= 1f );
+        last = progress;
+        count++;
+      }
+      assertEquals( rows.size(), count );
+      assertEquals( 1f, reader.getProgress(), 0f );
+    }
+  }
+
+  @Test
+  public void rowsMatchTheReflectiveCopy() throws Exception {
+    List<byte[]> rows = randomRows( new Random( 7 ), null, null, 50 );
+    PentahoTableRecordReaderImpl reader = reader( rows, null, null );
+    ImmutableBytesWritable key = reader.createKey();
+    Result value = reader.createValue();
+    Iterator<byte[]> expectedRows = rows.iterator();
+
+    while ( reader.next( key, value ) ) {
+      byte[] row = expectedRows.next();
+      Result expected = new Result();
+      Method copyFrom = expected.getClass().getMethod( "copyFrom", Result.class );
+      copyFrom.invoke( expected, result( row ) );
+
+      assertArrayEquals( row, key.get() );
+      Result.compareResults( expected, value );
+    }
+    assertFalse( expectedRows.hasNext() );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void runtimeExceptionsOfCopyFromAreNotWrapped() throws Exception {
+    List<byte[]> rows = randomRows( new Random( 3 ), null, null, 1 );
+    PentahoTableRecordReaderImpl reader = reader( rows, null, null );
+
+    // a read-only result refuses the copy
+    reader.next( reader.createKey(), Result.EMPTY_RESULT );
+  }
+
+  @Test
+  public void inputColumnsAreAddedToTheScan() throws Exception {
+    HBaseTable table = mock( HBaseTable.class );
+    when( table.getScanner( any( Scan.class ) ) ).thenReturn( new ListScanner( new ArrayList<>(), new Scan() ) );
+    PentahoTableRecordReaderImpl reader = new PentahoTableRecordReaderImpl();
+    reader.setHTable( table );
+    reader.setInputColumns( new byte[][] { Bytes.toBytes( "f:q" ), Bytes.toBytes( "g" ) } );
+    reader.setStartRow( new byte[0] );
+    reader.init();
+
+    ArgumentCaptor<Scan> scan = ArgumentCaptor.forClass( Scan.class );
+    verify( table ).getScanner( scan.capture() );
+    assertEquals( 1, scan.getValue().getFamilyMap().get( FAMILY ).size() );
+    assertArrayEquals( QUALIFIER, scan.getValue().getFamilyMap().get( FAMILY ).first() );
+    assertNull( scan.getValue().getFamilyMap().get( Bytes.toBytes( "g" ) ) );
+    assertTrue( scan.getValue().getFamilyMap().containsKey( Bytes.toBytes( "g" ) ) );
+  }
+
+  private static PentahoTableRecordReaderImpl reader( List<byte[]> rows, byte[] start, byte[] end )
+    throws Exception {
+    HBaseTable table = mock( HBaseTable.class );
+    when( table.getScanner( any( Scan.class ) ) ).thenAnswer(
+      invocation -> new ListScanner( rows, invocation.getArgument( 0 ) ) );
+    PentahoTableRecordReaderImpl reader = new PentahoTableRecordReaderImpl();
+    reader.setHTable( table );
+    reader.setInputColumns( new byte[][] { Bytes.toBytes( "f:q" ) } );
+    reader.setStartRow( start == null ? new byte[0] : start );
+    reader.setEndRow( end );
+    reader.init();
+    return reader;
+  }
+
+  /**
+   * Sorted distinct rows of the range, made by appending random bytes to the start row.
+   */
+  private static List<byte[]> randomRows( Random random, byte[] start, byte[] end, int count ) {
+    byte[] from = start == null ? new byte[0] : start;
+    TreeSet<byte[]> rows = new TreeSet<>( Bytes.BYTES_COMPARATOR );
+    while ( rows.size() < count ) {
+      byte[] suffix = new byte[ 1 + random.nextInt( 12 ) ];
+      random.nextBytes( suffix );
+      byte[] row = Bytes.add( from, suffix );
+      if ( end == null || end.length == 0 || Bytes.compareTo( row, end ) < 0 ) {
+        rows.add( row );
+      }
+    }
+    return new ArrayList<>( rows );
+  }
+
+  private static Result result( byte[] row ) {
+    return Result.create( new Cell[] { new KeyValue( row, FAMILY, QUALIFIER, row ) } );
+  }
+
+  private static class ListScanner implements ResultScanner {
+    private final Iterator<byte[]> rows;
+
+    private ListScanner( List<byte[]> all, Scan scan ) {
+      List<byte[]> inRange = new ArrayList<>();
+      for ( byte[] row : all ) {
+        if ( Bytes.compareTo( row, scan.getStartRow() ) >= 0
+          && ( scan.getStopRow().length == 0 || Bytes.compareTo( row, scan.getStopRow() ) < 0 ) ) {
+          inRange.add( row );
+        }
+      }
+      rows = inRange.iterator();
+    }
+
+    @Override public Result next() {
+      return rows.hasNext() ? result( rows.next() ) : null;
+    }
+
+    @Override public void close() {
+    }
+
+    @Override public boolean renewLease() {
+      return false;
+    }
+
+    @Override public ScanMetrics getScanMetrics() {
+      return null;
+    }
+  }
+}
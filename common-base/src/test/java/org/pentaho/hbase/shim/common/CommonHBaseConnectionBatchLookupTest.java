@@ -0,0 +1,177 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hbase.shim.common;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.hadoop.shim.api.hbase.table.BatchGetOptions;
+import org.pentaho.hbase.factory.HBaseAdmin;
+import org.pentaho.hbase.factory.HBaseClientFactory;
+import org.pentaho.hbase.factory.HBaseTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CommonHBaseConnectionBatchLookupTest {
+  private CommonHBaseConnection connection;
+  private HBaseTable sourceTable;
+  private HBaseClientFactory factory;
+
+  @BeforeClass
+  public static void beforeClass() {
+    KettleLogStore.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    connection = new CommonHBaseConnection();
+    connection.m_admin = mock( HBaseAdmin.class );
+    factory = mock( HBaseClientFactory.class );
+    sourceTable = mock( HBaseTable.class );
+    when( factory.getHBaseTable( "t" ) ).thenReturn( sourceTable );
+    connection.m_factory = factory;
+    connection.newSourceTable( "t" );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void existenceIsCheckedInChunksWithProjection() throws Exception {
+    when( sourceTable.exists( anyList() ) ).thenAnswer( invocation -> {
+      List<Get> gets = invocation.getArgument( 0 );
+      boolean[] exist = new boolean[ gets.size() ];
+      for ( int i = 0; i < exist.length; i++ ) {
+        exist[ i ] = Bytes.toString( gets.get( i ).getRow() ).endsWith( "1" );
+      }
+      return exist;
+    } );
+
+    boolean[] exist = connection.sourceTableRowsExist( keys( "r0", "r1", "r2", "r3", "r11" ),
+      BatchGetOptions.builder().chunkSize( 2 ).addColumn( "f", "q", false ).build() );
+
+    assertArrayEquals( new boolean[] { false, true, false, false, true }, exist );
+    ArgumentCaptor<List> captor = ArgumentCaptor.forClass( List.class );
+    verify( sourceTable, times( 3 ) ).exists( captor.capture() );
+    assertEquals( Arrays.asList( 2, 2, 1 ), sizes( captor.getAllValues() ) );
+    Get first = (Get) captor.getAllValues().get( 0 ).get( 0 );
+    assertTrue( first.getFamilyMap().get( Bytes.toBytes( "f" ) ).contains( Bytes.toBytes( "q" ) ) );
+  }
+
+  @Test
+  public void emptyResultsBecomeNull() throws Exception {
+    Result found = Result.create( new org.apache.hadoop.hbase.Cell[] {
+      new org.apache.hadoop.hbase.KeyValue( Bytes.toBytes( "r0" ), Bytes.toBytes( "f" ), Bytes.toBytes( "q" ),
+        Bytes.toBytes( "v" ) ) } );
+    when( sourceTable.get( anyList() ) ).thenReturn( new Result[] { found, Result.EMPTY_RESULT } );
+
+    List<Object> rows = connection.sourceTableGetRows( keys( "r0", "r1" ), BatchGetOptions.defaults() );
+    assertSame( found, rows.get( 0 ) );
+    assertNull( rows.get( 1 ) );
+  }
+
+  @Test
+  public void parallelChunksUseTableInstancesOfTheirOwn() throws Exception {
+    HBaseTable parallelTable = mock( HBaseTable.class );
+    when( factory.getHBaseTable( "t" ) ).thenReturn( parallelTable );
+    when( parallelTable.exists( anyList() ) ).thenAnswer(
+      invocation -> new boolean[] { true, true }.clone() );
+
+    boolean[] exist = connection.sourceTableRowsExist( keys( "a", "b", "c", "d", "e", "f", "g", "h" ),
+      BatchGetOptions.builder().chunkSize( 2 ).parallelism( 2 ).build() );
+
+    assertArrayEquals( new boolean[] { true, true, true, true, true, true, true, true }, exist );
+    // one table per worker, not per chunk
+    verify( parallelTable, times( 4 ) ).exists( anyList() );
+    verify( parallelTable, times( 2 ) ).close();
+    verify( sourceTable, times( 0 ) ).exists( anyList() );
+  }
+
+  @Test
+  public void failingChunkCancelsTheOtherChunksOnACallerSuppliedExecutor() throws Exception {
+    HBaseTable parallelTable = mock( HBaseTable.class );
+    when( factory.getHBaseTable( "t" ) ).thenReturn( parallelTable );
+    CountDownLatch blocking = new CountDownLatch( 1 );
+    CountDownLatch interrupted = new CountDownLatch( 1 );
+    when( parallelTable.exists( anyList() ) ).thenAnswer( invocation -> {
+      List<Get> gets = invocation.getArgument( 0 );
+      if ( Bytes.toString( gets.get( 0 ).getRow() ).equals( "a" ) ) {
+        blocking.await();
+        throw new IOException( "region server down" );
+      }
+      blocking.countDown();
+      try {
+        new CountDownLatch( 1 ).await();
+      } catch ( InterruptedException e ) {
+        interrupted.countDown();
+        throw e;
+      }
+      return new boolean[ gets.size() ];
+    } );
+    ExecutorService executor = Executors.newFixedThreadPool( 2 );
+    try {
+      connection.sourceTableRowsExist( keys( "a", "b", "c", "d" ),
+        BatchGetOptions.builder().chunkSize( 2 ).parallelism( 2 ).executor( executor ).build() );
+      fail( "the failure of the first chunk is expected" );
+    } catch ( IOException e ) {
+      assertEquals( "region server down", e.getMessage() );
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue( interrupted.await( 10, TimeUnit.SECONDS ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void chunkFailureIsRethrown() throws Exception {
+    when( sourceTable.exists( anyList() ) ).thenThrow( new IOException( "region server down" ) );
+    connection.sourceTableRowsExist( keys( "a" ), BatchGetOptions.defaults() );
+  }
+
+  private static List<byte[]> keys( String... keys ) {
+    List<byte[]> result = new ArrayList<>();
+    for ( String key : keys ) {
+      result.add( Bytes.toBytes( key ) );
+    }
+    return result;
+  }
+
+  private static List<Integer> sizes( List<List> lists ) {
+    List<Integer> sizes = new ArrayList<>();
+    for ( List list : lists ) {
+      sizes.add( list.size() );
+    }
+    return sizes;
+  }
+}
@@ -0,0 +1,186 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hbase.shim.common;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
+import org.pentaho.hbase.factory.HBaseAdmin;
+import org.pentaho.hbase.factory.HBaseClientFactory;
+import org.pentaho.hbase.factory.HBaseTable;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CommonHBaseConnectionFilterExpressionTest {
+  private final HBaseValueMeta key = key();
+  private final HBaseValueMeta name = new HBaseValueMeta( "f,name,name", ValueMetaInterface.TYPE_STRING, -1, -1 );
+
+  private HBaseConnectionImpl connection;
+  private HBaseTable sourceTable;
+  private VariableSpace vars;
+
+  @Before
+  public void setUp() throws Exception {
+    connection = new HBaseConnectionImpl();
+    connection.m_admin = mock( HBaseAdmin.class );
+    HBaseClientFactory factory = mock( HBaseClientFactory.class );
+    sourceTable = mock( HBaseTable.class );
+    when( factory.getHBaseTable( "t" ) ).thenReturn( sourceTable );
+    connection.m_factory = factory;
+    connection.newSourceTable( "t" );
+    connection.newSourceTableScan( null, null, 0 );
+
+    vars = mock( VariableSpace.class );
+    when( vars.environmentSubstitute( anyString() ) ).thenAnswer( invocation -> invocation.getArgument( 0 ) );
+  }
+
+  @Test
+  public void testKeyRangeNarrowsScan() throws Exception {
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.and(
+      filter( key, ColumnFilter.ComparisonType.GREATER_THAN_OR_EQUAL, "b" ),
+      filter( key, ColumnFilter.ComparisonType.LESS_THAN, "d" ) ), Mapping.KeyType.STRING, vars );
+
+    assertArrayEquals( Bytes.toBytes( "b" ), connection.m_sourceScan.getStartRow() );
+    assertArrayEquals( Bytes.toBytes( "d" ), connection.m_sourceScan.getStopRow() );
+    assertNull( connection.m_sourceScan.getFilter() );
+  }
+
+  @Test
+  public void testSeveralRangesSkipTheGaps() throws Exception {
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.or(
+      filter( key, ColumnFilter.ComparisonType.EQUAL, "c" ),
+      filter( key, ColumnFilter.ComparisonType.EQUAL, "a" ) ), Mapping.KeyType.STRING, vars );
+
+    assertArrayEquals( Bytes.toBytes( "a" ), connection.m_sourceScan.getStartRow() );
+    assertArrayEquals( Bytes.toBytes( "c\u0000" ), connection.m_sourceScan.getStopRow() );
+    List<Filter> filters = topLevelFilters();
+    assertEquals( 1, filters.size() );
+    MultiRowRangeFilter ranges = (MultiRowRangeFilter) filters.get( 0 );
+    assertEquals( 2, ranges.getRowRanges().size() );
+    assertArrayEquals( Bytes.toBytes( "c" ), ranges.getRowRanges().get( 1 ).getStartRow() );
+  }
+
+  @Test
+  public void testValueFilterDropsRowsWithoutTheColumn() throws Exception {
+    connection.addColumnToScan( "f", "other", false );
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.and(
+      filter( key, ColumnFilter.ComparisonType.PREFIX, "k1" ),
+      filter( name, ColumnFilter.ComparisonType.SUBSTRING, "x" ) ), Mapping.KeyType.STRING, vars );
+
+    assertArrayEquals( Bytes.toBytes( "k1" ), connection.m_sourceScan.getStartRow() );
+    assertArrayEquals( Bytes.toBytes( "k2" ), connection.m_sourceScan.getStopRow() );
+    SingleColumnValueFilter filter = (SingleColumnValueFilter) topLevelFilters().get( 0 );
+    assertTrue( filter.getFilterIfMissing() );
+    assertArrayEquals( Bytes.toBytes( "name" ), filter.getQualifier() );
+    assertTrue(
+      connection.m_sourceScan.getFamilyMap().get( Bytes.toBytes( "f" ) ).contains( Bytes.toBytes( "name" ) ) );
+    assertEquals( Boolean.TRUE, connection.m_sourceScan.getLoadColumnFamiliesOnDemandValue() );
+  }
+
+  @Test
+  public void testDisjunctionOfKeyAndValue() throws Exception {
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.or(
+      filter( key, ColumnFilter.ComparisonType.EQUAL, "a" ),
+      filter( name, ColumnFilter.ComparisonType.SUBSTRING, "x" ) ), Mapping.KeyType.STRING, vars );
+
+    assertEquals( 0, connection.m_sourceScan.getStartRow().length );
+    assertEquals( 0, connection.m_sourceScan.getStopRow().length );
+    FilterList any = (FilterList) topLevelFilters().get( 0 );
+    assertEquals( FilterList.Operator.MUST_PASS_ONE, any.getOperator() );
+    assertTrue( any.getFilters().get( 0 ) instanceof MultiRowRangeFilter );
+    assertTrue( any.getFilters().get( 1 ) instanceof SingleColumnValueFilter );
+  }
+
+  @Test
+  public void testContradictionReadsNothing() throws Exception {
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.and(
+      filter( key, ColumnFilter.ComparisonType.GREATER_THAN, "m" ),
+      filter( key, ColumnFilter.ComparisonType.LESS_THAN, "c" ) ), Mapping.KeyType.STRING, vars );
+    connection.executeSourceTableScan();
+
+    assertFalse( connection.resultSetNextRow() );
+    verify( sourceTable, never() ).getScanner( any( Scan.class ) );
+  }
+
+  @Test
+  public void testNewScanAfterContradictionReadsAgain() throws Exception {
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.and(
+      filter( key, ColumnFilter.ComparisonType.GREATER_THAN, "m" ),
+      filter( key, ColumnFilter.ComparisonType.LESS_THAN, "c" ) ), Mapping.KeyType.STRING, vars );
+    connection.newSourceTableScan( null, null, 0 );
+    connection.executeSourceTableScan();
+
+    verify( sourceTable ).getScanner( any( Scan.class ) );
+  }
+
+  @Test
+  public void testFiltersAddedBeforeAreKept() throws Exception {
+    ColumnFilter substring = filter( name, ColumnFilter.ComparisonType.SUBSTRING, "y" ).getFilter();
+    connection.addColumnFilterToScan( substring, name, vars, true );
+    FilterList previous = (FilterList) connection.m_sourceScan.getFilter();
+
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.or(
+      filter( key, ColumnFilter.ComparisonType.EQUAL, "a" ),
+      filter( key, ColumnFilter.ComparisonType.EQUAL, "c" ) ), Mapping.KeyType.STRING, vars );
+
+    FilterList all = (FilterList) connection.m_sourceScan.getFilter();
+    assertEquals( FilterList.Operator.MUST_PASS_ALL, all.getOperator() );
+    assertSame( previous, all.getFilters().get( 0 ) );
+    assertTrue( all.getFilters().get( 1 ) instanceof MultiRowRangeFilter );
+  }
+
+  private List<Filter> topLevelFilters() {
+    FilterList list = (FilterList) connection.m_sourceScan.getFilter();
+    assertEquals( FilterList.Operator.MUST_PASS_ALL, list.getOperator() );
+    return list.getFilters();
+  }
+
+  private static HBaseValueMeta key() {
+    HBaseValueMeta meta = new HBaseValueMeta( "key,key,id", ValueMetaInterface.TYPE_STRING, -1, -1 );
+    meta.setKey( true );
+    return meta;
+  }
+
+  private static ColumnFilterExpression filter( HBaseValueMeta meta, ColumnFilter.ComparisonType op,
+                                                String constant ) {
+    ColumnFilter filter = new ColumnFilter( meta.getAlias() );
+    filter.setComparisonOperator( op );
+    filter.setConstant( constant );
+    return ColumnFilterExpression.filter( filter, meta );
+  }
+}
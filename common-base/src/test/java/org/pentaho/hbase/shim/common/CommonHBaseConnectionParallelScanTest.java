@@ -0,0 +1,176 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hbase.shim.common;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
+import org.pentaho.hbase.factory.HBaseAdmin;
+import org.pentaho.hbase.factory.HBaseClientFactory;
+import org.pentaho.hbase.factory.HBaseTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CommonHBaseConnectionParallelScanTest {
+  private static final List<String> ROWS = Arrays.asList( "a1", "b1", "c1", "d1", "e1", "f1", "g1", "h1", "i1" );
+
+  private CommonHBaseConnection connection;
+  private HBaseTable sourceTable;
+  private HBaseTable rangeTable;
+  private RegionLocator locator;
+
+  @BeforeClass
+  public static void beforeClass() {
+    KettleLogStore.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    connection = new CommonHBaseConnection();
+    connection.m_admin = mock( HBaseAdmin.class );
+    HBaseClientFactory factory = mock( HBaseClientFactory.class );
+    sourceTable = mock( HBaseTable.class );
+    rangeTable = mock( HBaseTable.class );
+    when( factory.getHBaseTable( "t" ) ).thenReturn( sourceTable, rangeTable );
+    connection.m_factory = factory;
+    connection.newSourceTable( "t" );
+
+    // synthetic regions [, c) [c, f) [f, h) [h, )
+    locator = mock( RegionLocator.class );
+    when( locator.getStartKeys() ).thenReturn( new byte[][] { new byte[ 0 ], Bytes.toBytes( "c" ),
+      Bytes.toBytes( "f" ), Bytes.toBytes( "h" ) } );
+    when( sourceTable.getRegionLocator() ).thenReturn( locator );
+    when( rangeTable.getScanner( any( Scan.class ) ) ).thenAnswer(
+      invocation -> new ListScanner( invocation.getArgument( 0 ) ) );
+  }
+
+  @Test
+  public void regionsWithinTheBoundsAreScannedInKeyOrder() throws Exception {
+    connection.newSourceTableScan( Bytes.toBytes( "b" ), Bytes.toBytes( "g" ), 10 );
+    connection.executeParallelSourceTableScan( ParallelScanOptions.builder().parallelism( 2 ).build() );
+
+    assertEquals( Arrays.asList( "b1", "c1", "d1", "e1", "f1" ), readAll() );
+    ArgumentCaptor<Scan> scans = ArgumentCaptor.forClass( Scan.class );
+    verify( rangeTable, times( 3 ) ).getScanner( scans.capture() );
+    List<String> starts = new ArrayList<>();
+    for ( Scan scan : scans.getAllValues() ) {
+      starts.add( Bytes.toString( scan.getStartRow() ) + "-" + Bytes.toString( scan.getStopRow() ) );
+      assertEquals( 10, scan.getCaching() );
+    }
+    starts.sort( null );
+    assertEquals( Arrays.asList( "b-c", "c-f", "f-g" ), starts );
+    verify( locator ).close();
+
+    connection.closeSourceResultSet();
+    verify( rangeTable, times( 3 ) ).close();
+    verify( sourceTable, never() ).getScanner( any( Scan.class ) );
+  }
+
+  @Test
+  public void splitKeysReplaceTheRegionBoundaries() throws Exception {
+    connection.newSourceTableScan( null, null, 0 );
+    connection.executeParallelSourceTableScan( ParallelScanOptions.builder().addSplitKey( Bytes.toBytes( "e" ) )
+      .ordered( false ).build() );
+
+    List<String> rows = readAll();
+    rows.sort( null );
+    assertEquals( ROWS, rows );
+    verify( rangeTable, times( 2 ) ).getScanner( any( Scan.class ) );
+    verify( sourceTable, never() ).getRegionLocator();
+  }
+
+  @Test
+  public void tableWithoutRegionInformationIsScannedSequentially() throws Exception {
+    when( sourceTable.getRegionLocator() ).thenReturn( null );
+    when( sourceTable.getScanner( any( Scan.class ) ) ).thenAnswer(
+      invocation -> new ListScanner( invocation.getArgument( 0 ) ) );
+    connection.newSourceTableScan( null, null, 0 );
+    connection.executeParallelSourceTableScan( ParallelScanOptions.builder().parallelism( 2 ).build() );
+
+    assertEquals( ROWS, readAll() );
+    verify( sourceTable ).getScanner( any( Scan.class ) );
+    verify( rangeTable, never() ).getScanner( any( Scan.class ) );
+  }
+
+  private List<String> readAll() throws Exception {
+    List<String> rows = new ArrayList<>();
+    while ( connection.resultSetNextRow() ) {
+      rows.add( Bytes.toString( connection.getResultSetCurrentRowKey() ) );
+    }
+    return rows;
+  }
+
+  /**
+   * Scanner over {@link #ROWS} limited to the range of a scan.
+   */
+  private static class ListScanner implements ResultScanner {
+    private final Iterator<String> rows;
+    private final byte[] stop;
+
+    private ListScanner( Scan scan ) {
+      List<String> inRange = new ArrayList<>();
+      for ( String row : ROWS ) {
+        if ( Bytes.compareTo( Bytes.toBytes( row ), scan.getStartRow() ) >= 0 ) {
+          inRange.add( row );
+        }
+      }
+      rows = inRange.iterator();
+      stop = scan.getStopRow();
+    }
+
+    @Override public Result next() {
+      if ( !rows.hasNext() ) {
+        return null;
+      }
+      byte[] row = Bytes.toBytes( rows.next() );
+      if ( stop.length > 0 && Bytes.compareTo( row, stop ) >= 0 ) {
+        return null;
+      }
+      return Result.create( new Cell[] { new KeyValue( row, Bytes.toBytes( "f" ), Bytes.toBytes( "q" ), row ) } );
+    }
+
+    @Override public void close() {
+    }
+
+    @Override public boolean renewLease() {
+      return false;
+    }
+
+    @Override public ScanMetrics getScanMetrics() {
+      return null;
+    }
+  }
+}
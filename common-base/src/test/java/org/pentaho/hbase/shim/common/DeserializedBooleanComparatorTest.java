@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hbase.shim.common;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DeserializedBooleanComparatorTest {
+
+  private static final String[] STRINGS =
+    { "Y", "y", "N", "n", "yes", "YeS", "no", "nO", "true", "TRUE", "false", "False", "t", "T", "f", "F", "1", "0",
+      "", "2", "yess", "tru", "maybe", "ye\u017f", "fal\u017fe", "\u00ff", "y ", " n", "\u0000" };
+
+  @Test
+  public void testComparisonMatchesCopyingImplementation() {
+    Random random = new Random( 1 );
+    DeserializedBooleanComparator[] comparators =
+      { new DeserializedBooleanComparator( true ), new DeserializedBooleanComparator( false ) };
+    for ( int i = 0; i < 200000; i++ ) {
+      byte[] value = randomValue( random );
+      for ( DeserializedBooleanComparator comparator : comparators ) {
+        int expected = legacyCompareTo( comparator, value );
+        assertEquals( Bytes.toStringBinary( value ), expected, comparator.compareTo( value ) );
+
+        int offset = random.nextInt( 4 );
+        byte[] padded = new byte[ offset + value.length + random.nextInt( 4 ) ];
+        random.nextBytes( padded );
+        System.arraycopy( value, 0, padded, offset, value.length );
+        assertEquals( Bytes.toStringBinary( value ), expected, comparator.compareTo( padded, offset, value.length ) );
+      }
+    }
+  }
+
+  @Test
+  public void testFalseSortsBeforeTrue() {
+    DeserializedBooleanComparator comparator = new DeserializedBooleanComparator( false );
+    assertEquals( -1, comparator.compareTo( Bytes.toBytes( "Yes" ) ) );
+    assertEquals( 0, comparator.compareTo( Bytes.toBytes( 0L ) ) );
+    assertEquals( 0, comparator.compareTo( Bytes.toBytes( "undecodable" ) ) );
+    assertEquals( 1, new DeserializedBooleanComparator( true ).compareTo( Bytes.toBytes( 0.0f ) ) );
+  }
+
+  @Test
+  public void testSerializationMatchesDataOutput() throws Exception {
+    for ( boolean value : new boolean[] { true, false } ) {
+      DeserializedBooleanComparator comparator = new DeserializedBooleanComparator( value );
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream( bytes );
+      comparator.write( output );
+      output.close();
+      assertArrayEquals( bytes.toByteArray(), comparator.toByteArray() );
+
+      DeserializedBooleanComparator parsed =
+        (DeserializedBooleanComparator) DeserializedBooleanComparator.parseFrom( comparator.toByteArray() );
+      assertEquals( value, parsed.m_value );
+    }
+    assertEquals( true, ( (DeserializedBooleanComparator) DeserializedBooleanComparator.parseFrom(
+      new byte[] { 7 } ) ).m_value );
+  }
+
+  @Test( expected = RuntimeException.class )
+  public void testParseFromEmpty() {
+    DeserializedBooleanComparator.parseFrom( new byte[ 0 ] );
+  }
+
+  private static byte[] randomValue( Random random ) {
+    switch ( random.nextInt( 9 ) ) {
+      case 0:
+        return Bytes.toBytes( STRINGS[ random.nextInt( STRINGS.length ) ] );
+      case 1:
+        return new byte[] { (byte) ( random.nextInt( 4 ) - 1 ) };
+      case 2:
+        return Bytes.toBytes( (short) ( random.nextInt( 4 ) - 1 ) );
+      case 3:
+        return Bytes.toBytes( random.nextInt( 4 ) - 1 );
+      case 4:
+        return Bytes.toBytes( (float) ( random.nextInt( 4 ) - 1 ) );
+      case 5:
+        return Bytes.toBytes( (long) ( random.nextInt( 4 ) - 1 ) );
+      case 6:
+        return Bytes.toBytes( (double) ( random.nextInt( 4 ) - 1 ) );
+      case 7:
+        return Bytes.toBytes( random.nextBoolean() ? -0.0 : Double.NaN );
+      default:
+        byte[] result = new byte[ random.nextInt( 10 ) ];
+        random.nextBytes( result );
+        return result;
+    }
+  }
+
+  /**
+   * The comparison as it was implemented before decoding in place, on top of the unchanged byte[] decoders.
+   */
+  private static int legacyCompareTo( DeserializedBooleanComparator comparator, byte[] value ) {
+    Boolean decodedValue = DeserializedBooleanComparator.decodeBoolFromString( value );
+    if ( decodedValue == null ) {
+      decodedValue = DeserializedBooleanComparator.decodeBoolFromNumber( value );
+    }
+
+    if ( decodedValue != null ) {
+      if ( comparator.m_value.equals( decodedValue ) ) {
+        return 0;
+      }
+      if ( !comparator.m_value && decodedValue ) {
+        return -1;
+      }
+      return 1;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,200 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hbase.shim.common;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeserializedNumericComparatorTest {
+
+  private static final long[] LONGS =
+    { 0L, 1L, -1L, Short.MIN_VALUE, Short.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE,
+      Long.MAX_VALUE };
+  private static final double[] DOUBLES =
+    { 0.0, -0.0, 1.0, -1.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE,
+      Double.MAX_VALUE, Float.MAX_VALUE, Float.MIN_VALUE };
+
+  @Test
+  public void testIntegerComparisonMatchesCopyingImplementation() {
+    Random random = new Random( 1 );
+    for ( int i = 0; i < 200000; i++ ) {
+      long comparatorValue = i < LONGS.length ? LONGS[ i ] : random.nextLong() >> random.nextInt( 64 );
+      DeserializedNumericComparator comparator =
+        new DeserializedNumericComparator( true, random.nextBoolean(), comparatorValue );
+      checkSameResult( comparator, randomIntegerValue( random ), random );
+    }
+  }
+
+  @Test
+  public void testFloatingPointComparisonMatchesCopyingImplementation() {
+    Random random = new Random( 2 );
+    for ( int i = 0; i < 200000; i++ ) {
+      double comparatorValue = i < DOUBLES.length ? DOUBLES[ i ] : randomDouble( random );
+      DeserializedNumericComparator comparator =
+        new DeserializedNumericComparator( false, random.nextBoolean(), comparatorValue );
+      checkSameResult( comparator, randomFloatingPointValue( random ), random );
+    }
+  }
+
+  @Test
+  public void testNegativeValuesCompareNumerically() {
+    DeserializedNumericComparator comparator = new DeserializedNumericComparator( true, true, -5L );
+    assertTrue( comparator.compareTo( Bytes.toBytes( -10L ) ) > 0 );
+    assertTrue( comparator.compareTo( Bytes.toBytes( 3 ) ) < 0 );
+    assertEquals( 0, comparator.compareTo( Bytes.toBytes( (short) -5 ) ) );
+
+    comparator = new DeserializedNumericComparator( false, false, -1.5 );
+    assertTrue( comparator.compareTo( Bytes.toBytes( -2.5f ) ) > 0 );
+    assertTrue( comparator.compareTo( Bytes.toBytes( 0.0 ) ) < 0 );
+    assertEquals( 0, comparator.compareTo( Bytes.toBytes( -1.5 ) ) );
+  }
+
+  @Test
+  public void testSerializationMatchesDataOutput() throws Exception {
+    Random random = new Random( 3 );
+    for ( int i = 0; i < 10000; i++ ) {
+      boolean isInteger = random.nextBoolean();
+      DeserializedNumericComparator comparator = isInteger
+        ? new DeserializedNumericComparator( true, random.nextBoolean(), random.nextLong() )
+        : new DeserializedNumericComparator( false, random.nextBoolean(), randomDouble( random ) );
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream( bytes );
+      comparator.write( output );
+      output.close();
+      byte[] serialized = comparator.toByteArray();
+      assertArrayEquals( bytes.toByteArray(), serialized );
+
+      DeserializedNumericComparator parsed =
+        (DeserializedNumericComparator) DeserializedNumericComparator.parseFrom( serialized );
+      assertEquals( comparator.m_isInteger, parsed.m_isInteger );
+      assertEquals( comparator.m_isLongOrDouble, parsed.m_isLongOrDouble );
+      assertEquals( comparator.m_longValue, parsed.m_longValue );
+      assertEquals( Double.doubleToLongBits( comparator.m_doubleValue ),
+        Double.doubleToLongBits( parsed.m_doubleValue ) );
+      assertArrayEquals( serialized, parsed.toByteArray() );
+    }
+  }
+
+  @Test( expected = RuntimeException.class )
+  public void testParseFromTruncated() {
+    DeserializedNumericComparator.parseFrom( new byte[ 17 ] );
+  }
+
+  private static void checkSameResult( DeserializedNumericComparator comparator, byte[] value, Random random ) {
+    String expected = outcome( () -> legacyCompareTo( comparator, value ) );
+    assertEquals( Bytes.toStringBinary( value ), expected, outcome( () -> comparator.compareTo( value ) ) );
+
+    int offset = random.nextInt( 4 );
+    byte[] padded = new byte[ offset + value.length + random.nextInt( 4 ) ];
+    random.nextBytes( padded );
+    System.arraycopy( value, 0, padded, offset, value.length );
+    assertEquals( Bytes.toStringBinary( value ), expected,
+      outcome( () -> comparator.compareTo( padded, offset, value.length ) ) );
+  }
+
+  private static byte[] randomIntegerValue( Random random ) {
+    switch ( random.nextInt( 4 ) ) {
+      case 0:
+        return Bytes.toBytes( random.nextLong() >> random.nextInt( 64 ) );
+      case 1:
+        return Bytes.toBytes( random.nextInt() >> random.nextInt( 32 ) );
+      case 2:
+        return Bytes.toBytes( (short) random.nextInt() );
+      default:
+        return randomBytes( random );
+    }
+  }
+
+  private static byte[] randomFloatingPointValue( Random random ) {
+    switch ( random.nextInt( 3 ) ) {
+      case 0:
+        return Bytes.toBytes( randomDouble( random ) );
+      case 1:
+        return Bytes.toBytes( (float) randomDouble( random ) );
+      default:
+        return randomBytes( random );
+    }
+  }
+
+  private static double randomDouble( Random random ) {
+    switch ( random.nextInt( 3 ) ) {
+      case 0:
+        return DOUBLES[ random.nextInt( DOUBLES.length ) ];
+      case 1:
+        return Double.longBitsToDouble( random.nextLong() );
+      default:
+        return ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 20 ) );
+    }
+  }
+
+  private static byte[] randomBytes( Random random ) {
+    byte[] result = new byte[ random.nextInt( 12 ) ];
+    random.nextBytes( result );
+    return result;
+  }
+
+  private interface Comparison {
+    int compare();
+  }
+
+  /**
+   * @return the sign of the comparison or the class of the exception it threw
+   */
+  private static String outcome( Comparison comparison ) {
+    try {
+      return String.valueOf( Integer.signum( comparison.compare() ) );
+    } catch ( RuntimeException e ) {
+      return e.getClass().getName();
+    }
+  }
+
+  /**
+   * The comparison as it was implemented before decoding in place: copy, decode and box.
+   */
+  @SuppressWarnings( "deprecation" )
+  private static int legacyCompareTo( DeserializedNumericComparator comparator, byte[] value ) {
+    if ( comparator.m_isInteger ) {
+      long compV;
+      if ( value.length == Bytes.SIZEOF_LONG ) {
+        compV = Bytes.toLong( value );
+      } else if ( value.length == Bytes.SIZEOF_INT ) {
+        compV = Bytes.toInt( value );
+      } else {
+        compV = Bytes.toShort( value );
+      }
+
+      Long l = new Long( comparator.m_longValue );
+      return l.compareTo( compV );
+    }
+
+    double compV;
+    if ( value.length == Bytes.SIZEOF_DOUBLE ) {
+      compV = Bytes.toDouble( value );
+    } else {
+      compV = Bytes.toFloat( value );
+    }
+
+    Double d = new Double( comparator.m_doubleValue );
+    return d.compareTo( compV );
+  }
+}
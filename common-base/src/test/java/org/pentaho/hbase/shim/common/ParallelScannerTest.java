@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hbase.shim.common;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.hbase.table.ParallelScanOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelScannerTest {
+  private static final byte[][] REGIONS = keys( "", "d", "m", "t" );
+
+  @Test
+  public void rangesFollowTheRegionsWithinTheBounds() {
+    List<ParallelScanner.KeyRange> ranges =
+      ParallelScanner.split( REGIONS, Bytes.toBytes( "b" ), Bytes.toBytes( "p" ) );
+    assertEquals( "[[b, d), [d, m), [m, p)]", ranges.toString() );
+  }
+
+  @Test
+  public void unboundedScanCoversEveryRegion() {
+    List<ParallelScanner.KeyRange> ranges = ParallelScanner.split( REGIONS, null, null );
+    assertEquals( "[[, d), [d, m), [m, t), [t, )]", ranges.toString() );
+  }
+
+  @Test
+  public void splitKeysAreSortedAndDeduplicated() {
+    List<ParallelScanner.KeyRange> ranges =
+      ParallelScanner.split( keys( "m", "d", "m" ), Bytes.toBytes( "a" ), null );
+    assertEquals( "[[a, d), [d, m), [m, )]", ranges.toString() );
+  }
+
+  @Test
+  public void boundsWithinOneRegionGiveOneRange() {
+    List<ParallelScanner.KeyRange> ranges =
+      ParallelScanner.split( REGIONS, Bytes.toBytes( "e" ), Bytes.toBytes( "f" ) );
+    assertEquals( "[[e, f)]", ranges.toString() );
+  }
+
+  @Test
+  public void orderedScanReturnsTheRowsInKeyOrder() throws Exception {
+    List<String> rows = rows( 100 );
+    ParallelScanner scanner = ParallelScanner.open( ParallelScanner.split( REGIONS, null, null ),
+      ParallelScanOptions.builder().parallelism( 3 ).bufferSize( 2 ).build(), new Table( rows ) );
+
+    assertEquals( rows, read( scanner ) );
+    assertNull( scanner.next() );
+    scanner.close();
+  }
+
+  @Test
+  public void unorderedScanReturnsEveryRowOnce() throws Exception {
+    List<String> rows = rows( 100 );
+    ParallelScanner scanner = ParallelScanner.open( ParallelScanner.split( REGIONS, null, null ),
+      ParallelScanOptions.builder().parallelism( 4 ).bufferSize( 3 ).ordered( false ).build(), new Table( rows ) );
+
+    List<String> read = read( scanner );
+    assertEquals( rows.size(), read.size() );
+    assertEquals( new HashSet<>( rows ), new HashSet<>( read ) );
+    scanner.close();
+  }
+
+  @Test
+  public void rangeFailureIsRethrown() throws Exception {
+    Table table = new Table( rows( 100 ) );
+    table.failingRange = "m";
+    ParallelScanner scanner = ParallelScanner.open( ParallelScanner.split( REGIONS, null, null ),
+      ParallelScanOptions.builder().parallelism( 2 ).build(), table );
+    try {
+      read( scanner );
+      fail( "range failure was not reported" );
+    } catch ( IOException e ) {
+      assertEquals( "region server down", e.getMessage() );
+    }
+  }
+
+  @Test
+  public void closeReleasesTheOpenRanges() throws Exception {
+    Table table = new Table( rows( 1000 ) );
+    ParallelScanner scanner = ParallelScanner.open( ParallelScanner.split( REGIONS, null, null ),
+      ParallelScanOptions.builder().parallelism( 2 ).bufferSize( 1 ).build(), table );
+    scanner.next();
+    scanner.close();
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while ( table.open.get() > 0 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( 0, table.open.get() );
+    assertTrue( table.opened.get() <= 3 );
+  }
+
+  private static List<String> read( ParallelScanner scanner ) throws IOException {
+    List<String> read = new ArrayList<>();
+    for ( Result row = scanner.next(); row != null; row = scanner.next() ) {
+      read.add( Bytes.toString( row.getRow() ) );
+    }
+    return read;
+  }
+
+  /**
+   * Row keys spread over all regions, e.g. a000, a001, ..., z099.
+   */
+  private static List<String> rows( int count ) {
+    List<String> rows = new ArrayList<>();
+    for ( int i = 0; i < count; i++ ) {
+      rows.add( String.format( "%c%03d", (char) ( 'a' + i * 26 / count ), i ) );
+    }
+    return rows;
+  }
+
+  private static byte[][] keys( String... keys ) {
+    byte[][] bytes = new byte[ keys.length ][];
+    for ( int i = 0; i < keys.length; i++ ) {
+      bytes[ i ] = Bytes.toBytes( keys[ i ] );
+    }
+    return bytes;
+  }
+
+  private static class Table implements ParallelScanner.RangeReaderFactory {
+    private final List<String> rows;
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger opened = new AtomicInteger();
+    private volatile String failingRange;
+
+    private Table( List<String> rows ) {
+      this.rows = rows;
+    }
+
+    @Override public ParallelScanner.RangeReader open( ParallelScanner.KeyRange range ) {
+      open.incrementAndGet();
+      opened.incrementAndGet();
+      final String start = Bytes.toString( range.getStart() );
+      final String stop = Bytes.toString( range.getStop() );
+      return new ParallelScanner.RangeReader() {
+        private int next = 0;
+
+        @Override public Result next() throws IOException {
+          if ( start.equals( failingRange ) ) {
+            throw new IOException( "region server down" );
+          }
+          for ( ; next < rows.size(); next++ ) {
+            String row = rows.get( next );
+            if ( row.compareTo( start ) >= 0 && ( stop.isEmpty() || row.compareTo( stop ) < 0 ) ) {
+              next++;
+              byte[] key = Bytes.toBytes( row );
+              return Result.create( new Cell[] { new KeyValue( key, Bytes.toBytes( "f" ), Bytes.toBytes( "q" ),
+                key ) } );
+            }
+          }
+          return null;
+        }
+
+        @Override public void close() {
+          open.decrementAndGet();
+        }
+      };
+    }
+  }
+}
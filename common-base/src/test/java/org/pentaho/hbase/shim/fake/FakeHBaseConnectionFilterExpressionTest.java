@@ -0,0 +1,314 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hbase.shim.fake;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilter;
+import org.pentaho.hadoop.shim.api.internal.hbase.ColumnFilterExpression;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseBytesUtilShim;
+import org.pentaho.hadoop.shim.api.internal.hbase.HBaseValueMeta;
+import org.pentaho.hadoop.shim.api.internal.hbase.Mapping;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Runs random filter expressions against the fake connection, which applies the compiled scan plans, and compares
+ * the rows with a direct evaluation of the expressions.
+ */
+public class FakeHBaseConnectionFilterExpressionTest {
+  private static final String STRING_KEYED = "strings";
+  private static final String INTEGER_KEYED = "integers";
+  private static final String[] NAMES = { "alpha", "Beta", "gamma", "delta", "epsilon", "Alphabet" };
+  private static final ColumnFilter.ComparisonType[] COMPARISONS = { ColumnFilter.ComparisonType.EQUAL,
+    ColumnFilter.ComparisonType.NOT_EQUAL, ColumnFilter.ComparisonType.GREATER_THAN,
+    ColumnFilter.ComparisonType.GREATER_THAN_OR_EQUAL, ColumnFilter.ComparisonType.LESS_THAN,
+    ColumnFilter.ComparisonType.LESS_THAN_OR_EQUAL };
+
+  private static class Row {
+    final String key;
+    final long intKey;
+    final Long amount;
+    final String name;
+
+    Row( String key, long intKey, Long amount, String name ) {
+      this.key = key;
+      this.intKey = intKey;
+      this.amount = amount;
+      this.name = name;
+    }
+  }
+
+  private static class Condition {
+    final ColumnFilterExpression expression;
+    final Predicate<Row> predicate;
+
+    Condition( ColumnFilterExpression expression, Predicate<Row> predicate ) {
+      this.expression = expression;
+      this.predicate = predicate;
+    }
+  }
+
+  private final HBaseValueMeta stringKey = key( ValueMetaInterface.TYPE_STRING );
+  private final HBaseValueMeta integerKey = key( ValueMetaInterface.TYPE_INTEGER );
+  private final HBaseValueMeta amount = new HBaseValueMeta( "f,amount,amount", ValueMetaInterface.TYPE_INTEGER, -1,
+    -1 );
+  private final HBaseValueMeta name = new HBaseValueMeta( "f,name,name", ValueMetaInterface.TYPE_STRING, -1, -1 );
+
+  private FakeHBaseConnection connection;
+  private HBaseBytesUtilShim bytesUtil;
+  private final List<Row> rows = new ArrayList<>();
+  private final Random random = new Random( 42 );
+
+  @Before
+  public void setUp() throws Exception {
+    connection = new FakeHBaseConnection();
+    bytesUtil = connection.getBytesUtil();
+    connection.createTable( STRING_KEYED, Arrays.asList( "f" ), new Properties() );
+    connection.createTable( INTEGER_KEYED, Arrays.asList( "f" ), new Properties() );
+
+    for ( int i = 0; i < 60; i++ ) {
+      Row row = new Row( String.format( "k%02d", i ), i - 30, i % 7 == 0 ? null : (long) ( i * 3 - 40 ),
+        NAMES[ i % NAMES.length ] );
+      rows.add( row );
+      put( STRING_KEYED, bytesUtil.toBytes( row.key ), row );
+      put( INTEGER_KEYED,
+        HBaseValueMeta.encodeKeyValue( Integer.valueOf( (int) row.intKey ), Mapping.KeyType.INTEGER, bytesUtil ),
+        row );
+    }
+  }
+
+  @Test
+  public void testRandomExpressionsOnStringKeys() throws Exception {
+    for ( int i = 0; i < 500; i++ ) {
+      Condition condition = randomCondition( 3, false );
+      assertEquals( condition.expression.toString(), expectedKeys( condition, false ),
+        scan( STRING_KEYED, Mapping.KeyType.STRING, condition.expression, false ) );
+    }
+  }
+
+  @Test
+  public void testRandomExpressionsOnIntegerKeys() throws Exception {
+    for ( int i = 0; i < 500; i++ ) {
+      Condition condition = randomCondition( 3, true );
+      assertEquals( condition.expression.toString(), expectedKeys( condition, true ),
+        scan( INTEGER_KEYED, Mapping.KeyType.INTEGER, condition.expression, true ) );
+    }
+  }
+
+  @Test
+  public void testScanBoundsAndExpressionBothApply() throws Exception {
+    connection.newSourceTable( STRING_KEYED );
+    connection.newSourceTableScan( bytesUtil.toBytes( "k10" ), bytesUtil.toBytes( "k20" ), 0 );
+    connection.addColumnFilterExpressionToScan( ColumnFilterExpression.or(
+      filter( stringKey, ColumnFilter.ComparisonType.LESS_THAN, "k12" ),
+      filter( stringKey, ColumnFilter.ComparisonType.GREATER_THAN_OR_EQUAL, "k18" ) ), Mapping.KeyType.STRING, null );
+
+    assertEquals( Arrays.asList( "k10", "k11", "k18", "k19" ), readKeys( false ) );
+  }
+
+  @Test
+  public void testExpressionsAddedTwiceMustBothMatch() throws Exception {
+    connection.newSourceTable( STRING_KEYED );
+    connection.newSourceTableScan( null, null, 0 );
+    connection.addColumnFilterExpressionToScan( filter( stringKey, ColumnFilter.ComparisonType.PREFIX, "k1" ),
+      Mapping.KeyType.STRING, null );
+    connection.addColumnFilterExpressionToScan( filter( amount, ColumnFilter.ComparisonType.GREATER_THAN, "-5" ),
+      Mapping.KeyType.STRING, null );
+
+    // k10 and k11 have amounts below -5, k14 has none
+    assertEquals( Arrays.asList( "k12", "k13", "k15", "k16", "k17", "k18", "k19" ), readKeys( false ) );
+  }
+
+  @Test
+  public void testComparedColumnIsAddedToLimitedScan() throws Exception {
+    connection.newSourceTable( STRING_KEYED );
+    connection.newSourceTableScan( null, null, 0 );
+    connection.addColumnToScan( "f", "name", false );
+    connection.addColumnFilterExpressionToScan( filter( amount, ColumnFilter.ComparisonType.EQUAL, "20" ),
+      Mapping.KeyType.STRING, null );
+    connection.executeSourceTableScan();
+
+    assertEquals( true, connection.resultSetNextRow() );
+    assertEquals( "k20", bytesUtil.toString( connection.getResultSetCurrentRowKey() ) );
+    assertNotNull( connection.getResultSetCurrentRowColumnLatest( "f", "amount", false ) );
+    assertEquals( false, connection.resultSetNextRow() );
+  }
+
+  private Condition randomCondition( int depth, boolean integerKeys ) {
+    if ( depth == 0 || random.nextInt( 3 ) == 0 ) {
+      switch ( random.nextInt( 3 ) ) {
+        case 0:
+          return integerKeys ? integerKeyCondition() : stringKeyCondition();
+        case 1:
+          return amountCondition();
+        default:
+          return nameCondition();
+      }
+    }
+    int operands = 1 + random.nextInt( 3 );
+    List<ColumnFilterExpression> expressions = new ArrayList<>();
+    Predicate<Row> predicate = null;
+    boolean and = random.nextBoolean();
+    for ( int i = 0; i < operands; i++ ) {
+      Condition operand = randomCondition( depth - 1, integerKeys );
+      expressions.add( operand.expression );
+      if ( predicate == null ) {
+        predicate = operand.predicate;
+      } else {
+        predicate = and ? predicate.and( operand.predicate ) : predicate.or( operand.predicate );
+      }
+    }
+    return new Condition( and ? ColumnFilterExpression.and( expressions ) : ColumnFilterExpression.or( expressions ),
+      predicate );
+  }
+
+  private Condition stringKeyCondition() {
+    if ( random.nextInt( 5 ) == 0 ) {
+      String prefix = "k" + random.nextInt( 7 );
+      return new Condition( filter( stringKey, ColumnFilter.ComparisonType.PREFIX, prefix ),
+        row -> row.key.startsWith( prefix ) );
+    }
+    if ( random.nextInt( 5 ) == 0 ) {
+      String part = String.valueOf( random.nextInt( 10 ) );
+      return new Condition( filter( stringKey, ColumnFilter.ComparisonType.SUBSTRING, part ),
+        row -> row.key.contains( part ) );
+    }
+    ColumnFilter.ComparisonType op = COMPARISONS[ random.nextInt( COMPARISONS.length ) ];
+    String constant = random.nextInt( 8 ) == 0 ? "k" + random.nextInt( 7 ) : String.format( "k%02d",
+      random.nextInt( 66 ) );
+    return new Condition( filter( stringKey, op, constant ), row -> matches( op, row.key.compareTo( constant ) ) );
+  }
+
+  private Condition integerKeyCondition() {
+    ColumnFilter.ComparisonType op = COMPARISONS[ random.nextInt( COMPARISONS.length ) ];
+    BigDecimal constant = randomNumber( 80 );
+    return new Condition( filter( integerKey, op, constant.toPlainString() ),
+      row -> matches( op, BigDecimal.valueOf( row.intKey ).compareTo( constant ) ) );
+  }
+
+  private Condition amountCondition() {
+    ColumnFilter.ComparisonType op = COMPARISONS[ random.nextInt( COMPARISONS.length ) ];
+    BigDecimal constant = randomNumber( 300 );
+    return new Condition( filter( amount, op, constant.toPlainString() ),
+      row -> row.amount != null && matches( op, BigDecimal.valueOf( row.amount ).compareTo( constant ) ) );
+  }
+
+  private Condition nameCondition() {
+    switch ( random.nextInt( 3 ) ) {
+      case 0:
+        String prefix = NAMES[ random.nextInt( NAMES.length ) ].substring( 0, 1 + random.nextInt( 3 ) );
+        return new Condition( filter( name, ColumnFilter.ComparisonType.PREFIX, prefix ),
+          row -> row.name.startsWith( prefix ) );
+      case 1:
+        String part = NAMES[ random.nextInt( NAMES.length ) ].substring( 1, 3 ).toUpperCase( Locale.ROOT );
+        return new Condition( filter( name, ColumnFilter.ComparisonType.SUBSTRING, part ),
+          row -> row.name.toLowerCase( Locale.ROOT ).contains( part.toLowerCase( Locale.ROOT ) ) );
+      default:
+        String regex = "^[a-" + (char) ( 'a' + random.nextInt( 26 ) ) + "]";
+        return new Condition( filter( name, ColumnFilter.ComparisonType.REGEX, regex ),
+          row -> row.name.matches( regex + ".*" ) );
+    }
+  }
+
+  /**
+   * @return a constant around zero, every other one with a fraction
+   */
+  private BigDecimal randomNumber( int range ) {
+    BigDecimal number = BigDecimal.valueOf( random.nextInt( range ) - range / 2 );
+    return random.nextBoolean() ? number : number.add( new BigDecimal( "0.5" ) );
+  }
+
+  private static boolean matches( ColumnFilter.ComparisonType op, int comparison ) {
+    switch ( op ) {
+      case EQUAL:
+        return comparison == 0;
+      case NOT_EQUAL:
+        return comparison != 0;
+      case GREATER_THAN:
+        return comparison > 0;
+      case GREATER_THAN_OR_EQUAL:
+        return comparison >= 0;
+      case LESS_THAN:
+        return comparison < 0;
+      default:
+        return comparison <= 0;
+    }
+  }
+
+  private List<String> expectedKeys( Condition condition, boolean integerKeys ) {
+    List<String> keys = new ArrayList<>();
+    for ( Row row : rows ) {
+      if ( condition.predicate.test( row ) ) {
+        keys.add( integerKeys ? String.valueOf( row.intKey ) : row.key );
+      }
+    }
+    return keys;
+  }
+
+  private List<String> scan( String table, Mapping.KeyType keyType, ColumnFilterExpression expression,
+                             boolean integerKeys ) throws Exception {
+    connection.newSourceTable( table );
+    connection.newSourceTableScan( null, null, 0 );
+    connection.addColumnFilterExpressionToScan( expression, keyType, null );
+    return readKeys( integerKeys );
+  }
+
+  private List<String> readKeys( boolean integerKeys ) throws Exception {
+    connection.executeSourceTableScan();
+    List<String> keys = new ArrayList<>();
+    while ( connection.resultSetNextRow() ) {
+      byte[] key = connection.getResultSetCurrentRowKey();
+      // integer keys are stored with the sign bit flipped
+      keys.add( integerKeys ? String.valueOf( bytesUtil.toInt( key ) ^ Integer.MIN_VALUE )
+        : bytesUtil.toString( key ) );
+    }
+    return keys;
+  }
+
+  private void put( String table, byte[] key, Row row ) throws Exception {
+    connection.newTargetTable( table, null );
+    connection.newTargetTablePut( key, true );
+    if ( row.amount != null ) {
+      connection.addColumnToTargetPut( "f", "amount", false, bytesUtil.toBytes( row.amount.longValue() ) );
+    }
+    connection.addColumnToTargetPut( "f", "name", false, bytesUtil.toBytes( row.name ) );
+    connection.executeTargetTablePut();
+  }
+
+  private static HBaseValueMeta key( int type ) {
+    HBaseValueMeta meta = new HBaseValueMeta( "key,key,id", type, -1, -1 );
+    meta.setKey( true );
+    return meta;
+  }
+
+  private static ColumnFilterExpression filter( HBaseValueMeta meta, ColumnFilter.ComparisonType op,
+                                                String constant ) {
+    ColumnFilter filter = new ColumnFilter( meta.getAlias() );
+    filter.setComparisonOperator( op );
+    filter.setConstant( constant );
+    return ColumnFilterExpression.filter( filter, meta );
+  }
+}
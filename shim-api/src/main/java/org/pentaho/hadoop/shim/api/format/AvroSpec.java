@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.Arrays;
+
+import static java.util.Arrays.asList;
+
+public class AvroSpec {
+  @SuppressWarnings( "squid:S1192" ) // string constants
+  public enum DataType {
+    BOOLEAN( 0, "boolean", null, true, "Boolean", ValueMetaInterface.TYPE_BOOLEAN ),
+    INTEGER( 1, "int", null, true, "Int", ValueMetaInterface.TYPE_INTEGER ),
+    LONG( 2, "long", null, true, "Long", ValueMetaInterface.TYPE_INTEGER ),
+    FLOAT( 3, "float", null, true, "Float", ValueMetaInterface.TYPE_NUMBER ),
+    DOUBLE( 4, "double", null, true, "Double", ValueMetaInterface.TYPE_NUMBER ),
+    BYTES( 5, "bytes", null, true, "Bytes", ValueMetaInterface.TYPE_BINARY ),
+    STRING( 6, "string", null, true, "String", ValueMetaInterface.TYPE_STRING ),
+    DECIMAL( 7, "bytes", "decimal", true, "Decimal", ValueMetaInterface.TYPE_BIGNUMBER ),
+    DATE( 8, "int", "date", true, "Date", ValueMetaInterface.TYPE_DATE ),
+    TIMESTAMP_MILLIS( 9, "long", "timestamp-millis", true, "TimestampMillis", ValueMetaInterface.TYPE_TIMESTAMP ),
+    TIMESTAMP_MICROS( 10, "long", "timestamp-micros", true, "TimestampMicros", ValueMetaInterface.TYPE_TIMESTAMP ),
+    ENUM( 11, "enum", null, false, "Enum", ValueMetaInterface.TYPE_STRING ),
+    FIXED( 12, "fixed", null, false, "Fixed", ValueMetaInterface.TYPE_BINARY );
+
+    private final int id;
+    private final String baseType;
+    private final String logicalType;
+    private final boolean writable;
+    private final String name;
+    private final int pdiType;
+
+    DataType( int id, String baseType, String logicalType, boolean writable, String name, int pdiType ) {
+      this.id = id;
+      this.baseType = baseType;
+      this.logicalType = logicalType;
+      this.writable = writable;
+      this.name = name;
+      this.pdiType = pdiType;
+    }
+
+    public static DataType getDataType( int id ) {
+      // DataType.values() returns vals in order they are defined
+      return asList( DataType.values() ).get( id );
+    }
+
+    public int getId() {
+      return this.id;
+    }
+
+    public boolean isLogicalType() {
+      return logicalType != null;
+    }
+
+    public String getBaseType() {
+      return baseType;
+    }
+
+    public String getLogicalType() {
+      return logicalType;
+    }
+
+    public String getType() {
+      return isLogicalType() ? logicalType : baseType;
+    }
+
+    /**
+     * @return whether the output format can write the type, the other types are only read
+     */
+    public boolean isWritable() {
+      return writable;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getPdiType() {
+      return pdiType;
+    }
+
+    public static String[] getWritableTypeNames() {
+      return Arrays.stream( AvroSpec.DataType.values() )
+        .filter( DataType::isWritable )
+        .map( DataType::getName )
+        .sorted()
+        .toArray( String[]::new );
+    }
+  }
+
+  public static final int DEFAULT_DECIMAL_PRECISION = 20;
+  public static final int DEFAULT_DECIMAL_SCALE = 10;
+}
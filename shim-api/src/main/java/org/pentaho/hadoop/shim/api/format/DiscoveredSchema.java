@@ -0,0 +1,58 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a directory level schema discovery: the merged schema and the differences found between the files.
+ */
+public class DiscoveredSchema {
+
+  private final SchemaDescription schema;
+  private final List<String> files;
+  private final List<SchemaConflict> conflicts;
+
+  public DiscoveredSchema( SchemaDescription schema, List<String> files, List<SchemaConflict> conflicts ) {
+    this.schema = schema;
+    this.files = Collections.unmodifiableList( new ArrayList<>( files ) );
+    this.conflicts = Collections.unmodifiableList( new ArrayList<>( conflicts ) );
+  }
+
+  /**
+   * @return merged schema, the format field names are the names used in the files
+   */
+  public SchemaDescription getSchema() {
+    return schema;
+  }
+
+  /**
+   * @return files whose schema was read, in name order
+   */
+  public List<String> getFiles() {
+    return files;
+  }
+
+  public List<SchemaConflict> getConflicts() {
+    return conflicts;
+  }
+
+  /**
+   * @return whether every conflict was resolved by the merge rule
+   */
+  public boolean isConsistent() {
+    return conflicts.stream().allMatch( SchemaConflict::isResolved );
+  }
+}
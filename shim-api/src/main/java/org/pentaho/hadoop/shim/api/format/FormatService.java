@@ -19,4 +19,9 @@ public interface FormatService {
   <T extends IPentahoInputFormat> T createInputFormat( Class<T> type, NamedCluster namedCluster );
 
   <T extends IPentahoOutputFormat> T createOutputFormat( Class<T> type, NamedCluster namedCluster );
+
+  /**
+   * Creates a transcoder copying files between ORC and Parquet without a transformation in between.
+   */
+  IFormatTranscoder createTranscoder( NamedCluster namedCluster );
 }
@@ -0,0 +1,19 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+public interface IAvroOutputField extends IFormatOutputField {
+  AvroSpec.DataType getAvroType();
+
+  void setFormatType( AvroSpec.DataType type );
+}
@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+import java.util.List;
+
+/**
+ * Aggregates of input files taken from the metadata of the format, e.g. Parquet footers or ORC stripe statistics,
+ * without reading any data. Values are Pentaho values of the type the input format reads the column as.
+ */
+public interface IFormatStatistics {
+
+  /**
+   * @return number of rows in the input
+   */
+  long getRowCount();
+
+  /**
+   * @return number of files the statistics were taken from
+   */
+  int getFileCount();
+
+  /**
+   * @return names of the columns with statistics, in schema order
+   */
+  List<String> getColumnNames();
+
+  /**
+   * @return statistics of the column, null for an unknown column
+   */
+  IColumnStatistics getColumn( String name );
+
+  interface IColumnStatistics {
+
+    String getName();
+
+    /**
+     * @return Pentaho value meta type of the column
+     */
+    int getPentahoType();
+
+    /**
+     * @return true when {@link #getMin()} and {@link #getMax()} are known, which is not the case for columns without
+     * non null values, types the format keeps no ordered statistics for and files written without statistics
+     */
+    boolean hasMinMax();
+
+    /**
+     * @return smallest non null value, null when unknown
+     */
+    Object getMin();
+
+    /**
+     * @return largest non null value, null when unknown
+     */
+    Object getMax();
+
+    /**
+     * @return number of null values, -1 when unknown
+     */
+    long getNullCount();
+
+    /**
+     * Neither format stores distinct counts, the hint is derived from the value counts and ranges of the individual
+     * row groups or stripes. It is an upper bound, exact only for constant, boolean and small integer ranges.
+     *
+     * @return upper bound of the number of distinct non null values
+     */
+    long getDistinctCountHint();
+  }
+}
@@ -0,0 +1,48 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+import org.apache.orc.CompressionKind;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Copies a file between the ORC and Parquet formats column batch by column batch, without materializing rows.
+ * Flat schemas of primitive columns are supported, values keep their nulls, decimal precision and scale and the full
+ * timestamp precision.
+ */
+public interface IFormatTranscoder {
+  enum Format {
+    ORC, PARQUET
+  }
+
+  /**
+   * Writes all rows of {@code sourceFile} to {@code targetFile}. The target only becomes visible once it is complete.
+   *
+   * @param overwrite replace an existing target file instead of failing
+   * @return number of rows copied
+   * @throws IllegalArgumentException when both formats are the same or the source has a column which cannot be
+   *                                  transcoded, e.g. a nested one
+   */
+  long transcode( String sourceFile, Format sourceFormat, String targetFile, Format targetFormat, boolean overwrite )
+    throws Exception;
+
+  /**
+   * @param compression codec of Parquet targets, uncompressed by default
+   */
+  void setParquetCompression( CompressionCodecName compression );
+
+  /**
+   * @param compression codec of ORC targets, ZLIB by default
+   */
+  void setOrcCompression( CompressionKind compression );
+}
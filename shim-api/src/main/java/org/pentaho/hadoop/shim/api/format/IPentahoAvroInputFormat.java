@@ -0,0 +1,41 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+import java.util.List;
+
+public interface IPentahoAvroInputFormat extends IPentahoInputFormat {
+  /**
+   * Read schema for display to user. Fields of types without a Pentaho counterpart, like records, arrays and maps, are
+   * skipped.
+   */
+  List<IAvroInputField> readSchema() throws Exception;
+
+  /**
+   * Set schema for file reading.
+   */
+  void setSchema( List<IAvroInputField> inputFields );
+
+  /**
+   * Set input file, a directory reads all Avro files in it.
+   */
+  void setInputFile( String file ) throws Exception;
+
+  /**
+   * Sets the approximate size of the splits returned by {@link #getSplits()}. Splits are cut at byte offsets and
+   * every reader starts at the first sync marker after its offset, so each row is read by exactly one split.
+   *
+   * @param splitSize size in bytes, zero or less keeps every file in one split
+   */
+  void setSplitSize( long splitSize );
+}
@@ -0,0 +1,60 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+import java.util.List;
+
+public interface IPentahoAvroOutputFormat extends IPentahoOutputFormat, IPvfsAliasGenerator {
+  enum COMPRESSION {
+    UNCOMPRESSED( "null" ), DEFLATE( "deflate" ), SNAPPY( "snappy" ), ZSTANDARD( "zstandard" );
+
+    private final String codecName;
+
+    COMPRESSION( String codecName ) {
+      this.codecName = codecName;
+    }
+
+    /**
+     * @return name of the codec in the Avro container file header
+     */
+    public String getCodecName() {
+      return codecName;
+    }
+  }
+
+  String DEFAULT_RECORD_NAME = "PentahoRecord";
+
+  void setFields( List<? extends IAvroOutputField> fields ) throws Exception;
+
+  void setOutputFile( String file, boolean override ) throws Exception;
+
+  void setCompression( COMPRESSION compression );
+
+  /**
+   * @param namespace namespace of the record schema, may be null
+   */
+  void setNameSpace( String namespace );
+
+  /**
+   * @param recordName name of the record schema, {@link #DEFAULT_RECORD_NAME} when null
+   */
+  void setRecordName( String recordName );
+
+  /**
+   * Sets the approximate size of a data block. Every block ends with a sync marker, smaller blocks allow finer
+   * splits at the cost of a lower compression ratio.
+   *
+   * @param syncInterval size in bytes
+   */
+  void setSyncInterval( int syncInterval );
+}
@@ -32,6 +32,50 @@ public interface IPentahoInputFormat {
    */
   IPentahoRecordReader createRecordReader( IPentahoInputSplit split ) throws Exception;
 
+  /**
+   * Reads the schemas of the files below a directory and merges them, so that files written with an evolved schema
+   * can be read together. The settings of this input format, e.g. the input file, are not changed.
+   *
+   * @param path    a directory, searched recursively skipping hidden files and directories, or a single file
+   * @param options which files are read and how their schemas are merged
+   */
+  DiscoveredSchema discoverSchema( String path, SchemaDiscoveryOptions options ) throws Exception;
+
+  /**
+   * Reads the input files through a read ahead buffer, which turns the many small positioned reads of the format
+   * readers into fewer and larger requests. Meant for object stores where every request has a high latency.
+   * <p>
+   * The setting is only a hint, input formats without a read ahead buffer keep reading the files directly.
+   *
+   * @param options buffer settings, null reads the files directly
+   */
+  default void setReadAhead( ReadAheadOptions options ) throws Exception {
+    // reading directly is always correct, just slower on object stores
+  }
+
+  /**
+   * Reads row count and column statistics of the input files from the metadata of the format, without reading any
+   * rows. Partition fields taken from directory names are not part of the statistics. Formats without column
+   * statistics, such as Avro, report the row and file counts only.
+   */
+  IFormatStatistics readStatistics() throws Exception;
+
+  /**
+   * Reads the statistics of the rows of one split, see {@link #readStatistics()}.
+   *
+   * @param split one of the splits returned by {@link #getSplits()}
+   */
+  IFormatStatistics readStatistics( IPentahoInputSplit split ) throws Exception;
+
+  /**
+   * Reads a sample of the input rows for a preview, touching only the row groups, stripes or Avro blocks of the sample
+   * instead of reading the input from its start. Fields, partition fields and read ahead settings apply like for
+   * {@link #createRecordReader(IPentahoInputSplit)}.
+   *
+   * @param options how the rows are chosen and how many bytes may be read
+   */
+  IPentahoRecordReader createSampleReader( SamplingOptions options ) throws Exception;
+
   public interface IPentahoInputSplit {
   }
 
@@ -30,4 +30,13 @@ public interface IPentahoOrcInputFormat extends IPentahoInputFormat {
    */
   void setInputFile( String file );
 
+  /**
+   * Reconstructs partition fields from the {@code name=value} directories of a Hive style partitioned layout. The
+   * fields are appended to every row after the fields of the schema. Their values are always strings, also for
+   * partitions written from numeric or date fields, since a directory name carries no type; a default partition
+   * reads as null.
+   *
+   * @param partitionFields names of the partition fields, null or empty disables the reconstruction
+   */
+  void setPartitionFields( List<String> partitionFields );
 }
@@ -39,4 +39,21 @@ public interface IPentahoOrcOutputFormat extends IPentahoOutputFormat, IPvfsAlia
 
   void setCompressSize( int kilobytes );
 
+  /**
+   * Writes a Hive style partitioned layout below the output path, one directory level per partition field,
+   * e.g. {@code <output>/dt=2024-01-01/region=eu/part-00000.orc}. The partition fields are taken from the incoming
+   * rows and are not stored in the data files.
+   *
+   * @param partitionFields names of the partition fields in directory nesting order, null or empty disables
+   *                        partitioning
+   */
+  void setPartitionFields( List<String> partitionFields ) throws Exception;
+
+  /**
+   * Limits the number of partition files open at the same time. When a row for another partition arrives the least
+   * recently used file is finished, a later row for that partition starts a new part file.
+   *
+   * @param maxOpenWriters maximum number of open partition files
+   */
+  void setMaxOpenWriters( int maxOpenWriters ) throws Exception;
 }
@@ -13,6 +13,7 @@
 package org.pentaho.hadoop.shim.api.format;
 
 import java.io.Closeable;
+import java.io.IOException;
 
 import org.pentaho.di.core.RowMetaAndData;
 
@@ -21,5 +22,18 @@ public interface IPentahoOutputFormat {
 
   public interface IPentahoRecordWriter extends Closeable {
     void write( RowMetaAndData row ) throws Exception;
+
+    /**
+     * Finishes the output and makes it visible under its final name. Writers without a commit protocol just close.
+     */
+    default void commit() throws IOException {
+      close();
+    }
+
+    /**
+     * Discards the output of this writer, none of the rows written so far become visible. Failures are not reported
+     * since abort is usually called while handling another error.
+     */
+    void abort() throws IOException;
   }
 }
@@ -40,4 +40,14 @@ public interface IPentahoParquetInputFormat extends IPentahoInputFormat {
    * Split size, bytes.
    */
   void setSplitSize( long blockSize ) throws Exception;
+
+  /**
+   * Reconstructs partition fields from the {@code name=value} directories of a Hive style partitioned layout. The
+   * fields are appended to every row after the fields of the schema. Their values are always strings, also for
+   * partitions written from numeric or date fields, since a directory name carries no type; a default partition
+   * reads as null.
+   *
+   * @param partitionFields names of the partition fields, null or empty disables the reconstruction
+   */
+  void setPartitionFields( List<String> partitionFields ) throws Exception;
 }
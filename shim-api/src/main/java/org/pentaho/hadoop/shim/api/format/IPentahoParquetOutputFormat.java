@@ -49,4 +49,49 @@ public interface IPentahoParquetOutputFormat extends IPentahoOutputFormat, IPvfs
    * @param size size in bytes
    */
   void setDictionaryPageSize( int size ) throws Exception;
+
+  /**
+   * Enables rolling output: once either threshold is reached the current part file is finalized and the next row
+   * starts a new one in the same directory. A value of zero or less disables the corresponding threshold, disabling
+   * both writes a single file.
+   *
+   * @param maxBytesPerFile approximate size of one part file in bytes
+   * @param maxRowsPerFile  maximum number of rows in one part file
+   */
+  void setRollingThresholds( long maxBytesPerFile, long maxRowsPerFile ) throws Exception;
+
+  /**
+   * Sets the naming of rolling part files, which are named {@code <prefix>-<sequence>[-<token>...]<extension>}.
+   *
+   * @param prefix          file name prefix, the output file name without extension is used when null
+   * @param partitionTokens optional tokens appended to every part name, e.g. a step copy number
+   */
+  void setPartFileNaming( String prefix, List<String> partitionTokens ) throws Exception;
+
+  /**
+   * Writes a Hive style partitioned layout below the output path, one directory level per partition field,
+   * e.g. {@code <output>/dt=2024-01-01/region=eu/part-00000.parquet}. The partition fields are taken from the incoming
+   * rows and are not stored in the data files.
+   *
+   * @param partitionFields names of the partition fields in directory nesting order, null or empty disables
+   *                        partitioning
+   */
+  void setPartitionFields( List<String> partitionFields ) throws Exception;
+
+  /**
+   * Limits the number of partition files open at the same time. When a row for another partition arrives the least
+   * recently used file is finished, a later row for that partition starts a new part file.
+   *
+   * @param maxOpenWriters maximum number of open partition files
+   */
+  void setMaxOpenWriters( int maxOpenWriters ) throws Exception;
+
+  /**
+   * Applies writer settings on top of the ones made with the individual setters. Settings missing from
+   * {@code options} are left unchanged.
+   *
+   * @throws IllegalArgumentException when the options do not fit the output fields, e.g. a bloom filter for an unknown
+   *                                  column; reported by {@link #createRecordWriter()} at the latest
+   */
+  void setWriterOptions( ParquetWriterOptions options ) throws Exception;
 }
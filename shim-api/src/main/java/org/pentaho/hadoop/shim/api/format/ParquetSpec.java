@@ -54,7 +54,10 @@ public class ParquetSpec {
     MAP( 28, false, "", null, false, "Map", ValueMetaInterface.TYPE_NONE ),
     MAP_KEY_VALUE( 29, false, "", null, false, "MapKeyValue", ValueMetaInterface.TYPE_NONE ),
     STRUCT( 30, false, "", null, false, "Struct", ValueMetaInterface.TYPE_NONE ),
-    UNION( 31, false, "", null, false, "Union", ValueMetaInterface.TYPE_NONE );
+    UNION( 31, false, "", null, false, "Union", ValueMetaInterface.TYPE_NONE ),
+    // appended after UNION because getDataType( id ) relies on the declaration order
+    TIMESTAMP_MICROS( 32, false, "int64", null, true, "TimestampMicros", ValueMetaInterface.TYPE_TIMESTAMP ),
+    TIMESTAMP_NANOS( 33, false, "int64", null, true, "TimestampNanos", ValueMetaInterface.TYPE_TIMESTAMP );
 
     private final int id;
     private final boolean isPrimitive;
@@ -0,0 +1,262 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.format;
+
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validated set of parquet writer settings. Settings which are not set keep the default of the output format.
+ */
+public class ParquetWriterOptions {
+
+  /**
+   * Codecs which can be written without native libraries or extra dependencies.
+   */
+  public static final Set<CompressionCodecName> SUPPORTED_CODECS = Collections.unmodifiableSet( EnumSet.of(
+    CompressionCodecName.UNCOMPRESSED, CompressionCodecName.SNAPPY, CompressionCodecName.GZIP,
+    CompressionCodecName.ZSTD, CompressionCodecName.LZ4_RAW ) );
+
+  private final CompressionCodecName compression;
+  private final Boolean dictionaryEnabled;
+  private final Integer dictionaryPageSize;
+  private final Integer dataPageSize;
+  private final Integer pageRowCountLimit;
+  private final Integer rowGroupRowCountLimit;
+  private final IPentahoParquetOutputFormat.VERSION pageFormat;
+  private final Integer columnIndexTruncateLength;
+  private final Map<String, BloomFilter> bloomFilters;
+
+  private ParquetWriterOptions( Builder builder ) {
+    compression = builder.compression;
+    dictionaryEnabled = builder.dictionaryEnabled;
+    dictionaryPageSize = builder.dictionaryPageSize;
+    dataPageSize = builder.dataPageSize;
+    pageRowCountLimit = builder.pageRowCountLimit;
+    rowGroupRowCountLimit = builder.rowGroupRowCountLimit;
+    pageFormat = builder.pageFormat;
+    columnIndexTruncateLength = builder.columnIndexTruncateLength;
+    bloomFilters = Collections.unmodifiableMap( new LinkedHashMap<>( builder.bloomFilters ) );
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return compression codec or null
+   */
+  public CompressionCodecName getCompression() {
+    return compression;
+  }
+
+  /**
+   * @return whether dictionary encoding is used or null
+   */
+  public Boolean getDictionaryEnabled() {
+    return dictionaryEnabled;
+  }
+
+  /**
+   * @return dictionary page size in bytes or null
+   */
+  public Integer getDictionaryPageSize() {
+    return dictionaryPageSize;
+  }
+
+  /**
+   * @return data page size in bytes or null
+   */
+  public Integer getDataPageSize() {
+    return dataPageSize;
+  }
+
+  /**
+   * @return maximum number of rows in a data page or null
+   */
+  public Integer getPageRowCountLimit() {
+    return pageRowCountLimit;
+  }
+
+  /**
+   * @return maximum number of rows in a row group or null
+   */
+  public Integer getRowGroupRowCountLimit() {
+    return rowGroupRowCountLimit;
+  }
+
+  /**
+   * @return data page format, {@link IPentahoParquetOutputFormat.VERSION#VERSION_2_0} writes V2 data pages, or null
+   */
+  public IPentahoParquetOutputFormat.VERSION getPageFormat() {
+    return pageFormat;
+  }
+
+  /**
+   * @return length in bytes min and max values of the column index are truncated to, or null
+   */
+  public Integer getColumnIndexTruncateLength() {
+    return columnIndexTruncateLength;
+  }
+
+  /**
+   * @return bloom filters by column name, empty when no column has a bloom filter
+   */
+  public Map<String, BloomFilter> getBloomFilters() {
+    return bloomFilters;
+  }
+
+  /**
+   * Bloom filter settings of one column. Settings which are not set use the parquet defaults.
+   */
+  public static class BloomFilter {
+    private final Long expectedDistinctValues;
+    private final Double falsePositiveProbability;
+
+    BloomFilter( Long expectedDistinctValues, Double falsePositiveProbability ) {
+      this.expectedDistinctValues = expectedDistinctValues;
+      this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * @return expected number of distinct values, used to size the filter, or null
+     */
+    public Long getExpectedDistinctValues() {
+      return expectedDistinctValues;
+    }
+
+    /**
+     * @return target false positive probability or null
+     */
+    public Double getFalsePositiveProbability() {
+      return falsePositiveProbability;
+    }
+  }
+
+  public static class Builder {
+    private CompressionCodecName compression;
+    private Boolean dictionaryEnabled;
+    private Integer dictionaryPageSize;
+    private Integer dataPageSize;
+    private Integer pageRowCountLimit;
+    private Integer rowGroupRowCountLimit;
+    private IPentahoParquetOutputFormat.VERSION pageFormat;
+    private Integer columnIndexTruncateLength;
+    private final Map<String, BloomFilter> bloomFilters = new LinkedHashMap<>();
+
+    private Builder() {
+    }
+
+    public Builder compression( CompressionCodecName compression ) {
+      if ( !SUPPORTED_CODECS.contains( compression ) ) {
+        throw new IllegalArgumentException( "Compression codec " + compression + " is not supported, use one of "
+          + SUPPORTED_CODECS );
+      }
+      this.compression = compression;
+      return this;
+    }
+
+    public Builder dictionaryEnabled( boolean dictionaryEnabled ) {
+      this.dictionaryEnabled = dictionaryEnabled;
+      return this;
+    }
+
+    public Builder dictionaryPageSize( int bytes ) {
+      this.dictionaryPageSize = positive( "Dictionary page size", bytes );
+      return this;
+    }
+
+    public Builder dataPageSize( int bytes ) {
+      this.dataPageSize = positive( "Data page size", bytes );
+      return this;
+    }
+
+    public Builder pageRowCountLimit( int rows ) {
+      this.pageRowCountLimit = positive( "Page row count limit", rows );
+      return this;
+    }
+
+    public Builder rowGroupRowCountLimit( int rows ) {
+      this.rowGroupRowCountLimit = positive( "Row group row count limit", rows );
+      return this;
+    }
+
+    public Builder pageFormat( IPentahoParquetOutputFormat.VERSION pageFormat ) {
+      if ( pageFormat == null ) {
+        throw new IllegalArgumentException( "Page format must not be null" );
+      }
+      this.pageFormat = pageFormat;
+      return this;
+    }
+
+    public Builder columnIndexTruncateLength( int bytes ) {
+      this.columnIndexTruncateLength = positive( "Column index truncate length", bytes );
+      return this;
+    }
+
+    /**
+     * Adds a bloom filter with default size and false positive probability.
+     */
+    public Builder bloomFilter( String column ) {
+      bloomFilters.put( column( column ), new BloomFilter( null, null ) );
+      return this;
+    }
+
+    /**
+     * @param expectedDistinctValues   expected number of distinct values in a row group
+     * @param falsePositiveProbability false positive probability, between 0 and 1 exclusive
+     */
+    public Builder bloomFilter( String column, long expectedDistinctValues, double falsePositiveProbability ) {
+      if ( expectedDistinctValues <= 0 ) {
+        throw new IllegalArgumentException(
+          "Expected distinct values of bloom filter must be positive: " + expectedDistinctValues );
+      }
+      if ( !( falsePositiveProbability > 0 && falsePositiveProbability < 1 ) ) {
+        throw new IllegalArgumentException(
+          "False positive probability of bloom filter must be between 0 and 1: " + falsePositiveProbability );
+      }
+      bloomFilters.put( column( column ), new BloomFilter( expectedDistinctValues, falsePositiveProbability ) );
+      return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException when a dictionary page size is set while dictionary encoding is disabled
+     */
+    public ParquetWriterOptions build() {
+      if ( Boolean.FALSE.equals( dictionaryEnabled ) && dictionaryPageSize != null ) {
+        throw new IllegalArgumentException( "Dictionary page size is set but dictionary encoding is disabled" );
+      }
+      return new ParquetWriterOptions( this );
+    }
+
+    private static Integer positive( String name, int value ) {
+      if ( value <= 0 ) {
+        throw new IllegalArgumentException( name + " must be positive: " + value );
+      }
+      return value;
+    }
+
+    private static String column( String column ) {
+      if ( column == null || column.trim().isEmpty() ) {
+        throw new IllegalArgumentException( "Bloom filter column must not be empty" );
+      }
+      return column;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+/**
+ * Settings of the read ahead buffering of input files, see {@link IPentahoInputFormat#setReadAhead(ReadAheadOptions)}.
+ * Files are read in blocks: a read of missing blocks fetches them together with the following
+ * {@link #getReadAheadBlocks()} blocks in one request, and recently used blocks are kept in a small LRU cache. Reads
+ * near the end of a file fetch the whole tail, where footers and indexes are stored.
+ */
+public class ReadAheadOptions {
+
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+  public static final int DEFAULT_READ_AHEAD_BLOCKS = 16;
+  public static final int DEFAULT_CACHE_BLOCKS = 32;
+
+  private final int blockSize;
+  private final int readAheadBlocks;
+  private final int cacheBlocks;
+
+  private ReadAheadOptions( Builder builder ) {
+    blockSize = builder.blockSize;
+    readAheadBlocks = builder.readAheadBlocks;
+    cacheBlocks = builder.cacheBlocks;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return size of a cached block in bytes
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * @return number of blocks fetched by one request, reads of at least this many blocks bypass the cache
+   */
+  public int getReadAheadBlocks() {
+    return readAheadBlocks;
+  }
+
+  /**
+   * @return maximum number of blocks cached per open file
+   */
+  public int getCacheBlocks() {
+    return cacheBlocks;
+  }
+
+  @Override
+  public String toString() {
+    return "ReadAheadOptions{blockSize=" + blockSize + ", readAheadBlocks=" + readAheadBlocks + ", cacheBlocks="
+      + cacheBlocks + "}";
+  }
+
+  public static class Builder {
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private int readAheadBlocks = DEFAULT_READ_AHEAD_BLOCKS;
+    private int cacheBlocks = DEFAULT_CACHE_BLOCKS;
+
+    private Builder() {
+    }
+
+    public Builder blockSize( int bytes ) {
+      this.blockSize = positive( "Block size", bytes );
+      return this;
+    }
+
+    public Builder readAheadBlocks( int blocks ) {
+      this.readAheadBlocks = positive( "Read ahead blocks", blocks );
+      return this;
+    }
+
+    public Builder cacheBlocks( int blocks ) {
+      this.cacheBlocks = positive( "Cache blocks", blocks );
+      return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the cache cannot hold more blocks than one request fetches, a read
+     *                                  would evict the blocks it just fetched, or when one request would not fit in a
+     *                                  byte array; a read not aligned to the blocks fetches one block more than the
+     *                                  read ahead
+     */
+    public ReadAheadOptions build() {
+      if ( cacheBlocks <= readAheadBlocks ) {
+        throw new IllegalArgumentException( "Cache blocks (" + cacheBlocks + ") must be more than read ahead blocks ("
+          + readAheadBlocks + ")" );
+      }
+      if ( (long) blockSize * ( readAheadBlocks + 1L ) > Integer.MAX_VALUE ) {
+        throw new IllegalArgumentException( "Read ahead of " + readAheadBlocks + " blocks of " + blockSize
+          + " bytes is too large" );
+      }
+      return new ReadAheadOptions( this );
+    }
+
+    private static int positive( String name, int value ) {
+      if ( value <= 0 ) {
+        throw new IllegalArgumentException( name + " must be positive: " + value );
+      }
+      return value;
+    }
+  }
+}
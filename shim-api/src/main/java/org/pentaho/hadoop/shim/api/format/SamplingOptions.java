@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+/**
+ * Settings of a sample of the input rows, see {@link IPentahoInputFormat#createSampleReader(SamplingOptions)}. A sample
+ * is read in whole row groups (Parquet), stripes (ORC) or blocks (Avro), the units the formats can read on their own.
+ * Units are chosen from the file metadata, and no unit is read which would take the sample above
+ * {@link #getMaxBytes()}, except for the first unit which is always read.
+ */
+public class SamplingOptions {
+
+  public enum Strategy {
+    /**
+     * The first rows of the input in file order, like a record reader returns them.
+     */
+    FIRST_N,
+    /**
+     * Rows of units chosen at random from all files, each one equally likely.
+     */
+    RESERVOIR,
+    /**
+     * Rows of one unit chosen at random from each file, until enough rows are read.
+     */
+    ONE_PER_FILE
+  }
+
+  public static final int DEFAULT_MAX_ROWS = 1000;
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private final Strategy strategy;
+  private final int maxRows;
+  private final long maxBytes;
+  private final long seed;
+
+  private SamplingOptions( Builder builder ) {
+    strategy = builder.strategy;
+    maxRows = builder.maxRows;
+    maxBytes = builder.maxBytes;
+    seed = builder.seed;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Strategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * @return maximum number of rows returned
+   */
+  public int getMaxRows() {
+    return maxRows;
+  }
+
+  /**
+   * @return maximum number of data bytes read, the sum of the stored sizes of the chosen units restricted to the
+   * requested columns where the format allows it. File footers are not counted.
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return seed of the random choices, the same seed chooses the same rows of unchanged files
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  @Override
+  public String toString() {
+    return "SamplingOptions{strategy=" + strategy + ", maxRows=" + maxRows + ", maxBytes=" + maxBytes + ", seed="
+      + seed + "}";
+  }
+
+  public static class Builder {
+    private Strategy strategy = Strategy.FIRST_N;
+    private int maxRows = DEFAULT_MAX_ROWS;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long seed;
+
+    private Builder() {
+    }
+
+    public Builder strategy( Strategy strategy ) {
+      if ( strategy == null ) {
+        throw new IllegalArgumentException( "Strategy must not be null" );
+      }
+      this.strategy = strategy;
+      return this;
+    }
+
+    public Builder maxRows( int rows ) {
+      if ( rows <= 0 ) {
+        throw new IllegalArgumentException( "Maximum rows must be positive: " + rows );
+      }
+      this.maxRows = rows;
+      return this;
+    }
+
+    public Builder maxBytes( long bytes ) {
+      if ( bytes <= 0 ) {
+        throw new IllegalArgumentException( "Maximum bytes must be positive: " + bytes );
+      }
+      this.maxBytes = bytes;
+      return this;
+    }
+
+    public Builder seed( long seed ) {
+      this.seed = seed;
+      return this;
+    }
+
+    public SamplingOptions build() {
+      return new SamplingOptions( this );
+    }
+  }
+}
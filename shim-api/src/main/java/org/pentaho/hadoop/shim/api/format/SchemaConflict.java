@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Difference between the schemas of the files of a directory found by a schema discovery. Files which differ in the
+ * same way are reported together.
+ */
+public class SchemaConflict {
+
+  public enum Kind {
+    /**
+     * The field is missing from the files.
+     */
+    MISSING_FIELD,
+    /**
+     * The field has a type in the files which can be widened to a common type, e.g. Integer and Number.
+     */
+    WIDENED_TYPE,
+    /**
+     * The field has a type in the files which has no common type with the other files, e.g. Boolean and Date.
+     */
+    INCOMPATIBLE_TYPE,
+    /**
+     * The schema of the files could not be read, the files are left out of the merge.
+     */
+    UNREADABLE_FILE
+  }
+
+  private final Kind kind;
+  private final String fieldName;
+  private final int expectedType;
+  private final int actualType;
+  private final List<String> files;
+  private final boolean resolved;
+
+  /**
+   * @param fieldName    format name of the field, null for {@link Kind#UNREADABLE_FILE}
+   * @param expectedType pentaho type of the field in the first file which has it, {@link ValueMetaInterface#TYPE_NONE}
+   *                     when not applicable
+   * @param actualType   pentaho type of the field in {@code files}, {@link ValueMetaInterface#TYPE_NONE} when not
+   *                     applicable
+   * @param resolved     whether the merge rule accommodates the difference without losing data
+   */
+  public SchemaConflict( Kind kind, String fieldName, int expectedType, int actualType, List<String> files,
+                         boolean resolved ) {
+    this.kind = kind;
+    this.fieldName = fieldName;
+    this.expectedType = expectedType;
+    this.actualType = actualType;
+    this.files = Collections.unmodifiableList( new ArrayList<>( files ) );
+    this.resolved = resolved;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  public int getExpectedType() {
+    return expectedType;
+  }
+
+  public int getActualType() {
+    return actualType;
+  }
+
+  /**
+   * @return files the conflict was found in, in name order
+   */
+  public List<String> getFiles() {
+    return files;
+  }
+
+  public boolean isResolved() {
+    return resolved;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder( kind.name() );
+    if ( fieldName != null ) {
+      sb.append( " field '" ).append( fieldName ).append( '\'' );
+    }
+    if ( expectedType != ValueMetaInterface.TYPE_NONE || actualType != ValueMetaInterface.TYPE_NONE ) {
+      sb.append( ' ' ).append( ValueMetaBase.getTypeDesc( expectedType ) ).append( " vs " )
+        .append( ValueMetaBase.getTypeDesc( actualType ) );
+    }
+    sb.append( resolved ? " (resolved)" : " (unresolved)" ).append( " in " ).append( files );
+    return sb.toString();
+  }
+}
@@ -0,0 +1,122 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.format;
+
+/**
+ * Settings of a directory level schema discovery, see {@link IPentahoInputFormat#discoverSchema(String,
+ * SchemaDiscoveryOptions)}.
+ */
+public class SchemaDiscoveryOptions {
+
+  /**
+   * How the schemas of the files are combined.
+   */
+  public enum MergeRule {
+    /**
+     * Every field found in any file, fields missing from some files are read as null.
+     */
+    UNION,
+    /**
+     * Only the fields found in every file.
+     */
+    INTERSECTION,
+    /**
+     * All files must have the same fields with the same types, the schema of the first file is returned and every
+     * difference is reported as an unresolved conflict.
+     */
+    STRICT
+  }
+
+  public static final int DEFAULT_PARALLELISM = 4;
+
+  private final MergeRule mergeRule;
+  private final int maxFiles;
+  private final int parallelism;
+
+  private SchemaDiscoveryOptions( Builder builder ) {
+    mergeRule = builder.mergeRule;
+    maxFiles = builder.maxFiles;
+    parallelism = builder.parallelism;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public MergeRule getMergeRule() {
+    return mergeRule;
+  }
+
+  /**
+   * @return maximum number of files whose schema is read, 0 reads all files
+   */
+  public int getMaxFiles() {
+    return maxFiles;
+  }
+
+  /**
+   * @return maximum number of files read at the same time
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  @Override
+  public String toString() {
+    return "SchemaDiscoveryOptions{mergeRule=" + mergeRule + ", maxFiles=" + maxFiles + ", parallelism="
+      + parallelism + "}";
+  }
+
+  public static class Builder {
+    private MergeRule mergeRule = MergeRule.UNION;
+    private int maxFiles;
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private Builder() {
+    }
+
+    public Builder mergeRule( MergeRule mergeRule ) {
+      if ( mergeRule == null ) {
+        throw new IllegalArgumentException( "Merge rule must not be null" );
+      }
+      this.mergeRule = mergeRule;
+      return this;
+    }
+
+    /**
+     * Reads the schema of at most {@code maxFiles} files spread evenly over the files in name order, always including
+     * the first and the last one.
+     *
+     * @param maxFiles number of sampled files, 0 reads all files
+     */
+    public Builder maxFiles( int maxFiles ) {
+      if ( maxFiles < 0 ) {
+        throw new IllegalArgumentException( "Maximum number of files must not be negative: " + maxFiles );
+      }
+      this.maxFiles = maxFiles;
+      return this;
+    }
+
+    public Builder parallelism( int parallelism ) {
+      if ( parallelism <= 0 ) {
+        throw new IllegalArgumentException( "Parallelism must be positive: " + parallelism );
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    public SchemaDiscoveryOptions build() {
+      return new SchemaDiscoveryOptions( this );
+    }
+  }
+}
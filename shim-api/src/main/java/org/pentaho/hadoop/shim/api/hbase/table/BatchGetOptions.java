@@ -0,0 +1,148 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Settings of a batch lookup of row keys. The keys are sent in chunks, one request per chunk, and the chunks can be
+ * looked up in parallel.
+ */
+public class BatchGetOptions {
+  public static final int DEFAULT_CHUNK_SIZE = 100;
+
+  private final int chunkSize;
+  private final int parallelism;
+  private final ExecutorService executor;
+  private final List<Column> columns;
+
+  private BatchGetOptions( Builder builder ) {
+    chunkSize = builder.chunkSize;
+    parallelism = builder.parallelism;
+    executor = builder.executor;
+    columns = Collections.unmodifiableList( new ArrayList<>( builder.columns ) );
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return options fetching whole rows in sequential chunks of the default size
+   */
+  public static BatchGetOptions defaults() {
+    return builder().build();
+  }
+
+  /**
+   * @return number of row keys sent in one request
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @return maximum number of chunks looked up at the same time
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @return executor running parallel chunks or null to use threads owned by the lookup
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * @return columns to fetch, empty to fetch whole rows
+   */
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  public static class Column {
+    private final String family;
+    private final String qualifier;
+    private final boolean qualifierIsBinary;
+
+    public Column( String family, String qualifier, boolean qualifierIsBinary ) {
+      this.family = family;
+      this.qualifier = qualifier;
+      this.qualifierIsBinary = qualifierIsBinary;
+    }
+
+    public String getFamily() {
+      return family;
+    }
+
+    public String getQualifier() {
+      return qualifier;
+    }
+
+    public boolean isQualifierBinary() {
+      return qualifierIsBinary;
+    }
+  }
+
+  public static class Builder {
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = 1;
+    private ExecutorService executor;
+    private final List<Column> columns = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    public Builder chunkSize( int keys ) {
+      if ( keys < 1 ) {
+        throw new IllegalArgumentException( "Chunk size must be positive: " + keys );
+      }
+      this.chunkSize = keys;
+      return this;
+    }
+
+    public Builder parallelism( int chunks ) {
+      if ( chunks < 1 ) {
+        throw new IllegalArgumentException( "Parallelism must be positive: " + chunks );
+      }
+      this.parallelism = chunks;
+      return this;
+    }
+
+    /**
+     * @param executor executor for parallel chunks, it is not shut down by the lookup. At most
+     *                 {@link #parallelism(int)} tasks are submitted to it at a time.
+     */
+    public Builder executor( ExecutorService executor ) {
+      this.executor = executor;
+      return this;
+    }
+
+    public Builder addColumn( String family, String qualifier, boolean qualifierIsBinary ) {
+      if ( family == null || qualifier == null ) {
+        throw new IllegalArgumentException( "Column family and qualifier are required" );
+      }
+      columns.add( new Column( family, qualifier, qualifierIsBinary ) );
+      return this;
+    }
+
+    public BatchGetOptions build() {
+      return new BatchGetOptions( this );
+    }
+  }
+}
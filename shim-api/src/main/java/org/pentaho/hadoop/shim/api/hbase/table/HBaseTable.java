@@ -13,6 +13,7 @@
 
 package org.pentaho.hadoop.shim.api.hbase.table;
 
+import org.pentaho.hadoop.shim.api.hbase.Result;
 import org.pentaho.hadoop.shim.api.hbase.mapping.Mapping;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
@@ -52,5 +53,30 @@ public interface HBaseTable extends Closeable {
 
   boolean keyExists( byte[] key ) throws IOException;
 
+  /**
+   * Checks which of the keys exist, sending them in chunks instead of one request per key.
+   *
+   * @return one flag per key in the order of {@code keys}
+   */
+  boolean[] keysExist( List<byte[]> keys, BatchGetOptions options ) throws IOException;
+
+  /**
+   * Fetches the rows of the keys, sending them in chunks instead of one request per key.
+   *
+   * @return one result per key in the order of {@code keys}, null where the row does not exist
+   */
+  List<Result> get( List<byte[]> keys, BatchGetOptions options ) throws IOException;
+
   HBaseTableWriteOperationManager createWriteOperationManager( Long writeBufferSize ) throws IOException;
+
+  /**
+   * Creates a buffered write operation manager.
+   *
+   * @param writeBufferSize      size of the client side write buffer in bytes, null keeps auto flush on
+   * @param periodicFlushMillis  interval of the background flush of the buffer in milliseconds, zero or less disables
+   * @param maxInFlightMutations maximum number of mutations buffered before the buffer is flushed, zero or less only
+   *                             limits the buffer by size
+   */
+  HBaseTableWriteOperationManager createWriteOperationManager( Long writeBufferSize, long periodicFlushMillis,
+                                                               int maxInFlightMutations ) throws IOException;
 }
@@ -26,5 +26,16 @@ public interface HBaseTableWriteOperationManager extends Closeable {
 
   HBaseDelete createDelete( byte[] key );
 
+  /**
+   * Sends all buffered mutations to HBase.
+   *
+   * @throws HBaseWriteException when rows were rejected since the last report was taken, the exception carries them
+   */
   void flushCommits() throws IOException;
+
+  /**
+   * Returns and clears the rows rejected by HBase so far, e.g. by a background flush. Rows reported here are not
+   * reported again by {@link #flushCommits()}.
+   */
+  HBaseWriteErrorReport takeWriteErrorReport() throws IOException;
 }
@@ -0,0 +1,74 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rows rejected by HBase while writing through a buffered table, in the order the failures were reported. The
+ * retriable failures can be written again as they are.
+ */
+public final class HBaseWriteErrorReport {
+  private static final HBaseWriteErrorReport EMPTY = new HBaseWriteErrorReport( Collections.emptyList() );
+
+  private final List<HBaseWriteFailure> failures;
+
+  public HBaseWriteErrorReport( List<HBaseWriteFailure> failures ) {
+    this.failures = Collections.unmodifiableList( new ArrayList<>( failures ) );
+  }
+
+  public static HBaseWriteErrorReport empty() {
+    return EMPTY;
+  }
+
+  public List<HBaseWriteFailure> getFailures() {
+    return failures;
+  }
+
+  public List<HBaseWriteFailure> getRetriableFailures() {
+    List<HBaseWriteFailure> result = new ArrayList<>();
+    for ( HBaseWriteFailure failure : failures ) {
+      if ( failure.isRetriable() ) {
+        result.add( failure );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return true when every failed row may succeed when written again
+   */
+  public boolean isRetriable() {
+    for ( HBaseWriteFailure failure : failures ) {
+      if ( !failure.isRetriable() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean isEmpty() {
+    return failures.isEmpty();
+  }
+
+  public int size() {
+    return failures.size();
+  }
+
+  @Override
+  public String toString() {
+    return failures.size() + " rows failed to write, " + getRetriableFailures().size() + " of them retriable";
+  }
+}
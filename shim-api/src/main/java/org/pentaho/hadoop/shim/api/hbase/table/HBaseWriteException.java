@@ -0,0 +1,32 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import java.io.IOException;
+
+/**
+ * Thrown when buffered mutations were rejected by HBase. The report lists every failed row, so a caller can write the
+ * retriable ones again.
+ */
+public class HBaseWriteException extends IOException {
+  private final HBaseWriteErrorReport report;
+
+  public HBaseWriteException( HBaseWriteErrorReport report ) {
+    super( report.toString() );
+    this.report = report;
+  }
+
+  public HBaseWriteErrorReport getReport() {
+    return report;
+  }
+}
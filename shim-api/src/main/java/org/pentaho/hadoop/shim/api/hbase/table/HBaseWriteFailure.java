@@ -0,0 +1,70 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import java.util.Arrays;
+
+/**
+ * A row which could not be written to HBase after the client exhausted its retries.
+ */
+public final class HBaseWriteFailure {
+  public enum Operation {
+    PUT, DELETE, OTHER
+  }
+
+  private final byte[] rowKey;
+  private final Operation operation;
+  private final boolean retriable;
+  private final String server;
+  private final String message;
+
+  public HBaseWriteFailure( byte[] rowKey, Operation operation, boolean retriable, String server, String message ) {
+    this.rowKey = rowKey == null ? new byte[ 0 ] : rowKey.clone();
+    this.operation = operation == null ? Operation.OTHER : operation;
+    this.retriable = retriable;
+    this.server = server;
+    this.message = message;
+  }
+
+  public byte[] getRowKey() {
+    return rowKey.clone();
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  /**
+   * @return true when the failure was transient, e.g. a region move or a busy server, so writing the row again may
+   * succeed; false when the row itself was rejected, e.g. for an unknown column family
+   */
+  public boolean isRetriable() {
+    return retriable;
+  }
+
+  /**
+   * @return host and port of the region server which rejected the row, null when unknown
+   */
+  public String getServer() {
+    return server;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return operation + " " + Arrays.toString( rowKey ) + ( retriable ? " (retriable)" : "" ) + ": " + message;
+  }
+}
@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Settings of a parallel scan. The key range of the scan is split at the region boundaries of the table, or at split
+ * keys given by the caller, and the resulting ranges are scanned by a bounded number of threads.
+ */
+public class ParallelScanOptions {
+  public static final int DEFAULT_PARALLELISM = 4;
+  public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+  private final int parallelism;
+  private final int bufferSize;
+  private final boolean ordered;
+  private final List<byte[]> splitKeys;
+  private final ExecutorService executor;
+
+  private ParallelScanOptions( Builder builder ) {
+    parallelism = builder.parallelism;
+    bufferSize = builder.bufferSize;
+    ordered = builder.ordered;
+    splitKeys = Collections.unmodifiableList( new ArrayList<>( builder.splitKeys ) );
+    executor = builder.executor;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return options scanning the regions of the table on the default number of threads in key order
+   */
+  public static ParallelScanOptions defaults() {
+    return builder().build();
+  }
+
+  /**
+   * @return maximum number of ranges scanned at the same time
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @return number of rows read ahead per range before its scanner waits for the consumer
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return true to return the rows in key order like a sequential scan, false to return them as soon as any range
+   * delivers them
+   */
+  public boolean isOrdered() {
+    return ordered;
+  }
+
+  /**
+   * @return keys to split the scan at, empty to split at the region boundaries of the table
+   */
+  public List<byte[]> getSplitKeys() {
+    return splitKeys;
+  }
+
+  /**
+   * @return executor running the range scans or null to use threads owned by the scan
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  public static class Builder {
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean ordered = true;
+    private final List<byte[]> splitKeys = new ArrayList<>();
+    private ExecutorService executor;
+
+    private Builder() {
+    }
+
+    public Builder parallelism( int ranges ) {
+      if ( ranges < 1 ) {
+        throw new IllegalArgumentException( "Parallelism must be positive: " + ranges );
+      }
+      this.parallelism = ranges;
+      return this;
+    }
+
+    public Builder bufferSize( int rows ) {
+      if ( rows < 1 ) {
+        throw new IllegalArgumentException( "Buffer size must be positive: " + rows );
+      }
+      this.bufferSize = rows;
+      return this;
+    }
+
+    public Builder ordered( boolean ordered ) {
+      this.ordered = ordered;
+      return this;
+    }
+
+    /**
+     * Splits the scan at the given key instead of the region boundaries, the key starts a new range.
+     */
+    public Builder addSplitKey( byte[] splitKey ) {
+      if ( splitKey == null || splitKey.length == 0 ) {
+        throw new IllegalArgumentException( "Split keys must not be empty" );
+      }
+      splitKeys.add( splitKey.clone() );
+      return this;
+    }
+
+    /**
+     * @param executor executor for the range scans, it is not shut down by the scan. At most
+     *                 {@link #parallelism(int)} tasks are submitted to it at a time.
+     */
+    public Builder executor( ExecutorService executor ) {
+      this.executor = executor;
+      return this;
+    }
+
+    public ParallelScanOptions build() {
+      return new ParallelScanOptions( this );
+    }
+  }
+}
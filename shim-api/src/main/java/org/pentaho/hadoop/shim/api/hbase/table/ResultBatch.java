@@ -0,0 +1,55 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import org.pentaho.hadoop.shim.api.hbase.Result;
+
+/**
+ * View of a batch of rows returned by {@link ResultScanner#next(int)}. The view, its row keys and values and the
+ * {@link Result} objects handed out by {@link #get(int)} are reused by the next call to
+ * {@link ResultScanner#next(int)}, copy whatever has to outlive the batch.
+ */
+public interface ResultBatch {
+  /**
+   * @return number of rows in the batch, zero once the scan is exhausted
+   */
+  int size();
+
+  /**
+   * @param index row index, from zero to {@link #size()} exclusive
+   * @return the row key
+   */
+  byte[] getRow( int index );
+
+  /**
+   * Latest value of a column added to the scan with
+   * {@link ResultScannerBuilder#addColumnToScan(String, String, boolean)}.
+   *
+   * @param index  row index, from zero to {@link #size()} exclusive
+   * @param column position of the column in the order the columns were added to the scan
+   * @return the value or null when the row has no such column
+   */
+  byte[] getValue( int index, int column );
+
+  /**
+   * @param index row index, from zero to {@link #size()} exclusive
+   * @return the whole row
+   */
+  Result get( int index );
+
+  /**
+   * @return approximate size of the rows of the batch in bytes
+   */
+  long getSizeInBytes();
+}
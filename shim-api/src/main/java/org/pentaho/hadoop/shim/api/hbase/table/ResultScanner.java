@@ -17,10 +17,37 @@ import org.pentaho.hadoop.shim.api.hbase.Result;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by bryan on 1/19/16.
  */
 public interface ResultScanner extends Closeable {
   Result next() throws IOException;
+
+  /**
+   * Reads up to {@code n} rows at once. A batch holds no more rows than the scanner cache size and stops early once it
+   * reaches the maximum result size of the scan, see {@link ResultScannerBuilder#setCaching(int)} and
+   * {@link ResultScannerBuilder#setMaxResultSize(long)}. Rows are decoded without creating objects per row, the
+   * returned batch is reused by the next call.
+   *
+   * <p>
+   * The default implementation collects the rows of {@link #next()} one by one, its batches know no column positions
+   * and do not support {@link ResultBatch#getValue(int, int)}.
+   *
+   * @param n maximum number of rows
+   * @return the next rows, an empty batch once the scan is exhausted
+   */
+  default ResultBatch next( int n ) throws IOException {
+    if ( n <= 0 ) {
+      throw new IllegalArgumentException( "Batch size must be positive but was " + n );
+    }
+    List<Result> rows = new ArrayList<>();
+    Result row;
+    while ( rows.size() < n && ( row = next() ) != null ) {
+      rows.add( row );
+    }
+    return new RowByRowResultBatch( rows );
+  }
 }
@@ -31,5 +31,20 @@ public interface ResultScannerBuilder {
 
   void setCaching( int cacheSize );
 
+  /**
+   * Limits the bytes returned by one request to the region servers and by one {@link ResultScanner#next(int)} batch.
+   *
+   * @param maxResultSize size in bytes, zero or less for the server default
+   */
+  void setMaxResultSize( long maxResultSize );
+
+  /**
+   * Scans the key range as several ranges in parallel, split at the region boundaries of the table or at the split
+   * keys of the options. Null scans sequentially, which is the default.
+   *
+   * @param options parallelism, ordering and split keys of the scan
+   */
+  void setParallelScan( ParallelScanOptions options );
+
   ResultScanner build() throws IOException;
 }
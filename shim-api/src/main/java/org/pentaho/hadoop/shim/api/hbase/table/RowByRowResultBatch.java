@@ -0,0 +1,65 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import org.pentaho.hadoop.shim.api.hbase.Result;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * {@link ResultBatch} over rows read one by one, see {@link ResultScanner#next(int)}.
+ */
+class RowByRowResultBatch implements ResultBatch {
+  private final List<Result> rows;
+
+  RowByRowResultBatch( List<Result> rows ) {
+    this.rows = rows;
+  }
+
+  @Override public int size() {
+    return rows.size();
+  }
+
+  @Override public byte[] getRow( int index ) {
+    return rows.get( index ).getRow();
+  }
+
+  @Override public byte[] getValue( int index, int column ) {
+    throw new UnsupportedOperationException( "Rows read one by one have no column positions, use get( index )" );
+  }
+
+  @Override public Result get( int index ) {
+    return rows.get( index );
+  }
+
+  @Override public long getSizeInBytes() {
+    long size = 0;
+    for ( Result row : rows ) {
+      size += row.getRow().length;
+      NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map = row.getMap();
+      if ( map == null ) {
+        continue;
+      }
+      for ( Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> family : map.entrySet() ) {
+        for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> column : family.getValue().entrySet() ) {
+          for ( byte[] value : column.getValue().values() ) {
+            size += family.getKey().length + column.getKey().length + value.length;
+          }
+        }
+      }
+    }
+    return size;
+  }
+}
@@ -0,0 +1,69 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.api.hbase.table;
+
+import org.junit.Test;
+import org.pentaho.hadoop.shim.api.hbase.Result;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResultScannerTest {
+  @Test
+  public void batchesAreReadRowByRowByDefault() throws Exception {
+    Result first = row( "a" );
+    Result second = row( "b" );
+    Result third = row( "c" );
+    ResultScanner scanner = scanner( first, second, third );
+
+    ResultBatch batch = scanner.next( 2 );
+    assertEquals( 2, batch.size() );
+    assertSame( first, batch.get( 0 ) );
+    assertArrayEquals( "b".getBytes(), batch.getRow( 1 ) );
+
+    batch = scanner.next( 2 );
+    assertEquals( 1, batch.size() );
+    assertSame( third, batch.get( 0 ) );
+
+    assertEquals( 0, scanner.next( 2 ).size() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void batchSizeMustBePositive() throws Exception {
+    scanner().next( 0 );
+  }
+
+  private static Result row( String key ) {
+    Result result = mock( Result.class );
+    when( result.getRow() ).thenReturn( key.getBytes() );
+    return result;
+  }
+
+  private static ResultScanner scanner( Result... rows ) {
+    Iterator<Result> iterator = Arrays.asList( rows ).iterator();
+    return new ResultScanner() {
+      @Override public Result next() {
+        return iterator.hasNext() ? iterator.next() : null;
+      }
+
+      @Override public void close() {
+      }
+    };
+  }
+}
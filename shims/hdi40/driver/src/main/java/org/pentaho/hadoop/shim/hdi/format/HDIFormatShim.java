@@ -13,6 +13,7 @@
 package org.pentaho.hadoop.shim.hdi.format;
 
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IFormatTranscoder;
 import org.pentaho.hadoop.shim.api.format.IPentahoInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcInputFormat;
 import org.pentaho.hadoop.shim.api.format.IPentahoOrcOutputFormat;
@@ -45,4 +46,9 @@ public class HDIFormatShim extends CommonFormatShim {
     }
     throw new IllegalArgumentException( "Not supported HDI scheme format" );
   }
-}
\ No newline at end of file
+
+  @Override
+  public IFormatTranscoder createTranscoder( NamedCluster namedCluster ) {
+    return new HDIFormatTranscoder( namedCluster );
+  }
+}
@@ -0,0 +1,37 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.hadoop.shim.hdi.format;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.pentaho.hadoop.shim.HadoopShim;
+import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.common.format.transcode.FormatTranscoder;
+
+import java.io.IOException;
+
+public class HDIFormatTranscoder extends FormatTranscoder {
+  private final org.pentaho.hadoop.shim.api.internal.Configuration pentahoConf;
+  private final HadoopShim shim;
+
+  public HDIFormatTranscoder( NamedCluster namedCluster ) {
+    super( namedCluster );
+    shim = new HadoopShim();
+    pentahoConf = shim.createConfiguration( namedCluster );
+  }
+
+  @Override
+  protected FileSystem getFileSystem( Path path ) throws IOException {
+    return (FileSystem) shim.getFileSystem( pentahoConf ).getDelegate();
+  }
+}
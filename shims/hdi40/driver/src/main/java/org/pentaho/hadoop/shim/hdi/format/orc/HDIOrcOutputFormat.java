@@ -17,12 +17,14 @@ import org.apache.hadoop.fs.Path;
 import org.apache.orc.TypeDescription;
 import org.pentaho.hadoop.shim.HadoopShim;
 import org.pentaho.hadoop.shim.api.cluster.NamedCluster;
+import org.pentaho.hadoop.shim.api.format.IOrcOutputField;
 import org.pentaho.hadoop.shim.common.format.S3NCredentialUtils;
-import org.pentaho.hadoop.shim.common.format.orc.OrcSchemaConverter;
 import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcOutputFormat;
+import org.pentaho.hadoop.shim.common.format.orc.PentahoOrcRecordWriter;
 
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
+import java.util.List;
 
 public class HDIOrcOutputFormat extends PentahoOrcOutputFormat {
 
@@ -37,28 +39,20 @@ public class HDIOrcOutputFormat extends PentahoOrcOutputFormat {
   }
 
   @Override
-  public IPentahoRecordWriter createRecordWriter() throws RuntimeException {
-    logger.logDetailed( "Initializing HDI Orc Writer" );
-    if ( fields == null ) {
-      throw new IllegalStateException( "Invalid state.  The fields to write are null" );
-    }
-    if ( outputFilename == null ) {
-      throw new IllegalStateException( "Invalid state.  The outputFileName is null" );
-    }
-    OrcSchemaConverter converter = new OrcSchemaConverter();
-    TypeDescription schema = converter.buildTypeDescription( fields );
+  protected PentahoOrcRecordWriter createOrcRecordWriter( List<? extends IOrcOutputField> fields,
+                                                          TypeDescription schema, String file ) throws IOException {
+    return new HDIOrcRecordWriter( fields, schema, file, conf, (FileSystem) shim.getFileSystem( pentahoConf ) );
+  }
 
-    try {
-      return new HDIOrcRecordWriter( fields, schema, outputFilename, conf,
-              (FileSystem) shim.getFileSystem( pentahoConf ) );
-    } catch ( IOException e ) {
-      throw new IllegalStateException( e );
-    }
+  @Override
+  protected FileSystem getOutputFileSystem( Path path ) throws IOException {
+    return (FileSystem) shim.getFileSystem( pentahoConf ).getDelegate();
   }
 
   @Override
   public void setOutputFile( String file, boolean override ) throws Exception {
     this.outputFilename = S3NCredentialUtils.scrubFilePathIfNecessary( file );
+    this.override = override;
     S3NCredentialUtils util = new S3NCredentialUtils();
     util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, conf );
     Path outputFile = new Path( outputFilename );
@@ -43,6 +43,7 @@ public class HDIApacheOutputFormat extends PentahoApacheOutputFormat {
       S3NCredentialUtils util = new S3NCredentialUtils();
       util.applyS3CredentialsToHadoopConfigurationIfNecessary( file, job.getConfiguration() );
       outputFile = new Path( S3NCredentialUtils.scrubFilePathIfNecessary( file ) );
+      this.override = override;
       FileSystem fs = (FileSystem) shim.getFileSystem( pentahoConf ).getDelegate();
       if ( fs.exists( outputFile ) ) {
         if ( override ) {